@@ -1418,11 +1418,51 @@ public class Component<C extends Component.Config> implements IEventListener, IC
         return component;
     }
 
+    /**
+     * See {@link #reconcile(boolean)}.
+     */
+    private boolean reconcile;
+
+    /**
+     * The node context of the last render (when reconciling).
+     */
+    private NodeContext reconcilable;
+
+    /**
+     * Enables (or disables) the reconciling of a re-render (see
+     * {@link #rerender()}) against the prior render. Rather than clearing and
+     * rebuilding the DOM, the DOM is updated in place with only those nodes,
+     * attributes and text that have changed being modified. Child components
+     * that are rendered again are retained (rather than being disposed of).
+     * <p>
+     * This applies only where rendering is via {@link #buildNode(Element, Config)}
+     * (or one of its variants) building directly into the root element (i.e.
+     * {@code Wrap.$(el)}), otherwise re-rendering proceeds as normal. Nodes can
+     * be keyed (see {@link ElementBuilder#key(Object)} or
+     * {@link NodeBuilder#by(String)}) to match them across renders where they
+     * may be re-ordered. See
+     * {@link NodeBuilder#reconcile(NodeContext, Element, java.util.function.Supplier)}
+     * for details.
+     * <p>
+     * This should be set prior to rendering (normally during construction) and
+     * is well suited to state-driven components (see {@link StateComponent})
+     * that re-render on each change.
+     * 
+     * @param reconcile
+     *                  {@code true} to reconcile.
+     */
+    protected void reconcile(boolean reconcile) {
+        this.reconcile = reconcile;
+    }
+
     /**
      * Performs a re-rendering of the component. This will dispose of all components
      * and attachments (so these need to be re-done).
      * <p>
-     * If the component has not already been rendered then nothing is done.
+     * If the component has not already been rendered then nothing is done. If
+     * reconciling (see {@link #reconcile(boolean)}) then the DOM is updated in
+     * place and only those child components that are no longer rendered are
+     * disposed of.
      */
     public void rerender() {
         if (getRoot () == null)
@@ -1431,6 +1471,14 @@ public class Component<C extends Component.Config> implements IEventListener, IC
         if (DebugMode.RENDER.set ())
             Logger.trace ("[cpt]" ,"{rerendering} [" + toString() + "]");
 
+        // When reconciling, the disposal of children and updating of the DOM is
+        // performed during the render (see onRender(Element)).
+        if (reconcile && (reconcilable != null) && reconcilable.reconcilable ()) {
+            _render ();
+            return;
+        }
+        reconcilable = null;
+
         // Clear out all child components.
         disposeChildren (reusedComponents);
 
@@ -1573,7 +1621,30 @@ public class Component<C extends Component.Config> implements IEventListener, IC
         }
 
         // Render and register any returned event handler.
-        IUIEventHandler handler = renderer.render (el, config ());
+        IUIEventHandler handler;
+        if (reconcile) {
+            NodeContext previous = reconcilable;
+            handler = NodeBuilder.reconcile (previous, el, () -> renderer.render (el, config ()));
+            reconcilable = (handler instanceof NodeContext) ? (NodeContext) handler : null;
+            if (previous != null) {
+                // Dispose of those children that were not rendered again.
+                Set<IComponent> retained = new HashSet<> ();
+                if (reusedComponents != null)
+                    retained.addAll (reusedComponents);
+                if (reconcilable != null) {
+                    reconcilable.forEachLodgement (object -> {
+                        if (object instanceof IComponent)
+                            retained.add ((IComponent) object);
+                    });
+                }
+                forEach (c -> {
+                    if (!retained.contains (c))
+                        c.dispose ();
+                });
+            }
+        } else {
+            handler = renderer.render (el, config ());
+        }
         if (handler != null) {
             if (handler instanceof NodeContext) {
                 // This is a special case where the passed handler comes from the DomBuilder
@@ -0,0 +1,338 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.core.client.component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.gwtproject.core.client.Scheduler;
+
+import com.effacy.jui.core.client.component.IComponent.IParent;
+import com.effacy.jui.platform.util.client.Logger;
+
+import elemental2.dom.DomGlobal;
+
+/**
+ * Schedules the re-rendering of components so that multiple requests (i.e.
+ * from a sequence of state changes) are coalesced into a single render.
+ * <p>
+ * Components requesting a render (see {@link #schedule(Component)}) are marked
+ * as dirty and are re-rendered (see {@link Component#rerender()}) when the
+ * scheduler flushes. This occurs once per animation frame or at the end of the
+ * current event loop (see {@link Mode}). Components are re-rendered parents
+ * before children, so that a child disposed of by the re-rendering of an
+ * ancestor is not itself re-rendered (a component that is disposed of, or is
+ * re-rendered directly, should {@link #cancel(Component)} any pending render;
+ * {@link StateComponent} does this).
+ * <p>
+ * The default mode is {@link Mode#IMMEDIATE} which re-renders immediately (so
+ * is no different from calling {@link Component#rerender()} directly). An
+ * application can change this at startup (see {@link #mode(Mode)}). Where a
+ * render is needed immediately (i.e. to measure the DOM) then call
+ * {@link #flush()}.
+ */
+public final class RenderScheduler {
+
+    /**
+     * When scheduled renders are performed.
+     */
+    public enum Mode {
+
+        /**
+         * Renders immediately (no scheduling).
+         */
+        IMMEDIATE,
+
+        /**
+         * Renders at the end of the current event loop (prior to control being
+         * returned to the browser).
+         */
+        MICROTASK,
+
+        /**
+         * Renders on the next animation frame.
+         */
+        FRAME;
+    }
+
+    /**
+     * Counts of scheduling activity (see {@link RenderScheduler#metrics()}).
+     */
+    public static class Metrics {
+
+        private int scheduled;
+
+        private int rendered;
+
+        private int coalesced;
+
+        private int flushes;
+
+        /**
+         * The number of renders requested.
+         */
+        public int scheduled() {
+            return scheduled;
+        }
+
+        /**
+         * The number of renders performed.
+         */
+        public int rendered() {
+            return rendered;
+        }
+
+        /**
+         * The number of renders requested that were not performed as they were
+         * coalesced with another (either being already pending or being
+         * subsumed by a direct render or disposal of the component).
+         */
+        public int coalesced() {
+            return coalesced;
+        }
+
+        /**
+         * The number of flushes performed.
+         */
+        public int flushes() {
+            return flushes;
+        }
+
+        /**
+         * Resets the counts.
+         */
+        public void reset() {
+            scheduled = rendered = coalesced = flushes = 0;
+        }
+
+        @Override
+        public String toString() {
+            return "scheduled=" + scheduled + ", rendered=" + rendered + ", coalesced=" + coalesced + ", flushes=" + flushes;
+        }
+    }
+
+    /**
+     * Maximum number of passes during a flush (renders can schedule further
+     * renders) before the balance is deferred to the next flush.
+     */
+    private static final int MAX_PASSES = 10;
+
+    /**
+     * See {@link #mode(Mode)}.
+     */
+    private static Mode mode = Mode.IMMEDIATE;
+
+    /**
+     * Components pending a render (in order of request).
+     */
+    private static Set<Component<?>> pending = new LinkedHashSet<> ();
+
+    /**
+     * If a flush has been requested.
+     */
+    private static boolean requested;
+
+    /**
+     * If a flush is in progress.
+     */
+    private static boolean flushing;
+
+    /**
+     * See {@link #metrics()}.
+     */
+    private static Metrics metrics = new Metrics ();
+
+    /**
+     * Used (in place of the browser) to request a flush (for testing).
+     */
+    static Consumer<Runnable> deferral;
+
+    /**
+     * Private constructor.
+     */
+    private RenderScheduler() {
+        // Nothing.
+    }
+
+    /**
+     * Assigns the mode of scheduling (the default is {@link Mode#IMMEDIATE}).
+     * Any pending renders are flushed.
+     * 
+     * @param mode
+     *             the mode.
+     */
+    public static void mode(Mode mode) {
+        RenderScheduler.mode = (mode == null) ? Mode.IMMEDIATE : mode;
+        flush ();
+    }
+
+    /**
+     * The mode of scheduling.
+     */
+    public static Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Scheduling metrics.
+     */
+    public static Metrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Requests the passed component be re-rendered.
+     * 
+     * @param cpt
+     *            the component.
+     */
+    public static void schedule(Component<?> cpt) {
+        if (cpt == null)
+            return;
+        metrics.scheduled++;
+        if (!pending.add (cpt)) {
+            metrics.coalesced++;
+            return;
+        }
+        if (mode == Mode.IMMEDIATE) {
+            // While flushing the render will occur as part of the flush.
+            if (!flushing)
+                flush ();
+        } else if (!flushing) {
+            request (mode);
+        }
+    }
+
+    /**
+     * Requests a flush (if one has not already been requested).
+     * 
+     * @param mode
+     *             the mode that determines when the flush occurs.
+     */
+    private static void request(Mode mode) {
+        if (requested)
+            return;
+        requested = true;
+        Runnable flush = () -> {
+            if (requested)
+                flush ();
+        };
+        if (deferral != null)
+            deferral.accept (flush);
+        else if (mode == Mode.FRAME)
+            DomGlobal.requestAnimationFrame (timestamp -> flush.run ());
+        else
+            Scheduler.get ().scheduleFinally (() -> flush.run ());
+    }
+
+    /**
+     * Determines if the passed component has a pending render.
+     * 
+     * @param cpt
+     *            the component.
+     * @return {@code true} if it does.
+     */
+    public static boolean pending(Component<?> cpt) {
+        return (cpt != null) && pending.contains (cpt);
+    }
+
+    /**
+     * Cancels any pending render of the passed component (i.e. because it has
+     * been re-rendered by other means or has been disposed of).
+     * 
+     * @param cpt
+     *            the component.
+     * @return {@code true} if there was a pending render.
+     */
+    public static boolean cancel(Component<?> cpt) {
+        if ((cpt == null) || !pending.remove (cpt))
+            return false;
+        metrics.coalesced++;
+        return true;
+    }
+
+    /**
+     * Performs all pending renders immediately (parents before children).
+     */
+    public static void flush() {
+        requested = false;
+        if (flushing || pending.isEmpty ())
+            return;
+        flushing = true;
+        metrics.flushes++;
+        try {
+            for (int pass = 0; !pending.isEmpty () && (pass < MAX_PASSES); pass++) {
+                List<Component<?>> batch = new ArrayList<> (pending);
+                int[] depths = new int[batch.size ()];
+                for (int i = 0; i < depths.length; i++)
+                    depths[i] = depth (batch.get (i));
+                List<Component<?>> ordered = order (batch, depths);
+                for (Component<?> cpt : ordered) {
+                    // A prior render may have cancelled this one.
+                    if (!pending.remove (cpt))
+                        continue;
+                    metrics.rendered++;
+                    try {
+                        cpt.rerender ();
+                    } catch (Throwable e) {
+                        Logger.reportUncaughtException (e, cpt);
+                    }
+                }
+            }
+        } finally {
+            flushing = false;
+        }
+
+        // Anything remaining (i.e. from components that continue to schedule renders
+        // of each other) is deferred.
+        if (!pending.isEmpty ())
+            request ((mode == Mode.FRAME) ? Mode.FRAME : Mode.MICROTASK);
+    }
+
+    /**
+     * The depth of the component in the component hierarchy.
+     */
+    private static int depth(Component<?> cpt) {
+        int depth = 0;
+        IParent parent = cpt.getParent ();
+        while (parent instanceof IComponent) {
+            depth++;
+            parent = ((IComponent) parent).getParent ();
+        }
+        return depth;
+    }
+
+    /**
+     * Orders the components by depth (stable so that components at the same
+     * depth retain their order of request).
+     */
+    private static List<Component<?>> order(List<Component<?>> batch, int[] depths) {
+        int max = 0;
+        for (int depth : depths)
+            max = Math.max (max, depth);
+        List<Component<?>> ordered = new ArrayList<> (batch.size ());
+        for (int depth = 0; depth <= max; depth++) {
+            for (int i = 0; i < depths.length; i++) {
+                if (depths[i] == depth)
+                    ordered.add (batch.get (i));
+            }
+        }
+        return ordered;
+    }
+}
@@ -99,11 +99,27 @@ public class StateComponent<V extends IStateVariable<V>> extends SimpleComponent
     /**
      * Invoked when the internal state variable changes.
      * <p>
-     * The default behaviour is to re-render the component (by calling
-     * {@link #rerender ()}).
+     * The default behaviour is to re-render the component (by scheduling a call
+     * to {@link #rerender ()} with the {@link RenderScheduler}, so that
+     * successive changes can be coalesced into a single render). For components
+     * with large or frequently changing content consider enabling reconciliation
+     * (see {@link #reconcile(boolean)}) so that only the changes are applied to
+     * the DOM.
      */
     protected void onStateChanged() {
-        rerender ();
+        RenderScheduler.schedule (this);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Any pending render (see {@link #onStateChanged()}) is subsumed by this
+     * one.
+     */
+    @Override
+    public void rerender() {
+        RenderScheduler.cancel (this);
+        super.rerender ();
     }
 
     /**
@@ -141,6 +157,7 @@ public class StateComponent<V extends IStateVariable<V>> extends SimpleComponent
      */
     @Override
     protected void onDispose() {
+        RenderScheduler.cancel (this);
         if (this.stateListener != null) {
             this.stateListener.remove ();
             this.stateListener = null;
@@ -27,6 +27,7 @@ import com.effacy.jui.core.client.dom.renderer.IRenderable;
 import com.effacy.jui.core.client.dom.renderer.IRenderer;
 import com.effacy.jui.platform.util.client.With;
 
+import elemental2.dom.Element;
 import elemental2.dom.Node;
 
 public abstract class ContainerBuilder<T extends ContainerBuilder<T>> extends NodeBuilder<T> implements IDomInsertableContainer<T> {
@@ -985,12 +986,148 @@ public abstract class ContainerBuilder<T extends ContainerBuilder<T>> extends No
             for (NodeBuilder child : children) {
                 if (child == null)
                     continue;
+                int start = ctx.retain ? parent.childNodes.length : 0;
                 Node node = child._node (parent, ctx);
                 if (node != null)
                     parent.appendChild (node);
+                if (ctx.retain)
+                    child.built = _nodes (parent, start);
             }
         }
         return null;
     }
 
+    /**
+     * Reconciles the children of this builder against those of a prior builder
+     * whose nodes reside in the passed parent (see
+     * {@link NodeBuilder#reconcile(NodeContext, Element, java.util.function.Supplier)}).
+     * <p>
+     * Each child is matched against a prior child with the same key (see
+     * {@link NodeBuilder#key()}), in order. Where the prior child can be
+     * reconciled its nodes are reused otherwise the child is built afresh. The
+     * nodes of the prior children that were not reused are removed and the
+     * remainder are placed in order (with only those out of position being
+     * moved).
+     * 
+     * @param previous
+     *                 the prior builder.
+     * @param parent
+     *                 the parent node (that contains the nodes of the prior
+     *                 children).
+     * @param ctx
+     *                 the context to register against as needed.
+     */
+    @SuppressWarnings("rawtypes")
+    protected void _reconcileChildren(ContainerBuilder<?> previous, Node parent, BuildContext ctx) {
+        // Index the prior children by key (retaining their order), noting the position
+        // of their nodes and where these begin in the parent.
+        List<NodeBuilder> prior = new ArrayList<> ();
+        List<Integer> offsets = new ArrayList<> ();
+        int offset = 0;
+        Node anchor = null;
+        boolean anchored = false;
+        if (previous.children != null) {
+            for (NodeBuilder child : previous.children) {
+                if ((child == null) || (child.built == null))
+                    continue;
+                if (!anchored && (child.built[0].parentNode == parent)) {
+                    anchor = child.built[0].previousSibling;
+                    anchored = true;
+                }
+                prior.add (child);
+                offsets.add (offset);
+                offset += child.built.length;
+            }
+        }
+        ReconcileSupport.Candidates<NodeBuilder> candidates = new ReconcileSupport.Candidates<> (prior, NodeBuilder::key);
+
+        // Reconcile each child against its candidate, otherwise build afresh (into a
+        // holder from which the nodes are subsequently placed).
+        List<Node> nodes = new ArrayList<> ();
+        List<Integer> positions = new ArrayList<> ();
+        Element holder = null;
+        if (children != null) {
+            for (NodeBuilder child : children) {
+                if (child == null)
+                    continue;
+                int match = candidates.next (child.key ());
+                boolean reused = (match >= 0) && child._reconcile (prior.get (match), ctx);
+                if (!reused) {
+                    if (holder == null)
+                        holder = DomNodes.createElement ("div");
+                    int start = holder.childNodes.length;
+                    Node node = child._node (holder, ctx);
+                    if (node != null)
+                        holder.appendChild (node);
+                    child.built = _nodes (holder, start);
+                }
+                if (child.built != null) {
+                    for (int i = 0; i < child.built.length; i++) {
+                        nodes.add (child.built[i]);
+                        positions.add (reused ? offsets.get (match) + i : -1);
+                    }
+                }
+            }
+        }
+
+        // Remove the nodes of the prior children that were not reused.
+        previous._discard (parent);
+
+        // Place the nodes in order, moving only those that are out of order. These
+        // end where the last of the reused nodes ends or, if none were reused, where
+        // the prior nodes began.
+        int[] order = new int[positions.size ()];
+        Node last = null;
+        for (int i = 0, furthest = -1; i < order.length; i++) {
+            order[i] = positions.get (i);
+            if (order[i] > furthest) {
+                furthest = order[i];
+                last = nodes.get (i);
+            }
+        }
+        Node end = (last != null) ? last.nextSibling : (!anchored ? null : ((anchor == null) ? parent.firstChild : anchor.nextSibling));
+        ReconcileSupport.place (nodes, order, end, (node, before) -> parent.insertBefore (node, before));
+    }
+
+    /**
+     * Removes from the passed parent the nodes generated by the children of this
+     * builder (when built for reconciliation) that have not been reused.
+     * 
+     * @param parent
+     *               the parent node.
+     */
+    @SuppressWarnings("rawtypes")
+    void _discard(Node parent) {
+        if (children == null)
+            return;
+        for (NodeBuilder child : children) {
+            if ((child == null) || (child.built == null))
+                continue;
+            for (Node node : child.built) {
+                if (node.parentNode == parent)
+                    parent.removeChild (node);
+            }
+            child.built = null;
+        }
+    }
+
+    /**
+     * Obtains the child nodes of the passed parent from the given index.
+     * 
+     * @param parent
+     *               the parent.
+     * @param start
+     *               the index of the first child node.
+     * @return the nodes ({@code null} if there are none).
+     */
+    static Node[] _nodes(Node parent, int start) {
+        int end = parent.childNodes.length;
+        if (end <= start)
+            return null;
+        Node[] nodes = new Node[end - start];
+        for (int i = start; i < end; i++)
+            nodes[i - start] = parent.childNodes.getAt (i);
+        return nodes;
+    }
+
 }
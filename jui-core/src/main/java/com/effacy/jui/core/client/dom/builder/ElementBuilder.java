@@ -19,6 +19,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import org.gwtproject.safehtml.shared.SafeHtml;
@@ -591,4 +593,150 @@ public class ElementBuilder extends ContainerBuilder<ElementBuilder> {
             element.innerHTML = this.innerHTML;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This is the key assigned by {@link #key(Object)} (if there is one).
+     */
+    @Override
+    Object key() {
+        if (attributes != null) {
+            String key = attributes.get ("key");
+            if (key != null)
+                return key;
+        }
+        return super.key ();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Includes those events sunk directly on the element.
+     */
+    @Override
+    Set<UIEventType> sinks() {
+        Set<UIEventType> sinks = super.sinks ();
+        if (events != null)
+            sinks.addAll (events);
+        return sinks;
+    }
+
+    @Override
+    protected Node _reconcileImpl(NodeBuilder<?> previous, BuildContext ctx) {
+        ElementBuilder prior = (ElementBuilder) previous;
+        Element element = _reusable (prior);
+        if (element == null)
+            return null;
+        int lodgementCount = (handleLodgements != null) ? ctx.lodgements().size() : 0;
+        __reconcileImpl (prior, element);
+        _reconcileChildren (prior, element, ctx);
+        if (handleLodgements != null)
+            handleLodgements.accept (ctx.lodgements().subList(lodgementCount, ctx.lodgements().size()));
+        return element;
+    }
+
+    /**
+     * Determines the element generated by the prior builder that can be reused
+     * by this one. This requires the same tag (or the same root for a root
+     * builder) and that neither declare inner HTML.
+     * 
+     * @param prior
+     *              the prior builder.
+     * @return the element ({@code null} if it cannot be reused).
+     */
+    Element _reusable(ElementBuilder prior) {
+        if (!StringSupport.empty (innerHTML) || !StringSupport.empty (prior.innerHTML))
+            return null;
+        if (tag == null)
+            return ((root () != null) && (root () == prior.root ())) ? (Element) root () : null;
+        if (!tag.equalsIgnoreCase (prior.tag) || (prior.built.length != 1) || !(prior.built[0] instanceof Element))
+            return null;
+        return (Element) prior.built[0];
+    }
+
+    /**
+     * Invoked by {@link #_reconcileImpl(NodeBuilder, BuildContext)} to update
+     * the adornments of the element (generated by the prior builder) with only
+     * those that differ. Adornments not applied by the prior builder (i.e.
+     * classes added by other means) are left untouched.
+     * <p>
+     * Events sunk by the prior builder (see {@link #sinks()}) but not by this one
+     * are detached, except from the root (which belongs to the component and may
+     * sink events independently of the builder).
+     */
+    protected void __reconcileImpl(ElementBuilder prior, Element element) {
+        if (prior.klasses != null) {
+            for (String klass : prior.klasses) {
+                if ((klasses == null) || !klasses.contains (klass))
+                    element.classList.remove (klass);
+            }
+        }
+        if (klasses != null) {
+            for (String klass : klasses) {
+                if ((prior.klasses == null) || !prior.klasses.contains (klass))
+                    element.classList.add (klass);
+            }
+        }
+        if (prior.attributes != null) {
+            for (String name : prior.attributes.keySet ()) {
+                if ((name == null) || ((attributes != null) && attributes.containsKey (name)))
+                    continue;
+                if ("checked".equalsIgnoreCase (name))
+                    ((HTMLInputElement) element).checked = false;
+                else if ("disabled".equalsIgnoreCase (name))
+                    ((HTMLInputElement) element).disabled = false;
+                else
+                    element.removeAttribute (name);
+            }
+        }
+        if (attributes != null) {
+            for (Map.Entry<String, String> attribute : attributes.entrySet ()) {
+                String name = attribute.getKey ();
+                if (name == null)
+                    continue;
+                // The checked and disabled properties may be changed by the user so are always
+                // set.
+                if ("checked".equalsIgnoreCase (name))
+                    ((HTMLInputElement) element).checked = "true".equalsIgnoreCase (attribute.getValue ());
+                else if ("disabled".equalsIgnoreCase (name))
+                    ((HTMLInputElement) element).disabled = "true".equalsIgnoreCase (attribute.getValue ());
+                else if ((prior.attributes == null) || !Objects.equals (attribute.getValue (), prior.attributes.get (name)))
+                    element.setAttribute (name, attribute.getValue ());
+            }
+        }
+        if (prior.css != null) {
+            for (String property : prior.css.keySet ()) {
+                if (StringSupport.empty (prior.css.get (property)))
+                    continue;
+                if ((css == null) || StringSupport.empty (css.get (property))) {
+                    if (property.startsWith("--"))
+                        ((HTMLElement) element).style.setProperty (property, "");
+                    else
+                        ((HTMLElement) element).style.set (property, "");
+                }
+            }
+        }
+        if (css != null) {
+            for (String property : css.keySet ()) {
+                String value = css.get (property);
+                if (StringSupport.empty (value))
+                    continue;
+                if ((prior.css != null) && value.equals (prior.css.get (property)))
+                    continue;
+                if (property.startsWith("--"))
+                    ((HTMLElement) element).style.setProperty (property, value);
+                else
+                    ((HTMLElement) element).style.set (property, value);
+            }
+        }
+        if (tag != null)
+            ReconcileSupport.removed (prior.sinks (), sinks (), event -> event.detach (element));
+        if (events != null) {
+            for (UIEventType event : events) {
+                if ((prior.events == null) || !prior.events.contains (event))
+                    event.attach (element);
+            }
+        }
+    }
+
 }
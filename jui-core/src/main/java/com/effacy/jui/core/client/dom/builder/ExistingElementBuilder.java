@@ -46,6 +46,11 @@ public class ExistingElementBuilder extends ElementBuilder {
         return super._nodeImpl (existing, ctx);
     }
 
+    @Override
+    Node root() {
+        return existing;
+    }
+
     /**
      * Clears all the nodes in the existing element.
      * 
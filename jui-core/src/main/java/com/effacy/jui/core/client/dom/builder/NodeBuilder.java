@@ -18,10 +18,13 @@ package com.effacy.jui.core.client.dom.builder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import com.effacy.jui.core.client.IDisposable;
 import com.effacy.jui.core.client.dom.DomSupport;
@@ -53,6 +56,17 @@ public abstract class NodeBuilder<T extends NodeBuilder<T>> implements IDomInser
          */
         private BuildContext ctx;
 
+        /**
+         * The root builder (retained only when built for reconciliation, see
+         * {@link NodeBuilder#reconcile(NodeContext, Element, Supplier)}).
+         */
+        private NodeBuilder<?> builder;
+
+        /**
+         * See {@link #reconciled()}.
+         */
+        private boolean reconciled;
+
         /**
          * Construct with the node and context.
          * 
@@ -75,6 +89,27 @@ public abstract class NodeBuilder<T extends NodeBuilder<T>> implements IDomInser
             return node;
         }
 
+        /**
+         * Determines if a subsequent build can be reconciled against this one (see
+         * {@link NodeBuilder#reconcile(NodeContext, Element, Supplier)}).
+         * 
+         * @return {@code true} if it can.
+         */
+        public boolean reconcilable() {
+            return (builder != null);
+        }
+
+        /**
+         * Determines if this was built by reconciling against a prior build (so
+         * that the DOM of the prior build was updated in place rather than being
+         * built anew).
+         * 
+         * @return {@code true} if it was.
+         */
+        public boolean reconciled() {
+            return reconciled;
+        }
+
         /**
          * {@inheritDoc}
          *
@@ -138,6 +173,7 @@ public abstract class NodeBuilder<T extends NodeBuilder<T>> implements IDomInser
                 ctx.dispose ();
             ctx = null;
             node = null;
+            builder = null;
         }
 
     }
@@ -335,6 +371,12 @@ public abstract class NodeBuilder<T extends NodeBuilder<T>> implements IDomInser
          */
         private List<Object> lodgements;
 
+        /**
+         * If the nodes generated by each builder should be recorded against the
+         * builder (so the build can be reconciled against later).
+         */
+        boolean retain;
+
         /**
          * Lodges an object for protential processing by the called.
          * 
@@ -523,6 +565,12 @@ public abstract class NodeBuilder<T extends NodeBuilder<T>> implements IDomInser
      */
     protected boolean condition = true;
 
+    /**
+     * The nodes generated by this builder (in order) when built for
+     * reconciliation (see {@link BuildContext#retain}).
+     */
+    Node[] built;
+
     /**
      * A test condition for the node. The node will only be build if this condition
      * is {@code true}.
@@ -780,7 +828,27 @@ public abstract class NodeBuilder<T extends NodeBuilder<T>> implements IDomInser
      */
     public NodeContext build(Consumer<NodeContext> extractor) {
         BuildContext ctx = new BuildContext ();
-        NodeContext nodeCtx = new NodeContext (_node (null, ctx), ctx);
+        NodeContext nodeCtx;
+        Reconciliation scope = reconciliation;
+        if ((scope != null) && !scope.consumed && (root () != null) && (root () == scope.root)) {
+            // This is the root of a render being reconciled, so we retain the
+            // builders and reconcile against the prior build (if there is one).
+            scope.consumed = true;
+            ctx.retain = true;
+            NodeBuilder<?> previous = (scope.previous == null) ? null : scope.previous.builder;
+            if ((previous != null) && _reconcile (previous, ctx)) {
+                nodeCtx = new NodeContext (built[0], ctx);
+                nodeCtx.reconciled = true;
+            } else {
+                Node node = _node (null, ctx);
+                built = (node == null) ? null : new Node[] { node };
+                nodeCtx = new NodeContext (node, ctx);
+            }
+            nodeCtx.builder = this;
+            scope.outcome = nodeCtx;
+        } else {
+            nodeCtx = new NodeContext (_node (null, ctx), ctx);
+        }
         if (extractor != null) {
             try {
                 extractor.accept (nodeCtx);
@@ -817,6 +885,33 @@ public abstract class NodeBuilder<T extends NodeBuilder<T>> implements IDomInser
         Node node = _nodeImpl (parent, ctx);
         if (node == null)
             return null;
+        _register (node, ctx);
+        return node;
+    }
+
+    /**
+     * The event types sunk by the event handlers registered with this builder
+     * (see {@link #on(BiConsumer, int, UIEventType...)}).
+     * 
+     * @return the event types (never {@code null}).
+     */
+    Set<UIEventType> sinks() {
+        Set<UIEventType> sinks = new HashSet<> ();
+        if (events != null)
+            events.forEach (registration -> sinks.addAll (registration.events));
+        return sinks;
+    }
+
+    /**
+     * Registers the node (as generated by this builder) against the context
+     * (references and events) and applies any executions.
+     * 
+     * @param node
+     *             the node.
+     * @param ctx
+     *             the context to register against.
+     */
+    private void _register(Node node, BuildContext ctx) {
         if (reference != null)
             ctx.register (reference, node);
         if (events != null) {
@@ -825,7 +920,6 @@ public abstract class NodeBuilder<T extends NodeBuilder<T>> implements IDomInser
         }
         if (this.executions != null)
             this.executions.forEach (h -> h.accept (node));
-        return node;
     }
 
     /**
@@ -840,4 +934,151 @@ public abstract class NodeBuilder<T extends NodeBuilder<T>> implements IDomInser
      */
     protected abstract Node _nodeImpl(Node parent, BuildContext ctx);
 
+    /************************************************************************
+     * Reconciliation.
+     ************************************************************************/
+
+    /**
+     * A scope in which a render is being reconciled against a prior render. See
+     * {@link NodeBuilder#reconcile(NodeContext, Element, Supplier)}.
+     */
+    static class Reconciliation {
+
+        /**
+         * The prior build (if any).
+         */
+        NodeContext previous;
+
+        /**
+         * The element the render is into.
+         */
+        Node root;
+
+        /**
+         * If a build has taken up the scope.
+         */
+        boolean consumed;
+
+        /**
+         * The outcome of the build that took up the scope.
+         */
+        NodeContext outcome;
+
+        Reconciliation(NodeContext previous, Node root) {
+            this.previous = previous;
+            this.root = root;
+        }
+    }
+
+    /**
+     * The active reconciliation scope (if any).
+     */
+    private static Reconciliation reconciliation;
+
+    /**
+     * Performs a render that is reconciled against a prior render. Rather than
+     * building the DOM anew (with the prior DOM having been cleared) the builder
+     * structure generated by the render is compared against that of the prior
+     * render with nodes being reused (and their attributes, styles and text
+     * patched) where possible; new nodes are built as needed and those nodes no
+     * longer present are removed.
+     * <p>
+     * This applies to the first build during the render whose root builder wraps
+     * the passed root element (i.e. {@code Wrap.$(root)}). That build retains its
+     * builder structure (in the returned {@link NodeContext}) so that it can
+     * serve as the prior render for the next render (the initial render should
+     * also be performed in this manner passing a {@code null} prior render).
+     * <p>
+     * Sibling nodes are matched on their key (see
+     * {@link ElementBuilder#key(Object)}) or, failing that, their reference (see
+     * {@link #by(String)}); those with neither are matched in order. Builders
+     * that do not generate an element or simple text (i.e. fragments, renderers
+     * and components) are always built anew (though a component that has already
+     * been rendered will be moved rather than re-rendered).
+     * 
+     * @param previous
+     *                 the node context of the prior render (may be {@code null}).
+     * @param root
+     *                 the element being rendered into.
+     * @param render
+     *                 to perform the render.
+     * @return the outcome of the render.
+     */
+    public static <V> V reconcile(NodeContext previous, Element root, Supplier<V> render) {
+        Reconciliation outer = reconciliation;
+        Reconciliation scope = new Reconciliation (previous, root);
+        reconciliation = scope;
+        try {
+            return render.get ();
+        } finally {
+            reconciliation = outer;
+            // Where the render was not reconciled the prior DOM remains so needs to be
+            // removed.
+            if ((previous != null) && (previous.builder instanceof ContainerBuilder) && ((scope.outcome == null) || !scope.outcome.reconciled))
+                ((ContainerBuilder<?>) previous.builder)._discard (root);
+        }
+    }
+
+    /**
+     * The existing node that this builder builds into (and returns) as a root
+     * builder, if it does so.
+     * 
+     * @return the node (or {@code null} if the builder creates its own).
+     */
+    Node root() {
+        return null;
+    }
+
+    /**
+     * The key used to match this builder against those of a prior build when
+     * reconciling. By default this is the reference (see {@link #by(String)}).
+     * 
+     * @return the key (may be {@code null}).
+     */
+    Object key() {
+        return reference;
+    }
+
+    /**
+     * Reconciles this builder against a builder (of the same type) from a prior
+     * build (and in the corresponding position in the structure). If successful
+     * the nodes generated by the prior builder are reused (and are assigned to
+     * this builder), otherwise the caller should build afresh.
+     * 
+     * @param previous
+     *                 the prior builder.
+     * @param ctx
+     *                 the context to register against as needed.
+     * @return {@code true} if the prior nodes were reused.
+     */
+    final boolean _reconcile(NodeBuilder<?> previous, BuildContext ctx) {
+        if (!condition || (previous == null) || (previous.built == null) || (previous.getClass () != getClass ()))
+            return false;
+        Node node = _reconcileImpl (previous, ctx);
+        if (node == null)
+            return false;
+        built = previous.built;
+        previous.built = null;
+        _register (node, ctx);
+        return true;
+    }
+
+    /**
+     * Called by {@link #_reconcile(NodeBuilder, BuildContext)} to update the
+     * node generated by the prior builder (which is guaranteed to be of the same
+     * type as this one) so as to reflect this builder.
+     * <p>
+     * This is intended to be implemented by sub-classes that support
+     * reconciliation (the default is not to).
+     * 
+     * @param previous
+     *                 the prior builder.
+     * @param ctx
+     *                 the context to register against as needed.
+     * @return the reused node (or {@code null} if the node could not be reused).
+     */
+    protected Node _reconcileImpl(NodeBuilder<?> previous, BuildContext ctx) {
+        return null;
+    }
+
 }
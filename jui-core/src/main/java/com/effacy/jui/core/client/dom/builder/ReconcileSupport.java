@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.core.client.dom.builder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The decisions made when reconciling the children of a builder against those
+ * of a prior build (see
+ * {@link ContainerBuilder#_reconcileChildren(ContainerBuilder, elemental2.dom.Node, NodeBuilder.BuildContext)}):
+ * which prior child each child is matched against and which nodes need to be
+ * moved to place them in order. These are independent of the DOM.
+ */
+final class ReconcileSupport {
+
+    /**
+     * Indexes prior items by key so that items can be matched against them in
+     * order of appearance.
+     */
+    static class Candidates<T> {
+
+        /**
+         * The positions of the prior items by key (in order).
+         */
+        private Map<Object, List<Integer>> positions = new HashMap<> ();
+
+        /**
+         * The number of positions consumed by key.
+         */
+        private Map<Object, Integer> consumed = new HashMap<> ();
+
+        /**
+         * Construct with the prior items.
+         *
+         * @param prior
+         *              the prior items (in order).
+         * @param key
+         *              obtains the key of an item (may be {@code null}).
+         */
+        Candidates(List<T> prior, Function<T, Object> key) {
+            for (int i = 0; i < prior.size (); i++) {
+                Object k = key.apply (prior.get (i));
+                List<Integer> items = positions.get (k);
+                if (items == null) {
+                    items = new ArrayList<> ();
+                    positions.put (k, items);
+                }
+                items.add (i);
+            }
+        }
+
+        /**
+         * Obtains the position of the next prior item with the given key that has
+         * not already been matched.
+         *
+         * @param key
+         *            the key.
+         * @return the position of the prior item ({@code -1} if none remain).
+         */
+        int next(Object key) {
+            List<Integer> items = positions.get (key);
+            if (items == null)
+                return -1;
+            int count = consumed.getOrDefault (key, 0);
+            if (count >= items.size ())
+                return -1;
+            consumed.put (key, count + 1);
+            return items.get (count);
+        }
+    }
+
+    /**
+     * Determines those nodes (in their new order) that can remain where they are,
+     * being a longest run of nodes whose prior positions are increasing. All
+     * others (including new nodes) need to be moved (or inserted).
+     *
+     * @param prior
+     *              the prior position of each node ({@code -1} for a new node).
+     * @return for each node, if it can remain in place.
+     */
+    static boolean[] stationary(int[] prior) {
+        int n = prior.length;
+        boolean[] result = new boolean[n];
+        // Longest increasing subsequence: tails[k] is the index of the node that ends
+        // the run of length k+1 with the smallest prior position.
+        int[] tails = new int[n];
+        int[] previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            if (prior[i] < 0)
+                continue;
+            int lo = 0, hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (prior[tails[mid]] < prior[i])
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            previous[i] = (lo > 0) ? tails[lo - 1] : -1;
+            tails[lo] = i;
+            if (lo == length)
+                length++;
+        }
+        for (int i = (length > 0) ? tails[length - 1] : -1; i >= 0; i = previous[i])
+            result[i] = true;
+        return result;
+    }
+
+    /**
+     * Places the nodes in order by moving (or inserting) only those that are not
+     * stationary (see {@link #stationary(int[])}). Nodes are placed from the last
+     * so that each is placed before its successor (the last being placed before
+     * the passed end node).
+     *
+     * @param nodes
+     *                     the nodes in their new order.
+     * @param prior
+     *                     the prior position of each node ({@code -1} for a new
+     *                     node).
+     * @param end
+     *                     the node that follows the nodes being placed (may be
+     *                     {@code null} to place at the end).
+     * @param insertBefore
+     *                     to insert the first node before the second.
+     * @return the number of nodes moved (or inserted).
+     */
+    static <N> int place(List<N> nodes, int[] prior, N end, BiConsumer<N, N> insertBefore) {
+        boolean[] stationary = stationary (prior);
+        int moved = 0;
+        N before = end;
+        for (int i = nodes.size () - 1; i >= 0; i--) {
+            N node = nodes.get (i);
+            if (!stationary[i]) {
+                insertBefore.accept (node, before);
+                moved++;
+            }
+            before = node;
+        }
+        return moved;
+    }
+
+    /**
+     * Invokes the action on each of the prior items that is no longer present
+     * (i.e. to undo an adornment of a reused node that is no longer wanted).
+     *
+     * @param prior
+     *                the prior items (may be {@code null}).
+     * @param current
+     *                the current items (may be {@code null}).
+     * @param action
+     *                invoked on each item no longer present.
+     * @return the number of items no longer present.
+     */
+    static <T> int removed(Collection<T> prior, Collection<T> current, Consumer<T> action) {
+        if (prior == null)
+            return 0;
+        int removed = 0;
+        for (T item : prior) {
+            if ((current == null) || !current.contains (item)) {
+                action.accept (item);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Not instantiable.
+     */
+    private ReconcileSupport() {
+        // Nothing.
+    }
+}
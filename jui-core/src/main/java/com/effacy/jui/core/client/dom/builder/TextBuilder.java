@@ -104,4 +104,22 @@ public class TextBuilder extends NodeBuilder<TextBuilder> {
         return DomNodes.createTextNode (""); 
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only text that is not split can be reconciled (where the text has changed
+     * the node is updated).
+     */
+    @Override
+    protected Node _reconcileImpl(NodeBuilder<?> previous, BuildContext ctx) {
+        TextBuilder prior = (TextBuilder) previous;
+        if (split || prior.split || (prior.built.length != 1))
+            return null;
+        Node node = prior.built[0];
+        String text = (content == null) ? "" : StringSupport.safe (content.get ());
+        if (!text.equals (node.textContent))
+            node.textContent = text;
+        return node;
+    }
+
 }
@@ -108,4 +108,71 @@ public interface ITemplateBuilder<D> {
 
         };
     }
+
+    /**
+     * See {@link #renderer(ITemplateBuilder)} but renders from a compiled form of
+     * the template (see {@link TemplateBuilder.Compiled}). The static structure of
+     * the template is built once and cloned on each render with only the data
+     * dependent parts being patched in.
+     * 
+     * @param <A>
+     *                the data type the template will process against.
+     * @param builder
+     *                passed a container this will build the template into that
+     *                container.
+     * @return the associated renderer.
+     */
+    public static <A> IDataRenderer<A> compiled(ITemplateBuilder<A> builder) {
+        return new IDataRenderer<A> () {
+
+            private IDataRenderer<A> renderer;
+
+            @Override
+            public IUIEventHandler render(Element el, A data) {
+                if (renderer == null) {
+                    Container<A> container = new Container<A> ();
+                    if (builder != null)
+                        builder.build (container);
+                    renderer = container.compiled ();
+                }
+                return renderer.render (el, data);
+            }
+
+        };
+    }
+
+    /**
+     * See {@link #compiled(ITemplateBuilder)} but creates a cached version under
+     * the given cache key. The compiled form is retained by the cached renderer so
+     * the template is compiled only once for the given cache key (the cache is
+     * shared with {@link #renderer(String, ITemplateBuilder)} so the keys used
+     * should be distinct).
+     * 
+     * @param <A>
+     *                 the data type the template will process against.
+     * @param cacheKey
+     *                 the key to use to cache under (if {@code null} then no
+     *                 caching will be performed).
+     * @param builder
+     *                 passed a container this will build the template into that
+     *                 container.
+     * @return the associated renderer.
+     */
+    public static <A> IDataRenderer<A> compiled(String cacheKey, ITemplateBuilder<A> builder) {
+        if (cacheKey == null)
+            return compiled (builder);
+        return new CachedDataRenderer<A> (cacheKey) {
+
+            /**
+             * {@inheritDoc}
+             *
+             * @see com.effacy.jui.core.client.dom.renderer.CachedDataRenderer#buildRenderer()
+             */
+            @Override
+            protected IDataRenderer<A> buildRenderer() {
+                return ITemplateBuilder.compiled (builder);
+            }
+
+        };
+    }
 }
@@ -16,6 +16,7 @@
 package com.effacy.jui.core.client.dom.renderer.template;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -34,6 +35,7 @@ import com.effacy.jui.core.client.dom.IUIEventHandler;
 import com.effacy.jui.core.client.dom.UIEvent;
 import com.effacy.jui.core.client.dom.UIEventType;
 import com.effacy.jui.core.client.dom.builder.DomBuilder;
+import com.effacy.jui.core.client.dom.builder.DomNodes;
 import com.effacy.jui.core.client.dom.renderer.IDataRenderer;
 import com.effacy.jui.core.client.dom.renderer.template.Provider.CastingProvider;
 import com.effacy.jui.core.client.dom.renderer.template.Provider.ConstantProvider;
@@ -43,6 +45,8 @@ import com.effacy.jui.platform.util.client.Logger;
 import com.effacy.jui.platform.util.client.StringSupport;
 import com.effacy.jui.platform.util.client.With;
 
+import elemental2.dom.HTMLTemplateElement;
+
 /**
  * Allows for the construction of a DOM-oriented template that builds nodes
  * responsive to passed data (conditionally and content).
@@ -228,11 +232,39 @@ public final class TemplateBuilder {
         public BuildContext finish() {
             parent.innerHTML = builder.toSafeHtml ().asString ();
             builder = null;
+            resolve (parent);
+            return this;
+        }
 
-            // Resolve any references.
+        /**
+         * Converts what has been built so far into a document fragment (resolving
+         * any references and bindings against the nodes in the fragment) and resets
+         * the builder so that building may continue. This is used by
+         * {@link Compiled} to render those parts of a template that could not be
+         * compiled.
+         *
+         * @return the fragment (to be inserted by the caller).
+         */
+        protected elemental2.dom.DocumentFragment fragment() {
+            // A template element is used to ensure that content (such as table rows)
+            // is parsed independently of any context.
+            HTMLTemplateElement template = (HTMLTemplateElement) DomNodes.createElement ("template");
+            template.innerHTML = builder.toSafeHtml ().asString ();
+            builder = new SafeHtmlBuilder ();
+            resolve (template.content);
+            return template.content;
+        }
+
+        /**
+         * Resolves references and bindings against the nodes under the given root.
+         *
+         * @param root
+         *             the root to traverse.
+         */
+        private void resolve(elemental2.dom.Node root) {
             if ((references != null) || (bindings != null)) {
                 // Traverse the DOM and pickup the references.
-                DomSupport.traverse (parent, n -> {
+                DomSupport.traverse (root, n -> {
                     if (n.nodeType == 1) {
                         if (references != null) {
                             String ref = ((elemental2.dom.Element) n).getAttribute (LOOKUP_ATTR);
@@ -257,8 +289,6 @@ public final class TemplateBuilder {
                 bindings.clear ();
                 bindings = null;
             }
-
-            return this;
         }
 
         /**
@@ -333,6 +363,41 @@ public final class TemplateBuilder {
             }
         }
 
+        /**
+         * Registers a node directly against a reference (rather than having it
+         * resolved on finish).
+         * 
+         * @param reference
+         *                  the reference for the node.
+         * @param node
+         *                  the node.
+         */
+        public void register(String reference, elemental2.dom.Node node) {
+            if ((reference == null) || (node == null))
+                return;
+            register (reference);
+            references.get (reference).add (node);
+        }
+
+        /**
+         * Binds event bindings directly to a node (rather than having them resolved
+         * on finish).
+         * 
+         * @param bindings
+         *                 the bindings.
+         * @param node
+         *                 the node to bind to.
+         */
+        public void registerBindings(List<EventBinding> bindings, elemental2.dom.Node node) {
+            if ((bindings == null) || bindings.isEmpty () || (node == null))
+                return;
+            if (handlers == null)
+                handlers = new ArrayList<> ();
+            for (EventBinding binding : bindings)
+                handlers.add (new EventHandler (binding, node));
+            EventBinding.sort (handlers);
+        }
+
         /**
          * Registers a reference against some event bindings.
          * 
@@ -870,6 +935,39 @@ public final class TemplateBuilder {
             };
         }
 
+        /**
+         * Converts the node to a compiled renderer (see {@link Compiled}). The
+         * compiled form is built on first render and retained by the renderer, so
+         * should be cached in the same manner as {@link #renderer()}.
+         * 
+         * @return the renderer.
+         */
+        public IDataRenderer<A> compiled() {
+            return new Compiled<A> (this);
+        }
+
+        /**
+         * Determines if the node carries no node-level controls (conditions or
+         * build handlers) so that its structure is independent of the data.
+         * 
+         * @return {@code true} if it does not.
+         */
+        protected boolean compilable() {
+            return (condition == null) && (loopCondition == null) && (buildHandler == null);
+        }
+
+        /**
+         * Compiles the node into the skeleton being built by the compilation. The
+         * default is to render the node at render time into the location of a
+         * placeholder (a region).
+         * 
+         * @param compilation
+         *                    the compilation.
+         */
+        void compile(Compilation compilation) {
+            compilation.region (this);
+        }
+
         /**
          * {@inheritDoc}
          *
@@ -964,6 +1062,32 @@ public final class TemplateBuilder {
             return this;
         }
 
+        /**
+         * {@inheritDoc}
+         *
+         * <p>
+         * Constant text is written into the skeleton while other (escaped) text is
+         * written into a placeholder.
+         *
+         * @see com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.Node#compile(com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.Compilation)
+         */
+        @Override
+        void compile(Compilation compilation) {
+            if ((getClass () != Text.class) || !compilable () || (html != null) || (linize != null)) {
+                super.compile (compilation);
+            } else if (content == null) {
+                // Nothing to render.
+            } else if (Compilation.constant (content)) {
+                compilation.builder ().appendEscaped (StringSupport.safe (content.get (null, null)));
+            } else {
+                compilation.placeholder ((ctx, node, data) -> {
+                    @SuppressWarnings("unchecked")
+                    String value = StringSupport.safe (content.get ((A) data, null));
+                    node.parentNode.replaceChild (DomNodes.createTextNode (value), node);
+                });
+            }
+        }
+
         /**
          * {@inheritDoc}
          *
@@ -1138,6 +1262,47 @@ public final class TemplateBuilder {
                 renderImpl (context, data, loop);
         }
 
+        /**
+         * {@inheritDoc}
+         *
+         * @see com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.Node#compilable()
+         */
+        @Override
+        protected boolean compilable() {
+            return super.compilable () && (looper == null);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * A plain container (that does not loop) simply compiles its children.
+         *
+         * @see com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.Node#compile(com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.Compilation)
+         */
+        @Override
+        void compile(Compilation compilation) {
+            if ((getClass () != Container.class) || !compilable ()) {
+                super.compile (compilation);
+                return;
+            }
+            compileChildren (compilation);
+        }
+
+        /**
+         * Compiles each of the children in turn.
+         * 
+         * @param compilation
+         *                    the compilation.
+         */
+        void compileChildren(Compilation compilation) {
+            if (children != null) {
+                for (Node<?> node : children) {
+                    if (node != null)
+                        node.compile (compilation);
+                }
+            }
+        }
+
         /**
          * Warnings("unchecked"){@inheritDoc}
          *
@@ -2357,77 +2522,181 @@ public final class TemplateBuilder {
             return (Element<A>) super.condition (condition);
         }
 
+        /**
+         * Builds the class list (space separated) from the class providers.
+         * 
+         * @return the class list ({@code null} if there are no classes).
+         */
+        protected String classes(A data, LoopContext loop) {
+            if ((klasses == null) || klasses.isEmpty ())
+                return null;
+            String classList = null;
+            for (Provider<String, A> klass : klasses) {
+                if (!klass.test (data))
+                    continue;
+                if (!klass.testLoop (loop))
+                    continue;
+                if (classList == null)
+                    classList = klass.get (data, loop);
+                else
+                    classList += " " + klass.get (data, loop);
+            }
+            return classList;
+        }
+
+        /**
+         * Builds the style declaration from the css providers.
+         * 
+         * @return the declaration ({@code null} if there are no properties).
+         */
+        protected String styles(A data, LoopContext loop) {
+            if (css == null)
+                return null;
+            String style = null;
+            for (String property : css.keySet ()) {
+                Provider<String, A> provider = css.get (property);
+                if (provider == null)
+                    continue;
+                if (!provider.test (data))
+                    continue;
+                if (!provider.testLoop (loop))
+                    continue;
+                String value = provider.get (data, loop);
+                if (StringSupport.empty (value))
+                    continue;
+                style = ((style == null) ? "" : style) + property + ":" + value + "; ";
+            }
+            return style;
+        }
+
         /**
          * {@inheritDoc}
+         * <p>
+         * The tag and constant attributes are written into the skeleton. Anything
+         * that depends on the data (as well as events and references) is applied
+         * to the element (marked as a slot) when rendered.
          *
-         * @see com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.Container#renderImpl(com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.BuildContext,
-         *      java.lang.Object,
-         *      com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.LoopContext)
+         * @see com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.Node#compile(com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.Compilation)
          */
         @Override
         @SuppressWarnings("unchecked")
-        public void renderImpl(BuildContext context, Object data, LoopContext loop) {
-            SafeHtmlBuilder builder = context.builder ();
-            builder.appendHtmlConstant ("<");
-            builder.appendEscaped (tag);
-            if ((this.klasses != null) && !klasses.isEmpty ()) {
-                String classList = null;
-                for (Provider<String, A> klass : klasses) {
-                    if (!klass.test ((A) data))
-                        continue;
-                    if (!klass.testLoop (loop))
-                        continue;
-                    if (classList == null)
-                        classList = klass.get ((A) data, loop);
-                    else
-                        classList += " " + klass.get ((A) data, loop);
-                }
+        void compile(Compilation compilation) {
+            if ((getClass () != Element.class) || !compilable ()) {
+                super.compile (compilation);
+                return;
+            }
+            SafeHtmlBuilder builder = compilation.open (tag);
+
+            boolean dynamicClasses = false;
+            if (klasses != null) {
+                for (Provider<String, A> klass : klasses)
+                    dynamicClasses |= !Compilation.constant (klass);
+                String classList = dynamicClasses ? null : classes (null, null);
                 if (classList != null) {
                     builder.appendHtmlConstant (" class=\"");
                     builder.appendEscaped (classList);
                     builder.appendHtmlConstant ("\"");
                 }
             }
+            Map<String, Provider<String, A>> dynamicAttributes = new HashMap<> ();
             if (attributes != null) {
                 for (String attr : attributes.keySet ()) {
                     Provider<String, A> provider = attributes.get (attr);
                     if (provider == null)
                         continue;
-                    if (!provider.test ((A) data))
-                        continue;
-                    if (!provider.testLoop (loop))
+                    if (!Compilation.constant (provider)) {
+                        dynamicAttributes.put (attr, provider);
                         continue;
+                    }
                     builder.appendHtmlConstant (" ");
                     builder.appendEscaped (attr);
                     builder.appendHtmlConstant ("=\"");
-                    builder.appendEscaped (provider.get ((A) data, loop));
+                    builder.appendEscaped (StringSupport.safe (provider.get (null, null)));
                     builder.appendHtmlConstant ("\"");
                 }
             }
+            boolean dynamicCss = false;
             if (css != null) {
-                boolean started = false;
-                for (String property : css.keySet ()) {
-                    Provider<String, A> provider = css.get (property);
+                for (Provider<String, A> provider : css.values ())
+                    dynamicCss |= (provider != null) && !Compilation.constant (provider);
+                String style = dynamicCss ? null : styles (null, null);
+                if (style != null) {
+                    builder.appendHtmlConstant (" style=\"");
+                    builder.appendEscaped (style);
+                    builder.appendHtmlConstant ("\"");
+                }
+            }
+
+            // Anything remaining is applied to the element on render.
+            final boolean applyClasses = dynamicClasses;
+            final boolean applyCss = dynamicCss;
+            if (applyClasses || applyCss || !dynamicAttributes.isEmpty () || ((events != null) && !events.isEmpty ()) || !StringSupport.empty (reference)) {
+                compilation.slot ((ctx, node, data) -> {
+                    elemental2.dom.Element el = (elemental2.dom.Element) node;
+                    if (applyClasses) {
+                        String classList = classes ((A) data, null);
+                        if (classList != null)
+                            el.setAttribute ("class", classList);
+                    }
+                    dynamicAttributes.forEach ((attr, provider) -> {
+                        if (provider.test ((A) data) && provider.testLoop (null))
+                            el.setAttribute (attr, StringSupport.safe (provider.get ((A) data, null)));
+                    });
+                    if (applyCss) {
+                        String style = styles ((A) data, null);
+                        if (style != null)
+                            el.setAttribute ("style", style);
+                    }
+                    ctx.registerBindings (events, el);
+                    if (!StringSupport.empty (reference))
+                        ctx.register (reference, el);
+                });
+            }
+            builder.appendHtmlConstant (">");
+            compileChildren (compilation);
+            compilation.close ();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.Container#renderImpl(com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.BuildContext,
+         *      java.lang.Object,
+         *      com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.LoopContext)
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public void renderImpl(BuildContext context, Object data, LoopContext loop) {
+            SafeHtmlBuilder builder = context.builder ();
+            builder.appendHtmlConstant ("<");
+            builder.appendEscaped (tag);
+            String classList = classes ((A) data, loop);
+            if (classList != null) {
+                builder.appendHtmlConstant (" class=\"");
+                builder.appendEscaped (classList);
+                builder.appendHtmlConstant ("\"");
+            }
+            if (attributes != null) {
+                for (String attr : attributes.keySet ()) {
+                    Provider<String, A> provider = attributes.get (attr);
                     if (provider == null)
                         continue;
                     if (!provider.test ((A) data))
                         continue;
                     if (!provider.testLoop (loop))
                         continue;
-                    String value = provider.get ((A) data, loop);
-                    if (StringSupport.empty (value))
-                        continue;
-                    if (!started) {
-                        builder.appendHtmlConstant (" style=\"");
-                        started = true;
-                    }
-                    builder.appendEscaped (property);
-                    builder.appendHtmlConstant (":");
-                    builder.appendEscaped (value);
-                    builder.appendHtmlConstant ("; ");
-                }
-                if (started)
+                    builder.appendHtmlConstant (" ");
+                    builder.appendEscaped (attr);
+                    builder.appendHtmlConstant ("=\"");
+                    builder.appendEscaped (provider.get ((A) data, loop));
                     builder.appendHtmlConstant ("\"");
+                }
+            }
+            String style = styles ((A) data, loop);
+            if (style != null) {
+                builder.appendHtmlConstant (" style=\"");
+                builder.appendEscaped (style);
+                builder.appendHtmlConstant ("\"");
             }
             if ((events != null) && !events.isEmpty ()) {
                 String bindingRef = UID.createUID ();
@@ -2453,4 +2722,401 @@ public final class TemplateBuilder {
             builder.appendHtmlConstant (">");
         }
     }
+
+    /**
+     * A renderer that renders a template from a compiled form.
+     * <p>
+     * On first render the static structure of the template (elements with no
+     * node-level conditions, loops or build handlers along with constant text,
+     * classes and attributes) is built once into a {@code <template>} element
+     * (the skeleton) with the location of each dynamic part (a slot) recorded as a
+     * path of child indices. Each render then clones the skeleton and patches only
+     * the slots:
+     * <ul>
+     * <li>Elements have their data dependent classes, attributes and styles
+     * applied directly and their events and references registered directly
+     * (there is no need to traverse the DOM to resolve these).</li>
+     * <li>Data dependent text is inserted as a text node.</li>
+     * <li>Anything else (conditional nodes, loops, data conversions and custom
+     * nodes) is rendered as a region in the normal manner and inserted at the
+     * location of a placeholder.</li>
+     * </ul>
+     * The compiled form is retained by the renderer so that, when cached (see
+     * {@link ITemplateBuilder#compiled(String, ITemplateBuilder)}), compilation
+     * occurs only once per cache key. Should the skeleton not parse as expected
+     * (for example, a placeholder in raw text content such as a
+     * {@code textarea}) the renderer falls back to {@link Node#renderer()}.
+     */
+    public static class Compiled<A> implements IDataRenderer<A> {
+
+        /**
+         * The template being rendered.
+         */
+        private Node<A> root;
+
+        /**
+         * The compiled skeleton.
+         */
+        private HTMLTemplateElement skeleton;
+
+        /**
+         * The slots (in document order).
+         */
+        private List<Slot> slots;
+
+        /**
+         * The path to each slot from the root of the skeleton.
+         */
+        private int[][] paths;
+
+        /**
+         * A fallback renderer when the template could not be compiled.
+         */
+        private IDataRenderer<A> fallback;
+
+        /**
+         * Construct with the template to render.
+         * 
+         * @param root
+         *             the root node of the template.
+         */
+        public Compiled(Node<A> root) {
+            this.root = root;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see com.effacy.jui.core.client.dom.renderer.IDataRenderer#render(elemental2.dom.Element,
+         *      java.lang.Object)
+         */
+        @Override
+        public IUIEventHandler render(elemental2.dom.Element el, A data) {
+            if ((skeleton == null) && (fallback == null))
+                compile ();
+            if (fallback != null)
+                return fallback.render (el, data);
+
+            BuildContext context = new BuildContext (el);
+            elemental2.dom.Node fragment = skeleton.content.cloneNode (true);
+
+            // Locate all the slots before patching (which may change the
+            // structure).
+            elemental2.dom.Node[] targets = new elemental2.dom.Node[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                elemental2.dom.Node target = fragment;
+                for (int idx : paths[i])
+                    target = target.childNodes.getAt (idx);
+                targets[i] = target;
+            }
+            for (int i = 0; i < targets.length; i++)
+                slots.get (i).patch (context, targets[i], data);
+
+            el.innerHTML = "";
+            el.appendChild (fragment);
+            return context;
+        }
+
+        /**
+         * Compiles the template into a skeleton and slots.
+         */
+        protected void compile() {
+            Compilation compilation = new Compilation ();
+            root.compile (compilation);
+            slots = compilation.slots;
+            if (compilation.compilable ()) {
+                skeleton = (HTMLTemplateElement) DomNodes.createElement ("template");
+                skeleton.innerHTML = compilation.builder ().toSafeHtml ().asString ();
+                paths = Compilation.locate (skeleton.content, slots.size (), DOM);
+                if (paths != null)
+                    return;
+            }
+            Logger.log ("TemplateBuilder: unable to compile template, falling back");
+            skeleton = null;
+            fallback = root.renderer ();
+        }
+
+        /**
+         * Access to the skeleton as parsed into the DOM.
+         */
+        private static final Compilation.ISkeleton<elemental2.dom.Node> DOM = new Compilation.ISkeleton<elemental2.dom.Node> () {
+
+            @Override
+            public int slot(elemental2.dom.Node node) {
+                if (node.nodeType == 1) {
+                    elemental2.dom.Element el = (elemental2.dom.Element) node;
+                    if (!el.hasAttribute (Compilation.SLOT_ATTR))
+                        return -1;
+                    String marker = el.getAttribute (Compilation.SLOT_ATTR);
+                    el.removeAttribute (Compilation.SLOT_ATTR);
+                    return Compilation.index (marker);
+                }
+                if (node.nodeType == 8)
+                    return Compilation.index (node.nodeValue);
+                return -1;
+            }
+
+            @Override
+            public int size(elemental2.dom.Node node) {
+                return node.childNodes.length;
+            }
+
+            @Override
+            public elemental2.dom.Node child(elemental2.dom.Node node, int index) {
+                return node.childNodes.getAt (index);
+            }
+        };
+    }
+
+    /**
+     * A dynamic part of a compiled template (see {@link Compiled}).
+     */
+    @FunctionalInterface
+    interface Slot {
+
+        /**
+         * Patches the slot in a clone of the skeleton.
+         * 
+         * @param context
+         *                the build context for the render.
+         * @param node
+         *                the node in the clone corresponding to the slot.
+         * @param data
+         *                the data being rendered.
+         */
+        public void patch(BuildContext context, elemental2.dom.Node node, Object data);
+    }
+
+    /**
+     * Accumulates the skeleton and slots during compilation (see
+     * {@link Compiled}).
+     */
+    static class Compilation {
+
+        /**
+         * Marks an element as a slot (removed once the slot has been located).
+         */
+        static final String SLOT_ATTR = "_slot";
+
+        /**
+         * Prefix for comments that act as placeholders.
+         */
+        static final String PLACEHOLDER = "jui:";
+
+        /**
+         * Determines if the provider generates the same value regardless of data.
+         * 
+         * @param provider
+         *                 the provider to test.
+         * @return {@code true} if it does.
+         */
+        static boolean constant(Provider<?, ?> provider) {
+            if (!(provider instanceof ConstantProvider))
+                return false;
+            ConstantProvider<?, ?> cp = (ConstantProvider<?, ?>) provider;
+            return (cp.condition == null) && (cp.loopCondition == null);
+        }
+
+        /**
+         * Elements whose content is parsed as raw text (so any markers within them
+         * are lost).
+         */
+        static final List<String> RAW_TEXT = Arrays.asList ("textarea", "title", "script", "style", "xmp", "iframe", "noembed", "noframes", "plaintext");
+
+        /**
+         * Access to the nodes of a skeleton once parsed (so that the slots can be
+         * located independently of the DOM).
+         */
+        interface ISkeleton<N> {
+
+            /**
+             * The slot marked by the node (removing the marker from an element).
+             * 
+             * @return the slot index ({@code -1} if the node does not mark a slot).
+             */
+            public int slot(N node);
+
+            /**
+             * The number of child nodes of the node.
+             */
+            public int size(N node);
+
+            /**
+             * The child node of the node at the given index.
+             */
+            public N child(N node, int index);
+        }
+
+        /**
+         * Locates the slots in a parsed skeleton as a path of child indices from the
+         * root.
+         * 
+         * @param root
+         *                 the root of the parsed skeleton.
+         * @param count
+         *                 the number of slots.
+         * @param skeleton
+         *                 access to the parsed nodes.
+         * @return the path to each slot ({@code null} if any could not be located,
+         *         as when the parsing did not preserve the marker).
+         */
+        static <N> int[][] locate(N root, int count, ISkeleton<N> skeleton) {
+            int[][] paths = new int[count][];
+            locate (root, new ArrayList<> (), paths, skeleton);
+            for (int[] path : paths) {
+                if (path == null)
+                    return null;
+            }
+            return paths;
+        }
+
+        private static <N> void locate(N node, List<Integer> path, int[][] paths, ISkeleton<N> skeleton) {
+            int slot = skeleton.slot (node);
+            if ((slot >= 0) && (slot < paths.length) && (paths[slot] == null)) {
+                paths[slot] = new int[path.size ()];
+                for (int i = 0; i < path.size (); i++)
+                    paths[slot][i] = path.get (i);
+            }
+            for (int i = 0, len = skeleton.size (node); i < len; i++) {
+                path.add (i);
+                locate (skeleton.child (node, i), path, paths, skeleton);
+                path.remove (path.size () - 1);
+            }
+        }
+
+        /**
+         * Extracts the slot index from a slot attribute or placeholder comment.
+         * 
+         * @return the index ({@code -1} if not valid).
+         */
+        static int index(String marker) {
+            if (marker == null)
+                return -1;
+            if (marker.startsWith (PLACEHOLDER))
+                marker = marker.substring (PLACEHOLDER.length ());
+            try {
+                return Integer.parseInt (marker);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        /**
+         * See {@link #builder()}.
+         */
+        private SafeHtmlBuilder builder = new SafeHtmlBuilder ();
+
+        /**
+         * The slots (in the order they appear).
+         */
+        List<Slot> slots = new ArrayList<> ();
+
+        /**
+         * The tags of the elements that have been opened but not closed.
+         */
+        private List<String> open = new ArrayList<> ();
+
+        /**
+         * See {@link #compilable()}.
+         */
+        private boolean compilable = true;
+
+        /**
+         * Determines if the skeleton can be expected to preserve all its slots when
+         * parsed (being {@code false} where a slot lies within raw text content,
+         * see {@link #RAW_TEXT}).
+         */
+        boolean compilable() {
+            return compilable;
+        }
+
+        /**
+         * Writes the start of an element (the caller then writes any attributes and
+         * closes the start tag, followed by the element content and then
+         * {@link #close()}).
+         * 
+         * @param tag
+         *            the element tag.
+         * @return the builder.
+         */
+        SafeHtmlBuilder open(String tag) {
+            builder.appendHtmlConstant ("<");
+            builder.appendEscaped (tag);
+            open.add (tag);
+            return builder;
+        }
+
+        /**
+         * Writes the end of the element last opened by {@link #open(String)}.
+         */
+        void close() {
+            String tag = open.remove (open.size () - 1);
+            builder.appendHtmlConstant ("</");
+            builder.appendEscaped (tag);
+            builder.appendHtmlConstant (">");
+        }
+
+        /**
+         * Determines if content written at this point lies within raw text.
+         * 
+         * @param depth
+         *              the number of innermost open elements to exclude.
+         */
+        private boolean raw(int depth) {
+            for (int i = open.size () - 1 - depth; i >= 0; i--) {
+                if (RAW_TEXT.contains (open.get (i).toLowerCase ()))
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * The builder that the skeleton is being written to.
+         */
+        SafeHtmlBuilder builder() {
+            return builder;
+        }
+
+        /**
+         * Registers a slot against the element whose start tag is being written
+         * (the caller must be positioned to write attributes).
+         * 
+         * @param slot
+         *             the slot.
+         */
+        void slot(Slot slot) {
+            if (raw (1))
+                compilable = false;
+            builder.appendHtmlConstant (" " + SLOT_ATTR + "=\"" + slots.size () + "\"");
+            slots.add (slot);
+        }
+
+        /**
+         * Writes a placeholder for a slot that replaces the placeholder.
+         * 
+         * @param slot
+         *             the slot.
+         */
+        void placeholder(Slot slot) {
+            if (raw (0))
+                compilable = false;
+            builder.appendHtmlConstant ("<!--" + PLACEHOLDER + slots.size () + "-->");
+            slots.add (slot);
+        }
+
+        /**
+         * Writes a placeholder for a node that is rendered (as a region) at render
+         * time.
+         * 
+         * @param node
+         *             the node.
+         */
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        void region(Node node) {
+            placeholder ((ctx, target, data) -> {
+                node.render (ctx, data, null);
+                target.parentNode.replaceChild (ctx.fragment (), target);
+            });
+        }
+    }
 }
@@ -87,4 +87,17 @@ public interface IObservable {
      * @return The listener (or {@code null} if not found).
      */
     public <L extends IListener> L fireEvent(Class<L> listenerClass, IListener... listeners);
+
+
+    /**
+     * See {@link #fireEvent(Class, IListener...)} but without any additional
+     * listeners. This avoids allocating an empty (varargs) array on each call.
+     * 
+     * @param listenerClass
+     *            the listener class to locate.
+     * @return The listener (or {@code null} if not found).
+     */
+    public default <L extends IListener> L fireEvent(Class<L> listenerClass) {
+        return fireEvent (listenerClass, Observable.NO_LISTENERS);
+    }
 }
@@ -77,12 +77,57 @@ public class ListenerOracle {
      *            invocations).
      * @return The listener implementation that will dispatch the invocations.
      */
-    @SuppressWarnings("unchecked")
     public <L extends IListener> L find(Class<L> klass, Collection<IListener> listeners, String debugString) {
+        IListener[] array = (listeners == null) ? null : listeners.toArray (new IListener[listeners.size ()]);
+        return find (klass, array, null, debugString);
+    }
+
+    /**
+     * Given a listener class, an array of listeners and an array of sources of
+     * additional listeners, this will return a instance of the listener class
+     * that will fire events to the listeners in the passed array (then to those
+     * obtained from the sources).
+     * <p>
+     * The dispatcher retains the passed arrays (and does not allocate when
+     * invoked) so may be cached by the caller so long as the arrays are not
+     * modified (i.e. they are treated as copy-on-write).
+     * 
+     * @param klass
+     *            the listener class to locate.
+     * @param listeners
+     *            the listeners that will be sent invocations to (may be
+     *            {@code null}).
+     * @param sources
+     *            sources of listeners that are resolved on each invocation (may
+     *            be {@code null}).
+     * @param debugString
+     *            a debug string to display to the console (for tracking
+     *            invocations).
+     * @return The listener implementation that will dispatch the invocations.
+     */
+    @SuppressWarnings("unchecked")
+    public <L extends IListener> L find(Class<L> klass, IListener[] listeners, IListenerSource[] sources, String debugString) {
         IListenerFactory<L> factory = (IListenerFactory<L>) factories.get (klass);
         if (factory == null)
             return null;
-        return factory.createDispatcher (listeners, debugString);
+        return factory.createDispatcher (listeners, sources, debugString);
+    }
+
+    /**
+     * A source of a listener that is resolved when a dispatcher is invoked
+     * (rather than when it is created). This is used to convey events through
+     * to other observables.
+     */
+    public interface IListenerSource {
+
+        /**
+         * Obtains the listener to dispatch to.
+         * 
+         * @param klass
+         *            the listener class.
+         * @return The listener (may be {@code null}).
+         */
+        public <L extends IListener> L listener(Class<L> klass);
     }
 
     /**
@@ -102,6 +147,22 @@ public class ListenerOracle {
          * @return The dispatcher.
          */
         public L createDispatcher(Collection<IListener> listeners, String debugString);
+
+        /**
+         * Returns a listener that when invoked will dispatch the invocation to
+         * all matching listeners in the passed array followed by those obtained
+         * from the sources (at the time of invocation).
+         * 
+         * @param listeners
+         *            the listeners to dispatch to (may be {@code null}).
+         * @param sources
+         *            the sources of additional listeners (may be {@code null}).
+         * @param debugString
+         *            an optional string to log to the console with debug
+         *            messages.
+         * @return The dispatcher.
+         */
+        public L createDispatcher(IListener[] listeners, IListenerSource[] sources, String debugString);
     }
 
 
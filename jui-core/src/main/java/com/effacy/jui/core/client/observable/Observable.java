@@ -16,28 +16,52 @@
 package com.effacy.jui.core.client.observable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
+import com.effacy.jui.core.client.observable.ListenerOracle.IListenerSource;
 import com.effacy.jui.platform.util.client.Logger;
 
 /**
  * Implementation of {@link IObservable} that makes use of the generic
  * {@link ListenerOracle} for event dispatch.
+ * <p>
+ * Listeners (and observables to convey to) are held in copy-on-write arrays and
+ * the dispatcher for each listener class is cached (being discarded whenever
+ * the listeners or observables change). Firing an event without additional
+ * listeners is then free of allocation.
  * 
  * @author Jeremy Buckley
  */
 public class Observable implements IObservable {
 
     /**
-     * Listeners registered with the observable.
+     * An empty array of listeners (see {@link IObservable#fireEvent(Class)}).
+     */
+    public static final IListener[] NO_LISTENERS = new IListener[0];
+
+    /**
+     * An empty array of observables.
+     */
+    private static final ConveyObservable[] NO_OBSERVABLES = new ConveyObservable[0];
+
+    /**
+     * Listeners registered with the observable (copy-on-write).
+     */
+    private IListener[] listeners = NO_LISTENERS;
+
+    /**
+     * Observables to convey events to (copy-on-write).
      */
-    private List<IListener> listeners;
+    private ConveyObservable[] observables = NO_OBSERVABLES;
 
     /**
-     * Observables to convey events to.
+     * Cache of dispatchers by listener class (see {@link #fireEvent(Class, IListener...)}).
      */
-    private List<ConveyObservable> observables;
+    private Map<Class<?>, IListener> dispatchers;
 
     /**
      * If fire events should be debugged (written to console).
@@ -55,9 +79,11 @@ public class Observable implements IObservable {
      * @return {@code true} if there were listeners.
      */
     public boolean forEachListener(Consumer<IListener> visitor) {
-        if ((visitor != null) && (listeners != null))
-            listeners.forEach (visitor);
-        return (listeners != null) && !listeners.isEmpty();
+        if (visitor != null) {
+            for (IListener listener : listeners)
+                visitor.accept (listener);
+        }
+        return (listeners.length > 0);
     }
 
     /**
@@ -71,9 +97,11 @@ public class Observable implements IObservable {
      * @return {@code true} if there were observables.
      */
     public boolean forEachObservable(Consumer<ConveyObservable> visitor) {
-        if ((visitor != null) && (observables != null))
-            observables.forEach (visitor);
-        return (observables != null) && !observables.isEmpty();
+        if (visitor != null) {
+            for (ConveyObservable observable : observables)
+                visitor.accept (observable);
+        }
+        return (observables.length > 0);
     }
 
     /**
@@ -81,6 +109,7 @@ public class Observable implements IObservable {
      */
     public void debugObservable(Class<?> owner) {
         this.debug = owner.toString ();
+        invalidate ();
     }
 
 
@@ -93,10 +122,15 @@ public class Observable implements IObservable {
     public <L extends IListener> L addListener(L listener) {
         if (listener == null)
             return null;
-        if (listeners == null)
-            listeners = new ArrayList<IListener> ();
-        if (!listeners.contains (listener))
-            listeners.add (listener);
+        for (IListener existing : listeners) {
+            if (listener.equals (existing))
+                return listener;
+        }
+        IListener[] revised = new IListener[listeners.length + 1];
+        System.arraycopy (listeners, 0, revised, 0, listeners.length);
+        revised[listeners.length] = listener;
+        listeners = revised;
+        invalidate ();
         return listener;
     }
 
@@ -108,11 +142,19 @@ public class Observable implements IObservable {
      */
     @Override
     public void removeListener(IListener... listeners) {
-        if (this.listeners == null)
+        if ((listeners == null) || (this.listeners.length == 0))
             return;
+        List<IListener> revised = null;
         for (IListener listener : listeners) {
-            if (listener != null)
-                this.listeners.remove (listener);
+            if (listener == null)
+                continue;
+            if (revised == null)
+                revised = new ArrayList<> (Arrays.asList (this.listeners));
+            revised.remove (listener);
+        }
+        if ((revised != null) && (revised.size () != this.listeners.length)) {
+            this.listeners = revised.isEmpty () ? NO_LISTENERS : revised.toArray (new IListener[revised.size ()]);
+            invalidate ();
         }
     }
 
@@ -124,10 +166,9 @@ public class Observable implements IObservable {
      */
     @Override
     public void removeAllListeners() {
-        if (listeners != null)
-            listeners.clear ();
-        if (observables != null)
-            observables.clear ();
+        listeners = NO_LISTENERS;
+        observables = NO_OBSERVABLES;
+        invalidate ();
     }
 
 
@@ -138,17 +179,21 @@ public class Observable implements IObservable {
      */
     @Override
     @SafeVarargs
-    @SuppressWarnings("unlikely-arg-type")
     public final void convey(IObservable observable, Class<? extends IListener>... listenerTypes) {
         if (observable == null)
             return;
-        if (observables == null)
-            observables = new ArrayList<ConveyObservable> ();
-        int i = observables.indexOf (observable);
-        if (i >= 0)
-            observables.get (i).addListenerType (listenerTypes);
-        else
-            observables.add (new ConveyObservable (observable).addListenerType (listenerTypes));
+        for (ConveyObservable existing : observables) {
+            if (existing.observable.equals (observable)) {
+                existing.addListenerType (listenerTypes);
+                invalidate ();
+                return;
+            }
+        }
+        ConveyObservable[] revised = new ConveyObservable[observables.length + 1];
+        System.arraycopy (observables, 0, revised, 0, observables.length);
+        revised[observables.length] = new ConveyObservable (observable).addListenerType (listenerTypes);
+        observables = revised;
+        invalidate ();
     }
 
 
@@ -158,41 +203,77 @@ public class Observable implements IObservable {
      * @see com.effacy.jui.core.client.observable.IObservable#removeObservable(com.effacy.jui.core.client.observable.IObservable[])
      */
     @Override
-    @SuppressWarnings("unlikely-arg-type")
     public void removeObservable(IObservable... observables) {
-        if (this.observables == null)
+        if ((observables == null) || (this.observables.length == 0))
             return;
+        List<ConveyObservable> revised = new ArrayList<> (Arrays.asList (this.observables));
         for (IObservable observable : observables) {
             if (observable != null)
-                this.observables.remove (observable);
+                revised.removeIf (c -> c.observable.equals (observable));
+        }
+        if (revised.size () != this.observables.length) {
+            this.observables = revised.isEmpty () ? NO_OBSERVABLES : revised.toArray (new ConveyObservable[revised.size ()]);
+            invalidate ();
         }
     }
 
 
     /**
      * {@inheritDoc}
+     * <p>
+     * When no additional listeners are passed the dispatcher is drawn from a
+     * cache (so no allocation takes place).
      * 
      * @see com.effacy.jui.core.client.observable.IObservable#fireEvent(java.lang.Class)
      */
     @Override
+    @SuppressWarnings("unchecked")
     public <L extends IListener> L fireEvent(Class<L> listenerClass, IListener... listeners) {
-        List<IListener> listenerCandidates = new ArrayList<IListener> ();
-        if (this.listeners != null)
-            listenerCandidates.addAll (this.listeners);
-        for (IListener listener : listeners) {
-            if (listener != null)
-                listenerCandidates.add (listener);
-        }
-        if ((observables != null) && !observables.isEmpty ()) {
-            for (ConveyObservable observable : observables) {
-                L listener = observable.fireEvent (listenerClass);
+        int additional = 0;
+        if (listeners != null) {
+            for (IListener listener : listeners) {
                 if (listener != null)
-                    listenerCandidates.add (listener);
+                    additional++;
+            }
+        }
+        if (additional == 0) {
+            if (dispatchers == null)
+                dispatchers = new HashMap<> ();
+            IListener dispatcher = dispatchers.get (listenerClass);
+            if ((dispatcher == null) && !dispatchers.containsKey (listenerClass)) {
+                dispatcher = ListenerOracle.instance ().find (listenerClass, this.listeners, sources (), debug);
+                dispatchers.put (listenerClass, dispatcher);
             }
+            return (L) dispatcher;
         }
-        if (debug != null)
-            return ListenerOracle.instance ().find (listenerClass, listenerCandidates, debug);
-        return ListenerOracle.instance ().find (listenerClass, listenerCandidates);
+
+        // Additional listeners are appended to the registered ones (this is not
+        // cached).
+        IListener[] candidates = new IListener[this.listeners.length + additional];
+        System.arraycopy (this.listeners, 0, candidates, 0, this.listeners.length);
+        int i = this.listeners.length;
+        for (IListener listener : listeners) {
+            if (listener != null)
+                candidates[i++] = listener;
+        }
+        return ListenerOracle.instance ().find (listenerClass, candidates, sources (), debug);
+    }
+
+    /**
+     * The observables to convey to as sources of listeners (or {@code null} if
+     * there are none).
+     */
+    private IListenerSource[] sources() {
+        return (observables.length == 0) ? null : observables;
+    }
+
+    /**
+     * Discards the cached dispatchers (called whenever the listeners or
+     * observables change).
+     */
+    protected void invalidate() {
+        if (dispatchers != null)
+            dispatchers.clear ();
     }
 
 
@@ -200,7 +281,7 @@ public class Observable implements IObservable {
      * Writes some debug information to the console.
      */
     protected void debugToConsole() {
-        Logger.log ("Listeners: " + listeners.size ());
+        Logger.log ("Listeners: " + listeners.length);
         for (IListener listener : listeners) {
             Logger.log ("   " + listener.getClass ().getName ());
         }
@@ -210,7 +291,7 @@ public class Observable implements IObservable {
      * Wraps an observable with an optional collection of listener classes that
      * can be conveyed to it.
      */
-    private class ConveyObservable {
+    private class ConveyObservable implements IListenerSource {
 
         /**
          * The observable.
@@ -261,10 +342,10 @@ public class Observable implements IObservable {
          * @return The listener (may be {@code null} if not permitted to
          *         convery).
          */
-        @SafeVarargs
-        public final <L extends IListener> L fireEvent(Class<L> listenerClass, L... listeners) {
-            if ((listenerTypes == null) || listenerTypes.isEmpty () || listenerTypes.contains (listenerClass))
-                return observable.fireEvent (listenerClass, listeners);
+        @Override
+        public <L extends IListener> L listener(Class<L> listenerClass) {
+            if (listenerTypes.isEmpty () || listenerTypes.contains (listenerClass))
+                return observable.fireEvent (listenerClass);
             return null;
         }
 
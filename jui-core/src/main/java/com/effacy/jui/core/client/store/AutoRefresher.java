@@ -37,6 +37,17 @@ import com.effacy.jui.platform.util.client.Logger;
  * <p>
  * The mechanism should act upon a store and be invoked when the store updates
  * (extrenally).
+ * <p>
+ * Where the store is a {@link PaginatedStore} with a page cache (see
+ * {@link PaginatedStore#cache(int)}) the updates are applied to the cached
+ * pages as well, so that returning to a page presents the refreshed records
+ * without it being reloaded.
+ * <p>
+ * Subclasses may vary which items are refreshed and how (see
+ * {@link #refreshable(Object)}, {@link #continuous()} and
+ * {@link #_refresh(List)}); for example the delta-aware refresher of the UI
+ * layer, which applies only the changes to a large store (see
+ * {@link IStoreReplacable#apply(List, java.util.Collection, java.util.function.Function)}).
  */
 public class AutoRefresher<T> {
 
@@ -70,7 +81,7 @@ public class AutoRefresher<T> {
     /**
      * The store whose contents are being managed.
      */
-    private IStoreReplacable<T> store;
+    protected IStoreReplacable<T> store;
 
     /**
      * The number of milliseconds before initiating a refresh call.
@@ -80,7 +91,7 @@ public class AutoRefresher<T> {
     /**
      * Determines if the refresher is active (or stopped).
      */
-    private boolean active;
+    protected boolean active;
 
     /**
      * Timer used to delay between refreshes.
@@ -100,7 +111,7 @@ public class AutoRefresher<T> {
     /**
      * To test record for needing refreshing.
      */
-    private Predicate<T> test;
+    protected Predicate<T> test;
 
     /**
      * Construct a refresher.
@@ -263,8 +274,8 @@ public class AutoRefresher<T> {
         // Determines the items needing refreshing and start a refresh.
         List<T> items = new ArrayList<>();
         for (T item : store) {
-            if (test.test (item))
-                items.add (item); 
+            if (refreshable (item))
+                items.add (item);
         }
 
         if (DEBUG) {
@@ -273,10 +284,32 @@ public class AutoRefresher<T> {
             else
                 Logger.trace ("autorefresh", "Refresh detected " + items.size() + " item(s) to refresh, starting");
         }
-        if (!items.isEmpty())
+        if (!items.isEmpty() || continuous ())
             _refresh (items, schedule);
     }
 
+    /**
+     * Determines if the given item needs refreshing (by default as determined by
+     * the test, see {@link #test(Predicate)}).
+     * 
+     * @param item
+     *             the item in the store.
+     * @return {@code true} if it should be refreshed.
+     */
+    protected boolean refreshable(T item) {
+        return (test != null) && test.test (item);
+    }
+
+    /**
+     * Determines if refreshing continues (while active) when there are no items
+     * needing refreshing (by default it does not).
+     * 
+     * @return {@code true} if it continues.
+     */
+    protected boolean continuous() {
+        return false;
+    }
+
     /**
      * Called by {@link #refresh()}.
      */
@@ -314,15 +347,23 @@ public class AutoRefresher<T> {
             }
             if (updates != null)
                 store.replace (updates, comparator);
-            stop ();
-            if (DEBUG) {
-                if (active)
-                    Logger.trace ("autorefresh", "Query initiating next refresh");
-                else
-                    Logger.trace ("autorefresh", "No longer active, stopping");
-            }
-            if (active)
-                refresh ();
+            _refreshed ();
         });
     }
+
+    /**
+     * Called by {@link #_refresh(List)} once the refresh has completed (to
+     * initiate the next refresh).
+     */
+    protected void _refreshed() {
+        stop ();
+        if (DEBUG) {
+            if (active)
+                Logger.trace ("autorefresh", "Query initiating next refresh");
+            else
+                Logger.trace ("autorefresh", "No longer active, stopping");
+        }
+        if (active)
+            refresh ();
+    }
 }
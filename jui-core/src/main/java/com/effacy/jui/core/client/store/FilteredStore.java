@@ -34,12 +34,21 @@ public class FilteredStore<V> extends Observable implements IFilteredStore<V> {
     public FilteredStore(IStore<V> store) {
         this.store = store;
         this.store.addListener (IStoreChangedListener.create (s -> {
+            onUnderlyingChanged ();
             if (filtered)
                 clearFilter ();
             FilteredStore.this.fireEvent (IStoreChangedListener.class).onStoreChanged (this);
         }));
     }
 
+    /**
+     * Invoked when the underlying store changes (prior to the filter being
+     * cleared and the change being propagated). The default does nothing.
+     */
+    protected void onUnderlyingChanged() {
+        // Nothing.
+    }
+
     public FilteredStore<V> onStoreChanged(Consumer<IStore<V>> listener) {
         this.store.addListener (IStoreChangedListener.create (listener));
         return this;
@@ -139,6 +148,45 @@ public class FilteredStore<V> extends Observable implements IFilteredStore<V> {
         fireEvent (IStoreChangedListener.class).onStoreChanged (this);
     }
 
+    /**
+     * Refines the current filter by applying the passed filter to the records
+     * currently presented (rather than to the underlying store). This should be
+     * used when the new filter is known to be narrower than the current one (in
+     * which case the outcome is the same as {@link #filter(Predicate)} but only
+     * the records that passed the current filter need to be tested).
+     * <p>
+     * When there is no current filter this is the same as
+     * {@link #filter(Predicate)}.
+     *
+     * @param filter
+     *               the (narrower) filter to apply.
+     */
+    public void refine(Predicate<V> filter) {
+        if (!filtered) {
+            filter (filter);
+            return;
+        }
+        items.removeIf (v -> !filter.test (v));
+        fireEvent (IStoreChangedListener.class).onStoreChanged (this);
+    }
+
+    /**
+     * Presents the passed records as the filtered records. This is for where
+     * the matching records are determined by other means than testing each
+     * record (for example, by an index) and they should be in the order of the
+     * underlying store.
+     *
+     * @param matches
+     *                the records to present.
+     */
+    protected void filtered(List<V> matches) {
+        items.clear ();
+        if (matches != null)
+            items.addAll (matches);
+        filtered = true;
+        fireEvent (IStoreChangedListener.class).onStoreChanged (this);
+    }
+
     /**
      * {@inheritDoc}
      *
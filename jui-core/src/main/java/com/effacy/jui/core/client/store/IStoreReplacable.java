@@ -16,7 +16,9 @@
 package com.effacy.jui.core.client.store;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * A store that can have items replaced.
@@ -66,4 +68,32 @@ public interface IStoreReplacable<V> extends IStore<V> {
         updates.add (update);
         return replace (updates, comparator);
     }
+
+    /**
+     * Applies a delta (for example, as obtained by the delta-aware refresher of
+     * the UI layer) to the store's contents: changed items replace those with
+     * the same key (or are added where there is none) and items whose key is
+     * among those removed are removed. If a change is made a change event is
+     * expected to be fired.
+     * <p>
+     * The default performs only replacements (by way of
+     * {@link #replace(List, IReplacementComparator)}) and does not add or remove
+     * items.
+     * 
+     * @param changed
+     *                the changed (or added) items.
+     * @param removed
+     *                the keys of the removed items.
+     * @param key
+     *                obtains the key of an item.
+     * @return {@code true} if a change was made.
+     */
+    public default boolean apply(List<V> changed, Collection<?> removed, Function<V,Object> key) {
+        if ((changed == null) || changed.isEmpty ())
+            return false;
+        return replace (changed, (a, b) -> {
+            Object k = key.apply (a);
+            return (k != null) && k.equals (key.apply (b));
+        });
+    }
 }
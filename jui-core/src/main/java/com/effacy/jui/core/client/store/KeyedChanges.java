@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.core.client.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Changes and removals indexed by key, used by the implementations of
+ * {@link IStoreReplacable#apply(List, Collection, Function)}.
+ */
+class KeyedChanges<V> {
+
+    /**
+     * Obtains the key of an item.
+     */
+    private Function<V,Object> key;
+
+    /**
+     * Changed items by key (in the order presented).
+     */
+    private Map<Object, V> updates = new LinkedHashMap<> ();
+
+    /**
+     * Keys of removed items.
+     */
+    private Set<Object> removals;
+
+    /**
+     * See {@link #replaced()}.
+     */
+    private int replaced;
+
+    /**
+     * See {@link #removed()}.
+     */
+    private int removed;
+
+    /**
+     * See {@link #added()}.
+     */
+    private List<V> added = new ArrayList<> ();
+
+    /**
+     * Construct with the changes.
+     *
+     * @param changed
+     *                the changed (or added) items.
+     * @param removed
+     *                the keys of the removed items.
+     * @param key
+     *                obtains the key of an item.
+     */
+    KeyedChanges(List<V> changed, Collection<?> removed, Function<V,Object> key) {
+        this.key = key;
+        if (changed != null) {
+            for (V update : changed) {
+                if (update != null)
+                    updates.put (key.apply (update), update);
+            }
+        }
+        this.removals = (removed == null) ? new HashSet<> () : new HashSet<> (removed);
+    }
+
+    /**
+     * Determines if there are no changes to apply.
+     */
+    boolean isEmpty() {
+        return updates.isEmpty () && removals.isEmpty ();
+    }
+
+    /**
+     * Applies the changes to the passed items (in place): matching items are
+     * replaced and removed items are removed. Changed items that do not match are
+     * collected as additions (see {@link #added()}) but not added.
+     *
+     * @param items
+     *              the items to apply to.
+     * @return this instance.
+     */
+    KeyedChanges<V> apply(List<V> items) {
+        Set<Object> matched = new HashSet<> ();
+        ListIterator<V> it = items.listIterator ();
+        while (it.hasNext ()) {
+            V item = it.next ();
+            if (item == null)
+                continue;
+            Object k = key.apply (item);
+            if (removals.contains (k)) {
+                it.remove ();
+                removed++;
+                continue;
+            }
+            V update = updates.get (k);
+            if (update != null) {
+                it.set (update);
+                matched.add (k);
+                replaced++;
+            }
+        }
+        updates.forEach ((k, v) -> {
+            if (!matched.contains (k))
+                added.add (v);
+        });
+        return this;
+    }
+
+    /**
+     * Obtains the replacement for an item (or the item itself if there is none).
+     */
+    V replacement(V item) {
+        if (item == null)
+            return null;
+        V update = updates.get (key.apply (item));
+        return (update == null) ? item : update;
+    }
+
+    /**
+     * The number of items replaced.
+     */
+    int replaced() {
+        return replaced;
+    }
+
+    /**
+     * The number of items removed.
+     */
+    int removed() {
+        return removed;
+    }
+
+    /**
+     * The changed items that did not match an item (to be added).
+     */
+    List<V> added() {
+        return added;
+    }
+
+    /**
+     * Determines if applying resulted in a change (including additions).
+     */
+    boolean modified() {
+        return (replaced > 0) || (removed > 0) || !added.isEmpty ();
+    }
+}
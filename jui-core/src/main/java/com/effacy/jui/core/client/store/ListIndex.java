@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.core.client.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * An index over an in-memory list of records that answers filtered, sorted and
+ * paginated queries (used by {@link ListPaginatedStore}).
+ * <p>
+ * Filter results are held as arrays of (ascending) indices into the records and
+ * are cached by keywords (the most recently used being retained). Sort orders
+ * are held as permutations of the indices (cached by comparator) so that a
+ * change in sort order does not modify the underlying list. The combination of
+ * the current keywords and sort order (the view) is retained so that pages are
+ * obtained by slicing.
+ * <p>
+ * When refining (see {@link #refine(boolean)}) a filter for keywords that extend
+ * the previous keywords (i.e. when typing) need only be applied to the results
+ * of the previous keywords.
+ * <p>
+ * The index must be invalidated (see {@link #invalidate()}) whenever the
+ * records change.
+ */
+public class ListIndex<R> {
+
+    /**
+     * Maximum number of cached filter results.
+     */
+    private static final int MAX_RESULTS = 32;
+
+    /**
+     * The records being indexed.
+     */
+    private List<R> records;
+
+    /**
+     * The filter (see {@link #filter(BiPredicate)}).
+     */
+    private BiPredicate<R,String> filter;
+
+    /**
+     * See {@link #refine(boolean)}.
+     */
+    private boolean refine;
+
+    /**
+     * The current sort order (see {@link #sort(Comparator)}).
+     */
+    private Comparator<R> sort;
+
+    /**
+     * Cached filter results by keywords ({@code null} in the result indicates all
+     * records).
+     */
+    private Map<String, int[]> results = new LinkedHashMap<String, int[]> (16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+            return size () > MAX_RESULTS;
+        }
+    };
+
+    /**
+     * Cached sort orders by comparator.
+     */
+    private Map<Comparator<R>, int[]> orders = new HashMap<> ();
+
+    /**
+     * The keywords and results from the last filter (for refinement).
+     */
+    private String lastKeywords;
+    private int[] lastResult;
+
+    /**
+     * The current view (the filtered records in sort order, {@code null} if all
+     * records in their natural order) and what it was computed for.
+     */
+    private int[] view;
+    private String viewKeywords;
+    private Comparator<R> viewSort;
+    private boolean viewValid;
+
+    /**
+     * Construct over the given records.
+     *
+     * @param records
+     *                the records (this is referenced, not copied).
+     */
+    public ListIndex(List<R> records) {
+        this.records = records;
+    }
+
+    /**
+     * Assigns the filter (this discards any cached filter results).
+     *
+     * @param filter
+     *               the filter (takes a record and the keywords and returns
+     *               {@code true} if filtered in; {@code null} for none).
+     */
+    public void filter(BiPredicate<R,String> filter) {
+        this.filter = filter;
+        discardResults ();
+    }
+
+    /**
+     * Determines if filter results for keywords that extend the previous keywords
+     * (i.e. the previous keywords are a prefix) are obtained by filtering the
+     * previous results (rather than all the records).
+     * <p>
+     * This requires that the filter only ever narrow as keywords are extended
+     * (which is the case for a typical "contains" match but not where, for
+     * example, separate words are matched in the alternative).
+     *
+     * @param refine
+     *               {@code true} to refine.
+     */
+    public void refine(boolean refine) {
+        this.refine = refine;
+    }
+
+    /**
+     * Assigns the sort order.
+     *
+     * @param sort
+     *             the comparator to sort by ({@code null} for the natural order of
+     *             the records).
+     */
+    public void sort(Comparator<R> sort) {
+        this.sort = sort;
+    }
+
+    /**
+     * Discards all cached results (call when the records change).
+     */
+    public void invalidate() {
+        orders.clear ();
+        discardResults ();
+    }
+
+    /**
+     * The number of records that match the keywords.
+     *
+     * @param keywords
+     *                 the keywords.
+     * @return the number of records.
+     */
+    public int total(String keywords) {
+        int[] view = view (keywords);
+        return (view == null) ? records.size () : view.length;
+    }
+
+    /**
+     * Obtains a page of records that match the keywords (in sort order).
+     *
+     * @param keywords
+     *                 the keywords.
+     * @param page
+     *                 the page (from 0).
+     * @param pageSize
+     *                 the page size.
+     * @return the records on the page (possibly fewer than the page size).
+     */
+    public List<R> page(String keywords, int page, int pageSize) {
+        int[] view = view (keywords);
+        int total = (view == null) ? records.size () : view.length;
+        int from = page * pageSize;
+        List<R> subset = new ArrayList<> ();
+        if ((from < 0) || (from >= total))
+            return subset;
+        int to = Math.min (from + pageSize, total);
+        if (view == null) {
+            subset.addAll (records.subList (from, to));
+        } else {
+            for (int i = from; i < to; i++)
+                subset.add (records.get (view[i]));
+        }
+        return subset;
+    }
+
+    /**
+     * Obtains the view for the given keywords (under the current sort order).
+     *
+     * @return the indices of the records in order ({@code null} for all records
+     *         in natural order).
+     */
+    protected int[] view(String keywords) {
+        if (viewValid && (viewSort == sort) && same (viewKeywords, keywords))
+            return view;
+        int[] filtered = filtered (keywords);
+        int[] order = order ();
+        if (order == null) {
+            view = filtered;
+        } else if (filtered == null) {
+            view = order;
+        } else {
+            boolean[] included = new boolean[records.size ()];
+            for (int idx : filtered)
+                included[idx] = true;
+            view = new int[filtered.length];
+            int j = 0;
+            for (int idx : order) {
+                if (included[idx])
+                    view[j++] = idx;
+            }
+        }
+        viewKeywords = keywords;
+        viewSort = sort;
+        viewValid = true;
+        return view;
+    }
+
+    /**
+     * Obtains the filter results for the given keywords.
+     *
+     * @return the (ascending) indices of the records that match ({@code null}
+     *         if all match).
+     */
+    protected int[] filtered(String keywords) {
+        if (filter == null)
+            return null;
+        if (results.containsKey (keywords)) {
+            lastKeywords = keywords;
+            lastResult = results.get (keywords);
+            return lastResult;
+        }
+        int[] candidates = null;
+        if (refine && (lastKeywords != null) && (keywords != null) && keywords.startsWith (lastKeywords))
+            candidates = lastResult;
+        int len = (candidates == null) ? records.size () : candidates.length;
+        int[] matched = new int[len];
+        int count = 0;
+        for (int i = 0; i < len; i++) {
+            int idx = (candidates == null) ? i : candidates[i];
+            if (filter.test (records.get (idx), keywords))
+                matched[count++] = idx;
+        }
+        int[] result = (count == records.size ()) ? null : Arrays.copyOf (matched, count);
+        results.put (keywords, result);
+        lastKeywords = keywords;
+        lastResult = result;
+        return result;
+    }
+
+    /**
+     * Obtains the current sort order.
+     *
+     * @return the indices of the records in sort order ({@code null} for natural
+     *         order).
+     */
+    protected int[] order() {
+        if (sort == null)
+            return null;
+        int[] order = orders.get (sort);
+        if (order != null)
+            return order;
+        Integer[] sorted = new Integer[records.size ()];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = i;
+        // This is a stable sort so equal records retain their natural order.
+        Arrays.sort (sorted, (a, b) -> sort.compare (records.get (a), records.get (b)));
+        order = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++)
+            order[i] = sorted[i];
+        orders.put (sort, order);
+        return order;
+    }
+
+    /**
+     * Discards the filter results and view.
+     */
+    private void discardResults() {
+        results.clear ();
+        lastKeywords = null;
+        lastResult = null;
+        view = null;
+        viewValid = false;
+    }
+
+    /**
+     * Null-safe string equality.
+     */
+    private static boolean same(String a, String b) {
+        return (a == null) ? (b == null) : a.equals (b);
+    }
+}
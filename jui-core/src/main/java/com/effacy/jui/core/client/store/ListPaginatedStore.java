@@ -16,6 +16,7 @@
 package com.effacy.jui.core.client.store;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
@@ -29,6 +30,13 @@ import com.effacy.jui.platform.util.client.StringSupport;
  * <p>
  * This can be used for data mocking (i.e. paginating through the set) but also
  * for filtering a given collection of records.
+ * <p>
+ * Queries are answered from a {@link ListIndex} so that filter results (by
+ * keywords) and sort orders (see {@link #sort(Comparator)}) are retained
+ * between page requests. The index is discarded on {@link #refresh(List)} and
+ * on any {@link #reload()} other than that arising from a change in filter or
+ * sort order (so subclasses that modify {@link #records()} directly need only
+ * reload as they do now).
  *
  * @author Jeremy Buckley
  */
@@ -49,6 +57,17 @@ public class ListPaginatedStore<R> extends PaginatedStore<R> implements IFiltere
      */
     private BiPredicate<R,String> filter;
 
+    /**
+     * Index over the records.
+     */
+    private ListIndex<R> index = new ListIndex<> (records);
+
+    /**
+     * Set when a reload arises from a change in filter or sort order (so the index
+     * remains valid).
+     */
+    private boolean retain;
+
     /**
      * Construct an instance of the store.
      */
@@ -68,6 +87,7 @@ public class ListPaginatedStore<R> extends PaginatedStore<R> implements IFiltere
         super();
         this.filter = (v,k) -> StringSupport.empty(k) || filter.test(v, k);
         this.keywords = "";
+        this.index.filter (this.filter);
         populate(records);
     }
 
@@ -82,6 +102,7 @@ public class ListPaginatedStore<R> extends PaginatedStore<R> implements IFiltere
         super();
         this.filter = (v,k) -> filter.test(v);
         this.keywords = null;
+        this.index.filter (this.filter);
         populate(records);
     }
 
@@ -97,6 +118,33 @@ public class ListPaginatedStore<R> extends PaginatedStore<R> implements IFiltere
         reload();
     }
 
+    /**
+     * See {@link ListIndex#refine(boolean)}. This is only applicable to keyword
+     * filters and only when the filter narrows as keywords are extended (i.e. when
+     * typing).
+     * 
+     * @param refine
+     *               {@code true} to refine keyword filters.
+     * @return this store.
+     */
+    public ListPaginatedStore<R> refine(boolean refine) {
+        index.refine (refine);
+        return this;
+    }
+
+    /**
+     * Sorts the records (without modifying the underlying list) and reloads.
+     * 
+     * @param sort
+     *             the comparator to sort by ({@code null} for the natural order of
+     *             the records).
+     */
+    public void sort(Comparator<R> sort) {
+        index.sort (sort);
+        retain = true;
+        reload (10);
+    }
+
     /**
      * A alternative to loading the records is to overrides this method and populate
      * the passed list.
@@ -116,6 +164,20 @@ public class ListPaginatedStore<R> extends PaginatedStore<R> implements IFiltere
     protected List<R> records() {
         return records;
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Discards the index unless arising from a change in filter or sort order.
+     */
+    @Override
+    public void reload() {
+        if (!retain)
+            index.invalidate ();
+        retain = false;
+        super.reload ();
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -124,20 +186,11 @@ public class ListPaginatedStore<R> extends PaginatedStore<R> implements IFiltere
      */
     @Override
     protected void requestLoad(int page, int pageSize, ILoadRequestCallback<R> cb) {
-        // Filter the records as needed.
-        List<R> filtered = new ArrayList<>(records);
-        if (filter != null)
-            filtered.removeIf(v -> !filter.test(v,keywords));
-
-        // Extract out from the filtered list the relevant page (or partial page).
-        List<R> subset = new ArrayList<>();
-        int fromIndex = page * pageSize;
-        if (fromIndex < filtered.size()) {
-            int toIndex = Math.min(fromIndex + pageSize, filtered.size());
-            subset.addAll(filtered.subList(fromIndex, toIndex));
-        }
-        // Logger.log (getClass ().getSimpleName () + " filtered=" + (filtered != null) + " page=" + page + " pageSize=" + pageSize + " results=" + records.size ());
-        cb.onSuccess(subset, filtered.size(), false);
+        // The index retains the filtered (and sorted) records so the page is a
+        // slice of these.
+        List<R> subset = index.page(keywords, page, pageSize);
+        // Logger.log (getClass ().getSimpleName () + " page=" + page + " pageSize=" + pageSize + " results=" + records.size ());
+        cb.onSuccess(subset, index.total(keywords), false);
     }
 
     /**
@@ -147,19 +200,24 @@ public class ListPaginatedStore<R> extends PaginatedStore<R> implements IFiltere
      */
     @Override
     public void clear() {
-        if (this.keywords != null)
+        if (this.keywords != null) {
             this.keywords = "";
-        else
+        } else {
             this.filter = null;
+            this.index.filter (null);
+        }
         super.clear ();
     }
 
     @Override
     public void clearFilter() {
-        if (this.keywords != null)
+        if (this.keywords != null) {
             this.keywords = "";
-        else
+        } else {
             this.filter = null;
+            this.index.filter (null);
+        }
+        retain = true;
         reload (10);
     }
 
@@ -175,6 +233,7 @@ public class ListPaginatedStore<R> extends PaginatedStore<R> implements IFiltere
     public void filter(String keywords) {
         if (this.keywords != null)
             this.keywords = (keywords == null) ? "" : keywords;
+        retain = true;
         reload(10);
     }
 
@@ -187,6 +246,8 @@ public class ListPaginatedStore<R> extends PaginatedStore<R> implements IFiltere
     public void filter(Predicate<R> filter) {
         this.keywords = null;
         this.filter = (v,k) -> filter.test(v);
+        this.index.filter (this.filter);
+        retain = true;
         reload (10);
     }
 }
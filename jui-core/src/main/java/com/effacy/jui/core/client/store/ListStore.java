@@ -16,9 +16,11 @@
 package com.effacy.jui.core.client.store;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import com.effacy.jui.core.client.observable.Observable;
 import com.effacy.jui.platform.util.client.Carrier;
@@ -266,4 +268,23 @@ public class ListStore<V> extends Observable implements IStoreMutable<V>, IStore
             fireEvent (IStoreChangedListener.class).onStoreChanged (this);
         return updated.get ();
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Changed items are indexed by key so this is linear in the number of items
+     * and changes. Added items are appended.
+     */
+    @Override
+    public boolean apply(List<V> changed, Collection<?> removed, Function<V,Object> key) {
+        KeyedChanges<V> changes = new KeyedChanges<> (changed, removed, key);
+        if (changes.isEmpty ())
+            return false;
+        changes.apply (items);
+        items.addAll (changes.added ());
+        if (!changes.modified ())
+            return false;
+        fireEvent (IStoreChangedListener.class).onStoreChanged (this);
+        return true;
+    }
 }
@@ -16,15 +16,31 @@
 package com.effacy.jui.core.client.store;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import com.effacy.jui.platform.util.client.Carrier;
 import com.effacy.jui.platform.util.client.TimerSupport;
 
 /**
  * PaginatedStore
+ * <p>
+ * Loads are made through {@link #requestLoad(int, int, ILoadRequestCallback)}.
+ * A load that is requested while another is in progress supersedes it: the
+ * earlier load is cancelled (see {@link ILoadRequestCallback#isCancelled()}) and
+ * its outcome ignored.
+ * <p>
+ * Loaded pages can be retained in a bounded cache (see {@link #cache(int)}) so
+ * that returning to a page does not require it to be requested again and the
+ * next page can be loaded in the background in anticipation of it being
+ * requested (see {@link #prefetch(boolean)}).
  *
  * @author Jeremy Buckley
  */
@@ -51,14 +67,35 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
     protected int pageSize = 10;
 
     /**
-     * Indicates that a loading request in in progress (activated).
+     * The load request in progress (if any).
      */
-    private boolean requestInProgress;
+    private LoadRequest request;
 
     /**
-     * The next load request that is pending.
+     * See {@link #cache(int)}.
      */
-    private LoadRequest request;
+    private int cacheSize;
+
+    /**
+     * Cached pages (keyed by page and page size, most recently used last).
+     */
+    private Map<String, CachedPage<V>> cache = new LinkedHashMap<String, CachedPage<V>> (16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedPage<V>> eldest) {
+            return size () > cacheSize;
+        }
+    };
+
+    /**
+     * See {@link #prefetch(boolean)}.
+     */
+    private boolean prefetch;
+
+    /**
+     * The prefetch in progress (if any).
+     */
+    private Prefetch prefetching;
 
     /**
      * The current status.
@@ -74,6 +111,11 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
      * See {@link #setDelayInInitialLoad(int)}.
      */
     private int delayOnInitialLoad = 0;
+
+    /**
+     * See {@link #key(Function)}.
+     */
+    protected Function<V,Object> key = item -> item;
     
     /************************************************************************
      * Construction.
@@ -186,6 +228,71 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
         return this;
     }
 
+    /**
+     * Assigns the means of obtaining the key of an item, by which items are
+     * matched against updates (see {@link #replace(List, IReplacementComparator)}
+     * without a comparator and {@link #apply(List, Collection, Function)}
+     * without a key). By default this is the item itself.
+     * <p>
+     * For records with IDs (for example those of the RPC layer) this would
+     * generally return the ID (see {@code IRecord.key(Object)}).
+     * 
+     * @param key
+     *            the key (if {@code null} then the item itself).
+     * @return this paginated store instance.
+     */
+    public PaginatedStore<V> key(Function<V,Object> key) {
+        this.key = (key == null) ? item -> item : key;
+        return this;
+    }
+
+    /**
+     * Retains up to the given number of loaded pages so that they need not be
+     * requested again (i.e. when paging back and forth). The cache is discarded
+     * on {@link #reload()} and {@link #clear()} (so these should be used when
+     * the underlying data or query changes) and cached pages are updated by
+     * {@link #replace(List, IReplacementComparator)}.
+     * 
+     * @param pages
+     *              the maximum number of pages to retain (0 to not cache).
+     * @return this paginated store instance.
+     */
+    public PaginatedStore<V> cache(int pages) {
+        this.cacheSize = Math.max (0, pages);
+        if (cacheSize == 0)
+            invalidateCache ();
+        return this;
+    }
+
+    /**
+     * Determines if, after each load, the next page (that which
+     * {@link #loadNext(boolean)} would load) should be loaded in the background
+     * and cached. This requires a cache (see {@link #cache(int)}).
+     * <p>
+     * Note that a prefetch is requested through
+     * {@link #requestLoad(int, int, ILoadRequestCallback)} so may be in progress
+     * at the same time as a load.
+     * 
+     * @param prefetch
+     *                 {@code true} to prefetch.
+     * @return this paginated store instance.
+     */
+    public PaginatedStore<V> prefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+        return this;
+    }
+
+    /**
+     * Discards all cached pages and cancels any prefetch.
+     */
+    public void invalidateCache() {
+        cache.clear ();
+        if (prefetching != null) {
+            prefetching.cancel ();
+            prefetching = null;
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -295,6 +402,9 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
      */
     @Override
     public void reload() {
+        // Cached pages are no longer current.
+        invalidateCache ();
+
         // Clear the current contents of the store.
         items.clear ();
         // Mark as loading (if not first time) and notify listeners.
@@ -372,10 +482,12 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
                 addition = false;
         }
 
-        // Create the load request and activate if a request is not in progress.
-        this.request = new LoadRequest (page, pageSize, addition);
-        if (!this.requestInProgress)
-            this.request.activate ();
+        // Create the load request and activate, superseding any request in
+        // progress.
+        LoadRequest superseded = this.request;
+        if (superseded != null)
+            superseded.cancel ();
+        new LoadRequest (page, pageSize, addition).activate (superseded);
     }
 
     /**
@@ -385,6 +497,14 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
      */
     @Override
     public void clear() {
+        invalidateCache ();
+        if (request != null) {
+            // Abandon the load in progress.
+            LoadRequest abandoned = request;
+            request = null;
+            abandoned.cancel ();
+            _onAfterLoad ();
+        }
         selectionAsStore ().clear ();
         this.page = -1;
         this.pageSize = getInitialPageSize ();
@@ -411,6 +531,7 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
             totalAvailable--;
             return true;
         })) {
+            invalidateCache ();
             if (items.isEmpty())
                 reload();
             else
@@ -418,34 +539,104 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When no comparator is provided the updates are indexed by key (see
+     * {@link #key(Function)}) so that the replacement is linear in the number of
+     * items and updates. Items are then matched on the {@link Object#hashCode()}
+     * and {@link Object#equals(Object)} of their keys (rather than by a
+     * comparator). As the key defaults to the item itself, items whose equality
+     * is identity-based are only replaced by themselves unless a key is
+     * assigned.
+     * <p>
+     * Any cached pages (see {@link #cache(int)}) are updated as well.
+     */
     @Override
     public boolean replace(List<V> updates, IReplacementComparator<V> comparator) {
         if ((updates == null) || updates.isEmpty ())
             return false;
-        Carrier<Boolean> updated = Carrier.of (false);
-        items.replaceAll (v -> {
-            if (v == null)
-                return v;
+        UnaryOperator<V> replacer;
+        if (comparator == null) {
+            Map<Object, V> index = new HashMap<> ();
             for (V update : updates) {
-                if (update == null)
-                    continue;
-                if ((comparator == null) ? update.equals (v) : comparator.replace (v, update)) {
-                    updated.set (true);
-                    return update;
-                }
+                if (update != null)
+                    index.putIfAbsent (key.apply (update), update);
             }
-            return v;
+            replacer = v -> {
+                if (v == null)
+                    return v;
+                V update = index.get (key.apply (v));
+                return (update == null) ? v : update;
+            };
+        } else {
+            replacer = v -> {
+                if (v == null)
+                    return v;
+                for (V update : updates) {
+                    if ((update != null) && comparator.replace (v, update))
+                        return update;
+                }
+                return v;
+            };
+        }
+        Carrier<Boolean> updated = Carrier.of (false);
+        items.replaceAll (v -> {
+            V update = replacer.apply (v);
+            if (update != v)
+                updated.set (true);
+            return update;
         });
+        cache.values ().forEach (p -> p.items ().replaceAll (replacer));
         if (updated.get ())
             _onChange ();
         return updated.get ();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Changed items are indexed by key so this is linear in the number of items
+     * and changes. Added items are only presented when the store holds all the
+     * available items (they are appended), though they are counted in the total
+     * available. When items are added or removed any cached pages are
+     * discarded (as their boundaries will have shifted).
+     * 
+     * @param key
+     *            obtains the key of an item (if {@code null} then that assigned
+     *            by {@link #key(Function)} is used).
+     */
+    @Override
+    public boolean apply(List<V> changed, Collection<?> removed, Function<V,Object> key) {
+        KeyedChanges<V> changes = new KeyedChanges<> (changed, removed, (key == null) ? this.key : key);
+        if (changes.isEmpty ())
+            return false;
+        boolean all = (items.size () >= totalAvailable);
+        changes.apply (items);
+        if ((changes.removed () > 0) || !changes.added ().isEmpty ()) {
+            totalAvailable = Math.max (0, totalAvailable - changes.removed ()) + changes.added ().size ();
+            if (all)
+                items.addAll (changes.added ());
+            invalidateCache ();
+        } else if (changes.replaced () > 0) {
+            cache.values ().forEach (p -> p.items ().replaceAll (changes::replacement));
+        } else {
+            return false;
+        }
+        _onChange ();
+        return true;
+    }
+
 
     /**
-     * Requests a load with response to be passed through to the callback. It will
-     * be guaranteed that only one load request is processed at any given time (and
-     * it is assumed that the request is being processed immediately).
+     * Requests a load with response to be passed through to the callback.
+     * <p>
+     * A load may be requested while another is in progress (when the prior one
+     * has been superseded, in which case it is cancelled, or when prefetching).
+     * The outcome of a cancelled load is ignored so need not be reported,
+     * though implementations may use {@link ILoadRequestCallback#isCancelled()}
+     * or {@link ILoadRequestCallback#onCancel(Runnable)} to avoid unnecessary
+     * work.
      *
      * @param page
      *                 the page being requested (from 0, the offset indexed from 0
@@ -483,18 +674,195 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
          */
         public void onFailure(String message);
 
+        /**
+         * Determines if the load has been cancelled (its outcome will be
+         * ignored).
+         * 
+         * @return {@code true} if cancelled.
+         */
+        default public boolean isCancelled() {
+            return false;
+        }
+
+        /**
+         * Registers an action to take when the load is cancelled (for example,
+         * to abort a remote call). If already cancelled the action is invoked
+         * immediately.
+         * 
+         * @param action
+         *               the action.
+         */
+        default public void onCancel(Runnable action) {
+            // Nothing.
+        }
+
     }
 
     /**
-     * Packages up a load request that is processed by
-     * {@link PaginatedStore#requestLoad(int, int, ILoadRequestCallback)}.
+     * A page held in the cache.
      */
-    class LoadRequest implements ILoadRequestCallback<V> {
+    record CachedPage<V>(List<V> items, int totalAvailable, boolean filtered) {}
+
+    /**
+     * Obtains the cache key for a page.
+     */
+    private static String cacheKey(int page, int pageSize) {
+        return page + ":" + pageSize;
+    }
+
+    /**
+     * Caches a loaded page (if caching).
+     */
+    private void cachePage(int page, int pageSize, List<V> items, int totalAvailable, boolean filtered) {
+        if (cacheSize > 0)
+            cache.put (cacheKey (page, pageSize), new CachedPage<V> (new ArrayList<> (items), totalAvailable, filtered));
+    }
+
+    /**
+     * Prefetches the page following the current contents (if prefetching).
+     */
+    protected void prefetchNext() {
+        if (!prefetch || (cacheSize <= 0) || !status.is (Status.LOADED, Status.FILTERED))
+            return;
+        int size = items.size ();
+        if ((size == 0) || (size >= totalAvailable))
+            return;
+
+        // Match what loadNext would request (expanding from the first page or
+        // advancing a page).
+        int nextPage = page + 1;
+        int nextPageSize = pageSize;
+        int initialPageSize = getInitialPageSize ();
+        if ((page == 0) && (initialPageSize > 0) && (size % initialPageSize == 0)) {
+            nextPage = size / initialPageSize;
+            nextPageSize = initialPageSize;
+        }
+        if ((long) nextPage * nextPageSize >= totalAvailable)
+            return;
+        String key = cacheKey (nextPage, nextPageSize);
+        if (cache.containsKey (key))
+            return;
+        if (prefetching != null) {
+            if (prefetching.key.equals (key))
+                return;
+            prefetching.cancel ();
+        }
+        prefetching = new Prefetch (nextPage, nextPageSize);
+        requestLoad (nextPage, nextPageSize, prefetching);
+    }
+
+    /**
+     * Common to loads that may be cancelled.
+     */
+    abstract class CancellableLoad implements ILoadRequestCallback<V> {
 
         /**
-         * Indicates the the request is in progress.
+         * See {@link #isCancelled()}.
          */
-        private boolean inProgress = false;
+        protected boolean cancelled;
+
+        /**
+         * Actions to perform on cancellation.
+         */
+        private List<Runnable> cancelActions;
+
+        /**
+         * Cancels the load.
+         */
+        void cancel() {
+            if (cancelled)
+                return;
+            cancelled = true;
+            if (cancelActions != null) {
+                cancelActions.forEach (a -> a.run ());
+                cancelActions = null;
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void onCancel(Runnable action) {
+            if (action == null)
+                return;
+            if (cancelled) {
+                action.run ();
+                return;
+            }
+            if (cancelActions == null)
+                cancelActions = new ArrayList<> ();
+            cancelActions.add (action);
+        }
+    }
+
+    /**
+     * A background load of a page into the cache.
+     */
+    class Prefetch extends CancellableLoad {
+
+        /**
+         * The page and page size.
+         */
+        private int page;
+        private int pageSize;
+
+        /**
+         * The cache key.
+         */
+        private String key;
+
+        /**
+         * A load request waiting on the prefetch.
+         */
+        private LoadRequest waiting;
+
+        Prefetch(int page, int pageSize) {
+            this.page = page;
+            this.pageSize = pageSize;
+            this.key = cacheKey (page, pageSize);
+        }
+
+        @Override
+        void cancel() {
+            super.cancel ();
+
+            // A load waiting on the prefetch needs to make its own request.
+            LoadRequest request = waiting;
+            waiting = null;
+            if ((request != null) && !request.cancelled)
+                requestLoad (request.page, request.pageSize, request);
+        }
+
+        @Override
+        public void onSuccess(List<V> items, int totalAvailable, boolean filtered) {
+            if (cancelled)
+                return;
+            if (prefetching == this)
+                prefetching = null;
+            cachePage (page, pageSize, items, totalAvailable, filtered);
+            if (waiting != null)
+                waiting.onSuccess (items, totalAvailable, filtered);
+        }
+
+        @Override
+        public void onFailure(String message) {
+            if (cancelled)
+                return;
+            if (prefetching == this)
+                prefetching = null;
+            if (waiting != null)
+                waiting.onFailure (message);
+        }
+    }
+
+    /**
+     * Packages up a load request that is processed by
+     * {@link PaginatedStore#requestLoad(int, int, ILoadRequestCallback)}.
+     */
+    class LoadRequest extends CancellableLoad {
 
         /**
          * The page to load.
@@ -535,26 +903,47 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
         }
 
         /**
-         * Activates the request (this can be re-entrant).
+         * Activates the request.
+         * 
+         * @param superseded
+         *                   the (cancelled) request that this supersedes, if any
+         *                   (in which case the load is treated as a continuation
+         *                   of that request).
          */
-        void activate() {
-            if (inProgress)
+        void activate(LoadRequest superseded) {
+            PaginatedStore.this.request = this;
+            if (superseded != null) {
+                preLoadStatus = superseded.preLoadStatus;
+            } else {
+                preLoadStatus = PaginatedStore.this.status;
+                _onBeforeLoad ();
+                PaginatedStore.this.statusMessage = null;
+                Status prior = PaginatedStore.this.status;
+                PaginatedStore.this.status = Status.LOADING;
+                if (prior != PaginatedStore.this.status)
+                    fireEvent(IStoreStatusListener.class).onStoreStatucChanged(PaginatedStore.this, PaginatedStore.this.status, prior);
+            }
+
+            // Satisfy from the cache or an in-progress prefetch.
+            String key = cacheKey (page, pageSize);
+            CachedPage<V> cached = cache.get (key);
+            if (cached != null) {
+                onSuccess (cached.items (), cached.totalAvailable (), cached.filtered ());
                 return;
-            preLoadStatus = PaginatedStore.this.status;
-            inProgress = true;
-            PaginatedStore.this.requestInProgress = true;
-            if (PaginatedStore.this.request == this)
-                PaginatedStore.this.request = null;
-            _onBeforeLoad ();
-            PaginatedStore.this.statusMessage = null;
-            Status prior = PaginatedStore.this.status;
-            PaginatedStore.this.status = Status.LOADING;
-            if (prior != PaginatedStore.this.status)
-                fireEvent(IStoreStatusListener.class).onStoreStatucChanged(PaginatedStore.this, PaginatedStore.this.status, prior);
-            if ((delayOnInitialLoad > 0) && (Status.UNLOADED == preLoadStatus))
-                TimerSupport.timer (() -> requestLoad (page, pageSize, LoadRequest.this), delayOnInitialLoad);
-            else
+            }
+            if ((prefetching != null) && prefetching.key.equals (key)) {
+                prefetching.waiting = this;
+                return;
+            }
+
+            if ((delayOnInitialLoad > 0) && (Status.UNLOADED == preLoadStatus)) {
+                TimerSupport.timer (() -> {
+                    if (!cancelled)
+                        requestLoad (page, pageSize, LoadRequest.this);
+                }, delayOnInitialLoad);
+            } else {
                 requestLoad (page, pageSize, this);
+            }
         }
 
         /**
@@ -565,6 +954,9 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
          */
         @Override
         public void onSuccess(List<V> items, int totalAvailable, boolean filtered) {
+            if (cancelled)
+                return;
+            cachePage (page, pageSize, items, totalAvailable, filtered);
             if (addition) {
                 PaginatedStore.this.items.addAll (items);
                 PaginatedStore.this.page = 0;
@@ -589,6 +981,9 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
 
             // Fire a change event.
             _onChange ();
+
+            // Anticipate the next page.
+            prefetchNext ();
         }
 
         /**
@@ -598,6 +993,8 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
          */
         @Override
         public void onFailure(String message) {
+            if (cancelled)
+                return;
             PaginatedStore.this.statusMessage = message;
             Status prior = PaginatedStore.this.status;
             PaginatedStore.this.status = Status.ERROR;
@@ -607,22 +1004,16 @@ public abstract class PaginatedStore<V> extends StoreSelection<V> implements IPa
         }
 
         /**
-         * Completes the processing of the request (including starting up any pending
-         * request).
+         * Completes the processing of the request.
          */
         protected void complete() {
+            // Clear progress status (prior to notifying so that any load
+            // initiated by a listener is not treated as superseding this one).
+            if (PaginatedStore.this.request == this)
+                PaginatedStore.this.request = null;
+
             // Notify the load.
             _onAfterLoad ();
-
-            // Clear progress status.
-            PaginatedStore.this.requestInProgress = false;
-
-            // Check if there is another request to load.
-            if (PaginatedStore.this.request != null) {
-                LoadRequest requestToRun = PaginatedStore.this.request;
-                PaginatedStore.this.request = null;
-                requestToRun.activate ();
-            }
         }
 
     }
@@ -16,23 +16,128 @@
 package com.effacy.jui.core.client.store;
 
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
+import com.effacy.jui.platform.util.client.KeywordIndex;
+
+/**
+ * A {@link FilteredStore} that filters by keywords (matched against records by
+ * a matcher).
+ * <p>
+ * Where it is known when one set of keywords narrows another (for example,
+ * when matching by substring, extending the keywords narrows the matches) a
+ * refinement test can be assigned via {@link #refinement(BiFunction)}. When
+ * the keywords narrow the previous keywords only the currently matched
+ * records are tested (see {@link FilteredStore#refine(Predicate)}).
+ * <p>
+ * For large numbers of records a {@link KeywordIndex} can be used instead of
+ * the matcher (see {@link #index(Function)}). The index is built when first
+ * searched after the underlying store changes (so once per load) and matches
+ * records having, for each keyword, a word that starts with it.
+ */
 public class SearchStore<V> extends FilteredStore<V> implements ISearchStore<V> {
 
     protected BiFunction<V,String,Boolean> matcher;
 
+    /**
+     * See {@link #refinement(BiFunction)}.
+     */
+    protected BiFunction<String,String,Boolean> refinement;
+
+    /**
+     * See {@link #index(Function)}.
+     */
+    protected KeywordIndex<V> index;
+
+    /**
+     * If the index needs to be brought into line with the underlying store.
+     */
+    private boolean indexStale = true;
+
+    /**
+     * The underlying store.
+     */
+    private IStore<V> store;
+
+    /**
+     * The keywords last filtered on (if any).
+     */
+    private String keywords;
+
     public SearchStore(IStore<V> store) {
         super(store);
+        this.store = store;
     }
 
     public SearchStore(IStore<V> store, BiFunction<V,String,Boolean> matcher) {
-        super(store);
+        this(store);
         this.matcher = matcher;
     }
 
+    /**
+     * Assigns a test that determines if the matches for one set of keywords
+     * (the second argument) are necessarily contained in the matches for
+     * another (the first argument, being the previous keywords).
+     * 
+     * @param refinement
+     *                   the test.
+     * @return this store.
+     */
+    public SearchStore<V> refinement(BiFunction<String,String,Boolean> refinement) {
+        this.refinement = refinement;
+        return this;
+    }
+
+    /**
+     * Searches using a keyword index built over the records (in place of the
+     * matcher).
+     * 
+     * @param keywords
+     *                 maps a record to the text to index ({@code null} to not
+     *                 use an index).
+     * @return this store.
+     */
+    public SearchStore<V> index(Function<V,String> keywords) {
+        this.index = (keywords == null) ? null : new KeywordIndex<V> (keywords);
+        this.indexStale = true;
+        return this;
+    }
+
     @Override
     public void filter(String keywords) {
-        filter (v -> filterMatch(v, keywords));
+        if (index != null) {
+            if (indexStale) {
+                index.sync (store.asList ());
+                indexStale = false;
+            }
+            filtered (index.search (keywords));
+            this.keywords = keywords;
+            return;
+        }
+        String previous = this.keywords;
+        if ((previous != null) && (keywords != null) && (refinement != null) && refinement.apply (previous, keywords))
+            refine (v -> filterMatch(v, keywords));
+        else
+            filter (v -> filterMatch(v, keywords));
+        this.keywords = keywords;
+    }
+
+    @Override
+    protected void onUnderlyingChanged() {
+        indexStale = true;
+    }
+
+    @Override
+    public void filter(Predicate<V> filter) {
+        keywords = null;
+        super.filter (filter);
+    }
+
+    @Override
+    public void clearFilter() {
+        keywords = null;
+        super.clearFilter ();
     }
 
     protected boolean filterMatch (V record, String keywords) {
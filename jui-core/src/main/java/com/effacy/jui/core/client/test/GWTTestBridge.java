@@ -15,7 +15,6 @@
  ******************************************************************************/
 package com.effacy.jui.core.client.test;
 
-import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
@@ -114,8 +113,8 @@ public class GWTTestBridge extends GWTBridge {
     public class ListenerOracleMock extends ListenerOracle {
 
         @Override
-        public <L extends IListener> L find(Class<L> klass, Collection<IListener> listeners, String debugString) {
-            L listener = super.find (klass, listeners, debugString);
+        public <L extends IListener> L find(Class<L> klass, IListener[] listeners, IListenerSource[] sources, String debugString) {
+            L listener = super.find (klass, listeners, sources, debugString);
             if (listener != null)
                 return listener;
             if (klass == IDisposeListener.class)
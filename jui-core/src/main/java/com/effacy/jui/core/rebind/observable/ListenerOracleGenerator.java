@@ -22,6 +22,7 @@ import java.util.List;
 import com.effacy.jui.core.client.observable.IListener;
 import com.effacy.jui.core.client.observable.ListenerOracle;
 import com.effacy.jui.core.client.observable.ListenerOracle.IListenerFactory;
+import com.effacy.jui.core.client.observable.ListenerOracle.IListenerSource;
 import com.effacy.jui.core.rebind.GeneratorUtils;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.ext.Generator;
@@ -162,16 +163,40 @@ public class ListenerOracleGenerator extends Generator {
 
         sw.println ("public class " + factory.factoryClassName + " implements IListenerFactory<" + type.getQualifiedSourceName ().replace ('$', '.') + "> {");
         sw.indent ();
+
+        // Collection based dispatcher (delegates to the array based one).
         sw.println ("public " + factory.listenerClassName + " createDispatcher (Collection<IListener> listenerList, final String debugString) {");
         sw.indent ();
-        sw.println ("final List<" + factory.listenerClassName + "> listeners = new ArrayList<" + factory.listenerClassName + "> ();");
+        sw.println ("return createDispatcher ((listenerList == null) ? null : listenerList.toArray (new IListener[listenerList.size ()]), null, debugString);");
+        sw.outdent ();
+        sw.println ("}");
+
+        // Array based dispatcher. The matching listeners are extracted into a
+        // typed array up front so that invocation does not allocate.
+        sw.println ("public " + factory.listenerClassName + " createDispatcher (IListener[] listenerList, final IListenerSource[] _sources, final String debugString) {");
+        sw.indent ();
+        sw.println ("int _count = 0;");
         sw.println ("if (listenerList != null) {");
         sw.indent ();
-        sw.println ("for (IListener listener : listenerList) {");
+        sw.println ("for (int _i = 0; _i < listenerList.length; _i++) {");
         sw.indent ();
-        sw.println ("if (listener instanceof " + factory.listenerClassName + ")");
+        sw.println ("if (listenerList[_i] instanceof " + factory.listenerClassName + ")");
         sw.indent ();
-        sw.println ("listeners.add ((" + factory.listenerClassName + ") listener);");
+        sw.println ("_count++;");
+        sw.outdent ();
+        sw.outdent ();
+        sw.println ("}");
+        sw.outdent ();
+        sw.println ("}");
+        sw.println ("final " + factory.listenerClassName + "[] listeners = new " + factory.listenerClassName + "[_count];");
+        sw.println ("if (_count > 0) {");
+        sw.indent ();
+        sw.println ("_count = 0;");
+        sw.println ("for (int _i = 0; _i < listenerList.length; _i++) {");
+        sw.indent ();
+        sw.println ("if (listenerList[_i] instanceof " + factory.listenerClassName + ")");
+        sw.indent ();
+        sw.println ("listeners[_count++] = (" + factory.listenerClassName + ") listenerList[_i];");
         sw.outdent ();
         sw.outdent ();
         sw.println ("}");
@@ -190,23 +215,22 @@ public class ListenerOracleGenerator extends Generator {
             sw.indent ();
             sw.println ("GWT.log (\"Event::\" + debugString + \"::" + method.getName () + "\");");
             sw.outdent ();
-            sw.println ("for (" + factory.listenerClassName + " listener : listeners) {");
+            sw.println ("for (int _i = 0; _i < listeners.length; _i++) {");
             sw.indent ();
-            sw.println ("com.effacy.jui.core.client.util.MetricsTimer.stamp(\"EventDispatcher\", \"EventDispatcher(" + factory.listenerClassName + "." + method.getName () + ")\");");
-            sw.println ("try {");
-            sw.indent ();
-            if (returns) {
-                sw.println ("if (listener." + method.getName () + " (" + GeneratorUtils.methodParams (method, false, false) + "))");
-                sw.indent ();
-                sw.println ("return true;");
-                sw.outdent ();
-            } else {
-                sw.println ("listener." + method.getName () + " (" + GeneratorUtils.methodParams (method, false, false) + ");");
-            }
+            sw.println (factory.listenerClassName + " listener = listeners[_i];");
+            writeListenerInvocation (sw, factory, method, returns);
             sw.outdent ();
-            sw.println ("} catch (Throwable e) {");
+            sw.println ("}");
+            sw.println ("if (_sources != null) {");
+            sw.indent ();
+            sw.println ("for (int _i = 0; _i < _sources.length; _i++) {");
+            sw.indent ();
+            sw.println (factory.listenerClassName + " listener = _sources[_i].listener (" + factory.listenerClassName + ".class);");
+            sw.println ("if (listener == null)");
             sw.indent ();
-            sw.println ("GWT.reportUncaughtException (e);");
+            sw.println ("continue;");
+            sw.outdent ();
+            writeListenerInvocation (sw, factory, method, returns);
             sw.outdent ();
             sw.println ("}");
             sw.outdent ();
@@ -228,6 +252,41 @@ public class ListenerOracleGenerator extends Generator {
     }
 
 
+    /**
+     * Writes the invocation of a method on the listener held in the local
+     * variable {@code listener} (guarding against exceptions).
+     * 
+     * @param sw
+     *            source writer.
+     * @param factory
+     *            the factory being written.
+     * @param method
+     *            the method to invoke.
+     * @param returns
+     *            if the method returns a boolean (where {@code true} terminates
+     *            the dispatch).
+     */
+    protected void writeListenerInvocation(SourceWriter sw, ListenerFactory factory, JMethod method, boolean returns) {
+        sw.println ("com.effacy.jui.core.client.util.MetricsTimer.stamp(\"EventDispatcher\", \"EventDispatcher(" + factory.listenerClassName + "." + method.getName () + ")\");");
+        sw.println ("try {");
+        sw.indent ();
+        if (returns) {
+            sw.println ("if (listener." + method.getName () + " (" + GeneratorUtils.methodParams (method, false, false) + "))");
+            sw.indent ();
+            sw.println ("return true;");
+            sw.outdent ();
+        } else {
+            sw.println ("listener." + method.getName () + " (" + GeneratorUtils.methodParams (method, false, false) + ");");
+        }
+        sw.outdent ();
+        sw.println ("} catch (Throwable e) {");
+        sw.indent ();
+        sw.println ("GWT.reportUncaughtException (e);");
+        sw.outdent ();
+        sw.println ("}");
+    }
+
+
     /**
      * Contribute the imports.
      * 
@@ -249,6 +308,7 @@ public class ListenerOracleGenerator extends Generator {
         composerFactory.addImport (GWT.class.getName ());
         composerFactory.addImport (ListenerOracle.class.getName ());
         composerFactory.addImport (IListenerFactory.class.getName ().replace ('$', '.'));
+        composerFactory.addImport (IListenerSource.class.getName ().replace ('$', '.'));
         composerFactory.addImport (Throwable.class.getName ());
     }
 
@@ -18,17 +18,20 @@ package com.effacy.jui.core.client;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 
+import com.effacy.jui.core.client.observable.TestDispatchers;
 import com.effacy.jui.core.client.test.GWTTestBridge;
 
 /**
  * Base class for JUI unit tests. This creates and installs a suitable GWT bridge
- * for use with the {@link GWT} static methods.
+ * for use with the {@link GWT} static methods and registers dispatchers for the
+ * common listeners (see {@link TestDispatchers}).
  */
 public abstract class AbstractJUITest extends com.effacy.jui.core.client.test.AbstractJUITest{
 
     @BeforeAll
     public static void configureGWT() {
         GWTTestBridge.init ();
+        TestDispatchers.register ();
     }
 
     @AfterEach
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.core.client.component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.core.client.AbstractJUITest;
+
+public class RenderSchedulerTest extends AbstractJUITest {
+
+    /**
+     * Deferred flushes (in place of the browser).
+     */
+    private List<Runnable> deferred = new ArrayList<> ();
+
+    /**
+     * Names of the components rendered (in order).
+     */
+    private List<String> renders = new ArrayList<> ();
+
+    @BeforeEach
+    public void setup() {
+        RenderScheduler.deferral = r -> deferred.add (r);
+        RenderScheduler.mode (RenderScheduler.Mode.MICROTASK);
+        RenderScheduler.metrics ().reset ();
+    }
+
+    @AfterEach
+    public void teardown() {
+        RenderScheduler.deferral = null;
+        RenderScheduler.mode (RenderScheduler.Mode.IMMEDIATE);
+    }
+
+    /**
+     * Tests that immediate mode renders on each request.
+     */
+    @Test
+    public void testImmediate() {
+        RenderScheduler.mode (RenderScheduler.Mode.IMMEDIATE);
+        MockComponent cpt = new MockComponent ("a");
+        RenderScheduler.schedule (cpt);
+        RenderScheduler.schedule (cpt);
+        Assertions.assertEquals (List.of ("a", "a"), renders);
+        Assertions.assertTrue (deferred.isEmpty ());
+        Assertions.assertEquals (2, RenderScheduler.metrics ().rendered ());
+    }
+
+    /**
+     * Tests that multiple requests are coalesced into a single flush.
+     */
+    @Test
+    public void testCoalesced() {
+        MockComponent a = new MockComponent ("a");
+        MockComponent b = new MockComponent ("b");
+        RenderScheduler.schedule (a);
+        RenderScheduler.schedule (b);
+        RenderScheduler.schedule (a);
+        Assertions.assertTrue (renders.isEmpty ());
+        Assertions.assertTrue (RenderScheduler.pending (a));
+        Assertions.assertEquals (1, deferred.size ());
+
+        deferred.get (0).run ();
+        Assertions.assertEquals (List.of ("a", "b"), renders);
+        Assertions.assertFalse (RenderScheduler.pending (a));
+        Assertions.assertEquals (3, RenderScheduler.metrics ().scheduled ());
+        Assertions.assertEquals (2, RenderScheduler.metrics ().rendered ());
+        Assertions.assertEquals (1, RenderScheduler.metrics ().coalesced ());
+        Assertions.assertEquals (1, RenderScheduler.metrics ().flushes ());
+    }
+
+    /**
+     * Tests that parents are rendered before their children.
+     */
+    @Test
+    public void testParentFirst() {
+        MockComponent parent = new MockComponent ("parent");
+        MockComponent child = new MockComponent ("child");
+        MockComponent grandchild = new MockComponent ("grandchild");
+        child.mockParent = parent;
+        grandchild.mockParent = child;
+        RenderScheduler.schedule (grandchild);
+        RenderScheduler.schedule (child);
+        RenderScheduler.schedule (parent);
+        deferred.get (0).run ();
+        Assertions.assertEquals (List.of ("parent", "child", "grandchild"), renders);
+    }
+
+    /**
+     * Tests cancellation and the synchronous flush.
+     */
+    @Test
+    public void testCancelAndFlush() {
+        MockComponent a = new MockComponent ("a");
+        MockComponent b = new MockComponent ("b");
+        RenderScheduler.schedule (a);
+        RenderScheduler.schedule (b);
+        Assertions.assertTrue (RenderScheduler.cancel (a));
+        Assertions.assertFalse (RenderScheduler.cancel (a));
+
+        // Flush immediately (the deferred flush then has nothing to do).
+        RenderScheduler.flush ();
+        Assertions.assertEquals (List.of ("b"), renders);
+        deferred.get (0).run ();
+        Assertions.assertEquals (List.of ("b"), renders);
+        Assertions.assertEquals (1, RenderScheduler.metrics ().coalesced ());
+
+        // A further request results in a further flush.
+        RenderScheduler.schedule (a);
+        Assertions.assertEquals (2, deferred.size ());
+    }
+
+    class MockComponent extends Component<Component.Config> {
+
+        private String name;
+
+        /**
+         * Parent reported by {@link #getParent()} (so the hierarchy can be formed
+         * without the DOM that attaching requires).
+         */
+        private IParent mockParent;
+
+        MockComponent(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public IParent getParent() {
+            return mockParent;
+        }
+
+        @Override
+        public void rerender() {
+            renders.add (name);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.core.client.dom.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.core.client.dom.UIEventType;
+import com.effacy.jui.core.client.test.DomTestNodeFactory.FakeElement;
+
+public class ReconcileSupportTest {
+
+    @Test
+    public void testCandidates() {
+        List<String> prior = List.of ("a:1", "b:1", "a:2", "-:1", "-:2");
+        ReconcileSupport.Candidates<String> candidates = new ReconcileSupport.Candidates<> (prior, ReconcileSupportTest::key);
+
+        // Keys are matched in order of appearance and only once.
+        Assertions.assertEquals (0, candidates.next ("a"));
+        Assertions.assertEquals (2, candidates.next ("a"));
+        Assertions.assertEquals (-1, candidates.next ("a"));
+        Assertions.assertEquals (1, candidates.next ("b"));
+        Assertions.assertEquals (-1, candidates.next ("c"));
+
+        // Items without a key are matched by position.
+        Assertions.assertEquals (3, candidates.next (null));
+        Assertions.assertEquals (4, candidates.next (null));
+        Assertions.assertEquals (-1, candidates.next (null));
+    }
+
+    @Test
+    public void testStationary() {
+        // Unchanged order.
+        assertStationary (new int[] { 0, 1, 2, 3 }, true, true, true, true);
+
+        // The last moved to the front (only it moves).
+        assertStationary (new int[] { 3, 0, 1, 2 }, false, true, true, true);
+
+        // The first moved to the end (only it moves).
+        assertStationary (new int[] { 1, 2, 3, 0 }, true, true, true, false);
+
+        // New nodes are never stationary.
+        assertStationary (new int[] { 0, -1, 1, -1 }, true, false, true, false);
+
+        // Reversed (only one can stay).
+        boolean[] reversed = ReconcileSupport.stationary (new int[] { 3, 2, 1, 0 });
+        Assertions.assertEquals (1, count (reversed));
+
+        // Empty.
+        Assertions.assertEquals (0, ReconcileSupport.stationary (new int[0]).length);
+    }
+
+    @Test
+    public void testPlace() {
+        // No change.
+        assertPlace ("abcd", "abcd", 0);
+
+        // A single node moved from the front to the end (or the reverse) is a
+        // single move.
+        assertPlace ("abcd", "bcda", 1);
+        assertPlace ("abcd", "dabc", 1);
+
+        // Swapping two nodes.
+        assertPlace ("abcd", "adcb", 2);
+
+        // Reversal moves all but one.
+        assertPlace ("abcde", "edcba", 4);
+
+        // Insertions (upper case) and removals.
+        assertPlace ("abcd", "aXcYd", 2);
+        assertPlace ("abcd", "XdcY", 3);
+        assertPlace ("", "XYZ", 3);
+    }
+
+    @Test
+    public void testPlaceWithSurrounding() {
+        // Nodes not generated by the children (upper case) that surround them are
+        // retained in place.
+        List<String> parent = new ArrayList<> (Arrays.asList ("H", "a", "b", "c", "F"));
+        List<String> nodes = List.of ("c", "a", "n", "b");
+        int[] prior = { 2, 0, -1, 1 };
+        ReconcileSupport.place (nodes, prior, "F", (node, before) -> insertBefore (parent, node, before));
+        Assertions.assertEquals (List.of ("H", "c", "a", "n", "b", "F"), parent);
+    }
+
+    @Test
+    public void testRemoved() {
+        List<String> removed = new ArrayList<> ();
+        Assertions.assertEquals (2, ReconcileSupport.removed (List.of ("a", "b", "c"), Set.of ("b", "d"), removed::add));
+        Assertions.assertEquals (List.of ("a", "c"), removed);
+        Assertions.assertEquals (0, ReconcileSupport.removed (null, Set.of ("a"), removed::add));
+        Assertions.assertEquals (1, ReconcileSupport.removed (List.of ("e"), null, removed::add));
+    }
+
+    @Test
+    public void testEventsDetached() {
+        // An element that sinks click and blur (as built by the prior builder).
+        FakeElement el = new FakeElement ("div");
+        el.onclick = e -> null;
+        el.onblur = e -> null;
+        ElementBuilder prior = new ElementBuilder ("div");
+        prior.on (e -> {}, UIEventType.ONCLICK, UIEventType.ONBLUR);
+
+        // Only blur remains so click is detached (and blur left attached).
+        ElementBuilder current = new ElementBuilder ("div");
+        current.on (e -> {}, UIEventType.ONBLUR);
+        Assertions.assertEquals (Set.of (UIEventType.ONCLICK, UIEventType.ONBLUR), prior.sinks ());
+        current.__reconcileImpl (prior, el);
+        Assertions.assertNull (el.onclick);
+        Assertions.assertNotNull (el.onblur);
+
+        // None remain.
+        current.__reconcileImpl (current, el);
+        Assertions.assertNotNull (el.onblur);
+        new ElementBuilder ("div").__reconcileImpl (current, el);
+        Assertions.assertNull (el.onblur);
+    }
+
+    /************************************************************************
+     * Helpers.
+     ************************************************************************/
+
+    private static Object key(String item) {
+        String key = item.substring (0, item.indexOf (':'));
+        return "-".equals (key) ? null : key;
+    }
+
+    /**
+     * Reconciles the prior nodes (lower case letters) to the new nodes (those
+     * that do not appear in the prior are new) within a parent, asserting the
+     * outcome and the number of nodes moved.
+     */
+    private void assertPlace(String from, String to, int moves) {
+        List<String> parent = new ArrayList<> ();
+        for (char c : from.toCharArray ())
+            parent.add (String.valueOf (c));
+
+        // Discard those no longer present.
+        parent.removeIf (n -> to.indexOf (n) < 0);
+
+        List<String> nodes = new ArrayList<> ();
+        int[] prior = new int[to.length ()];
+        String last = null;
+        for (int i = 0; i < to.length (); i++) {
+            String node = String.valueOf (to.charAt (i));
+            nodes.add (node);
+            prior[i] = from.indexOf (node);
+            if ((prior[i] >= 0) && ((last == null) || (prior[i] > from.indexOf (last))))
+                last = node;
+        }
+        int idx = (last == null) ? -1 : parent.indexOf (last) + 1;
+        String end = ((idx < 0) || (idx >= parent.size ())) ? null : parent.get (idx);
+        int moved = ReconcileSupport.place (nodes, prior, end, (node, before) -> insertBefore (parent, node, before));
+        Assertions.assertEquals (nodes, parent);
+        Assertions.assertEquals (moves, moved);
+    }
+
+    private static void insertBefore(List<String> parent, String node, String before) {
+        parent.remove (node);
+        if (before == null)
+            parent.add (node);
+        else
+            parent.add (parent.indexOf (before), node);
+    }
+
+    private void assertStationary(int[] prior, boolean... expected) {
+        boolean[] actual = ReconcileSupport.stationary (prior);
+        Assertions.assertEquals (expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++)
+            Assertions.assertEquals (expected[i], actual[i], "at " + i);
+    }
+
+    private int count(boolean[] values) {
+        int count = 0;
+        for (boolean value : values) {
+            if (value)
+                count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.core.client.dom.renderer.template;
+
+import org.gwtproject.safehtml.shared.SafeHtmlBuilder;
+import org.gwtproject.safehtml.shared.SafeHtmlHostedModeUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.Compilation;
+import com.effacy.jui.core.client.dom.renderer.template.TemplateBuilder.Container;
+import com.effacy.jui.core.client.test.DomTestNodeFactory.FakeElement;
+
+/**
+ * Tests the compiled path of {@link TemplateBuilder} (see
+ * {@link TemplateBuilder.Compiled}) against the inner HTML path (see
+ * {@link TemplateBuilder.Node#renderer()}). The skeleton is parsed with an
+ * HTML parser to stand in for the browser.
+ */
+public class CompiledTemplateTest {
+
+    static {
+        // HTML is written in parts (on both paths) which, when assertions are
+        // enabled, the JVM implementation of SafeHtmlBuilder rejects as incomplete.
+        SafeHtmlBuilder.class.getClassLoader ().setClassAssertionStatus (SafeHtmlHostedModeUtils.class.getName (), false);
+    }
+
+    @Test
+    public void testConstant() {
+        Container<String> root = TemplateBuilder.container ();
+        root.div (d -> {
+            d.addClassName ("card");
+            d.setAttribute ("title", "Card");
+            d.span ().text ("Hello & welcome");
+            d.ul (ul -> {
+                ul.li ().text ("one");
+                ul.li ().text ("two");
+            });
+        });
+
+        // No slots and the skeleton is exactly what would be rendered.
+        Compilation compilation = compile (root);
+        Assertions.assertTrue (compilation.compilable ());
+        Assertions.assertTrue (compilation.slots.isEmpty ());
+        Element skeleton = parse (skeleton (compilation));
+        Assertions.assertArrayEquals (new int[0][], Compilation.locate (skeleton, 0, SKELETON));
+        Assertions.assertEquals (parse (render (root, "x")).html (), skeleton.html ());
+    }
+
+    @Test
+    public void testSlotPaths() {
+        Container<String> root = TemplateBuilder.container ();
+        root.div (d -> {
+            d.addClassName ("card");
+            d.span ().text ("Label");
+            d.span ().text (v -> v);
+            d.div (inner -> {
+                inner.setAttribute ("title", v -> v);
+                inner.span ().text (v -> v + "!");
+            });
+        });
+
+        Compilation compilation = compile (root);
+        Assertions.assertTrue (compilation.compilable ());
+        Assertions.assertEquals (3, compilation.slots.size ());
+
+        // Slots are numbered in document order: the text in the second span, the
+        // inner div (its attribute) and the text in its span.
+        Element skeleton = parse (skeleton (compilation));
+        int[][] paths = Compilation.locate (skeleton, 3, SKELETON);
+        Assertions.assertNotNull (paths);
+        Assertions.assertArrayEquals (new int[] { 0, 1, 0 }, paths[0]);
+        Assertions.assertArrayEquals (new int[] { 0, 2 }, paths[1]);
+        Assertions.assertArrayEquals (new int[] { 0, 2, 0, 0 }, paths[2]);
+        Assertions.assertTrue (resolve (skeleton, paths[0]) instanceof Comment);
+        Assertions.assertEquals ("div", ((Element) resolve (skeleton, paths[1])).tagName ());
+        Assertions.assertTrue (resolve (skeleton, paths[2]) instanceof Comment);
+
+        // Element markers are removed once located.
+        Assertions.assertTrue (skeleton.select ("[" + Compilation.SLOT_ATTR + "]").isEmpty ());
+
+        // Same structure as the inner HTML path.
+        Assertions.assertEquals (outline (parse (render (root, "x"))), outline (skeleton));
+    }
+
+    @Test
+    public void testSlotPathsInTable() {
+        Container<String> root = TemplateBuilder.container ();
+        root.table (t -> {
+            t.tr (r -> {
+                r.td ().text ("Name");
+                r.td ().text (v -> v);
+            });
+        });
+
+        // The parser inserts the tbody so the path must be taken from the parsed
+        // skeleton (not the template).
+        Compilation compilation = compile (root);
+        Assertions.assertTrue (compilation.compilable ());
+        Element skeleton = parse (skeleton (compilation));
+        int[][] paths = Compilation.locate (skeleton, 1, SKELETON);
+        Assertions.assertNotNull (paths);
+        Assertions.assertArrayEquals (new int[] { 0, 0, 0, 1, 0 }, paths[0]);
+        Assertions.assertEquals (outline (parse (render (root, "x"))), outline (skeleton));
+    }
+
+    @Test
+    public void testRegion() {
+        Container<String> root = TemplateBuilder.container ();
+        root.div (d -> {
+            d.span ().text ("Always");
+            d.span (s -> {
+                s.condition (v -> v.startsWith ("y"));
+                s.text ("Sometimes");
+            });
+        });
+
+        // The conditional span is rendered at render time in place of a
+        // placeholder.
+        Compilation compilation = compile (root);
+        Assertions.assertTrue (compilation.compilable ());
+        Element skeleton = parse (skeleton (compilation));
+        int[][] paths = Compilation.locate (skeleton, 1, SKELETON);
+        Assertions.assertNotNull (paths);
+        Assertions.assertArrayEquals (new int[] { 0, 1 }, paths[0]);
+        Assertions.assertTrue (resolve (skeleton, paths[0]) instanceof Comment);
+    }
+
+    @Test
+    public void testRawTextFallback() {
+        // Dynamic content within raw text can't be marked so the template is not
+        // compilable (and falls back to the inner HTML path).
+        Container<String> root = TemplateBuilder.container ();
+        root.div (d -> d.textarea ().text (v -> v));
+        Compilation compilation = compile (root);
+        Assertions.assertFalse (compilation.compilable ());
+
+        // Were it compiled the marker would be lost on parsing (so falls back in
+        // any case).
+        Element skeleton = parse (skeleton (compilation));
+        Assertions.assertNull (Compilation.locate (skeleton, compilation.slots.size (), SKELETON));
+
+        // Similarly for elements (and regions) within raw text.
+        root = TemplateBuilder.container ();
+        root.textarea ().span ().setAttribute ("title", v -> v);
+        Assertions.assertFalse (compile (root).compilable ());
+
+        // The raw text element itself may be dynamic.
+        root = TemplateBuilder.container ();
+        TemplateBuilder.Element<String> textarea = root.textarea ();
+        textarea.setAttribute ("placeholder", v -> v);
+        textarea.text ("Some text");
+        compilation = compile (root);
+        Assertions.assertTrue (compilation.compilable ());
+        skeleton = parse (skeleton (compilation));
+        int[][] paths = Compilation.locate (skeleton, 1, SKELETON);
+        Assertions.assertNotNull (paths);
+        Assertions.assertArrayEquals (new int[] { 0 }, paths[0]);
+        Assertions.assertEquals ("Some text", ((Element) resolve (skeleton, paths[0])).text ());
+    }
+
+    @Test
+    public void testLocateMissing() {
+        // A slot that is not present in the skeleton (i.e. lost on parsing)
+        // results in no paths.
+        Element skeleton = parse ("<div _slot=\"0\"><!--jui:2--></div>");
+        Assertions.assertNull (Compilation.locate (skeleton, 3, SKELETON));
+        skeleton = parse ("<div _slot=\"0\"><!--jui:1--><!--other--></div>");
+        int[][] paths = Compilation.locate (skeleton, 2, SKELETON);
+        Assertions.assertNotNull (paths);
+        Assertions.assertArrayEquals (new int[] { 0 }, paths[0]);
+        Assertions.assertArrayEquals (new int[] { 0, 0 }, paths[1]);
+    }
+
+    /************************************************************************
+     * Helpers.
+     ************************************************************************/
+
+    /**
+     * Access to a skeleton parsed by jsoup.
+     */
+    static final Compilation.ISkeleton<Node> SKELETON = new Compilation.ISkeleton<Node> () {
+
+        @Override
+        public int slot(Node node) {
+            if (node instanceof Element) {
+                Element el = (Element) node;
+                if (!el.hasAttr (Compilation.SLOT_ATTR))
+                    return -1;
+                String marker = el.attr (Compilation.SLOT_ATTR);
+                el.removeAttr (Compilation.SLOT_ATTR);
+                return Compilation.index (marker);
+            }
+            if (node instanceof Comment)
+                return Compilation.index (((Comment) node).getData ());
+            return -1;
+        }
+
+        @Override
+        public int size(Node node) {
+            return node.childNodeSize ();
+        }
+
+        @Override
+        public Node child(Node node, int index) {
+            return node.childNode (index);
+        }
+    };
+
+    private Compilation compile(Container<String> root) {
+        Compilation compilation = new Compilation ();
+        root.compile (compilation);
+        return compilation;
+    }
+
+    private String skeleton(Compilation compilation) {
+        return compilation.builder ().toSafeHtml ().asString ();
+    }
+
+    /**
+     * Renders using the inner HTML path.
+     */
+    private String render(Container<String> root, String data) {
+        FakeElement el = new FakeElement ("div");
+        root.renderer ().render (el, data);
+        return el.innerHTML;
+    }
+
+    private Element parse(String html) {
+        return Jsoup.parseBodyFragment (html).body ();
+    }
+
+    private Node resolve(Node root, int[] path) {
+        Node node = root;
+        for (int idx : path)
+            node = node.childNode (idx);
+        return node;
+    }
+
+    /**
+     * The element structure (a slot placeholder stands in for the text that
+     * replaces it).
+     */
+    private String outline(Node node) {
+        if (node instanceof TextNode)
+            return "#text";
+        if (node instanceof Comment)
+            return ((Comment) node).getData ().startsWith (Compilation.PLACEHOLDER) ? "#text" : "";
+        StringBuilder sb = new StringBuilder (node.nodeName ()).append ("[");
+        for (Node child : node.childNodes ())
+            sb.append (outline (child)).append (" ");
+        return sb.append ("]").toString ();
+    }
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.core.client.observable;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.effacy.jui.core.client.observable.ObservableTest.ITestListener;
+import com.effacy.jui.core.client.observable.ObservableTest.TestListenerFactory;
+import com.effacy.jui.core.client.test.GWTTestBridge;
+
+/**
+ * Measures the throughput of {@link Observable#fireEvent(Class)} with a number
+ * of registered listeners and a conveyed observable.
+ * <p>
+ * The {@code cached} benchmark fires through the cached dispatcher while
+ * {@code uncached} passes an additional listener, which forces a dispatcher to
+ * be created on each fire (approximating the prior behaviour).
+ * <p>
+ * Add {@code -prof gc} to the JMH options to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObservableBenchmark {
+
+    @Param({ "1", "8" })
+    public int listeners;
+
+    private Observable observable;
+
+    private ITestListener extra;
+
+    private int count;
+
+    @Setup
+    public void setup() {
+        GWTTestBridge.init ();
+        ListenerOracle.instance ().register (new TestListenerFactory (), ITestListener.class);
+        observable = new Observable ();
+        Observable conveyed = new Observable ();
+        observable.convey (conveyed);
+        for (int i = 0; i < listeners; i++)
+            observable.addListener (listener ());
+        conveyed.addListener (listener ());
+        extra = listener ();
+    }
+
+    private ITestListener listener() {
+        return new ITestListener () {
+
+            @Override
+            public void onEvent(String value) {
+                count++;
+            }
+
+            @Override
+            public boolean onVeto(String value) {
+                return false;
+            }
+        };
+    }
+
+    @Benchmark
+    public int cached() {
+        observable.fireEvent (ITestListener.class).onEvent ("value");
+        return count;
+    }
+
+    @Benchmark
+    public int uncached() {
+        observable.fireEvent (ITestListener.class, extra).onEvent ("value");
+        return count;
+    }
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.core.client.observable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.core.client.AbstractJUITest;
+import com.effacy.jui.core.client.observable.ListenerOracle.IListenerFactory;
+import com.effacy.jui.core.client.observable.ListenerOracle.IListenerSource;
+
+public class ObservableTest extends AbstractJUITest {
+
+    @BeforeEach
+    public void registerFactory() {
+        ListenerOracle.instance ().register (new TestListenerFactory (), ITestListener.class);
+    }
+
+    @Test
+    public void fire() {
+        List<String> events = new ArrayList<> ();
+        Observable observable = new Observable ();
+        observable.addListener (ITestListener.create ("a", events));
+        observable.addListener (ITestListener.create ("b", events));
+        observable.fireEvent (ITestListener.class).onEvent ("1");
+        Assertions.assertEquals (List.of ("a:1", "b:1"), events);
+
+        // Additional listeners come after.
+        events.clear ();
+        observable.fireEvent (ITestListener.class, ITestListener.create ("c", events)).onEvent ("2");
+        Assertions.assertEquals (List.of ("a:2", "b:2", "c:2"), events);
+    }
+
+    @Test
+    public void cached() {
+        List<String> events = new ArrayList<> ();
+        Observable observable = new Observable ();
+        ITestListener a = observable.addListener (ITestListener.create ("a", events));
+
+        // Same dispatcher until the listeners change.
+        ITestListener dispatcher = observable.fireEvent (ITestListener.class);
+        Assertions.assertSame (dispatcher, observable.fireEvent (ITestListener.class));
+
+        observable.addListener (ITestListener.create ("b", events));
+        Assertions.assertNotSame (dispatcher, observable.fireEvent (ITestListener.class));
+        observable.fireEvent (ITestListener.class).onEvent ("1");
+        Assertions.assertEquals (List.of ("a:1", "b:1"), events);
+
+        events.clear ();
+        observable.removeListener (a);
+        observable.fireEvent (ITestListener.class).onEvent ("2");
+        Assertions.assertEquals (List.of ("b:2"), events);
+
+        // Adding during dispatch does not affect the dispatch in progress.
+        events.clear ();
+        observable.addListener (ITestListener.create ("c", events, () -> observable.addListener (ITestListener.create ("d", events))));
+        observable.fireEvent (ITestListener.class).onEvent ("3");
+        Assertions.assertEquals (List.of ("b:3", "c:3"), events);
+        events.clear ();
+        observable.fireEvent (ITestListener.class).onEvent ("4");
+        Assertions.assertEquals (List.of ("b:4", "c:4", "d:4"), events);
+    }
+
+    @Test
+    public void convey() {
+        List<String> events = new ArrayList<> ();
+        Observable source = new Observable ();
+        Observable target = new Observable ();
+        source.addListener (ITestListener.create ("s", events));
+        source.convey (target);
+        source.fireEvent (ITestListener.class).onEvent ("1");
+        Assertions.assertEquals (List.of ("s:1"), events);
+
+        // Listeners added to the target after the dispatcher is cached are
+        // picked up.
+        events.clear ();
+        target.addListener (ITestListener.create ("t", events));
+        source.fireEvent (ITestListener.class).onEvent ("2");
+        Assertions.assertEquals (List.of ("s:2", "t:2"), events);
+
+        // Boolean dispatch continues while no listener returns true.
+        events.clear ();
+        Assertions.assertFalse (source.fireEvent (ITestListener.class).onVeto ("3"));
+        Assertions.assertEquals (List.of ("s:3", "t:3"), events);
+
+        events.clear ();
+        source.removeObservable (target);
+        source.fireEvent (ITestListener.class).onEvent ("4");
+        Assertions.assertEquals (List.of ("s:4"), events);
+    }
+
+    @Test
+    public void conveyFiltered() {
+        List<String> events = new ArrayList<> ();
+        Observable source = new Observable ();
+        Observable target = new Observable ();
+        target.addListener (ITestListener.create ("t", events));
+        source.convey (target, IOtherListener.class);
+        source.fireEvent (ITestListener.class).onEvent ("1");
+        Assertions.assertTrue (events.isEmpty ());
+
+        source.convey (target, ITestListener.class);
+        source.fireEvent (ITestListener.class).onEvent ("2");
+        Assertions.assertEquals (List.of ("t:2"), events);
+    }
+
+    /**
+     * Listener used for testing.
+     */
+    public interface ITestListener extends IListener {
+
+        public void onEvent(String value);
+
+        public boolean onVeto(String value);
+
+        public static ITestListener create(String name, List<String> events) {
+            return create (name, events, null);
+        }
+
+        public static ITestListener create(String name, List<String> events, Runnable action) {
+            return new ITestListener () {
+
+                @Override
+                public void onEvent(String value) {
+                    events.add (name + ":" + value);
+                    if (action != null)
+                        action.run ();
+                }
+
+                @Override
+                public boolean onVeto(String value) {
+                    events.add (name + ":" + value);
+                    return false;
+                }
+            };
+        }
+    }
+
+    /**
+     * Listener that is not registered.
+     */
+    public interface IOtherListener extends IListener {}
+
+    /**
+     * Factory that mirrors the one generated by the ListenerOracleGenerator
+     * (for unit testing).
+     */
+    public static class TestListenerFactory implements IListenerFactory<ITestListener> {
+
+        @Override
+        public ITestListener createDispatcher(Collection<IListener> listenerList, String debugString) {
+            return createDispatcher ((listenerList == null) ? null : listenerList.toArray (new IListener[listenerList.size ()]), null, debugString);
+        }
+
+        @Override
+        public ITestListener createDispatcher(IListener[] listenerList, IListenerSource[] sources, String debugString) {
+            int count = 0;
+            if (listenerList != null) {
+                for (int i = 0; i < listenerList.length; i++) {
+                    if (listenerList[i] instanceof ITestListener)
+                        count++;
+                }
+            }
+            ITestListener[] listeners = new ITestListener[count];
+            count = 0;
+            if (listenerList != null) {
+                for (int i = 0; i < listenerList.length; i++) {
+                    if (listenerList[i] instanceof ITestListener)
+                        listeners[count++] = (ITestListener) listenerList[i];
+                }
+            }
+            return new ITestListener () {
+
+                @Override
+                public void onEvent(String value) {
+                    for (int i = 0; i < listeners.length; i++)
+                        listeners[i].onEvent (value);
+                    if (sources != null) {
+                        for (int i = 0; i < sources.length; i++) {
+                            ITestListener listener = sources[i].listener (ITestListener.class);
+                            if (listener != null)
+                                listener.onEvent (value);
+                        }
+                    }
+                }
+
+                @Override
+                public boolean onVeto(String value) {
+                    for (int i = 0; i < listeners.length; i++) {
+                        if (listeners[i].onVeto (value))
+                            return true;
+                    }
+                    if (sources != null) {
+                        for (int i = 0; i < sources.length; i++) {
+                            ITestListener listener = sources[i].listener (ITestListener.class);
+                            if ((listener != null) && listener.onVeto (value))
+                                return true;
+                        }
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
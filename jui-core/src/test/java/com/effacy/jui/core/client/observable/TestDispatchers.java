@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.core.client.observable;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import com.effacy.jui.core.client.component.IDisposeListener;
+import com.effacy.jui.core.client.observable.ListenerOracle.IListenerFactory;
+import com.effacy.jui.core.client.observable.ListenerOracle.IListenerSource;
+import com.effacy.jui.core.client.store.IStore;
+import com.effacy.jui.core.client.store.IStoreAfterLoadListener;
+import com.effacy.jui.core.client.store.IStoreBeforeLoadListener;
+import com.effacy.jui.core.client.store.IStoreChangedListener;
+import com.effacy.jui.core.client.store.IStoreClearListener;
+import com.effacy.jui.core.client.store.IStoreLoadingListener;
+import com.effacy.jui.core.client.store.IStoreSelection;
+import com.effacy.jui.core.client.store.IStoreSelectionListener;
+import com.effacy.jui.core.client.store.IStoreStatusListener;
+
+/**
+ * Dispatchers for the component and store listeners used by unit tests, in
+ * place of those generated by the ListenerOracleGenerator (which is not run
+ * for unit tests). As with the generated ones these dispatch to the listeners
+ * that implement the listener class then to those obtained from the sources.
+ */
+public final class TestDispatchers {
+
+    /**
+     * Registers the dispatchers with the oracle (registering again replaces
+     * them).
+     */
+    public static void register() {
+        ListenerOracle oracle = ListenerOracle.instance ();
+        oracle.register (new TestFactory<IDisposeListener> (IDisposeListener.class) {
+
+            @Override
+            protected IDisposeListener dispatcher(Consumer<Consumer<IDisposeListener>> each) {
+                return cpt -> each.accept (l -> l.onDispose (cpt));
+            }
+        }, IDisposeListener.class);
+        oracle.register (new TestFactory<IStoreChangedListener> (IStoreChangedListener.class) {
+
+            @Override
+            protected IStoreChangedListener dispatcher(Consumer<Consumer<IStoreChangedListener>> each) {
+                return store -> each.accept (l -> l.onStoreChanged (store));
+            }
+        }, IStoreChangedListener.class);
+        oracle.register (new TestFactory<IStoreClearListener> (IStoreClearListener.class) {
+
+            @Override
+            protected IStoreClearListener dispatcher(Consumer<Consumer<IStoreClearListener>> each) {
+                return store -> each.accept (l -> l.onStoreCleared (store));
+            }
+        }, IStoreClearListener.class);
+        oracle.register (new TestFactory<IStoreBeforeLoadListener> (IStoreBeforeLoadListener.class) {
+
+            @Override
+            protected IStoreBeforeLoadListener dispatcher(Consumer<Consumer<IStoreBeforeLoadListener>> each) {
+                return store -> each.accept (l -> l.onStoreBeforeLoad (store));
+            }
+        }, IStoreBeforeLoadListener.class);
+        oracle.register (new TestFactory<IStoreAfterLoadListener> (IStoreAfterLoadListener.class) {
+
+            @Override
+            protected IStoreAfterLoadListener dispatcher(Consumer<Consumer<IStoreAfterLoadListener>> each) {
+                return store -> each.accept (l -> l.onStoreAfterLoad (store));
+            }
+        }, IStoreAfterLoadListener.class);
+        oracle.register (new TestFactory<IStoreLoadingListener> (IStoreLoadingListener.class) {
+
+            @Override
+            protected IStoreLoadingListener dispatcher(Consumer<Consumer<IStoreLoadingListener>> each) {
+                return new IStoreLoadingListener () {
+
+                    @Override
+                    public void onStoreBeforeLoad(IStore<?> store) {
+                        each.accept (l -> l.onStoreBeforeLoad (store));
+                    }
+
+                    @Override
+                    public void onStoreAfterLoad(IStore<?> store) {
+                        each.accept (l -> l.onStoreAfterLoad (store));
+                    }
+                };
+            }
+        }, IStoreLoadingListener.class);
+        oracle.register (new TestFactory<IStoreStatusListener> (IStoreStatusListener.class) {
+
+            @Override
+            protected IStoreStatusListener dispatcher(Consumer<Consumer<IStoreStatusListener>> each) {
+                return (store, status, prior) -> each.accept (l -> l.onStoreStatucChanged (store, status, prior));
+            }
+        }, IStoreStatusListener.class);
+        oracle.register (new TestFactory<IStoreSelectionListener> (IStoreSelectionListener.class) {
+
+            @Override
+            protected IStoreSelectionListener dispatcher(Consumer<Consumer<IStoreSelectionListener>> each) {
+                return (IStoreSelection<?> store) -> each.accept (l -> l.onSelectionChanged (store));
+            }
+        }, IStoreSelectionListener.class);
+    }
+
+    /**
+     * Base factory that resolves the listeners to dispatch to.
+     */
+    static abstract class TestFactory<L extends IListener> implements IListenerFactory<L> {
+
+        private Class<L> klass;
+
+        TestFactory(Class<L> klass) {
+            this.klass = klass;
+        }
+
+        @Override
+        public L createDispatcher(Collection<IListener> listeners, String debugString) {
+            return createDispatcher ((listeners == null) ? null : listeners.toArray (new IListener[listeners.size ()]), null, debugString);
+        }
+
+        @Override
+        public L createDispatcher(IListener[] listeners, IListenerSource[] sources, String debugString) {
+            return dispatcher (action -> {
+                if (listeners != null) {
+                    for (int i = 0; i < listeners.length; i++) {
+                        if (klass.isInstance (listeners[i]))
+                            action.accept (klass.cast (listeners[i]));
+                    }
+                }
+                if (sources != null) {
+                    for (int i = 0; i < sources.length; i++) {
+                        L listener = sources[i].listener (klass);
+                        if (listener != null)
+                            action.accept (listener);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Creates the dispatcher.
+         *
+         * @param each
+         *            invokes the passed action on each of the listeners.
+         * @return the dispatcher.
+         */
+        protected abstract L dispatcher(Consumer<Consumer<L>> each);
+    }
+
+    private TestDispatchers() {
+        // Nothing.
+    }
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.core.client.store;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ListIndexTest {
+
+    @Test
+    public void paging() {
+        List<String> records = records ("A", "B", "C", "D", "E");
+        ListIndex<String> index = new ListIndex<> (records);
+        Assertions.assertEquals (5, index.total (null));
+        Assertions.assertEquals (List.of ("A", "B"), index.page (null, 0, 2));
+        Assertions.assertEquals (List.of ("E"), index.page (null, 2, 2));
+        Assertions.assertEquals (List.of (), index.page (null, 3, 2));
+    }
+
+    @Test
+    public void filter() {
+        int[] tests = new int[1];
+        List<String> records = records ("apple", "apricot", "banana", "avocado", "grape");
+        ListIndex<String> index = new ListIndex<> (records);
+        index.filter ((v, k) -> {
+            tests[0]++;
+            return (k == null) || v.contains (k);
+        });
+        Assertions.assertEquals (List.of ("apple", "apricot", "grape"), index.page ("ap", 0, 10));
+        Assertions.assertEquals (5, tests[0]);
+
+        // Cached (including after a different query).
+        Assertions.assertEquals (3, index.total ("ap"));
+        Assertions.assertEquals (List.of ("banana"), index.page ("b", 0, 10));
+        Assertions.assertEquals (List.of ("apricot"), index.page ("ap", 1, 1));
+        Assertions.assertEquals (10, tests[0]);
+
+        // Records change.
+        records.add ("papaya");
+        index.invalidate ();
+        Assertions.assertEquals (4, index.total ("ap"));
+    }
+
+    @Test
+    public void refine() {
+        int[] tests = new int[1];
+        List<String> records = records ("apple", "apricot", "banana", "avocado", "grape");
+        ListIndex<String> index = new ListIndex<> (records);
+        index.refine (true);
+        index.filter ((v, k) -> {
+            tests[0]++;
+            return (k == null) || v.contains (k);
+        });
+        Assertions.assertEquals (3, index.total ("p"));
+        Assertions.assertEquals (5, tests[0]);
+
+        // Only the results for "p" are tested.
+        Assertions.assertEquals (List.of ("apricot"), index.page ("pr", 0, 10));
+        Assertions.assertEquals (8, tests[0]);
+
+        // Not an extension.
+        Assertions.assertEquals (List.of ("banana"), index.page ("b", 0, 10));
+        Assertions.assertEquals (13, tests[0]);
+    }
+
+    @Test
+    public void sort() {
+        List<String> records = records ("d", "b", "a", "c", "e");
+        ListIndex<String> index = new ListIndex<> (records);
+        index.sort (Comparator.naturalOrder ());
+        Assertions.assertEquals (List.of ("a", "b"), index.page (null, 0, 2));
+        Assertions.assertEquals (List.of ("c", "d"), index.page (null, 1, 2));
+
+        // Underlying list is not modified.
+        Assertions.assertEquals (List.of ("d", "b", "a", "c", "e"), records);
+
+        // Combined with a filter.
+        index.filter ((v, k) -> !"b".equals (v) && !"d".equals (v));
+        Assertions.assertEquals (List.of ("a", "c", "e"), index.page (null, 0, 10));
+        index.sort (Comparator.<String>naturalOrder ().reversed ());
+        Assertions.assertEquals (List.of ("e", "c", "a"), index.page (null, 0, 10));
+
+        // Natural order.
+        index.sort (null);
+        Assertions.assertEquals (List.of ("a", "c", "e"), index.page (null, 0, 10));
+    }
+
+    @Test
+    public void sortStable() {
+        List<String> records = records ("b1", "a1", "b2", "a2", "b3");
+        ListIndex<String> index = new ListIndex<> (records);
+        index.sort ((a, b) -> Character.compare (a.charAt (0), b.charAt (0)));
+        Assertions.assertEquals (List.of ("a1", "a2", "b1", "b2", "b3"), index.page (null, 0, 10));
+    }
+
+    private List<String> records(String... values) {
+        return new ArrayList<> (List.of (values));
+    }
+}
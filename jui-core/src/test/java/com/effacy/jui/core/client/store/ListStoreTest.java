@@ -15,6 +15,8 @@
  ******************************************************************************/
 package com.effacy.jui.core.client.store;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -37,4 +39,15 @@ public class ListStoreTest extends AbstractJUITest {
         Assertions.assertEquals (5, store.size ());
     }
 
+    @Test
+    public void test_apply() {
+        ListStore<String> store = new ListStore<>();
+        store.add("A01", "B02", "C03", "D04");
+
+        // Keyed on the trailing digits (so "X03" replaces "C03").
+        Assertions.assertTrue (store.apply (List.of ("X03", "E05"), List.of ("02"), s -> s.substring (1)));
+        Assertions.assertEquals (List.of ("A01", "X03", "D04", "E05"), store.asList ());
+        Assertions.assertFalse (store.apply (List.of (), List.of (), s -> s.substring (1)));
+    }
+
 }
@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.core.client.store;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.core.client.AbstractJUITest;
+import com.effacy.jui.core.client.store.IStore.Status;
+
+public class PaginatedStoreTest extends AbstractJUITest {
+
+    @Test
+    public void supersede() {
+        TestStore store = new TestStore ();
+        List<Status> statuses = new ArrayList<> ();
+        int[] changes = new int[1];
+        store.addListener (IStoreStatusListener.create ((s, status, prior) -> statuses.add (status)));
+        store.addListener (IStoreChangedListener.create (s -> changes[0]++));
+        store.load (0, 10);
+        store.load (1, 10);
+        Assertions.assertEquals (2, store.requests.size ());
+        Assertions.assertTrue (store.requests.get (0).cb.isCancelled ());
+
+        // The superseded request is ignored.
+        store.requests.get (0).respond ();
+        Assertions.assertEquals (0, store.size ());
+        store.requests.get (1).respond ();
+        Assertions.assertEquals (List.of (10, 11, 12, 13, 14, 15, 16, 17, 18, 19), store.asList ());
+        Assertions.assertEquals (1, store.getPage ());
+
+        // One before and after load notification for the pair (and the store
+        // passes through loading once).
+        Assertions.assertEquals (1, store.beforeLoad);
+        Assertions.assertEquals (1, store.afterLoad);
+        Assertions.assertEquals (1, changes[0]);
+        Assertions.assertEquals (List.of (Status.LOADING, Status.LOADED), statuses);
+    }
+
+    @Test
+    public void onCancel() {
+        TestStore store = new TestStore ();
+        store.load (0, 10);
+        boolean[] aborted = new boolean[1];
+        store.requests.get (0).cb.onCancel (() -> aborted[0] = true);
+        store.load (1, 10);
+        Assertions.assertTrue (aborted[0]);
+    }
+
+    @Test
+    public void cache() {
+        TestStore store = new TestStore ();
+        store.cache (2);
+        store.load (0, 10);
+        store.requests.get (0).respond ();
+        store.load (1, 10);
+        store.requests.get (1).respond ();
+
+        // Returning to a cached page does not request it.
+        store.load (0, 10);
+        Assertions.assertEquals (2, store.requests.size ());
+        Assertions.assertEquals (Integer.valueOf (0), store.get (0));
+
+        // Bounded (page 1 is the least recently used).
+        store.load (2, 10);
+        store.requests.get (2).respond ();
+        store.load (1, 10);
+        Assertions.assertEquals (4, store.requests.size ());
+
+        // Discarded on reload.
+        store.requests.get (3).respond ();
+        store.reload ();
+        Assertions.assertEquals (5, store.requests.size ());
+    }
+
+    @Test
+    public void replaceCached() {
+        TestStore store = new TestStore ();
+        store.cache (2);
+        store.load (0, 10);
+        store.requests.get (0).respond ();
+        store.load (1, 10);
+        store.requests.get (1).respond ();
+        store.replace (List.of (103), (a, b) -> (a + 100) == b);
+        store.load (0, 10);
+        Assertions.assertEquals (Integer.valueOf (103), store.get (3));
+    }
+
+    @Test
+    public void replaceByKey() {
+        RecordStore store = new RecordStore ();
+        store.load (0, 10);
+
+        // Records are equal only to themselves so, by default (keyed on the
+        // item), an update does not replace the record with the same ID.
+        Rec update = new Rec (3);
+        Assertions.assertFalse (store.replace (List.of (update), null));
+        Assertions.assertNotSame (update, store.get (3));
+
+        // Keyed on the ID it does.
+        store.key (r -> r.id);
+        Assertions.assertTrue (store.replace (List.of (update), null));
+        Assertions.assertSame (update, store.get (3));
+
+        // Similarly for apply, where (with all items loaded) an unmatched
+        // change is taken to be new.
+        store = new RecordStore ();
+        store.load (0, 10);
+        Rec change = new Rec (4);
+        Assertions.assertTrue (store.apply (List.of (change), null, null));
+        Assertions.assertNotSame (change, store.get (4));
+        Assertions.assertEquals (11, store.size ());
+
+        store = new RecordStore ();
+        store.key (r -> r.id);
+        store.load (0, 10);
+        Assertions.assertTrue (store.apply (List.of (change), null, null));
+        Assertions.assertSame (change, store.get (4));
+        Assertions.assertEquals (10, store.size ());
+    }
+
+    @Test
+    public void prefetch() {
+        TestStore store = new TestStore ();
+        store.cache (4).prefetch (true);
+        store.load (0, 10);
+        store.requests.get (0).respond ();
+
+        // Prefetches the next page (as would be loaded by loadNext).
+        Assertions.assertEquals (2, store.requests.size ());
+        Assertions.assertEquals (1, store.requests.get (1).page);
+        Assertions.assertEquals (10, store.requests.get (1).pageSize);
+
+        // Loading while the prefetch is in progress waits on it.
+        store.loadNext (true);
+        Assertions.assertEquals (2, store.requests.size ());
+        store.requests.get (1).respond ();
+        Assertions.assertEquals (20, store.size ());
+
+        // Then the next is prefetched and, once complete, loads immediately.
+        Assertions.assertEquals (3, store.requests.size ());
+        store.requests.get (2).respond ();
+        store.loadNext (true);
+        Assertions.assertEquals (30, store.size ());
+    }
+
+    @Test
+    public void clear() {
+        TestStore store = new TestStore ();
+        store.load (0, 10);
+        store.clear ();
+        store.requests.get (0).respond ();
+        Assertions.assertEquals (0, store.size ());
+        Assertions.assertEquals (1, store.afterLoad);
+    }
+
+    @Test
+    public void apply() {
+        TestStore store = new TestStore ();
+        int[] changes = new int[1];
+        store.addListener (IStoreChangedListener.create (s -> changes[0]++));
+        store.cache (4);
+        store.load (0, 10);
+        store.requests.get (0).respond ();
+        store.load (1, 10);
+        store.requests.get (1).respond ();
+        changes[0] = 0;
+
+        // Replacements only retain the cache (and are applied to it).
+        Assertions.assertTrue (store.apply (List.of (112), List.of (), v -> v % 100));
+        Assertions.assertEquals (Integer.valueOf (112), store.get (2));
+        Assertions.assertEquals (100, store.getTotalAvailable ());
+        Assertions.assertEquals (1, changes[0]);
+        store.load (0, 10);
+        store.load (1, 10);
+        Assertions.assertEquals (2, store.requests.size ());
+        Assertions.assertEquals (Integer.valueOf (112), store.get (2));
+        store.load (0, 10);
+
+        // Removals adjust the total and discard the cache.
+        changes[0] = 0;
+        Assertions.assertTrue (store.apply (List.of (), List.of (4, 5), v -> v % 100));
+        Assertions.assertEquals (8, store.size ());
+        Assertions.assertEquals (98, store.getTotalAvailable ());
+        Assertions.assertEquals (1, changes[0]);
+        store.load (1, 10);
+        Assertions.assertEquals (3, store.requests.size ());
+        store.requests.get (2).respond ();
+
+        // Additions (when not all loaded) are counted but not presented, and
+        // discard the cache.
+        store.load (0, 10);
+        Assertions.assertEquals (4, store.requests.size ());
+        store.requests.get (3).respond ();
+        Assertions.assertTrue (store.apply (List.of (150), List.of (), v -> v));
+        Assertions.assertEquals (10, store.size ());
+        Assertions.assertEquals (101, store.getTotalAvailable ());
+        store.load (1, 10);
+        Assertions.assertEquals (5, store.requests.size ());
+
+        // Unmatched keys have no effect.
+        store.requests.get (4).respond ();
+        changes[0] = 0;
+        Assertions.assertFalse (store.apply (List.of (), List.of (50), v -> v % 100));
+        Assertions.assertEquals (0, changes[0]);
+    }
+
+    @Test
+    public void applyAll() {
+        TestStore store = new TestStore ();
+        store.load (0, 100);
+        store.requests.get (0).respond ();
+
+        // Additions are presented when all are loaded.
+        Assertions.assertTrue (store.apply (List.of (200, 201), List.of (0), v -> v));
+        Assertions.assertEquals (101, store.size ());
+        Assertions.assertEquals (101, store.getTotalAvailable ());
+        Assertions.assertEquals (List.of (200, 201), store.asList ().subList (99, 101));
+    }
+
+    /**
+     * A record whose equality is identity-based.
+     */
+    static class Rec {
+
+        int id;
+
+        Rec(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Store of ten records that responds immediately.
+     */
+    static class RecordStore extends PaginatedStore<Rec> {
+
+        @Override
+        protected void requestLoad(int page, int pageSize, ILoadRequestCallback<Rec> cb) {
+            List<Rec> items = new ArrayList<> ();
+            for (int i = 0; i < 10; i++)
+                items.add (new Rec (i));
+            cb.onSuccess (items, 10, false);
+        }
+    }
+
+    /**
+     * A captured request.
+     */
+    static class Request {
+
+        int page;
+
+        int pageSize;
+
+        PaginatedStore.ILoadRequestCallback<Integer> cb;
+
+        void respond() {
+            List<Integer> items = new ArrayList<> ();
+            for (int i = page * pageSize, end = Math.min (100, (page + 1) * pageSize); i < end; i++)
+                items.add (i);
+            cb.onSuccess (items, 100, false);
+        }
+    }
+
+    /**
+     * Store of the integers 0 to 99 whose requests are completed by the test.
+     */
+    static class TestStore extends PaginatedStore<Integer> {
+
+        List<Request> requests = new ArrayList<> ();
+
+        int beforeLoad;
+
+        int afterLoad;
+
+        @Override
+        protected void onBeforeLoad() {
+            beforeLoad++;
+        }
+
+        @Override
+        protected void onAfterLoad() {
+            afterLoad++;
+        }
+
+        @Override
+        protected void requestLoad(int page, int pageSize, ILoadRequestCallback<Integer> cb) {
+            Request request = new Request ();
+            request.page = page;
+            request.pageSize = pageSize;
+            request.cb = cb;
+            requests.add (request);
+        }
+    }
+}
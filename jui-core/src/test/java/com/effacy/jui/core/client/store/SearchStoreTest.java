@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.core.client.store;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.core.client.AbstractJUITest;
+
+public class SearchStoreTest extends AbstractJUITest {
+
+    @Test
+    public void matcher() {
+        ListStore<String> store = new ListStore<>();
+        store.add ("John Smith", "Jane Smith", "John Doe");
+        SearchStore<String> search = new SearchStore<> (store, (v, k) -> v.toLowerCase ().contains (k));
+        search.filter ("smith");
+        Assertions.assertEquals (List.of ("John Smith", "Jane Smith"), search.asList ());
+    }
+
+    @Test
+    public void index() {
+        ListStore<String> store = new ListStore<>();
+        store.add ("John Smith", "Jane Smith", "John Doe");
+        SearchStore<String> search = new SearchStore<String> (store).index (v -> v);
+        search.filter ("jo");
+        Assertions.assertEquals (List.of ("John Smith", "John Doe"), search.asList ());
+        search.filter ("jo sm");
+        Assertions.assertEquals (List.of ("John Smith"), search.asList ());
+
+        // Changes to the underlying store are picked up.
+        store.add ("Joan Smith");
+        search.filter ("jo sm");
+        Assertions.assertEquals (List.of ("John Smith", "Joan Smith"), search.asList ());
+
+        search.clearFilter ();
+        Assertions.assertEquals (4, search.size ());
+    }
+}
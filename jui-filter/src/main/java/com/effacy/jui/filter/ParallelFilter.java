@@ -0,0 +1,585 @@
+package com.effacy.jui.filter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.PredicateExpressionBuilder;
+import com.effacy.jui.rpc.handler.client.Converter;
+import com.effacy.jui.rpc.handler.client.IConverter;
+import com.effacy.jui.rpc.handler.client.query.IPageQuery;
+
+/**
+ * Evaluates a filter (an {@link Expression} compiled to a predicate by way of
+ * a {@link PredicateExpressionBuilder}) in parallel against a
+ * {@link Spliterator} source (for a stream use {@code stream.spliterator()}).
+ * <p>
+ * The source is partitioned (by way of {@link Spliterator#trySplit()}) into
+ * an encounter ordered sequence of partitions that are then evaluated by
+ * fork/join workers. Workers claim partitions in encounter order so that:
+ * <ul>
+ * <li>Ordered queries return matches in encounter order and (where limited)
+ * terminate once the leading partitions have yielded sufficient matches.</li>
+ * <li>Unordered queries return matches in completion order and (where
+ * limited) terminate as soon as sufficient matches have been found across all
+ * partitions.</li>
+ * </ul>
+ * Matches are accumulated in fixed size chunks (rather than growing lists)
+ * and results are returned as a read-only list over these chunks. Matches can
+ * also be delivered chunk-by-chunk (see
+ * {@link #forEachChunk(Spliterator, boolean, Consumer)}).
+ * <p>
+ * For example:
+ * <pre>
+ * ParallelFilter&lt;Person&gt; filter = ParallelFilter.create(expression, PREDICATES);
+ * List&lt;Person&gt; matches = filter.filter(people.spliterator(), true);
+ * boolean any = filter.exists(people.spliterator());
+ * List&lt;PersonDto&gt; page = filter.convert(people, PersonDto::new, query);
+ * </pre>
+ * The predicate must be thread-safe (those produced by
+ * {@link PredicateExpressionBuilder} are). Instances are immutable once
+ * configured and may be reused.
+ *
+ * @param <R>
+ *            the record type.
+ */
+public class ParallelFilter<R> {
+
+    /**
+     * Default number of matches held in a chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    /**
+     * Default minimum partition size (a partition will not be split if it is
+     * estimated to be smaller than twice this).
+     */
+    public static final int DEFAULT_MIN_PARTITION_SIZE = 1024;
+
+    /**
+     * Creates a parallel filter for the given expression.
+     *
+     * @param expression
+     *                   the expression.
+     * @param builder
+     *                   to compile the expression to a predicate.
+     * @return the filter.
+     */
+    public static <R,F> ParallelFilter<R> create(Expression<F> expression, PredicateExpressionBuilder<R,F> builder) {
+        return new ParallelFilter<R>(expression.build(builder));
+    }
+
+    /**
+     * Creates a parallel filter for the given predicate.
+     *
+     * @param predicate
+     *                  the (thread-safe) predicate.
+     * @return the filter.
+     */
+    public static <R> ParallelFilter<R> create(Predicate<R> predicate) {
+        return new ParallelFilter<R>(predicate);
+    }
+
+    /**
+     * See constructor.
+     */
+    private Predicate<R> predicate;
+
+    /**
+     * See {@link #pool(ForkJoinPool)}.
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * See {@link #partitions(int)}.
+     */
+    private int partitions = -1;
+
+    /**
+     * See {@link #minPartitionSize(int)}.
+     */
+    private int minPartitionSize = DEFAULT_MIN_PARTITION_SIZE;
+
+    /**
+     * See {@link #chunkSize(int)}.
+     */
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Construct with the predicate to evaluate.
+     *
+     * @param predicate
+     *                  the (thread-safe) predicate.
+     */
+    public ParallelFilter(Predicate<R> predicate) {
+        if (predicate == null)
+            throw new IllegalArgumentException("predicate is required");
+        this.predicate = predicate;
+    }
+
+    /**
+     * Assigns the pool to evaluate in (the default is the common pool).
+     *
+     * @param pool
+     *             the pool.
+     * @return this filter.
+     */
+    public ParallelFilter<R> pool(ForkJoinPool pool) {
+        if (pool != null)
+            this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Assigns the target number of partitions (the default is four times the
+     * parallelism of the pool). More partitions improves load balancing and
+     * the granularity of early termination at the expense of overhead.
+     *
+     * @param partitions
+     *                   the number of partitions.
+     * @return this filter.
+     */
+    public ParallelFilter<R> partitions(int partitions) {
+        this.partitions = partitions;
+        return this;
+    }
+
+    /**
+     * Assigns the minimum partition size (see
+     * {@link #DEFAULT_MIN_PARTITION_SIZE}). Sources smaller than this are
+     * evaluated as a single partition.
+     *
+     * @param minPartitionSize
+     *                         the minimum size.
+     * @return this filter.
+     */
+    public ParallelFilter<R> minPartitionSize(int minPartitionSize) {
+        this.minPartitionSize = Math.max(1, minPartitionSize);
+        return this;
+    }
+
+    /**
+     * Assigns the number of matches held in each chunk (see
+     * {@link #DEFAULT_CHUNK_SIZE}).
+     *
+     * @param chunkSize
+     *                  the chunk size.
+     * @return this filter.
+     */
+    public ParallelFilter<R> chunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+        return this;
+    }
+
+    /**
+     * Obtains all the matches in the source.
+     *
+     * @param source
+     *                the source.
+     * @param ordered
+     *                {@code true} if the matches should be in encounter order.
+     * @return the (read-only) matches.
+     */
+    public List<R> filter(Spliterator<R> source, boolean ordered) {
+        return limit(source, Long.MAX_VALUE, ordered);
+    }
+
+    /**
+     * Obtains (at most) the first matches in the source. If unordered then
+     * these will be any of the matches.
+     *
+     * @param source
+     *                the source.
+     * @param limit
+     *                the maximum number of matches.
+     * @param ordered
+     *                {@code true} if the matches should be the first in
+     *                encounter order (and be in encounter order).
+     * @return the (read-only) matches.
+     */
+    public List<R> limit(Spliterator<R> source, long limit, boolean ordered) {
+        if (limit <= 0)
+            return Collections.emptyList();
+        return new Run(source, limit, ordered, true, null).execute().results();
+    }
+
+    /**
+     * Counts the matches in the source.
+     *
+     * @param source
+     *               the source.
+     * @return the number of matches.
+     */
+    public long count(Spliterator<R> source) {
+        return new Run(source, Long.MAX_VALUE, false, false, null).execute().matched.get();
+    }
+
+    /**
+     * Determines if there is any match in the source (terminating as soon as
+     * one is found).
+     *
+     * @param source
+     *               the source.
+     * @return {@code true} if there is a match.
+     */
+    public boolean exists(Spliterator<R> source) {
+        return new Run(source, 1, false, false, null).execute().matched.get() > 0;
+    }
+
+    /**
+     * Delivers the matches in the source to the consumer in chunks (of at most
+     * the chunk size). The consumer is never invoked concurrently.
+     * <p>
+     * When unordered chunks are delivered as they are filled and the list
+     * passed to the consumer is only valid for the duration of the call (the
+     * underlying storage is reused). When ordered chunks are delivered in
+     * encounter order once all prior partitions have completed and may be
+     * retained.
+     *
+     * @param source
+     *                 the source.
+     * @param ordered
+     *                 {@code true} if the matches should be in encounter order.
+     * @param consumer
+     *                 to receive the chunks.
+     */
+    public void forEachChunk(Spliterator<R> source, boolean ordered, Consumer<List<R>> consumer) {
+        new Run(source, Long.MAX_VALUE, ordered, true, consumer).execute();
+    }
+
+    /**
+     * Filters then converts the page of matches described by the pagination
+     * (the parallel equivalent of
+     * {@link Converter#convert(Iterable, Predicate, IConverter, IPageQuery)}).
+     * Evaluation stops as soon as the page has been filled and only the
+     * matches in the page are converted.
+     *
+     * @param source
+     *                   the source.
+     * @param converter
+     *                   the converter to use.
+     * @param pagination
+     *                   (optional) the pagination specification.
+     * @return the converted matches in the page.
+     */
+    public <T> List<T> convert(Collection<R> source, IConverter<R,T> converter, IPageQuery pagination) {
+        if ((pagination == null) || pagination.isUnlimited())
+            return Converter.convert(filter(source.spliterator(), true), converter);
+        int start = pagination.startIndex();
+        List<R> matches = limit(source.spliterator(), (long) pagination.endIndex() + 1L, true);
+        if (start >= matches.size())
+            return new ArrayList<T>();
+        return Converter.convert(matches.subList(start, matches.size()), converter);
+    }
+
+    /**
+     * Partitions the source into (at most) the target number of partitions in
+     * encounter order.
+     */
+    protected List<Spliterator<R>> partition(Spliterator<R> source) {
+        int target = (partitions > 0) ? partitions : 4 * pool.getParallelism();
+        List<Spliterator<R>> parts = new ArrayList<>();
+        parts.add(source);
+        boolean split = true;
+        while (split && (parts.size() < target)) {
+            split = false;
+            List<Spliterator<R>> next = new ArrayList<>(parts.size() * 2);
+            for (int i = 0; i < parts.size(); i++) {
+                Spliterator<R> part = parts.get(i);
+                if ((next.size() + (parts.size() - i) < target) && (part.estimateSize() >= 2L * minPartitionSize)) {
+                    Spliterator<R> prefix = part.trySplit();
+                    if (prefix != null) {
+                        next.add(prefix);
+                        split = true;
+                    }
+                }
+                next.add(part);
+            }
+            parts = next;
+        }
+        return parts;
+    }
+
+    /**
+     * Accumulates the matches for a single partition.
+     */
+    private class Partition implements Consumer<R> {
+
+        /**
+         * Filled chunks.
+         */
+        final List<Object[]> chunks = new ArrayList<>();
+
+        /**
+         * The chunk being filled.
+         */
+        Object[] current;
+
+        /**
+         * Number of matches in the current chunk.
+         */
+        int size;
+
+        /**
+         * Number of matches in this partition.
+         */
+        long count;
+
+        /**
+         * The run this partition belongs to.
+         */
+        final Run run;
+
+        Partition(Run run) {
+            this.run = run;
+        }
+
+        @Override
+        public void accept(R record) {
+            if (!predicate.test(record))
+                return;
+            if (!run.ordered && (run.limit != Long.MAX_VALUE)) {
+                // Shared limit across partitions.
+                if (run.matched.incrementAndGet() > run.limit) {
+                    run.done = true;
+                    return;
+                }
+                if (run.matched.get() >= run.limit)
+                    run.done = true;
+            }
+            count++;
+            if (!run.collect)
+                return;
+            if (current == null)
+                current = new Object[chunkSize];
+            current[size++] = record;
+            if (size == chunkSize) {
+                if (!run.ordered && (run.consumer != null)) {
+                    // Deliver and reuse.
+                    run.deliver(current, size);
+                } else {
+                    chunks.add(current);
+                    current = null;
+                }
+                size = 0;
+            }
+        }
+
+        /**
+         * Completes the partition (appending the part filled chunk).
+         */
+        void complete() {
+            if (size > 0) {
+                if (!run.ordered && (run.consumer != null))
+                    run.deliver(current, size);
+                else
+                    chunks.add(Arrays.copyOf(current, size));
+            }
+            current = null;
+            size = 0;
+        }
+    }
+
+    /**
+     * A single evaluation over a source.
+     */
+    private class Run {
+
+        final List<Spliterator<R>> parts;
+
+        final List<Partition> completed;
+
+        final long limit;
+
+        final boolean ordered;
+
+        final boolean collect;
+
+        final Consumer<List<R>> consumer;
+
+        /**
+         * Next partition to claim.
+         */
+        final AtomicInteger next = new AtomicInteger();
+
+        /**
+         * Matches across all partitions (for unordered limited runs this is
+         * maintained as matches are found, otherwise as partitions complete).
+         */
+        final AtomicLong matched = new AtomicLong();
+
+        /**
+         * Set to terminate evaluation early.
+         */
+        volatile boolean done;
+
+        /**
+         * Number of leading partitions that have completed (guarded by this).
+         */
+        int prefix;
+
+        Run(Spliterator<R> source, long limit, boolean ordered, boolean collect, Consumer<List<R>> consumer) {
+            this.parts = partition(source);
+            this.completed = new ArrayList<>(Collections.nCopies(parts.size(), null));
+            this.limit = limit;
+            this.ordered = ordered;
+            this.collect = collect;
+            this.consumer = consumer;
+        }
+
+        Run execute() {
+            int workers = Math.min(parts.size(), pool.getParallelism());
+            if (workers <= 1) {
+                work();
+            } else {
+                pool.invoke(new RecursiveAction() {
+
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected void compute() {
+                        List<RecursiveAction> tasks = new ArrayList<>(workers);
+                        for (int i = 0; i < workers; i++) {
+                            tasks.add(new RecursiveAction() {
+
+                                private static final long serialVersionUID = 1L;
+
+                                @Override
+                                protected void compute() {
+                                    work();
+                                }
+                            });
+                        }
+                        invokeAll(tasks);
+                    }
+                });
+            }
+            return this;
+        }
+
+        /**
+         * Claims and evaluates partitions (in encounter order) until none
+         * remain or the run is done.
+         */
+        void work() {
+            int idx;
+            while (!done && ((idx = next.getAndIncrement()) < parts.size())) {
+                Spliterator<R> part = parts.get(idx);
+                Partition partition = new Partition(this);
+                if (!ordered && (limit == Long.MAX_VALUE)) {
+                    part.forEachRemaining(partition);
+                } else {
+                    // Bounded by the limit (per partition when ordered) and
+                    // checks for early termination.
+                    while (!done && (partition.count < limit) && part.tryAdvance(partition));
+                }
+                partition.complete();
+                complete(idx, partition);
+            }
+        }
+
+        /**
+         * Records the completion of a partition.
+         */
+        synchronized void complete(int idx, Partition partition) {
+            if (!ordered) {
+                completed.set(idx, partition);
+                if (limit == Long.MAX_VALUE)
+                    matched.addAndGet(partition.count);
+                return;
+            }
+            if (done)
+                return;
+            completed.set(idx, partition);
+            while ((prefix < completed.size()) && (completed.get(prefix) != null)) {
+                Partition leading = completed.get(prefix++);
+                long count = matched.addAndGet(leading.count);
+                if (consumer != null) {
+                    for (Object[] chunk : leading.chunks)
+                        deliver(chunk, chunk.length);
+                    leading.chunks.clear();
+                }
+                if (count >= limit) {
+                    done = true;
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Delivers a chunk to the consumer.
+         */
+        @SuppressWarnings("unchecked")
+        synchronized void deliver(Object[] chunk, int size) {
+            consumer.accept((List<R>) Arrays.asList(chunk).subList(0, size));
+        }
+
+        /**
+         * The matches (for ordered runs only the leading completed partitions
+         * contribute).
+         */
+        synchronized List<R> results() {
+            int count = ordered ? prefix : completed.size();
+            List<Object[]> chunks = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                if (completed.get(i) != null)
+                    chunks.addAll(completed.get(i).chunks);
+            }
+            return new ChunkedList<R>(chunks, limit);
+        }
+    }
+
+    /**
+     * Read-only list over a sequence of chunks.
+     */
+    static class ChunkedList<R> extends AbstractList<R> implements RandomAccess {
+
+        private final Object[][] chunks;
+
+        /**
+         * Start index of each chunk.
+         */
+        private final int[] offsets;
+
+        private final int size;
+
+        ChunkedList(List<Object[]> chunks, long limit) {
+            this.chunks = chunks.toArray(new Object[chunks.size()][]);
+            this.offsets = new int[this.chunks.length];
+            long total = 0;
+            for (int i = 0; i < this.chunks.length; i++) {
+                offsets[i] = (int) total;
+                total += this.chunks[i].length;
+            }
+            this.size = (int) Math.min(Math.min(total, limit), Integer.MAX_VALUE);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public R get(int index) {
+            if ((index < 0) || (index >= size))
+                throw new IndexOutOfBoundsException(index);
+            int i = Arrays.binarySearch(offsets, index);
+            if (i < 0)
+                i = -i - 2;
+            return (R) chunks[i][index - offsets[i]];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -51,6 +51,16 @@ public class ExpressionBuilder<F> implements IExpressionBuilder<ExpressionBuilde
      */
     private FieldMapper<F,String> fieldToStringMapper;
 
+    /**
+     * See {@link #cache(int, IExpressionOptimizer)}.
+     */
+    private ExpressionCache<Expression<F>> cache;
+
+    /**
+     * See {@link #cache(int, IExpressionOptimizer)}.
+     */
+    private IExpressionOptimizer<F> cacheOptimizer;
+
     /**
      * Construct without mapper information. This means
      * {@link #serialise(Expression)} and {@link #deserialise(String)} will not
@@ -119,6 +129,9 @@ public class ExpressionBuilder<F> implements IExpressionBuilder<ExpressionBuilde
      * <p>
      * The resulting expression will also be validated. Note that a {@code null}
      * value will return a true expression.
+     * <p>
+     * If caching has been enabled (see {@link #cache(int, IExpressionOptimizer)})
+     * then a previously deserialised expression may be returned.
      * 
      * @param str
      *               the string to parse.
@@ -130,18 +143,68 @@ public class ExpressionBuilder<F> implements IExpressionBuilder<ExpressionBuilde
      *                                    processing the expression.
      */
     public Expression<F> deserialise(String str) throws FilterQueryParserException {
+        if ((cache != null) && (str != null))
+            return cache.get(str, this::load);
+        return load(str);
+    }
+
+    /**
+     * Performs the actual deserialisation for {@link #deserialise(String)}
+     * (including optimization when configured for caching).
+     */
+    private Expression<F> load(String str) throws FilterQueryParserException {
         if (stringToFieldMapper == null)
             throw new ExpressionBuildException("no string-to-field mapper defined");
         if (str == null)
             return bool(true);
         ParsedExpression pexp = FilterQueryParser.parse(str);
         try {
-            return pexp.build(mapped(v -> stringToFieldMapper.map(v))).validate();
+            Expression<F> exp = pexp.build(mapped(v -> stringToFieldMapper.map(v))).validate();
+            if ((cache != null) && (cacheOptimizer != null))
+                exp = exp.optimize(cacheOptimizer);
+            return exp;
         } catch (ExpressionBuildException e) {
             throw new FilterQueryParserException(e.getMessage());
         }
     }
 
+    /**
+     * Enables caching of expressions returned by {@link #deserialise(String)}
+     * (see {@link #cache(int, IExpressionOptimizer)}).
+     *
+     * @param capacity
+     *                 the maximum number of expressions to cache.
+     * @return this builder.
+     */
+    public ExpressionBuilder<F> cache(int capacity) {
+        return cache(capacity, null);
+    }
+
+    /**
+     * Enables caching of expressions returned by {@link #deserialise(String)}
+     * keyed on the string being deserialised. This is suited to use cases
+     * where the same filter strings are received repeatedly (i.e. from
+     * requests) as it avoids re-parsing, re-building and re-validating them.
+     * Expressions are immutable so may be shared.
+     * <p>
+     * An optimizer may be supplied in which case the cached (and returned)
+     * expressions are optimized (so the cost of optimization is also only
+     * incurred once).
+     *
+     * @param capacity
+     *                  the maximum number of expressions to cache (if 0 or
+     *                  less then caching is disabled).
+     * @param optimizer
+     *                  (optional) optimizer to apply to the deserialised
+     *                  expression.
+     * @return this builder.
+     */
+    public ExpressionBuilder<F> cache(int capacity, IExpressionOptimizer<F> optimizer) {
+        this.cache = (capacity <= 0) ? null : new ExpressionCache<>(capacity);
+        this.cacheOptimizer = optimizer;
+        return this;
+    }
+
     /**
      * The base expression class that is the product of the builder.
      */
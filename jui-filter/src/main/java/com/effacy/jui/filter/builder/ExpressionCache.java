@@ -0,0 +1,165 @@
+package com.effacy.jui.filter.builder;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.effacy.jui.filter.parser.FilterQueryParser.FilterQueryParserException;
+import com.effacy.jui.filter.parser.FilterQueryParser.ParsedExpression;
+
+/**
+ * A bounded, thread-safe cache of values derived from filter strings (i.e. a
+ * {@link ParsedExpression} or a built and optimized
+ * {@link ExpressionBuilder.Expression}). Cached values are shared between
+ * callers so must not be modified (which is the case for both of the
+ * aforementioned).
+ * <p>
+ * Lookups are lock free. When the capacity is exceeded entries are evicted
+ * using a second-chance (clock) policy: entries that have been accessed since
+ * the last eviction pass are retained in favour of those that have not. Values
+ * that fail to load (i.e. the string does not parse) are not cached.
+ * <p>
+ * For example, to cache parsed expressions:
+ * <pre>
+ * ExpressionCache&lt;ParsedExpression&gt; cache = new ExpressionCache&lt;&gt;(512);
+ * ...
+ * ParsedExpression pexp = cache.get(str, FilterQueryParser::parse);
+ * </pre>
+ * See also {@link ExpressionBuilder#cache(int)} for caching deserialised
+ * expressions.
+ *
+ * @param <V>
+ *            the type of value being cached.
+ */
+public class ExpressionCache<V> {
+
+    /**
+     * Loads the value for a filter string that is not in the cache.
+     */
+    @FunctionalInterface
+    public interface ILoader<V> {
+
+        /**
+         * Loads the value.
+         *
+         * @param str
+         *            the filter string.
+         * @return the value.
+         * @throws FilterQueryParserException
+         *                                    if the string could not be
+         *                                    processed.
+         */
+        public V load(String str) throws FilterQueryParserException;
+    }
+
+    /**
+     * Cache entry carrying the reference bit used for eviction.
+     */
+    private static class Entry<V> {
+
+        final V value;
+
+        volatile boolean referenced;
+
+        Entry(V value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * See constructor.
+     */
+    private final int capacity;
+
+    /**
+     * The cached entries.
+     */
+    private final Map<String,Entry<V>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Construct with a capacity.
+     *
+     * @param capacity
+     *                 the maximum number of entries to retain (at least 1).
+     */
+    public ExpressionCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Obtains the value for the given filter string, loading it (and caching
+     * it) if not present.
+     *
+     * @param str
+     *               the filter string ({@code null} is passed through to the
+     *               loader and not cached).
+     * @param loader
+     *               to load the value when not cached.
+     * @return the value.
+     * @throws FilterQueryParserException
+     *                                    if the loader failed.
+     */
+    public V get(String str, ILoader<V> loader) throws FilterQueryParserException {
+        if (str == null)
+            return loader.load(str);
+        Entry<V> entry = entries.get(str);
+        if (entry != null) {
+            entry.referenced = true;
+            return entry.value;
+        }
+        // Concurrent misses on the same string may load more than once, this is
+        // benign as the resulting values are equivalent.
+        V value = loader.load(str);
+        if (value != null) {
+            entries.put(str, new Entry<>(value));
+            if (entries.size() > capacity)
+                evict();
+        }
+        return value;
+    }
+
+    /**
+     * The number of entries currently cached.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The maximum number of entries.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Evicts entries until the cache is within (about 7/8 of) capacity so that
+     * eviction is not performed on every subsequent miss.
+     */
+    private synchronized void evict() {
+        int target = Math.max(1, capacity - (capacity >> 3));
+        if (entries.size() <= capacity)
+            return;
+        // Two passes are sufficient as the first clears all reference bits.
+        for (int pass = 0; pass < 2; pass++) {
+            Iterator<Entry<V>> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry<V> entry = it.next();
+                if (entry.referenced) {
+                    entry.referenced = false;
+                } else {
+                    it.remove();
+                    if (entries.size() <= target)
+                        return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.effacy.jui.filter.builder;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A type of {@link IExpressionBuilder} that builds an in-memory
+ * {@link Predicate} from an expression. This allows an expression to be applied
+ * directly to a collection of records (client-side or server-side).
+ * <p>
+ * Records are mapped to field values by a {@link IValueResolver}. The children
+ * of AND and OR expressions are evaluated in the order they appear in the
+ * expression (with short-circuiting) so the expression should be optimised
+ * (i.e. with {@link com.effacy.jui.filter.builder.optimizer.SelectivityOptimizer})
+ * prior to building where evaluation cost matters.
+ * <p>
+ * Comparisons are performed as follows:
+ * <ul>
+ * <li>Numbers are compared by their double value (so an {@link Integer} and
+ * {@link Long} of the same value are equal).</li>
+ * <li>Enums are compared by name against strings and
+ * {@link IExpressionBuilder.Literal}'s (and literals against the string form of
+ * the record value).</li>
+ * <li>Ordering comparisons are supported on numbers and on values of the same
+ * {@link Comparable} type (such as strings and dates).</li>
+ * <li>String operators (CONTAINS, STARTS_WITH and ENDS_WITH) apply to the
+ * string form of the record value and are case-sensitive.</li>
+ * <li>A {@code null} record value only matches EQ against a {@code null} (and
+ * correspondingly for NEQ).</li>
+ * </ul>
+ */
+public class PredicateExpressionBuilder<R,F> implements IExpressionBuilder<Predicate<R>,F> {
+
+    /**
+     * Arrays larger than this will be converted to a set for IN and NOT_IN
+     * membership tests.
+     */
+    private static final int SET_THRESHOLD = 8;
+
+    /**
+     * Resolves the value of a field from a record.
+     */
+    @FunctionalInterface
+    public interface IValueResolver<R,F> {
+
+        /**
+         * Obtains the value of the given field for the given record.
+         *
+         * @param record
+         *               the record.
+         * @param field
+         *               the field.
+         * @return the value (may be {@code null}).
+         */
+        public Object resolve(R record, F field);
+    }
+
+    /**
+     * Convenience to create a builder.
+     *
+     * @param resolver
+     *                 see {@link #PredicateExpressionBuilder(IValueResolver)}.
+     * @return the builder.
+     */
+    public static <R,F> PredicateExpressionBuilder<R,F> create(IValueResolver<R,F> resolver) {
+        return new PredicateExpressionBuilder<>(resolver);
+    }
+
+    /**
+     * See constructor.
+     */
+    private IValueResolver<R,F> resolver;
+
+    /**
+     * Construct with a value resolver.
+     *
+     * @param resolver
+     *                 to resolve field values from records.
+     */
+    public PredicateExpressionBuilder(IValueResolver<R,F> resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Predicate<R> and(List<Predicate<R>> expressions) {
+        if ((expressions == null) || expressions.isEmpty())
+            return r -> true;
+        if (expressions.size() == 1)
+            return expressions.get(0);
+        Predicate<R>[] terms = expressions.toArray(new Predicate[expressions.size()]);
+        return r -> {
+            for (int i = 0; i < terms.length; i++) {
+                if (!terms[i].test(r))
+                    return false;
+            }
+            return true;
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Predicate<R> or(List<Predicate<R>> expressions) {
+        if ((expressions == null) || expressions.isEmpty())
+            return r -> false;
+        if (expressions.size() == 1)
+            return expressions.get(0);
+        Predicate<R>[] terms = expressions.toArray(new Predicate[expressions.size()]);
+        return r -> {
+            for (int i = 0; i < terms.length; i++) {
+                if (terms[i].test(r))
+                    return true;
+            }
+            return false;
+        };
+    }
+
+    @Override
+    public Predicate<R> not(Predicate<R> expression) {
+        if (expression == null)
+            return r -> true;
+        return r -> !expression.test(r);
+    }
+
+    @Override
+    public Predicate<R> bool(boolean value) {
+        return value ? (r -> true) : (r -> false);
+    }
+
+    @Override
+    public Predicate<R> term(F field, Operator operator, Object value) throws ExpressionBuildException {
+        if (operator == null)
+            throw new ExpressionBuildException("no operator!");
+        switch (operator) {
+            case EQ:
+                return r -> equal(resolver.resolve(r, field), value);
+            case NEQ:
+                return r -> !equal(resolver.resolve(r, field), value);
+            case GT:
+                return r -> compare(resolver.resolve(r, field), value) > 0;
+            case GTE:
+                return r -> {
+                    int c = compare(resolver.resolve(r, field), value);
+                    return (c != INCOMPARABLE) && (c >= 0);
+                };
+            case LT:
+                return r -> {
+                    int c = compare(resolver.resolve(r, field), value);
+                    return (c != INCOMPARABLE) && (c < 0);
+                };
+            case LTE:
+                return r -> {
+                    int c = compare(resolver.resolve(r, field), value);
+                    return (c != INCOMPARABLE) && (c <= 0);
+                };
+            case IN:
+                return membership(field, value, false);
+            case NOT_IN:
+                return membership(field, value, true);
+            case CONTAINS: {
+                String str = text(value);
+                return r -> {
+                    Object v = resolver.resolve(r, field);
+                    return (v != null) && (str != null) && v.toString().contains(str);
+                };
+            }
+            case STARTS_WITH: {
+                String str = text(value);
+                return r -> {
+                    Object v = resolver.resolve(r, field);
+                    return (v != null) && (str != null) && v.toString().startsWith(str);
+                };
+            }
+            case ENDS_WITH: {
+                String str = text(value);
+                return r -> {
+                    Object v = resolver.resolve(r, field);
+                    return (v != null) && (str != null) && v.toString().endsWith(str);
+                };
+            }
+        }
+        throw new ExpressionBuildException("unsupported operator " + operator.name());
+    }
+
+    /**
+     * Builds an IN (or NOT_IN when negated) predicate. Small arrays are scanned
+     * while larger ones are converted to a set of normalised keys.
+     */
+    protected Predicate<R> membership(F field, Object value, boolean negate) {
+        Object[] values = (value instanceof Object[]) ? (Object[]) value : new Object[] { value };
+        if (values.length <= SET_THRESHOLD) {
+            return r -> {
+                Object v = resolver.resolve(r, field);
+                for (Object candidate : values) {
+                    if (equal(v, candidate))
+                        return !negate;
+                }
+                return negate;
+            };
+        }
+        Set<Object> keys = new HashSet<>();
+        for (Object candidate : values)
+            keys.add(key(candidate));
+        return r -> keys.contains(key(resolver.resolve(r, field))) != negate;
+    }
+
+    /************************************************************************
+     * Value comparison.
+     ************************************************************************/
+
+    /**
+     * Returned by {@link #compare(Object, Object)} when the values cannot be
+     * compared.
+     */
+    public static final int INCOMPARABLE = Integer.MIN_VALUE;
+
+    /**
+     * Determines if a record value and an expression value are equal (under the
+     * rules described in the class documentation).
+     *
+     * @param actual
+     *               the record value.
+     * @param value
+     *               the expression value.
+     * @return {@code true} if they are equal.
+     */
+    public static boolean equal(Object actual, Object value) {
+        if (actual == value)
+            return true;
+        if ((actual == null) || (value == null))
+            return false;
+        if ((actual instanceof Number) && (value instanceof Number))
+            return ((Number) actual).doubleValue() == ((Number) value).doubleValue();
+        if (actual instanceof Enum)
+            return enumEqual((Enum<?>) actual, value);
+        if (value instanceof Enum)
+            return enumEqual((Enum<?>) value, actual);
+        if (value instanceof Literal)
+            return ((Literal) value).value().equals(actual.toString());
+        if (actual instanceof Literal)
+            return ((Literal) actual).value().equals(value.toString());
+        return actual.equals(value);
+    }
+
+    /**
+     * Compares a record value to an expression value.
+     *
+     * @param actual
+     *               the record value.
+     * @param value
+     *               the expression value.
+     * @return the comparison (negative, zero or positive) or {@link #INCOMPARABLE}
+     *         if the values cannot be compared.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static int compare(Object actual, Object value) {
+        if ((actual == null) || (value == null))
+            return INCOMPARABLE;
+        if ((actual instanceof Number) && (value instanceof Number))
+            return Double.compare(((Number) actual).doubleValue(), ((Number) value).doubleValue());
+        if ((actual instanceof Date) && (value instanceof Date))
+            return ((Date) actual).compareTo((Date) value);
+        if ((actual instanceof Comparable) && actual.getClass().equals(value.getClass()))
+            return ((Comparable) actual).compareTo(value);
+        return INCOMPARABLE;
+    }
+
+    /**
+     * Normalises a value to a key that is consistent with
+     * {@link #equal(Object, Object)} for use in hashed lookups.
+     *
+     * @param value
+     *              the value to normalise.
+     * @return the key.
+     */
+    public static Object key(Object value) {
+        if (value instanceof Number)
+            return Double.valueOf(((Number) value).doubleValue());
+        if (value instanceof Enum)
+            return ((Enum<?>) value).name();
+        if (value instanceof Literal)
+            return ((Literal) value).value();
+        return value;
+    }
+
+    /**
+     * The string form of a value as used by the string operators (a
+     * {@link Literal} yields its value).
+     *
+     * @param value
+     *              the value.
+     * @return the string form ({@code null} if the value is {@code null}).
+     */
+    public static String text(Object value) {
+        if (value == null)
+            return null;
+        if (value instanceof Literal)
+            return ((Literal) value).value();
+        return value.toString();
+    }
+
+    private static boolean enumEqual(Enum<?> actual, Object value) {
+        if (value instanceof Enum)
+            return actual == value;
+        if (value instanceof Literal)
+            return actual.name().equals(((Literal) value).value());
+        if (value instanceof String)
+            return actual.name().equals(value);
+        return false;
+    }
+}
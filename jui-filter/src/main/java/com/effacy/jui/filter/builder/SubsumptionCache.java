@@ -0,0 +1,264 @@
+package com.effacy.jui.filter.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.PredicateExpressionBuilder.IValueResolver;
+
+/**
+ * A bounded cache of (complete) query results keyed by filter expression that
+ * is able to answer a query whose expression is narrower than that of a cached
+ * result by filtering the cached result locally. For example, having cached
+ * the results for {@code STATUS IN (ACTIVE, PENDING)} a query for
+ * {@code STATUS = ACTIVE AND AGE > 18} can be answered without returning to
+ * the source.
+ * <p>
+ * Narrowing is determined by {@link SubsumptionChecker}; the local filtering
+ * by a predicate built with {@link PredicateExpressionBuilder} (so field
+ * values must be resolvable from the records by the supplied resolver). Where
+ * more than one cached result can be refined the smallest is used. Refined
+ * results are themselves cached (so that successive narrowing, as occurs when
+ * a user refines a search, becomes progressively cheaper). The order of
+ * records is preserved.
+ * <p>
+ * Cached results must be complete (i.e. not a page of a larger result) and
+ * are shared between callers so must not be modified (they are returned
+ * unmodifiable). The cache holds no notion of staleness: {@link #clear()}
+ * should be invoked when the underlying records change.
+ * <p>
+ * For example, server-side:
+ * <pre>
+ * SubsumptionCache&lt;Person,Fields&gt; cache = new SubsumptionCache&lt;&gt;(RESOLVER, 32);
+ * ...
+ * List&lt;Person&gt; results = cache.get(expression, exp -&gt; dao.query(exp));
+ * </pre>
+ * Instances are thread-safe (the loader is invoked outside of any lock so
+ * concurrent misses on the same expression may each invoke it).
+ *
+ * @param <R>
+ *            the record type.
+ * @param <F>
+ *            the field type.
+ */
+public class SubsumptionCache<R,F> {
+
+    /**
+     * Loads the (complete) results for an expression that cannot be answered
+     * from the cache.
+     */
+    @FunctionalInterface
+    public interface ILoader<R,F> {
+
+        /**
+         * Loads the results.
+         *
+         * @param expression
+         *                   the expression.
+         * @return the matching records.
+         */
+        public List<R> load(Expression<F> expression);
+    }
+
+    /**
+     * A cached result.
+     */
+    private static class Entry<R> {
+
+        final SubsumptionChecker.Node expression;
+
+        final List<R> results;
+
+        Entry(SubsumptionChecker.Node expression, List<R> results) {
+            this.expression = expression;
+            this.results = results;
+        }
+    }
+
+    /**
+     * See constructor.
+     */
+    private final PredicateExpressionBuilder<R,F> predicates;
+
+    /**
+     * See constructor.
+     */
+    private final int capacity;
+
+    /**
+     * To determine subsumption.
+     */
+    private final SubsumptionChecker<F> checker = new SubsumptionChecker<>();
+
+    /**
+     * Cached entries (most recently used first).
+     */
+    private final List<Entry<R>> entries = new ArrayList<>();
+
+    /**
+     * See {@link #hits()}.
+     */
+    private long hits;
+
+    /**
+     * See {@link #refinements()}.
+     */
+    private long refinements;
+
+    /**
+     * See {@link #misses()}.
+     */
+    private long misses;
+
+    /**
+     * Construct with a means of resolving field values from records and a
+     * capacity.
+     *
+     * @param resolver
+     *                 the resolver (used to filter cached results).
+     * @param capacity
+     *                 the maximum number of results to hold (the least
+     *                 recently used is evicted).
+     */
+    public SubsumptionCache(IValueResolver<R,F> resolver, int capacity) {
+        this.predicates = PredicateExpressionBuilder.create(resolver);
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Obtains the results for the given expression from the cache (see
+     * {@link #lookup(Expression)}) or, failing that, from the loader (the
+     * result of which is cached).
+     *
+     * @param expression
+     *                   the expression.
+     * @param loader
+     *                   to load results that cannot be answered from the
+     *                   cache.
+     * @return the results (unmodifiable).
+     */
+    public List<R> get(Expression<F> expression, ILoader<R,F> loader) {
+        List<R> results = lookup(expression);
+        if (results != null)
+            return results;
+        return put(expression, loader.load(expression));
+    }
+
+    /**
+     * Attempts to answer the given expression from the cache, either directly
+     * (where a cached result is for an equivalent expression) or by filtering
+     * a cached result for a broader expression.
+     *
+     * @param expression
+     *                   the expression.
+     * @return the results (unmodifiable) or {@code null} if the expression
+     *         could not be answered.
+     */
+    public List<R> lookup(Expression<F> expression) {
+        SubsumptionChecker.Node b = checker.normalise(expression);
+        Entry<R> best = null;
+        synchronized (this) {
+            for (int i = 0; i < entries.size(); i++) {
+                Entry<R> entry = entries.get(i);
+                if (!checker.implies(b, entry.expression))
+                    continue;
+                if (checker.implies(entry.expression, b)) {
+                    hits++;
+                    touch(i);
+                    return entry.results;
+                }
+                if ((best == null) || (entry.results.size() < best.results.size()))
+                    best = entry;
+            }
+            if (best == null) {
+                misses++;
+                return null;
+            }
+            refinements++;
+            touch(entries.indexOf(best));
+        }
+        Predicate<R> predicate = expression.build(predicates);
+        List<R> results = new ArrayList<>();
+        for (R record : best.results) {
+            if (predicate.test(record))
+                results.add(record);
+        }
+        return put(b, results);
+    }
+
+    /**
+     * Caches the results for an expression.
+     *
+     * @param expression
+     *                   the expression.
+     * @param results
+     *                   the complete results.
+     * @return the cached results (unmodifiable).
+     */
+    public List<R> put(Expression<F> expression, List<R> results) {
+        return put(checker.normalise(expression), new ArrayList<>(results));
+    }
+
+    /**
+     * Clears the cache (i.e. when the underlying records change). This does
+     * not reset the statistics.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * The number of cached results.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * The maximum number of cached results.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * The number of lookups answered directly by a cached result.
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * The number of lookups answered by filtering a cached result.
+     */
+    public synchronized long refinements() {
+        return refinements;
+    }
+
+    /**
+     * The number of lookups that could not be answered.
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    private List<R> put(SubsumptionChecker.Node expression, List<R> results) {
+        List<R> cached = Collections.unmodifiableList(results);
+        synchronized (this) {
+            entries.add(0, new Entry<>(expression, cached));
+            while (entries.size() > capacity)
+                entries.remove(entries.size() - 1);
+        }
+        return cached;
+    }
+
+    /**
+     * Moves the entry at the given index to the front.
+     */
+    private void touch(int idx) {
+        if (idx > 0)
+            entries.add(0, entries.remove(idx));
+    }
+}
@@ -0,0 +1,694 @@
+package com.effacy.jui.filter.builder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.IExpressionBuilder.Literal;
+import com.effacy.jui.filter.builder.IExpressionBuilder.Operator;
+
+/**
+ * Determines whether one expression implies (is subsumed by) another; that is,
+ * whether every record that satisfies expression B also satisfies expression
+ * A. When this is the case the records matching B can be obtained by filtering
+ * the records matching A (see {@link SubsumptionCache}) rather than by
+ * querying afresh.
+ * <p>
+ * The determination is sound but not complete: {@link #implies(Expression, Expression)}
+ * only returns {@code true} when the implication holds (under the evaluation
+ * rules of {@link PredicateExpressionBuilder}) but may return {@code false}
+ * when it holds in a way that is not recognised. The following are recognised:
+ * <ul>
+ * <li>Structure: NOTs are pushed down to the comparisons (EQ and NEQ, IN and
+ * NOT_IN are each the negation of the other; other negated comparisons are
+ * matched only as-is), B implies an AND if it implies each term, an OR if it
+ * implies any term and an OR implies A if each of its terms do.</li>
+ * <li>Intervals: the comparisons of an AND on a single field are combined into
+ * a domain (the tightest lower and upper bounds, a finite set of values from
+ * EQ and IN, excluded values from NEQ and NOT_IN and string prefixes, suffixes
+ * and substrings). A comparison is implied if the domain lies within it (i.e.
+ * {@code AGE > 10} implies {@code AGE >= 5}, {@code STATUS IN (A, B) AND
+ * STATUS != B} implies {@code STATUS = A} and {@code NAME STARTS WITH "abc"}
+ * implies {@code NAME CONTAINS "bc"}). This is the same reasoning
+ * {@link com.effacy.jui.filter.builder.optimizer.ComparisonOptimizer} applies
+ * to GT, LT and IN.</li>
+ * <li>Contradictions: an AND whose domain for some field is empty matches no
+ * record so implies anything.</li>
+ * </ul>
+ * Values are compared as described in {@link PredicateExpressionBuilder}. In
+ * reasoning over finite sets of values it is assumed that record values are
+ * not {@link Literal}'s and that enums render (via {@code toString()}) to
+ * their name.
+ * <p>
+ * Instances are stateless so may be shared.
+ *
+ * @param <F>
+ *            the field type.
+ */
+public class SubsumptionChecker<F> {
+
+    /**
+     * The largest IN that will be split into its values when testing for
+     * implication of an OR.
+     */
+    private static final int MAX_SPLIT = 16;
+
+    /**
+     * Determines if {@code b} implies {@code a} (i.e. the records that match
+     * {@code b} are a subset of those that match {@code a}).
+     *
+     * @param b
+     *          the (narrower) expression.
+     * @param a
+     *          the (broader) expression.
+     * @return {@code true} if the implication is known to hold.
+     */
+    public boolean implies(Expression<F> b, Expression<F> a) {
+        return implies(normalise(b), normalise(a));
+    }
+
+    /**
+     * Determines if the two expressions are known to match the same records
+     * (i.e. each implies the other).
+     */
+    public boolean equivalent(Expression<F> b, Expression<F> a) {
+        Node nb = normalise(b);
+        Node na = normalise(a);
+        return implies(nb, na) && implies(na, nb);
+    }
+
+    /**
+     * Normalises an expression for repeated use with
+     * {@link #implies(Node, Node)}.
+     */
+    Node normalise(Expression<F> expression) {
+        Node node = normalise(expression, false);
+        return (node == null) ? Node.TRUE_NODE : node;
+    }
+
+    /**
+     * See {@link #implies(Expression, Expression)}.
+     */
+    boolean implies(Node b, Node a) {
+        if ((a.kind == Node.TRUE) || (b.kind == Node.FALSE))
+            return true;
+        if (b.kind == Node.OR) {
+            for (Node child : b.children) {
+                if (!implies(child, a))
+                    return false;
+            }
+            return true;
+        }
+        if (a.kind == Node.AND) {
+            for (Node child : a.children) {
+                if (!implies(b, child))
+                    return false;
+            }
+            return true;
+        }
+        // B is now a conjunction of terms and ORs (or a single such).
+        List<Node> conjuncts = (b.kind == Node.AND) ? b.children : (b.kind == Node.TRUE) ? List.of() : List.of(b);
+        if (unsatisfiable(conjuncts))
+            return true;
+        if (a.kind == Node.OR) {
+            for (Node child : a.children) {
+                if (implies(b, child))
+                    return true;
+            }
+            // An IN is an OR of EQs so split on it (i.e. STATUS IN (A, B)
+            // implies STATUS = A OR STATUS = B).
+            for (int i = 0; i < conjuncts.size(); i++) {
+                Node conjunct = conjuncts.get(i);
+                if ((conjunct.kind != Node.TERM) || conjunct.negated || (conjunct.operator != Operator.IN))
+                    continue;
+                Object[] values = values(conjunct.value);
+                if ((values.length < 2) || (values.length > MAX_SPLIT))
+                    continue;
+                boolean all = true;
+                for (Object value : values) {
+                    List<Node> split = new ArrayList<>(conjuncts);
+                    split.set(i, new Node(conjunct.field, Operator.EQ, value, false));
+                    if (!implies((split.size() == 1) ? split.get(0) : new Node(Node.AND, split), a)) {
+                        all = false;
+                        break;
+                    }
+                }
+                if (all)
+                    return true;
+            }
+        } else if (a.kind == Node.TERM) {
+            for (Node conjunct : conjuncts) {
+                if ((conjunct.kind == Node.TERM) && conjunct.same(a))
+                    return true;
+            }
+            if (new Domain(a.field, conjuncts).implies(a))
+                return true;
+        } else if (a.kind == Node.OPAQUE) {
+            for (Node conjunct : conjuncts) {
+                if ((conjunct.kind == Node.OPAQUE) && (conjunct.opaque == a.opaque) && (conjunct.negated == a.negated))
+                    return true;
+            }
+        }
+        // Any single disjunctive term that implies A.
+        if (conjuncts.size() > 1) {
+            for (Node conjunct : conjuncts) {
+                if ((conjunct.kind == Node.OR) && implies(conjunct, a))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines if the conjunction of terms contains a field whose domain is
+     * empty.
+     */
+    private boolean unsatisfiable(List<Node> conjuncts) {
+        List<Object> fields = new ArrayList<>();
+        for (Node conjunct : conjuncts) {
+            if ((conjunct.kind != Node.TERM) || fields.contains(conjunct.field))
+                continue;
+            fields.add(conjunct.field);
+            if (new Domain(conjunct.field, conjuncts).empty)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Normalises an expression (negated as indicated) pushing negations down to
+     * the comparisons and flattening nested ANDs and ORs. Returns {@code null}
+     * for an absent expression (which is ignored as it is when building).
+     */
+    @SuppressWarnings("unchecked")
+    private Node normalise(Expression<F> expression, boolean negate) {
+        if (expression == null)
+            return null;
+        if (expression instanceof ExpressionBuilder<?>.BoolExpression)
+            return (((ExpressionBuilder<F>.BoolExpression) expression).getValue() != negate) ? Node.TRUE_NODE : Node.FALSE_NODE;
+        if (expression instanceof ExpressionBuilder<?>.ComparisonExpression) {
+            ExpressionBuilder<F>.ComparisonExpression comp = (ExpressionBuilder<F>.ComparisonExpression) expression;
+            Operator op = comp.operator();
+            if (!negate)
+                return new Node(comp.field(), op, comp.value(), false);
+            if (op == Operator.EQ)
+                return new Node(comp.field(), Operator.NEQ, comp.value(), false);
+            if (op == Operator.NEQ)
+                return new Node(comp.field(), Operator.EQ, comp.value(), false);
+            if (op == Operator.IN)
+                return new Node(comp.field(), Operator.NOT_IN, comp.value(), false);
+            if (op == Operator.NOT_IN)
+                return new Node(comp.field(), Operator.IN, comp.value(), false);
+            return new Node(comp.field(), op, comp.value(), true);
+        }
+        boolean and = (expression instanceof ExpressionBuilder<?>.ANDExpression);
+        boolean or = (expression instanceof ExpressionBuilder<?>.ORExpression);
+        boolean not = (expression instanceof ExpressionBuilder<?>.NOTExpression);
+        if (!and && !or && !not)
+            return new Node(expression, negate);
+        List<Expression<F>> children = new ArrayList<>();
+        expression.traverse((depth, child) -> {
+            if (depth == 1)
+                children.add(child);
+        });
+        if (not)
+            return normalise(children.isEmpty() ? null : children.get(0), !negate);
+        int kind = (and != negate) ? Node.AND : Node.OR;
+        List<Node> terms = new ArrayList<>();
+        for (Expression<F> child : children) {
+            Node node = normalise(child, negate);
+            if (node == null) {
+                // Absent so ignore.
+            } else if (node.kind == kind) {
+                terms.addAll(node.children);
+            } else if (node.kind == ((kind == Node.AND) ? Node.TRUE : Node.FALSE)) {
+                // Identity so drop.
+            } else if (node.kind == ((kind == Node.AND) ? Node.FALSE : Node.TRUE)) {
+                return node;
+            } else {
+                terms.add(node);
+            }
+        }
+        if (terms.isEmpty())
+            return (kind == Node.AND) ? Node.TRUE_NODE : Node.FALSE_NODE;
+        if (terms.size() == 1)
+            return terms.get(0);
+        return new Node(kind, terms);
+    }
+
+    /************************************************************************
+     * Value reasoning.
+     ************************************************************************/
+
+    /**
+     * Evaluates a comparison against a value as if it were the record value.
+     * This is only meaningful when {@link #substitutable(Object, Node)}.
+     */
+    static boolean evaluate(Object value, Node term) {
+        boolean result;
+        if (value instanceof Literal) {
+            // Matches any record value with the same string form (which is
+            // not how a literal record value would itself compare).
+            String str = ((Literal) value).value();
+            if (term.operator.is(Operator.CONTAINS, Operator.STARTS_WITH, Operator.ENDS_WITH))
+                return evaluate(str, term);
+            boolean matched = false;
+            for (Object other : values(term.value)) {
+                if ((other instanceof Literal) && str.equals(((Literal) other).value()))
+                    matched = true;
+            }
+            result = term.operator.is(Operator.EQ, Operator.IN) ? matched : !matched;
+        } else {
+            result = PredicateExpressionBuilder.<Object,Object> create((r, f) -> r).term(term.field, term.operator, term.value).test(value);
+        }
+        return result != term.negated;
+    }
+
+    /**
+     * Determines if the outcome of a comparison against any record value equal
+     * (under {@link PredicateExpressionBuilder#equal(Object, Object)}) to the
+     * given value is the same as its outcome against the value itself (so that
+     * the comparison can be evaluated against the value as a proxy).
+     */
+    static boolean substitutable(Object value, Node term) {
+        if (value == null)
+            return true;
+        Operator op = term.operator;
+        if (op.is(Operator.CONTAINS, Operator.STARTS_WITH, Operator.ENDS_WITH))
+            return textual(value);
+        if (op.is(Operator.GT, Operator.GTE, Operator.LT, Operator.LTE)) {
+            Object other = term.value;
+            if (other == null)
+                return true;
+            if ((value instanceof Number) && (other instanceof Number))
+                return true;
+            if ((value instanceof Date) && (other instanceof Date))
+                return true;
+            if (textual(value) || textual(other))
+                return false;
+            return value.getClass().equals(other.getClass());
+        }
+        for (Object other : values(term.value)) {
+            if (other == null)
+                continue;
+            if (value instanceof Literal) {
+                // Any record value with the same string form is equal.
+                if (!(other instanceof Literal))
+                    return false;
+            } else if (!Objects.equals(kind(value), kind(other))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Classifies values into groups within which equality is consistent
+     * across record values.
+     */
+    private static Object kind(Object value) {
+        if (value instanceof Number)
+            return Number.class;
+        if (textual(value))
+            return String.class;
+        return value.getClass();
+    }
+
+    private static boolean textual(Object value) {
+        return (value instanceof String) || (value instanceof Enum) || (value instanceof Literal);
+    }
+
+    /**
+     * Determines if two expression values are identical (so that comparisons
+     * against them behave identically).
+     */
+    static boolean same(Object a, Object b) {
+        if (a == b)
+            return true;
+        if ((a == null) || (b == null))
+            return false;
+        if ((a instanceof Number) && (b instanceof Number))
+            return ((Number) a).doubleValue() == ((Number) b).doubleValue();
+        return a.equals(b);
+    }
+
+    /**
+     * The value as an array (for IN and NOT_IN).
+     */
+    static Object[] values(Object value) {
+        if (value instanceof Object[])
+            return (Object[]) value;
+        return new Object[] { value };
+    }
+
+    /************************************************************************
+     * Internal structures.
+     ************************************************************************/
+
+    /**
+     * A node of a normalised expression.
+     */
+    static final class Node {
+
+        static final int TRUE = 0, FALSE = 1, AND = 2, OR = 3, TERM = 4, OPAQUE = 5;
+
+        static final Node TRUE_NODE = new Node(TRUE, List.of());
+
+        static final Node FALSE_NODE = new Node(FALSE, List.of());
+
+        final int kind;
+
+        final List<Node> children;
+
+        final Object field;
+
+        final Operator operator;
+
+        final Object value;
+
+        final boolean negated;
+
+        final Expression<?> opaque;
+
+        Node(int kind, List<Node> children) {
+            this.kind = kind;
+            this.children = children;
+            this.field = null;
+            this.operator = null;
+            this.value = null;
+            this.negated = false;
+            this.opaque = null;
+        }
+
+        Node(Object field, Operator operator, Object value, boolean negated) {
+            this.kind = TERM;
+            this.children = List.of();
+            this.field = field;
+            this.operator = operator;
+            this.value = value;
+            this.negated = negated;
+            this.opaque = null;
+        }
+
+        Node(Expression<?> opaque, boolean negated) {
+            this.kind = OPAQUE;
+            this.children = List.of();
+            this.field = null;
+            this.operator = null;
+            this.value = null;
+            this.negated = negated;
+            this.opaque = opaque;
+        }
+
+        /**
+         * Determines if this term is the same as the passed term.
+         */
+        boolean same(Node other) {
+            if (!Objects.equals(field, other.field) || (operator != other.operator) || (negated != other.negated))
+                return false;
+            if ((value instanceof Object[]) && (other.value instanceof Object[])) {
+                Object[] a = (Object[]) value;
+                Object[] b = (Object[]) other.value;
+                if (a.length != b.length)
+                    return false;
+                for (int i = 0; i < a.length; i++) {
+                    if (!SubsumptionChecker.same(a[i], b[i]))
+                        return false;
+                }
+                return true;
+            }
+            return SubsumptionChecker.same(value, other.value);
+        }
+    }
+
+    /**
+     * The domain of values a field may take given the terms on that field
+     * appearing in a conjunction.
+     */
+    static final class Domain {
+
+        /**
+         * If the domain is empty (no value satisfies the terms).
+         */
+        boolean empty;
+
+        /**
+         * The values the field is restricted to ({@code null} if not
+         * restricted to a finite set).
+         */
+        List<Object> allowed;
+
+        Object lower;
+
+        boolean lowerInclusive;
+
+        Object upper;
+
+        boolean upperInclusive;
+
+        /**
+         * If the value is known to be non-{@code null}.
+         */
+        boolean nonNull;
+
+        final List<Object> excluded = new ArrayList<>();
+
+        final List<String> prefixes = new ArrayList<>();
+
+        final List<String> suffixes = new ArrayList<>();
+
+        final List<String> substrings = new ArrayList<>();
+
+        Domain(Object field, List<Node> conjuncts) {
+            List<Node> terms = new ArrayList<>();
+            for (Node conjunct : conjuncts) {
+                if ((conjunct.kind == Node.TERM) && Objects.equals(field, conjunct.field))
+                    terms.add(conjunct);
+            }
+            for (Node term : terms) {
+                if (term.negated)
+                    continue;
+                Object value = term.value;
+                switch (term.operator) {
+                    case EQ:
+                    case IN: {
+                        // Only one set is used (the smallest), others are
+                        // applied when filtering the set below.
+                        Object[] set = values(value);
+                        if ((allowed == null) || (set.length < allowed.size()))
+                            allowed = toList(set);
+                        break;
+                    }
+                    case NEQ:
+                    case NOT_IN:
+                        for (Object v : values(value))
+                            excluded.add(v);
+                        break;
+                    case GT:
+                    case GTE:
+                        nonNull = true;
+                        if (value == null) {
+                            empty = true;
+                        } else if (lower == null) {
+                            lower = value;
+                            lowerInclusive = (term.operator == Operator.GTE);
+                        } else {
+                            int c = PredicateExpressionBuilder.compare(value, lower);
+                            if ((c != PredicateExpressionBuilder.INCOMPARABLE) && ((c > 0) || ((c == 0) && (term.operator == Operator.GT)))) {
+                                lower = value;
+                                lowerInclusive = (term.operator == Operator.GTE);
+                            }
+                        }
+                        break;
+                    case LT:
+                    case LTE:
+                        nonNull = true;
+                        if (value == null) {
+                            empty = true;
+                        } else if (upper == null) {
+                            upper = value;
+                            upperInclusive = (term.operator == Operator.LTE);
+                        } else {
+                            int c = PredicateExpressionBuilder.compare(value, upper);
+                            if ((c != PredicateExpressionBuilder.INCOMPARABLE) && ((c < 0) || ((c == 0) && (term.operator == Operator.LT)))) {
+                                upper = value;
+                                upperInclusive = (term.operator == Operator.LTE);
+                            }
+                        }
+                        break;
+                    case CONTAINS:
+                    case STARTS_WITH:
+                    case ENDS_WITH: {
+                        nonNull = true;
+                        String str = PredicateExpressionBuilder.text(value);
+                        if (str == null)
+                            empty = true;
+                        else if (term.operator == Operator.STARTS_WITH)
+                            prefixes.add(str);
+                        else if (term.operator == Operator.ENDS_WITH)
+                            suffixes.add(str);
+                        else
+                            substrings.add(str);
+                        break;
+                    }
+                }
+            }
+            if (allowed != null) {
+                // Remove those values known not to satisfy the terms.
+                allowed.removeIf(v -> {
+                    for (Node term : terms) {
+                        if (substitutable(v, term) && !evaluate(v, term))
+                            return true;
+                    }
+                    return false;
+                });
+                if (allowed.isEmpty())
+                    empty = true;
+            }
+            if ((lower != null) && (upper != null)) {
+                int c = PredicateExpressionBuilder.compare(lower, upper);
+                if ((c != PredicateExpressionBuilder.INCOMPARABLE) && ((c > 0) || ((c == 0) && !(lowerInclusive && upperInclusive))))
+                    empty = true;
+            }
+        }
+
+        /**
+         * Determines if every value in the domain satisfies the term.
+         */
+        boolean implies(Node term) {
+            if (empty)
+                return true;
+            if (allowed != null) {
+                boolean all = true;
+                for (Object v : allowed) {
+                    if (!substitutable(v, term) || !evaluate(v, term)) {
+                        all = false;
+                        break;
+                    }
+                }
+                if (all)
+                    return true;
+            }
+            if (term.negated)
+                return false;
+            Object value = term.value;
+            switch (term.operator) {
+                case GT:
+                case GTE: {
+                    if ((lower == null) || (value == null))
+                        return false;
+                    int c = PredicateExpressionBuilder.compare(lower, value);
+                    if (c == PredicateExpressionBuilder.INCOMPARABLE)
+                        return false;
+                    return (c > 0) || ((c == 0) && ((term.operator == Operator.GTE) || !lowerInclusive));
+                }
+                case LT:
+                case LTE: {
+                    if ((upper == null) || (value == null))
+                        return false;
+                    int c = PredicateExpressionBuilder.compare(upper, value);
+                    if (c == PredicateExpressionBuilder.INCOMPARABLE)
+                        return false;
+                    return (c < 0) || ((c == 0) && ((term.operator == Operator.LTE) || !upperInclusive));
+                }
+                case NEQ:
+                    return excludes(value);
+                case NOT_IN:
+                    for (Object v : values(value)) {
+                        if (!excludes(v))
+                            return false;
+                    }
+                    return true;
+                case STARTS_WITH: {
+                    String str = PredicateExpressionBuilder.text(value);
+                    if (str == null)
+                        return false;
+                    for (String prefix : prefixes) {
+                        if (prefix.startsWith(str))
+                            return true;
+                    }
+                    return false;
+                }
+                case ENDS_WITH: {
+                    String str = PredicateExpressionBuilder.text(value);
+                    if (str == null)
+                        return false;
+                    for (String suffix : suffixes) {
+                        if (suffix.endsWith(str))
+                            return true;
+                    }
+                    return false;
+                }
+                case CONTAINS: {
+                    String str = PredicateExpressionBuilder.text(value);
+                    if (str == null)
+                        return false;
+                    for (String s : prefixes) {
+                        if (s.contains(str))
+                            return true;
+                    }
+                    for (String s : suffixes) {
+                        if (s.contains(str))
+                            return true;
+                    }
+                    for (String s : substrings) {
+                        if (s.contains(str))
+                            return true;
+                    }
+                    return false;
+                }
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * Determines if no value in the domain equals the given value.
+         */
+        private boolean excludes(Object value) {
+            if (value == null)
+                return nonNull || excluded.contains(null);
+            for (Object v : excluded) {
+                if (same(v, value))
+                    return true;
+            }
+            // Outside of the bounds.
+            if (lower != null) {
+                int c = PredicateExpressionBuilder.compare(value, lower);
+                if ((c != PredicateExpressionBuilder.INCOMPARABLE) && ((c < 0) || ((c == 0) && !lowerInclusive)))
+                    return true;
+            }
+            if (upper != null) {
+                int c = PredicateExpressionBuilder.compare(value, upper);
+                if ((c != PredicateExpressionBuilder.INCOMPARABLE) && ((c > 0) || ((c == 0) && !upperInclusive)))
+                    return true;
+            }
+            // Inconsistent with the string constraints.
+            if (value instanceof String) {
+                String str = (String) value;
+                for (String prefix : prefixes) {
+                    if (!str.startsWith(prefix))
+                        return true;
+                }
+                for (String suffix : suffixes) {
+                    if (!str.endsWith(suffix))
+                        return true;
+                }
+                for (String substring : substrings) {
+                    if (!str.contains(substring))
+                        return true;
+                }
+            }
+            return false;
+        }
+
+        private static List<Object> toList(Object[] values) {
+            List<Object> list = new ArrayList<>(values.length);
+            for (Object v : values)
+                list.add(v);
+            return list;
+        }
+    }
+}
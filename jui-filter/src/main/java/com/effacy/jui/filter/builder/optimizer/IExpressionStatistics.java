@@ -0,0 +1,69 @@
+package com.effacy.jui.filter.builder.optimizer;
+
+import com.effacy.jui.filter.builder.IExpressionBuilder.Operator;
+
+/**
+ * Provides statistics about the data an expression is applied to. These are
+ * used by {@link SelectivityCostModel} to estimate the cost and selectivity of
+ * comparison terms (and hence by {@link SelectivityOptimizer} to order terms).
+ * <p>
+ * All methods are optional and return a negative value when the statistic is
+ * not known, in which case the cost model falls back to its default heuristic.
+ *
+ * @param <F>
+ *            the field type used in expressions.
+ */
+public interface IExpressionStatistics<F> {
+
+    /**
+     * Statistics that provide no information (so the default heuristics are
+     * used throughout).
+     */
+    public static <F> IExpressionStatistics<F> none() {
+        return new IExpressionStatistics<F>() {};
+    }
+
+    /**
+     * The number of distinct values the field takes.
+     *
+     * @param field
+     *              the field.
+     * @return the cardinality (or a negative value if not known).
+     */
+    default long cardinality(F field) {
+        return -1;
+    }
+
+    /**
+     * The estimated fraction (between 0 and 1) of records that satisfy the given
+     * comparison.
+     *
+     * @param field
+     *                 the field.
+     * @param operator
+     *                 the comparison operator.
+     * @param value
+     *                 the value being compared against.
+     * @return the selectivity (or a negative value if not known).
+     */
+    default double selectivity(F field, Operator operator, Object value) {
+        return -1;
+    }
+
+    /**
+     * The relative cost of evaluating the given comparison against a single
+     * record. This is on the same scale as the defaults used by
+     * {@link SelectivityCostModel} (where an equality test has cost 1).
+     *
+     * @param field
+     *                 the field.
+     * @param operator
+     *                 the comparison operator.
+     * @param value
+     *                 the value being compared against.
+     * @return the cost (or a negative value if not known).
+     */
+    default double cost(F field, Operator operator, Object value) {
+        return -1;
+    }
+}
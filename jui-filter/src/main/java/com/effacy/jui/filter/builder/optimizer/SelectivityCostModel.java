@@ -0,0 +1,276 @@
+package com.effacy.jui.filter.builder.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder;
+import com.effacy.jui.filter.builder.IExpressionBuilder.Operator;
+
+/**
+ * Estimates the per-record evaluation cost and the selectivity (fraction of
+ * records that pass) of an expression. Comparison terms are estimated from an
+ * {@link IExpressionStatistics} with a fallback to a default heuristic where
+ * statistics are not available.
+ * <p>
+ * Composite expressions assume independence between terms and short-circuit
+ * evaluation in the order the terms appear:
+ * <ul>
+ * <li>AND: selectivity is the product of the term selectivities and each term
+ * is only evaluated when all prior terms have passed.</li>
+ * <li>OR: selectivity is one minus the product of the term non-selectivities
+ * and each term is only evaluated when all prior terms have failed.</li>
+ * <li>NOT: inverts the selectivity at the same cost.</li>
+ * </ul>
+ * The default heuristic (in the absence of statistics) is:
+ * <table>
+ * <tr><th>Operator</th><th>Cost</th><th>Selectivity</th></tr>
+ * <tr><td>EQ / NEQ</td><td>1</td><td>1/cardinality (or 0.1) / complement</td></tr>
+ * <tr><td>GT, GTE, LT, LTE</td><td>1.2</td><td>0.33</td></tr>
+ * <tr><td>IN / NOT_IN</td><td>1 + 0.05n</td><td>n x EQ / complement</td></tr>
+ * <tr><td>STARTS_WITH, ENDS_WITH</td><td>2</td><td>0.1</td></tr>
+ * <tr><td>CONTAINS</td><td>5</td><td>0.25</td></tr>
+ * </table>
+ *
+ * @param <F>
+ *            the field type used in expressions.
+ */
+public class SelectivityCostModel<F> {
+
+    /**
+     * Default selectivity for an equality where the cardinality is not known.
+     */
+    public static final double DEFAULT_EQ_SELECTIVITY = 0.1;
+
+    /**
+     * Default selectivity for a range comparison.
+     */
+    public static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3.0;
+
+    /**
+     * Default selectivity for a prefix or suffix match.
+     */
+    public static final double DEFAULT_AFFIX_SELECTIVITY = 0.1;
+
+    /**
+     * Default selectivity for a substring match.
+     */
+    public static final double DEFAULT_CONTAINS_SELECTIVITY = 0.25;
+
+    /**
+     * The estimated cost and selectivity of an expression.
+     *
+     * @param cost
+     *                    the expected cost of evaluating against one record.
+     * @param selectivity
+     *                    the fraction of records expected to pass (0 to 1).
+     */
+    public static record Estimate(double cost, double selectivity) {
+
+        /**
+         * The rank of the term when it is a child of an AND. Terms with a lower
+         * rank should be evaluated first (this is the classical cost over
+         * probability of rejection ordering).
+         */
+        public double andRank() {
+            double reject = 1.0 - selectivity;
+            if (reject <= 0)
+                return Double.POSITIVE_INFINITY;
+            return cost / reject;
+        }
+
+        /**
+         * The rank of the term when it is a child of an OR. Terms with a lower
+         * rank should be evaluated first (cost over probability of acceptance).
+         */
+        public double orRank() {
+            if (selectivity <= 0)
+                return Double.POSITIVE_INFINITY;
+            return cost / selectivity;
+        }
+    }
+
+    /**
+     * See constructor.
+     */
+    private IExpressionStatistics<F> statistics;
+
+    /**
+     * Construct with no statistics (so only the default heuristic applies).
+     */
+    public SelectivityCostModel() {
+        this(null);
+    }
+
+    /**
+     * Construct with statistics.
+     *
+     * @param statistics
+     *                   (optional) the statistics to draw on.
+     */
+    public SelectivityCostModel(IExpressionStatistics<F> statistics) {
+        this.statistics = (statistics == null) ? IExpressionStatistics.none() : statistics;
+    }
+
+    /**
+     * Estimates the cost and selectivity of the given expression.
+     *
+     * @param expression
+     *                   the expression.
+     * @return the estimate.
+     */
+    public Estimate estimate(ExpressionBuilder.Expression<F> expression) {
+        if (expression == null)
+            return new Estimate(0, 1);
+        if (expression instanceof ExpressionBuilder<F>.ComparisonExpression) {
+            ExpressionBuilder<F>.ComparisonExpression comp = (ExpressionBuilder<F>.ComparisonExpression) expression;
+            return estimate(comp.field(), comp.operator(), comp.value());
+        }
+        if (expression instanceof ExpressionBuilder<F>.BoolExpression)
+            return new Estimate(0, ((ExpressionBuilder<F>.BoolExpression) expression).getValue() ? 1 : 0);
+        List<Estimate> children = new ArrayList<>();
+        expression.traverse((depth, child) -> {
+            if (depth == 1)
+                children.add(estimate(child));
+        });
+        if (expression instanceof ExpressionBuilder<F>.ANDExpression)
+            return and(children);
+        if (expression instanceof ExpressionBuilder<F>.ORExpression)
+            return or(children);
+        if (expression instanceof ExpressionBuilder<F>.NOTExpression)
+            return children.isEmpty() ? new Estimate(0, 1) : not(children.get(0));
+        return new Estimate(1, 1);
+    }
+
+    /**
+     * Estimates a single comparison term.
+     *
+     * @param field
+     *                 the field.
+     * @param operator
+     *                 the operator.
+     * @param value
+     *                 the value.
+     * @return the estimate.
+     */
+    public Estimate estimate(F field, Operator operator, Object value) {
+        double cost = statistics.cost(field, operator, value);
+        if (cost < 0)
+            cost = defaultCost(operator, value);
+        double selectivity = statistics.selectivity(field, operator, value);
+        if (selectivity < 0)
+            selectivity = defaultSelectivity(field, operator, value);
+        return new Estimate(cost, clamp(selectivity));
+    }
+
+    /**
+     * Combines the estimates for the terms of an AND (in evaluation order).
+     */
+    public Estimate and(List<Estimate> terms) {
+        double cost = 0;
+        double pass = 1;
+        for (Estimate term : terms) {
+            cost += pass * term.cost();
+            pass *= term.selectivity();
+        }
+        return new Estimate(cost, pass);
+    }
+
+    /**
+     * Combines the estimates for the terms of an OR (in evaluation order).
+     */
+    public Estimate or(List<Estimate> terms) {
+        double cost = 0;
+        double fail = 1;
+        for (Estimate term : terms) {
+            cost += fail * term.cost();
+            fail *= (1.0 - term.selectivity());
+        }
+        return new Estimate(cost, 1.0 - fail);
+    }
+
+    /**
+     * Estimates the negation of a term.
+     */
+    public Estimate not(Estimate term) {
+        return new Estimate(term.cost(), 1.0 - term.selectivity());
+    }
+
+    /**
+     * The default cost of a comparison.
+     */
+    protected double defaultCost(Operator operator, Object value) {
+        if (operator == null)
+            return 1;
+        switch (operator) {
+            case GT:
+            case GTE:
+            case LT:
+            case LTE:
+                return 1.2;
+            case IN:
+            case NOT_IN:
+                return 1.0 + 0.05 * size(value);
+            case STARTS_WITH:
+            case ENDS_WITH:
+                return 2;
+            case CONTAINS:
+                return 5;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * The default selectivity of a comparison.
+     */
+    protected double defaultSelectivity(F field, Operator operator, Object value) {
+        if (operator == null)
+            return 1;
+        switch (operator) {
+            case EQ:
+                return equality(field);
+            case NEQ:
+                return 1.0 - equality(field);
+            case IN:
+                return Math.min(1.0, size(value) * equality(field));
+            case NOT_IN:
+                return 1.0 - Math.min(1.0, size(value) * equality(field));
+            case GT:
+            case GTE:
+            case LT:
+            case LTE:
+                return DEFAULT_RANGE_SELECTIVITY;
+            case STARTS_WITH:
+            case ENDS_WITH:
+                return DEFAULT_AFFIX_SELECTIVITY;
+            case CONTAINS:
+                return DEFAULT_CONTAINS_SELECTIVITY;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * The selectivity of an equality on the given field.
+     */
+    protected double equality(F field) {
+        long cardinality = statistics.cardinality(field);
+        if (cardinality <= 0)
+            return DEFAULT_EQ_SELECTIVITY;
+        return 1.0 / cardinality;
+    }
+
+    private static int size(Object value) {
+        if (value instanceof Object[])
+            return ((Object[]) value).length;
+        return (value == null) ? 0 : 1;
+    }
+
+    private static double clamp(double value) {
+        if (value < 0)
+            return 0;
+        if (value > 1)
+            return 1;
+        return value;
+    }
+}
@@ -0,0 +1,149 @@
+package com.effacy.jui.filter.builder.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder;
+import com.effacy.jui.filter.builder.optimizer.SelectivityCostModel.Estimate;
+
+/**
+ * Optimizer that reorders the terms of AND and OR expressions so that
+ * short-circuit evaluation does the least work:
+ * <ul>
+ * <li>AND terms are ordered by cost / (1 - selectivity) so that cheap terms
+ * that reject most records are evaluated first.</li>
+ * <li>OR terms are ordered by cost / selectivity so that cheap terms that
+ * accept most records are evaluated first.</li>
+ * </ul>
+ * Costs and selectivities are obtained from a {@link SelectivityCostModel}
+ * (which can be supplied with {@link IExpressionStatistics}). The reordering is
+ * stable (terms with equal rank retain their original order) and the
+ * expression is returned unchanged if no reordering is needed.
+ * <p>
+ * The resulting expression is logically equivalent to the original. Since any
+ * {@link com.effacy.jui.filter.builder.IExpressionBuilder} receives terms in
+ * expression order this benefits in-memory evaluation (see
+ * {@link com.effacy.jui.filter.builder.PredicateExpressionBuilder}) and
+ * generated queries (i.e. SQL) alike. It is best applied after the other
+ * optimizers as these may restructure the expression:
+ * <pre>
+ * new CompositeOptimizer&lt;&gt;(CompositeOptimizer.standard(), new SelectivityOptimizer&lt;&gt;(statistics));
+ * </pre>
+ */
+public class SelectivityOptimizer<F> implements IExpressionOptimizer<F> {
+
+    private final ExpressionBuilder<F> builder = new ExpressionBuilder<>();
+
+    private final SelectivityCostModel<F> model;
+
+    /**
+     * Construct using the default heuristic only.
+     */
+    public SelectivityOptimizer() {
+        this(new SelectivityCostModel<>());
+    }
+
+    /**
+     * Construct with statistics to inform the default cost model.
+     *
+     * @param statistics
+     *                   the statistics.
+     */
+    public SelectivityOptimizer(IExpressionStatistics<F> statistics) {
+        this(new SelectivityCostModel<>(statistics));
+    }
+
+    /**
+     * Construct with a specific cost model.
+     *
+     * @param model
+     *              the cost model.
+     */
+    public SelectivityOptimizer(SelectivityCostModel<F> model) {
+        this.model = (model == null) ? new SelectivityCostModel<>() : model;
+    }
+
+    @Override
+    public ExpressionBuilder.Expression<F> optimize(ExpressionBuilder.Expression<F> expression) {
+        if (expression == null)
+            return null;
+        return reorder(expression).expression;
+    }
+
+    /**
+     * Recursively reorders the expression returning the (possibly) reordered
+     * expression along with its estimate.
+     */
+    private Ranked<F> reorder(ExpressionBuilder.Expression<F> expression) {
+        boolean and = (expression instanceof ExpressionBuilder<F>.ANDExpression);
+        boolean or = (expression instanceof ExpressionBuilder<F>.ORExpression);
+        if (and || or) {
+            List<ExpressionBuilder.Expression<F>> children = collectDirectChildren(expression);
+            List<Ranked<F>> ranked = new ArrayList<>(children.size());
+            boolean changed = false;
+            for (ExpressionBuilder.Expression<F> child : children) {
+                Ranked<F> r = reorder(child);
+                r.rank = and ? r.estimate.andRank() : r.estimate.orRank();
+                if (r.expression != child)
+                    changed = true;
+                ranked.add(r);
+            }
+
+            // Stable insertion sort (the number of terms is generally small).
+            for (int i = 1; i < ranked.size(); i++) {
+                Ranked<F> r = ranked.get(i);
+                int j = i - 1;
+                while ((j >= 0) && (ranked.get(j).rank > r.rank)) {
+                    ranked.set(j + 1, ranked.get(j));
+                    j--;
+                }
+                if (j + 1 != i) {
+                    ranked.set(j + 1, r);
+                    changed = true;
+                }
+            }
+
+            List<ExpressionBuilder.Expression<F>> terms = new ArrayList<>(ranked.size());
+            List<Estimate> estimates = new ArrayList<>(ranked.size());
+            for (Ranked<F> r : ranked) {
+                terms.add(r.expression);
+                estimates.add(r.estimate);
+            }
+            Estimate estimate = and ? model.and(estimates) : model.or(estimates);
+            if (!changed)
+                return new Ranked<>(expression, estimate);
+            return new Ranked<>(and ? builder.and(terms) : builder.or(terms), estimate);
+        }
+        if (expression instanceof ExpressionBuilder<F>.NOTExpression) {
+            List<ExpressionBuilder.Expression<F>> children = collectDirectChildren(expression);
+            if (children.isEmpty())
+                return new Ranked<>(expression, model.estimate(expression));
+            Ranked<F> inner = reorder(children.get(0));
+            Estimate estimate = model.not(inner.estimate);
+            if (inner.expression == children.get(0))
+                return new Ranked<>(expression, estimate);
+            return new Ranked<>(builder.not(inner.expression), estimate);
+        }
+        return new Ranked<>(expression, model.estimate(expression));
+    }
+
+    private List<ExpressionBuilder.Expression<F>> collectDirectChildren(ExpressionBuilder.Expression<F> expr) {
+        List<ExpressionBuilder.Expression<F>> children = new ArrayList<>();
+        expr.traverse((depth, child) -> {
+            if (depth == 1) // Direct children only
+                children.add(child);
+        });
+        return children;
+    }
+
+    private static class Ranked<F> {
+        final ExpressionBuilder.Expression<F> expression;
+        final Estimate estimate;
+        double rank;
+
+        Ranked(ExpressionBuilder.Expression<F> expression, Estimate estimate) {
+            this.expression = expression;
+            this.estimate = estimate;
+        }
+    }
+}
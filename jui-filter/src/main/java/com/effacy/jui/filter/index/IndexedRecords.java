@@ -0,0 +1,282 @@
+package com.effacy.jui.filter.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder;
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.IExpressionBuilder.Operator;
+import com.effacy.jui.filter.builder.PredicateExpressionBuilder;
+import com.effacy.jui.filter.builder.PredicateExpressionBuilder.IValueResolver;
+import com.effacy.jui.filter.index.NGramIndex.Candidates;
+
+/**
+ * An in-memory collection of records that can be filtered by expressions
+ * (evaluated by way of {@link PredicateExpressionBuilder}) where string fields
+ * can be registered (see {@link #index(Object)}) against an
+ * {@link NGramIndex}.
+ * <p>
+ * When filtering, CONTAINS, STARTS_WITH and ENDS_WITH terms against indexed
+ * fields are answered from the index to obtain a set of candidate records
+ * (combined across AND and OR as appropriate); only the candidates are then
+ * evaluated against the full expression. Where the candidates are known to be
+ * exact (i.e. the expression consists only of terms that the index answers
+ * precisely) they are returned without evaluation. Expressions that cannot be
+ * constrained by the index are evaluated against all records.
+ * <p>
+ * Records are assigned an id when added which is used to update or remove
+ * them. Ids of removed records are reused and results are returned in id
+ * order. Instances are not thread-safe for update.
+ *
+ * @param <R>
+ *            the record type.
+ * @param <F>
+ *            the field type.
+ */
+public class IndexedRecords<R,F> {
+
+    /**
+     * See constructor.
+     */
+    private final IValueResolver<R,F> resolver;
+
+    /**
+     * To build predicates from expressions.
+     */
+    private final PredicateExpressionBuilder<R,F> predicates;
+
+    /**
+     * Indexes by field.
+     */
+    private final Map<F,NGramIndex> indexes = new HashMap<>();
+
+    /**
+     * Records by id.
+     */
+    private final List<R> records = new ArrayList<>();
+
+    /**
+     * Ids freed by removal (for reuse).
+     */
+    private int[] free = new int[0];
+
+    /**
+     * Number of entries in {@link #free}.
+     */
+    private int freeCount;
+
+    /**
+     * Construct with a means of resolving field values from records.
+     *
+     * @param resolver
+     *                 the resolver.
+     */
+    public IndexedRecords(IValueResolver<R,F> resolver) {
+        this.resolver = resolver;
+        this.predicates = PredicateExpressionBuilder.create(resolver);
+    }
+
+    /**
+     * Registers a string field to index (see {@link #index(Object, int)}) with
+     * no bound on postings.
+     */
+    public IndexedRecords<R,F> index(F field) {
+        return index(field, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Registers a string field to index. Any existing records are indexed.
+     *
+     * @param field
+     *                    the field.
+     * @param maxPostings
+     *                    bound on postings (see
+     *                    {@link NGramIndex#NGramIndex(int)}).
+     * @return this collection.
+     */
+    public IndexedRecords<R,F> index(F field, int maxPostings) {
+        NGramIndex index = new NGramIndex(maxPostings);
+        for (int id = 0; id < records.size(); id++) {
+            R record = records.get(id);
+            if (record != null)
+                index.put(id, text(record, field));
+        }
+        index.trim();
+        indexes.put(field, index);
+        return this;
+    }
+
+    /**
+     * The index for the given field.
+     *
+     * @param field
+     *              the field.
+     * @return the index ({@code null} if the field is not indexed).
+     */
+    public NGramIndex indexOf(F field) {
+        return indexes.get(field);
+    }
+
+    /**
+     * Adds a record.
+     *
+     * @param record
+     *               the record.
+     * @return the id assigned to the record.
+     */
+    public int add(R record) {
+        if (record == null)
+            throw new IllegalArgumentException("record is required");
+        int id;
+        if (freeCount > 0) {
+            id = free[--freeCount];
+            records.set(id, record);
+        } else {
+            id = records.size();
+            records.add(record);
+        }
+        reindex(id, record);
+        return id;
+    }
+
+    /**
+     * Replaces the record with the given id.
+     *
+     * @param id
+     *               the id of the record.
+     * @param record
+     *               the replacement record.
+     */
+    public void update(int id, R record) {
+        if (record == null)
+            throw new IllegalArgumentException("record is required");
+        if (get(id) == null)
+            throw new IllegalArgumentException("no record with id " + id);
+        records.set(id, record);
+        reindex(id, record);
+    }
+
+    /**
+     * Removes the record with the given id.
+     *
+     * @param id
+     *           the id of the record.
+     */
+    public void remove(int id) {
+        if (get(id) == null)
+            return;
+        records.set(id, null);
+        for (NGramIndex index : indexes.values())
+            index.remove(id);
+        if (freeCount == free.length)
+            free = Arrays.copyOf(free, Math.max(8, freeCount * 2));
+        free[freeCount++] = id;
+    }
+
+    /**
+     * Obtains the record with the given id.
+     *
+     * @param id
+     *           the id.
+     * @return the record ({@code null} if there is none).
+     */
+    public R get(int id) {
+        return ((id >= 0) && (id < records.size())) ? records.get(id) : null;
+    }
+
+    /**
+     * The number of records.
+     */
+    public int size() {
+        return records.size() - freeCount;
+    }
+
+    /**
+     * Filters the records against the expression.
+     *
+     * @param expression
+     *                   the expression.
+     * @return the matching records (in id order).
+     */
+    public List<R> filter(Expression<F> expression) {
+        Predicate<R> predicate = expression.build(predicates);
+        Candidates candidates = candidates(expression);
+        if (candidates == null) {
+            List<R> results = new ArrayList<>();
+            for (R record : records) {
+                if ((record != null) && predicate.test(record))
+                    results.add(record);
+            }
+            return results;
+        }
+        List<R> results = new ArrayList<>(candidates.size());
+        for (int id : candidates.ids()) {
+            R record = records.get(id);
+            if (candidates.exact() || predicate.test(record))
+                results.add(record);
+        }
+        return results;
+    }
+
+    /**
+     * Determines the candidates for the given expression.
+     *
+     * @param expression
+     *                   the expression.
+     * @return the candidates ({@code null} if the expression cannot be
+     *         constrained by the indexes).
+     */
+    protected Candidates candidates(Expression<F> expression) {
+        if (expression instanceof ExpressionBuilder<F>.ComparisonExpression) {
+            ExpressionBuilder<F>.ComparisonExpression comp = (ExpressionBuilder<F>.ComparisonExpression) expression;
+            Operator op = comp.operator();
+            if ((op != Operator.CONTAINS) && (op != Operator.STARTS_WITH) && (op != Operator.ENDS_WITH))
+                return null;
+            NGramIndex index = indexes.get(comp.field());
+            if ((index == null) || (comp.value() == null))
+                return null;
+            return index.candidates(op, PredicateExpressionBuilder.text(comp.value()));
+        }
+        if (expression instanceof ExpressionBuilder<F>.BoolExpression)
+            return ((ExpressionBuilder<F>.BoolExpression) expression).getValue() ? null : Candidates.NONE;
+        boolean and = (expression instanceof ExpressionBuilder<F>.ANDExpression);
+        boolean or = (expression instanceof ExpressionBuilder<F>.ORExpression);
+        if (!and && !or)
+            return null;
+        List<Expression<F>> children = new ArrayList<>();
+        expression.traverse((depth, child) -> {
+            if (depth == 1)
+                children.add(child);
+        });
+        Candidates result = null;
+        boolean unconstrained = false;
+        for (Expression<F> child : children) {
+            Candidates c = candidates(child);
+            if (c == null) {
+                // Any unconstrained term makes an OR unconstrained.
+                if (or)
+                    return null;
+                unconstrained = true;
+                continue;
+            }
+            result = (result == null) ? c : (and ? result.and(c) : result.or(c));
+        }
+        if ((result != null) && unconstrained)
+            result = result.inexact();
+        return result;
+    }
+
+    private void reindex(int id, R record) {
+        for (Map.Entry<F,NGramIndex> entry : indexes.entrySet())
+            entry.getValue().put(id, text(record, entry.getKey()));
+    }
+
+    private String text(R record, F field) {
+        Object value = resolver.resolve(record, field);
+        return (value == null) ? null : value.toString();
+    }
+}
@@ -0,0 +1,131 @@
+package com.effacy.jui.filter.index;
+
+import java.util.Arrays;
+
+/**
+ * A sorted set of (non-negative) ids held in a compact int array. Ids that
+ * arrive in ascending order are appended, otherwise they are inserted.
+ * <p>
+ * Once the number of ids exceeds a bound the postings become saturated: the
+ * ids are discarded and the postings no longer constrain candidates.
+ */
+class IntPostings {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] ids = EMPTY;
+
+    private int size;
+
+    private boolean saturated;
+
+    /**
+     * The number of ids (0 if saturated).
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Determines if the postings are saturated.
+     */
+    boolean saturated() {
+        return saturated;
+    }
+
+    /**
+     * Adds an id.
+     *
+     * @param id
+     *                    the id.
+     * @param maxPostings
+     *                    the bound beyond which the postings become saturated.
+     */
+    void add(int id, int maxPostings) {
+        if (saturated)
+            return;
+        int idx = ((size == 0) || (ids[size - 1] < id)) ? size : Arrays.binarySearch(ids, 0, size, id);
+        if (idx >= 0) {
+            if ((idx < size) && (ids[idx] == id))
+                return;
+        } else {
+            idx = -idx - 1;
+        }
+        if (size >= maxPostings) {
+            saturated = true;
+            ids = EMPTY;
+            size = 0;
+            return;
+        }
+        if (size == ids.length)
+            ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+        if (idx < size)
+            System.arraycopy(ids, idx, ids, idx + 1, size - idx);
+        ids[idx] = id;
+        size++;
+    }
+
+    /**
+     * Removes an id.
+     */
+    void remove(int id) {
+        if (saturated || (size == 0))
+            return;
+        int idx = Arrays.binarySearch(ids, 0, size, id);
+        if (idx < 0)
+            return;
+        System.arraycopy(ids, idx + 1, ids, idx, size - idx - 1);
+        size--;
+    }
+
+    /**
+     * Trims the underlying array to the number of ids.
+     */
+    void trim() {
+        if (ids.length != size)
+            ids = (size == 0) ? EMPTY : Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * A copy of the ids.
+     */
+    int[] copy() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Retains in the (sorted) candidates only those ids present in these
+     * postings.
+     *
+     * @param candidates
+     *                   the candidates (modified in place).
+     * @param count
+     *                   the number of candidates.
+     * @return the number of candidates retained.
+     */
+    int retain(int[] candidates, int count) {
+        int k = 0;
+        int from = 0;
+        for (int i = 0; (i < count) && (from < size); i++) {
+            int idx = search(candidates[i], from);
+            if (idx >= 0) {
+                candidates[k++] = candidates[i];
+                from = idx + 1;
+            } else {
+                from = -idx - 1;
+            }
+        }
+        return k;
+    }
+
+    /**
+     * Exponential search for the id starting from the given index (returns as
+     * per {@link Arrays#binarySearch(int[], int, int, int)}).
+     */
+    private int search(int id, int from) {
+        int bound = 1;
+        while ((from + bound < size) && (ids[from + bound] < id))
+            bound <<= 1;
+        return Arrays.binarySearch(ids, from, Math.min(size, from + bound + 1), id);
+    }
+}
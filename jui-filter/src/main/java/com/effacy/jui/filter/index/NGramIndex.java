@@ -0,0 +1,409 @@
+package com.effacy.jui.filter.index;
+
+import java.util.Arrays;
+
+import com.effacy.jui.filter.builder.IExpressionBuilder.Operator;
+
+/**
+ * A trigram index over string values keyed by (non-negative) integer ids that
+ * answers {@link Operator#CONTAINS}, {@link Operator#STARTS_WITH} and
+ * {@link Operator#ENDS_WITH} with a set of candidate ids.
+ * <p>
+ * Each value is padded with two start and two end markers prior to extracting
+ * trigrams so that prefix and suffix matches (of any length) can be answered
+ * from the same index (i.e. {@code STARTS_WITH "a"} corresponds to the single
+ * trigram formed from the two start markers and {@code a}). Substring matches
+ * require a pattern of at least three characters.
+ * <p>
+ * Postings are held as sorted arrays of ids (see {@link IntPostings}) and are
+ * maintained incrementally on {@link #put(int, String)} and
+ * {@link #remove(int)}. To bound memory a trigram whose postings exceed the
+ * configured maximum is saturated (its postings are discarded and it is no
+ * longer used to constrain candidates); such trigrams are generally of little
+ * value in narrowing a search.
+ * <p>
+ * Values are assumed not to contain the marker characters (the control
+ * characters with code points 1 and 2).
+ * <p>
+ * Matching is case-sensitive (consistent with
+ * {@link com.effacy.jui.filter.builder.PredicateExpressionBuilder}). Instances
+ * are not thread-safe for update though may be queried concurrently in the
+ * absence of updates.
+ */
+public class NGramIndex {
+
+    /**
+     * Marker that pads the start of a value.
+     */
+    static final char START = '\u0001';
+
+    /**
+     * Marker that pads the end of a value.
+     */
+    static final char END = '\u0002';
+
+    /**
+     * See constructor.
+     */
+    private final int maxPostings;
+
+    /**
+     * Indexed values by id.
+     */
+    private String[] values = new String[16];
+
+    /**
+     * Number of values indexed.
+     */
+    private int count;
+
+    /**
+     * Trigram to postings (open addressing).
+     */
+    private long[] keys = new long[64];
+
+    /**
+     * See {@link #keys}.
+     */
+    private IntPostings[] postings = new IntPostings[64];
+
+    /**
+     * Number of trigrams.
+     */
+    private int grams;
+
+    /**
+     * Construct with no bound on postings.
+     */
+    public NGramIndex() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Construct with a bound on the size of postings.
+     *
+     * @param maxPostings
+     *                    the maximum number of ids held against a single
+     *                    trigram (beyond which the trigram is saturated).
+     */
+    public NGramIndex(int maxPostings) {
+        this.maxPostings = Math.max(1, maxPostings);
+    }
+
+    /**
+     * The value indexed against the given id.
+     *
+     * @param id
+     *           the id.
+     * @return the value ({@code null} if there is none).
+     */
+    public String value(int id) {
+        return ((id >= 0) && (id < values.length)) ? values[id] : null;
+    }
+
+    /**
+     * Number of (non-{@code null}) values indexed.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Number of distinct trigrams.
+     */
+    public int grams() {
+        return grams;
+    }
+
+    /**
+     * Total number of ids held in postings (as an indication of memory use).
+     */
+    public long postings() {
+        long total = 0;
+        for (IntPostings p : postings) {
+            if (p != null)
+                total += p.size();
+        }
+        return total;
+    }
+
+    /**
+     * Indexes (or re-indexes) a value against an id.
+     *
+     * @param id
+     *              the id (non-negative).
+     * @param value
+     *              the value ({@code null} to remove).
+     */
+    public void put(int id, String value) {
+        if (id < 0)
+            throw new IllegalArgumentException("id must be non-negative");
+        if (id >= values.length)
+            values = Arrays.copyOf(values, Math.max(id + 1, values.length + (values.length >> 1)));
+        String old = values[id];
+        if ((old == null) ? (value == null) : old.equals(value))
+            return;
+        long[] oldGrams = (old == null) ? new long[0] : grams(old, true, true);
+        long[] newGrams = (value == null) ? new long[0] : grams(value, true, true);
+
+        // Both are sorted and distinct so merge to find the differences.
+        int i = 0, j = 0;
+        while ((i < oldGrams.length) || (j < newGrams.length)) {
+            if ((j >= newGrams.length) || ((i < oldGrams.length) && (oldGrams[i] < newGrams[j]))) {
+                IntPostings p = lookup(oldGrams[i++]);
+                if (p != null)
+                    p.remove(id);
+            } else if ((i >= oldGrams.length) || (newGrams[j] < oldGrams[i])) {
+                IntPostings p = lookup(newGrams[j]);
+                if (p == null)
+                    p = insert(newGrams[j]);
+                p.add(id, maxPostings);
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        values[id] = value;
+        if (old == null)
+            count++;
+        else if (value == null)
+            count--;
+    }
+
+    /**
+     * Removes the value indexed against the given id.
+     *
+     * @param id
+     *           the id.
+     */
+    public void remove(int id) {
+        if ((id >= 0) && (id < values.length))
+            put(id, null);
+    }
+
+    /**
+     * Trims postings to their minimal size (i.e. after a bulk load).
+     */
+    public void trim() {
+        for (IntPostings p : postings) {
+            if (p != null)
+                p.trim();
+        }
+    }
+
+    /**
+     * Obtains the candidate ids whose values may satisfy the given operator
+     * against the pattern.
+     *
+     * @param operator
+     *                 the operator (one of {@link Operator#CONTAINS},
+     *                 {@link Operator#STARTS_WITH} and
+     *                 {@link Operator#ENDS_WITH}).
+     * @param pattern
+     *                 the pattern.
+     * @return the candidates ({@code null} if the index is unable to constrain
+     *         the candidates, in which case all values need to be considered).
+     */
+    public Candidates candidates(Operator operator, String pattern) {
+        if (pattern == null)
+            return null;
+        boolean start = (operator == Operator.STARTS_WITH);
+        boolean end = (operator == Operator.ENDS_WITH);
+        if (!start && !end && (operator != Operator.CONTAINS))
+            return null;
+        long[] query = grams(pattern, start, end);
+        if (query.length == 0)
+            return null;
+        IntPostings[] lists = new IntPostings[query.length];
+        int n = 0;
+        for (long gram : query) {
+            IntPostings p = lookup(gram);
+            if (p == null)
+                return Candidates.NONE;
+            if (!p.saturated()) {
+                if (p.size() == 0)
+                    return Candidates.NONE;
+                lists[n++] = p;
+            }
+        }
+        if (n == 0)
+            return null;
+        // A single (unsaturated) trigram that covers the padded pattern is an
+        // exact match.
+        boolean exact = (query.length == 1) && (n == 1);
+        lists = Arrays.copyOf(lists, n);
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+        int[] result = lists[0].copy();
+        int size = result.length;
+        for (int k = 1; (k < n) && (size > 0); k++)
+            size = lists[k].retain(result, size);
+        return new Candidates((size == result.length) ? result : Arrays.copyOf(result, size), exact);
+    }
+
+    /**
+     * Extracts the sorted distinct trigrams from a value (padded as
+     * indicated).
+     */
+    static long[] grams(String value, boolean start, boolean end) {
+        int len = value.length() + (start ? 2 : 0) + (end ? 2 : 0);
+        if (len < 3)
+            return new long[0];
+        char[] chars = new char[len];
+        int k = 0;
+        if (start) {
+            chars[k++] = START;
+            chars[k++] = START;
+        }
+        value.getChars(0, value.length(), chars, k);
+        k += value.length();
+        if (end) {
+            chars[k++] = END;
+            chars[k++] = END;
+        }
+        long[] grams = new long[len - 2];
+        for (int i = 0; i < grams.length; i++)
+            grams[i] = ((long) chars[i] << 32) | ((long) chars[i + 1] << 16) | chars[i + 2];
+        Arrays.sort(grams);
+        int distinct = (grams.length == 0) ? 0 : 1;
+        for (int i = 1; i < grams.length; i++) {
+            if (grams[i] != grams[distinct - 1])
+                grams[distinct++] = grams[i];
+        }
+        return (distinct == grams.length) ? grams : Arrays.copyOf(grams, distinct);
+    }
+
+    private IntPostings lookup(long gram) {
+        int mask = keys.length - 1;
+        for (int i = hash(gram) & mask;; i = (i + 1) & mask) {
+            IntPostings p = postings[i];
+            if (p == null)
+                return null;
+            if (keys[i] == gram)
+                return p;
+        }
+    }
+
+    private IntPostings insert(long gram) {
+        if ((grams + 1) * 2 > keys.length)
+            rehash();
+        int mask = keys.length - 1;
+        int i = hash(gram) & mask;
+        while (postings[i] != null)
+            i = (i + 1) & mask;
+        keys[i] = gram;
+        grams++;
+        return postings[i] = new IntPostings();
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        IntPostings[] oldPostings = postings;
+        keys = new long[oldKeys.length * 2];
+        postings = new IntPostings[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int k = 0; k < oldKeys.length; k++) {
+            if (oldPostings[k] == null)
+                continue;
+            int i = hash(oldKeys[k]) & mask;
+            while (postings[i] != null)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[k];
+            postings[i] = oldPostings[k];
+        }
+    }
+
+    private static int hash(long gram) {
+        long h = gram * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * A sorted set of candidate ids.
+     */
+    public static final class Candidates {
+
+        /**
+         * No candidates.
+         */
+        public static final Candidates NONE = new Candidates(new int[0], true);
+
+        private final int[] ids;
+
+        private final boolean exact;
+
+        Candidates(int[] ids, boolean exact) {
+            this.ids = ids;
+            this.exact = exact;
+        }
+
+        /**
+         * The candidate ids (sorted ascending). This must not be modified.
+         */
+        public int[] ids() {
+            return ids;
+        }
+
+        /**
+         * The number of candidates.
+         */
+        public int size() {
+            return ids.length;
+        }
+
+        /**
+         * Determines if all the candidates are known to match (so do not need
+         * to be verified).
+         */
+        public boolean exact() {
+            return exact;
+        }
+
+        /**
+         * The candidates in both this and the passed candidates.
+         */
+        public Candidates and(Candidates other) {
+            int[] result = new int[Math.min(ids.length, other.ids.length)];
+            int i = 0, j = 0, k = 0;
+            while ((i < ids.length) && (j < other.ids.length)) {
+                if (ids[i] < other.ids[j])
+                    i++;
+                else if (ids[i] > other.ids[j])
+                    j++;
+                else {
+                    result[k++] = ids[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new Candidates(Arrays.copyOf(result, k), exact && other.exact);
+        }
+
+        /**
+         * The candidates in either this or the passed candidates.
+         */
+        public Candidates or(Candidates other) {
+            int[] result = new int[ids.length + other.ids.length];
+            int i = 0, j = 0, k = 0;
+            while ((i < ids.length) || (j < other.ids.length)) {
+                if ((j >= other.ids.length) || ((i < ids.length) && (ids[i] < other.ids[j])))
+                    result[k++] = ids[i++];
+                else if ((i >= ids.length) || (other.ids[j] < ids[i]))
+                    result[k++] = other.ids[j++];
+                else {
+                    result[k++] = ids[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new Candidates(Arrays.copyOf(result, k), exact && other.exact);
+        }
+
+        /**
+         * Marks these candidates as requiring verification.
+         */
+        public Candidates inexact() {
+            return exact ? new Candidates(ids, false) : this;
+        }
+    }
+}
@@ -123,6 +123,19 @@ public class BaseNode extends SimpleNode {
         return node.image;
     }
 
+    /**
+     * Releases the reference to the parser (and, transitively, its token chain)
+     * from this node and its descendants. Used once parsing has completed so
+     * that a retained (i.e. cached) tree holds only what it needs to build.
+     */
+    protected void detach() {
+        parser = null;
+        if (children != null) {
+            for (int i = 0; i < children.length; i++)
+                ((BaseNode) children[i]).detach();
+        }
+    }
+
     /**
      * Print the node tree for debugging.
      */
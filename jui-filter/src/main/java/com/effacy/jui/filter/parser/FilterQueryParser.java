@@ -13,7 +13,12 @@ public class FilterQueryParser/*@bgen(jjtree)*/implements FilterQueryParserTreeC
   protected JJTFilterQueryParserState jjtree = new JJTFilterQueryParserState();
     public static ParsedExpression parse(String content) throws FilterQueryParserException {
         try {
-            return new ParsedExpression (new FilterQueryParser(content).parse());
+            FilterQueryParser parser;
+            if (StringCharStream.applicable(content))
+                parser = new FilterQueryParser(new FilterQueryParserTokenManager(new StringCharStream(content)));
+            else
+                parser = new FilterQueryParser(content);
+            return new ParsedExpression (parser.parse());
         } catch (java.lang.Throwable e) {
             throw new FilterQueryParserException(e.getMessage ());
         }
@@ -23,6 +28,7 @@ public class FilterQueryParser/*@bgen(jjtree)*/implements FilterQueryParserTreeC
         protected AstRoot root;
         ParsedExpression(AstRoot root) {
             this.root = root;
+            root.detach();
         }
         public <T> T build(IExpressionBuilder<T,String> builder) throws ExpressionBuildException {
             return root.build(builder);
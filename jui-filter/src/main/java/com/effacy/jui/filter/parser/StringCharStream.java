@@ -0,0 +1,268 @@
+package com.effacy.jui.filter.parser;
+
+import java.io.IOException;
+
+/**
+ * A character stream over a string that reads characters directly from the
+ * string by index (so does not employ any of the buffering performed by
+ * {@link JavaCharStream}). Token images are substrings of the content and line
+ * and column information is calculated on demand.
+ * <p>
+ * This does not perform unicode escape processing so is only applicable to
+ * content that does not contain a backslash (see {@link #applicable(String)}).
+ * Otherwise the behaviour (including reported line and column positions) is
+ * identical to {@link JavaCharStream} (with a tab size of 1).
+ * <p>
+ * This is not generated code.
+ */
+public class StringCharStream extends JavaCharStream {
+
+    /**
+     * End-of-stream signal. The token manager only uses this to detect the end
+     * of input (it is reached once per parse) so the stack trace is not
+     * captured, which is the bulk of the cost of creating an exception. A fresh
+     * instance is thrown each time rather than sharing one, as a shared
+     * exception would be thrown from every stream and carry any state (causes
+     * or suppressed exceptions) attached to it by whoever caught it last.
+     */
+    static final class EndOfStream extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        EndOfStream() {
+            super("EOF");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * Determines if the given content can be processed by this stream.
+     *
+     * @param content
+     *                the content.
+     * @return {@code true} if it can.
+     */
+    public static boolean applicable(String content) {
+        return (content != null) && (content.indexOf('\\') < 0);
+    }
+
+    /**
+     * The content being read.
+     */
+    private final String content;
+
+    /**
+     * Index of the last character read (-1 if none have been read).
+     */
+    private int pos = -1;
+
+    /**
+     * Index of the first character of the current token.
+     */
+    private int begin = 0;
+
+    /**
+     * Start index of each line (only populated when the content spans more
+     * than one line).
+     */
+    private int[] lineStarts;
+
+    /**
+     * Index from which positions are adjusted (see
+     * {@link #adjustBeginLineColumn(int, int)}), -1 if there is no adjustment.
+     */
+    private int adjusted = -1;
+
+    /**
+     * The line assigned to the character at {@link #adjusted}.
+     */
+    private int adjustedLine;
+
+    /**
+     * The column assigned to the character at {@link #adjusted}.
+     */
+    private int adjustedColumn;
+
+    /**
+     * Construct over the given content.
+     *
+     * @param content
+     *                the content to read (see {@link #applicable(String)}).
+     */
+    public StringCharStream(String content) {
+        // None of the buffers are used so these are kept to a minimum.
+        super(new StringProvider(content), 1, 1, 1);
+        this.content = content;
+        for (int i = 0, len = content.length(); i < len; i++) {
+            char ch = content.charAt(i);
+            if ((ch == '\n') || (ch == '\r')) {
+                lineStarts = lineStarts(content);
+                break;
+            }
+        }
+    }
+
+    @Override
+    public char BeginToken() throws IOException {
+        if (pos + 1 >= content.length()) {
+            // Mirrors JavaCharStream where the end-of-stream token is
+            // positioned at the last character read.
+            begin = pos;
+            throw new EndOfStream();
+        }
+        begin = ++pos;
+        return content.charAt(pos);
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        if (pos + 1 >= content.length())
+            throw new EndOfStream();
+        return content.charAt(++pos);
+    }
+
+    @Override
+    public void backup(int amount) {
+        pos -= amount;
+    }
+
+    @Override
+    public String GetImage() {
+        return content.substring(begin, pos + 1);
+    }
+
+    @Override
+    public char[] GetSuffix(int len) {
+        char[] ret = new char[len];
+        content.getChars(pos - len + 1, pos + 1, ret, 0);
+        return ret;
+    }
+
+    @Override
+    @Deprecated
+    public int getColumn() {
+        return getEndColumn();
+    }
+
+    @Override
+    @Deprecated
+    public int getLine() {
+        return getEndLine();
+    }
+
+    @Override
+    public int getEndColumn() {
+        return column(pos);
+    }
+
+    @Override
+    public int getEndLine() {
+        return line(pos);
+    }
+
+    @Override
+    public int getBeginColumn() {
+        return column(begin);
+    }
+
+    @Override
+    public int getBeginLine() {
+        return line(begin);
+    }
+
+    @Override
+    public void Done() {
+        // Nothing to release.
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * As with {@link JavaCharStream} the current token is moved to the given
+     * position along with everything read after it: subsequent characters on
+     * the same line are shifted by the same number of columns and subsequent
+     * lines are renumbered (retaining their columns). The adjusted token is
+     * reported as for {@link JavaCharStream}, though that class positions
+     * subsequent tokens from stale buffer entries so they may differ.
+     */
+    @Override
+    public void adjustBeginLineColumn(int newLine, int newCol) {
+        if (begin < 0)
+            return;
+        adjusted = begin;
+        adjustedLine = newLine;
+        adjustedColumn = newCol;
+    }
+
+    /**
+     * The (1-based) line of the character at the given index.
+     */
+    private int line(int idx) {
+        if ((adjusted >= 0) && (idx >= adjusted))
+            return adjustedLine + unadjustedLine(idx) - unadjustedLine(adjusted);
+        return unadjustedLine(idx);
+    }
+
+    /**
+     * The (1-based) line of the character at the given index in the content.
+     */
+    private int unadjustedLine(int idx) {
+        if (lineStarts == null)
+            return 1;
+        int lo = 0, hi = lineStarts.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (lineStarts[mid] <= idx)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo + 1;
+    }
+
+    /**
+     * The (1-based) column of the character at the given index (or 0 if no
+     * character has been read).
+     */
+    private int column(int idx) {
+        if (idx < 0)
+            return 0;
+        if ((adjusted >= 0) && (idx >= adjusted) && (unadjustedLine(idx) == unadjustedLine(adjusted)))
+            return adjustedColumn + idx - adjusted;
+        return unadjustedColumn(idx);
+    }
+
+    /**
+     * The (1-based) column of the character at the given index in the content.
+     */
+    private int unadjustedColumn(int idx) {
+        if (lineStarts == null)
+            return idx + 1;
+        return idx - lineStarts[unadjustedLine(idx) - 1] + 1;
+    }
+
+    /**
+     * Determines the start index of each line. A line ends on a newline, a
+     * carriage return or a carriage return / newline pair.
+     */
+    private static int[] lineStarts(String content) {
+        int len = content.length();
+        int count = 1;
+        for (int i = 0; i < len; i++) {
+            char ch = content.charAt(i);
+            if ((ch == '\n') || ((ch == '\r') && ((i + 1 >= len) || (content.charAt(i + 1) != '\n'))))
+                count++;
+        }
+        int[] starts = new int[count];
+        for (int i = 0, j = 1; i < len; i++) {
+            char ch = content.charAt(i);
+            if ((ch == '\n') || ((ch == '\r') && ((i + 1 >= len) || (content.charAt(i + 1) != '\n'))))
+                starts[j++] = i + 1;
+        }
+        return starts;
+    }
+}
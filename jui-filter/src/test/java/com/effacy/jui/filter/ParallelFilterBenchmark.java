@@ -0,0 +1,113 @@
+package com.effacy.jui.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder;
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.PredicateExpressionBuilder;
+import com.effacy.jui.rpc.handler.client.query.PageQuery;
+
+/**
+ * Measures the scaling of {@link ParallelFilter} across cores (by way of the
+ * pool parallelism) compared to a sequential scan:
+ * <ul>
+ * <li>{@code filter_*} collects all matches (about 15% of records).</li>
+ * <li>{@code count} counts matches (no collection).</li>
+ * <li>{@code page} obtains the second page of 50 matches in encounter order
+ * (terminating early).</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class ParallelFilterBenchmark {
+
+    enum Fields {
+        NAME, STATUS, SCORE;
+    }
+
+    static final PredicateExpressionBuilder<Object[],Fields> PREDICATES = PredicateExpressionBuilder.create((r, f) -> r[f.ordinal()]);
+
+    @Param({ "5000000" })
+    public int records;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    private List<Object[]> data;
+
+    private ForkJoinPool pool;
+
+    private Predicate<Object[]> predicate;
+
+    private ParallelFilter<Object[]> filter;
+
+    @Setup
+    public void setup() throws Exception {
+        Random rand = new Random(42);
+        String[] statuses = { "ACTIVE", "INACTIVE", "ARCHIVED" };
+        data = new ArrayList<>(records);
+        for (int i = 0; i < records; i++)
+            data.add(new Object[] { "name" + rand.nextInt(100000), statuses[rand.nextInt(3)], rand.nextInt(100) });
+        Expression<Fields> exp = new ExpressionBuilder<>(Fields.class).deserialise("STATUS = ACTIVE AND SCORE >= 50 AND NAME CONTAINS \"1\"");
+        predicate = exp.build(PREDICATES);
+        pool = new ForkJoinPool(threads);
+        filter = ParallelFilter.create(exp, PREDICATES).pool(pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int sequential() {
+        int count = 0;
+        for (Object[] record : data) {
+            if (predicate.test(record))
+                count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int filter_ordered() {
+        return filter.filter(data.spliterator(), true).size();
+    }
+
+    @Benchmark
+    public int filter_unordered() {
+        return filter.filter(data.spliterator(), false).size();
+    }
+
+    @Benchmark
+    public long count() {
+        return filter.count(data.spliterator());
+    }
+
+    @Benchmark
+    public int page() {
+        return filter.convert(data, r -> r[0], new PageQuery<>(1, 50)).size();
+    }
+}
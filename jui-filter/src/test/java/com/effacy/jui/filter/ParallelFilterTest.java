@@ -0,0 +1,158 @@
+package com.effacy.jui.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder;
+import com.effacy.jui.filter.builder.PredicateExpressionBuilder;
+import com.effacy.jui.rpc.handler.client.Converter;
+import com.effacy.jui.rpc.handler.client.query.PageQuery;
+
+public class ParallelFilterTest {
+
+    enum Fields {
+        NAME, STATUS, SCORE;
+    }
+
+    record Item(int id, String name, String status, int score) {}
+
+    static final ExpressionBuilder<Fields> BUILDER = new ExpressionBuilder<>(Fields.class);
+
+    static final PredicateExpressionBuilder<Item,Fields> PREDICATES = PredicateExpressionBuilder.create((r, f) -> switch (f) {
+        case NAME -> r.name();
+        case STATUS -> r.status();
+        case SCORE -> r.score();
+    });
+
+    static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    static final List<Item> ITEMS = new ArrayList<>();
+
+    static {
+        Random rand = new Random(7);
+        String[] statuses = { "ACTIVE", "INACTIVE", "ARCHIVED" };
+        for (int i = 0; i < 50000; i++)
+            ITEMS.add(new Item(i, "n" + rand.nextInt(1000), statuses[rand.nextInt(3)], rand.nextInt(100)));
+    }
+
+    @AfterAll
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+
+    private ParallelFilter<Item> filter(String filter) throws Exception {
+        return ParallelFilter.create(BUILDER.deserialise(filter), PREDICATES).pool(POOL).minPartitionSize(100).chunkSize(64);
+    }
+
+    private List<Item> sequential(String filter) throws Exception {
+        Predicate<Item> p = BUILDER.deserialise(filter).build(PREDICATES);
+        return ITEMS.stream().filter(p).collect(Collectors.toList());
+    }
+
+    @Test
+    public void ordered() throws Exception {
+        String filter = "STATUS = ACTIVE AND SCORE > 50";
+        List<Item> expected = sequential(filter);
+        assertEquals(expected, filter(filter).filter(ITEMS.spliterator(), true));
+        assertEquals(expected, filter(filter).filter(ITEMS.stream().spliterator(), true));
+        assertEquals(expected.size(), filter(filter).count(ITEMS.spliterator()));
+    }
+
+    @Test
+    public void unordered() throws Exception {
+        String filter = "STATUS != ARCHIVED OR NAME STARTS WITH \"n1\"";
+        List<Item> expected = sequential(filter);
+        List<Item> actual = filter(filter).filter(ITEMS.spliterator(), false);
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    }
+
+    @Test
+    public void limit() throws Exception {
+        String filter = "SCORE >= 90";
+        List<Item> expected = sequential(filter);
+
+        // Ordered returns the leading matches.
+        assertEquals(expected.subList(0, 25), filter(filter).limit(ITEMS.spliterator(), 25, true));
+        assertEquals(expected, filter(filter).limit(ITEMS.spliterator(), 1000000, true));
+
+        // Unordered returns any matches.
+        List<Item> actual = filter(filter).limit(ITEMS.spliterator(), 25, false);
+        assertEquals(25, actual.size());
+        assertTrue(new HashSet<>(expected).containsAll(actual));
+    }
+
+    @Test
+    public void early_termination() throws Exception {
+        // Only the leading partitions should be evaluated.
+        AtomicInteger evaluated = new AtomicInteger();
+        ParallelFilter<Item> filter = ParallelFilter.<Item>create(r -> {
+            evaluated.incrementAndGet();
+            return (r.score() > 10);
+        }).pool(POOL).minPartitionSize(100).partitions(64);
+        assertEquals(10, filter.limit(ITEMS.spliterator(), 10, true).size());
+        assertTrue(evaluated.get() < ITEMS.size() / 2, "evaluated " + evaluated.get());
+
+        evaluated.set(0);
+        assertTrue(filter.exists(ITEMS.spliterator()));
+        assertTrue(evaluated.get() < ITEMS.size() / 2, "evaluated " + evaluated.get());
+
+        assertFalse(filter("SCORE > 1000").exists(ITEMS.spliterator()));
+    }
+
+    @Test
+    public void chunks() throws Exception {
+        String filter = "NAME CONTAINS \"9\"";
+        List<Item> expected = sequential(filter);
+
+        List<Item> ordered = new ArrayList<>();
+        filter(filter).forEachChunk(ITEMS.spliterator(), true, chunk -> {
+            assertTrue(chunk.size() <= 64);
+            ordered.addAll(chunk);
+        });
+        assertEquals(expected, ordered);
+
+        List<Item> unordered = new ArrayList<>();
+        filter(filter).forEachChunk(ITEMS.spliterator(), false, chunk -> {
+            assertTrue(chunk.size() <= 64);
+            unordered.addAll(chunk);
+        });
+        assertEquals(new HashSet<>(expected), new HashSet<>(unordered));
+        assertEquals(expected.size(), unordered.size());
+    }
+
+    @Test
+    public void convert() throws Exception {
+        String filter = "STATUS = INACTIVE";
+        Predicate<Item> p = BUILDER.deserialise(filter).build(PREDICATES);
+        List<Integer> expected = sequential(filter).stream().map(v -> v.id()).collect(Collectors.toList());
+        for (int page = 0; page < 3; page++) {
+            PageQuery<Item> query = new PageQuery<>(page, 20);
+            List<Integer> actual = filter(filter).convert(ITEMS, v -> v.id(), query);
+            assertEquals(expected.subList(page * 20, (page + 1) * 20), actual);
+            assertEquals(actual, Converter.convert(ITEMS, p, v -> v.id(), query));
+        }
+
+        // Beyond the end.
+        PageQuery<Item> query = new PageQuery<>(100000, 20);
+        assertTrue(filter(filter).convert(ITEMS, v -> v.id(), query).isEmpty());
+        assertTrue(Converter.convert(ITEMS, p, v -> v.id(), query).isEmpty());
+
+        // Unlimited.
+        assertEquals(expected, filter(filter).convert(ITEMS, v -> v.id(), new PageQuery<>()));
+        assertEquals(expected, Converter.convert(ITEMS, p, v -> v.id(), new PageQuery<>()));
+    }
+}
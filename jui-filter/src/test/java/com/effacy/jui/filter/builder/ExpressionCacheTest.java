@@ -0,0 +1,77 @@
+package com.effacy.jui.filter.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.optimizer.CompositeOptimizer;
+import com.effacy.jui.filter.parser.FilterQueryParser;
+import com.effacy.jui.filter.parser.FilterQueryParser.FilterQueryParserException;
+import com.effacy.jui.filter.parser.FilterQueryParser.ParsedExpression;
+
+public class ExpressionCacheTest {
+
+    enum Fields {
+        NAME, STATUS, AGE;
+    }
+
+    @Test
+    public void hit() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        ExpressionCache<ParsedExpression> cache = new ExpressionCache<>(10);
+        ExpressionCache.ILoader<ParsedExpression> loader = str -> {
+            loads.incrementAndGet();
+            return FilterQueryParser.parse(str);
+        };
+        ParsedExpression p1 = cache.get("STATUS = ACTIVE", loader);
+        ParsedExpression p2 = cache.get("STATUS = ACTIVE", loader);
+        assertSame(p1, p2);
+        assertEquals(1, loads.get());
+        assertEquals("STATUS = ACTIVE", p1.build(StringExpressionBuilder.create()));
+
+        // Failures are not cached.
+        assertThrows(FilterQueryParserException.class, () -> cache.get("STATUS =", loader));
+        assertThrows(FilterQueryParserException.class, () -> cache.get("STATUS =", loader));
+        assertEquals(3, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void bounded() throws Exception {
+        ExpressionCache<String> cache = new ExpressionCache<>(16);
+        for (int i = 0; i < 1000; i++)
+            cache.get("k" + i, str -> str);
+        assertTrue(cache.size() <= 16);
+
+        // Entries that are repeatedly accessed survive eviction.
+        cache.clear();
+        String hot = cache.get("hot", str -> new String(str));
+        for (int i = 0; i < 1000; i++) {
+            cache.get("k" + i, str -> str);
+            assertSame(hot, cache.get("hot", str -> new String(str)));
+        }
+    }
+
+    @Test
+    public void deserialise() throws Exception {
+        ExpressionBuilder<Fields> builder = new ExpressionBuilder<>(Fields.class);
+        assertNotSame(builder.deserialise("STATUS = ACTIVE"), builder.deserialise("STATUS = ACTIVE"));
+
+        builder.cache(10);
+        Expression<Fields> exp = builder.deserialise("STATUS = ACTIVE");
+        assertSame(exp, builder.deserialise("STATUS = ACTIVE"));
+
+        // With optimization.
+        builder.cache(10, CompositeOptimizer.standard());
+        exp = builder.deserialise("AGE > 5 AND AGE > 10");
+        assertEquals("AGE > 10", builder.serialise(exp));
+        assertSame(exp, builder.deserialise("AGE > 5 AND AGE > 10"));
+    }
+}
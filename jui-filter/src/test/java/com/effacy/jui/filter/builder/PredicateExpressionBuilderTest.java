@@ -0,0 +1,112 @@
+package com.effacy.jui.filter.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.IExpressionBuilder.Operator;
+
+public class PredicateExpressionBuilderTest {
+
+    enum Fields {
+        NAME, AGE, STATUS;
+    }
+
+    enum Status {
+        ACTIVE, INACTIVE, ARCHIVED;
+    }
+
+    record Person(String name, int age, Status status) {}
+
+    static final ExpressionBuilder<Fields> BUILDER = new ExpressionBuilder<>(Fields.class);
+
+    static final PredicateExpressionBuilder<Person,Fields> PREDICATE = PredicateExpressionBuilder.create((r, f) -> switch (f) {
+        case NAME -> r.name();
+        case AGE -> r.age();
+        case STATUS -> r.status();
+    });
+
+    static final List<Person> PEOPLE = List.of(
+        new Person("Alice Smith", 34, Status.ACTIVE),
+        new Person("Bob Jones", 27, Status.INACTIVE),
+        new Person("Carol Smith", 45, Status.ARCHIVED),
+        new Person("Dan Brown", 19, Status.ACTIVE),
+        new Person(null, 60, null)
+    );
+
+    private String apply(Expression<Fields> exp) {
+        Predicate<Person> p = exp.build(PREDICATE);
+        return PEOPLE.stream().filter(p).map(v -> (v.name() == null) ? "-" : v.name().split(" ")[0]).collect(Collectors.joining(","));
+    }
+
+    @Test
+    public void equality() {
+        assertEquals("Alice,Dan", apply(BUILDER.term(Fields.STATUS, Operator.EQ, Status.ACTIVE)));
+        assertEquals("Bob,Carol,-", apply(BUILDER.term(Fields.STATUS, Operator.NEQ, Status.ACTIVE)));
+        assertEquals("Bob", apply(BUILDER.term(Fields.AGE, Operator.EQ, 27L)));
+        assertEquals("Bob", apply(BUILDER.term(Fields.STATUS, Operator.EQ, new IExpressionBuilder.Literal("INACTIVE"))));
+    }
+
+    @Test
+    public void ordering() {
+        assertEquals("Carol,-", apply(BUILDER.term(Fields.AGE, Operator.GT, 34)));
+        assertEquals("Alice,Carol,-", apply(BUILDER.term(Fields.AGE, Operator.GTE, 34)));
+        assertEquals("Bob,Dan", apply(BUILDER.term(Fields.AGE, Operator.LT, 34.0)));
+        assertEquals("Alice,Bob,Dan", apply(BUILDER.term(Fields.AGE, Operator.LTE, 34)));
+        assertEquals("Carol,Dan", apply(BUILDER.term(Fields.NAME, Operator.GT, "C")));
+    }
+
+    @Test
+    public void membership() {
+        assertEquals("Alice,Carol,Dan", apply(BUILDER.term(Fields.STATUS, Operator.IN, new Status[] { Status.ACTIVE, Status.ARCHIVED })));
+        assertEquals("Bob,-", apply(BUILDER.term(Fields.STATUS, Operator.NOT_IN, new Status[] { Status.ACTIVE, Status.ARCHIVED })));
+
+        // Large enough to use the set lookup.
+        List<Object> ages = new ArrayList<>();
+        for (int i = 20; i < 50; i++)
+            ages.add(Long.valueOf(i));
+        assertEquals("Alice,Bob,Carol", apply(BUILDER.term(Fields.AGE, Operator.IN, ages)));
+        assertEquals("Dan,-", apply(BUILDER.term(Fields.AGE, Operator.NOT_IN, ages)));
+    }
+
+    @Test
+    public void strings() {
+        assertEquals("Alice,Carol", apply(BUILDER.term(Fields.NAME, Operator.CONTAINS, "Smith")));
+        assertEquals("Bob", apply(BUILDER.term(Fields.NAME, Operator.STARTS_WITH, "Bob")));
+        assertEquals("Dan", apply(BUILDER.term(Fields.NAME, Operator.ENDS_WITH, "own")));
+        assertEquals("", apply(BUILDER.term(Fields.NAME, Operator.CONTAINS, "smith")));
+
+        // Literals (unquoted values) match on their value.
+        assertEquals("Alice,Carol", apply(BUILDER.term(Fields.NAME, Operator.CONTAINS, new IExpressionBuilder.Literal("Smith"))));
+        assertEquals("Bob", apply(BUILDER.term(Fields.NAME, Operator.STARTS_WITH, new IExpressionBuilder.Literal("Bob"))));
+        assertEquals("Dan", apply(BUILDER.term(Fields.NAME, Operator.ENDS_WITH, new IExpressionBuilder.Literal("Brown"))));
+    }
+
+    @Test
+    public void parsed() throws Exception {
+        assertEquals("Alice,Carol", apply(BUILDER.deserialise("NAME CONTAINS Smith")));
+        assertEquals("Bob", apply(BUILDER.deserialise("NAME STARTS WITH Bob")));
+        assertEquals("Dan", apply(BUILDER.deserialise("NAME ENDS WITH \"Brown\" AND STATUS = ACTIVE")));
+    }
+
+    @Test
+    public void logic() {
+        assertEquals("Alice", apply(BUILDER.and(
+            BUILDER.term(Fields.NAME, Operator.CONTAINS, "Smith"),
+            BUILDER.term(Fields.STATUS, Operator.EQ, Status.ACTIVE)
+        )));
+        assertEquals("Alice,Carol,Dan", apply(BUILDER.or(
+            BUILDER.term(Fields.NAME, Operator.CONTAINS, "Smith"),
+            BUILDER.term(Fields.STATUS, Operator.EQ, Status.ACTIVE)
+        )));
+        assertEquals("Bob,Dan,-", apply(BUILDER.not(BUILDER.term(Fields.NAME, Operator.CONTAINS, "Smith"))));
+        assertEquals("Alice,Bob,Carol,Dan,-", apply(BUILDER.bool(true)));
+        assertEquals("", apply(BUILDER.bool(false)));
+    }
+}
@@ -0,0 +1,145 @@
+package com.effacy.jui.filter.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.IExpressionBuilder.Literal;
+import com.effacy.jui.filter.builder.IExpressionBuilder.Operator;
+import com.effacy.jui.filter.builder.optimizer.CompositeOptimizer;
+import com.effacy.jui.filter.builder.optimizer.IExpressionStatistics;
+import com.effacy.jui.filter.builder.optimizer.SelectivityOptimizer;
+import com.effacy.jui.filter.parser.FilterQueryParser;
+
+/**
+ * Measures in-memory evaluation of filters in author order against the order
+ * produced by {@link SelectivityOptimizer} (with and without statistics) over
+ * skewed synthetic data.
+ * <p>
+ * The data is skewed so that the status is ACTIVE for 90% of records, the
+ * region follows a Zipf-like distribution over 50 values and names are long
+ * random strings (so CONTAINS is expensive and rarely matches).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectivityOptimizerBenchmark {
+
+    enum Fields {
+        NAME, STATUS, REGION, SCORE;
+    }
+
+    static final ExpressionBuilder<Fields> BUILDER = new ExpressionBuilder<>(Fields.class);
+
+    static final PredicateExpressionBuilder<Object[],Fields> PREDICATES = PredicateExpressionBuilder.create((r, f) -> r[f.ordinal()]);
+
+    @Param({ "100000" })
+    public int records;
+
+    @Param({
+        "NAME CONTAINS \"qqq\" AND STATUS = ACTIVE AND REGION = R7",
+        "NAME CONTAINS \"qq\" OR SCORE > 10 OR STATUS = ACTIVE",
+        "(NAME ENDS WITH \"zz\" OR NAME CONTAINS \"abc\") AND SCORE >= 90 AND REGION IN [R1, R2]"
+    })
+    public String filter;
+
+    private List<Object[]> data;
+
+    private Predicate<Object[]> authored;
+
+    private Predicate<Object[]> heuristic;
+
+    private Predicate<Object[]> statistics;
+
+    @Setup
+    public void setup() throws Exception {
+        Random rand = new Random(42);
+        data = new ArrayList<>(records);
+        long[] regionCounts = new long[50];
+        for (int i = 0; i < records; i++) {
+            char[] name = new char[64];
+            for (int j = 0; j < name.length; j++)
+                name[j] = (char) ('a' + rand.nextInt(26));
+            String status = (rand.nextInt(10) < 9) ? "ACTIVE" : "INACTIVE";
+            int region = Math.max(0, Math.min(49, (int) (1.0 / (rand.nextDouble() + 0.02)) - 1));
+            regionCounts[region]++;
+            data.add(new Object[] { new String(name), status, "R" + region, rand.nextInt(100) });
+        }
+
+        Expression<Fields> exp = FilterQueryParser.parse(filter).build(BUILDER.mapped(v -> Fields.valueOf(v)));
+        authored = exp.build(PREDICATES);
+        heuristic = exp.optimize(new CompositeOptimizer<Fields>(CompositeOptimizer.<Fields>standard(), new SelectivityOptimizer<Fields>())).build(PREDICATES);
+
+        // Statistics derived from the data.
+        int total = records;
+        IExpressionStatistics<Fields> stats = new IExpressionStatistics<Fields>() {
+
+            @Override
+            public long cardinality(Fields field) {
+                switch (field) {
+                    case STATUS: return 2;
+                    case REGION: return 50;
+                    case SCORE: return 100;
+                    default: return total;
+                }
+            }
+
+            @Override
+            public double selectivity(Fields field, Operator operator, Object value) {
+                String str = (value instanceof Literal) ? ((Literal) value).value() : String.valueOf(value);
+                if ((field == Fields.STATUS) && (operator == Operator.EQ))
+                    return "ACTIVE".equals(str) ? 0.9 : 0.1;
+                if ((field == Fields.REGION) && (operator == Operator.EQ)) {
+                    int region = Integer.parseInt(str.substring(1));
+                    return (double) regionCounts[region] / total;
+                }
+                if (field == Fields.NAME)
+                    return 0.001;
+                return -1;
+            }
+        };
+        statistics = exp.optimize(new CompositeOptimizer<Fields>(CompositeOptimizer.<Fields>standard(), new SelectivityOptimizer<Fields>(stats))).build(PREDICATES);
+    }
+
+    private int count(Predicate<Object[]> predicate) {
+        int count = 0;
+        for (Object[] record : data) {
+            if (predicate.test(record))
+                count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int authored() {
+        return count(authored);
+    }
+
+    @Benchmark
+    public int heuristic() {
+        return count(heuristic);
+    }
+
+    @Benchmark
+    public int statistics() {
+        return count(statistics);
+    }
+}
@@ -0,0 +1,163 @@
+package com.effacy.jui.filter.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.IExpressionBuilder.Operator;
+import com.effacy.jui.filter.builder.optimizer.CompositeOptimizer;
+import com.effacy.jui.filter.builder.optimizer.IExpressionOptimizer;
+import com.effacy.jui.filter.builder.optimizer.IExpressionStatistics;
+import com.effacy.jui.filter.builder.optimizer.SelectivityCostModel;
+import com.effacy.jui.filter.builder.optimizer.SelectivityOptimizer;
+import com.effacy.jui.filter.parser.FilterQueryParser;
+
+public class SelectivityOptimizerTest {
+
+    enum Fields {
+        NAME, STATUS, COUNTRY, AGE;
+    }
+
+    static final ExpressionBuilder<Fields> BUILDER = new ExpressionBuilder<>(Fields.class);
+
+    private Expression<Fields> parse(String str) throws Exception {
+        return FilterQueryParser.parse(str).build(BUILDER.mapped(v -> Fields.valueOf(v)));
+    }
+
+    private String str(Expression<Fields> exp) {
+        return exp.build(StringExpressionBuilder.<Fields>remap(f -> f.name()));
+    }
+
+    @Test
+    public void heuristic_and() throws Exception {
+        Expression<Fields> exp = parse("NAME CONTAINS \"smith\" AND AGE > 20 AND STATUS = ACTIVE");
+        Expression<Fields> optimized = exp.optimize(new SelectivityOptimizer<>());
+
+        // Parsing nests the AND terms. Equality is cheapest and most selective,
+        // CONTAINS the most expensive.
+        assertEquals("(STATUS = ACTIVE AND (AGE > 20 AND NAME CONTAINS \"smith\"))", str(optimized));
+    }
+
+    @Test
+    public void heuristic_and_flattened() throws Exception {
+        Expression<Fields> exp = parse("NAME CONTAINS \"smith\" AND AGE > 20 AND STATUS = ACTIVE");
+        IExpressionOptimizer<Fields> optimizer = new CompositeOptimizer<Fields>(CompositeOptimizer.<Fields>standard(), new SelectivityOptimizer<Fields>());
+        Expression<Fields> optimized = exp.optimize(optimizer);
+
+        assertEquals("(STATUS = ACTIVE AND AGE > 20 AND NAME CONTAINS \"smith\")", str(optimized));
+    }
+
+    @Test
+    public void heuristic_or() throws Exception {
+        // For OR the term most likely to pass (per unit cost) goes first.
+        Expression<Fields> exp = parse("STATUS = ACTIVE OR NAME CONTAINS \"smith\" OR STATUS != ARCHIVED");
+        Expression<Fields> optimized = exp.optimize(new SelectivityOptimizer<>());
+
+        assertEquals("(STATUS != ARCHIVED OR (STATUS = ACTIVE OR NAME CONTAINS \"smith\"))", str(optimized));
+    }
+
+    @Test
+    public void heuristic_nested() throws Exception {
+        Expression<Fields> exp = parse("(NAME CONTAINS \"a\" OR NAME CONTAINS \"b\") AND NOT(AGE > 20 AND STATUS = ACTIVE) AND COUNTRY = AU");
+        Expression<Fields> optimized = exp.optimize(new CompositeOptimizer<Fields>(new SelectivityOptimizer<Fields>()));
+
+        // The negated AND almost always passes so is evaluated last.
+        assertEquals("(COUNTRY = AU AND ((NAME CONTAINS \"a\" OR NAME CONTAINS \"b\") AND (NOT (STATUS = ACTIVE AND AGE > 20))))", str(optimized));
+    }
+
+    @Test
+    public void unchanged() throws Exception {
+        Expression<Fields> exp = parse("STATUS = ACTIVE AND AGE > 20");
+        assertSame(exp, exp.optimize(new SelectivityOptimizer<>()));
+
+        // Equal ranks retain their order.
+        exp = parse("STATUS = ACTIVE AND COUNTRY = AU");
+        assertSame(exp, exp.optimize(new SelectivityOptimizer<>()));
+    }
+
+    @Test
+    public void statistics() throws Exception {
+        // STATUS has only two values so is less selective than a range on AGE
+        // which the statistics say is very selective.
+        IExpressionStatistics<Fields> statistics = new IExpressionStatistics<Fields>() {
+
+            @Override
+            public long cardinality(Fields field) {
+                return (field == Fields.STATUS) ? 2 : -1;
+            }
+
+            @Override
+            public double selectivity(Fields field, Operator operator, Object value) {
+                return (field == Fields.AGE) ? 0.01 : -1;
+            }
+        };
+        Expression<Fields> exp = parse("STATUS = ACTIVE AND AGE > 90");
+        assertEquals("(STATUS = ACTIVE AND AGE > 90)", str(exp.optimize(new SelectivityOptimizer<>())));
+        assertEquals("(AGE > 90 AND STATUS = ACTIVE)", str(exp.optimize(new SelectivityOptimizer<>(statistics))));
+    }
+
+    @Test
+    public void cost_model() throws Exception {
+        SelectivityCostModel<Fields> model = new SelectivityCostModel<>();
+
+        // Single EQ: cost 1, selectivity 0.1.
+        SelectivityCostModel.Estimate e = model.estimate(parse("STATUS = ACTIVE"));
+        assertEquals(1.0, e.cost(), 0.0001);
+        assertEquals(0.1, e.selectivity(), 0.0001);
+
+        // AND: the CONTAINS is only evaluated for 10% of records.
+        e = model.estimate(parse("STATUS = ACTIVE AND NAME CONTAINS \"x\""));
+        assertEquals(1.5, e.cost(), 0.0001);
+        assertEquals(0.025, e.selectivity(), 0.0001);
+
+        // Reversed is more expensive.
+        e = model.estimate(parse("NAME CONTAINS \"x\" AND STATUS = ACTIVE"));
+        assertEquals(5.25, e.cost(), 0.0001);
+    }
+
+    /**
+     * Verifies that reordering preserves the semantics of the expression when
+     * evaluated in-memory.
+     */
+    @Test
+    public void equivalence() throws Exception {
+        String[] filters = {
+            "NAME CONTAINS \"ab\" AND AGE > 20 AND STATUS = ACTIVE",
+            "NAME STARTS WITH \"a\" OR AGE <= 30 OR STATUS IN [ACTIVE, INACTIVE]",
+            "(NAME ENDS WITH \"c\" OR COUNTRY = AU) AND NOT(AGE < 50 AND STATUS != ARCHIVED)",
+            "NOT(NAME CONTAINS \"b\" OR COUNTRY NOT IN [AU, NZ]) AND AGE >= 40",
+        };
+        PredicateExpressionBuilder<Object[],Fields> predicates = PredicateExpressionBuilder.create((r, f) -> r[f.ordinal()]);
+        Random rand = new Random(1);
+        String[] statuses = { "ACTIVE", "INACTIVE", "ARCHIVED" };
+        String[] countries = { "AU", "NZ", "UK", "US" };
+        List<Object[]> records = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int j = 0; j < 4; j++)
+                name.append((char) ('a' + rand.nextInt(4)));
+            records.add(new Object[] { name.toString(), statuses[rand.nextInt(3)], countries[rand.nextInt(4)], rand.nextInt(80) });
+        }
+        for (String filter : filters) {
+            Expression<Fields> exp = parse(filter);
+            Expression<Fields> optimized = exp.optimize(new SelectivityOptimizer<>());
+            Predicate<Object[]> p1 = exp.build(predicates);
+            Predicate<Object[]> p2 = optimized.build(predicates);
+            int matches = 0;
+            for (Object[] record : records) {
+                assertEquals(p1.test(record), p2.test(record), filter);
+                if (p1.test(record))
+                    matches++;
+            }
+            assertTrue(matches > 0, filter);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.effacy.jui.filter.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.IExpressionBuilder.Literal;
+import com.effacy.jui.filter.builder.IExpressionBuilder.Operator;
+import com.effacy.jui.filter.builder.PredicateExpressionBuilder.IValueResolver;
+
+/**
+ * Measures the cost of answering a stream of search sessions by scanning the
+ * records for every query against answering them through a
+ * {@link SubsumptionCache}.
+ * <p>
+ * Each session models a user progressively narrowing a search: a status
+ * filter, then a minimum score, then a name substring that is extended a
+ * character at a time (with an occasional broadening step that must go back
+ * to the records). Sessions are independent (the cache is cleared between
+ * them) and the hit rate (direct hits and refinements against all lookups) is
+ * reported on tear down.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubsumptionCacheBenchmark {
+
+    enum Fields {
+        NAME, STATUS, SCORE;
+    }
+
+    static final ExpressionBuilder<Fields> BUILDER = new ExpressionBuilder<>(Fields.class);
+
+    static final String[] STATUSES = { "ACTIVE", "PENDING", "CLOSED", "ARCHIVED" };
+
+    static final IValueResolver<Object[],Fields> RESOLVER = (r, f) -> r[f.ordinal()];
+
+    @Param({ "100000" })
+    public int records;
+
+    private List<Object[]> data;
+
+    private List<List<Expression<Fields>>> sessions;
+
+    private SubsumptionCache<Object[],Fields> cache;
+
+    private PredicateExpressionBuilder<Object[],Fields> predicates;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(42);
+        data = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            char[] name = new char[6 + rand.nextInt(10)];
+            for (int j = 0; j < name.length; j++)
+                name[j] = (char) ('a' + rand.nextInt(8));
+            data.add(new Object[] { new String(name), STATUSES[rand.nextInt(STATUSES.length)], rand.nextInt(100) });
+        }
+        sessions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            List<Expression<Fields>> session = new ArrayList<>();
+            Expression<Fields> status = BUILDER.term(Fields.STATUS, Operator.IN, new Object[] { new Literal(STATUSES[rand.nextInt(2)]), new Literal(STATUSES[2 + rand.nextInt(2)]) });
+            session.add(status);
+            int score = rand.nextInt(50);
+            Expression<Fields> scored = status.and(BUILDER.term(Fields.SCORE, Operator.GT, score));
+            session.add(scored);
+            String keywords = "";
+            for (int j = 0; j < 4; j++) {
+                keywords += (char) ('a' + rand.nextInt(8));
+                session.add(scored.and(BUILDER.term(Fields.NAME, Operator.CONTAINS, keywords)));
+            }
+            // Broaden the score (a miss) then narrow again.
+            Expression<Fields> broadened = status.and(BUILDER.term(Fields.SCORE, Operator.GT, score / 2));
+            session.add(broadened);
+            session.add(broadened.and(BUILDER.term(Fields.NAME, Operator.CONTAINS, keywords)));
+            sessions.add(session);
+        }
+        predicates = PredicateExpressionBuilder.create(RESOLVER);
+        cache = new SubsumptionCache<>(RESOLVER, 16);
+    }
+
+    @TearDown
+    public void tearDown() {
+        long lookups = cache.hits() + cache.refinements() + cache.misses();
+        if (lookups > 0)
+            System.out.println("hits=" + cache.hits() + " refinements=" + cache.refinements() + " misses=" + cache.misses() + " hit-rate=" + ((cache.hits() + cache.refinements()) * 100 / lookups) + "%");
+    }
+
+    @Benchmark
+    public int scan() {
+        int count = 0;
+        for (List<Expression<Fields>> session : sessions) {
+            for (Expression<Fields> expression : session)
+                count += load(expression).size();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int cached() {
+        int count = 0;
+        for (List<Expression<Fields>> session : sessions) {
+            cache.clear();
+            for (Expression<Fields> expression : session)
+                count += cache.get(expression, this::load).size();
+        }
+        return count;
+    }
+
+    private List<Object[]> load(Expression<Fields> expression) {
+        Predicate<Object[]> predicate = expression.build(predicates);
+        List<Object[]> results = new ArrayList<>();
+        for (Object[] record : data) {
+            if (predicate.test(record))
+                results.add(record);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,109 @@
+package com.effacy.jui.filter.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.PredicateExpressionBuilder.IValueResolver;
+import com.effacy.jui.filter.parser.FilterQueryParser;
+
+public class SubsumptionCacheTest {
+
+    enum Fields {
+        NAME, STATUS, AGE;
+    }
+
+    enum Status {
+        ACTIVE, PENDING, CLOSED;
+    }
+
+    record Person(String name, Status status, int age) {}
+
+    static final ExpressionBuilder<Fields> BUILDER = new ExpressionBuilder<>(Fields.class);
+
+    static final IValueResolver<Person,Fields> RESOLVER = (r, f) -> switch (f) {
+        case NAME -> r.name();
+        case STATUS -> r.status();
+        case AGE -> r.age();
+    };
+
+    private Expression<Fields> parse(String str) throws Exception {
+        return FilterQueryParser.parse(str).build(BUILDER.mapped(v -> Fields.valueOf(v)));
+    }
+
+    private List<Person> people(int count) {
+        Random rand = new Random(11);
+        List<Person> people = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            char[] name = new char[3 + rand.nextInt(5)];
+            for (int j = 0; j < name.length; j++)
+                name[j] = (char) ('a' + rand.nextInt(4));
+            people.add(new Person(new String(name), Status.values()[rand.nextInt(3)], rand.nextInt(60)));
+        }
+        return people;
+    }
+
+    @Test
+    public void refinement() throws Exception {
+        List<Person> people = people(2000);
+        AtomicInteger loads = new AtomicInteger();
+        PredicateExpressionBuilder<Person,Fields> predicates = PredicateExpressionBuilder.create(RESOLVER);
+        SubsumptionCache.ILoader<Person,Fields> loader = exp -> {
+            loads.incrementAndGet();
+            Predicate<Person> p = exp.build(predicates);
+            return people.stream().filter(p).collect(Collectors.toList());
+        };
+        SubsumptionCache<Person,Fields> cache = new SubsumptionCache<>(RESOLVER, 8);
+
+        List<Person> r1 = cache.get(parse("STATUS IN [ACTIVE, PENDING]"), loader);
+        assertEquals(1, loads.get());
+
+        // Narrowing is answered by filtering.
+        Expression<Fields> narrowed = parse("STATUS = ACTIVE AND AGE > 18");
+        List<Person> r2 = cache.get(narrowed, loader);
+        assertEquals(1, loads.get());
+        assertEquals(loader.load(narrowed), r2);
+        assertEquals(1, cache.refinements());
+
+        // Further narrowing uses the smaller (refined) result.
+        List<Person> r3 = cache.get(parse("STATUS = ACTIVE AND AGE > 30 AND NAME CONTAINS \"ab\""), loader);
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.refinements());
+        assertEquals(r2.stream().filter(p -> (p.age() > 30) && p.name().contains("ab")).collect(Collectors.toList()), r3);
+
+        // Equivalent expressions hit directly.
+        assertSame(r1, cache.get(parse("STATUS = PENDING OR STATUS = ACTIVE"), loader));
+        assertEquals(1, cache.hits());
+
+        // Broadening must go to the loader.
+        cache.get(parse("AGE > 10"), loader);
+        assertEquals(3, loads.get());
+        assertEquals(2, cache.misses());
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void bounded() throws Exception {
+        SubsumptionCache<Person,Fields> cache = new SubsumptionCache<>(RESOLVER, 2);
+        cache.put(parse("AGE > 10"), List.of());
+        cache.put(parse("AGE > 20"), List.of());
+        cache.put(parse("NAME = \"a\""), List.of());
+        assertEquals(2, cache.size());
+
+        // The least recently used (AGE > 10) has been evicted; AGE > 20 does
+        // not subsume it.
+        assertNull(cache.lookup(parse("AGE > 15")));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
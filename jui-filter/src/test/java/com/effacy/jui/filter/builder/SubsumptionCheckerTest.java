@@ -0,0 +1,211 @@
+package com.effacy.jui.filter.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.IExpressionBuilder.Literal;
+import com.effacy.jui.filter.builder.IExpressionBuilder.Operator;
+import com.effacy.jui.filter.parser.FilterQueryParser;
+
+public class SubsumptionCheckerTest {
+
+    enum Fields {
+        NAME, STATUS, AGE;
+    }
+
+    enum Status {
+        ACTIVE, PENDING, CLOSED;
+    }
+
+    record Person(String name, Status status, Integer age) {}
+
+    static final ExpressionBuilder<Fields> BUILDER = new ExpressionBuilder<>(Fields.class);
+
+    static final PredicateExpressionBuilder<Person,Fields> PREDICATES = PredicateExpressionBuilder.create((r, f) -> switch (f) {
+        case NAME -> r.name();
+        case STATUS -> r.status();
+        case AGE -> r.age();
+    });
+
+    static final SubsumptionChecker<Fields> CHECKER = new SubsumptionChecker<>();
+
+    private Expression<Fields> parse(String str) throws Exception {
+        return FilterQueryParser.parse(str).build(BUILDER.mapped(v -> Fields.valueOf(v)));
+    }
+
+    private boolean implies(String b, String a) throws Exception {
+        return CHECKER.implies(parse(b), parse(a));
+    }
+
+    @Test
+    public void structural() throws Exception {
+        assertTrue(implies("STATUS = ACTIVE AND AGE > 18", "STATUS = ACTIVE"));
+        assertTrue(implies("STATUS = ACTIVE", "STATUS = ACTIVE OR AGE > 18"));
+        assertTrue(implies("STATUS = ACTIVE AND AGE > 18", "AGE > 18 AND STATUS = ACTIVE"));
+        assertTrue(implies("(STATUS = ACTIVE OR STATUS = PENDING) AND AGE > 18", "STATUS = ACTIVE OR STATUS = PENDING"));
+        assertTrue(implies("NAME = \"a\" OR NAME = \"b\"", "NAME IN [\"a\", \"b\", \"c\"]"));
+        assertTrue(implies("NOT (STATUS = ACTIVE OR AGE < 10)", "STATUS != ACTIVE"));
+        assertTrue(implies("NOT (NAME CONTAINS \"x\") AND AGE > 5", "NOT (NAME CONTAINS \"x\")"));
+
+        assertFalse(implies("STATUS = ACTIVE", "STATUS = ACTIVE AND AGE > 18"));
+        assertFalse(implies("STATUS = ACTIVE OR AGE > 18", "STATUS = ACTIVE"));
+        assertFalse(implies("NOT (AGE > 10)", "AGE <= 10"));
+    }
+
+    @Test
+    public void intervals() throws Exception {
+        assertTrue(implies("AGE > 10", "AGE > 5"));
+        assertTrue(implies("AGE > 10", "AGE >= 10"));
+        assertTrue(implies("AGE >= 11", "AGE > 10"));
+        assertTrue(implies("AGE > 10 AND AGE < 20", "AGE >= 5 AND AGE <= 20"));
+        assertTrue(implies("AGE > 10", "AGE != 3"));
+        assertTrue(implies("AGE > 10", "AGE NOT IN [1, 2, 10]"));
+        assertTrue(implies("AGE = 12", "AGE > 10"));
+        assertTrue(implies("AGE IN [12, 15]", "AGE >= 12 AND AGE < 16"));
+
+        assertFalse(implies("AGE >= 10", "AGE > 10"));
+        assertFalse(implies("AGE > 5", "AGE > 10"));
+        assertFalse(implies("AGE > 10", "AGE != 11"));
+        assertFalse(implies("AGE != 10", "AGE > 10"));
+    }
+
+    @Test
+    public void sets() throws Exception {
+        assertTrue(implies("STATUS IN [ACTIVE, PENDING] AND STATUS != PENDING", "STATUS = ACTIVE"));
+        assertTrue(implies("STATUS IN [ACTIVE]", "STATUS IN [ACTIVE, PENDING]"));
+        assertTrue(implies("STATUS NOT IN [ACTIVE, PENDING]", "STATUS != ACTIVE"));
+        assertTrue(implies("AGE IN [1, 2, 3] AND AGE > 1", "AGE IN [2, 3]"));
+
+        assertFalse(implies("STATUS IN [ACTIVE, PENDING]", "STATUS = ACTIVE"));
+        assertFalse(implies("STATUS NOT IN [ACTIVE]", "STATUS NOT IN [ACTIVE, PENDING]"));
+    }
+
+    @Test
+    public void strings() throws Exception {
+        assertTrue(implies("NAME STARTS WITH \"abc\"", "NAME STARTS WITH \"ab\""));
+        assertTrue(implies("NAME ENDS WITH \"xyz\"", "NAME ENDS WITH \"z\""));
+        assertTrue(implies("NAME STARTS WITH \"abc\"", "NAME CONTAINS \"bc\""));
+        assertTrue(implies("NAME CONTAINS \"smith\"", "NAME CONTAINS \"smi\""));
+        assertTrue(implies("NAME = \"smith\"", "NAME CONTAINS \"mit\""));
+        assertTrue(implies("NAME STARTS WITH \"abc\"", "NAME != \"xyz\""));
+
+        assertFalse(implies("NAME CONTAINS \"smi\"", "NAME CONTAINS \"smith\""));
+        assertFalse(implies("NAME CONTAINS \"abc\"", "NAME STARTS WITH \"abc\""));
+    }
+
+    @Test
+    public void contradictions() throws Exception {
+        assertTrue(implies("AGE > 10 AND AGE < 5", "STATUS = ACTIVE"));
+        assertTrue(implies("STATUS = ACTIVE AND STATUS = PENDING", "AGE > 100"));
+        assertTrue(implies("STATUS IN [ACTIVE] AND STATUS NOT IN [ACTIVE]", "NAME = \"x\""));
+
+        // Repeated terms are not a contradiction.
+        assertFalse(implies("STATUS = ACTIVE AND STATUS = ACTIVE", "AGE > 100"));
+    }
+
+    @Test
+    public void equivalent() throws Exception {
+        assertTrue(CHECKER.equivalent(parse("STATUS = ACTIVE AND AGE > 18"), parse("AGE > 18 AND STATUS = ACTIVE")));
+        assertTrue(CHECKER.equivalent(parse("NOT (STATUS = ACTIVE)"), parse("STATUS != ACTIVE")));
+        assertFalse(CHECKER.equivalent(parse("AGE > 18"), parse("AGE >= 18")));
+    }
+
+    /**
+     * Checks soundness against a corpus of random expression pairs: whenever an
+     * implication is claimed every record (drawn exhaustively from a small
+     * domain that includes {@code null}s) that satisfies B must satisfy A.
+     */
+    @Test
+    public void corpus() throws Exception {
+        List<Person> records = new ArrayList<>();
+        String[] names = { null, "", "a", "ab", "abc", "bc", "cab", "abcab", "ACTIVE" };
+        Status[] statuses = { null, Status.ACTIVE, Status.PENDING, Status.CLOSED };
+        for (String name : names) {
+            for (Status status : statuses) {
+                for (int age = -1; age <= 12; age++)
+                    records.add(new Person(name, status, (age < 0) ? null : age));
+            }
+        }
+
+        Random rand = new Random(7);
+        int claimed = 0;
+        for (int i = 0; i < 20000; i++) {
+            Expression<Fields> a = randomExpression(rand, 2);
+            Expression<Fields> b = rand.nextBoolean() ? randomExpression(rand, 2) : a.and(randomExpression(rand, 1));
+            if (!CHECKER.implies(b, a))
+                continue;
+            claimed++;
+            Predicate<Person> pa = a.build(PREDICATES);
+            Predicate<Person> pb = b.build(PREDICATES);
+            for (Person p : records) {
+                if (pb.test(p) && !pa.test(p))
+                    throw new AssertionError("Claimed " + str(b) + " implies " + str(a) + " but fails on " + p);
+            }
+        }
+        // Sanity check that the corpus exercises implication.
+        assertTrue(claimed > 5000, "claimed " + claimed);
+    }
+
+    private Expression<Fields> randomExpression(Random rand, int depth) {
+        int choice = rand.nextInt(depth > 0 ? 6 : 1);
+        if (choice == 3)
+            return BUILDER.not(randomExpression(rand, depth - 1));
+        if (choice == 4)
+            return BUILDER.and(List.of(randomExpression(rand, depth - 1), randomExpression(rand, depth - 1)));
+        if (choice == 5)
+            return BUILDER.or(List.of(randomExpression(rand, depth - 1), randomExpression(rand, depth - 1)));
+        Fields field = Fields.values()[rand.nextInt(3)];
+        Operator op;
+        Object value;
+        switch (field) {
+            case AGE:
+                op = Operator.values()[rand.nextInt(8)];
+                value = op.is(Operator.IN, Operator.NOT_IN) ? new Object[] { number(rand), number(rand) } : number(rand);
+                break;
+            case STATUS:
+                op = Operator.values()[rand.nextInt(4) < 2 ? rand.nextInt(2) : 6 + rand.nextInt(2)];
+                value = op.is(Operator.IN, Operator.NOT_IN) ? new Object[] { status(rand), status(rand) } : status(rand);
+                break;
+            default:
+                op = Operator.values()[rand.nextInt(11)];
+                String[] values = { "a", "ab", "abc", "b", "bc", "c", "ACTIVE" };
+                value = op.is(Operator.IN, Operator.NOT_IN) ? new Object[] { values[rand.nextInt(values.length)], values[rand.nextInt(values.length)] } : values[rand.nextInt(values.length)];
+                break;
+        }
+        return BUILDER.term(field, op, value);
+    }
+
+    private Object number(Random rand) {
+        int v = rand.nextInt(12);
+        int type = rand.nextInt(3);
+        return (type == 0) ? Integer.valueOf(v) : (type == 1) ? Long.valueOf(v) : Double.valueOf(v + ((rand.nextInt(4) == 0) ? 0.5 : 0));
+    }
+
+    private Object status(Random rand) {
+        // Mix of enums, literals (as parsed) and strings.
+        Status status = Status.values()[rand.nextInt(3)];
+        int type = rand.nextInt(3);
+        return (type == 0) ? status : (type == 1) ? new Literal(status.name()) : status.name();
+    }
+
+    private String str(Expression<Fields> exp) {
+        return exp.build(StringExpressionBuilder.<Fields>remap(f -> f.name()));
+    }
+
+    @Test
+    public void literal_records() throws Exception {
+        // Parsed literals match by string form.
+        assertTrue(implies("STATUS IN [ACTIVE, PENDING] AND STATUS = ACTIVE", "STATUS = ACTIVE"));
+        assertFalse(implies("STATUS IN [ACTIVE, PENDING] AND STATUS = ACTIVE", "AGE > 100"));
+        assertEquals(true, PREDICATES.term(Fields.STATUS, Operator.EQ, new Literal("ACTIVE")).test(new Person(null, Status.ACTIVE, null)));
+    }
+}
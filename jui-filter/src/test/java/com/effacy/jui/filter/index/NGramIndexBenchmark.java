@@ -0,0 +1,102 @@
+package com.effacy.jui.filter.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder;
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.PredicateExpressionBuilder;
+
+/**
+ * Compares the latency of filtering a corpus of strings by scanning (i.e.
+ * evaluating the predicate against every record) to filtering by way of
+ * {@link IndexedRecords} (with the name field indexed).
+ * <p>
+ * The corpus consists of random lower-case strings of 8 to 24 characters
+ * (alongside a numeric score). Trigrams are drawn from an alphabet of 26 so
+ * are individually fairly selective (about 1 in 17,576).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class NGramIndexBenchmark {
+
+    enum Fields {
+        NAME, SCORE;
+    }
+
+    static final PredicateExpressionBuilder.IValueResolver<Object[],Fields> RESOLVER = (r, f) -> r[f.ordinal()];
+
+    @Param({ "1000000" })
+    public int corpus;
+
+    @Param({
+        "NAME CONTAINS \"abc\"",
+        "NAME CONTAINS \"hello\"",
+        "NAME STARTS WITH \"qu\"",
+        "NAME ENDS WITH \"ing\"",
+        "NAME CONTAINS \"xyz\" AND SCORE > 50",
+        "NAME CONTAINS \"abc\" OR NAME CONTAINS \"xyz\""
+    })
+    public String filter;
+
+    private List<Object[]> data;
+
+    private IndexedRecords<Object[],Fields> records;
+
+    private Expression<Fields> expression;
+
+    private Predicate<Object[]> predicate;
+
+    @Setup
+    public void setup() throws Exception {
+        Random rand = new Random(42);
+        data = new ArrayList<>(corpus);
+        records = new IndexedRecords<>(RESOLVER);
+        records.index(Fields.NAME);
+        for (int i = 0; i < corpus; i++) {
+            char[] name = new char[8 + rand.nextInt(17)];
+            for (int j = 0; j < name.length; j++)
+                name[j] = (char) ('a' + rand.nextInt(26));
+            Object[] record = new Object[] { new String(name), rand.nextInt(100) };
+            data.add(record);
+            records.add(record);
+        }
+        records.indexOf(Fields.NAME).trim();
+        expression = new ExpressionBuilder<>(Fields.class).deserialise(filter);
+        predicate = expression.build(PredicateExpressionBuilder.create(RESOLVER));
+    }
+
+    @Benchmark
+    public int scan() {
+        int count = 0;
+        for (Object[] record : data) {
+            if (predicate.test(record))
+                count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int indexed() {
+        return records.filter(expression).size();
+    }
+}
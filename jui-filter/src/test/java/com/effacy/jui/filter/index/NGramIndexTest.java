@@ -0,0 +1,149 @@
+package com.effacy.jui.filter.index;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder;
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.IExpressionBuilder.Operator;
+import com.effacy.jui.filter.builder.PredicateExpressionBuilder;
+import com.effacy.jui.filter.index.NGramIndex.Candidates;
+
+public class NGramIndexTest {
+
+    enum Fields {
+        NAME, CODE, SCORE;
+    }
+
+    record Item(String name, String code, int score) {}
+
+    static final ExpressionBuilder<Fields> BUILDER = new ExpressionBuilder<>(Fields.class);
+
+    static final PredicateExpressionBuilder.IValueResolver<Item,Fields> RESOLVER = (r, f) -> switch (f) {
+        case NAME -> r.name();
+        case CODE -> r.code();
+        case SCORE -> r.score();
+    };
+
+    @Test
+    public void candidates() {
+        NGramIndex index = new NGramIndex();
+        index.put(0, "apple");
+        index.put(1, "pineapple");
+        index.put(2, "applet");
+        index.put(3, "banana");
+
+        assertArrayEquals(new int[] { 0, 1, 2 }, index.candidates(Operator.CONTAINS, "ppl").ids());
+        assertTrue(index.candidates(Operator.CONTAINS, "ppl").exact());
+        assertArrayEquals(new int[] { 0, 2 }, index.candidates(Operator.STARTS_WITH, "app").ids());
+        assertArrayEquals(new int[] { 0, 1 }, index.candidates(Operator.ENDS_WITH, "pple").ids());
+        assertArrayEquals(new int[] { 0, 2 }, index.candidates(Operator.STARTS_WITH, "a").ids());
+        assertArrayEquals(new int[] { 3 }, index.candidates(Operator.ENDS_WITH, "a").ids());
+        assertEquals(0, index.candidates(Operator.CONTAINS, "xyz").size());
+
+        // Too short to be answered.
+        assertNull(index.candidates(Operator.CONTAINS, "pp"));
+        assertNull(index.candidates(Operator.STARTS_WITH, ""));
+
+        // Incremental.
+        index.put(3, "grapple");
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, index.candidates(Operator.CONTAINS, "ppl").ids());
+        assertEquals(0, index.candidates(Operator.CONTAINS, "nan").size());
+        index.remove(0);
+        assertArrayEquals(new int[] { 1, 2, 3 }, index.candidates(Operator.CONTAINS, "ppl").ids());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void saturated() {
+        NGramIndex index = new NGramIndex(2);
+        index.put(0, "abcx");
+        index.put(1, "abcy");
+        index.put(2, "abcz");
+
+        // The "abc" trigram is saturated so is not used to constrain.
+        assertNull(index.candidates(Operator.CONTAINS, "abc"));
+        Candidates c = index.candidates(Operator.CONTAINS, "bcz");
+        assertArrayEquals(new int[] { 2 }, c.ids());
+    }
+
+    /**
+     * Compares indexed filtering against a scan over a random corpus with
+     * updates and removals.
+     */
+    @Test
+    public void equivalence() throws Exception {
+        Random rand = new Random(3);
+        IndexedRecords<Item,Fields> records = new IndexedRecords<>(RESOLVER);
+        records.index(Fields.NAME);
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Item item = new Item(word(rand, 3 + rand.nextInt(8)), word(rand, 4), rand.nextInt(100));
+            items.add(item);
+            records.add(item);
+        }
+        // Index registered after the records have been added.
+        records.index(Fields.CODE, 200);
+
+        // Updates and removals.
+        for (int i = 0; i < 500; i++) {
+            int id = rand.nextInt(items.size());
+            if (items.get(id) == null)
+                continue;
+            if (rand.nextBoolean()) {
+                Item item = new Item(word(rand, 3 + rand.nextInt(8)), word(rand, 4), rand.nextInt(100));
+                items.set(id, item);
+                records.update(id, item);
+            } else {
+                items.set(id, null);
+                records.remove(id);
+            }
+        }
+        // Reuse of removed ids.
+        for (int i = 0; i < 100; i++) {
+            Item item = new Item(word(rand, 5), word(rand, 4), rand.nextInt(100));
+            int id = records.add(item);
+            while (items.size() <= id)
+                items.add(null);
+            items.set(id, item);
+        }
+
+        String[] filters = {
+            "NAME CONTAINS \"abc\"",
+            "NAME CONTAINS \"ab\"",
+            "NAME STARTS WITH \"b\"",
+            "NAME ENDS WITH \"cd\"",
+            "NAME CONTAINS \"abc\" OR NAME STARTS WITH \"dd\"",
+            "NAME CONTAINS \"bca\" AND SCORE > 50",
+            "NAME CONTAINS \"bca\" OR SCORE > 95",
+            "CODE CONTAINS \"aa\" AND NAME ENDS WITH \"a\"",
+            "CODE STARTS WITH \"ab\" AND NOT (NAME CONTAINS \"cab\")",
+            "NAME STARTS WITH \"abcd\"",
+        };
+        PredicateExpressionBuilder<Item,Fields> predicates = PredicateExpressionBuilder.create(RESOLVER);
+        for (String filter : filters) {
+            Expression<Fields> exp = BUILDER.deserialise(filter);
+            Predicate<Item> p = exp.build(predicates);
+            List<Item> expected = items.stream().filter(v -> (v != null) && p.test(v)).collect(Collectors.toList());
+            assertEquals(expected, records.filter(exp), filter);
+        }
+        assertEquals(items.stream().filter(v -> v != null).count(), records.size());
+    }
+
+    private static String word(Random rand, int len) {
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++)
+            chars[i] = (char) ('a' + rand.nextInt(4));
+        return new String(chars);
+    }
+}
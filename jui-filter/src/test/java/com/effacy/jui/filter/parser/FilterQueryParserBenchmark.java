@@ -0,0 +1,116 @@
+package com.effacy.jui.filter.parser;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.effacy.jui.filter.builder.ExpressionBuilder;
+import com.effacy.jui.filter.builder.ExpressionBuilder.Expression;
+import com.effacy.jui.filter.builder.ExpressionCache;
+import com.effacy.jui.filter.builder.optimizer.CompositeOptimizer;
+import com.effacy.jui.filter.builder.optimizer.IExpressionOptimizer;
+import com.effacy.jui.filter.parser.FilterQueryParser.ParsedExpression;
+
+/**
+ * Measures the parse, build and optimize round-trip of filter strings:
+ * <ul>
+ * <li>{@code cold_buffered} parses using the generated (buffered) character
+ * stream.</li>
+ * <li>{@code cold} parses using {@link FilterQueryParser#parse(String)} (which
+ * employs the string character stream for plain input).</li>
+ * <li>{@code cached_parse} obtains the parsed expression from an
+ * {@link ExpressionCache} then builds and optimizes.</li>
+ * <li>{@code cached_expression} obtains the built and optimized expression
+ * from {@link ExpressionBuilder#cache(int, IExpressionOptimizer)}.</li>
+ * </ul>
+ * Each invocation processes the next of a pool of distinct filter strings (so
+ * the cache hit rate is 100% once warmed up).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterQueryParserBenchmark {
+
+    enum Fields {
+        NAME, STATUS, REGION, SCORE, CREATED;
+    }
+
+    static final IExpressionOptimizer<Fields> OPTIMIZER = CompositeOptimizer.standard();
+
+    @Param({ "300" })
+    public int filters;
+
+    private String[] pool;
+
+    private int next;
+
+    private ExpressionBuilder<Fields> builder;
+
+    private ExpressionBuilder<Fields> cachingBuilder;
+
+    private ExpressionCache<ParsedExpression> cache;
+
+    @Setup
+    public void setup() throws Exception {
+        Random rand = new Random(42);
+        String[] statuses = { "ACTIVE", "INACTIVE", "ARCHIVED", "PENDING" };
+        pool = new String[filters];
+        for (int i = 0; i < filters; i++) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("STATUS IN [").append(statuses[rand.nextInt(4)]).append(", ").append(statuses[rand.nextInt(4)]).append("]");
+            sb.append(" AND (SCORE > ").append(rand.nextInt(50)).append(" AND SCORE <= ").append(50 + rand.nextInt(50)).append(")");
+            if (rand.nextBoolean())
+                sb.append(" AND NOT (NAME CONTAINS \"").append((char) ('a' + rand.nextInt(26))).append("x\" OR NAME STARTS WITH 'q')");
+            sb.append(" AND REGION != R").append(rand.nextInt(50));
+            pool[i] = sb.toString();
+        }
+        builder = new ExpressionBuilder<>(Fields.class);
+        cachingBuilder = new ExpressionBuilder<>(Fields.class).cache(2 * filters, OPTIMIZER);
+        cache = new ExpressionCache<>(2 * filters);
+    }
+
+    private String nextFilter() {
+        if (++next >= pool.length)
+            next = 0;
+        return pool[next];
+    }
+
+    private Expression<Fields> buildAndOptimize(ParsedExpression pexp) {
+        return pexp.build(builder.mapped(v -> Fields.valueOf(v))).optimize(OPTIMIZER);
+    }
+
+    @Benchmark
+    public Expression<Fields> cold_buffered() throws Exception {
+        // Equivalent to FilterQueryParser.parse(...) without the string stream.
+        return buildAndOptimize(new ParsedExpression(new FilterQueryParser(nextFilter()).parse()));
+    }
+
+    @Benchmark
+    public Expression<Fields> cold() throws Exception {
+        return buildAndOptimize(FilterQueryParser.parse(nextFilter()));
+    }
+
+    @Benchmark
+    public Expression<Fields> cached_parse() throws Exception {
+        return buildAndOptimize(cache.get(nextFilter(), FilterQueryParser::parse));
+    }
+
+    @Benchmark
+    public Expression<Fields> cached_expression() throws Exception {
+        return cachingBuilder.deserialise(nextFilter());
+    }
+}
@@ -0,0 +1,149 @@
+package com.effacy.jui.filter.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.filter.builder.StringExpressionBuilder;
+
+/**
+ * Verifies that {@link StringCharStream} tokenises identically to
+ * {@link JavaCharStream} (including line and column positions and error
+ * reporting).
+ */
+public class StringCharStreamTest {
+
+    static final String[] CORPUS = {
+        "",
+        "   ",
+        "status = ACTIVE",
+        "status = \"active\" AND score >= 75",
+        "  (a = 1 OR b != 2.5) and not c in [ X, 'y', \"z\" ]  ",
+        "name STARTS WITH \"ab\" OR name ENDS WITH 'yz' OR name CONTAINS \"m\"",
+        "a = 1\nAND b = 2\r\nOR c = 3\rAND d = TRUE",
+        "a = 1\n\n\tAND\tb <= 2\n",
+        "a = 1\r",
+        "a = \"caf\u00e9\" AND b = 'na\u00efve'",
+        // Errors.
+        "a = ",
+        "a = 1 AND",
+        "a = \"unterminated",
+        "a = 1\nAND b = 'x\n",
+        "a # 1",
+        "(a = 1",
+    };
+
+    @Test
+    public void applicable() {
+        assertTrue(StringCharStream.applicable("a = 1"));
+        assertTrue(StringCharStream.applicable(""));
+        assertFalse(StringCharStream.applicable("a = \"\\u0041\""));
+        assertFalse(StringCharStream.applicable(null));
+    }
+
+    @Test
+    public void endOfStream() throws Exception {
+        // Each stream signals the end with its own exception (without a stack
+        // trace).
+        StringCharStream a = new StringCharStream("a");
+        StringCharStream b = new StringCharStream("");
+        assertEquals('a', a.BeginToken());
+        IOException eofA = assertThrows(IOException.class, () -> a.readChar());
+        IOException eofB = assertThrows(IOException.class, () -> b.BeginToken());
+        assertNotSame(eofA, eofB);
+        assertEquals(0, eofA.getStackTrace().length);
+    }
+
+    @Test
+    public void tokens() {
+        for (String content : CORPUS)
+            assertEquals(tokens(new JavaCharStream(new StringProvider(content))), tokens(new StringCharStream(content)), content);
+    }
+
+    @Test
+    public void adjustBeginLineColumn() {
+        // The adjusted token is reported as for JavaCharStream.
+        for (String content : CORPUS) {
+            for (int i = 0; i < 4; i++)
+                assertEquals(adjusted(new JavaCharStream(new StringProvider(content)), i), adjusted(new StringCharStream(content), i), content + " @" + i);
+        }
+
+        // Subsequent tokens are positioned relative to the adjusted token.
+        StringCharStream stream = new StringCharStream("a = 1\nAND b = 2");
+        FilterQueryParserTokenManager tm = new FilterQueryParserTokenManager(stream);
+        tm.getNextToken();
+        tm.getNextToken();
+        stream.adjustBeginLineColumn(10, 5);
+        assertEquals("10,5-10,5", position(stream));
+        assertEquals("10,7-10,7", position(tm.getNextToken()));
+        assertEquals("11,1-11,3", position(tm.getNextToken()));
+        assertEquals("11,5-11,5", position(tm.getNextToken()));
+    }
+
+    @Test
+    public void parse() throws Exception {
+        for (String content : CORPUS)
+            assertEquals(parse(new FilterQueryParser(content)), parse(new FilterQueryParser(new FilterQueryParserTokenManager(new StringCharStream(content)))), content);
+    }
+
+    private String tokens(JavaCharStream stream) {
+        StringBuilder sb = new StringBuilder();
+        FilterQueryParserTokenManager tm = new FilterQueryParserTokenManager(stream);
+        try {
+            while (true) {
+                Token t = tm.getNextToken();
+                sb.append(t.kind).append(':').append(t.image).append('@')
+                    .append(t.beginLine).append(',').append(t.beginColumn).append('-')
+                    .append(t.endLine).append(',').append(t.endColumn).append(' ');
+                if (t.kind == FilterQueryParserConstants.EOF)
+                    break;
+            }
+        } catch (TokenMgrException e) {
+            sb.append(e.getMessage());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Moves the token at the given index down three lines and across two
+     * columns, returning the position then reported by the stream.
+     */
+    private String adjusted(JavaCharStream stream, int index) {
+        FilterQueryParserTokenManager tm = new FilterQueryParserTokenManager(stream);
+        try {
+            for (int i = 0; i < index; i++) {
+                if (tm.getNextToken().kind == FilterQueryParserConstants.EOF)
+                    return "EOF";
+            }
+            Token t = tm.getNextToken();
+            if (t.kind == FilterQueryParserConstants.EOF)
+                return "EOF";
+            stream.adjustBeginLineColumn(t.beginLine + 3, t.beginColumn + 2);
+            return position(stream);
+        } catch (TokenMgrException e) {
+            return e.getMessage();
+        }
+    }
+
+    private String position(JavaCharStream stream) {
+        return stream.getBeginLine() + "," + stream.getBeginColumn() + "-" + stream.getEndLine() + "," + stream.getEndColumn();
+    }
+
+    private String position(Token t) {
+        return t.beginLine + "," + t.beginColumn + "-" + t.endLine + "," + t.endColumn;
+    }
+
+    private String parse(FilterQueryParser parser) {
+        try {
+            return new FilterQueryParser.ParsedExpression(parser.parse()).build(StringExpressionBuilder.create());
+        } catch (Throwable e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,478 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.platform.util.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * An inverted index over the keyword text of a collection of items that
+ * answers keyword queries without re-scanning the text of each item.
+ * <p>
+ * The keyword text of each item is broken into (lower case) tokens on any
+ * character that is not a letter or digit and each prefix of each token (up to
+ * {@link #MAX_PREFIX} characters) is mapped to the (ascending) list of items
+ * having a token with that prefix. A query is broken into terms in the same
+ * manner and matches those items that have, for every term, a token that starts
+ * with the term (so "jo sm" matches "John Smith"). This differs from
+ * {@link KeywordSearch} (which matches any term as a substring of the text)
+ * and is the more natural behaviour when searching long lists of options.
+ * <p>
+ * Items are held by identity and may be added, removed and replaced
+ * incrementally (removed items are discarded lazily and the index compacted
+ * once they dominate). Where the items are sourced from a list that changes
+ * wholesale {@link #sync(List)} brings the index into line with it.
+ */
+public class KeywordIndex<T> {
+
+    /**
+     * The maximum length of an indexed prefix. Terms longer than this are
+     * matched against the prefix then verified against the tokens of the item.
+     */
+    public static final int MAX_PREFIX = 12;
+
+    /**
+     * Maps an item to its keyword text.
+     */
+    private Function<T,String> keywords;
+
+    /**
+     * The items by identifier ({@code null} where removed).
+     */
+    private List<T> items = new ArrayList<> ();
+
+    /**
+     * The tokens of the items by identifier.
+     */
+    private List<String[]> tokens = new ArrayList<> ();
+
+    /**
+     * Identifier of each (present) item.
+     */
+    private Map<T, Integer> ids = new IdentityHashMap<> ();
+
+    /**
+     * Root of the prefix trie (each node holds the postings for its prefix).
+     */
+    private Node root = new Node ();
+
+    /**
+     * Number of removed items not yet compacted.
+     */
+    private int removed;
+
+    /**
+     * Construct with a means of obtaining keyword text.
+     *
+     * @param keywords
+     *                 maps an item to its keyword text (may return {@code null}).
+     */
+    public KeywordIndex(Function<T,String> keywords) {
+        this.keywords = keywords;
+    }
+
+    /**
+     * The number of items in the index.
+     */
+    public int size() {
+        return ids.size ();
+    }
+
+    /**
+     * Determines if the item is in the index.
+     */
+    public boolean contains(T item) {
+        return (item != null) && ids.containsKey (item);
+    }
+
+    /**
+     * Adds an item to the index (if not already present).
+     *
+     * @param item
+     *             the item to add.
+     */
+    public void add(T item) {
+        if ((item == null) || ids.containsKey (item))
+            return;
+        int id = items.size ();
+        String[] itemTokens = tokenize (keywords.apply (item));
+        items.add (item);
+        tokens.add (itemTokens);
+        ids.put (item, id);
+        for (String token : itemTokens) {
+            Node node = root;
+            for (int i = 0, len = Math.min (token.length (), MAX_PREFIX); i < len; i++) {
+                node = node.child (token.charAt (i), true);
+                node.add (id);
+            }
+        }
+    }
+
+    /**
+     * Adds a collection of items to the index.
+     *
+     * @param items
+     *              the items to add.
+     */
+    public void addAll(Iterable<T> items) {
+        if (items != null)
+            items.forEach (this::add);
+    }
+
+    /**
+     * Removes an item from the index.
+     *
+     * @param item
+     *             the item to remove.
+     */
+    public void remove(T item) {
+        if (item == null)
+            return;
+        Integer id = ids.remove (item);
+        if (id == null)
+            return;
+        items.set (id, null);
+        tokens.set (id, null);
+        if (++removed > ids.size ())
+            compact ();
+    }
+
+    /**
+     * Replaces one item with another (for example, when a record is updated).
+     *
+     * @param prior
+     *              the item being replaced.
+     * @param item
+     *              the replacement.
+     */
+    public void replace(T prior, T item) {
+        remove (prior);
+        add (item);
+    }
+
+    /**
+     * Removes all items from the index.
+     */
+    public void clear() {
+        items.clear ();
+        tokens.clear ();
+        ids.clear ();
+        root = new Node ();
+        removed = 0;
+    }
+
+    /**
+     * Brings the index into line with the given items (compared by identity)
+     * so that the index order (see {@link #search(String)}) is that of the
+     * items.
+     * <p>
+     * Where the change is the removal of some items and the addition of others
+     * at the end (as is typical of incremental changes to a store) the index
+     * is updated incrementally, otherwise it is rebuilt.
+     *
+     * @param source
+     *               the items that should be indexed.
+     */
+    public void sync(List<T> source) {
+        if ((source == null) || source.isEmpty ()) {
+            clear ();
+            return;
+        }
+        boolean incremental = !ids.isEmpty ();
+        int retained = 0;
+        int last = -1;
+        for (int i = 0, len = source.size (); incremental && (i < len); i++) {
+            Integer id = ids.get (source.get (i));
+            if (id == null) {
+                // Additions must all follow the retained items.
+                if (last == Integer.MAX_VALUE)
+                    continue;
+                last = Integer.MAX_VALUE;
+            } else if (id > last) {
+                last = id;
+                retained++;
+            } else {
+                incremental = false;
+            }
+        }
+        if (!incremental || (retained < ids.size () / 2)) {
+            clear ();
+            source.forEach (this::add);
+            return;
+        }
+        if (retained < ids.size ()) {
+            Map<T, Boolean> present = new IdentityHashMap<> ();
+            for (T item : source)
+                present.put (item, Boolean.TRUE);
+            for (T item : new ArrayList<> (ids.keySet ())) {
+                if (!present.containsKey (item))
+                    remove (item);
+            }
+        }
+        for (T item : source)
+            add (item);
+    }
+
+    /**
+     * Obtains the items that match the keywords (in the order they were added).
+     *
+     * @param keywords
+     *                 the keywords (if empty then all items match).
+     * @return the matching items.
+     */
+    public List<T> search(String keywords) {
+        List<T> results = new ArrayList<> ();
+        int[] matches = matches (keywords);
+        if (matches == null) {
+            for (T item : items) {
+                if (item != null)
+                    results.add (item);
+            }
+        } else {
+            for (int id : matches)
+                results.add (items.get (id));
+        }
+        return results;
+    }
+
+    /**
+     * Filters a source list of items into a destination list, retaining those
+     * that match the keywords (in the order of the source). Items in the source
+     * that are not in the index do not match.
+     *
+     * @param source
+     *                    the items to filter.
+     * @param destination
+     *                    to add the matching items to.
+     * @param keywords
+     *                    the keywords to match.
+     */
+    public void filter(List<T> source, List<T> destination, String keywords) {
+        if ((source == null) || (destination == null))
+            return;
+        Predicate<T> test = query (keywords);
+        for (T item : source) {
+            if (test.test (item))
+                destination.add (item);
+        }
+    }
+
+    /**
+     * Obtains a test for membership of an item in the results of a query. This
+     * is suitable for passing to a filter (i.e. of a store).
+     *
+     * @param keywords
+     *                 the keywords to match.
+     * @return the test (only matching items in the index pass).
+     */
+    public Predicate<T> query(String keywords) {
+        int[] matches = matches (keywords);
+        if (matches == null)
+            return item -> contains (item);
+        boolean[] matched = new boolean[items.size ()];
+        for (int id : matches)
+            matched[id] = true;
+        return item -> {
+            if (item == null)
+                return false;
+            Integer id = ids.get (item);
+            return (id != null) && (id < matched.length) && matched[id];
+        };
+    }
+
+    /**
+     * Determines the (ascending) identifiers of the items matching the
+     * keywords.
+     *
+     * @param keywords
+     *                 the keywords.
+     * @return the identifiers ({@code null} if there are no terms, so all
+     *         items match).
+     */
+    protected int[] matches(String keywords) {
+        String[] terms = tokenize (keywords);
+        if (terms.length == 0)
+            return null;
+
+        // Collect the postings for each term, shortest first so that the
+        // intersection is bounded by the most selective term.
+        Node[] lists = new Node[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            Node node = root;
+            for (int k = 0, len = Math.min (terms[i].length (), MAX_PREFIX); (node != null) && (k < len); k++)
+                node = node.child (terms[i].charAt (k), false);
+            if (node == null)
+                return new int[0];
+            lists[i] = node;
+        }
+        Arrays.sort (lists, (a, b) -> Integer.compare (a.size, b.size));
+        int[] result = Arrays.copyOf (lists[0].ids, lists[0].size);
+        int count = result.length;
+        for (int i = 1; (i < lists.length) && (count > 0); i++)
+            count = intersect (result, count, lists[i]);
+
+        // Drop removed items and verify terms that exceed the indexed prefix.
+        int j = 0;
+        for (int k = 0; k < count; k++) {
+            int id = result[k];
+            if ((items.get (id) != null) && verify (tokens.get (id), terms))
+                result[j++] = id;
+        }
+        return (j == result.length) ? result : Arrays.copyOf (result, j);
+    }
+
+    /**
+     * Intersects the first {@code count} entries of {@code result} with the
+     * postings (in place).
+     *
+     * @return the number of entries remaining.
+     */
+    private static int intersect(int[] result, int count, Node list) {
+        int j = 0;
+        int p = 0;
+        for (int k = 0; (k < count) && (p < list.size); k++) {
+            int id = result[k];
+            // Advance through the postings by binary search (the result is
+            // typically much shorter than the postings).
+            int lo = p;
+            int hi = list.size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (list.ids[mid] < id)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            p = lo;
+            if ((p < list.size) && (list.ids[p] == id))
+                result[j++] = id;
+        }
+        return j;
+    }
+
+    /**
+     * Verifies that each term longer than {@link #MAX_PREFIX} is the prefix of
+     * some token.
+     */
+    private static boolean verify(String[] itemTokens, String[] terms) {
+        TERMS: for (String term : terms) {
+            if (term.length () <= MAX_PREFIX)
+                continue;
+            for (String token : itemTokens) {
+                if (token.startsWith (term))
+                    continue TERMS;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds the index from the present items (discarding removed ones).
+     */
+    private void compact() {
+        List<T> present = new ArrayList<> (ids.size ());
+        for (T item : items) {
+            if (item != null)
+                present.add (item);
+        }
+        clear ();
+        present.forEach (this::add);
+    }
+
+    /**
+     * Breaks text into distinct lower case tokens of letters and digits.
+     *
+     * @param text
+     *             the text to tokenize (may be {@code null}).
+     * @return the tokens.
+     */
+    public static String[] tokenize(String text) {
+        if ((text == null) || text.isEmpty ())
+            return new String[0];
+        List<String> tokens = new ArrayList<> ();
+        String lower = text.toLowerCase ();
+        int start = -1;
+        for (int i = 0, len = lower.length (); i <= len; i++) {
+            boolean part = (i < len) && Character.isLetterOrDigit (lower.charAt (i));
+            if (part && (start < 0)) {
+                start = i;
+            } else if (!part && (start >= 0)) {
+                String token = lower.substring (start, i);
+                if (!tokens.contains (token))
+                    tokens.add (token);
+                start = -1;
+            }
+        }
+        return tokens.toArray (new String[tokens.size ()]);
+    }
+
+    /**
+     * A node of the prefix trie holding the (ascending) identifiers of the items
+     * having a token with the prefix.
+     */
+    static class Node {
+
+        char[] keys = new char[0];
+
+        Node[] children = new Node[0];
+
+        int[] ids = new int[2];
+
+        int size;
+
+        /**
+         * Obtains the child for the given character.
+         *
+         * @param c
+         *                 the character.
+         * @param create
+         *                 {@code true} to create the child if not present.
+         * @return the child ({@code null} if not present and not created).
+         */
+        Node child(char c, boolean create) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c)
+                    return children[i];
+            }
+            if (!create)
+                return null;
+            Node child = new Node ();
+            keys = Arrays.copyOf (keys, keys.length + 1);
+            children = Arrays.copyOf (children, children.length + 1);
+            keys[keys.length - 1] = c;
+            children[children.length - 1] = child;
+            return child;
+        }
+
+        /**
+         * Appends an identifier (ignored if it is the last one added, which
+         * occurs when an item has more than one token with the same prefix).
+         */
+        void add(int id) {
+            if ((size > 0) && (ids[size - 1] == id))
+                return;
+            if (size == ids.length)
+                ids = Arrays.copyOf (ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+}
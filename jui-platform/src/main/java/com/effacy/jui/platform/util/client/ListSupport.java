@@ -309,6 +309,53 @@ public final class ListSupport {
         return removed (current, prior, (b,a) -> matcher.apply(a, b));
     }
 
+    /**
+     * Given the prior positions of the elements of a revised list, determines a
+     * largest set of elements that can remain in place (a longest increasing
+     * subsequence of the positions). When reordering (for example) DOM nodes to
+     * match the revised list, only those elements not marked need be moved.
+     * <p>
+     * This runs in O(n log n).
+     *
+     * @param positions
+     *                  the prior position of each element (negative for
+     *                  elements that were not present in the prior list).
+     * @return for each element whether it can remain in place (always
+     *         {@code false} for those with a negative position).
+     */
+    public static boolean[] stable(int[] positions) {
+        int len = positions.length;
+        boolean[] stable = new boolean[len];
+
+        // tails[k] is the index (in positions) of the smallest tail of an
+        // increasing subsequence of length k + 1, and previous links each
+        // element to its predecessor in the subsequence it ends.
+        int[] tails = new int[len];
+        int[] previous = new int[len];
+        int size = 0;
+        for (int i = 0; i < len; i++) {
+            int pos = positions[i];
+            if (pos < 0)
+                continue;
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (positions[tails[mid]] < pos)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            previous[i] = (lo > 0) ? tails[lo - 1] : -1;
+            tails[lo] = i;
+            if (lo == size)
+                size++;
+        }
+        for (int i = (size > 0) ? tails[size - 1] : -1; i >= 0; i = previous[i])
+            stable[i] = true;
+        return stable;
+    }
+
     /**
      * No construct constructor.
      */
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.platform.util.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares keyword filtering of a large set of options by scanning (via
+ * {@link KeywordSearch#filter(List, List, java.util.function.Function)}) with
+ * the prebuilt {@link KeywordIndex}.
+ * <p>
+ * The options are synthetic two-word labels drawn from a fixed vocabulary
+ * with a sequence number. The queries progress as though being typed.
+ * {@code search} obtains the matches directly from the index (as does
+ * {@code SearchStore}) while {@code filter} tests membership of each option
+ * (retaining the order of the source). {@code build} measures the one-off cost
+ * of indexing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordIndexBenchmark {
+
+    private static final String[] WORDS = { "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india", "juliet", "kilo", "lima", "mike", "november", "oscar", "papa", "quebec", "romeo", "sierra", "tango", "uniform", "victor", "whiskey", "xray", "yankee", "zulu" };
+
+    @Param({ "100000" })
+    public int options;
+
+    @Param({ "c", "char", "charlie del", "charlie delta 123" })
+    public String keywords;
+
+    private List<String> source;
+
+    private KeywordIndex<String> index;
+
+    @Setup
+    public void setup() {
+        source = new ArrayList<> (options);
+        for (int i = 0; i < options; i++)
+            source.add (WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i);
+        index = new KeywordIndex<> (v -> v);
+        index.sync (source);
+    }
+
+    @Benchmark
+    public List<String> scan() {
+        List<String> results = new ArrayList<> ();
+        KeywordSearch.parse (keywords).filter (source, results, v -> v);
+        return results;
+    }
+
+    @Benchmark
+    public List<String> search() {
+        return index.search (keywords);
+    }
+
+    @Benchmark
+    public List<String> filter() {
+        List<String> results = new ArrayList<> ();
+        index.filter (source, results, keywords);
+        return results;
+    }
+
+    @Benchmark
+    public KeywordIndex<String> build() {
+        KeywordIndex<String> index = new KeywordIndex<> (v -> v);
+        index.sync (source);
+        return index;
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.platform.util.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class KeywordIndexTest {
+
+    @Test
+    public void tokenize() {
+        Assertions.assertArrayEquals (new String[] { "john", "smith", "jr" }, KeywordIndex.tokenize ("John Smith-Jr. smith"));
+        Assertions.assertArrayEquals (new String[0], KeywordIndex.tokenize (" ,. "));
+        Assertions.assertArrayEquals (new String[0], KeywordIndex.tokenize (null));
+    }
+
+    @Test
+    public void search() {
+        KeywordIndex<String> index = index ("John Smith", "Jane Smith", "John Doe", "Mary Evans");
+        Assertions.assertEquals (List.of ("John Smith", "Jane Smith", "John Doe"), index.search ("j"));
+        Assertions.assertEquals (List.of ("John Smith", "John Doe"), index.search ("jo"));
+        Assertions.assertEquals (List.of ("John Smith"), index.search ("sm jo"));
+        Assertions.assertEquals (List.of ("Mary Evans"), index.search ("EVANS"));
+        Assertions.assertEquals (List.of (), index.search ("jo xyz"));
+
+        // Prefixes only (not substrings).
+        Assertions.assertEquals (List.of (), index.search ("mith"));
+
+        // No terms matches all.
+        Assertions.assertEquals (4, index.search (" ").size ());
+    }
+
+    @Test
+    public void longTerms() {
+        KeywordIndex<String> index = index ("internationalisation", "internationalization", "international");
+        Assertions.assertEquals (3, index.search ("internation").size ());
+        Assertions.assertEquals (List.of ("internationalisation", "internationalization"), index.search ("internationali"));
+        Assertions.assertEquals (List.of ("internationalization"), index.search ("internationaliz"));
+    }
+
+    @Test
+    public void incremental() {
+        KeywordIndex<String> index = index ("alpha", "beta", "gamma");
+        index.remove ("beta");
+        Assertions.assertEquals (List.of (), index.search ("be"));
+        Assertions.assertEquals (2, index.size ());
+
+        index.add ("bravo");
+        index.replace ("alpha", "alphabet");
+        Assertions.assertEquals (List.of ("bravo"), index.search ("b"));
+        Assertions.assertEquals (List.of ("alphabet"), index.search ("alpha"));
+
+        // Remove enough to compact.
+        index.remove ("gamma");
+        index.remove ("bravo");
+        Assertions.assertEquals (List.of ("alphabet"), index.search (null));
+    }
+
+    @Test
+    public void sync() {
+        List<String> source = new ArrayList<> (List.of ("red", "green", "blue"));
+        KeywordIndex<String> index = new KeywordIndex<> (v -> v);
+        index.sync (source);
+        Assertions.assertEquals (List.of ("green"), index.search ("gr"));
+
+        source.remove ("green");
+        source.add ("grey");
+        index.sync (source);
+        Assertions.assertEquals (List.of ("grey"), index.search ("gr"));
+        Assertions.assertEquals (3, index.size ());
+
+        // Follows the order of the source.
+        source.add (0, "gold");
+        index.sync (source);
+        Assertions.assertEquals (List.of ("gold", "grey"), index.search ("g"));
+    }
+
+    @Test
+    public void filter() {
+        KeywordIndex<String> index = index ("ant", "bee", "antelope", "beetle");
+        List<String> results = new ArrayList<> ();
+
+        // Follows the order of the source.
+        index.filter (List.of ("beetle", "antelope", "ant", "bee"), results, "an");
+        Assertions.assertEquals (List.of ("antelope", "ant"), results);
+
+        // Items not in the index do not match.
+        results.clear ();
+        index.filter (List.of ("anteater", "ant"), results, "an");
+        Assertions.assertEquals (List.of ("ant"), results);
+    }
+
+    private KeywordIndex<String> index(String... values) {
+        KeywordIndex<String> index = new KeywordIndex<> (v -> v);
+        for (String value : values)
+            index.add (value);
+        return index;
+    }
+}
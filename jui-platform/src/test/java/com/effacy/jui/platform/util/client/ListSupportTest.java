@@ -33,4 +33,31 @@ public class ListSupportTest {
             ListSupport.list ("G", "H"),
             ListSupport.added (ListSupport.list ("A", "B", "C", "D", "E"), ListSupport.list ("D", "E", "G", "H")));
     }
+
+    @Test
+    public void stable() {
+        // No change.
+        Assertions.assertArrayEquals (new boolean[] { true, true, true }, ListSupport.stable (new int[] { 0, 1, 2 }));
+
+        // Moving the last to the front only moves that one.
+        Assertions.assertArrayEquals (new boolean[] { false, true, true, true }, ListSupport.stable (new int[] { 3, 0, 1, 2 }));
+
+        // Insertions (negative) and removals (gaps) are not moves.
+        Assertions.assertArrayEquals (new boolean[] { true, false, true, false, true }, ListSupport.stable (new int[] { 0, -1, 2, -1, 5 }));
+
+        // Reversal retains only one.
+        boolean[] reversed = ListSupport.stable (new int[] { 3, 2, 1, 0 });
+        int count = 0;
+        for (boolean b : reversed)
+            count += b ? 1 : 0;
+        Assertions.assertEquals (1, count);
+
+        // Swap of two in the middle.
+        boolean[] swapped = ListSupport.stable (new int[] { 0, 1, 4, 3, 2, 5, 6 });
+        Assertions.assertTrue (swapped[0] && swapped[1] && swapped[5] && swapped[6]);
+        Assertions.assertEquals (1, (swapped[2] ? 1 : 0) + (swapped[3] ? 1 : 0) + (swapped[4] ? 1 : 0));
+
+        // Empty.
+        Assertions.assertEquals (0, ListSupport.stable (new int[0]).length);
+    }
 }
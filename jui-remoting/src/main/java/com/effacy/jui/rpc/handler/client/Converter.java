@@ -17,6 +17,7 @@ package com.effacy.jui.rpc.handler.client;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 
 import com.effacy.jui.rpc.handler.client.query.IPageQuery;
 
@@ -80,6 +81,47 @@ public final class Converter {
     }
 
 
+    /**
+     * Converts those source objects that pass the filter to a list of
+     * corresponding target objects while respecting the pagination
+     * specification against the filtered source. Iteration of the source
+     * stops as soon as the page has been filled (and only those objects that
+     * appear in the page are converted).
+     * 
+     * @param <T>
+     *            the target type.
+     * @param <S>
+     *            the source type.
+     * @param source
+     *            the source list to convert.
+     * @param filter
+     *            (optional) the filter to apply to source objects.
+     * @param converter
+     *            the converter to use.
+     * @param pagination
+     *            the pagination specification.
+     * @return The filtered, converted and confined resulting list.
+     */
+    public static <T, S> List<T> convert(Iterable<S> source, Predicate<S> filter, IConverter<S, T> converter, IPageQuery pagination) {
+        if (filter == null)
+            return convert (source, converter, pagination);
+        boolean unlimited = (pagination == null) || pagination.isUnlimited ();
+        int start = unlimited ? 0 : pagination.startIndex ();
+        int end = unlimited ? Integer.MAX_VALUE : pagination.endIndex ();
+
+        List<T> results = new ArrayList<T> ();
+        int i = 0;
+        for (S item : source) {
+            if (!filter.test (item))
+                continue;
+            if (i >= start)
+                results.add (converter.convert (item));
+            if (i++ >= end)
+                break;
+        }
+        return results;
+    }
+
     /**
      * Private constructor.
      */
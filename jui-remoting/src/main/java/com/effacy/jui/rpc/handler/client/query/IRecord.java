@@ -29,4 +29,22 @@ public interface IRecord<D> {
      */
     public D getId();
 
+    /**
+     * Keys an item by its ID when it is a record (with an ID) and by the item
+     * itself otherwise. Suitable as the key for stores holding records (see
+     * {@code PaginatedStore#key(Function)}).
+     * 
+     * @param item
+     *             the item to key.
+     * @return the key.
+     */
+    public static Object key(Object item) {
+        if (item instanceof IRecord) {
+            Object id = ((IRecord<?>) item).getId ();
+            if (id != null)
+                return id;
+        }
+        return item;
+    }
+
 }
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.rpc.handler.client.query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The response to a {@link RecordDeltaQuery}: those records that have changed
+ * (or been added) since the versions held by the client along with the IDs of
+ * those records that have been removed.
+ * <p>
+ * Although this is serializable the class is abstract to ensure it is not
+ * instantiated directly. In order to be deserializable at the client it must be
+ * sub-classed to a non-generic.
+ *
+ * @param <ID>
+ *            the record ID type.
+ * @param <T>
+ *            the record type (typically a {@link RecordResult}).
+ */
+public abstract class RecordDelta<ID, T> extends Result {
+
+    /**
+     * See {@link #getChanged()}.
+     */
+    private List<T> changed = new ArrayList<> ();
+
+    /**
+     * See {@link #getRemoved()}.
+     */
+    private List<ID> removed = new ArrayList<> ();
+
+    /**
+     * See {@link #getToken()}.
+     */
+    private String token;
+
+    /**
+     * Default constructor.
+     */
+    protected RecordDelta() {
+        super ();
+    }
+
+    /**
+     * The records that have changed or been added.
+     */
+    public List<T> getChanged() {
+        return changed;
+    }
+
+    /**
+     * Assigns {@link #getChanged()}.
+     */
+    public void setChanged(List<T> changed) {
+        this.changed = (changed == null) ? new ArrayList<> () : changed;
+    }
+
+    /**
+     * The IDs of the records that have been removed.
+     */
+    public List<ID> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Assigns {@link #getRemoved()}.
+     */
+    public void setRemoved(List<ID> removed) {
+        this.removed = (removed == null) ? new ArrayList<> () : removed;
+    }
+
+    /**
+     * A token that marks the server state reflected by this delta (to be passed
+     * back as {@link RecordDeltaQuery#getSince()} on the next query). May be
+     * {@code null} where tokens are not supported.
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Assigns {@link #getToken()}.
+     */
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Determines if there are no changes.
+     */
+    public boolean isEmpty() {
+        return changed.isEmpty () && removed.isEmpty ();
+    }
+
+    /**
+     * Applies the delta to a list of records: changed records replace those with
+     * the same ID (or are appended where there is none) and removed records are
+     * removed. This is linear in the size of the list and the delta.
+     *
+     * @param records
+     *                the records to update.
+     * @param id
+     *                obtains the ID of a record.
+     * @return {@code true} if the list was modified.
+     */
+    public boolean applyTo(List<T> records, Function<T,ID> id) {
+        if (isEmpty ())
+            return false;
+        Map<ID, T> updates = new HashMap<> ();
+        for (T record : changed) {
+            if (record != null)
+                updates.put (id.apply (record), record);
+        }
+        Set<ID> removals = new HashSet<> (removed);
+        boolean modified = false;
+        ListIterator<T> it = records.listIterator ();
+        while (it.hasNext ()) {
+            T record = it.next ();
+            if (record == null)
+                continue;
+            ID key = id.apply (record);
+            if (removals.contains (key)) {
+                it.remove ();
+                modified = true;
+                continue;
+            }
+            T update = updates.remove (key);
+            if (update != null) {
+                it.set (update);
+                modified = true;
+            }
+        }
+        if (!updates.isEmpty ()) {
+            // Retain the order of the remaining (added) records.
+            for (T record : changed) {
+                if ((record != null) && updates.containsKey (id.apply (record)))
+                    records.add (record);
+            }
+            modified = true;
+        }
+        return modified;
+    }
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.rpc.handler.client.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A query for the changes to a set of records relative to the versions held by
+ * the client. The client lists the ID and version of each record it holds and
+ * (optionally) the token from the last {@link RecordDelta} it received. The
+ * response contains only those records that have changed, been added or been
+ * removed (rather than all the records).
+ * <p>
+ * The IDs and versions are held as parallel lists (so that they serialize
+ * compactly). Sub-classes carry any scope (i.e. filter) for the records.
+ *
+ * @param <ID>
+ *            the record ID type.
+ * @param <R>
+ *            the response type.
+ */
+public abstract class RecordDeltaQuery<ID, R extends RecordDelta<ID, ?>> extends Query<R> {
+
+    /**
+     * See {@link #getIds()}.
+     */
+    private List<ID> ids = new ArrayList<> ();
+
+    /**
+     * See {@link #getVersions()}.
+     */
+    private List<Integer> versions = new ArrayList<> ();
+
+    /**
+     * See {@link #getSince()}.
+     */
+    private String since;
+
+    /**
+     * Default constructor.
+     */
+    protected RecordDeltaQuery() {
+        super ();
+    }
+
+    /**
+     * Adds a held record.
+     *
+     * @param id
+     *                the ID of the record.
+     * @param version
+     *                the version of the record.
+     * @return this query instance.
+     */
+    public RecordDeltaQuery<ID, R> hold(ID id, int version) {
+        ids.add (id);
+        versions.add (version);
+        return this;
+    }
+
+    /**
+     * Adds held records.
+     *
+     * @param records
+     *                the records.
+     * @return this query instance.
+     */
+    public RecordDeltaQuery<ID, R> hold(List<? extends RecordResult<ID>> records) {
+        if (records != null) {
+            for (RecordResult<ID> record : records) {
+                if (record != null)
+                    hold (record.getId (), record.getVersion ());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * The IDs of the held records.
+     */
+    public List<ID> getIds() {
+        return ids;
+    }
+
+    /**
+     * The versions of the held records (corresponding to {@link #getIds()}).
+     */
+    public List<Integer> getVersions() {
+        return versions;
+    }
+
+    /**
+     * The token from the last delta (see {@link RecordDelta#getToken()}), if any.
+     */
+    public String getSince() {
+        return since;
+    }
+
+    /**
+     * Assigns {@link #getSince()}.
+     */
+    public void setSince(String since) {
+        this.since = since;
+    }
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.rpc.handler.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.effacy.jui.rpc.handler.client.query.RecordDelta;
+import com.effacy.jui.rpc.handler.client.query.RecordDeltaQuery;
+import com.effacy.jui.rpc.handler.client.query.RecordResult;
+import com.effacy.jui.rpc.handler.exception.ProcessorException;
+
+/**
+ * Base class for processors of {@link RecordDeltaQuery}'s.
+ * <p>
+ * By default the records in scope (see {@link #records(Object, RecordDeltaQuery)})
+ * are compared, by version, against those held by the client. Records whose
+ * version differs or that are not held are returned as changed and held records
+ * that are no longer in scope are returned as removed.
+ * <p>
+ * Where the underlying data supports it the comparison can be avoided by
+ * implementing {@link #changedSince(Object, RecordDeltaQuery, String)} (and
+ * {@link #removedSince(Object, RecordDeltaQuery, String)}) against the token
+ * issued by {@link #token(Object, RecordDeltaQuery)}.
+ *
+ * @param <CTX>
+ *            the context type.
+ * @param <ID>
+ *            the record ID type.
+ * @param <T>
+ *            the record type.
+ * @param <R>
+ *            the response type.
+ * @param <Q>
+ *            the query type.
+ */
+public abstract class RecordDeltaProcessor<CTX, ID, T extends RecordResult<ID>, R extends RecordDelta<ID, T>, Q extends RecordDeltaQuery<ID, R>> extends QueryProcessor<CTX, R, Q> {
+
+    /**
+     * Construct with query class for matching.
+     *
+     * @param queryClass
+     *                   the class for matching.
+     */
+    protected RecordDeltaProcessor(Class<Q> queryClass) {
+        super (queryClass);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.effacy.jui.rpc.handler.query.QueryProcessor#process(java.lang.Object,
+     *      com.effacy.jui.rpc.handler.client.query.Query)
+     */
+    @Override
+    protected R process(CTX context, Q query) throws ProcessorException {
+        R result = createResult (context, query);
+        String token = token (context, query);
+        if (query.getSince () != null) {
+            List<T> changed = changedSince (context, query, query.getSince ());
+            if (changed != null) {
+                Map<ID, Integer> held = held (query);
+                List<T> revised = new ArrayList<> ();
+                for (T record : changed) {
+                    Integer version = held.get (record.getId ());
+                    if ((version == null) || (version != record.getVersion ()))
+                        revised.add (record);
+                }
+                List<ID> removed = new ArrayList<> ();
+                for (ID id : removedSince (context, query, query.getSince ())) {
+                    if (held.containsKey (id))
+                        removed.add (id);
+                }
+                result.setChanged (revised);
+                result.setRemoved (removed);
+                result.setToken (token);
+                return result;
+            }
+        }
+        delta (query, records (context, query), result);
+        result.setToken (token);
+        return result;
+    }
+
+    /**
+     * Computes the delta between the records held by the client (as described by
+     * the query) and the records in scope.
+     *
+     * @param query
+     *                the query.
+     * @param records
+     *                the records in scope.
+     * @param result
+     *                the result to populate.
+     */
+    public static <ID, T extends RecordResult<ID>> void delta(RecordDeltaQuery<ID, ?> query, Collection<T> records, RecordDelta<ID, T> result) {
+        Map<ID, Integer> held = held (query);
+        List<T> changed = new ArrayList<> ();
+        if (records != null) {
+            for (T record : records) {
+                Integer version = held.remove (record.getId ());
+                if ((version == null) || (version != record.getVersion ()))
+                    changed.add (record);
+            }
+        }
+        List<ID> removed = new ArrayList<> ();
+        for (ID id : query.getIds ()) {
+            if (held.containsKey (id))
+                removed.add (id);
+        }
+        result.setChanged (changed);
+        result.setRemoved (removed);
+    }
+
+    /**
+     * Maps the held record IDs to their versions.
+     */
+    protected static <ID> Map<ID, Integer> held(RecordDeltaQuery<ID, ?> query) {
+        Map<ID, Integer> held = new HashMap<> ();
+        List<ID> ids = query.getIds ();
+        List<Integer> versions = query.getVersions ();
+        for (int i = 0, len = Math.min (ids.size (), versions.size ()); i < len; i++)
+            held.put (ids.get (i), versions.get (i));
+        return held;
+    }
+
+    /**
+     * Creates an empty response.
+     */
+    protected abstract R createResult(CTX context, Q query);
+
+    /**
+     * Obtains the records in scope of the query.
+     */
+    protected abstract Collection<T> records(CTX context, Q query) throws ProcessorException;
+
+    /**
+     * Obtains a token that marks the current state of the records (returned with
+     * the delta). The default is {@code null} (tokens are not supported).
+     */
+    protected String token(CTX context, Q query) throws ProcessorException {
+        return null;
+    }
+
+    /**
+     * Obtains the records in scope that have changed (or been added) since the
+     * state marked by the token.
+     *
+     * @return the records ({@code null} if the token cannot be used, in which
+     *         case the records are compared).
+     */
+    protected List<T> changedSince(CTX context, Q query, String since) throws ProcessorException {
+        return null;
+    }
+
+    /**
+     * Obtains the IDs of the records that have left scope since the state marked
+     * by the token (only called when
+     * {@link #changedSince(Object, RecordDeltaQuery, String)} returns a result).
+     */
+    protected List<ID> removedSince(CTX context, Q query, String since) throws ProcessorException {
+        return new ArrayList<> ();
+    }
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.rpc.handler.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.effacy.jui.rpc.handler.query.RecordDeltaProcessorTest.Server;
+import com.effacy.jui.rpc.handler.query.RecordDeltaProcessorTest.TestDelta;
+import com.effacy.jui.rpc.handler.query.RecordDeltaProcessorTest.TestProcessor;
+import com.effacy.jui.rpc.handler.query.RecordDeltaProcessorTest.TestRecord;
+
+/**
+ * Measures a poll of a live board of records (with a small fraction changing
+ * between polls) by full refresh against by delta. The full refresh returns
+ * all the records and matches each against those held with a replacement
+ * comparator (as performed by {@code IStoreReplacable.replace}); the delta
+ * returns only the changes and applies them by key. The records transferred by
+ * each are reported on tear down.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordDeltaProcessorBenchmark {
+
+    @Param({ "5000" })
+    public int records;
+
+    private Server server;
+
+    private TestProcessor processor;
+
+    private List<TestRecord> held;
+
+    private String token;
+
+    private int poll;
+
+    private long polls;
+
+    private long transferred;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        server = new Server (records);
+        processor = new TestProcessor (server, true);
+        held = new ArrayList<> (server.records.values ());
+        token = server.token ();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (polls > 0)
+            System.out.println ("records=" + records + " transferred/poll=" + (transferred / polls));
+        polls = 0;
+        transferred = 0;
+    }
+
+    @Benchmark
+    public int full() {
+        RecordDeltaProcessorTest.mutate (server, poll++ % 100);
+        List<TestRecord> updates = new ArrayList<> (server.records.values ());
+        int replaced = 0;
+        for (TestRecord update : updates) {
+            for (int i = 0; i < held.size (); i++) {
+                if (held.get (i).getId ().equals (update.getId ())) {
+                    if (held.get (i).getVersion () != update.getVersion ()) {
+                        held.set (i, update);
+                        replaced++;
+                    }
+                    break;
+                }
+            }
+        }
+        polls++;
+        transferred += updates.size ();
+        return replaced;
+    }
+
+    @Benchmark
+    public int delta() throws Exception {
+        RecordDeltaProcessorTest.mutate (server, poll++ % 100);
+        TestDelta delta = processor.process (null, RecordDeltaProcessorTest.query (held, token));
+        delta.applyTo (held, TestRecord::getId);
+        token = delta.getToken ();
+        polls++;
+        transferred += delta.getChanged ().size () + delta.getRemoved ().size ();
+        return delta.getChanged ().size ();
+    }
+}
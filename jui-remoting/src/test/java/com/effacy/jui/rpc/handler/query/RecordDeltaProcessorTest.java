@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.rpc.handler.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.rpc.handler.client.query.RecordDelta;
+import com.effacy.jui.rpc.handler.client.query.RecordDeltaQuery;
+import com.effacy.jui.rpc.handler.client.query.RecordResult;
+
+public class RecordDeltaProcessorTest {
+
+    @Test
+    public void delta() throws Exception {
+        Server server = new Server (10);
+        TestProcessor processor = new TestProcessor (server, false);
+
+        List<TestRecord> held = new ArrayList<> ();
+        TestDelta delta = processor.process (null, query (held, null));
+        Assertions.assertEquals (10, delta.getChanged ().size ());
+        delta.applyTo (held, TestRecord::getId);
+
+        // Nothing changed.
+        Assertions.assertTrue (processor.process (null, query (held, null)).isEmpty ());
+
+        // One of each.
+        server.update (3L);
+        server.remove (5L);
+        long added = server.add ();
+        delta = processor.process (null, query (held, null));
+        Assertions.assertEquals (List.of (3L, added), ids (delta.getChanged ()));
+        Assertions.assertEquals (List.of (5L), delta.getRemoved ());
+        delta.applyTo (held, TestRecord::getId);
+        Assertions.assertEquals (ids (server.records.values ()), ids (held));
+    }
+
+    @Test
+    public void since() throws Exception {
+        Server server = new Server (10);
+        TestProcessor processor = new TestProcessor (server, true);
+
+        List<TestRecord> held = new ArrayList<> ();
+        TestDelta delta = processor.process (null, query (held, null));
+        delta.applyTo (held, TestRecord::getId);
+        String token = delta.getToken ();
+
+        // Without a token the records are scanned, thereafter they are not.
+        Assertions.assertEquals (10, processor.scanned);
+        processor.scanned = 0;
+
+        server.update (3L);
+        server.remove (5L);
+        delta = processor.process (null, query (held, token));
+        Assertions.assertEquals (List.of (3L), ids (delta.getChanged ()));
+        Assertions.assertEquals (List.of (5L), delta.getRemoved ());
+
+        // Changes are not re-sent where the client already holds them.
+        delta.applyTo (held, TestRecord::getId);
+        Assertions.assertTrue (processor.process (null, query (held, token)).isEmpty ());
+        Assertions.assertEquals (0, processor.scanned);
+    }
+
+    /**
+     * Polls a board of records with a small fraction changing between polls
+     * (see {@link RecordDeltaProcessorBenchmark} for the comparison against a
+     * full refresh). Exactly the changes are transferred and (with tokens) the
+     * records are not scanned.
+     */
+    @Test
+    public void polling() throws Exception {
+        Server server = new Server (1000);
+        TestProcessor processor = new TestProcessor (server, true);
+        List<TestRecord> held = new ArrayList<> (server.records.values ());
+        String token = server.token ();
+
+        int transferred = 0;
+        for (int poll = 0; poll < 5; poll++) {
+            int fromChange = server.changes.size ();
+            int fromRemoval = server.removals.size ();
+            mutate (server, poll);
+
+            // Those changed (and not since removed) and those removed.
+            Set<Long> changed = new HashSet<> (server.changes.subList (fromChange, server.changes.size ()));
+            Set<Long> removed = new HashSet<> (server.removals.subList (fromRemoval, server.removals.size ()));
+            changed.removeAll (removed);
+
+            TestDelta delta = processor.process (null, query (held, token));
+            Assertions.assertEquals (changed, new HashSet<> (ids (delta.getChanged ())));
+            Assertions.assertEquals (removed, new HashSet<> (delta.getRemoved ()));
+            Assertions.assertEquals (5, delta.getRemoved ().size ());
+            transferred += delta.getChanged ().size () + delta.getRemoved ().size ();
+
+            delta.applyTo (held, TestRecord::getId);
+            token = delta.getToken ();
+            Assertions.assertEquals (versions (server.records.values ()), versions (held));
+        }
+
+        // At most 10 updates, 5 additions and 5 removals per poll (against the
+        // 1000 records of a full refresh).
+        Assertions.assertTrue (transferred <= 5 * 20);
+        Assertions.assertEquals (0, processor.scanned);
+    }
+
+    /**
+     * Changes 1% of the records and adds and removes a few.
+     */
+    static void mutate(Server server, int poll) {
+        List<Long> ids = new ArrayList<> (server.records.keySet ());
+        for (int i = poll; i < ids.size (); i += 100)
+            server.update (ids.get (i));
+        for (int i = 0; i < 5; i++) {
+            server.remove (ids.get ((poll * 37 + i * 101) % ids.size ()));
+            server.add ();
+        }
+    }
+
+    static TestQuery query(List<TestRecord> held, String since) {
+        TestQuery query = new TestQuery ();
+        query.hold (held);
+        query.setSince (since);
+        return query;
+    }
+
+    private List<Long> ids(Collection<TestRecord> records) {
+        List<Long> ids = new ArrayList<> ();
+        records.forEach (r -> ids.add (r.getId ()));
+        return ids;
+    }
+
+    private List<String> versions(Collection<TestRecord> records) {
+        List<String> versions = new ArrayList<> ();
+        records.forEach (r -> versions.add (r.getId () + ":" + r.getVersion ()));
+        versions.sort (null);
+        return versions;
+    }
+
+    /**
+     * Versioned records along with a log of changes (for tokens).
+     */
+    static class Server {
+
+        Map<Long, TestRecord> records = new LinkedHashMap<> ();
+
+        List<Long> changes = new ArrayList<> ();
+
+        List<Long> removals = new ArrayList<> ();
+
+        List<Integer> removalAt = new ArrayList<> ();
+
+        long nextId = 1;
+
+        Server(int size) {
+            for (int i = 0; i < size; i++)
+                add ();
+            changes.clear ();
+        }
+
+        String token() {
+            return Integer.toString (changes.size ());
+        }
+
+        long add() {
+            long id = nextId++;
+            records.put (id, new TestRecord (id, 1));
+            changes.add (id);
+            return id;
+        }
+
+        void update(long id) {
+            TestRecord record = records.get (id);
+            if (record != null) {
+                records.put (id, new TestRecord (id, record.getVersion () + 1));
+                changes.add (id);
+            }
+        }
+
+        void remove(long id) {
+            if (records.remove (id) != null) {
+                removals.add (id);
+                removalAt.add (changes.size ());
+            }
+        }
+    }
+
+    static class TestProcessor extends RecordDeltaProcessor<Object, Long, TestRecord, TestDelta, TestQuery> {
+
+        Server server;
+
+        boolean tokens;
+
+        int scanned;
+
+        TestProcessor(Server server, boolean tokens) {
+            super (TestQuery.class);
+            this.server = server;
+            this.tokens = tokens;
+        }
+
+        @Override
+        protected TestDelta createResult(Object context, TestQuery query) {
+            return new TestDelta ();
+        }
+
+        @Override
+        protected Collection<TestRecord> records(Object context, TestQuery query) {
+            scanned += server.records.size ();
+            return server.records.values ();
+        }
+
+        @Override
+        protected String token(Object context, TestQuery query) {
+            return tokens ? server.token () : null;
+        }
+
+        @Override
+        protected List<TestRecord> changedSince(Object context, TestQuery query, String since) {
+            Map<Long, TestRecord> changed = new LinkedHashMap<> ();
+            for (Long id : server.changes.subList (Integer.parseInt (since), server.changes.size ())) {
+                TestRecord record = server.records.get (id);
+                if (record != null)
+                    changed.put (id, record);
+            }
+            return new ArrayList<> (changed.values ());
+        }
+
+        @Override
+        protected List<Long> removedSince(Object context, TestQuery query, String since) {
+            int from = Integer.parseInt (since);
+            List<Long> removed = new ArrayList<> ();
+            for (int i = 0; i < server.removals.size (); i++) {
+                if (server.removalAt.get (i) >= from)
+                    removed.add (server.removals.get (i));
+            }
+            return removed;
+        }
+    }
+
+    static class TestRecord extends RecordResult<Long> {
+
+        TestRecord(long id, int version) {
+            super (id, version);
+        }
+    }
+
+    static class TestDelta extends RecordDelta<Long, TestRecord> {}
+
+    static class TestQuery extends RecordDeltaQuery<Long, TestDelta> {}
+}
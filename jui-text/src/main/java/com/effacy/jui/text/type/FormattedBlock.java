@@ -353,6 +353,16 @@ public class FormattedBlock {
         this.meta = meta;
     }
 
+    /**
+     * Determines if there is any meta-data (without creating the meta-data map
+     * as {@link #getMeta()} does).
+     * 
+     * @return {@code true} if there is.
+     */
+    public boolean hasMeta() {
+        return (meta != null) && !meta.isEmpty();
+    }
+
     /************************************************************************
      * General properties.
      ************************************************************************/
@@ -639,8 +649,8 @@ public class FormattedBlock {
     public FormattedBlock insert(int start, FormattedBlock blk) {
         if ((blk == null) || (type != blk.type) || blk.getLines ().isEmpty())
             return this;
-        if ((blk.getLines ().size () == 0) && (blk.getLines ().get (0).formatting.size () == 0))
-            return insert (start, blk.getLines ().get (0).text);
+        if ((blk.getLines ().size () == 0) && (blk.getLines ().get (0).getFormatting ().size () == 0))
+            return insert (start, blk.getLines ().get (0).getText ());
         // A negative start means at the end.
         if ((start < 0) || (start >= length ())) {
             lastLine ().merge (blk.getLines ().get (0));
@@ -15,6 +15,7 @@
  ******************************************************************************/
 package com.effacy.jui.text.type;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -150,6 +151,12 @@ public class FormattedLine {
         @JsonInclude(Include.NON_NULL)
         private Map<String,String> meta;
 
+        /**
+         * The store holding this format (if any), which is informed when the
+         * format is changed other than by the store (see {@link LineStore}).
+         */
+        LineStore store;
+
         /**
          * Serialisation constructor.
          */
@@ -207,6 +214,7 @@ public class FormattedLine {
          */
         public void setFormats(List<FormatType> formats) {
             this.formats = (formats == null) ? null : formats.toArray (new FormatType[formats.size ()]);
+            changed ();
         }
 
         /**
@@ -218,7 +226,23 @@ public class FormattedLine {
             if (formats == null)
                 return new FormatType[0];
             return formats;
-        } 
+        }
+
+        /**
+         * The formats array as held (may be {@code null}).
+         */
+        FormatType[] types() {
+            return formats;
+        }
+
+        /**
+         * Determines if there is meta-data for the given key (without creating
+         * the meta-data map as {@link #getMeta()} does).
+         */
+        boolean hasMeta(String key) {
+            return (meta != null) && meta.containsKey(key);
+        }
+
         /**
          * The index into the line where this formatting segment begins.
          * 
@@ -233,6 +257,14 @@ public class FormattedLine {
          */
         public void setIndex(int index) {
             this.index = index;
+            changed ();
+        }
+
+        /**
+         * Assigns the index without informing the store (for use by the store).
+         */
+        void index(int index) {
+            this.index = index;
         }
 
         /**
@@ -249,6 +281,15 @@ public class FormattedLine {
          */
         public void setLength(int length) {
             this.length = length;
+            changed ();
+        }
+
+        /**
+         * Assigns the length without informing the store (for use by the
+         * store).
+         */
+        void length(int length) {
+            this.length = length;
         }
 
         /**
@@ -269,6 +310,22 @@ public class FormattedLine {
             this.meta = meta;
         }
 
+        /**
+         * Determines if there is any meta-data (without creating the meta-data
+         * map as {@link #getMeta()} does).
+         */
+        public boolean hasMeta() {
+            return (meta != null) && !meta.isEmpty();
+        }
+
+        /**
+         * Informs the store (if any) that the format has been changed.
+         */
+        private void changed() {
+            if (store != null)
+                store.changed ();
+        }
+
         /************************************************************************
          * Overrides and contracted behaviour.
          ************************************************************************/
@@ -434,8 +491,8 @@ public class FormattedLine {
      */
     public FormattedLine clone() {
         FormattedLine line = new FormattedLine();
-        line.text = text;
-        getFormatting ().forEach (f -> line.getFormatting ().add (new Format (f)));
+        line.text = getText ();
+        formats ().forEach (f -> line.formatting ().add (new Format (f)));
         return line;
     }
 
@@ -493,12 +550,37 @@ public class FormattedLine {
     @JsonInclude(Include.NON_NULL)
     protected List<Format> formatting;
 
+    /**
+     * Lines of at least this length are edited by way of a {@link LineStore}
+     * (see {@link #store()}).
+     */
+    static final int STORE_THRESHOLD = 4096;
+
+    /**
+     * The threshold in effect (see {@link #STORE_THRESHOLD}). This is only
+     * varied by tests and benchmarks (which restore it).
+     */
+    static int storeThreshold = STORE_THRESHOLD;
+
+    /**
+     * See {@link #store()}. When present the store (rather than {@link #text}
+     * and {@link #formatting}) holds the content of the line.
+     */
+    private LineStore store;
+
+    /**
+     * See {@link #getFormatting()}.
+     */
+    private List<Format> view;
+
     /**
      * The text content of the line.
      * 
      * @return the text content (non-{@code null} but may be empty).
      */
     public String getText() {
+        if (store != null)
+            return store.text ();
         return text;
     }
 
@@ -506,16 +588,28 @@ public class FormattedLine {
      * @param text the text to set
      */
     public void setText(String text) {
+        release ();
         this.text = text;
     }
 
     /**
-     * @return List<Format> return the formatting
+     * The formatting applied to the text (which may be modified directly).
+     * <p>
+     * For long lines this is a view onto the store (see {@link #store()}) so
+     * its size and individual formats are obtained without rebuilding the
+     * formatting following an edit. Modifying the list (or a format) reverts
+     * the line to being edited directly.
+     * <p>
+     * Note that for long lines the operations on the line may replace formats
+     * (rather than modify them in place) so the formats should be re-obtained
+     * following an operation.
+     * 
+     * @return the formatting.
      */
     public List<Format> getFormatting() {
-        if (formatting == null)
-            formatting = new ArrayList<>();
-        return formatting;
+        if (view == null)
+            view = new FormattingView ();
+        return view;
     }
 
     /**
@@ -525,9 +619,121 @@ public class FormattedLine {
      *                   the formatting to assign.
      */
     public void setFormatting(List<Format> formatting) {
+        release ();
         this.formatting = formatting;
     }
 
+    /**
+     * Obtains a store for editing the line, being one if the line is long
+     * enough (see {@link #storeThreshold}) to warrant it. Editing a long line
+     * directly means rebuilding the text and walking the formats on each
+     * edit; the store performs these in logarithmic time.
+     * <p>
+     * Once created the store holds the content of the line and reads are
+     * served from it: the text is assembled once following a run of edits and
+     * the formats are obtained from it individually (see
+     * {@link #getFormatting()}). The store is retained until the line is
+     * changed other than through it (including by way of a format it holds).
+     * 
+     * @return the store ({@code null} if the line is to be edited directly).
+     */
+    private LineStore store() {
+        if (store != null) {
+            if (!store.modified ())
+                return store;
+            release ();
+        }
+        if ((text == null) || (text.length () < storeThreshold))
+            return null;
+        store = LineStore.create (text, formatting ());
+        return store;
+    }
+
+    /**
+     * Writes the content of the store (if any) back to {@link #text} and
+     * {@link #formatting} (the list is refilled rather than replaced) and
+     * discards the store. This is used prior to changing the line other than
+     * through the store and when an operation through the store reports that
+     * the formatting is no longer ordered by index (which the store requires).
+     */
+    private void release() {
+        if (store == null)
+            return;
+        text = store.text ();
+        store.formatting (formatting ());
+        store = null;
+    }
+
+    /**
+     * The formatting as held directly (which is current only in the absence of
+     * a store).
+     */
+    private List<Format> formatting() {
+        if (formatting == null)
+            formatting = new ArrayList<>();
+        return formatting;
+    }
+
+    /**
+     * The formats in order, taken from the store (if any) without releasing
+     * it.
+     */
+    private List<Format> formats() {
+        if (store != null)
+            return store.formats ();
+        return formatting ();
+    }
+
+    /**
+     * See {@link #getFormatting()}. Reads are served by the store (if any) and
+     * modifications release the store first.
+     */
+    private class FormattingView extends AbstractList<Format> {
+
+        @Override
+        public int size() {
+            return (store != null) ? store.size () : formatting ().size ();
+        }
+
+        @Override
+        public Format get(int index) {
+            if (store == null)
+                return formatting ().get (index);
+            if ((index < 0) || (index >= store.size ()))
+                throw new IndexOutOfBoundsException ("Index: " + index + ", Size: " + store.size ());
+            return store.get (index);
+        }
+
+        @Override
+        public Format set(int index, Format format) {
+            release ();
+            return formatting ().set (index, format);
+        }
+
+        @Override
+        public void add(int index, Format format) {
+            release ();
+            formatting ().add (index, format);
+        }
+
+        @Override
+        public Format remove(int index) {
+            release ();
+            return formatting ().remove (index);
+        }
+
+        @Override
+        public void clear() {
+            release ();
+            formatting ().clear ();
+        }
+
+        @Override
+        public void forEach(Consumer<? super Format> action) {
+            formats ().forEach (action);
+        }
+    }
+
     /************************************************************************
      * Derived properties.
      ************************************************************************/
@@ -539,7 +745,7 @@ public class FormattedLine {
      * @return the length in characters.
      */
     public int length() {
-        return text.length ();
+        return (store != null) ? store.length () : text.length ();
     }
 
     /**
@@ -549,6 +755,8 @@ public class FormattedLine {
      * @return the sequence.
      */
     public List<TextSegment> sequence() {
+        String text = getText ();
+        List<Format> formatting = formats ();
         // normalise ();
         List<TextSegment> result = new ArrayList<>();
         if ((formatting == null) || formatting.isEmpty ()) {
@@ -597,6 +805,7 @@ public class FormattedLine {
      * @return the flattened text.
      */
     public String flatten() {
+        String text = getText ();
         return (text == null) ? "" : text;
     }
 
@@ -620,11 +829,17 @@ public class FormattedLine {
         }
         if (len <= 0)
             return false;
-        if (start >= text.length())
+        int length = length ();
+        if (start >= length)
             return false;
         int end = start + len;
-        if (end > text.length())
-            end = text.length ();
+        if (end > length)
+            end = length;
+        if (store () != null) {
+            if (!store.remove (start, end, len))
+                release ();
+            return true;
+        }
         text = text.substring(0, start) + text.substring (end);
         if (!getFormatting ().isEmpty ()) {
             for (Format format : new ArrayList<>(getFormatting ())) {
@@ -649,6 +864,10 @@ public class FormattedLine {
     public void insert(int start, String text) {
         if ((text == null) || (text.length() == 0))
             return;
+        if (store () != null) {
+            store.insert (start, text, (start < 0) || (start >= store.length ()));
+            return;
+        }
         if ((start < 0) || (start >= this.text.length())) {
             this.text += text;
             return;
@@ -660,7 +879,7 @@ public class FormattedLine {
                 format.index += len;
             } else if (format.index + format.length >= start) {
                 // Variable formats are atomic — never expand them on adjacent insertion.
-                if ((format.meta != null) && format.meta.containsKey(META_VARIABLE))
+                if (format.hasMeta(META_VARIABLE))
                     continue;
                 format.length += len;
             }
@@ -684,6 +903,7 @@ public class FormattedLine {
             return this;
         if ((link == null) || link.isEmpty())
             return append(text, formats);
+        release ();
         text = text.replace('\u00a0', ' ');
         text = text.replaceAll("[\\u0000-\\u001F\\u007F-\\u009F\\u061C\\u200E\\u200F\\u202A-\\u202E\\u2066-\\u2069]", "");
         FormatType[] allFormats = new FormatType[formats.length + 1];
@@ -714,6 +934,7 @@ public class FormattedLine {
     public FormattedLine variable(String name, FormatType... formats) {
         if ((name == null) || name.isEmpty())
             return this;
+        release ();
         Format format = new Format(this.text.length(), 0, formats);
         format.getMeta().put(META_VARIABLE, name);
         getFormatting().add(format);
@@ -740,6 +961,7 @@ public class FormattedLine {
     public FormattedLine append(String text, FormatType... formats) {
         if ((text == null) || (text.length () == 0))
             return this;
+        release ();
         text = text.replace ('\u00a0', ' ');
         text = text.replaceAll ("[\\u0000-\\u001F\\u007F-\\u009F\\u061C\\u200E\\u200F\\u202A-\\u202E\\u2066-\\u2069]", "");
         if (formats.length > 0) {
@@ -773,11 +995,32 @@ public class FormattedLine {
     public void addFormat(int start, int len, FormatType type) {
         if (len <= 0)
             return;
-        int end = start + len;
+        if (store () != null) {
+            if (!store.addFormat (start, len, type))
+                release ();
+            return;
+        }
         List<Format> result = new ArrayList<>();
+        addFormat(getFormatting(), start, len, type, result);
+        getFormatting().clear();
+        getFormatting().addAll(result);
+    }
+
+    /**
+     * Implements {@link #addFormat(int, int, FormatType)} over the given
+     * formats (also used by {@link LineStore} over those formats that may be
+     * affected).
+     *
+     * @param formats
+     *                the formats to add to (ordered by index).
+     * @param result
+     *                to add the resulting formats to.
+     */
+    static void addFormat(List<Format> formats, int start, int len, FormatType type, List<Format> result) {
+        int end = start + len;
         int coveredUpTo = start;
 
-        for (Format f : getFormatting()) {
+        for (Format f : formats) {
             int fEnd = f.index + f.length;
 
             // Entirely before range.
@@ -830,9 +1073,6 @@ public class FormattedLine {
         // Trailing gap.
         if (coveredUpTo < end)
             result.add(new Format(coveredUpTo, end - coveredUpTo, type));
-
-        getFormatting().clear();
-        getFormatting().addAll(result);
     }
 
     /**
@@ -851,10 +1091,25 @@ public class FormattedLine {
     public void removeFormat(int start, int len, FormatType type) {
         if (len <= 0)
             return;
-        int end = start + len;
+        if (store () != null) {
+            if (!store.removeFormat (start, len, type))
+                release ();
+            return;
+        }
         List<Format> result = new ArrayList<>();
+        removeFormat(getFormatting(), start, len, type, result);
+        getFormatting().clear();
+        getFormatting().addAll(result);
+    }
+
+    /**
+     * Implements {@link #removeFormat(int, int, FormatType)} over the given
+     * formats (see {@link #addFormat(List, int, int, FormatType, List)}).
+     */
+    static void removeFormat(List<Format> formats, int start, int len, FormatType type, List<Format> result) {
+        int end = start + len;
 
-        for (Format f : getFormatting()) {
+        for (Format f : formats) {
             int fEnd = f.index + f.length;
 
             // No overlap with the range — keep unchanged.
@@ -890,9 +1145,6 @@ public class FormattedLine {
                 result.add(post);
             }
         }
-
-        getFormatting().clear();
-        getFormatting().addAll(result);
     }
 
     /**
@@ -910,10 +1162,20 @@ public class FormattedLine {
     public boolean hasFormat(int start, int len, FormatType type) {
         if (len <= 0)
             return false;
+        if (store () != null)
+            return store.hasFormat (start, len, type);
+        return hasFormat(getFormatting(), start, len, type);
+    }
+
+    /**
+     * Implements {@link #hasFormat(int, int, FormatType)} over the given
+     * formats (see {@link #addFormat(List, int, int, FormatType, List)}).
+     */
+    static boolean hasFormat(List<Format> formats, int start, int len, FormatType type) {
         int end = start + len;
         int coveredUpTo = start;
 
-        for (Format f : getFormatting()) {
+        for (Format f : formats) {
             if (f.index >= end)
                 break;
             int fEnd = f.index + f.length;
@@ -972,9 +1234,10 @@ public class FormattedLine {
     public void merge(FormattedLine other) {
         if (other == null)
             return;
+        release ();
         int offset = text.length ();
-        text = text += other.text;
-        for (Format format : other.getFormatting ())
+        text += other.getText ();
+        for (Format format : other.formats ())
             getFormatting ().add (new Format (format.index + offset, format.length, format.formats));
     }
 
@@ -989,6 +1252,7 @@ public class FormattedLine {
      * @return the left side of the split (may be empty, meaning of zero length).
      */
     public FormattedLine split(int idx) {
+        release ();
         if (idx <= 0) {
             FormattedLine line = clone ();
             text = "";
@@ -1044,9 +1308,10 @@ public class FormattedLine {
      */
     public void traverse(BiConsumer<String,FormatType[]> visitor) {
         // TODO: We need to properly order and merge the formats for safety.
+        String text = getText ();
         int idx = 0;
 
-        for (Format format : getFormatting ()) {
+        for (Format format : formats ()) {
             if (format.getIndex () > idx) {
                 Logger.warn (" [idx=" + idx + ",fmt_idx=" + format.getIndex() + ",fmt_len" + format.getLength() + "] \"" + text + "\"(" + text.length() + ")");
                 visitor.accept (text.substring (idx, format.getIndex ()), new FormatType[0]);
@@ -1069,9 +1334,10 @@ public class FormattedLine {
      * formatted text) is employed.
      */
     protected void normalise() {
-        if (getFormatting ().size() == 0)
+        release ();
+        if (formatting ().size() == 0)
             return;
-        Collections.sort (getFormatting (), (o1, o2) -> {
+        Collections.sort (formatting (), (o1, o2) -> {
             if (o1.index < o2.index)
                 return -1;
             if (o1.index > o2.index)
@@ -1090,9 +1356,10 @@ public class FormattedLine {
 
     @Override
     public String toString() {
-        String str = this.text;
-        for (int i = getFormatting ().size() - 1; i >= 0; i--) {
-            Format format = getFormatting ().get(i);
+        String str = getText ();
+        List<Format> formatting = formats ();
+        for (int i = formatting.size() - 1; i >= 0; i--) {
+            Format format = formatting.get(i);
             String right = str.substring (format.index + format.length);
             String left = str.substring (0, format.index + format.length);
             String middle = left.substring (format.index);
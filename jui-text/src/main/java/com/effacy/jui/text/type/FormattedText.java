@@ -29,6 +29,9 @@ import com.effacy.jui.text.type.FormattedBlock.BlockType;
 import com.effacy.jui.text.type.builder.FormattedTextBuilder;
 import com.effacy.jui.text.type.builder.markdown.MarkdownParser;
 import com.effacy.jui.text.type.builder.markdown.MarkdownSerializer;
+import com.effacy.jui.text.type.edit.ContentIndex;
+import com.effacy.jui.text.type.edit.PositionIndex;
+import com.effacy.jui.text.type.edit.Positions;
 
 /**
  * Captures text that is formatted in a rich content sense (i.e custom blocks of
@@ -201,36 +204,71 @@ public class FormattedText implements Iterable<FormattedBlock> {
 
     /**
      * Computes a content hash over the entire document structure (block types,
-     * indents, line text, formatting entries, and metadata). Two documents
-     * with identical content produce the same hash.
+     * indents, line text, formatting entries, metadata and child blocks). Two
+     * documents with identical content produce the same hash.
+     * <p>
+     * This traverses the whole document so always reflects its content. Where
+     * the document is changed only by way of the editing steps
+     * {@link #trackedHash()} yields the same value more cheaply.
      *
      * @return the computed hash value.
      */
     public int computeHash() {
-        int h = 0;
-        if (blocks != null) {
-            for (FormattedBlock block : blocks) {
-                // The (h << 5) - h pattern accommodates overflow (<< in JavaScrip truncates to
-                // 32 bits) and provides a good distribution.
-                h = (h << 5) - h + block.getType().hashCode();
-                h = (h << 5) - h + block.getIndent();
-                if (block.getMeta() != null)
-                    h = (h << 5) - h + block.getMeta().hashCode();
-                for (FormattedLine line : block.getLines()) {
-                    h = (h << 5) - h + line.getText().hashCode();
-                    if (line.getFormatting() != null) {
-                        for (FormattedLine.Format fmt : line.getFormatting()) {
-                            h = (h << 5) - h + fmt.getIndex();
-                            h = (h << 5) - h + fmt.getLength();
-                            h = (h << 5) - h + fmt.getFormats().hashCode();
-                            if (fmt.getMeta() != null)
-                                h = (h << 5) - h + fmt.getMeta().hashCode();
-                        }
-                    }
-                }
-            }
-        }
-        return h;
+        return ContentIndex.hash(blocks);
+    }
+
+    /**
+     * Obtains the same hash as {@link #computeHash()} but from the cached hash
+     * of each block (see {@link #contentIndex()}), so only those blocks changed
+     * since the last call are hashed again.
+     * <p>
+     * Changes made through the editing steps are tracked automatically, however
+     * changes made directly to the content of a block are not detected unless
+     * reported (see {@link Positions#invalidate(FormattedText)}).
+     *
+     * @return the hash value.
+     */
+    public int trackedHash() {
+        return contentIndex().ensure(this).hash();
+    }
+
+    /**
+     * The current revision of the document (which advances as changes are
+     * made). Record this to later determine what has changed (see
+     * {@link #changedBlockIds(int)}).
+     *
+     * @return the revision.
+     */
+    public int revision() {
+        return contentIndex().ensure(this).revision();
+    }
+
+    /**
+     * Determines the top-level blocks that have changed (including those
+     * inserted or moved) since the given revision (see {@link #revision()}).
+     * Identifiers are assigned to any blocks that don't have them (see
+     * {@link #ensureBlockIds()}).
+     *
+     * @param since
+     *              the revision to compare against.
+     * @return the identifiers of the changed blocks (in document order).
+     */
+    public List<String> changedBlockIds(int since) {
+        ensureBlockIds();
+        return contentIndex().ensure(this).changed(since);
+    }
+
+    /**
+     * Determines the top-level blocks that have been removed since the given
+     * revision (see {@link #revision()}).
+     *
+     * @param since
+     *              the revision to compare against.
+     * @return the identifiers of the removed blocks (or {@code null} if the
+     *         revision is too old for this to be determined).
+     */
+    public List<String> removedBlockIds(int since) {
+        return contentIndex().ensure(this).removed(since);
     }
 
     /************************************************************************
@@ -260,6 +298,42 @@ public class FormattedText implements Iterable<FormattedBlock> {
         this.blocks = blocks;
     }
 
+    /**
+     * See {@link #positionIndex()}.
+     */
+    private PositionIndex positionIndex;
+
+    /**
+     * The index of block positions used by {@link Positions} (this is
+     * maintained by the editing steps and is not serialised or cloned).
+     *
+     * @return the index (never {@code null}).
+     */
+    public PositionIndex positionIndex() {
+        if (positionIndex == null)
+            positionIndex = new PositionIndex();
+        return positionIndex;
+    }
+
+    /**
+     * See {@link #contentIndex()}.
+     */
+    private ContentIndex contentIndex;
+
+    /**
+     * The index of block hashes, revisions and identifiers used by
+     * {@link #trackedHash()}, {@link #changedBlockIds(int)} and
+     * {@link #blockIndexById(String)} (this is maintained by the editing steps
+     * and is not serialised or cloned).
+     *
+     * @return the index (never {@code null}).
+     */
+    public ContentIndex contentIndex() {
+        if (contentIndex == null)
+            contentIndex = new ContentIndex();
+        return contentIndex;
+    }
+
     /**
      * Ensures every block in the document has an identifier.
      *
@@ -297,7 +371,9 @@ public class FormattedText implements Iterable<FormattedBlock> {
     }
 
     /**
-     * Finds the index of a top-level block by identifier.
+     * Finds the index of a top-level block by identifier (from an index of the
+     * identifiers, see {@link #contentIndex()}, rather than a scan of the
+     * blocks).
      * 
      * @param id
      *           the identifier.
@@ -306,11 +382,7 @@ public class FormattedText implements Iterable<FormattedBlock> {
     public int blockIndexById(String id) {
         if ((id == null) || id.isBlank())
             return -1;
-        for (int i = 0; i < getBlocks().size(); i++) {
-            if (id.equals(getBlocks().get(i).getId()))
-                return i;
-        }
-        return -1;
+        return contentIndex().ensure(this).find(id);
     }
 
     /**
@@ -0,0 +1,761 @@
+/*******************************************************************************
+ * Copyright 2025 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.effacy.jui.text.type.FormattedLine.Format;
+import com.effacy.jui.text.type.FormattedLine.FormatType;
+
+/**
+ * An alternative backing store for the text and formatting of a long
+ * {@link FormattedLine} that allows edits to be made without rebuilding the
+ * text or walking every format.
+ * <p>
+ * The text is held as a rope (a randomised balanced tree of chunks, each no
+ * more than {@link #CHUNK} characters) and the formats as a randomised
+ * balanced tree in list order (which must be ordered by index) augmented with
+ * the maximum end of each subtree (so formats covering a position can be
+ * found without a scan) and a lazy offset shift (so the formats following an
+ * edit can be moved as a whole). Edits are thus logarithmic in the length of
+ * the text and the number of formats (plus the number of formats directly
+ * affected).
+ * <p>
+ * The formats held are the line's own {@link Format} instances (these are
+ * updated in place). The line reads from the store directly: the text is
+ * assembled once following a run of edits (see {@link #text()}) and formats
+ * are obtained by position in the list (see {@link #get(int)}) without
+ * writing the formatting back. Each format refers back to the store holding
+ * it so that changing it (other than by the store) marks the store as
+ * modified (see {@link #modified()}), whereupon the line reverts to the list
+ * (see {@link #formatting(List)}).
+ * <p>
+ * Each operation reproduces exactly the result of the corresponding list based
+ * operation on {@link FormattedLine}. Where the result would no longer be
+ * ordered by index (which the list based operations permit) or contains a
+ * format of negative length (which the augmented values do not account for)
+ * the operation reports this and the line reverts to the list (which the
+ * store's order faithfully reflects).
+ */
+class LineStore {
+
+    /**
+     * Maximum size of a chunk of text.
+     */
+    static final int CHUNK = 512;
+
+    /**
+     * Creates a store for the given text and formatting.
+     *
+     * @return the store or {@code null} if the formatting is not ordered by
+     *         index or there is a format of negative length.
+     */
+    static LineStore create(String text, List<Format> formatting) {
+        for (int i = 0; i < formatting.size(); i++) {
+            if (formatting.get(i).getLength() < 0)
+                return null;
+            if ((i > 0) && (formatting.get(i - 1).getIndex() > formatting.get(i).getIndex()))
+                return null;
+        }
+        LineStore store = new LineStore();
+        store.text = store.build(text, 0, (text.length() + CHUNK - 1) / CHUNK);
+        store.flat = text;
+        store.spans = store.build(formatting, 0, formatting.size());
+        return store;
+    }
+
+    /************************************************************************
+     * Text.
+     ************************************************************************/
+
+    /**
+     * A chunk of text in the rope.
+     */
+    private static final class Piece {
+
+        String text;
+
+        /**
+         * Characters in the subtree.
+         */
+        int size;
+
+        /**
+         * Nodes in the subtree.
+         */
+        int count;
+
+        Piece left, right;
+
+        Piece(String text) {
+            this.text = text;
+            update();
+        }
+
+        Piece update() {
+            size = text.length() + ((left == null) ? 0 : left.size) + ((right == null) ? 0 : right.size);
+            count = 1 + ((left == null) ? 0 : left.count) + ((right == null) ? 0 : right.count);
+            return this;
+        }
+    }
+
+    /**
+     * Root of the rope.
+     */
+    private Piece text;
+
+    /**
+     * The text as a string (when known).
+     */
+    private String flat;
+
+    /**
+     * Results of {@link #split(Piece, int)}.
+     */
+    private Piece pl, pr;
+
+    /**
+     * The length of the text.
+     */
+    int length() {
+        return (text == null) ? 0 : text.size;
+    }
+
+    /**
+     * The text.
+     */
+    String text() {
+        if (flat == null) {
+            StringBuilder sb = new StringBuilder(length());
+            append(sb, text);
+            flat = sb.toString();
+        }
+        return flat;
+    }
+
+    private void append(StringBuilder sb, Piece piece) {
+        while (piece != null) {
+            append(sb, piece.left);
+            sb.append(piece.text);
+            piece = piece.right;
+        }
+    }
+
+    /**
+     * Builds a balanced rope over the chunks {@code [lo,hi)} of the string.
+     */
+    private Piece build(String str, int lo, int hi) {
+        if (lo >= hi)
+            return null;
+        int mid = (lo + hi) >>> 1;
+        Piece piece = new Piece(str.substring(mid * CHUNK, Math.min(str.length(), (mid + 1) * CHUNK)));
+        piece.left = build(str, lo, mid);
+        piece.right = build(str, mid + 1, hi);
+        return piece.update();
+    }
+
+    private Piece merge(Piece a, Piece b) {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+        if (random(a.count + b.count) < a.count) {
+            a.right = merge(a.right, b);
+            return a.update();
+        }
+        b.left = merge(a, b.left);
+        return b.update();
+    }
+
+    /**
+     * Splits the rope at the given position into {@link #pl} and {@link #pr}.
+     */
+    private void split(Piece piece, int pos) {
+        if (piece == null) {
+            pl = pr = null;
+            return;
+        }
+        int left = (piece.left == null) ? 0 : piece.left.size;
+        if (pos <= left) {
+            split(piece.left, pos);
+            piece.left = pr;
+            pr = piece.update();
+        } else if (pos >= left + piece.text.length()) {
+            split(piece.right, pos - left - piece.text.length());
+            piece.right = pl;
+            pl = piece.update();
+        } else {
+            int k = pos - left;
+            Piece tail = new Piece(piece.text.substring(k));
+            tail.right = piece.right;
+            piece.text = piece.text.substring(0, k);
+            piece.right = null;
+            pl = piece.update();
+            pr = tail.update();
+        }
+    }
+
+    /**
+     * Appends to the last chunk of the rope if there is room.
+     */
+    private boolean appendTo(Piece piece, String str) {
+        if (piece == null)
+            return false;
+        if (piece.right != null) {
+            if (!appendTo(piece.right, str))
+                return false;
+            piece.update();
+            return true;
+        }
+        if ((piece.text.length() + str.length()) > CHUNK)
+            return false;
+        piece.text += str;
+        piece.update();
+        return true;
+    }
+
+    private void insertText(int pos, String str) {
+        split(text, pos);
+        Piece right = pr;
+        Piece left = pl;
+        if (!appendTo(left, str))
+            left = merge(left, build(str, 0, (str.length() + CHUNK - 1) / CHUNK));
+        text = merge(left, right);
+        flat = null;
+    }
+
+    private void removeText(int start, int end) {
+        split(text, start);
+        Piece left = pl;
+        split(pr, end - start);
+        text = merge(left, pr);
+        flat = null;
+    }
+
+    /************************************************************************
+     * Formatting.
+     ************************************************************************/
+
+    /**
+     * A format in the tree.
+     */
+    private static final class Span {
+
+        final Format format;
+
+        /**
+         * Shift yet to be applied to the children.
+         */
+        int shift;
+
+        /**
+         * The maximum end of the formats in the subtree.
+         */
+        int maxEnd;
+
+        /**
+         * Nodes in the subtree.
+         */
+        int count;
+
+        /**
+         * If the subtree contains a format that a removal discards (see
+         * {@link LineStore#discardable(Format)}).
+         */
+        boolean discard;
+
+        /**
+         * If the subtree contains a format of negative length.
+         */
+        boolean negative;
+
+        Span left, right;
+
+        Span(Format format) {
+            this.format = format;
+        }
+    }
+
+    /**
+     * Root of the formatting tree.
+     */
+    private Span spans;
+
+    /**
+     * Results of {@link #split(Span, int)} and {@link #splitRank(Span, int)}.
+     */
+    private Span sl, sr;
+
+    /**
+     * See {@link #modified()}.
+     */
+    private boolean modified;
+
+    /**
+     * Determines if a format held has been changed other than by the store
+     * (in which case the store no longer reflects the formatting).
+     */
+    boolean modified() {
+        return modified;
+    }
+
+    /**
+     * Invoked by a format held when it is changed (see {@link #modified()}).
+     */
+    void changed() {
+        modified = true;
+    }
+
+    /**
+     * The number of formats.
+     */
+    int size() {
+        return (spans == null) ? 0 : spans.count;
+    }
+
+    /**
+     * The format at the given position in the list (which must be in range).
+     */
+    Format get(int rank) {
+        Span span = spans;
+        while (true) {
+            push(span);
+            int left = (span.left == null) ? 0 : span.left.count;
+            if (rank < left) {
+                span = span.left;
+            } else if (rank == left) {
+                return span.format;
+            } else {
+                rank -= left + 1;
+                span = span.right;
+            }
+        }
+    }
+
+    /**
+     * The formats (in order).
+     */
+    List<Format> formats() {
+        List<Format> formats = new ArrayList<>(size());
+        collect(spans, formats);
+        return formats;
+    }
+
+    /**
+     * Writes the formats (in order) into the given list (replacing its
+     * contents) and releases them from the store.
+     */
+    void formatting(List<Format> formatting) {
+        formatting.clear();
+        collect(spans, formatting);
+        for (Format format : formatting)
+            format.store = null;
+    }
+
+    /**
+     * Determines if a format is discarded by a removal (see
+     * {@link FormattedLine#remove(int, int)}).
+     */
+    private static boolean discardable(Format format) {
+        if (format.getLength() > 0)
+            return false;
+        for (FormatType type : format.formats()) {
+            if (type == FormatType.IMG)
+                return false;
+        }
+        return true;
+    }
+
+    private static void apply(Span span, int shift) {
+        if (span != null) {
+            span.format.index(span.format.getIndex() + shift);
+            span.shift += shift;
+            span.maxEnd += shift;
+        }
+    }
+
+    private static void push(Span span) {
+        if (span.shift != 0) {
+            apply(span.left, span.shift);
+            apply(span.right, span.shift);
+            span.shift = 0;
+        }
+    }
+
+    /**
+     * Recomputes the augmented values (the node must have been pushed).
+     */
+    private static Span update(Span span) {
+        Format format = span.format;
+        span.maxEnd = format.getIndex() + format.getLength();
+        span.count = 1;
+        span.discard = discardable(format);
+        span.negative = (format.getLength() < 0);
+        if (span.left != null) {
+            span.maxEnd = Math.max(span.maxEnd, span.left.maxEnd);
+            span.count += span.left.count;
+            span.discard |= span.left.discard;
+            span.negative |= span.left.negative;
+        }
+        if (span.right != null) {
+            span.maxEnd = Math.max(span.maxEnd, span.right.maxEnd);
+            span.count += span.right.count;
+            span.discard |= span.right.discard;
+            span.negative |= span.right.negative;
+        }
+        return span;
+    }
+
+    private Span build(List<Format> formats, int lo, int hi) {
+        if (lo >= hi)
+            return null;
+        int mid = (lo + hi) >>> 1;
+        Span span = new Span(formats.get(mid));
+        span.format.store = this;
+        span.left = build(formats, lo, mid);
+        span.right = build(formats, mid + 1, hi);
+        return update(span);
+    }
+
+    private void collect(Span span, List<Format> formats) {
+        while (span != null) {
+            push(span);
+            collect(span.left, formats);
+            formats.add(span.format);
+            span = span.right;
+        }
+    }
+
+    private Span merge(Span a, Span b) {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+        if (random(a.count + b.count) < a.count) {
+            push(a);
+            a.right = merge(a.right, b);
+            return update(a);
+        }
+        push(b);
+        b.left = merge(a, b.left);
+        return update(b);
+    }
+
+    /**
+     * Splits into those formats with an index less than that given
+     * ({@link #sl}) and the remainder ({@link #sr}).
+     */
+    private void split(Span span, int index) {
+        if (span == null) {
+            sl = sr = null;
+            return;
+        }
+        push(span);
+        if (span.format.getIndex() < index) {
+            split(span.right, index);
+            span.right = sl;
+            sl = update(span);
+        } else {
+            split(span.left, index);
+            span.left = sr;
+            sr = update(span);
+        }
+    }
+
+    /**
+     * Splits into the first {@code rank} formats ({@link #sl}) and the
+     * remainder ({@link #sr}).
+     */
+    private void splitRank(Span span, int rank) {
+        if (span == null) {
+            sl = sr = null;
+            return;
+        }
+        push(span);
+        int left = (span.left == null) ? 0 : span.left.count;
+        if (rank <= left) {
+            splitRank(span.left, rank);
+            span.left = sr;
+            sr = update(span);
+        } else {
+            splitRank(span.right, rank - left - 1);
+            span.right = sl;
+            sl = update(span);
+        }
+    }
+
+    /**
+     * The rank of the first format that ends after the given position (or the
+     * number of formats if there is none).
+     */
+    private static int firstEndingAfter(Span span, int pos) {
+        int rank = 0;
+        while (span != null) {
+            push(span);
+            if ((span.left != null) && (span.left.maxEnd > pos)) {
+                span = span.left;
+            } else {
+                int left = (span.left == null) ? 0 : span.left.count;
+                if ((span.format.getIndex() + span.format.getLength()) > pos)
+                    return rank + left;
+                rank += left + 1;
+                span = span.right;
+            }
+        }
+        return rank;
+    }
+
+    private static Format first(Span span) {
+        if (span == null)
+            return null;
+        push(span);
+        while (span.left != null) {
+            span = span.left;
+            push(span);
+        }
+        return span.format;
+    }
+
+    private static Format last(Span span) {
+        if (span == null)
+            return null;
+        push(span);
+        while (span.right != null) {
+            span = span.right;
+            push(span);
+        }
+        return span.format;
+    }
+
+    /**
+     * Determines if the parts (each ordered) are ordered when joined.
+     */
+    private static boolean ordered(Span a, Span b) {
+        Format last = last(a);
+        Format first = first(b);
+        return (last == null) || (first == null) || (last.getIndex() <= first.getIndex());
+    }
+
+    private static boolean ordered(List<Format> formats) {
+        for (int i = 1; i < formats.size(); i++) {
+            if (formats.get(i - 1).getIndex() > formats.get(i).getIndex())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Extends the formats (other than variables) that end at or after the
+     * given position.
+     */
+    private static void extend(Span span, int pos, int len) {
+        if ((span == null) || (span.maxEnd < pos))
+            return;
+        push(span);
+        extend(span.left, pos, len);
+        Format format = span.format;
+        if (((format.getIndex() + format.getLength()) >= pos) && !format.hasMeta(FormattedLine.META_VARIABLE))
+            format.length(format.getLength() + len);
+        extend(span.right, pos, len);
+        update(span);
+    }
+
+    /**
+     * Truncates the formats that end in {@code [start,end)} to end at start.
+     */
+    private static void truncate(Span span, int start, int end) {
+        if ((span == null) || (span.maxEnd < start))
+            return;
+        push(span);
+        truncate(span.left, start, end);
+        Format format = span.format;
+        int fEnd = format.getIndex() + format.getLength();
+        if ((fEnd >= start) && (fEnd < end))
+            format.length(start - format.getIndex());
+        truncate(span.right, start, end);
+        update(span);
+    }
+
+    /**
+     * Removes the discardable formats.
+     */
+    private Span discard(Span span) {
+        if ((span == null) || !span.discard)
+            return span;
+        push(span);
+        span.left = discard(span.left);
+        span.right = discard(span.right);
+        if (discardable(span.format)) {
+            span.format.store = null;
+            return merge(span.left, span.right);
+        }
+        return update(span);
+    }
+
+    /************************************************************************
+     * Operations (see the same on FormattedLine).
+     ************************************************************************/
+
+    /**
+     * Inserts text.
+     *
+     * @param textOnly
+     *                 if the formatting is left unchanged (as for an insertion
+     *                 at the end).
+     */
+    void insert(int start, String str, boolean textOnly) {
+        if (textOnly) {
+            insertText(length(), str);
+            return;
+        }
+        insertText(start, str);
+        split(spans, start);
+        Span right = sr;
+        Span left = sl;
+        apply(right, str.length());
+        extend(left, start, str.length());
+        spans = merge(left, right);
+    }
+
+    /**
+     * Removes the text {@code [start,end)} shifting the formatting following by
+     * {@code len}.
+     *
+     * @return {@code true} if the formatting remains ordered (and, as a format
+     *         of negative length can arise for images, no format has a
+     *         negative length).
+     */
+    boolean remove(int start, int end, int len) {
+        removeText(start, end);
+        split(spans, start);
+        Span before = sl;
+        split(sr, end);
+        Span within = sl;
+        Span after = sr;
+
+        // Formats ending in the range are truncated, those starting in the
+        // range are moved to the start (and reduced) and those following are
+        // shifted.
+        truncate(before, start, end);
+        List<Format> moved = new ArrayList<>();
+        collect(within, moved);
+        for (Format format : moved) {
+            format.length(format.getLength() - (end - format.getIndex()));
+            format.index(start);
+        }
+        within = build(moved, 0, moved.size());
+        apply(after, -len);
+        before = discard(before);
+        within = discard(within);
+        after = discard(after);
+
+        boolean ordered = ordered(before, within) && ordered(within, after) && ((within != null) || ordered(before, after));
+        spans = merge(merge(before, within), after);
+        return ordered && ((spans == null) || !spans.negative);
+    }
+
+    /**
+     * Adds a format type (see
+     * {@link FormattedLine#addFormat(List, int, int, FormatType, List)}).
+     *
+     * @return {@code true} if the formatting remains ordered.
+     */
+    boolean addFormat(int start, int len, FormatType type) {
+        return replace(start, len, affected -> {
+            List<Format> result = new ArrayList<>();
+            FormattedLine.addFormat(affected, start, len, type, result);
+            return result;
+        });
+    }
+
+    /**
+     * Removes a format type (see
+     * {@link FormattedLine#removeFormat(List, int, int, FormatType, List)}).
+     *
+     * @return {@code true} if the formatting remains ordered.
+     */
+    boolean removeFormat(int start, int len, FormatType type) {
+        return replace(start, len, affected -> {
+            List<Format> result = new ArrayList<>();
+            FormattedLine.removeFormat(affected, start, len, type, result);
+            return result;
+        });
+    }
+
+    /**
+     * Checks a format type (see
+     * {@link FormattedLine#hasFormat(List, int, int, FormatType)}).
+     */
+    boolean hasFormat(int start, int len, FormatType type) {
+        boolean[] result = new boolean[1];
+        replace(start, len, affected -> {
+            result[0] = FormattedLine.hasFormat(affected, start, len, type);
+            return null;
+        });
+        return result[0];
+    }
+
+    /**
+     * Isolates the formats (in order) from the first that ends after
+     * {@code start} up to (but excluding) the first that begins at or after
+     * {@code start+len} and replaces them with those returned by the
+     * operation (which may return {@code null} to leave them unchanged).
+     * <p>
+     * The formats preceding these necessarily end at or before start and those
+     * following begin at or after the end of the range so (for the format
+     * operations) are unaffected.
+     */
+    private boolean replace(int start, int len, Function<List<Format>, List<Format>> op) {
+        split(spans, start + len);
+        Span after = sr;
+        Span prefix = sl;
+        splitRank(prefix, firstEndingAfter(prefix, start));
+        Span before = sl;
+        List<Format> affected = new ArrayList<>();
+        collect(sr, affected);
+        List<Format> result = op.apply(affected);
+        Span within = sr;
+        boolean ordered = true;
+        if (result != null) {
+            affected.forEach(format -> format.store = null);
+            within = build(result, 0, result.size());
+            ordered = ordered(result) && ordered(before, within) && ordered(within, after) && ((within != null) || ordered(before, after));
+        }
+        spans = merge(merge(before, within), after);
+        return ordered;
+    }
+
+    /************************************************************************
+     * Support.
+     ************************************************************************/
+
+    /**
+     * State for {@link #random(int)}.
+     */
+    private int seed = 0x2545F491;
+
+    /**
+     * A pseudo-random number in {@code [0,bound)} (for balancing).
+     */
+    private int random(int bound) {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return (int) ((seed & 0x7FFFFFFFL) % bound);
+    }
+}
@@ -16,12 +16,14 @@
 package com.effacy.jui.text.type.builder.markdown;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.effacy.jui.text.type.FormattedBlock.BlockType;
 import com.effacy.jui.text.type.FormattedLine.FormatType;
@@ -179,231 +181,652 @@ public class MarkdownParser {
         StringBuilder combined = new StringBuilder();
         for (int i = 0; i < content.length; i++) {
             if (content[i] != null) {
-                if ((combined.length() > 0) && !combined.toString().endsWith("\n\n"))
+                if ((combined.length() > 0) && !endsWithBlankLine(combined))
                     combined.append("\n\n");
                 combined.append(content[i]);
             }
         }
-        parseBlocks(combined.toString(), lineProcessor, handler, partial);
+        parseBlocks(combined, 0, combined.length(), lineProcessor, handler, partial);
         return handler.result();
     }
 
+    private static boolean endsWithBlankLine(CharSequence str) {
+        int len = str.length();
+        return (len >= 2) && (str.charAt(len - 1) == '\n') && (str.charAt(len - 2) == '\n');
+    }
+
     /************************************************************************
-     * Block-level parsing.
+     * Incremental (streaming) parsing.
      ************************************************************************/
 
-    private void parseBlocks(String markdown, Function<String, String> lineProcessor, IEventBuilder<?> handler, boolean partial) {
-        if ((markdown == null) || markdown.isEmpty())
-            return;
-        List<ParsedBlock> blocks = splitBlocks(markdown);
+    /**
+     * Creates an incremental parser for content that arrives in chunks (see
+     * {@link Incremental}). The {@link #partial(boolean)} setting is not used
+     * (the open block is always treated as partial until
+     * {@link Incremental#finish()}).
+     *
+     * @param <T>
+     *                the type of the handler's result.
+     * @param handler
+     *                the handler to receive the events for closed blocks (and,
+     *                on finish, the remainder).
+     * @param open
+     *                supplies a handler to render the trailing open block
+     *                into (invoked on each feed that has open content).
+     * @param discard
+     *                invoked to discard whatever was last rendered to a
+     *                handler from {@code open} (may be {@code null}).
+     * @return the incremental parser.
+     */
+    public <T> Incremental<T> incremental(IEventBuilder<T> handler, Supplier<IEventBuilder<?>> open, Runnable discard) {
+        return new Incremental<>(handler, open, discard);
+    }
 
-        // Determine the index of the last non-empty block for partial handling.
-        int lastBlockIndex = partial ? (blocks.size() - 1) : -1;
+    /**
+     * Parses markdown that arrives in chunks (i.e. a token stream) without
+     * re-parsing what has already been seen.
+     * <p>
+     * Complete lines are scanned as they arrive to track block boundaries.
+     * Once a block can no longer change (the next block has started and it
+     * cannot be merged into it, as consecutive list blocks are) its events are
+     * emitted to the handler once and for all and its text is released. What
+     * remains (the open block, including any incomplete last line) is parsed
+     * as partial content into a handler obtained from the {@code open}
+     * supplier, having first invoked {@code discard} to remove the previous
+     * rendering of the open block. Thus the cost of each feed is proportional
+     * to the size of the open block rather than the whole document.
+     * <p>
+     * The events emitted to the handler followed by those for the open block
+     * are the same as a (partial) parse of all the content fed so far and
+     * those emitted to the handler on {@link #finish()} are the same as a
+     * (non-partial) parse of the whole. The open block is rendered to a fresh
+     * handler so any state the handler carries across blocks (i.e. grouping of
+     * list items) is not shared with it until the block closes.
+     */
+    public class Incremental<T> {
 
-        for (int p = 0; p < blocks.size(); p++) {
-            ParsedBlock block = blocks.get(p);
-            boolean partialBlock = (p == lastBlockIndex);
+        /**
+         * See constructor.
+         */
+        private final IEventBuilder<T> handler;
 
-            if (block.code) {
-                emitCodeBlock(handler, block, partialBlock);
-                continue;
+        /**
+         * See constructor.
+         */
+        private final Supplier<IEventBuilder<?>> open;
+
+        /**
+         * See constructor.
+         */
+        private final Runnable discard;
+
+        /**
+         * Content that has not yet been emitted to the handler.
+         */
+        private final StringBuilder buffer = new StringBuilder();
+
+        /**
+         * Position in the buffer from which lines have yet to be scanned.
+         */
+        private int scanned;
+
+        /**
+         * The type of block currently being scanned: {@code 0} for none (i.e.
+         * between blocks), {@code 1} for text and {@code 2} for code.
+         */
+        private int mode;
+
+        /**
+         * Start of the current block in the buffer.
+         */
+        private int blockStart;
+
+        /**
+         * If all the lines of the current (text) block are list items.
+         */
+        private boolean blockList;
+
+        /**
+         * If there are closed blocks ahead of the current block that have not
+         * been emitted (these can only be held back for merging with a
+         * following list block).
+         */
+        private boolean held;
+
+        /**
+         * If the held blocks are all list items.
+         */
+        private boolean heldList;
+
+        /**
+         * If the open content has been rendered (and so needs discarding).
+         */
+        private boolean rendered;
+
+        /**
+         * If {@link #finish()} has been called.
+         */
+        private boolean finished;
+
+        /**
+         * Construct with handlers (see
+         * {@link MarkdownParser#incremental(IEventBuilder, Supplier, Runnable)}).
+         */
+        Incremental(IEventBuilder<T> handler, Supplier<IEventBuilder<?>> open, Runnable discard) {
+            this.handler = handler;
+            this.open = open;
+            this.discard = discard;
+            handler.commence();
+        }
+
+        /**
+         * Feeds the next chunk of content.
+         *
+         * @param chunk
+         *              the chunk (may be partial lines).
+         * @return this parser for chaining.
+         */
+        public Incremental<T> feed(String chunk) {
+            if (finished)
+                throw new IllegalStateException("Incremental parse has finished");
+            if ((chunk == null) || chunk.isEmpty())
+                return this;
+            buffer.append(chunk);
+            int committed = scan();
+            if (rendered && (discard != null))
+                discard.run();
+            rendered = false;
+            if (committed > 0)
+                commit(committed);
+            if ((buffer.length() > 0) && (open != null)) {
+                IEventBuilder<?> builder = open.get();
+                builder.commence();
+                parseBlocks(buffer, 0, buffer.length(), lineProcessor, builder, true);
+                rendered = true;
             }
+            return this;
+        }
 
-            String[] lines = block.lines.toArray(new String[0]);
+        /**
+         * Completes the parse, emitting the remaining content (as final) to
+         * the handler.
+         *
+         * @return the handler's result.
+         */
+        public T finish() {
+            if (!finished) {
+                finished = true;
+                if (rendered && (discard != null))
+                    discard.run();
+                rendered = false;
+                parseBlocks(buffer, 0, buffer.length(), lineProcessor, handler, false);
+                buffer.setLength(0);
+            }
+            return handler.result();
+        }
+
+        /**
+         * The length of content held (i.e. not yet emitted to the handler).
+         */
+        public int pending() {
+            return buffer.length();
+        }
 
-            // Apply line processor if provided.
-            if (lineProcessor != null) {
-                for (int i = 0; i < lines.length; i++) {
-                    String processed = lineProcessor.apply(lines[i]);
-                    lines[i] = (processed == null) ? "" : processed;
+        /**
+         * Scans the newly completed lines.
+         *
+         * @return the length of content that can be emitted.
+         */
+        private int scan() {
+            int committed = 0;
+            int end;
+            while ((end = buffer.indexOf("\n", scanned)) >= 0) {
+                int start = scanned;
+                scanned = end + 1;
+                boolean blank = isBlank(buffer, start, end);
+                boolean fence = !blank && isFence(buffer, start, end);
+                if (mode == 2) {
+                    if (fence)
+                        closeBlock(false);
+                } else if (mode == 1) {
+                    if (blank || fence) {
+                        closeBlock(blockList);
+                        if (fence)
+                            committed = openBlock(start, true, false, committed);
+                    } else if (blockList && !isListItem(buffer, start, end)) {
+                        blockList = false;
+                        if (held) {
+                            held = false;
+                            committed = blockStart;
+                        }
+                    }
+                } else if (!blank) {
+                    committed = openBlock(start, fence, !fence && isListItem(buffer, start, end), committed);
                 }
             }
+            return committed;
+        }
 
-            // Skip if all lines are empty after processing.
-            boolean allEmpty = true;
-            for (String line : lines) {
-                if (!line.trim().isEmpty()) {
-                    allEmpty = false;
-                    break;
-                }
+        /**
+         * Opens a block at the given position, releasing any held blocks that
+         * cannot be merged with it.
+         */
+        private int openBlock(int start, boolean code, boolean list, int committed) {
+            if (held && (!heldList || !list)) {
+                held = false;
+                committed = start;
             }
-            if (allEmpty)
-                continue;
+            mode = code ? 2 : 1;
+            blockStart = start;
+            blockList = list;
+            return committed;
+        }
 
-            if ((lines.length == 1) && lines[0].trim().startsWith("#")) {
-                emitHeading(handler, lines[0], partialBlock);
-            } else if (isTableBlock(lines)) {
-                emitTable(handler, lines, partialBlock);
-            } else if (isListBlock(lines)) {
-                emitList(handler, lines, partialBlock);
-            } else {
-                // Check for a list starting mid-paragraph (e.g. intro text
-                // followed by list items without a blank line separator).
-                int listStart = findListTransition(lines);
-                if (listStart > 0) {
-                    handler.startBlock(BlockType.PARA);
-                    for (int l = 0; l < listStart; l++) {
-                        handler.startLine();
-                        if (!lines[l].isEmpty())
-                            emitLineContent(handler, lines[l], false);
-                        handler.endLine();
-                    }
-                    handler.endBlock(BlockType.PARA);
-
-                    // Find where the contiguous list items end.
-                    int listEnd = lines.length;
-                    for (int l = listStart; l < lines.length; l++) {
-                        if (lines[l].trim().isEmpty())
-                            continue;
-                        if (!isListItem(lines[l])) {
-                            listEnd = l;
-                            break;
-                        }
+        /**
+         * Closes the current block (which, if held blocks remain, has been
+         * merged with them).
+         */
+        private void closeBlock(boolean list) {
+            if (!held)
+                heldList = list;
+            held = true;
+            mode = 0;
+        }
+
+        /**
+         * Emits the content up to the given position to the handler and
+         * releases it.
+         */
+        private void commit(int length) {
+            parseBlocks(buffer, 0, length, lineProcessor, handler, false);
+            buffer.delete(0, length);
+            scanned -= length;
+            blockStart -= length;
+        }
+    }
+
+    /************************************************************************
+     * Block-level parsing.
+     ************************************************************************/
+
+    /**
+     * Parses the given range of markdown emitting events for each block.
+     * <p>
+     * Blocks are scanned with a cursor in a single pass (see
+     * {@link BlockScanner}) and their lines are held as index ranges (into the
+     * content or, where there is a line processor, into a buffer of the
+     * processed lines). Strings are only created for the text that is passed
+     * to the handler.
+     */
+    private void parseBlocks(CharSequence markdown, int start, int end, Function<String, String> lineProcessor, IEventBuilder<?> handler, boolean partial) {
+        if ((markdown == null) || (start >= end))
+            return;
+        BlockScanner scanner = new BlockScanner(markdown, start, end);
+        StringBuilder processed = (lineProcessor == null) ? null : new StringBuilder();
+        Block current = new Block();
+        Block next = new Block();
+        boolean more = scanner.next(current);
+        while (more) {
+            // Merge consecutive list-only blocks so that blank lines between
+            // list items do not restart the list numbering.
+            more = scanner.next(next);
+            while (more && current.mergeable() && next.mergeable()) {
+                current.append(next);
+                more = scanner.next(next);
+            }
+
+            // Only the last block is partial.
+            emitBlock(handler, current, lineProcessor, processed, partial && !more);
+            Block swap = current;
+            current = next;
+            next = swap;
+        }
+    }
+
+    private void emitBlock(IEventBuilder<?> handler, Block block, Function<String, String> lineProcessor, StringBuilder processed, boolean partial) {
+        if (block.code) {
+            emitCodeBlock(handler, block, partial);
+            return;
+        }
+
+        // Apply line processor if provided.
+        if (lineProcessor != null)
+            block.process(lineProcessor, processed);
+
+        // Skip if all lines are empty after processing.
+        boolean allEmpty = true;
+        for (int l = 0; l < block.count; l++) {
+            if (!block.blank(l)) {
+                allEmpty = false;
+                break;
+            }
+        }
+        if (allEmpty)
+            return;
+
+        CharSequence text = block.text;
+        if ((block.count == 1) && (text.charAt(trimStart(text, block.start(0), block.end(0))) == '#')) {
+            emitHeading(handler, text, block.start(0), block.end(0), partial);
+        } else if (isTableBlock(block)) {
+            emitTable(handler, block, partial);
+        } else if (isListBlock(block)) {
+            emitList(handler, block, 0, block.count, null, partial);
+        } else {
+            // Check for a list starting mid-paragraph (e.g. intro text
+            // followed by list items without a blank line separator).
+            int listStart = findListTransition(block);
+            if (listStart > 0) {
+                handler.startBlock(BlockType.PARA);
+                for (int l = 0; l < listStart; l++) {
+                    handler.startLine();
+                    if (block.start(l) < block.end(l))
+                        emitLineContent(handler, block.line(l), false);
+                    handler.endLine();
+                }
+                handler.endBlock(BlockType.PARA);
+
+                // Find where the contiguous list items end.
+                int listEnd = block.count;
+                for (int l = listStart; l < block.count; l++) {
+                    if (block.blank(l))
+                        continue;
+                    if (!isListItem(text, block.start(l), block.end(l))) {
+                        listEnd = l;
+                        break;
                     }
+                }
 
-                    // Copy list lines; append any trailing non-list continuation
-                    // to the last list item (single-newline continuation).
-                    String[] listLines = new String[listEnd - listStart];
-                    System.arraycopy(lines, listStart, listLines, 0, listLines.length);
-                    if (listEnd < lines.length) {
-                        StringBuilder continuation = new StringBuilder(listLines[listLines.length - 1]);
-                        for (int l = listEnd; l < lines.length; l++) {
-                            if (!lines[l].trim().isEmpty())
-                                continuation.append(" ").append(lines[l].trim());
+                // Append any trailing non-list continuation to the last list
+                // item (single-newline continuation).
+                String continuation = null;
+                if (listEnd < block.count) {
+                    StringBuilder sb = new StringBuilder();
+                    sb.append(text, block.start(listEnd - 1), block.end(listEnd - 1));
+                    for (int l = listEnd; l < block.count; l++) {
+                        if (!block.blank(l)) {
+                            int s = trimStart(text, block.start(l), block.end(l));
+                            sb.append(" ").append(text, s, trimEnd(text, s, block.end(l)));
                         }
-                        listLines[listLines.length - 1] = continuation.toString();
-                    }
-                    emitList(handler, listLines, partialBlock);
-                } else {
-                    handler.startBlock(BlockType.PARA);
-                    for (int l = 0; l < lines.length; l++) {
-                        boolean partialLine = partialBlock && (l == lines.length - 1);
-                        handler.startLine();
-                        if (!lines[l].isEmpty())
-                            emitLineContent(handler, lines[l], partialLine);
-                        handler.endLine();
                     }
-                    handler.endBlock(BlockType.PARA);
+                    continuation = sb.toString();
                 }
+                emitList(handler, block, listStart, listEnd, continuation, partial);
+            } else {
+                handler.startBlock(BlockType.PARA);
+                for (int l = 0; l < block.count; l++) {
+                    boolean partialLine = partial && (l == block.count - 1);
+                    handler.startLine();
+                    if (block.start(l) < block.end(l))
+                        emitLineContent(handler, block.line(l), partialLine);
+                    handler.endLine();
+                }
+                handler.endBlock(BlockType.PARA);
             }
         }
     }
 
-    private List<ParsedBlock> splitBlocks(String markdown) {
-        String[] rawLines = markdown.split("\\n", -1);
-        List<ParsedBlock> blocks = new ArrayList<>();
-        int i = 0;
-        while (i < rawLines.length) {
-            while ((i < rawLines.length) && rawLines[i].trim().isEmpty())
-                i++;
-            if (i >= rawLines.length)
-                break;
+    private void emitCodeBlock(IEventBuilder<?> handler, Block block, boolean partial) {
+        handler.startBlock(BlockType.CODE);
+        if (block.langStart < block.langEnd)
+            handler.meta("lang", block.text.subSequence(block.langStart, block.langEnd).toString());
+        for (int i = 0; i < block.count; i++) {
+            boolean partialLine = partial && (i == (block.count - 1));
+            handler.startLine();
+            if (block.start(i) < block.end(i))
+                handler.text(block.line(i));
+            else if (partialLine && partial)
+                handler.text("");
+            handler.endLine();
+        }
+        handler.endBlock(BlockType.CODE);
+    }
+
+    /**
+     * Scans blocks from a range of markdown. A block is either a fenced code
+     * block (running to the closing fence, which is consumed, or the end of
+     * the content) or a run of non-blank lines (ending at a blank or fence
+     * line).
+     */
+    private static final class BlockScanner {
+
+        private final CharSequence markdown;
+
+        private final int end;
+
+        /**
+         * The start of the next line to scan (beyond {@link #end} when all
+         * lines have been scanned).
+         */
+        private int pos;
+
+        BlockScanner(CharSequence markdown, int start, int end) {
+            this.markdown = markdown;
+            this.pos = start;
+            this.end = end;
+        }
+
+        /**
+         * Scans the next block into the given block.
+         *
+         * @return {@code true} if there was a block.
+         */
+        boolean next(Block block) {
+            block.reset(markdown);
+            int eol;
+            while (true) {
+                if (pos > end)
+                    return false;
+                eol = eol(pos);
+                if (!isBlank(markdown, pos, eol))
+                    break;
+                pos = eol + 1;
+            }
 
-            String trimmed = rawLines[i].trim();
-            if (trimmed.startsWith("```")) {
-                ParsedBlock block = new ParsedBlock();
+            if (isFence(markdown, pos, eol)) {
                 block.code = true;
-                block.lang = trimmed.substring(3).trim();
-                i++;
-                while (i < rawLines.length) {
-                    if (rawLines[i].trim().startsWith("```")) {
-                        i++;
+                int s = trimStart(markdown, pos, eol) + 3;
+                block.langStart = trimStart(markdown, s, eol);
+                block.langEnd = trimEnd(markdown, block.langStart, eol);
+                pos = eol + 1;
+                while (pos <= end) {
+                    eol = eol(pos);
+                    int line = pos;
+                    pos = eol + 1;
+                    if (isFence(markdown, line, eol))
                         break;
-                    }
-                    block.lines.add(rawLines[i]);
-                    i++;
+                    block.add(line, eol);
                 }
-                blocks.add(block);
-                continue;
+                return true;
             }
 
-            ParsedBlock block = new ParsedBlock();
-            while (i < rawLines.length) {
-                if (rawLines[i].trim().startsWith("```"))
+            block.list = true;
+            while (pos <= end) {
+                eol = eol(pos);
+                if (isBlank(markdown, pos, eol) || isFence(markdown, pos, eol))
                     break;
-                if (rawLines[i].trim().isEmpty())
-                    break;
-                block.lines.add(rawLines[i]);
-                i++;
+                if (block.list && !isListItem(markdown, pos, eol))
+                    block.list = false;
+                block.add(pos, eol);
+                pos = eol + 1;
             }
-            if (!block.lines.isEmpty())
-                blocks.add(block);
+            return true;
         }
 
-        // Merge consecutive list-only blocks so that blank lines between list
-        // items do not restart the list numbering.
-        List<ParsedBlock> merged = new ArrayList<>();
-        for (ParsedBlock block : blocks) {
-            if (block.code) {
-                merged.add(block);
-                continue;
+        /**
+         * The end of the line starting at the given position.
+         */
+        private int eol(int from) {
+            for (int i = from; i < end; i++) {
+                if (markdown.charAt(i) == '\n')
+                    return i;
             }
-            if (!merged.isEmpty() && !merged.get(merged.size() - 1).code
-                && isListBlock(merged.get(merged.size() - 1).lines.toArray(new String[0]))
-                && isListBlock(block.lines.toArray(new String[0]))) {
-                merged.get(merged.size() - 1).lines.addAll(block.lines);
-            } else {
-                merged.add(block);
+            return end;
+        }
+    }
+
+    /**
+     * The lines of a block held as ranges over {@link #text}. Instances are
+     * reused between blocks.
+     */
+    private static final class Block {
+
+        boolean code;
+
+        /**
+         * For a code block, the range of the language.
+         */
+        int langStart, langEnd;
+
+        /**
+         * For a text block, if all the (unprocessed) lines are list items.
+         */
+        boolean list;
+
+        CharSequence text;
+
+        private int[] ranges = new int[32];
+
+        int count;
+
+        void reset(CharSequence text) {
+            this.text = text;
+            code = false;
+            list = false;
+            langStart = langEnd = 0;
+            count = 0;
+        }
+
+        void add(int start, int end) {
+            if ((2 * count + 2) > ranges.length)
+                ranges = Arrays.copyOf(ranges, 2 * ranges.length);
+            ranges[2 * count] = start;
+            ranges[2 * count + 1] = end;
+            count++;
+        }
+
+        void append(Block other) {
+            for (int i = 0; i < other.count; i++)
+                add(other.start(i), other.end(i));
+        }
+
+        boolean mergeable() {
+            return !code && list;
+        }
+
+        int start(int line) {
+            return ranges[2 * line];
+        }
+
+        int end(int line) {
+            return ranges[2 * line + 1];
+        }
+
+        boolean blank(int line) {
+            return isBlank(text, start(line), end(line));
+        }
+
+        String line(int line) {
+            return text.subSequence(start(line), end(line)).toString();
+        }
+
+        /**
+         * Replaces the lines with those produced by the line processor
+         * (written to the given buffer).
+         */
+        void process(Function<String, String> lineProcessor, StringBuilder buffer) {
+            buffer.setLength(0);
+            for (int i = 0; i < count; i++) {
+                String processed = lineProcessor.apply(line(i));
+                ranges[2 * i] = buffer.length();
+                if (processed != null)
+                    buffer.append(processed);
+                ranges[2 * i + 1] = buffer.length();
             }
+            text = buffer;
         }
-        return merged;
     }
 
-    private static boolean isFenceLine(String line) {
-        return (line != null) && line.trim().startsWith("```");
+    private static boolean isBlank(CharSequence str, int start, int end) {
+        return trimStart(str, start, end) == end;
     }
 
-    private void emitCodeBlock(IEventBuilder<?> handler, ParsedBlock block, boolean partial) {
-        handler.startBlock(BlockType.CODE);
-        if ((block.lang != null) && !block.lang.isEmpty())
-            handler.meta("lang", block.lang);
-        for (int i = 0; i < block.lines.size(); i++) {
-            boolean partialLine = partial && (i == (block.lines.size() - 1));
-            handler.startLine();
-            if (!block.lines.get(i).isEmpty())
-                handler.text(block.lines.get(i));
-            else if (partialLine && partial)
-                handler.text("");
-            handler.endLine();
+    private static boolean isFence(CharSequence str, int start, int end) {
+        start = trimStart(str, start, end);
+        return ((end - start) >= 3) && (str.charAt(start) == '`') && (str.charAt(start + 1) == '`') && (str.charAt(start + 2) == '`');
+    }
+
+    /**
+     * The position of the first character in the range that would not be
+     * removed by {@link String#trim()} (or the end of the range).
+     */
+    private static int trimStart(CharSequence str, int start, int end) {
+        while ((start < end) && (str.charAt(start) <= ' '))
+            start++;
+        return start;
+    }
+
+    /**
+     * The position following the last character in the range that would not
+     * be removed by {@link String#trim()} (or the start of the range).
+     */
+    private static int trimEnd(CharSequence str, int start, int end) {
+        while ((end > start) && (str.charAt(end - 1) <= ' '))
+            end--;
+        return end;
+    }
+
+    private static int indexOf(CharSequence str, char ch, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (str.charAt(i) == ch)
+                return i;
         }
-        handler.endBlock(BlockType.CODE);
+        return -1;
     }
 
-    private static class ParsedBlock {
-        boolean code;
-        String lang;
-        List<String> lines = new ArrayList<>();
+    private static boolean startsWith(CharSequence str, int start, int end, String prefix) {
+        if ((end - start) < prefix.length())
+            return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (str.charAt(start + i) != prefix.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private static String substring(CharSequence str, int start, int end) {
+        return str.subSequence(start, end).toString();
     }
 
     /************************************************************************
      * Heading.
      ************************************************************************/
 
-    private void emitHeading(IEventBuilder<?> handler, String line, boolean partial) {
-        String trimmed = line.trim();
+    private void emitHeading(IEventBuilder<?> handler, CharSequence text, int start, int end, boolean partial) {
+        start = trimStart(text, start, end);
+        end = trimEnd(text, start, end);
         BlockType headingType = BlockType.PARA;
-        String content = trimmed;
+        int content = start;
 
-        if (trimmed.startsWith("##### ")) {
+        if (startsWith(text, start, end, "##### ")) {
             headingType = BlockType.H5;
-            content = trimmed.substring(6);
-        } else if (trimmed.startsWith("#### ")) {
+            content += 6;
+        } else if (startsWith(text, start, end, "#### ")) {
             headingType = BlockType.H4;
-            content = trimmed.substring(5);
-        } else if (trimmed.startsWith("### ")) {
+            content += 5;
+        } else if (startsWith(text, start, end, "### ")) {
             headingType = BlockType.H3;
-            content = trimmed.substring(4);
-        } else if (trimmed.startsWith("## ")) {
+            content += 4;
+        } else if (startsWith(text, start, end, "## ")) {
             headingType = BlockType.H2;
-            content = trimmed.substring(3);
-        } else if (trimmed.startsWith("# ")) {
+            content += 3;
+        } else if (startsWith(text, start, end, "# ")) {
             headingType = BlockType.H1;
-            content = trimmed.substring(2);
+            content += 2;
         }
 
         handler.startBlock(headingType);
         handler.startLine();
-        emitLineContent(handler, content, partial);
+        emitLineContent(handler, substring(text, content, end), partial);
         handler.endLine();
         handler.endBlock(headingType);
     }
@@ -412,18 +835,18 @@ public class MarkdownParser {
      * List.
      ************************************************************************/
 
-    private static int findListTransition(String[] lines) {
-        for (int i = 1; i < lines.length; i++) {
-            if (lines[i].trim().isEmpty())
+    private static int findListTransition(Block block) {
+        for (int i = 1; i < block.count; i++) {
+            if (block.blank(i))
                 continue;
-            if (!isListItem(lines[i]))
+            if (!isListItem(block.text, block.start(i), block.end(i)))
                 continue;
             boolean contiguous = true;
             boolean seenNonList = false;
-            for (int j = i + 1; j < lines.length; j++) {
-                if (lines[j].trim().isEmpty())
+            for (int j = i + 1; j < block.count; j++) {
+                if (block.blank(j))
                     continue;
-                if (isListItem(lines[j])) {
+                if (isListItem(block.text, block.start(j), block.end(j))) {
                     if (seenNonList) {
                         contiguous = false;
                         break;
@@ -438,70 +861,88 @@ public class MarkdownParser {
         return -1;
     }
 
-    private static boolean isListBlock(String[] lines) {
-        if ((lines == null) || (lines.length == 0))
+    private static boolean isListBlock(Block block) {
+        if (block.count == 0)
             return false;
-        for (String line : lines) {
-            if (line.trim().isEmpty())
+        for (int l = 0; l < block.count; l++) {
+            if (block.blank(l))
                 continue;
-            if (!isListItem(line))
+            if (!isListItem(block.text, block.start(l), block.end(l)))
                 return false;
         }
         return true;
     }
 
-    private static boolean isListItem(String line) {
-        String trimmed = line.trim();
-        if (trimmed.length() < 2)
+    private static boolean isListItem(CharSequence line, int start, int end) {
+        start = trimStart(line, start, end);
+        end = trimEnd(line, start, end);
+        if ((end - start) < 2)
             return false;
 
-        char first = trimmed.charAt(0);
-        if (((first == '-') || (first == '*') || (first == '+')) && Character.isWhitespace(trimmed.charAt(1)))
+        char first = line.charAt(start);
+        if (((first == '-') || (first == '*') || (first == '+')) && Character.isWhitespace(line.charAt(start + 1)))
             return true;
 
-        int dotIndex = trimmed.indexOf('.');
-        if (dotIndex > 0) {
-            for (int i = 0; i < dotIndex; i++) {
-                if (!Character.isDigit(trimmed.charAt(i)))
+        int dotIndex = indexOf(line, '.', start, end);
+        if (dotIndex > start) {
+            for (int i = start; i < dotIndex; i++) {
+                if (!Character.isDigit(line.charAt(i)))
                     return false;
             }
-            if (((dotIndex + 1) < trimmed.length()) && Character.isWhitespace(trimmed.charAt(dotIndex + 1)))
+            if (((dotIndex + 1) < end) && Character.isWhitespace(line.charAt(dotIndex + 1)))
                 return true;
         }
 
         return false;
     }
 
-    private void emitList(IEventBuilder<?> handler, String[] lines, boolean partial) {
-        for (int l = 0; l < lines.length; l++) {
-            if (lines[l].trim().isEmpty())
+    /**
+     * Emits the lines of the block in the given range as list items.
+     *
+     * @param last
+     *             if not {@code null} then used in place of the last line.
+     */
+    private void emitList(IEventBuilder<?> handler, Block block, int from, int to, String last, boolean partial) {
+        for (int l = from; l < to; l++) {
+            CharSequence text = block.text;
+            int start = block.start(l);
+            int end = block.end(l);
+            if ((last != null) && (l == to - 1)) {
+                text = last;
+                start = 0;
+                end = last.length();
+            }
+            if (isBlank(text, start, end))
                 continue;
 
-            boolean partialLine = partial && (l == lines.length - 1);
+            boolean partialLine = partial && (l == to - 1);
 
             // Determine indent level from leading whitespace (2+ spaces or 1 tab = 1 level).
             int spaces = 0;
-            for (int i = 0; i < lines[l].length(); i++) {
-                if (lines[l].charAt(i) == ' ')
+            for (int i = start; i < end; i++) {
+                if (text.charAt(i) == ' ')
                     spaces++;
-                else if (lines[l].charAt(i) == '\t')
+                else if (text.charAt(i) == '\t')
                     spaces += 3;
                 else
                     break;
             }
             int indent = (spaces + 1) / 3;
 
-            String trimmed = lines[l].trim();
+            start = trimStart(text, start, end);
+            end = trimEnd(text, start, end);
             String content = "";
             boolean ordered = false;
 
-            char first = trimmed.charAt(0);
+            char first = text.charAt(start);
             if ((first == '-') || (first == '*') || (first == '+')) {
-                content = trimmed.substring(trimmed.indexOf(' ') + 1);
+                int space = indexOf(text, ' ', start, end);
+                content = substring(text, (space < 0) ? start : (space + 1), end);
             } else {
-                int dotIndex = trimmed.indexOf('.');
-                if (dotIndex > 0) {
-                    content = trimmed.substring(dotIndex + 1).trim();
+                int dotIndex = indexOf(text, '.', start, end);
+                if (dotIndex > start) {
+                    int s = trimStart(text, dotIndex + 1, end);
+                    content = substring(text, s, trimEnd(text, s, end));
                     ordered = true;
                 }
             }
@@ -521,91 +962,85 @@ public class MarkdownParser {
      * Table.
      ************************************************************************/
 
-    private static boolean isTableBlock(String[] lines) {
-        if ((lines == null) || (lines.length < 2))
+    private static boolean isTableBlock(Block block) {
+        if (block.count < 2)
             return false;
-        if (!isTableRow(lines[0]))
+        if (!isTableRow(block.text, block.start(0), block.end(0)))
             return false;
-        if (!isTableSeparator(lines[1]))
+        if (!isTableSeparator(block.text, block.start(1), block.end(1)))
             return false;
-        for (int i = 2; i < lines.length; i++) {
-            if (lines[i].trim().isEmpty())
+        for (int i = 2; i < block.count; i++) {
+            if (block.blank(i))
                 continue;
-            if (!isTableRow(lines[i]))
+            if (!isTableRow(block.text, block.start(i), block.end(i)))
                 return false;
         }
         return true;
     }
 
-    private static boolean isTableRow(String line) {
-        String trimmed = line.trim();
-        return (trimmed.length() >= 3) && (trimmed.charAt(0) == '|');
+    private static boolean isTableRow(CharSequence line, int start, int end) {
+        start = trimStart(line, start, end);
+        end = trimEnd(line, start, end);
+        return ((end - start) >= 3) && (line.charAt(start) == '|');
     }
 
-    private static boolean isTableSeparator(String line) {
-        String trimmed = line.trim();
-        if ((trimmed.length() < 3) || (trimmed.charAt(0) != '|'))
+    private static boolean isTableSeparator(CharSequence line, int start, int end) {
+        start = trimStart(line, start, end);
+        end = trimEnd(line, start, end);
+        if (((end - start) < 3) || (line.charAt(start) != '|'))
             return false;
-        for (int i = 0; i < trimmed.length(); i++) {
-            char c = trimmed.charAt(i);
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
             if ((c != '|') && (c != '-') && (c != ':') && !Character.isWhitespace(c))
                 return false;
         }
-        return trimmed.indexOf('-') >= 0;
+        return indexOf(line, '-', start, end) >= 0;
     }
 
-    private void emitTable(IEventBuilder<?> handler, String[] lines, boolean partial) {
-        String[] separatorCells = splitTableRow(lines[1]);
-        int columns = separatorCells.length;
-        String[] alignments = new String[columns];
-        for (int i = 0; i < columns; i++) {
-            String cell = separatorCells[i].trim();
-            boolean leftColon = cell.startsWith(":");
-            boolean rightColon = cell.endsWith(":");
+    private void emitTable(IEventBuilder<?> handler, Block block, boolean partial) {
+        CharSequence text = block.text;
+        TableRow separator = new TableRow(text, block.start(1), block.end(1));
+        int columns = separator.cells();
+        StringBuilder align = new StringBuilder();
+        for (int i = 0; separator.next(); i++) {
+            if (i > 0)
+                align.append(",");
+            boolean leftColon = (separator.cellStart < separator.cellEnd) && (text.charAt(separator.cellStart) == ':');
+            boolean rightColon = (separator.cellStart < separator.cellEnd) && (text.charAt(separator.cellEnd - 1) == ':');
             if (leftColon && rightColon)
-                alignments[i] = "C";
+                align.append("C");
             else if (rightColon)
-                alignments[i] = "R";
+                align.append("R");
             else
-                alignments[i] = "L";
+                align.append("L");
         }
 
         handler.startBlock(BlockType.TABLE);
         handler.meta("columns", String.valueOf(columns));
         handler.meta("headers", "1");
-
-        StringBuilder align = new StringBuilder();
-        for (int i = 0; i < alignments.length; i++) {
-            if (i > 0)
-                align.append(",");
-            align.append(alignments[i]);
-        }
         handler.meta("align", align.toString());
 
-        emitTableRow(handler, lines[0], columns);
+        emitTableRow(handler, text, block.start(0), block.end(0), columns);
 
-        for (int i = 2; i < lines.length; i++) {
-            if (lines[i].trim().isEmpty())
+        for (int i = 2; i < block.count; i++) {
+            if (block.blank(i))
                 continue;
-            emitTableRow(handler, lines[i], columns);
+            emitTableRow(handler, text, block.start(i), block.end(i), columns);
         }
 
         handler.endBlock(BlockType.TABLE);
     }
 
-    private void emitTableRow(IEventBuilder<?> handler, String line, int columns) {
+    private void emitTableRow(IEventBuilder<?> handler, CharSequence text, int start, int end, int columns) {
         handler.startBlock(BlockType.TROW);
 
-        String[] cells = splitTableRow(line);
+        TableRow row = new TableRow(text, start, end);
         for (int i = 0; i < columns; i++) {
             handler.startBlock(BlockType.TCELL);
-            if (i < cells.length) {
-                String cellContent = cells[i].trim();
-                if (!cellContent.isEmpty()) {
-                    handler.startLine();
-                    emitLineContent(handler, cellContent, false);
-                    handler.endLine();
-                }
+            if (row.next() && (row.cellStart < row.cellEnd)) {
+                handler.startLine();
+                emitLineContent(handler, substring(text, row.cellStart, row.cellEnd), false);
+                handler.endLine();
             }
             handler.endBlock(BlockType.TCELL);
         }
@@ -613,13 +1048,61 @@ public class MarkdownParser {
         handler.endBlock(BlockType.TROW);
     }
 
-    private static String[] splitTableRow(String line) {
-        String trimmed = line.trim();
-        if (trimmed.startsWith("|"))
-            trimmed = trimmed.substring(1);
-        if (trimmed.endsWith("|"))
-            trimmed = trimmed.substring(0, trimmed.length() - 1);
-        return trimmed.split("\\|", -1);
+    /**
+     * Iterates over the (trimmed) cells of a table row, being the segments
+     * between the {@code |} separators (less any leading and trailing
+     * separator).
+     */
+    private static final class TableRow {
+
+        private final CharSequence text;
+
+        private final int end;
+
+        private int pos;
+
+        int cellStart, cellEnd;
+
+        TableRow(CharSequence text, int start, int end) {
+            this.text = text;
+            start = trimStart(text, start, end);
+            end = trimEnd(text, start, end);
+            if ((start < end) && (text.charAt(start) == '|'))
+                start++;
+            if ((end > start) && (text.charAt(end - 1) == '|'))
+                end--;
+            this.pos = start;
+            this.end = end;
+        }
+
+        /**
+         * The number of cells.
+         */
+        int cells() {
+            int cells = 1;
+            for (int i = pos; i < end; i++) {
+                if (text.charAt(i) == '|')
+                    cells++;
+            }
+            return cells;
+        }
+
+        /**
+         * Moves to the next cell.
+         *
+         * @return {@code true} if there was a cell.
+         */
+        boolean next() {
+            if (pos > end)
+                return false;
+            int i = indexOf(text, '|', pos, end);
+            if (i < 0)
+                i = end;
+            cellStart = trimStart(text, pos, i);
+            cellEnd = trimEnd(text, cellStart, i);
+            pos = i + 1;
+            return true;
+        }
     }
 
     /************************************************************************
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the values written by a {@link ByteWriter} from a range of a byte
+ * array.
+ */
+final class ByteReader {
+
+    private final byte[] data;
+
+    private final int end;
+
+    private int pos;
+
+    ByteReader(byte[] data, int offset, int length) {
+        if ((offset < 0) || (length < 0) || (offset + length > data.length))
+            throw new IllegalArgumentException("Truncated content");
+        this.data = data;
+        this.pos = offset;
+        this.end = offset + length;
+    }
+
+    /**
+     * The current position in the underlying array.
+     */
+    int position() {
+        return pos;
+    }
+
+    /**
+     * Advances the position by the given number of bytes.
+     */
+    void skip(int n) {
+        if ((n < 0) || (pos + n > end))
+            throw new IllegalArgumentException("Truncated content");
+        pos += n;
+    }
+
+    /**
+     * Determines if there are any bytes remaining.
+     */
+    boolean remaining() {
+        return pos < end;
+    }
+
+    int read() {
+        if (pos >= end)
+            throw new IllegalArgumentException("Truncated content");
+        return data[pos++] & 0xFF;
+    }
+
+    /**
+     * See {@link ByteWriter#varint(int)}.
+     */
+    int varint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = read();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * See {@link ByteWriter#zigzag(int)}.
+     */
+    int zigzag() {
+        int value = varint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * See {@link ByteWriter#string(String)}.
+     */
+    String string() {
+        int length = varint();
+        if (length == 0)
+            return "";
+        skip(length);
+        return new String(data, pos - length, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Growable buffer of bytes with support for writing variable length integers
+ * and strings (see {@link ByteReader} for the reverse).
+ */
+final class ByteWriter {
+
+    private byte[] data;
+
+    private int size;
+
+    ByteWriter(int capacity) {
+        data = new byte[Math.max(16, capacity)];
+    }
+
+    /**
+     * The number of bytes written.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * The underlying buffer (of which the first {@link #size()} bytes have
+     * been written).
+     */
+    byte[] data() {
+        return data;
+    }
+
+    /**
+     * A copy of the bytes written.
+     */
+    byte[] bytes() {
+        byte[] copy = new byte[size];
+        System.arraycopy(data, 0, copy, 0, size);
+        return copy;
+    }
+
+    /**
+     * Discards the bytes written (retaining the buffer).
+     */
+    void clear() {
+        size = 0;
+    }
+
+    void write(int b) {
+        ensure(1);
+        data[size++] = (byte) b;
+    }
+
+    void write(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, data, size, length);
+        size += length;
+    }
+
+    /**
+     * Writes an unsigned (LEB128) variable length integer, taking between one
+     * and five bytes (values less than 128 take a single byte).
+     */
+    void varint(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            data[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[size++] = (byte) value;
+    }
+
+    /**
+     * Writes a signed value as a variable length integer (zig-zag encoded so
+     * small negative values remain short).
+     */
+    void zigzag(int value) {
+        varint((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes a (non-{@code null}) string as its UTF-8 length followed by the
+     * encoded bytes.
+     */
+    void string(String value) {
+        if (value.isEmpty()) {
+            varint(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        varint(bytes.length);
+        write(bytes, 0, bytes.length);
+    }
+
+    private void ensure(int n) {
+        if (size + n <= data.length)
+            return;
+        byte[] grown = new byte[Math.max(data.length * 2, size + n)];
+        System.arraycopy(data, 0, grown, 0, size);
+        data = grown;
+    }
+}
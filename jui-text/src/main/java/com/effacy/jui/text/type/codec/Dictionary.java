@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.codec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A preset table of strings shared by the encoder and decoder (see
+ * {@link FormattedTextCodec#FormattedTextCodec(Dictionary)}).
+ * <p>
+ * Strings in the dictionary (typically the metadata keys and values common
+ * across a collection of documents, such as variable names or link targets)
+ * are referenced by index and so are not written into each document. A
+ * document records the checksum of the dictionary it was encoded with and can
+ * only be decoded with the same dictionary; as such a dictionary must not be
+ * changed once in use (rather, a new dictionary should be introduced).
+ */
+public final class Dictionary {
+
+    /**
+     * The entries (in order).
+     */
+    private final List<String> entries = new ArrayList<>();
+
+    /**
+     * Map from entry to index.
+     */
+    private final Map<String, Integer> index = new HashMap<>();
+
+    /**
+     * See {@link #checksum()}.
+     */
+    private final int checksum;
+
+    /**
+     * Construct with entries.
+     *
+     * @param entries
+     *                the entries (duplicates and {@code null} are ignored).
+     */
+    public Dictionary(String... entries) {
+        this(Arrays.asList(entries));
+    }
+
+    /**
+     * Construct with entries.
+     *
+     * @param entries
+     *                the entries (duplicates and {@code null} are ignored).
+     */
+    public Dictionary(List<String> entries) {
+        int h = 0;
+        for (String entry : entries) {
+            if ((entry == null) || index.containsKey(entry))
+                continue;
+            index.put(entry, this.entries.size());
+            this.entries.add(entry);
+            h = (h << 5) - h + entry.hashCode();
+        }
+        this.checksum = (h << 5) - h + this.entries.size();
+    }
+
+    /**
+     * The number of entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The entry at the given index.
+     */
+    public String entry(int idx) {
+        return entries.get(idx);
+    }
+
+    /**
+     * The index of the given entry.
+     *
+     * @return the index (or {@code -1} if not present).
+     */
+    public int indexOf(String entry) {
+        Integer idx = index.get(entry);
+        return (idx == null) ? -1 : idx;
+    }
+
+    /**
+     * A checksum over the entries (used to verify that a document is decoded
+     * with the dictionary it was encoded with).
+     */
+    public int checksum() {
+        return checksum;
+    }
+}
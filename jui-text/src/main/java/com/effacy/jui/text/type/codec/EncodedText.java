@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.codec;
+
+import com.effacy.jui.text.type.FormattedBlock;
+import com.effacy.jui.text.type.FormattedText;
+
+/**
+ * An encoded document (see {@link FormattedTextCodec#open(byte[])}) from which
+ * individual blocks may be decoded without decoding the document as a whole.
+ */
+public final class EncodedText {
+
+    private final FormattedTextCodec.Table table;
+
+    private final byte[] data;
+
+    /**
+     * Offset into {@link #data} of each block.
+     */
+    private final int[] offsets;
+
+    /**
+     * Encoded length of each block.
+     */
+    private final int[] lengths;
+
+    EncodedText(FormattedTextCodec.Table table, byte[] data, int[] offsets, int[] lengths) {
+        this.table = table;
+        this.data = data;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    /**
+     * The number of (top-level) blocks.
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Decodes the block at the given index.
+     *
+     * @param idx
+     *            the index of the block.
+     * @return the block.
+     */
+    public FormattedBlock block(int idx) {
+        return table.block(new ByteReader(data, offsets[idx], lengths[idx]));
+    }
+
+    /**
+     * The identifier of the block at the given index (this is read without
+     * decoding the block).
+     *
+     * @param idx
+     *            the index of the block.
+     * @return the identifier (may be {@code null}).
+     */
+    public String blockId(int idx) {
+        ByteReader in = new ByteReader(data, offsets[idx], lengths[idx]);
+        if ((in.varint() & FormattedTextCodec.HAS_ID) == 0)
+            return null;
+        return table.id(in);
+    }
+
+    /**
+     * Finds the index of the block with the given identifier.
+     *
+     * @param id
+     *           the identifier.
+     * @return the index (or {@code -1} if there is no such block).
+     */
+    public int indexOf(String id) {
+        if (id == null)
+            return -1;
+        for (int i = 0; i < offsets.length; i++) {
+            if (id.equals(blockId(i)))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes the document in its entirety.
+     *
+     * @return the document.
+     */
+    public FormattedText decode() {
+        FormattedText doc = new FormattedText();
+        for (int i = 0; i < offsets.length; i++)
+            doc.getBlocks().add(block(i));
+        return doc;
+    }
+}
@@ -0,0 +1,605 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.effacy.jui.text.type.FormattedBlock;
+import com.effacy.jui.text.type.FormattedBlock.BlockType;
+import com.effacy.jui.text.type.FormattedLine;
+import com.effacy.jui.text.type.FormattedLine.Format;
+import com.effacy.jui.text.type.FormattedLine.FormatType;
+import com.effacy.jui.text.type.FormattedText;
+
+/**
+ * Compact binary encoding of {@link FormattedText} for storage and transfer
+ * (as an alternative to JSON).
+ * <p>
+ * The encoding consists of a header (a magic number, version and flags), a
+ * table of the strings that repeat across a document (block types and metadata
+ * keys and values) and the format types, followed by the blocks each prefixed
+ * by its length. Integers are written as variable length integers, the
+ * formatting of a line as offsets from the end of the previous format with its
+ * format types as a bitset and text as UTF-8. A {@link Dictionary} may be
+ * supplied for strings that are common across documents.
+ * <p>
+ * Documents may be encoded to and decoded from a stream (a block at a time,
+ * see {@link #encode(FormattedText, OutputStream)} and
+ * {@link #decode(InputStream, Consumer)}) and, as the blocks are prefixed by
+ * their length, individual blocks may be decoded without decoding the whole
+ * document (see {@link #open(byte[])}).
+ * <p>
+ * The codec is immutable so may be shared.
+ */
+public class FormattedTextCodec {
+
+    /**
+     * The version of the encoding written (documents of this or an earlier
+     * version may be decoded).
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Codec without a dictionary.
+     */
+    public static final FormattedTextCodec DEFAULT = new FormattedTextCodec();
+
+    /**
+     * Leading bytes of an encoded document.
+     */
+    private static final int MAGIC_0 = 'J';
+    private static final int MAGIC_1 = 'T';
+
+    /**
+     * Header flag indicating a dictionary was used.
+     */
+    private static final int FLAG_DICTIONARY = 0x01;
+
+    /**
+     * Flags (written at the start of each block) for the properties present.
+     */
+    static final int HAS_ID = 0x01;
+    static final int HAS_INDENT = 0x02;
+    static final int HAS_META = 0x04;
+    static final int HAS_CONTENT = 0x08;
+    static final int HAS_LINES = 0x10;
+    static final int HAS_BLOCKS = 0x20;
+
+    /**
+     * See constructor.
+     */
+    private final Dictionary dictionary;
+
+    /**
+     * Construct without a dictionary.
+     */
+    public FormattedTextCodec() {
+        this(null);
+    }
+
+    /**
+     * Construct with a dictionary of common strings (documents encoded with
+     * this codec may only be decoded with the same dictionary).
+     *
+     * @param dictionary
+     *                   the dictionary (may be {@code null}).
+     */
+    public FormattedTextCodec(Dictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /************************************************************************
+     * Encoding.
+     ************************************************************************/
+
+    /**
+     * Encodes a document.
+     *
+     * @param doc
+     *            the document to encode.
+     * @return the encoded document.
+     */
+    public byte[] encode(FormattedText doc) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try {
+            encode(doc, out);
+        } catch (IOException e) {
+            // Not expected from an in-memory stream.
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Encodes a document to a stream. The string table is collected first
+     * then each block is encoded and written in turn (so only a single block
+     * is held in encoded form at any time).
+     *
+     * @param doc
+     *            the document to encode.
+     * @param out
+     *            the stream to write to.
+     * @throws IOException
+     *                     on error writing to the stream.
+     */
+    public void encode(FormattedText doc, OutputStream out) throws IOException {
+        Strings strings = new Strings(dictionary);
+        FormatType[] types = FormatType.values();
+        for (FormatType type : types)
+            strings.add(type.name());
+        for (FormattedBlock block : doc.getBlocks())
+            collect(block, strings);
+
+        ByteWriter buf = new ByteWriter(256);
+        if (dictionary != null) {
+            buf.varint(dictionary.checksum());
+            buf.varint(dictionary.size());
+        }
+        buf.varint(strings.added.size());
+        for (String str : strings.added)
+            buf.string(str);
+        buf.varint(types.length);
+        for (FormatType type : types)
+            buf.varint(strings.ref(type.name()));
+
+        out.write(MAGIC_0);
+        out.write(MAGIC_1);
+        out.write(VERSION);
+        out.write((dictionary != null) ? FLAG_DICTIONARY : 0);
+        ByteWriter len = new ByteWriter(16);
+        len.varint(buf.size());
+        out.write(len.data(), 0, len.size());
+        out.write(buf.data(), 0, buf.size());
+
+        len.clear();
+        len.varint(doc.getBlocks().size());
+        out.write(len.data(), 0, len.size());
+        for (FormattedBlock block : doc.getBlocks()) {
+            buf.clear();
+            write(block, buf, strings);
+            len.clear();
+            len.varint(buf.size());
+            out.write(len.data(), 0, len.size());
+            out.write(buf.data(), 0, buf.size());
+        }
+    }
+
+    /**
+     * Adds the strings that are to be written to the string table (including
+     * the prefix of the block identifiers, see {@link #prefix(String)}).
+     */
+    private void collect(FormattedBlock block, Strings strings) {
+        if (block.getId() != null)
+            strings.add(prefix(block.getId()));
+        if (block.getType() != null)
+            strings.add(block.getType().name());
+        if (block.hasMeta())
+            collect(block.getMeta(), strings);
+        for (FormattedLine line : block.getLines()) {
+            for (Format fmt : line.getFormatting()) {
+                if (fmt.hasMeta())
+                    collect(fmt.getMeta(), strings);
+            }
+        }
+        for (FormattedBlock child : block.getBlocks())
+            collect(child, strings);
+    }
+
+    private void collect(Map<String, String> meta, Strings strings) {
+        for (Map.Entry<String, String> entry : meta.entrySet()) {
+            strings.add(entry.getKey());
+            strings.add(entry.getValue());
+        }
+    }
+
+    /**
+     * Writes a block (and its children).
+     */
+    private void write(FormattedBlock block, ByteWriter out, Strings strings) {
+        List<FormattedLine> lines = block.getLines();
+        List<FormattedBlock> blocks = block.getBlocks();
+        int flags = 0;
+        if (block.getId() != null)
+            flags |= HAS_ID;
+        if (block.getIndent() != 0)
+            flags |= HAS_INDENT;
+        if (block.hasMeta())
+            flags |= HAS_META;
+        if (block.getContent() != null)
+            flags |= HAS_CONTENT;
+        if (!lines.isEmpty())
+            flags |= HAS_LINES;
+        if (!blocks.isEmpty())
+            flags |= HAS_BLOCKS;
+        out.varint(flags);
+
+        // The ID is written first so that it can be read without decoding the
+        // remainder of the block (see EncodedText#blockId(int)).
+        if ((flags & HAS_ID) != 0) {
+            String prefix = prefix(block.getId());
+            out.varint(strings.ref(prefix));
+            out.string((prefix == null) ? block.getId() : block.getId().substring(prefix.length()));
+        }
+        out.varint(strings.ref((block.getType() == null) ? null : block.getType().name()));
+        if ((flags & HAS_INDENT) != 0)
+            out.zigzag(block.getIndent());
+        if ((flags & HAS_META) != 0)
+            write(block.getMeta(), out, strings);
+        if ((flags & HAS_CONTENT) != 0)
+            out.string(block.getContent());
+        if ((flags & HAS_LINES) != 0) {
+            out.varint(lines.size());
+            for (FormattedLine line : lines) {
+                out.string(line.getText());
+                List<Format> formatting = line.getFormatting();
+                out.varint(formatting.size());
+                int end = 0;
+                for (Format fmt : formatting) {
+                    int bits = 0;
+                    for (FormatType type : fmt.formats())
+                        bits |= 1 << type.ordinal();
+                    boolean meta = fmt.hasMeta();
+                    out.varint((bits << 1) | (meta ? 1 : 0));
+                    out.zigzag(fmt.getIndex() - end);
+                    out.varint(fmt.getLength());
+                    end = fmt.getIndex() + fmt.getLength();
+                    if (meta)
+                        write(fmt.getMeta(), out, strings);
+                }
+            }
+        }
+        if ((flags & HAS_BLOCKS) != 0) {
+            out.varint(blocks.size());
+            for (FormattedBlock child : blocks)
+                write(child, out, strings);
+        }
+    }
+
+    /**
+     * Identifiers tend to share a common prefix (i.e. those generated by
+     * {@link com.effacy.jui.text.type.DefaultBlockIdGenerator} differ only
+     * after the last underscore). This prefix is placed in the string table.
+     *
+     * @return the prefix (up to and including the last underscore or
+     *         {@code null} if there is none).
+     */
+    static String prefix(String id) {
+        int idx = id.lastIndexOf('_');
+        return (idx <= 0) ? null : id.substring(0, idx + 1);
+    }
+
+    private void write(Map<String, String> meta, ByteWriter out, Strings strings) {
+        out.varint(meta.size());
+        for (Map.Entry<String, String> entry : meta.entrySet()) {
+            out.varint(strings.ref(entry.getKey()));
+            out.varint(strings.ref(entry.getValue()));
+        }
+    }
+
+    /**
+     * The string table being built during encoding. References are written as
+     * one more than the index into the table (with {@code 0} being
+     * {@code null}) where the table consists of the entries of the dictionary
+     * followed by those added.
+     */
+    private static class Strings {
+
+        private final Dictionary dictionary;
+
+        private final int offset;
+
+        private final Map<String, Integer> refs = new HashMap<>();
+
+        private final List<String> added = new ArrayList<>();
+
+        Strings(Dictionary dictionary) {
+            this.dictionary = dictionary;
+            this.offset = (dictionary == null) ? 0 : dictionary.size();
+        }
+
+        void add(String str) {
+            if ((str == null) || refs.containsKey(str))
+                return;
+            int idx = (dictionary == null) ? -1 : dictionary.indexOf(str);
+            if (idx < 0) {
+                idx = offset + added.size();
+                added.add(str);
+            }
+            refs.put(str, idx + 1);
+        }
+
+        int ref(String str) {
+            if (str == null)
+                return 0;
+            Integer ref = refs.get(str);
+            if (ref == null)
+                throw new IllegalStateException("String not collected: " + str);
+            return ref;
+        }
+    }
+
+    /************************************************************************
+     * Decoding.
+     ************************************************************************/
+
+    /**
+     * Decodes a document.
+     *
+     * @param data
+     *             the encoded document.
+     * @return the document.
+     * @throws IllegalArgumentException
+     *                                  if the data is not a valid encoding
+     *                                  (or was encoded with a different
+     *                                  dictionary).
+     */
+    public FormattedText decode(byte[] data) {
+        return open(data).decode();
+    }
+
+    /**
+     * Opens an encoded document for the decoding of individual blocks. Only
+     * the header and string table are decoded (and the block lengths read).
+     *
+     * @param data
+     *             the encoded document.
+     * @return the encoded document.
+     * @throws IllegalArgumentException
+     *                                  if the data is not a valid encoding
+     *                                  (or was encoded with a different
+     *                                  dictionary).
+     */
+    public EncodedText open(byte[] data) {
+        if ((data.length < 4) || (data[0] != MAGIC_0) || (data[1] != MAGIC_1))
+            throw new IllegalArgumentException("Not an encoded document");
+        ByteReader in = new ByteReader(data, 4, data.length - 4);
+        int length = in.varint();
+        Table table = table(data[2] & 0xFF, data[3] & 0xFF, new ByteReader(data, in.position(), length));
+        in.skip(length);
+        int count = in.varint();
+        if (count < 0)
+            throw new IllegalArgumentException("Malformed block count");
+        int[] offsets = new int[count];
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            lengths[i] = in.varint();
+            offsets[i] = in.position();
+            in.skip(lengths[i]);
+        }
+        return new EncodedText(table, data, offsets, lengths);
+    }
+
+    /**
+     * Decodes a document from a stream, a block at a time.
+     *
+     * @param in
+     *                 the stream to read from.
+     * @param consumer
+     *                 to receive each (top-level) block as it is decoded.
+     * @return the number of blocks decoded.
+     * @throws IOException
+     *                                  on error reading from the stream.
+     * @throws IllegalArgumentException
+     *                                  if the data is not a valid encoding
+     *                                  (or was encoded with a different
+     *                                  dictionary).
+     */
+    public int decode(InputStream in, Consumer<FormattedBlock> consumer) throws IOException {
+        if ((read(in) != MAGIC_0) || (read(in) != MAGIC_1))
+            throw new IllegalArgumentException("Not an encoded document");
+        int version = read(in);
+        int flags = read(in);
+        int length = varint(in);
+        byte[] buf = new byte[Math.max(256, length)];
+        fill(in, buf, length);
+        Table table = table(version, flags, new ByteReader(buf, 0, length));
+        int count = varint(in);
+        for (int i = 0; i < count; i++) {
+            length = varint(in);
+            if (length > buf.length)
+                buf = new byte[Math.max(length, buf.length * 2)];
+            fill(in, buf, length);
+            consumer.accept(table.block(new ByteReader(buf, 0, length)));
+        }
+        return count;
+    }
+
+    /**
+     * Reads the header (the version and flags having been read) and returns
+     * the resulting table.
+     */
+    private Table table(int version, int flags, ByteReader in) {
+        if ((version < 1) || (version > VERSION))
+            throw new IllegalArgumentException("Unsupported version: " + version);
+        int offset = 0;
+        String[] strings;
+        if ((flags & FLAG_DICTIONARY) != 0) {
+            int checksum = in.varint();
+            int size = in.varint();
+            if ((dictionary == null) || (dictionary.checksum() != checksum) || (dictionary.size() != size))
+                throw new IllegalArgumentException("Encoded with a different dictionary");
+            offset = size;
+        }
+        int count = in.varint();
+        if ((count < 0) || (count > (1 << 24)))
+            throw new IllegalArgumentException("Malformed string table");
+        strings = new String[offset + count];
+        for (int i = 0; i < offset; i++)
+            strings[i] = dictionary.entry(i);
+        for (int i = 0; i < count; i++)
+            strings[offset + i] = in.string();
+        Table table = new Table(strings);
+        int types = in.varint();
+        if ((types < 0) || (types > 30))
+            throw new IllegalArgumentException("Malformed format table");
+        table.formats = new FormatType[types];
+        for (int i = 0; i < types; i++) {
+            String name = table.string(in.varint());
+            for (FormatType type : FormatType.values()) {
+                if (type.name().equals(name))
+                    table.formats[i] = type;
+            }
+        }
+        return table;
+    }
+
+    private static int read(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0)
+            throw new IllegalArgumentException("Truncated content");
+        return b;
+    }
+
+    private static int varint(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = read(in);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0)
+                    throw new IllegalArgumentException("Malformed length");
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Reads the given number of bytes into the buffer.
+     */
+    private static void fill(InputStream in, byte[] buf, int length) throws IOException {
+        int n = 0;
+        while (n < length) {
+            int r = in.read(buf, n, length - n);
+            if (r < 0)
+                throw new IllegalArgumentException("Truncated content");
+            n += r;
+        }
+    }
+
+    /**
+     * The string and format tables of an encoded document, used to decode its
+     * blocks.
+     */
+    static class Table {
+
+        private final String[] strings;
+
+        private FormatType[] formats;
+
+        Table(String[] strings) {
+            this.strings = strings;
+        }
+
+        /**
+         * Resolves a string reference.
+         */
+        String string(int ref) {
+            if (ref == 0)
+                return null;
+            if ((ref < 0) || (ref > strings.length))
+                throw new IllegalArgumentException("Malformed string reference");
+            return strings[ref - 1];
+        }
+
+        /**
+         * Reads a block (and its children).
+         */
+        FormattedBlock block(ByteReader in) {
+            int flags = in.varint();
+            String id = ((flags & HAS_ID) != 0) ? id(in) : null;
+            String type = string(in.varint());
+            FormattedBlock block = new FormattedBlock((type == null) ? null : BlockType.valueOf(type));
+            block.setId(id);
+            if ((flags & HAS_INDENT) != 0)
+                block.setIndent(in.zigzag());
+            if ((flags & HAS_META) != 0)
+                block.setMeta(meta(in));
+            if ((flags & HAS_CONTENT) != 0)
+                block.setContent(in.string());
+            if ((flags & HAS_LINES) != 0) {
+                int count = in.varint();
+                for (int i = 0; i < count; i++) {
+                    FormattedLine line = new FormattedLine();
+                    line.setText(in.string());
+                    int formats = in.varint();
+                    if (formats > 0) {
+                        List<Format> formatting = new ArrayList<>(formats);
+                        int end = 0;
+                        for (int j = 0; j < formats; j++) {
+                            int bits = in.varint();
+                            int index = end + in.zigzag();
+                            int length = in.varint();
+                            end = index + length;
+                            Format fmt = new Format(index, length, types(bits >>> 1));
+                            if ((bits & 1) != 0)
+                                fmt.setMeta(meta(in));
+                            formatting.add(fmt);
+                        }
+                        line.setFormatting(formatting);
+                    }
+                    block.getLines().add(line);
+                }
+            }
+            if ((flags & HAS_BLOCKS) != 0) {
+                int count = in.varint();
+                for (int i = 0; i < count; i++)
+                    block.getBlocks().add(block(in));
+            }
+            return block;
+        }
+
+        /**
+         * Reads an identifier (see {@link FormattedTextCodec#prefix(String)}).
+         */
+        String id(ByteReader in) {
+            String prefix = string(in.varint());
+            String suffix = in.string();
+            return (prefix == null) ? suffix : prefix + suffix;
+        }
+
+        private Map<String, String> meta(ByteReader in) {
+            int count = in.varint();
+            Map<String, String> meta = new HashMap<>();
+            for (int i = 0; i < count; i++)
+                meta.put(string(in.varint()), string(in.varint()));
+            return meta;
+        }
+
+        private FormatType[] types(int bits) {
+            int n = 0;
+            for (int i = 0; i < formats.length; i++) {
+                if (((bits & (1 << i)) != 0) && (formats[i] != null))
+                    n++;
+            }
+            FormatType[] types = new FormatType[n];
+            n = 0;
+            for (int i = 0; i < formats.length; i++) {
+                if (((bits & (1 << i)) != 0) && (formats[i] != null))
+                    types[n++] = formats[i];
+            }
+            return types;
+        }
+    }
+}
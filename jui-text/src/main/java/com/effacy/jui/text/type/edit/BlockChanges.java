@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.edit;
+
+/**
+ * Records which top-level blocks of a document were touched by a
+ * {@link Transaction} (as reported by each step via
+ * {@link Step#affected(BlockChanges)}).
+ * <p>
+ * For each block in the resulting document the changes describe the index the
+ * block had prior to the transaction (its <i>origin</i>, which is {@code -1}
+ * if the block was inserted) and whether its content was changed. A renderer
+ * can use this to retain (and, where blocks have shifted, move) the elements
+ * of untouched blocks and render (or patch) only those that have changed.
+ * Where a step cannot describe its effect the changes are marked as
+ * {@link #isAll()}, in which case all blocks should be treated as changed.
+ */
+public class BlockChanges {
+
+    /**
+     * Origin of each block (see {@link #origin(int)}) where a changed block
+     * with origin {@code i} is recorded as {@code -(i + 2)} (so that inserted
+     * blocks are {@code -1}).
+     */
+    private int[] origin;
+
+    /**
+     * Number of blocks.
+     */
+    private int size;
+
+    /**
+     * Number of blocks prior to the changes.
+     */
+    private int previous;
+
+    /**
+     * See {@link #isAll()}.
+     */
+    private boolean all;
+
+    /**
+     * Construct with no changes over the given number of blocks.
+     *
+     * @param size
+     *             the number of (top-level) blocks in the document.
+     */
+    public BlockChanges(int size) {
+        this.size = size;
+        this.previous = size;
+        this.origin = new int[Math.max(size, 4)];
+        for (int i = 0; i < size; i++)
+            origin[i] = i;
+    }
+
+    /**
+     * Reports that the content (or type, indent or meta-data) of the block at
+     * the given index has changed.
+     */
+    public void changed(int index) {
+        if (all)
+            return;
+        if ((index < 0) || (index >= size)) {
+            all();
+            return;
+        }
+        if (origin[index] >= 0)
+            origin[index] = -(origin[index] + 2);
+    }
+
+    /**
+     * Reports that a block was inserted at the given index.
+     */
+    public void inserted(int index) {
+        if (all)
+            return;
+        if ((index < 0) || (index > size)) {
+            all();
+            return;
+        }
+        if (size == origin.length) {
+            int[] expanded = new int[origin.length * 2];
+            System.arraycopy(origin, 0, expanded, 0, size);
+            origin = expanded;
+        }
+        System.arraycopy(origin, index, origin, index + 1, size - index);
+        origin[index] = -1;
+        size++;
+    }
+
+    /**
+     * Reports that the block at the given index was removed.
+     */
+    public void removed(int index) {
+        if (all)
+            return;
+        if ((index < 0) || (index >= size)) {
+            all();
+            return;
+        }
+        System.arraycopy(origin, index + 1, origin, index, size - index - 1);
+        size--;
+    }
+
+    /**
+     * Reports that {@code count} blocks were moved from {@code from} to
+     * {@code to} (the index in the list with the blocks removed).
+     */
+    public void moved(int from, int to, int count) {
+        if (all)
+            return;
+        if ((from < 0) || (count < 0) || (from + count > size) || (to < 0) || (to + count > size)) {
+            all();
+            return;
+        }
+        int[] moved = new int[count];
+        System.arraycopy(origin, from, moved, 0, count);
+        System.arraycopy(origin, from + count, origin, from, size - from - count);
+        System.arraycopy(origin, to, origin, to + count, size - count - to);
+        System.arraycopy(moved, 0, origin, to, count);
+    }
+
+    /**
+     * Reports that the changes cannot be described (so all blocks are to be
+     * considered changed).
+     */
+    public void all() {
+        all = true;
+    }
+
+    /**
+     * Combines these changes with changes that followed them (i.e. that were
+     * recorded over the blocks that result from these).
+     *
+     * @param next
+     *             the subsequent changes.
+     * @return the combined changes (relative to the blocks prior to these).
+     */
+    public BlockChanges then(BlockChanges next) {
+        BlockChanges combined = new BlockChanges(0);
+        combined.previous = previous;
+        if (all || (next == null) || next.all || (next.previous != size)) {
+            combined.all = true;
+            combined.size = (next == null) ? size : next.size;
+            return combined;
+        }
+        combined.size = next.size;
+        combined.origin = new int[Math.max(next.size, 4)];
+        for (int i = 0; i < next.size; i++) {
+            int o = next.origin[i];
+            if (o == -1) {
+                combined.origin[i] = -1;
+            } else if (o >= 0) {
+                combined.origin[i] = origin[o];
+            } else {
+                int prior = origin[-(o + 2)];
+                combined.origin[i] = (prior >= 0) ? -(prior + 2) : prior;
+            }
+        }
+        return combined;
+    }
+
+    /**
+     * If the changes cannot be described and all blocks should be considered
+     * changed.
+     */
+    public boolean isAll() {
+        return all;
+    }
+
+    /**
+     * The number of blocks following the changes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The number of blocks prior to the changes.
+     */
+    public int previous() {
+        return previous;
+    }
+
+    /**
+     * The index (prior to the changes) of the block now at the given index.
+     *
+     * @return the index or {@code -1} if the block was inserted (or all blocks
+     *         are considered changed).
+     */
+    public int origin(int index) {
+        if (all || (index < 0) || (index >= size))
+            return -1;
+        int o = origin[index];
+        return (o >= -1) ? o : -(o + 2);
+    }
+
+    /**
+     * Determines if the block at the given index was inserted or had its
+     * content changed.
+     */
+    public boolean isChanged(int index) {
+        if (all || (index < 0) || (index >= size))
+            return true;
+        return (origin[index] < 0);
+    }
+
+    /**
+     * Determines if there were no changes.
+     */
+    public boolean isEmpty() {
+        if (all)
+            return false;
+        if (size != previous)
+            return false;
+        for (int i = 0; i < size; i++) {
+            if (origin[i] != i)
+                return false;
+        }
+        return true;
+    }
+}
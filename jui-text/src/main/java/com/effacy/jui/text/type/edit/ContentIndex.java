@@ -0,0 +1,488 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.edit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.effacy.jui.text.type.FormattedBlock;
+import com.effacy.jui.text.type.FormattedLine;
+import com.effacy.jui.text.type.FormattedText;
+
+/**
+ * Index over the top-level blocks of a document that caches a content hash for
+ * each block, records the revision at which each block last changed and maps
+ * block identifiers to indices. It is held by the document (see
+ * {@link FormattedText#contentIndex()}) and supports
+ * {@link FormattedText#trackedHash()},
+ * {@link FormattedText#changedBlockIds(int)} and
+ * {@link FormattedText#blockIndexById(String)}.
+ * <p>
+ * As with {@link PositionIndex} the index is kept up to date by the steps as
+ * they change the document (via {@link Positions#changed(FormattedText, int)}
+ * and related) so that only the blocks that have changed need to be hashed
+ * again. It is rebuilt (with every block treated as changed) when the block
+ * list is replaced or changes size without the index being informed, however
+ * changes to the content of a block made other than by a step must be reported
+ * (see {@link Positions#invalidate(FormattedText)}).
+ */
+public final class ContentIndex {
+
+    /**
+     * Maximum number of removals retained (see {@link #removed(int)}).
+     */
+    private static final int MAX_REMOVED = 1024;
+
+    /**
+     * Maximum number of missing identifiers retained (see {@link #missing}).
+     */
+    private static final int MAX_MISSING = 256;
+
+    /**
+     * The block list the index was built over.
+     */
+    private List<FormattedBlock> blocks;
+
+    /**
+     * Number of blocks indexed.
+     */
+    private int count;
+
+    /**
+     * The block at each index (as last indexed).
+     */
+    private FormattedBlock[] nodes = new FormattedBlock[0];
+
+    /**
+     * Cached hash of each block (valid where {@link #hashed} is set).
+     */
+    private int[] hashes = new int[0];
+
+    /**
+     * If the hash of each block is valid.
+     */
+    private boolean[] hashed = new boolean[0];
+
+    /**
+     * The revision at which each block last changed.
+     */
+    private int[] revisions = new int[0];
+
+    /**
+     * The current revision (incremented with each reported change).
+     */
+    private int revision;
+
+    /**
+     * The cached document hash.
+     */
+    private int hash;
+
+    /**
+     * If {@link #hash} is valid.
+     */
+    private boolean hashValid;
+
+    /**
+     * Map of block identifier to index (see {@link #idsValid}).
+     */
+    private Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * If {@link #ids} reflects the current block order.
+     */
+    private boolean idsValid;
+
+    /**
+     * Identifiers that were not found (even after {@link #ids} was built
+     * again) since the last change, so that repeated misses are answered
+     * without building the map each time.
+     */
+    private Set<String> missing = new HashSet<>();
+
+    /**
+     * Identifiers of removed blocks paired with the revision they were removed
+     * at (oldest first).
+     */
+    private List<String> removedIds = new ArrayList<>();
+    private List<Integer> removedAt = new ArrayList<>();
+
+    /**
+     * The revision before which removals are no longer retained.
+     */
+    private int floor;
+
+    /**
+     * If the index has been built.
+     */
+    private boolean built;
+
+    /**
+     * If the index needs to be rebuilt.
+     */
+    private boolean invalid = true;
+
+    /**
+     * Ensures the index reflects the given document.
+     *
+     * @return this index.
+     */
+    public ContentIndex ensure(FormattedText doc) {
+        List<FormattedBlock> list = doc.getBlocks();
+        if (invalid || (list != blocks) || (list.size() != count))
+            rebuild(list);
+        return this;
+    }
+
+    /**
+     * The current revision. This advances with each change to the document so
+     * may be recorded and later passed to {@link #changed(int)} and
+     * {@link #removed(int)}.
+     */
+    public int revision() {
+        return revision;
+    }
+
+    /**
+     * Computes the hash of the document from the (cached) hashes of its blocks.
+     * Only those blocks that have changed since the hash was last computed are
+     * hashed again.
+     */
+    public int hash() {
+        if (hashValid)
+            return hash;
+        int h = 0;
+        for (int i = 0; i < count; i++) {
+            if (!hashed[i]) {
+                hashes[i] = hash(nodes[i]);
+                hashed[i] = true;
+            }
+            h = (h << 5) - h + hashes[i];
+        }
+        hash = h;
+        hashValid = true;
+        return h;
+    }
+
+    /**
+     * The identifiers of the blocks that have changed (including those
+     * inserted or moved) since the given revision, in document order. Blocks
+     * without an identifier are not included.
+     */
+    public List<String> changed(int since) {
+        List<String> changed = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if ((revisions[i] > since) && nodes[i].hasId())
+                changed.add(nodes[i].getId());
+        }
+        return changed;
+    }
+
+    /**
+     * The identifiers of the blocks that have been removed since the given
+     * revision (and not since re-inserted).
+     *
+     * @return the identifiers (or {@code null} if removals that far back are no
+     *         longer retained).
+     */
+    public List<String> removed(int since) {
+        if (since < floor)
+            return null;
+        Set<String> present = null;
+        List<String> removed = new ArrayList<>();
+        for (int i = 0; i < removedIds.size(); i++) {
+            if (removedAt.get(i) <= since)
+                continue;
+            if (present == null)
+                present = presentIds();
+            String id = removedIds.get(i);
+            if (!present.contains(id) && !removed.contains(id))
+                removed.add(id);
+        }
+        return removed;
+    }
+
+    /**
+     * Finds the index of the block with the given identifier.
+     * <p>
+     * An identifier assigned directly to a block (rather than by a step) is
+     * found unless that identifier was already looked up and not found since
+     * the last change, in which case the assignment must be reported (see
+     * {@link Positions#invalidate(FormattedText)}).
+     *
+     * @return the index (or {@code -1} if there is no such block).
+     */
+    public int find(String id) {
+        if (id == null)
+            return -1;
+        if (idsValid) {
+            int idx = lookup(id);
+            if ((idx >= 0) || missing.contains(id))
+                return idx;
+
+            // Identifiers may have been assigned (or changed) since the map was
+            // built.
+        }
+        index();
+        int idx = lookup(id);
+        if (idx < 0) {
+            if (missing.size() >= MAX_MISSING)
+                missing.clear();
+            missing.add(id);
+        }
+        return idx;
+    }
+
+    /**
+     * Marks the index for rebuilding.
+     */
+    void invalidate() {
+        invalid = true;
+    }
+
+    /**
+     * Updates the index following a change to the content of a block.
+     */
+    void changed(FormattedText doc, int blockIndex) {
+        if (invalid || (doc.getBlocks() != blocks) || (blockIndex < 0) || (blockIndex >= count)) {
+            invalid = true;
+            return;
+        }
+        revision++;
+        nodes[blockIndex] = blocks.get(blockIndex);
+        missing.clear();
+        hashed[blockIndex] = false;
+        revisions[blockIndex] = revision;
+        hashValid = false;
+    }
+
+    /**
+     * Updates the index following the insertion of a block.
+     */
+    void inserted(FormattedText doc, int blockIndex) {
+        if (invalid || (doc.getBlocks() != blocks) || (blockIndex < 0) || (blockIndex > count) || (blocks.size() != count + 1)) {
+            invalid = true;
+            return;
+        }
+        int[] origin = new int[count + 1];
+        for (int i = 0; i < origin.length; i++)
+            origin[i] = (i < blockIndex) ? i : ((i == blockIndex) ? -1 : i - 1);
+        revision++;
+        reorder(origin);
+    }
+
+    /**
+     * Updates the index following the removal of a block.
+     */
+    void removed(FormattedText doc, int blockIndex) {
+        if (invalid || (doc.getBlocks() != blocks) || (blockIndex < 0) || (blockIndex >= count) || (blocks.size() != count - 1)) {
+            invalid = true;
+            return;
+        }
+        revision++;
+        record(nodes[blockIndex]);
+        int[] origin = new int[count - 1];
+        for (int i = 0; i < origin.length; i++)
+            origin[i] = (i < blockIndex) ? i : i + 1;
+        reorder(origin);
+    }
+
+    /**
+     * Updates the index following the move of {@code n} blocks from
+     * {@code from} to {@code to} (the index in the list with the blocks
+     * removed). The moved blocks are treated as changed.
+     */
+    void moved(FormattedText doc, int from, int to, int n) {
+        if (invalid || (doc.getBlocks() != blocks) || (from < 0) || (n < 0) || (from + n > count) || (to < 0) || (to + n > count)) {
+            invalid = true;
+            return;
+        }
+        int[] remaining = new int[count - n];
+        for (int i = 0; i < remaining.length; i++)
+            remaining[i] = (i < from) ? i : i + n;
+        int[] origin = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (i < to)
+                origin[i] = remaining[i];
+            else if (i < to + n)
+                origin[i] = -(from + (i - to)) - 2;
+            else
+                origin[i] = remaining[i - n];
+        }
+        revision++;
+        reorder(origin);
+    }
+
+    /**
+     * Rearranges the per-block state. Each entry of the origin is the index the
+     * block was at; {@code -1} for a new block and {@code -(index + 2)} for a
+     * block that is retained (including its hash) but treated as changed.
+     */
+    private void reorder(int[] origin) {
+        FormattedBlock[] nodes = new FormattedBlock[origin.length];
+        int[] hashes = new int[origin.length];
+        boolean[] hashed = new boolean[origin.length];
+        int[] revisions = new int[origin.length];
+        for (int i = 0; i < origin.length; i++) {
+            int o = origin[i];
+            if (o >= 0) {
+                nodes[i] = this.nodes[o];
+                hashes[i] = this.hashes[o];
+                hashed[i] = this.hashed[o];
+                revisions[i] = this.revisions[o];
+            } else if (o < -1) {
+                o = -o - 2;
+                nodes[i] = this.nodes[o];
+                hashes[i] = this.hashes[o];
+                hashed[i] = this.hashed[o];
+                revisions[i] = revision;
+            } else {
+                nodes[i] = blocks.get(i);
+                revisions[i] = revision;
+            }
+        }
+        this.nodes = nodes;
+        this.hashes = hashes;
+        this.hashed = hashed;
+        this.revisions = revisions;
+        count = origin.length;
+        hashValid = false;
+        idsValid = false;
+        missing.clear();
+    }
+
+    private void rebuild(List<FormattedBlock> list) {
+        // Blocks that were indexed but are no longer present are recorded as
+        // removed, while every block is treated as changed (as the change that
+        // led to the rebuild was not described).
+        if (built) {
+            revision++;
+            Set<String> present = new HashSet<>();
+            for (FormattedBlock block : list) {
+                if (block.hasId())
+                    present.add(block.getId());
+            }
+            for (int i = 0; i < count; i++) {
+                if (nodes[i].hasId() && !present.contains(nodes[i].getId()))
+                    record(nodes[i]);
+            }
+        }
+        blocks = list;
+        count = list.size();
+        nodes = list.toArray(new FormattedBlock[count]);
+        hashes = new int[count];
+        hashed = new boolean[count];
+        revisions = new int[count];
+        for (int i = 0; i < count; i++)
+            revisions[i] = revision;
+        hashValid = false;
+        idsValid = false;
+        missing.clear();
+        built = true;
+        invalid = false;
+    }
+
+    /**
+     * Records the removal of a block (at the current revision).
+     */
+    private void record(FormattedBlock block) {
+        if (!block.hasId())
+            return;
+        removedIds.add(block.getId());
+        removedAt.add(revision);
+        if (removedIds.size() > MAX_REMOVED) {
+            floor = removedAt.remove(0);
+            removedIds.remove(0);
+        }
+    }
+
+    private Set<String> presentIds() {
+        Set<String> present = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            if (nodes[i].hasId())
+                present.add(nodes[i].getId());
+        }
+        return present;
+    }
+
+    private int lookup(String id) {
+        Integer idx = ids.get(id);
+        if ((idx == null) || (idx >= count) || !id.equals(nodes[idx].getId()))
+            return -1;
+        return idx;
+    }
+
+    /**
+     * Builds the identifier map (the first block is taken where identifiers
+     * are duplicated).
+     */
+    private void index() {
+        ids.clear();
+        for (int i = 0; i < count; i++) {
+            if (nodes[i].hasId())
+                ids.putIfAbsent(nodes[i].getId(), i);
+        }
+        idsValid = true;
+        if (!missing.isEmpty())
+            missing.removeIf(ids::containsKey);
+    }
+
+    /**
+     * Computes the hash of a list of blocks in full (this is the value that
+     * {@link #hash()} maintains).
+     */
+    public static int hash(List<FormattedBlock> blocks) {
+        int h = 0;
+        if (blocks != null) {
+            for (FormattedBlock block : blocks)
+                h = (h << 5) - h + hash(block);
+        }
+        return h;
+    }
+
+    /**
+     * Computes the hash of a single block (over its type, indent, metadata,
+     * line text and formatting as well as that of any child blocks).
+     */
+    static int hash(FormattedBlock block) {
+        // The (h << 5) - h pattern accommodates overflow (<< in JavaScript
+        // truncates to 32 bits) and provides a good distribution.
+        int h = 0;
+        h = (h << 5) - h + block.getType().hashCode();
+        h = (h << 5) - h + block.getIndent();
+        if (block.getMeta() != null)
+            h = (h << 5) - h + block.getMeta().hashCode();
+        for (FormattedLine line : block.getLines()) {
+            h = (h << 5) - h + line.getText().hashCode();
+            if (line.getFormatting() != null) {
+                for (FormattedLine.Format fmt : line.getFormatting()) {
+                    h = (h << 5) - h + fmt.getIndex();
+                    h = (h << 5) - h + fmt.getLength();
+                    h = (h << 5) - h + fmt.getFormats().hashCode();
+                    if (fmt.getMeta() != null)
+                        h = (h << 5) - h + fmt.getMeta().hashCode();
+                }
+            }
+        }
+        for (FormattedBlock child : block.getBlocks())
+            h = (h << 5) - h + hash(child);
+        return h;
+    }
+}
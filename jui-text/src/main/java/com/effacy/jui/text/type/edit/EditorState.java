@@ -28,6 +28,7 @@ public class EditorState {
 
     private final FormattedText doc;
     private Selection selection;
+    private BlockChanges changes;
 
     private EditorState(FormattedText doc, Selection selection) {
         this.doc = doc;
@@ -82,6 +83,14 @@ public class EditorState {
         this.selection = selection;
     }
 
+    /**
+     * The top-level blocks affected by the most recent
+     * {@link #apply(Transaction)} (or {@code null} if there has been none).
+     */
+    public BlockChanges changes() {
+        return changes;
+    }
+
     /**
      * Apply a transaction to the document. The document is mutated in place.
      * If the transaction carries an explicit selection it is used; otherwise
@@ -103,6 +112,7 @@ public class EditorState {
 
         // Apply (mutates doc).
         TransactionResult result = tr.apply(doc);
+        this.changes = result.changes();
 
         // Use explicit selection or map through changes.
         if (tr.selection() != null) {
@@ -16,7 +16,13 @@
 package com.effacy.jui.text.type.edit;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
+
+import com.effacy.jui.text.type.edit.step.DeleteTextStep;
+import com.effacy.jui.text.type.edit.step.InsertTextStep;
+import com.effacy.jui.text.type.edit.step.ReplaceBlockStep;
 
 /**
  * Manages undo/redo history for an {@link EditorState}.
@@ -24,13 +30,20 @@ import java.util.Deque;
  * Records inverse transactions from each applied change. Undo applies the
  * inverse; the result of applying the inverse becomes the redo transaction.
  * <p>
+ * The history is bounded both by depth and by an estimate of the memory held
+ * by the inverse transactions (see {@link Step#weight()}), the oldest entries
+ * being discarded first. When pushed along with the forward transaction (see
+ * {@link #push(Transaction, Transaction)}) consecutive typing (or deletion of
+ * characters) at the same point within a short window is coalesced into a
+ * single entry, with adjacent text steps in the merged inverse combined.
+ * <p>
  * Usage:
  * <pre>
  * History history = new History();
  *
  * // Apply a transaction and record it.
  * Transaction inverse = state.apply(tr);
- * history.push(inverse);
+ * history.push(tr, inverse);
  *
  * // Undo.
  * if (history.canUndo())
@@ -43,9 +56,76 @@ import java.util.Deque;
  */
 public class History {
 
-    private final Deque<Transaction> undoStack = new ArrayDeque<>();
-    private final Deque<Transaction> redoStack = new ArrayDeque<>();
+    /**
+     * The default bound (in bytes) on the memory held by the undo entries.
+     */
+    public static final int DEFAULT_BUDGET = 4 * 1024 * 1024;
+
+    /**
+     * The default window (in milliseconds) over which consecutive typing is
+     * coalesced.
+     */
+    public static final int DEFAULT_COALESCE = 1000;
+
+    /**
+     * The kind of edit an entry may be extended by (when coalescing).
+     */
+    private enum Run {
+        NONE, INSERT, DELETE;
+    }
+
+    /**
+     * An entry in the history.
+     */
+    private static class Entry {
+
+        /**
+         * The inverse transaction.
+         */
+        private Transaction inverse;
+
+        /**
+         * Estimated memory held by the inverse.
+         */
+        private int weight;
+
+        /**
+         * The edit that may extend this entry.
+         */
+        private Run run = Run.NONE;
+
+        /**
+         * The block and offset (following the edit) where an extending edit
+         * must occur.
+         */
+        private int block, position;
+
+        /**
+         * When the entry was last extended.
+         */
+        private long time;
+
+        Entry(Transaction inverse) {
+            this.inverse = inverse;
+            this.weight = weight(inverse);
+        }
+    }
+
+    private final Deque<Entry> undoStack = new ArrayDeque<>();
+    private final Deque<Entry> redoStack = new ArrayDeque<>();
     private final int maxDepth;
+    private final int maxBytes;
+    private final int coalesce;
+
+    /**
+     * Total weight of the undo entries.
+     */
+    private long bytes;
+
+    /**
+     * See {@link #seal()}.
+     */
+    private boolean sealed;
 
     public History() {
         this(100);
@@ -58,7 +138,25 @@ public class History {
      *                 maximum number of undo levels.
      */
     public History(int maxDepth) {
+        this(maxDepth, DEFAULT_BUDGET, DEFAULT_COALESCE);
+    }
+
+    /**
+     * Creates a history with a maximum undo depth and memory budget.
+     *
+     * @param maxDepth
+     *                 maximum number of undo levels.
+     * @param maxBytes
+     *                 the (estimated) memory that may be held by the undo
+     *                 entries (though the most recent entry is always kept).
+     * @param coalesce
+     *                 the window (in milliseconds) over which consecutive
+     *                 typing is coalesced ({@code 0} to not coalesce).
+     */
+    public History(int maxDepth, int maxBytes, int coalesce) {
         this.maxDepth = maxDepth;
+        this.maxBytes = maxBytes;
+        this.coalesce = coalesce;
     }
 
     /**
@@ -70,10 +168,61 @@ public class History {
      *                {@link EditorState#apply(Transaction)}.
      */
     public void push(Transaction inverse) {
-        undoStack.push(inverse);
-        if (undoStack.size() > maxDepth)
-            ((ArrayDeque<Transaction>) undoStack).removeLast();
+        push(null, inverse, 0);
+    }
+
+    /**
+     * As with {@link #push(Transaction)} but where the forward transaction is
+     * supplied so that consecutive typing may be coalesced.
+     *
+     * @param tr
+     *                the transaction that was applied.
+     * @param inverse
+     *                the inverse transaction returned by
+     *                {@link EditorState#apply(Transaction)}.
+     */
+    public void push(Transaction tr, Transaction inverse) {
+        push(tr, inverse, System.currentTimeMillis());
+    }
+
+    /**
+     * As with {@link #push(Transaction, Transaction)} but with the time of
+     * the change given explicitly.
+     *
+     * @param tr
+     *                the transaction that was applied (may be {@code null}).
+     * @param inverse
+     *                the inverse transaction.
+     * @param time
+     *                the time of the change (in milliseconds).
+     */
+    public void push(Transaction tr, Transaction inverse, long time) {
         redoStack.clear();
+        Entry top = undoStack.peek();
+        if (!sealed && (coalesce > 0) && (tr != null) && (top != null) && (time - top.time <= coalesce) && extend(top, tr)) {
+            bytes -= top.weight;
+            top.inverse = merge(inverse, top.inverse);
+            top.weight = weight(top.inverse);
+            top.time = time;
+            bytes += top.weight;
+        } else {
+            Entry entry = new Entry(inverse);
+            entry.time = time;
+            if (tr != null)
+                start(entry, tr);
+            undoStack.push(entry);
+            bytes += entry.weight;
+        }
+        sealed = false;
+        trim();
+    }
+
+    /**
+     * Prevents the next change from being coalesced with the last (i.e.
+     * following a change in selection or some other break in typing).
+     */
+    public void seal() {
+        sealed = true;
     }
 
     /**
@@ -89,9 +238,11 @@ public class History {
     public boolean undo(EditorState state) {
         if (undoStack.isEmpty())
             return false;
-        Transaction inverse = undoStack.pop();
-        Transaction redo = state.apply(inverse);
-        redoStack.push(redo);
+        Entry entry = undoStack.pop();
+        bytes -= entry.weight;
+        Transaction redo = state.apply(entry.inverse);
+        redoStack.push(new Entry(redo));
+        sealed = true;
         return true;
     }
 
@@ -107,9 +258,12 @@ public class History {
     public boolean redo(EditorState state) {
         if (redoStack.isEmpty())
             return false;
-        Transaction redo = redoStack.pop();
-        Transaction inverse = state.apply(redo);
-        undoStack.push(inverse);
+        Entry redo = redoStack.pop();
+        Entry entry = new Entry(state.apply(redo.inverse));
+        undoStack.push(entry);
+        bytes += entry.weight;
+        sealed = true;
+        trim();
         return true;
     }
 
@@ -121,11 +275,175 @@ public class History {
         return !redoStack.isEmpty();
     }
 
+    /**
+     * The number of changes that can be undone.
+     */
+    public int depth() {
+        return undoStack.size();
+    }
+
+    /**
+     * The estimated memory (in bytes) held by the undo entries.
+     */
+    public long weight() {
+        return bytes;
+    }
+
     /**
      * Clears all history.
      */
     public void clear() {
         undoStack.clear();
         redoStack.clear();
+        bytes = 0;
+    }
+
+    /************************************************************************
+     * Internal.
+     ************************************************************************/
+
+    /**
+     * Discards the oldest entries to bring the history within its bounds.
+     */
+    private void trim() {
+        while (!undoStack.isEmpty() && ((undoStack.size() > maxDepth) || ((bytes > maxBytes) && (undoStack.size() > 1))))
+            bytes -= ((ArrayDeque<Entry>) undoStack).removeLast().weight;
+    }
+
+    /**
+     * Determines the edit that may extend an entry created for the given
+     * transaction. This is typing (the transaction ends with an insertion of
+     * text, possibly replacing a selection) or the deletion of characters
+     * within a block.
+     */
+    private void start(Entry entry, Transaction tr) {
+        List<Step> steps = tr.steps();
+        if (steps.isEmpty())
+            return;
+        Step last = steps.get(steps.size() - 1);
+        if (last instanceof InsertTextStep) {
+            InsertTextStep insert = (InsertTextStep) last;
+            if ((insert.offset() < 0) || (insert.text().indexOf('\n') >= 0))
+                return;
+            for (Step step : steps) {
+                if ((step != last) && !((step instanceof DeleteTextStep) && (((DeleteTextStep) step).blockIndex() == insert.blockIndex())))
+                    return;
+            }
+            entry.run = Run.INSERT;
+            entry.block = insert.blockIndex();
+            entry.position = insert.offset() + insert.text().length();
+        } else if ((steps.size() == 1) && (last instanceof DeleteTextStep)) {
+            DeleteTextStep delete = (DeleteTextStep) last;
+            entry.run = Run.DELETE;
+            entry.block = delete.blockIndex();
+            entry.position = delete.offset();
+        }
+    }
+
+    /**
+     * Determines if the transaction extends the entry (updating the entry if
+     * so). Typing must continue from where the last left off while deletion
+     * may be either side of the last (i.e. backspace or delete).
+     */
+    private boolean extend(Entry entry, Transaction tr) {
+        if (tr.steps().size() != 1)
+            return false;
+        Step step = tr.steps().get(0);
+        if ((entry.run == Run.INSERT) && (step instanceof InsertTextStep)) {
+            InsertTextStep insert = (InsertTextStep) step;
+            if ((insert.blockIndex() != entry.block) || (insert.offset() != entry.position) || (insert.text().indexOf('\n') >= 0))
+                return false;
+            entry.position += insert.text().length();
+            return true;
+        }
+        if ((entry.run == Run.DELETE) && (step instanceof DeleteTextStep)) {
+            DeleteTextStep delete = (DeleteTextStep) step;
+            if ((delete.blockIndex() != entry.block) || ((delete.offset() + delete.length() != entry.position) && (delete.offset() != entry.position)))
+                return false;
+            entry.position = delete.offset();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Merges the inverse of a change with the inverse of the change that
+     * preceded it (so the later is undone first). Where the earlier restores
+     * the whole block the later is redundant, otherwise adjacent text steps
+     * are combined.
+     */
+    private static Transaction merge(Transaction later, Transaction earlier) {
+        List<Step> prior = earlier.steps();
+        if ((prior.size() == 1) && (prior.get(0) instanceof ReplaceBlockStep) && ((ReplaceBlockStep) prior.get(0)).isTopLevel()) {
+            int block = ((ReplaceBlockStep) prior.get(0)).blockIndex();
+            boolean local = true;
+            for (Step step : later.steps())
+                local &= (block == localTo(step));
+            if (local)
+                return earlier;
+        }
+        List<Step> steps = new ArrayList<>();
+        for (Step step : later.steps())
+            add(steps, step);
+        for (Step step : prior)
+            add(steps, step);
+        Transaction merged = Transaction.create();
+        steps.forEach(merged::step);
+        merged.setSelection(earlier.selection());
+        return merged;
+    }
+
+    /**
+     * Adds a step to the list combining it with the last where they are text
+     * steps on adjoining ranges of the same block.
+     */
+    private static void add(List<Step> steps, Step step) {
+        Step last = steps.isEmpty() ? null : steps.get(steps.size() - 1);
+        if ((last instanceof DeleteTextStep) && (step instanceof DeleteTextStep)) {
+            DeleteTextStep a = (DeleteTextStep) last;
+            DeleteTextStep b = (DeleteTextStep) step;
+            if ((a.blockIndex() == b.blockIndex()) && (b.offset() + b.length() == a.offset())) {
+                steps.set(steps.size() - 1, new DeleteTextStep(b.blockIndex(), b.offset(), a.length() + b.length()));
+                return;
+            }
+        } else if ((last instanceof InsertTextStep) && (step instanceof InsertTextStep)) {
+            InsertTextStep a = (InsertTextStep) last;
+            InsertTextStep b = (InsertTextStep) step;
+            if ((a.blockIndex() == b.blockIndex()) && (a.offset() >= 0)) {
+                if (b.offset() == a.offset() + a.text().length()) {
+                    steps.set(steps.size() - 1, new InsertTextStep(a.blockIndex(), a.offset(), a.text() + b.text()));
+                    return;
+                }
+                if (b.offset() == a.offset()) {
+                    steps.set(steps.size() - 1, new InsertTextStep(a.blockIndex(), a.offset(), b.text() + a.text()));
+                    return;
+                }
+            }
+        }
+        steps.add(step);
+    }
+
+    /**
+     * The block a step is confined to (without changing the number of blocks),
+     * or {@code -1} if not confined to a single block.
+     */
+    private static int localTo(Step step) {
+        if (step instanceof InsertTextStep)
+            return ((InsertTextStep) step).blockIndex();
+        if (step instanceof DeleteTextStep)
+            return ((DeleteTextStep) step).blockIndex();
+        if (step instanceof ReplaceBlockStep)
+            return ((ReplaceBlockStep) step).blockIndex();
+        return -1;
+    }
+
+    /**
+     * Estimated memory held by a transaction.
+     */
+    private static int weight(Transaction tr) {
+        int weight = 16;
+        for (Step step : tr.steps())
+            weight += step.weight();
+        return weight;
     }
 }
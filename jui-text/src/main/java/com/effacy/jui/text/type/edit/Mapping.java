@@ -18,11 +18,19 @@ package com.effacy.jui.text.type.edit;
 import java.util.Collections;
 import java.util.List;
 
+import com.effacy.jui.text.type.FormattedText;
+
 /**
  * A composed sequence of {@link StepMap}s from a {@link Transaction}.
  * <p>
  * Maps a position through all step maps in order, producing the final position
  * after all steps have been applied.
+ * <p>
+ * When rebasing steps (see {@link Step#map(Mapping, FormattedText, FormattedText)})
+ * the mapping may include the inverse of a step followed later by the
+ * (rebased) step itself. These can be declared as mirrors so that a position
+ * within content that is removed by the inverse is recovered when the content
+ * is re-inserted (rather than collapsing to the start of the content).
  */
 public class Mapping {
 
@@ -33,8 +41,26 @@ public class Mapping {
 
     private List<StepMap> maps;
 
+    /**
+     * See {@link #Mapping(List, int[])}.
+     */
+    private int[] mirrors;
+
     public Mapping(List<StepMap> maps) {
+        this(maps, null);
+    }
+
+    /**
+     * @param maps
+     *                the maps.
+     * @param mirrors
+     *                for each map the index of the (later) map that mirrors it
+     *                ({@code -1} or less than the index for none). May be
+     *                {@code null}.
+     */
+    public Mapping(List<StepMap> maps, int[] mirrors) {
         this.maps = maps;
+        this.mirrors = mirrors;
     }
 
     /**
@@ -47,8 +73,32 @@ public class Mapping {
      * @return the mapped position.
      */
     public int map(int pos, int bias) {
-        for (StepMap map : maps)
+        if (mirrors == null) {
+            for (StepMap map : maps)
+                pos = map.map(pos, bias);
+            return pos;
+        }
+        int[] recover = null;
+        for (int i = 0; i < maps.size(); i++) {
+            StepMap map = maps.get(i);
+            if ((recover != null) && (recover[i] >= 0)) {
+                pos = map.map(pos, -1) + recover[i];
+                continue;
+            }
+            int mirror = (i < mirrors.length) ? mirrors[i] : -1;
+            if ((mirror > i) && (mirror < maps.size())) {
+                int offset = map.recover(pos);
+                if (offset >= 0) {
+                    if (recover == null) {
+                        recover = new int[maps.size()];
+                        for (int j = 0; j < recover.length; j++)
+                            recover[j] = -1;
+                    }
+                    recover[mirror] = offset;
+                }
+            }
             pos = map.map(pos, bias);
+        }
         return pos;
     }
 
@@ -58,4 +108,81 @@ public class Mapping {
     public List<StepMap> maps() {
         return Collections.unmodifiableList(maps);
     }
+
+    /************************************************************************
+     * Document-relative mapping (for rebasing steps).
+     ************************************************************************/
+
+    /**
+     * Maps a top-level block of one document to the corresponding block of
+     * the document the mapping leads to.
+     *
+     * @param from
+     *                   the document the block belongs to.
+     * @param blockIndex
+     *                   the index of the block in {@code from}.
+     * @param to
+     *                   the document mapped to.
+     * @return the index of the block in {@code to} ({@code -1} if the block
+     *         has been deleted or merged into another).
+     */
+    public int mapBlock(FormattedText from, int blockIndex, FormattedText to) {
+        if ((blockIndex < 0) || (blockIndex >= from.getBlocks().size()))
+            return -1;
+        int start = Positions.blockStart(from, blockIndex);
+        int end = start + Positions.nodeSize(from.getBlocks().get(blockIndex));
+        int mappedStart = map(start, 1);
+        int mappedEnd = map(end, -1);
+        if ((mappedEnd <= mappedStart) || (mappedStart >= Positions.length(to)))
+            return -1;
+        ResolvedPosition resolved = Positions.resolve(to, mappedStart);
+        return (resolved.blockOffset() == -1) ? resolved.blockIndex() : -1;
+    }
+
+    /**
+     * Maps an index at which a top-level block may be inserted.
+     *
+     * @param from
+     *              the document the index relates to.
+     * @param index
+     *              the insertion index in {@code from}.
+     * @param to
+     *              the document mapped to.
+     * @return the insertion index in {@code to}.
+     */
+    public int mapInsert(FormattedText from, int index, FormattedText to) {
+        int pos = (index >= from.getBlocks().size()) ? Positions.length(from) : Positions.blockStart(from, Math.max(0, index));
+        int mapped = map(pos, 1);
+        if (mapped >= Positions.length(to))
+            return to.getBlocks().size();
+        ResolvedPosition resolved = Positions.resolve(to, mapped);
+        return (resolved.blockOffset() == -1) ? resolved.blockIndex() : resolved.blockIndex() + 1;
+    }
+
+    /**
+     * Maps a character offset within the content of a top-level block.
+     *
+     * @param from
+     *                   the document the block belongs to.
+     * @param blockIndex
+     *                   the index of the block in {@code from}.
+     * @param offset
+     *                   the character offset within the block.
+     * @param bias
+     *                   the mapping bias (see {@link #map(int, int)}).
+     * @param to
+     *                   the document mapped to.
+     * @return the resolved position in {@code to} ({@code null} if the
+     *         position no longer lies within the content of a block, i.e. the
+     *         block has been deleted).
+     */
+    public ResolvedPosition mapOffset(FormattedText from, int blockIndex, int offset, int bias, FormattedText to) {
+        if ((blockIndex < 0) || (blockIndex >= from.getBlocks().size()))
+            return null;
+        int mapped = map(Positions.toFlat(from, blockIndex, offset), bias);
+        if ((mapped <= 0) || (mapped >= Positions.length(to)))
+            return null;
+        ResolvedPosition resolved = Positions.resolve(to, mapped);
+        return (resolved.blockOffset() < 0) ? null : resolved;
+    }
 }
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.edit;
+
+import java.util.List;
+
+import com.effacy.jui.text.type.FormattedBlock;
+import com.effacy.jui.text.type.FormattedText;
+
+/**
+ * Prefix-sum index (a Fenwick tree) over the node sizes of the top-level
+ * blocks of a document, held by the document (see
+ * {@link FormattedText#positionIndex()}) and used by {@link Positions} to
+ * answer block starts and resolve positions in logarithmic time.
+ * <p>
+ * The index is kept up to date by the steps as they change the document (see
+ * {@link Positions#changed(FormattedText, int)} and related). It is rebuilt
+ * when the block list is replaced or changes size without the index being
+ * informed, however changes to the content of a block made other than by a
+ * step must be reported (see {@link Positions#invalidate(FormattedText)}).
+ */
+public final class PositionIndex {
+
+    /**
+     * The block list the index was built over.
+     */
+    private List<FormattedBlock> blocks;
+
+    /**
+     * Number of blocks indexed.
+     */
+    private int count;
+
+    /**
+     * Node size of each block.
+     */
+    private int[] sizes = new int[0];
+
+    /**
+     * Fenwick tree over {@link #sizes} (1-based).
+     */
+    private int[] tree = new int[1];
+
+    /**
+     * Total of all sizes.
+     */
+    private int total;
+
+    /**
+     * If the index needs to be rebuilt.
+     */
+    private boolean invalid = true;
+
+    /**
+     * Ensures the index reflects the given document.
+     *
+     * @return this index.
+     */
+    PositionIndex ensure(FormattedText doc) {
+        List<FormattedBlock> list = doc.getBlocks();
+        if (invalid || (list != blocks) || (list.size() != count))
+            rebuild(list);
+        return this;
+    }
+
+    /**
+     * Marks the index for rebuilding.
+     */
+    void invalidate() {
+        invalid = true;
+    }
+
+    /**
+     * The start of the given block (the sum of the sizes of those before it).
+     */
+    int start(int blockIndex) {
+        if (blockIndex <= 0)
+            return 0;
+        if (blockIndex > count)
+            throw new IndexOutOfBoundsException("Index " + blockIndex + " out of bounds for length " + count);
+        int sum = 0;
+        for (int i = blockIndex; i > 0; i -= (i & -i))
+            sum += tree[i];
+        return sum;
+    }
+
+    /**
+     * The total size of the blocks.
+     */
+    int length() {
+        return total;
+    }
+
+    /**
+     * The number of blocks.
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * The size of the given block (as indexed).
+     */
+    int size(int blockIndex) {
+        return sizes[blockIndex];
+    }
+
+    /**
+     * Finds the block containing the given (non-negative) position.
+     *
+     * @return the block index (the number of blocks if the position is at or
+     *         after the end).
+     */
+    int find(int position) {
+        int idx = 0;
+        int remaining = position;
+        for (int step = Integer.highestOneBit(Math.max(1, count)); step > 0; step >>= 1) {
+            int next = idx + step;
+            if ((next <= count) && (tree[next] <= remaining)) {
+                idx = next;
+                remaining -= tree[next];
+            }
+        }
+        return idx;
+    }
+
+    /**
+     * Updates the size of a block following a change to its content.
+     */
+    void changed(FormattedText doc, int blockIndex) {
+        if (invalid || (doc.getBlocks() != blocks) || (blockIndex < 0) || (blockIndex >= count)) {
+            invalid = true;
+            return;
+        }
+        int size = Positions.nodeSize(blocks.get(blockIndex));
+        int delta = size - sizes[blockIndex];
+        if (delta == 0)
+            return;
+        sizes[blockIndex] = size;
+        total += delta;
+        for (int i = blockIndex + 1; i <= count; i += (i & -i))
+            tree[i] += delta;
+    }
+
+    /**
+     * Updates the index following the insertion of a block.
+     */
+    void inserted(FormattedText doc, int blockIndex) {
+        if (invalid || (doc.getBlocks() != blocks) || (blockIndex < 0) || (blockIndex > count) || (blocks.size() != count + 1)) {
+            invalid = true;
+            return;
+        }
+        int[] updated = new int[count + 1];
+        System.arraycopy(sizes, 0, updated, 0, blockIndex);
+        updated[blockIndex] = Positions.nodeSize(blocks.get(blockIndex));
+        System.arraycopy(sizes, blockIndex, updated, blockIndex + 1, count - blockIndex);
+        build(updated);
+    }
+
+    /**
+     * Updates the index following the removal of a block.
+     */
+    void removed(FormattedText doc, int blockIndex) {
+        if (invalid || (doc.getBlocks() != blocks) || (blockIndex < 0) || (blockIndex >= count) || (blocks.size() != count - 1)) {
+            invalid = true;
+            return;
+        }
+        int[] updated = new int[count - 1];
+        System.arraycopy(sizes, 0, updated, 0, blockIndex);
+        System.arraycopy(sizes, blockIndex + 1, updated, blockIndex, count - blockIndex - 1);
+        build(updated);
+    }
+
+    /**
+     * Updates the index following the move of {@code n} blocks from
+     * {@code from} to {@code to} (the index in the list with the blocks
+     * removed).
+     */
+    void moved(FormattedText doc, int from, int to, int n) {
+        if (invalid || (doc.getBlocks() != blocks) || (from < 0) || (n < 0) || (from + n > count) || (to < 0) || (to + n > count)) {
+            invalid = true;
+            return;
+        }
+        int[] moved = new int[n];
+        System.arraycopy(sizes, from, moved, 0, n);
+        int[] updated = new int[count];
+        System.arraycopy(sizes, 0, updated, 0, from);
+        System.arraycopy(sizes, from + n, updated, from, count - from - n);
+        System.arraycopy(updated, to, updated, to + n, count - n - to);
+        System.arraycopy(moved, 0, updated, to, n);
+        build(updated);
+    }
+
+    private void rebuild(List<FormattedBlock> list) {
+        blocks = list;
+        int[] updated = new int[list.size()];
+        for (int i = 0; i < updated.length; i++)
+            updated[i] = Positions.nodeSize(list.get(i));
+        build(updated);
+    }
+
+    /**
+     * Builds the tree (in linear time) over the given sizes.
+     */
+    private void build(int[] sizes) {
+        this.sizes = sizes;
+        count = sizes.length;
+        tree = new int[count + 1];
+        total = 0;
+        for (int i = 1; i <= count; i++) {
+            tree[i] += sizes[i - 1];
+            total += sizes[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= count)
+                tree[parent] += tree[i];
+        }
+        invalid = false;
+    }
+}
@@ -34,6 +34,17 @@ import com.effacy.jui.text.type.FormattedText;
  * [open] H e l l o \n W o r l d [close] [open] T i t l e [close]
  *   0    1 2 3 4 5  6  7 8 9 10 11  12     13  14 15 16 17 18  19
  * </pre>
+ * <p>
+ * Block starts are answered from a prefix-sum index held by the document (see
+ * {@link PositionIndex}) that the steps keep up to date as they apply (see
+ * {@link #changed(FormattedText, int)} and related). The same reports maintain
+ * the document's {@link ContentIndex}. Code that changes the content of a block
+ * other than through a step must call {@link #invalidate(FormattedText)}.
+ * <p>
+ * As a guard against unreported changes each query checks the indexed size of
+ * the blocks it directly depends on (the block before and at a block start,
+ * the last block for the length and the resolved block for a position) and
+ * rebuilds the index on a mismatch.
  */
 public final class Positions {
 
@@ -106,21 +117,15 @@ public final class Positions {
      * @return the flat position.
      */
     public static int blockStart(FormattedText doc, int blockIndex) {
-        int pos = 0;
-        List<FormattedBlock> blocks = doc.getBlocks();
-        for (int i = 0; i < blockIndex; i++)
-            pos += nodeSize(blocks.get(i));
-        return pos;
+        return index(doc, blockIndex - 1, blockIndex).start(blockIndex);
     }
 
     /**
      * The total document length in position space.
      */
     public static int length(FormattedText doc) {
-        int len = 0;
-        for (FormattedBlock block : doc.getBlocks())
-            len += nodeSize(block);
-        return len;
+        int last = doc.getBlocks().size() - 1;
+        return index(doc, last, last).length();
     }
 
     /**
@@ -155,14 +160,19 @@ public final class Positions {
      */
     public static ResolvedPosition resolve(FormattedText doc, int position) {
         List<FormattedBlock> blocks = doc.getBlocks();
-        int pos = 0;
-        for (int bi = 0; bi < blocks.size(); bi++) {
+        PositionIndex index = index(doc);
+        int bi = (position < 0) ? blocks.size() : index.find(position);
+        if (bi < blocks.size()) {
             FormattedBlock block = blocks.get(bi);
             int ns = nodeSize(block);
 
-            // Before this block?
-            if (position < pos)
-                break;
+            // Guard against a change to the block that was not reported (the
+            // block size is computed in any case).
+            if (ns != index.size(bi)) {
+                invalidate(doc);
+                return resolve(doc, position);
+            }
+            int pos = index.start(bi);
 
             // At block open boundary.
             if (position == pos)
@@ -173,21 +183,124 @@ public final class Positions {
                 return new ResolvedPosition(position, bi, -1, -1, contentSize(block));
 
             // Inside this block's content.
-            if (position < pos + ns - 1) {
-                int contentPos = position - pos - 1; // offset into content
-                return resolveInBlock(position, bi, block, contentPos);
-            }
-
-            pos += ns;
+            int contentPos = position - pos - 1; // offset into content
+            return resolveInBlock(position, bi, block, contentPos);
         }
         // Position at or beyond document end — clamp to last block close.
         if (!blocks.isEmpty()) {
             int lastIdx = blocks.size() - 1;
+            if ((position >= 0) && stale(doc, index, lastIdx)) {
+                invalidate(doc);
+                return resolve(doc, position);
+            }
             return new ResolvedPosition(position, lastIdx, -1, -1, contentSize(blocks.get(lastIdx)));
         }
         return new ResolvedPosition(position, 0, -1, -1, 0);
     }
 
+    /************************************************************************
+     * Index maintenance.
+     ************************************************************************/
+
+    /**
+     * Reports that the content of a block has changed (other than by
+     * replacement of the block list).
+     *
+     * @param doc
+     *                   the document.
+     * @param blockIndex
+     *                   index of the block.
+     */
+    public static void changed(FormattedText doc, int blockIndex) {
+        doc.positionIndex().changed(doc, blockIndex);
+        doc.contentIndex().changed(doc, blockIndex);
+    }
+
+    /**
+     * Reports that a block has been inserted.
+     *
+     * @param doc
+     *                   the document.
+     * @param blockIndex
+     *                   index of the inserted block.
+     */
+    public static void inserted(FormattedText doc, int blockIndex) {
+        doc.positionIndex().inserted(doc, blockIndex);
+        doc.contentIndex().inserted(doc, blockIndex);
+    }
+
+    /**
+     * Reports that a block has been removed.
+     *
+     * @param doc
+     *                   the document.
+     * @param blockIndex
+     *                   index the block was removed from.
+     */
+    public static void removed(FormattedText doc, int blockIndex) {
+        doc.positionIndex().removed(doc, blockIndex);
+        doc.contentIndex().removed(doc, blockIndex);
+    }
+
+    /**
+     * Reports that a run of blocks has been moved.
+     *
+     * @param doc
+     *             the document.
+     * @param from
+     *             index the blocks were removed from.
+     * @param to
+     *             index the blocks were inserted at (after removal).
+     * @param count
+     *             the number of blocks moved.
+     */
+    public static void moved(FormattedText doc, int from, int to, int count) {
+        doc.positionIndex().moved(doc, from, to, count);
+        doc.contentIndex().moved(doc, from, to, count);
+    }
+
+    /**
+     * Reports that the document has been changed in a manner not otherwise
+     * reported (so the index is rebuilt on next use).
+     *
+     * @param doc
+     *            the document.
+     */
+    public static void invalidate(FormattedText doc) {
+        doc.positionIndex().invalidate();
+        doc.contentIndex().invalidate();
+    }
+
+    private static PositionIndex index(FormattedText doc) {
+        return doc.positionIndex().ensure(doc);
+    }
+
+    /**
+     * Obtains the index having checked the blocks in the given range (clipped
+     * to the document) for changes that were not reported, rebuilding the index
+     * if there are any.
+     */
+    private static PositionIndex index(FormattedText doc, int from, int to) {
+        PositionIndex index = index(doc);
+        for (int i = Math.max(0, from); i <= to; i++) {
+            if (stale(doc, index, i)) {
+                invalidate(doc);
+                return index(doc);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Determines if the indexed size of a block differs from its actual size
+     * (false if there is no such block).
+     */
+    private static boolean stale(FormattedText doc, PositionIndex index, int blockIndex) {
+        if ((blockIndex < 0) || (blockIndex >= index.count()))
+            return false;
+        return nodeSize(doc.getBlocks().get(blockIndex)) != index.size(blockIndex);
+    }
+
     /**
      * Resolves a content-relative offset within a block to line/char
      * coordinates.
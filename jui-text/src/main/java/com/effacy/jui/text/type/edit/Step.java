@@ -15,6 +15,8 @@
  ******************************************************************************/
 package com.effacy.jui.text.type.edit;
 
+import com.effacy.jui.text.type.FormattedBlock;
+import com.effacy.jui.text.type.FormattedLine;
 import com.effacy.jui.text.type.FormattedText;
 
 /**
@@ -34,4 +36,89 @@ public interface Step {
      * @return the result containing the inverse step.
      */
     StepResult apply(FormattedText doc);
+
+    /**
+     * Reports the top-level blocks affected by this step (having been applied)
+     * to the given changes. This is used to limit what needs to be re-rendered.
+     * <p>
+     * The default reports that all blocks are affected.
+     *
+     * @param changes
+     *                the changes to report to.
+     */
+    default void affected(BlockChanges changes) {
+        changes.all();
+    }
+
+    /**
+     * Maps this step (created against the document {@code from}) through the
+     * given mapping so that it may be applied to the document {@code to}. This
+     * is used to rebase steps made concurrently by different editors (see the
+     * {@code collab} package).
+     * <p>
+     * The mapped step does not share any content with this step (so both may
+     * be applied to different documents).
+     * <p>
+     * The default does not support mapping.
+     *
+     * @param mapping
+     *                the mapping from {@code from} to {@code to}.
+     * @param from
+     *                the document the step was created against (prior to it
+     *                being applied).
+     * @param to
+     *                the document the mapped step is to be applied to.
+     * @return the mapped step ({@code null} if the step no longer applies, for
+     *         example where the block it changes has been deleted).
+     */
+    default Step map(Mapping mapping, FormattedText from, FormattedText to) {
+        return null;
+    }
+
+    /**
+     * Obtains a copy of this step that does not share any content (i.e.
+     * blocks) with it. Applying a step may place its content into the
+     * document, so a step that is applied to more than one document must be
+     * copied for each.
+     * <p>
+     * The default returns this step (suitable for a step that holds only
+     * indices and values).
+     *
+     * @return the copy.
+     */
+    default Step copy() {
+        return this;
+    }
+
+    /**
+     * An estimate of the memory (in bytes) retained by this step. This is used
+     * by {@link History} to bound the memory held by the undo history.
+     * <p>
+     * The default is a nominal amount (suitable for a step that holds only
+     * indices).
+     *
+     * @return the estimate.
+     */
+    default int weight() {
+        return 32;
+    }
+
+    /**
+     * Estimates the memory (in bytes) retained by a block (including any
+     * nested blocks), for use by {@link #weight()}.
+     *
+     * @param block
+     *              the block.
+     * @return the estimate.
+     */
+    static int weight(FormattedBlock block) {
+        if (block == null)
+            return 0;
+        int weight = 64;
+        for (FormattedLine line : block.getLines())
+            weight += 48 + 2 * line.length() + 32 * line.getFormatting().size();
+        for (FormattedBlock child : block.getBlocks())
+            weight += weight(child);
+        return weight;
+    }
 }
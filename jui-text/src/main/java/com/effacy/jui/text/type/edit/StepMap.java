@@ -61,6 +61,44 @@ public class StepMap {
         return new StepMap(new int[] { pos, oldSize, newSize });
     }
 
+    /**
+     * The inverse of this map (describing how positions in the document after
+     * the step shift back to those before it).
+     *
+     * @return the inverted map.
+     */
+    public StepMap invert() {
+        if (ranges.length == 0)
+            return this;
+        int[] inverted = new int[ranges.length];
+        int delta = 0;
+        for (int i = 0; i < ranges.length; i += 3) {
+            inverted[i] = ranges[i] + delta;
+            inverted[i + 1] = ranges[i + 2];
+            inverted[i + 2] = ranges[i + 1];
+            delta += ranges[i + 2] - ranges[i + 1];
+        }
+        return new StepMap(inverted);
+    }
+
+    /**
+     * Where this map consists of a single deletion, the offset of the given
+     * position within the deleted range (inclusive of both ends). This allows
+     * {@link Mapping} to recover a position that falls within content that is
+     * deleted and later re-inserted (as occurs when rebasing steps).
+     *
+     * @param pos
+     *            the position to recover.
+     * @return the offset ({@code -1} if the position does not lie within a
+     *         single deletion).
+     */
+    public int recover(int pos) {
+        if ((ranges.length != 3) || (ranges[1] == 0) || (ranges[2] != 0))
+            return -1;
+        int offset = pos - ranges[0];
+        return ((offset >= 0) && (offset <= ranges[1])) ? offset : -1;
+    }
+
     /**
      * Maps a position through this step map.
      *
@@ -104,23 +104,25 @@ public class Transaction {
     /**
      * Apply all steps to the document in order. Each step mutates the document
      * in place. Returns a {@link TransactionResult} containing the inverse
-     * transaction and the position {@link Mapping}.
+     * transaction, the position {@link Mapping} and the {@link BlockChanges}.
      *
      * @param doc
      *            the document to mutate.
-     * @return the result containing inverse and mapping.
+     * @return the result containing inverse, mapping and changes.
      */
     public TransactionResult apply(FormattedText doc) {
         List<Step> inverseSteps = new ArrayList<>();
         List<StepMap> maps = new ArrayList<>();
+        BlockChanges changes = new BlockChanges(doc.getBlocks().size());
         for (Step step : steps) {
             StepResult result = step.apply(doc);
             inverseSteps.add(result.inverse());
             maps.add(result.map());
+            step.affected(changes);
         }
         Collections.reverse(inverseSteps);
         Transaction inverse = new Transaction();
         inverse.steps.addAll(inverseSteps);
-        return new TransactionResult(inverse, new Mapping(maps));
+        return new TransactionResult(inverse, new Mapping(maps), changes);
     }
 }
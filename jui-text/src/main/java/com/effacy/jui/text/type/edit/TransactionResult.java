@@ -18,8 +18,9 @@ package com.effacy.jui.text.type.edit;
 /**
  * The result of applying a {@link Transaction} to a document.
  * <p>
- * Contains the inverse transaction (for undo) and the position mapping that
- * describes how document positions shifted.
+ * Contains the inverse transaction (for undo), the position mapping that
+ * describes how document positions shifted and the top-level blocks that were
+ * affected.
  *
  * @param inverse
  *                the inverse transaction. Applying it undoes the original
@@ -27,6 +28,8 @@ package com.effacy.jui.text.type.edit;
  * @param mapping
  *                the position mapping describing how positions shifted during
  *                the transaction.
+ * @param changes
+ *                the top-level blocks affected by the transaction.
  */
-public record TransactionResult(Transaction inverse, Mapping mapping) {
+public record TransactionResult(Transaction inverse, Mapping mapping, BlockChanges changes) {
 }
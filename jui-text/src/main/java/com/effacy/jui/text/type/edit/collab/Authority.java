@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.edit.collab;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.Step;
+import com.effacy.jui.text.type.edit.StepMap;
+import com.effacy.jui.text.type.edit.StepResult;
+
+/**
+ * The authority over a document being edited concurrently by a number of
+ * editors (one authority per document). This holds the current version of the
+ * document and a log of the steps that produced it.
+ * <p>
+ * Editors submit batches of steps made against the version of the document
+ * they hold (see {@link #receive(String, int, List)}). Where other steps have
+ * been accepted since that version the submitted steps are rebased over them
+ * (see {@link Rebase}), those that no longer apply being dropped. The accepted
+ * steps are then broadcast (via the {@link ITransport}) to all editors, which
+ * then only need to exchange these deltas rather than the document as a whole.
+ * <p>
+ * The log is compacted (see {@link #compact(int)}) once it exceeds a given
+ * number of steps, at which point a snapshot of the document is taken.
+ * Editors holding a version earlier than those retained in the log need to
+ * re-join (see {@link #join()}).
+ * <p>
+ * Rebasing needs the document as it was at the version the steps were made
+ * against, which is recovered by applying the inverses of the logged steps to
+ * a copy of the current document.
+ */
+public class Authority {
+
+    /**
+     * Default maximum number of steps retained in the log.
+     */
+    public static final int DEFAULT_MAX_LOG = 1000;
+
+    /**
+     * An accepted delta along with the inverses and maps of its steps.
+     */
+    private static class Entry {
+
+        private Delta delta;
+
+        private List<Step> inverses;
+
+        private List<StepMap> maps;
+
+        Entry(Delta delta, List<Step> inverses, List<StepMap> maps) {
+            this.delta = delta;
+            this.inverses = inverses;
+            this.maps = maps;
+        }
+    }
+
+    /**
+     * The current document.
+     */
+    private FormattedText doc;
+
+    /**
+     * The current version (the number of steps accepted).
+     */
+    private int version;
+
+    /**
+     * See constructor.
+     */
+    private ITransport transport;
+
+    /**
+     * See constructor.
+     */
+    private int maxLog;
+
+    /**
+     * The log of accepted deltas (oldest first).
+     */
+    private List<Entry> log = new ArrayList<>();
+
+    /**
+     * The number of steps in {@link #log}.
+     */
+    private int logged;
+
+    /**
+     * The most recent snapshot.
+     */
+    private Snapshot snapshot;
+
+    /**
+     * Construct over an initial document (at version 0) without a transport.
+     */
+    public Authority(FormattedText doc) {
+        this(doc, 0, null, DEFAULT_MAX_LOG);
+    }
+
+    /**
+     * Construct an authority.
+     *
+     * @param doc
+     *                  the document (which becomes owned by the authority).
+     * @param version
+     *                  the version of the document.
+     * @param transport
+     *                  to broadcast accepted steps (may be {@code null}).
+     * @param maxLog
+     *                  the maximum number of steps retained in the log before
+     *                  being compacted (half are retained).
+     */
+    public Authority(FormattedText doc, int version, ITransport transport, int maxLog) {
+        this.doc = doc;
+        this.version = version;
+        this.transport = transport;
+        this.maxLog = maxLog;
+        this.snapshot = new Snapshot(version, doc.clone());
+    }
+
+    /**
+     * The current version of the document.
+     */
+    public synchronized int version() {
+        return version;
+    }
+
+    /**
+     * The earliest version that steps can be submitted against (earlier
+     * versions having been compacted).
+     */
+    public synchronized int floor() {
+        return log.isEmpty() ? version : log.get(0).delta.version();
+    }
+
+    /**
+     * The snapshot taken at the most recent compaction (or of the initial
+     * document). Along with the steps since (see {@link #since(int)}) this is
+     * suitable for persisting the document.
+     */
+    public synchronized Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Obtains a copy of the current document (for an editor to join with).
+     */
+    public synchronized Snapshot join() {
+        return new Snapshot(version, doc.clone());
+    }
+
+    /**
+     * Convenience to submit a delta from an editor (see
+     * {@link #receive(String, int, List)}).
+     */
+    public Delta receive(Delta submission) {
+        return receive(submission.clientId(), submission.version(), submission.steps());
+    }
+
+    /**
+     * Receives a batch of steps from an editor. The accepted steps are
+     * broadcast to all editors (including the submitting editor).
+     *
+     * @param clientId
+     *                 the editor submitting the steps.
+     * @param version
+     *                 the version of the document the steps were made
+     *                 against.
+     * @param steps
+     *                 the steps (which are not retained).
+     * @return the accepted steps ({@code null} if the version is no longer
+     *         held, in which case the editor should re-join).
+     */
+    public synchronized Delta receive(String clientId, int version, List<Step> steps) {
+        if ((version > this.version) || (version < floor()))
+            return null;
+        List<Step> accepted = new ArrayList<>();
+        List<Step> inverses = new ArrayList<>();
+        List<StepMap> maps = new ArrayList<>();
+        if (version == this.version) {
+            for (Step step : steps) {
+                Step copy = step.copy();
+                StepResult result = copy.copy().apply(doc);
+                accepted.add(copy);
+                inverses.add(result.inverse());
+                maps.add(result.map());
+            }
+        } else {
+            Rebase rebase = new Rebase(reconstruct(version), concurrent(version), doc);
+            for (Step step : steps) {
+                Rebase.Applied applied = rebase.apply(step);
+                if (applied != null) {
+                    accepted.add(applied.step());
+                    inverses.add(applied.result().inverse());
+                    maps.add(applied.result().map());
+                }
+            }
+        }
+        Delta delta = new Delta(this.version, clientId, steps.size(), accepted);
+        if (!accepted.isEmpty()) {
+            log.add(new Entry(delta, inverses, maps));
+            logged += accepted.size();
+            this.version += accepted.size();
+            if ((maxLog > 0) && (logged > maxLog))
+                compact(maxLog / 2);
+        }
+        if (transport != null)
+            transport.broadcast(delta);
+        return delta;
+    }
+
+    /**
+     * The deltas accepted since the given version (for an editor to catch up
+     * with).
+     *
+     * @param version
+     *                the version held.
+     * @return the deltas ({@code null} if the version is no longer held).
+     */
+    public synchronized List<Delta> since(int version) {
+        if ((version > this.version) || (version < floor()))
+            return null;
+        List<Delta> deltas = new ArrayList<>();
+        for (Entry entry : log) {
+            if (entry.delta.version() >= version)
+                deltas.add(entry.delta);
+        }
+        return deltas;
+    }
+
+    /**
+     * Takes a snapshot of the current document and discards all but the most
+     * recent steps from the log.
+     *
+     * @param retain
+     *               the (maximum) number of steps to retain.
+     * @return the snapshot.
+     */
+    public synchronized Snapshot compact(int retain) {
+        int discard = 0;
+        while ((discard < log.size()) && (logged > retain))
+            logged -= log.get(discard++).delta.steps().size();
+        log.subList(0, discard).clear();
+        snapshot = new Snapshot(version, doc.clone());
+        return snapshot;
+    }
+
+    /**
+     * Recovers the document as it was at the given (logged) version.
+     */
+    protected FormattedText reconstruct(int version) {
+        FormattedText base = doc.clone();
+        for (int i = log.size() - 1; (i >= 0) && (log.get(i).delta.version() >= version); i--) {
+            List<Step> inverses = log.get(i).inverses;
+            for (int j = inverses.size() - 1; j >= 0; j--)
+                inverses.get(j).copy().apply(base);
+        }
+        return base;
+    }
+
+    /**
+     * The maps of the steps accepted since the given (logged) version.
+     */
+    protected List<StepMap> concurrent(int version) {
+        int start = log.size();
+        while ((start > 0) && (log.get(start - 1).delta.version() >= version))
+            start--;
+        List<StepMap> maps = new ArrayList<>();
+        for (int i = start; i < log.size(); i++)
+            maps.addAll(log.get(i).maps);
+        return maps;
+    }
+}
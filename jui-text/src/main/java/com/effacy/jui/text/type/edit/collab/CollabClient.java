@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.edit.collab;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.Mapping;
+import com.effacy.jui.text.type.edit.Step;
+import com.effacy.jui.text.type.edit.StepMap;
+import com.effacy.jui.text.type.edit.StepResult;
+import com.effacy.jui.text.type.edit.Transaction;
+import com.effacy.jui.text.type.edit.TransactionResult;
+
+/**
+ * An editor's view of a document being edited collaboratively (with changes
+ * being coordinated by an {@link Authority}).
+ * <p>
+ * Local changes are applied immediately (see {@link #apply(Transaction)}) and
+ * held as unconfirmed until submitted (see {@link #submit()}) and received
+ * back from the authority. Deltas received from the authority (see
+ * {@link #receive(Delta)}) are applied to a copy of the document as held by
+ * the authority, over which the unconfirmed steps are then rebased. In this
+ * way every editor converges on the document held by the authority.
+ */
+public class CollabClient {
+
+    /**
+     * See constructor.
+     */
+    private String clientId;
+
+    /**
+     * The document as held by the authority (at {@link #version}).
+     */
+    private FormattedText confirmed;
+
+    /**
+     * The document (including any unconfirmed changes).
+     */
+    private FormattedText doc;
+
+    /**
+     * The version of the document (excluding unconfirmed changes) held by the
+     * authority.
+     */
+    private int version;
+
+    /**
+     * The unconfirmed steps (these are copies that are not part of the
+     * document) and their maps.
+     */
+    private List<Step> unconfirmed = new ArrayList<>();
+    private List<StepMap> maps = new ArrayList<>();
+
+    /**
+     * The number of unconfirmed steps that have been submitted (and are
+     * awaiting confirmation). This may reduce where submitted steps are
+     * dropped when rebased.
+     */
+    private int submitted;
+
+    /**
+     * The version the submitted steps were submitted against ({@code -1} if
+     * there is no submission awaiting confirmation).
+     */
+    private int submittedAt = -1;
+
+    /**
+     * Construct from a snapshot obtained from the authority.
+     */
+    public CollabClient(String clientId, Snapshot snapshot) {
+        this(clientId, snapshot.doc(), snapshot.version());
+    }
+
+    /**
+     * Construct a client.
+     *
+     * @param clientId
+     *                 the (unique) identifier of the editor.
+     * @param doc
+     *                 the document (which is not shared).
+     * @param version
+     *                 the version of the document.
+     */
+    public CollabClient(String clientId, FormattedText doc, int version) {
+        this.clientId = clientId;
+        reset(new Snapshot(version, doc));
+    }
+
+    /**
+     * The identifier of the editor.
+     */
+    public String clientId() {
+        return clientId;
+    }
+
+    /**
+     * The document (including any unconfirmed changes).
+     */
+    public FormattedText doc() {
+        return doc;
+    }
+
+    /**
+     * The version of the document held by the authority that the document
+     * derives from.
+     */
+    public int version() {
+        return version;
+    }
+
+    /**
+     * The number of local steps yet to be confirmed by the authority.
+     */
+    public int unconfirmed() {
+        return unconfirmed.size();
+    }
+
+    /**
+     * Applies a local change to the document.
+     *
+     * @param tr
+     *           the transaction to apply.
+     * @return the result of the application.
+     */
+    public TransactionResult apply(Transaction tr) {
+        TransactionResult result = tr.apply(doc);
+        for (Step step : tr.steps())
+            unconfirmed.add(step.copy());
+        maps.addAll(result.mapping().maps());
+        return result;
+    }
+
+    /**
+     * Obtains the unconfirmed steps to submit to the authority (see
+     * {@link Authority#receive(Delta)}). Only one submission is made at a
+     * time.
+     *
+     * @return the submission ({@code null} if there is nothing to submit or a
+     *         prior submission has yet to be confirmed).
+     */
+    public Delta submit() {
+        if ((submittedAt >= 0) || unconfirmed.isEmpty())
+            return null;
+        submitted = unconfirmed.size();
+        submittedAt = version;
+        return new Delta(version, clientId, submitted, new ArrayList<>(unconfirmed));
+    }
+
+    /**
+     * Resets to a snapshot obtained from the authority, discarding any
+     * unconfirmed changes. This is needed when a submission is rejected (see
+     * {@link Authority#receive(String, int, List)}).
+     *
+     * @param snapshot
+     *                 the snapshot (the document is not shared).
+     */
+    public void reset(Snapshot snapshot) {
+        confirmed = snapshot.doc();
+        doc = confirmed.clone();
+        version = snapshot.version();
+        unconfirmed.clear();
+        maps.clear();
+        submitted = 0;
+        submittedAt = -1;
+    }
+
+    /**
+     * Receives a delta broadcast by the authority. Deltas must be received in
+     * the order broadcast (those for versions already received are ignored).
+     *
+     * @param delta
+     *              the delta.
+     * @return the mapping of positions in the document prior to receiving the
+     *         delta to those after (i.e. to map a selection).
+     * @throws IllegalStateException
+     *                               if a delta has been missed.
+     */
+    public Mapping receive(Delta delta) {
+        if (delta.version() < version)
+            return Mapping.EMPTY;
+        if (delta.version() > version)
+            throw new IllegalStateException("Missing steps from version " + version + " (received " + delta.version() + ")");
+        int own = 0;
+        boolean unchanged = false;
+        if ((submittedAt >= 0) && clientId.equals(delta.clientId())) {
+            own = submitted;
+            unchanged = (submittedAt == delta.version()) && (delta.steps().size() == own);
+            submitted = 0;
+            submittedAt = -1;
+        }
+        List<Step> remaining = new ArrayList<>(unconfirmed.subList(own, unconfirmed.size()));
+        FormattedText base = (unchanged || remaining.isEmpty()) ? null : confirmed.clone();
+        List<StepMap> received = new ArrayList<>();
+        for (Step step : delta.steps())
+            received.add(step.copy().apply(confirmed).map());
+        version += delta.steps().size();
+
+        // The steps were accepted as submitted so the document already
+        // reflects them.
+        if (unchanged) {
+            unconfirmed.subList(0, own).clear();
+            maps.subList(0, own).clear();
+            return Mapping.EMPTY;
+        }
+
+        // Positions map back through the unconfirmed steps then forward
+        // through those received.
+        List<StepMap> mapping = new ArrayList<>();
+        for (int i = maps.size() - 1; i >= 0; i--)
+            mapping.add(maps.get(i).invert());
+        mapping.addAll(received);
+        List<Step> confirmedOwn = new ArrayList<>(unconfirmed.subList(0, own));
+        unconfirmed.clear();
+        maps.clear();
+        if (base == null) {
+            if (own == 0) {
+                // Nothing local to rebase so the steps apply directly.
+                for (Step step : delta.steps())
+                    step.copy().apply(doc);
+                return new Mapping(received);
+            }
+            doc = confirmed.clone();
+            return new Mapping(mapping);
+        }
+
+        // Rebase the remaining unconfirmed steps (made after any that have
+        // been confirmed) over those received.
+        doc = confirmed.clone();
+        List<StepMap> concurrent = new ArrayList<>();
+        for (Step step : confirmedOwn)
+            concurrent.add(0, step.copy().apply(base).map().invert());
+        concurrent.addAll(received);
+        Rebase rebase = new Rebase(base, concurrent, doc);
+        int pending = submitted;
+        submitted = 0;
+        for (int i = 0; i < remaining.size(); i++) {
+            Rebase.Applied applied = rebase.apply(remaining.get(i));
+            if (applied == null)
+                continue;
+            unconfirmed.add(applied.step());
+            maps.add(applied.result().map());
+            mapping.add(applied.result().map());
+            if (i < pending)
+                submitted++;
+        }
+        return new Mapping(mapping);
+    }
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.edit.collab;
+
+import java.util.List;
+
+import com.effacy.jui.text.type.edit.Step;
+
+/**
+ * A batch of steps made against a version of a document. This is either a
+ * submission from an editor (see {@link CollabClient#submit()}) or the steps
+ * accepted by the {@link Authority} (and broadcast to all editors of the
+ * document).
+ * <p>
+ * The steps of an accepted delta take the document from {@code version} to
+ * {@code version + steps.size()}. They have been rebased (where needed) so
+ * apply directly to the document at {@code version}.
+ *
+ * @param version
+ *                  the version of the document the steps apply to.
+ * @param clientId
+ *                  the editor that submitted the steps.
+ * @param submitted
+ *                  the number of steps submitted by the editor (which may
+ *                  exceed the number of steps accepted, where some no
+ *                  longer applied having been rebased).
+ * @param steps
+ *                  the accepted steps.
+ */
+public record Delta(int version, String clientId, int submitted, List<Step> steps) {
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.edit.collab;
+
+/**
+ * Delivers the steps accepted by an {@link Authority} to the editors of the
+ * document.
+ * <p>
+ * Deltas must be delivered to each editor in the order they are broadcast.
+ * See {@link LocalTransport} for an in-process implementation.
+ */
+public interface ITransport {
+
+    /**
+     * Broadcasts accepted steps to all editors (including the editor that
+     * submitted them, which uses the delta to confirm its submission).
+     *
+     * @param delta
+     *              the accepted steps.
+     */
+    void broadcast(Delta delta);
+}
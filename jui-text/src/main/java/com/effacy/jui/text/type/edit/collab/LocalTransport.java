@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.edit.collab;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An in-process {@link ITransport} that delivers deltas (synchronously) to
+ * registered receivers (typically {@link CollabClient#receive(Delta)}).
+ */
+public class LocalTransport implements ITransport {
+
+    private List<Consumer<Delta>> receivers = new ArrayList<>();
+
+    /**
+     * Registers a receiver of deltas.
+     *
+     * @param receiver
+     *                 the receiver.
+     * @return this transport for chaining.
+     */
+    public LocalTransport add(Consumer<Delta> receiver) {
+        if (receiver != null)
+            receivers.add(receiver);
+        return this;
+    }
+
+    /**
+     * Removes a receiver (registered with {@link #add(Consumer)}).
+     *
+     * @param receiver
+     *                 the receiver.
+     */
+    public void remove(Consumer<Delta> receiver) {
+        receivers.remove(receiver);
+    }
+
+    @Override
+    public void broadcast(Delta delta) {
+        for (Consumer<Delta> receiver : new ArrayList<>(receivers))
+            receiver.accept(delta);
+    }
+}
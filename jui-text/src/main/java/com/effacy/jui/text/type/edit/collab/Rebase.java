@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.edit.collab;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.Mapping;
+import com.effacy.jui.text.type.edit.Step;
+import com.effacy.jui.text.type.edit.StepMap;
+import com.effacy.jui.text.type.edit.StepResult;
+
+/**
+ * Rebases a sequence of steps made against one document onto another that
+ * has since diverged by some (concurrent) steps.
+ * <p>
+ * Each step is mapped (see {@link Step#map(Mapping, FormattedText, FormattedText)})
+ * through the inverse of the steps that preceded it, the concurrent steps and
+ * then the rebased forms of the preceding steps (the inverse and rebased form
+ * of each step being mirrors). The step itself is applied to the original
+ * document (so that the next step can be mapped) and its rebased form to the
+ * target. Steps that no longer apply are dropped.
+ * <p>
+ * For example:
+ * <pre>
+ * Rebase rebase = new Rebase(base, concurrentMaps, doc);
+ * for (Step step : steps) {
+ *     Rebase.Applied applied = rebase.apply(step);
+ *     ...
+ * }
+ * </pre>
+ */
+public class Rebase {
+
+    /**
+     * A step that has been rebased and applied to the target document.
+     *
+     * @param step
+     *               the rebased step.
+     * @param result
+     *               the result of applying the rebased step.
+     */
+    public record Applied(Step step, StepResult result) {}
+
+    private FormattedText from;
+
+    private FormattedText to;
+
+    private List<StepMap> concurrent;
+
+    /**
+     * Inverse maps of the steps applied to {@link #from}.
+     */
+    private List<StepMap> inverses = new ArrayList<>();
+
+    /**
+     * Maps of the rebased steps applied to {@link #to}.
+     */
+    private List<StepMap> rebased = new ArrayList<>();
+
+    /**
+     * For each step applied to {@link #from} the index of its rebased map (or
+     * {@code -1} if dropped).
+     */
+    private List<Integer> mirrors = new ArrayList<>();
+
+    /**
+     * Construct a rebase.
+     *
+     * @param from
+     *                   the document the steps were made against (which is
+     *                   updated as each step is applied so must not be
+     *                   shared).
+     * @param concurrent
+     *                   the maps of the steps that take {@code from} to
+     *                   {@code to}.
+     * @param to
+     *                   the document to apply the rebased steps to.
+     */
+    public Rebase(FormattedText from, List<StepMap> concurrent, FormattedText to) {
+        this.from = from;
+        this.concurrent = concurrent;
+        this.to = to;
+    }
+
+    /**
+     * Rebases the next step and applies it.
+     *
+     * @param step
+     *             the step (made against {@code from} having had the prior
+     *             steps applied).
+     * @return the rebased step ({@code null} if the step no longer applies).
+     */
+    public Applied apply(Step step) {
+        Step mapped = step.map(mapping(), from, to);
+        inverses.add(step.copy().apply(from).map().invert());
+        if (mapped == null) {
+            mirrors.add(-1);
+            return null;
+        }
+        StepResult result = mapped.copy().apply(to);
+        mirrors.add(rebased.size());
+        rebased.add(result.map());
+        return new Applied(mapped, result);
+    }
+
+    /**
+     * The mapping from {@code from} (as it currently stands) to {@code to}.
+     */
+    protected Mapping mapping() {
+        int count = inverses.size();
+        List<StepMap> maps = new ArrayList<>(count + concurrent.size() + rebased.size());
+        for (int i = count - 1; i >= 0; i--)
+            maps.add(inverses.get(i));
+        maps.addAll(concurrent);
+        maps.addAll(rebased);
+        if (count == 0)
+            return new Mapping(maps);
+        int[] links = new int[maps.size()];
+        for (int i = 0; i < links.length; i++)
+            links[i] = -1;
+        for (int i = 0; i < count; i++) {
+            int mirror = mirrors.get(i);
+            if (mirror >= 0)
+                links[count - 1 - i] = count + concurrent.size() + mirror;
+        }
+        return new Mapping(maps, links);
+    }
+}
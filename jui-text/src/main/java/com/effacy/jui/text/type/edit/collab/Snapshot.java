@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type.edit.collab;
+
+import com.effacy.jui.text.type.FormattedText;
+
+/**
+ * A copy of a document at a given version (as held by an {@link Authority}).
+ *
+ * @param version
+ *                the version of the document.
+ * @param doc
+ *                the document (which is not shared).
+ */
+public record Snapshot(int version, FormattedText doc) {
+}
@@ -2,6 +2,10 @@ package com.effacy.jui.text.type.edit.step;
 
 import com.effacy.jui.text.type.FormattedBlock;
 import com.effacy.jui.text.type.FormattedLine.FormatType;
+import com.effacy.jui.text.type.edit.BlockChanges;
+import com.effacy.jui.text.type.edit.Mapping;
+import com.effacy.jui.text.type.edit.Positions;
+import com.effacy.jui.text.type.edit.ResolvedPosition;
 import com.effacy.jui.text.type.edit.Step;
 import com.effacy.jui.text.type.edit.StepMap;
 import com.effacy.jui.text.type.edit.StepResult;
@@ -51,10 +55,26 @@ public class ChangeFormatStep implements Step {
             block.addFormat(offset, length, type);
         else
             block.removeFormat(offset, length, type);
+        Positions.changed(doc, blockIndex);
 
         return new StepResult(
             new ReplaceBlockStep(blockIndex, originalClone),
             StepMap.EMPTY
         );
     }
+
+    @Override
+    public Step map(Mapping mapping, FormattedText from, FormattedText to) {
+        // Text inserted concurrently at either end is not formatted.
+        ResolvedPosition start = mapping.mapOffset(from, blockIndex, offset, 1, to);
+        ResolvedPosition end = mapping.mapOffset(from, blockIndex, offset + length, -1, to);
+        if ((start == null) || (end == null) || (start.blockIndex() != end.blockIndex()) || (end.blockOffset() <= start.blockOffset()))
+            return null;
+        return new ChangeFormatStep(start.blockIndex(), start.blockOffset(), end.blockOffset() - start.blockOffset(), type, add);
+    }
+
+    @Override
+    public void affected(BlockChanges changes) {
+        changes.changed(blockIndex);
+    }
 }
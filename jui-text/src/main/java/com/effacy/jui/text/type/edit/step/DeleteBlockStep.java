@@ -2,6 +2,8 @@ package com.effacy.jui.text.type.edit.step;
 
 import com.effacy.jui.text.type.FormattedBlock;
 import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.BlockChanges;
+import com.effacy.jui.text.type.edit.Mapping;
 import com.effacy.jui.text.type.edit.Positions;
 import com.effacy.jui.text.type.edit.Step;
 import com.effacy.jui.text.type.edit.StepMap;
@@ -30,6 +32,18 @@ public class DeleteBlockStep implements Step {
         int pos = Positions.blockStart(doc, index);
         int ns = Positions.nodeSize(doc.getBlocks().get(index));
         FormattedBlock removed = doc.getBlocks().remove(index);
+        Positions.removed(doc, index);
         return new StepResult(new InsertBlockStep(index, removed), StepMap.of(pos, ns, 0));
     }
+
+    @Override
+    public Step map(Mapping mapping, FormattedText from, FormattedText to) {
+        int mapped = mapping.mapBlock(from, index, to);
+        return (mapped < 0) ? null : new DeleteBlockStep(mapped);
+    }
+
+    @Override
+    public void affected(BlockChanges changes) {
+        changes.removed(index);
+    }
 }
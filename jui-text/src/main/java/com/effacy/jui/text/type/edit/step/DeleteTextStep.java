@@ -1,8 +1,12 @@
 package com.effacy.jui.text.type.edit.step;
 
 import com.effacy.jui.text.type.FormattedBlock;
+import com.effacy.jui.text.type.FormattedLine;
 import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.BlockChanges;
+import com.effacy.jui.text.type.edit.Mapping;
 import com.effacy.jui.text.type.edit.Positions;
+import com.effacy.jui.text.type.edit.ResolvedPosition;
 import com.effacy.jui.text.type.edit.Step;
 import com.effacy.jui.text.type.edit.StepMap;
 import com.effacy.jui.text.type.edit.StepResult;
@@ -10,7 +14,10 @@ import com.effacy.jui.text.type.edit.StepResult;
 /**
  * Deletes a range of text within a block.
  * <p>
- * The inverse is a {@link ReplaceBlockStep} that restores the original block
+ * Where the deletion is from a single-line block (leaving it non-empty) and
+ * touches no formatting the inverse is an {@link InsertTextStep} of the deleted
+ * text (so the undo history does not hold a copy of the block). Otherwise the
+ * inverse is a {@link ReplaceBlockStep} that restores the original block
  * (preserving formatting through undo). The forward StepMap is precise: only
  * positions at or after the deletion point are shifted.
  */
@@ -35,17 +42,79 @@ public class DeleteTextStep implements Step {
         this.length = length;
     }
 
+    /**
+     * The index of the block being deleted from.
+     */
+    public int blockIndex() {
+        return blockIndex;
+    }
+
+    /**
+     * The character offset where the deletion starts.
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * The number of characters deleted.
+     */
+    public int length() {
+        return length;
+    }
+
     @Override
     public StepResult apply(FormattedText doc) {
         FormattedBlock block = doc.getBlocks().get(blockIndex);
-        FormattedBlock originalClone = block.clone();
         int contentPos = Positions.blockStart(doc, blockIndex) + 1;
+        Step inverse = reversible(block);
+        if (inverse == null)
+            inverse = new ReplaceBlockStep(blockIndex, block.clone());
 
         block.remove(offset, length);
+        Positions.changed(doc, blockIndex);
 
         return new StepResult(
-            new ReplaceBlockStep(blockIndex, originalClone),
+            inverse,
             StepMap.of(contentPos + offset, length, 0)
         );
     }
+
+    /**
+     * Determines if the deletion can be exactly reversed by inserting the
+     * deleted text. This is the case for a deletion from a single-line block
+     * that leaves the line non-empty and where no formatting ends within or
+     * adjoining the deleted range, or starts within it.
+     *
+     * @return the reversing step ({@code null} if the deletion cannot be
+     *         reversed in this manner).
+     */
+    private Step reversible(FormattedBlock block) {
+        if ((offset < 0) || (length <= 0) || (block.getLines().size() != 1))
+            return null;
+        FormattedLine line = block.getLines().get(0);
+        int end = offset + length;
+        if ((end > line.length()) || ((offset == 0) && (end == line.length())))
+            return null;
+        for (FormattedLine.Format format : line.getFormatting()) {
+            if ((format.getIndex() + format.getLength() >= offset) && (format.getIndex() < end))
+                return null;
+        }
+        return new InsertTextStep(blockIndex, offset, line.getText().substring(offset, end));
+    }
+
+    @Override
+    public Step map(Mapping mapping, FormattedText from, FormattedText to) {
+        // Text inserted concurrently at either end is not deleted.
+        ResolvedPosition start = mapping.mapOffset(from, blockIndex, offset, 1, to);
+        ResolvedPosition end = mapping.mapOffset(from, blockIndex, offset + length, -1, to);
+        if ((start == null) || (end == null) || (start.blockIndex() != end.blockIndex()) || (end.blockOffset() <= start.blockOffset()))
+            return null;
+        return new DeleteTextStep(start.blockIndex(), start.blockOffset(), end.blockOffset() - start.blockOffset());
+    }
+
+    @Override
+    public void affected(BlockChanges changes) {
+        changes.changed(blockIndex);
+    }
 }
@@ -2,6 +2,8 @@ package com.effacy.jui.text.type.edit.step;
 
 import com.effacy.jui.text.type.FormattedBlock;
 import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.BlockChanges;
+import com.effacy.jui.text.type.edit.Mapping;
 import com.effacy.jui.text.type.edit.Positions;
 import com.effacy.jui.text.type.edit.Step;
 import com.effacy.jui.text.type.edit.StepMap;
@@ -34,7 +36,28 @@ public class InsertBlockStep implements Step {
         block.ensureId();
         int pos = Positions.blockStart(doc, index);
         doc.getBlocks().add(index, block);
+        Positions.inserted(doc, index);
         int ns = Positions.nodeSize(block);
         return new StepResult(new DeleteBlockStep(index), StepMap.of(pos, 0, ns));
     }
+
+    @Override
+    public Step map(Mapping mapping, FormattedText from, FormattedText to) {
+        return new InsertBlockStep(mapping.mapInsert(from, index, to), block.clone());
+    }
+
+    @Override
+    public Step copy() {
+        return new InsertBlockStep(index, block.clone());
+    }
+
+    @Override
+    public void affected(BlockChanges changes) {
+        changes.inserted(index);
+    }
+
+    @Override
+    public int weight() {
+        return 32 + Step.weight(block);
+    }
 }
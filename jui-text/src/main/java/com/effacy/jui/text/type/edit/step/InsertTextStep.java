@@ -1,8 +1,12 @@
 package com.effacy.jui.text.type.edit.step;
 
 import com.effacy.jui.text.type.FormattedBlock;
+import com.effacy.jui.text.type.FormattedLine;
 import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.BlockChanges;
+import com.effacy.jui.text.type.edit.Mapping;
 import com.effacy.jui.text.type.edit.Positions;
+import com.effacy.jui.text.type.edit.ResolvedPosition;
 import com.effacy.jui.text.type.edit.Step;
 import com.effacy.jui.text.type.edit.StepMap;
 import com.effacy.jui.text.type.edit.StepResult;
@@ -10,9 +14,12 @@ import com.effacy.jui.text.type.edit.StepResult;
 /**
  * Inserts plain text at a character offset within a block.
  * <p>
- * The inverse is a {@link ReplaceBlockStep} that restores the original block
- * (preserving formatting). The forward StepMap is precise: only positions at or
- * after the insertion point are shifted.
+ * Where the insertion is into a single-line block and touches no formatting the
+ * inverse is a {@link DeleteTextStep} of the inserted text (so the undo history
+ * does not hold a copy of the block). Otherwise the inverse is a
+ * {@link ReplaceBlockStep} that restores the original block (preserving
+ * formatting). The forward StepMap is precise: only positions at or after the
+ * insertion point are shifted.
  */
 public class InsertTextStep implements Step {
 
@@ -35,17 +42,83 @@ public class InsertTextStep implements Step {
         this.text = text;
     }
 
+    /**
+     * The index of the block being inserted into.
+     */
+    public int blockIndex() {
+        return blockIndex;
+    }
+
+    /**
+     * The character offset of the insertion.
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * The text being inserted.
+     */
+    public String text() {
+        return text;
+    }
+
     @Override
     public StepResult apply(FormattedText doc) {
         FormattedBlock block = doc.getBlocks().get(blockIndex);
-        FormattedBlock originalClone = block.clone();
         int contentPos = Positions.blockStart(doc, blockIndex) + 1;
+        Step inverse = reversible(block);
+        if (inverse == null)
+            inverse = new ReplaceBlockStep(blockIndex, block.clone());
 
         block.insert(offset, text);
+        Positions.changed(doc, blockIndex);
 
         return new StepResult(
-            new ReplaceBlockStep(blockIndex, originalClone),
+            inverse,
             StepMap.of(contentPos + offset, 0, text.length())
         );
     }
+
+    /**
+     * Determines if the insertion can be exactly reversed by deleting the
+     * inserted text. This is the case for text (without line breaks) inserted
+     * into a non-empty single-line block where no formatting starts, ends or
+     * spans the insertion point (which would be extended by the insertion).
+     *
+     * @return the reversing step ({@code null} if the insertion cannot be
+     *         reversed in this manner).
+     */
+    private Step reversible(FormattedBlock block) {
+        if ((text == null) || text.isEmpty() || (text.indexOf('\n') >= 0) || (block.getLines().size() != 1))
+            return null;
+        FormattedLine line = block.getLines().get(0);
+        int length = line.length();
+        if (length == 0)
+            return null;
+        int at = ((offset < 0) || (offset >= length)) ? length : offset;
+        for (FormattedLine.Format format : line.getFormatting()) {
+            if ((format.getIndex() <= at) && (format.getIndex() + format.getLength() >= at))
+                return null;
+        }
+        return new DeleteTextStep(blockIndex, at, text.length());
+    }
+
+    @Override
+    public int weight() {
+        return 40 + 2 * text.length();
+    }
+
+    @Override
+    public Step map(Mapping mapping, FormattedText from, FormattedText to) {
+        int size = Positions.contentSize(from.getBlocks().get(blockIndex));
+        int at = ((offset < 0) || (offset > size)) ? size : offset;
+        ResolvedPosition mapped = mapping.mapOffset(from, blockIndex, at, 1, to);
+        return (mapped == null) ? null : new InsertTextStep(mapped.blockIndex(), mapped.blockOffset(), text);
+    }
+
+    @Override
+    public void affected(BlockChanges changes) {
+        changes.changed(blockIndex);
+    }
 }
@@ -2,6 +2,8 @@ package com.effacy.jui.text.type.edit.step;
 
 import com.effacy.jui.text.type.FormattedBlock;
 import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.BlockChanges;
+import com.effacy.jui.text.type.edit.Mapping;
 import com.effacy.jui.text.type.edit.Positions;
 import com.effacy.jui.text.type.edit.Step;
 import com.effacy.jui.text.type.edit.StepMap;
@@ -40,13 +42,33 @@ public class JoinBlocksStep implements Step {
         int leftContentSize = Positions.contentSize(left);
         int contentPos = Positions.blockStart(doc, blockIndex) + 1;
         String rightId = right.getId();
+        int rightIndent = right.getIndent();
 
         left.merge(right);
         doc.getBlocks().remove(blockIndex + 1);
+        Positions.removed(doc, blockIndex + 1);
+        Positions.changed(doc, blockIndex);
 
         return new StepResult(
-            new SplitBlockStep(blockIndex, leftContentSize, rightId),
+            new SplitBlockStep(blockIndex, leftContentSize, rightId, rightIndent),
             StepMap.of(contentPos + leftContentSize, 2, 0)
         );
     }
+
+    @Override
+    public Step map(Mapping mapping, FormattedText from, FormattedText to) {
+        // Both blocks must remain (and remain adjacent and of the same type).
+        int left = mapping.mapBlock(from, blockIndex, to);
+        if ((left < 0) || (mapping.mapBlock(from, blockIndex + 1, to) != left + 1))
+            return null;
+        if (to.getBlocks().get(left).getType() != to.getBlocks().get(left + 1).getType())
+            return null;
+        return new JoinBlocksStep(left);
+    }
+
+    @Override
+    public void affected(BlockChanges changes) {
+        changes.removed(blockIndex + 1);
+        changes.changed(blockIndex);
+    }
 }
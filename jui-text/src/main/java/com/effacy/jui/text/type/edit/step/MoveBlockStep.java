@@ -5,6 +5,8 @@ import java.util.List;
 
 import com.effacy.jui.text.type.FormattedBlock;
 import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.BlockChanges;
+import com.effacy.jui.text.type.edit.Mapping;
 import com.effacy.jui.text.type.edit.Positions;
 import com.effacy.jui.text.type.edit.Step;
 import com.effacy.jui.text.type.edit.StepMap;
@@ -65,6 +67,7 @@ public class MoveBlockStep implements Step {
         // Insert at target position in the reduced list.
         int insertAt = Math.min(toIndex, blocks.size());
         blocks.addAll(insertAt, moved);
+        Positions.moved(doc, fromIndex, insertAt, count);
 
         // StepMap: two ranges ordered by old position (remove + insert).
         StepMap map;
@@ -75,4 +78,30 @@ public class MoveBlockStep implements Step {
 
         return new StepResult(new MoveBlockStep(insertAt, fromIndex, count), map);
     }
+
+    @Override
+    public Step map(Mapping mapping, FormattedText from, FormattedText to) {
+        // The moved blocks must remain (and remain consecutive).
+        int mapped = mapping.mapBlock(from, fromIndex, to);
+        if (mapped < 0)
+            return null;
+        for (int i = 1; i < count; i++) {
+            if (mapping.mapBlock(from, fromIndex + i, to) != mapped + i)
+                return null;
+        }
+        if (fromIndex == toIndex)
+            return new MoveBlockStep(mapped, mapped, count);
+
+        // Map the insertion point (as an index into the original list).
+        int insertAt = mapping.mapInsert(from, (toIndex > fromIndex) ? toIndex + count : toIndex, to);
+        if ((insertAt > mapped) && (insertAt < mapped + count))
+            return null;
+        return new MoveBlockStep(mapped, (insertAt > mapped) ? insertAt - count : insertAt, count);
+    }
+
+    @Override
+    public void affected(BlockChanges changes) {
+        if (fromIndex != toIndex)
+            changes.moved(fromIndex, Math.min(toIndex, changes.size() - count), count);
+    }
 }
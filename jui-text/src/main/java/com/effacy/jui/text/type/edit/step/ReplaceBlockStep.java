@@ -1,7 +1,13 @@
 package com.effacy.jui.text.type.edit.step;
 
+import java.util.List;
+import java.util.Objects;
+
 import com.effacy.jui.text.type.FormattedBlock;
+import com.effacy.jui.text.type.FormattedLine;
 import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.BlockChanges;
+import com.effacy.jui.text.type.edit.Mapping;
 import com.effacy.jui.text.type.edit.Positions;
 import com.effacy.jui.text.type.edit.Step;
 import com.effacy.jui.text.type.edit.StepMap;
@@ -11,12 +17,19 @@ import com.effacy.jui.text.type.edit.StepResult;
  * Replaces a block's entire content with a new block.
  * <p>
  * This is the general-purpose step for any intra-block modification (text
- * editing, formatting changes, etc.). The inverse captures a clone of the
- * original block.
+ * editing, formatting changes, etc.). The replacement may also be of a block
+ * nested within a top-level block (i.e. a table cell) identified by a path of
+ * child indices.
+ * <p>
+ * The inverse captures a clone of only the smallest part of the original block
+ * that differs from the replacement. For example, replacing a table with a
+ * copy that differs only in the content of one cell yields an inverse that
+ * restores just that cell (rather than holding a copy of the whole table).
  */
 public class ReplaceBlockStep implements Step {
 
     private final int blockIndex;
+    private final int[] path;
     private final FormattedBlock replacement;
 
     /**
@@ -26,23 +39,194 @@ public class ReplaceBlockStep implements Step {
      *                    the new block content.
      */
     public ReplaceBlockStep(int blockIndex, FormattedBlock replacement) {
+        this(blockIndex, null, replacement);
+    }
+
+    /**
+     * @param blockIndex
+     *                    index of the (top-level) block containing the block
+     *                    to replace.
+     * @param path
+     *                    the indices of the child blocks leading from the
+     *                    top-level block to the block to replace (empty or
+     *                    {@code null} to replace the top-level block itself).
+     * @param replacement
+     *                    the new block content.
+     */
+    public ReplaceBlockStep(int blockIndex, int[] path, FormattedBlock replacement) {
         this.blockIndex = blockIndex;
+        this.path = (path == null) ? new int[0] : path;
         this.replacement = replacement;
     }
 
+    /**
+     * The index of the top-level block.
+     */
+    public int blockIndex() {
+        return blockIndex;
+    }
+
+    /**
+     * Determines if this replaces the top-level block in its entirety (rather
+     * than a block nested within it).
+     */
+    public boolean isTopLevel() {
+        return (path.length == 0);
+    }
+
     @Override
     public StepResult apply(FormattedText doc) {
-        FormattedBlock original = doc.getBlocks().get(blockIndex);
+        FormattedBlock top = doc.getBlocks().get(blockIndex);
         int contentPos = Positions.blockStart(doc, blockIndex) + 1;
-        int oldContentSize = Positions.contentSize(original);
-        FormattedBlock originalClone = original.clone();
-        replacement.setId(original.getId());
-        replacement.ensureId();
-        doc.getBlocks().set(blockIndex, replacement);
-        int newContentSize = Positions.contentSize(replacement);
+        int oldContentSize = Positions.contentSize(top);
+
+        FormattedBlock parent = null;
+        FormattedBlock original = top;
+        for (int idx : path) {
+            parent = original;
+            original = original.getBlocks().get(idx);
+        }
+
+        // Any IDs the replacement is assigned need to be accounted for in the
+        // difference (so that the inverse restores the original exactly).
+        if (parent == null) {
+            replacement.setId(original.getId());
+            replacement.ensureId();
+        }
+
+        // The inverse need only restore the part of the original that differs.
+        int[] diff = difference(original, replacement);
+        FormattedBlock restore = original;
+        for (int idx : diff)
+            restore = restore.getBlocks().get(idx);
+        int[] inversePath = new int[path.length + diff.length];
+        System.arraycopy(path, 0, inversePath, 0, path.length);
+        System.arraycopy(diff, 0, inversePath, path.length, diff.length);
+        ReplaceBlockStep inverse = new ReplaceBlockStep(blockIndex, inversePath, restore.clone());
+
+        if (parent == null) {
+            doc.getBlocks().set(blockIndex, replacement);
+        } else {
+            parent.getBlocks().set(path[path.length - 1], replacement);
+        }
+        Positions.changed(doc, blockIndex);
+        int newContentSize = Positions.contentSize(doc.getBlocks().get(blockIndex));
         return new StepResult(
-            new ReplaceBlockStep(blockIndex, originalClone),
+            inverse,
             StepMap.of(contentPos, oldContentSize, newContentSize)
         );
     }
+
+    @Override
+    public Step map(Mapping mapping, FormattedText from, FormattedText to) {
+        int mapped = mapping.mapBlock(from, blockIndex, to);
+        if (mapped < 0)
+            return null;
+        FormattedBlock block = to.getBlocks().get(mapped);
+        for (int idx : path) {
+            if ((idx < 0) || (idx >= block.getBlocks().size()))
+                return null;
+            block = block.getBlocks().get(idx);
+        }
+        return new ReplaceBlockStep(mapped, path.clone(), replacement.clone());
+    }
+
+    @Override
+    public Step copy() {
+        return new ReplaceBlockStep(blockIndex, path, replacement.clone());
+    }
+
+    @Override
+    public void affected(BlockChanges changes) {
+        changes.changed(blockIndex);
+    }
+
+    @Override
+    public int weight() {
+        return 32 + 4 * path.length + Step.weight(replacement);
+    }
+
+    /**
+     * Finds the smallest block within the original that contains all the
+     * differences from the replacement (the ID of the original itself is not
+     * compared as it is carried over to the replacement).
+     *
+     * @return the path to the block (empty for the original itself).
+     */
+    private static int[] difference(FormattedBlock original, FormattedBlock replacement) {
+        int[] path = new int[0];
+        FormattedBlock a = original;
+        FormattedBlock b = replacement;
+        while (sameShallow(a, b)) {
+            List<FormattedBlock> ac = a.getBlocks();
+            List<FormattedBlock> bc = b.getBlocks();
+            int differs = -1;
+            for (int i = 0; i < ac.size(); i++) {
+                if (!same(ac.get(i), bc.get(i))) {
+                    if (differs >= 0)
+                        return path;
+                    differs = i;
+                }
+            }
+            if (differs < 0)
+                return path;
+            int[] extended = new int[path.length + 1];
+            System.arraycopy(path, 0, extended, 0, path.length);
+            extended[path.length] = differs;
+            path = extended;
+            a = ac.get(differs);
+            b = bc.get(differs);
+            if (!Objects.equals(a.getId(), b.getId()))
+                return path;
+        }
+        return path;
+    }
+
+    /**
+     * Determines if the blocks (and their children) are the same (including
+     * their IDs).
+     */
+    private static boolean same(FormattedBlock a, FormattedBlock b) {
+        if (!Objects.equals(a.getId(), b.getId()) || !sameShallow(a, b))
+            return false;
+        List<FormattedBlock> ac = a.getBlocks();
+        List<FormattedBlock> bc = b.getBlocks();
+        for (int i = 0; i < ac.size(); i++) {
+            if (!same(ac.get(i), bc.get(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Determines if the blocks are the same excluding their IDs and the content
+     * of their children (though the number of children must match).
+     */
+    private static boolean sameShallow(FormattedBlock a, FormattedBlock b) {
+        if ((a.getType() != b.getType()) || (a.getIndent() != b.getIndent()))
+            return false;
+        if (!Objects.equals(a.getContent(), b.getContent()) || !a.getMeta().equals(b.getMeta()))
+            return false;
+        if (a.getBlocks().size() != b.getBlocks().size())
+            return false;
+        List<FormattedLine> al = a.getLines();
+        List<FormattedLine> bl = b.getLines();
+        if (al.size() != bl.size())
+            return false;
+        for (int i = 0; i < al.size(); i++) {
+            FormattedLine x = al.get(i);
+            FormattedLine y = bl.get(i);
+            if (!x.getText().equals(y.getText()))
+                return false;
+            List<FormattedLine.Format> xf = x.getFormatting();
+            List<FormattedLine.Format> yf = y.getFormatting();
+            if (xf.size() != yf.size())
+                return false;
+            for (int j = 0; j < xf.size(); j++) {
+                if (!xf.get(j).equals(yf.get(j)) || !xf.get(j).getMeta().equals(yf.get(j).getMeta()))
+                    return false;
+            }
+        }
+        return true;
+    }
 }
@@ -2,6 +2,9 @@ package com.effacy.jui.text.type.edit.step;
 
 import com.effacy.jui.text.type.FormattedBlock;
 import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.BlockChanges;
+import com.effacy.jui.text.type.edit.Mapping;
+import com.effacy.jui.text.type.edit.Positions;
 import com.effacy.jui.text.type.edit.Step;
 import com.effacy.jui.text.type.edit.StepMap;
 import com.effacy.jui.text.type.edit.StepResult;
@@ -33,6 +36,18 @@ public class SetBlockIndentStep implements Step {
         FormattedBlock block = doc.getBlocks().get(blockIndex);
         int oldIndent = block.getIndent();
         block.setIndent(newIndent);
+        Positions.changed(doc, blockIndex);
         return new StepResult(new SetBlockIndentStep(blockIndex, oldIndent), StepMap.EMPTY);
     }
+
+    @Override
+    public Step map(Mapping mapping, FormattedText from, FormattedText to) {
+        int mapped = mapping.mapBlock(from, blockIndex, to);
+        return (mapped < 0) ? null : new SetBlockIndentStep(mapped, newIndent);
+    }
+
+    @Override
+    public void affected(BlockChanges changes) {
+        changes.changed(blockIndex);
+    }
 }
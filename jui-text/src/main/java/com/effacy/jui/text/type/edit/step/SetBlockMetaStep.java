@@ -2,6 +2,9 @@ package com.effacy.jui.text.type.edit.step;
 
 import com.effacy.jui.text.type.FormattedBlock;
 import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.BlockChanges;
+import com.effacy.jui.text.type.edit.Mapping;
+import com.effacy.jui.text.type.edit.Positions;
 import com.effacy.jui.text.type.edit.Step;
 import com.effacy.jui.text.type.edit.StepMap;
 import com.effacy.jui.text.type.edit.StepResult;
@@ -41,6 +44,18 @@ public class SetBlockMetaStep implements Step {
             block.getMeta().remove(key);
         else
             block.getMeta().put(key, value);
+        Positions.changed(doc, blockIndex);
         return new StepResult(new SetBlockMetaStep(blockIndex, key, oldValue), StepMap.EMPTY);
     }
+
+    @Override
+    public Step map(Mapping mapping, FormattedText from, FormattedText to) {
+        int mapped = mapping.mapBlock(from, blockIndex, to);
+        return (mapped < 0) ? null : new SetBlockMetaStep(mapped, key, value);
+    }
+
+    @Override
+    public void affected(BlockChanges changes) {
+        changes.changed(blockIndex);
+    }
 }
@@ -2,6 +2,9 @@ package com.effacy.jui.text.type.edit.step;
 
 import com.effacy.jui.text.type.FormattedBlock;
 import com.effacy.jui.text.type.FormattedBlock.BlockType;
+import com.effacy.jui.text.type.edit.BlockChanges;
+import com.effacy.jui.text.type.edit.Mapping;
+import com.effacy.jui.text.type.edit.Positions;
 import com.effacy.jui.text.type.edit.Step;
 import com.effacy.jui.text.type.edit.StepMap;
 import com.effacy.jui.text.type.edit.StepResult;
@@ -34,6 +37,18 @@ public class SetBlockTypeStep implements Step {
         FormattedBlock block = doc.getBlocks().get(blockIndex);
         BlockType oldType = block.getType();
         block.setType(newType);
+        Positions.changed(doc, blockIndex);
         return new StepResult(new SetBlockTypeStep(blockIndex, oldType), StepMap.EMPTY);
     }
+
+    @Override
+    public Step map(Mapping mapping, FormattedText from, FormattedText to) {
+        int mapped = mapping.mapBlock(from, blockIndex, to);
+        return (mapped < 0) ? null : new SetBlockTypeStep(mapped, newType);
+    }
+
+    @Override
+    public void affected(BlockChanges changes) {
+        changes.changed(blockIndex);
+    }
 }
@@ -2,7 +2,10 @@ package com.effacy.jui.text.type.edit.step;
 
 import com.effacy.jui.text.type.FormattedBlock;
 import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.BlockChanges;
+import com.effacy.jui.text.type.edit.Mapping;
 import com.effacy.jui.text.type.edit.Positions;
+import com.effacy.jui.text.type.edit.ResolvedPosition;
 import com.effacy.jui.text.type.edit.Step;
 import com.effacy.jui.text.type.edit.StepMap;
 import com.effacy.jui.text.type.edit.StepResult;
@@ -20,7 +23,8 @@ public class SplitBlockStep implements Step {
 
     private final int blockIndex;
     private final int offset;
-    private final String rightBlockId;
+    private String rightBlockId;
+    private final int rightIndent;
 
     /**
      * @param blockIndex
@@ -46,9 +50,28 @@ public class SplitBlockStep implements Step {
      *                     right-hand block.
      */
     public SplitBlockStep(int blockIndex, int offset, String rightBlockId) {
+        this(blockIndex, offset, rightBlockId, -1);
+    }
+
+    /**
+     * @param blockIndex
+     *                    index of the block to split.
+     * @param offset
+     *                    character offset within the block's content where the
+     *                    split occurs.
+     * @param rightBlockId
+     *                    optional identifier to assign to the newly created
+     *                    right-hand block.
+     * @param rightIndent
+     *                    the indent to assign to the right-hand block (if
+     *                    negative it takes the indent of the block being
+     *                    split).
+     */
+    public SplitBlockStep(int blockIndex, int offset, String rightBlockId, int rightIndent) {
         this.blockIndex = blockIndex;
         this.offset = offset;
         this.rightBlockId = rightBlockId;
+        this.rightIndent = rightIndent;
     }
 
     @Override
@@ -57,14 +80,36 @@ public class SplitBlockStep implements Step {
         int contentPos = Positions.blockStart(doc, blockIndex) + 1;
 
         FormattedBlock right = block.split(offset);
-        if ((rightBlockId != null) && !rightBlockId.isBlank())
-            right.setId(rightBlockId);
+
+        // Splitting at the start yields a clone of the block (so the ID is
+        // cleared in order for a new one to be assigned).
+        right.setId(((rightBlockId != null) && !rightBlockId.isBlank()) ? rightBlockId : null);
         right.ensureId();
+        if (rightIndent >= 0)
+            right.setIndent(rightIndent);
+
+        // Record the ID assigned so that the step creates the same block when
+        // applied to another copy of the document (i.e. when rebased).
+        rightBlockId = right.getId();
         doc.getBlocks().add(blockIndex + 1, right);
+        Positions.changed(doc, blockIndex);
+        Positions.inserted(doc, blockIndex + 1);
 
         return new StepResult(
             new JoinBlocksStep(blockIndex),
             StepMap.of(contentPos + offset, 0, 2)
         );
     }
+
+    @Override
+    public Step map(Mapping mapping, FormattedText from, FormattedText to) {
+        ResolvedPosition mapped = mapping.mapOffset(from, blockIndex, offset, 1, to);
+        return (mapped == null) ? null : new SplitBlockStep(mapped.blockIndex(), mapped.blockOffset(), rightBlockId, rightIndent);
+    }
+
+    @Override
+    public void affected(BlockChanges changes) {
+        changes.changed(blockIndex);
+        changes.inserted(blockIndex + 1);
+    }
 }
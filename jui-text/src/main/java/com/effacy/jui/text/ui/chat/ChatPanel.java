@@ -200,7 +200,12 @@ public class ChatPanel extends Component<ChatPanel.Config> {
 
     // Streaming state
     private Element currentStreamEl;
-    private StringBuilder streamBuffer;
+    // Characters streamed into the current bubble (-1 when not streaming). The
+    // text itself is held by the parser only until the block it belongs to is
+    // rendered.
+    private int streamed = -1;
+    private MarkdownParser.Incremental<?> streamParser;
+    private int streamCommitted;
     private String currentAgentName;
     private String currentAgentIcon;
     private double thinkingTimer = -1;
@@ -334,7 +339,8 @@ public class ChatPanel extends Component<ChatPanel.Config> {
         streaming = false;
         hasMessages = false;
         currentStreamEl = null;
-        streamBuffer = null;
+        streamed = -1;
+        streamParser = null;
         stopThinkingIndicator();
     }
 
@@ -347,7 +353,8 @@ public class ChatPanel extends Component<ChatPanel.Config> {
         currentStreamEl = null;
         currentAgentName = null;
         currentAgentIcon = null;
-        streamBuffer = null;
+        streamed = -1;
+        streamParser = null;
         stopThinkingIndicator();
         if (messagesEl != null)
             messagesEl.innerHTML = "";
@@ -477,7 +484,8 @@ public class ChatPanel extends Component<ChatPanel.Config> {
         stopThinkingIndicator();
         streaming = false;
         currentStreamEl = null;
-        streamBuffer = null;
+        streamed = -1;
+        streamParser = null;
         if (welcomeEl != null)
             welcomeEl.classList.add(styles().show());
         if (conversationEl != null)
@@ -546,7 +554,8 @@ public class ChatPanel extends Component<ChatPanel.Config> {
         currentStreamEl = appendMessage("assistant", null);
         currentAgentName = null;
         currentAgentIcon = null;
-        streamBuffer = new StringBuilder();
+        streamed = 0;
+        streamParser = null;
         startThinkingIndicator();
         streaming = true;
         if (inputEl != null)
@@ -631,10 +640,9 @@ public class ChatPanel extends Component<ChatPanel.Config> {
             // action events from subsequent turns should continue
             // accumulating into the same group.
             stopThinkingIndicator();
-            if ((currentStreamEl != null) && (streamBuffer != null) && (streamBuffer.length() > 0)) {
+            if ((currentStreamEl != null) && (streamed > 0)) {
                 // Render accumulated text as final markdown.
-                currentStreamEl.innerHTML = "";
-                MarkdownParser.parse(p -> p.partial(false), configureHandler(currentStreamEl), streamBuffer.toString());
+                renderStreamFinal();
             } else if (currentStreamEl != null) {
                 // No text was streamed — remove the empty/thinking bubble.
                 Element wrapper = findWrapperOf(currentStreamEl);
@@ -643,7 +651,8 @@ public class ChatPanel extends Component<ChatPanel.Config> {
             }
             // Start a fresh assistant bubble for the next segment.
             currentStreamEl = appendMessage("assistant", null);
-            streamBuffer = new StringBuilder();
+            streamed = 0;
+            streamParser = null;
             startThinkingIndicator();
         } else if ("tool".equals(eventName)) {
             JSONObject obj = JSONParser.parseStrict(data).isObject();
@@ -768,17 +777,43 @@ public class ChatPanel extends Component<ChatPanel.Config> {
     }
 
     private void appendToStream(String text) {
-        if (streamBuffer == null)
+        if (streamed < 0)
             return;
         if (currentStreamEl == null)
             currentStreamEl = appendMessage("assistant", null);
         stopThinkingIndicator();
-        streamBuffer.append(text);
-        currentStreamEl.innerHTML = "";
-        MarkdownParser.parse(p -> p.partial(true), configureHandler(currentStreamEl), streamBuffer.toString());
+        streamed += text.length();
+        if (streamParser == null) {
+            // Closed blocks are rendered once (appended to the bubble) while
+            // the trailing open block is rendered after them and replaced on
+            // each chunk (so the cost of a chunk does not grow with the
+            // length of the response).
+            Element el = currentStreamEl;
+            el.innerHTML = "";
+            streamCommitted = 0;
+            streamParser = new MarkdownParser().incremental(configureHandler(el), () -> {
+                streamCommitted = el.childNodes.length;
+                return configureHandler(el);
+            }, () -> {
+                while (el.childNodes.length > streamCommitted)
+                    el.removeChild(el.lastChild);
+            });
+        }
+        streamParser.feed(text);
         scrollToBottom();
     }
 
+    /**
+     * Renders the remainder of the streamed text (the trailing open block) as
+     * final markdown.
+     */
+    private void renderStreamFinal() {
+        if (streamParser != null) {
+            streamParser.finish();
+            streamParser = null;
+        }
+    }
+
     private void appendNoticeMessage(String message) {
         Wrap.appendInto(messagesEl, root -> {
             Div.$(root).style(styles().notice()).text(message);
@@ -985,10 +1020,9 @@ public class ChatPanel extends Component<ChatPanel.Config> {
 
     private void finishStreaming() {
         stopThinkingIndicator();
-        if ((currentStreamEl != null) && (streamBuffer != null) && (streamBuffer.length() > 0)) {
+        if ((currentStreamEl != null) && (streamed > 0)) {
             // Render final markdown.
-            currentStreamEl.innerHTML = "";
-            MarkdownParser.parse(p -> p.partial(false), configureHandler(currentStreamEl), streamBuffer.toString());
+            renderStreamFinal();
         } else if (currentStreamEl != null) {
             // No text was streamed in this final segment — remove the
             // empty/thinking bubble so it doesn't linger.
@@ -999,7 +1033,8 @@ public class ChatPanel extends Component<ChatPanel.Config> {
         streaming = false;
         activeConnector = null;
         currentStreamEl = null;
-        streamBuffer = null;
+        streamed = -1;
+        streamParser = null;
         collapseToolGroup();
         if (stopBtnEl != null)
             stopBtnEl.classList.remove(styles().show());
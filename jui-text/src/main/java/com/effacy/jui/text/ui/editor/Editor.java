@@ -13,9 +13,11 @@ import com.effacy.jui.core.client.dom.builder.Wrap;
 import com.effacy.jui.platform.css.client.CssResource;
 import com.effacy.jui.text.type.FormattedBlock;
 import com.effacy.jui.text.type.FormattedBlock.BlockType;
+import com.effacy.jui.text.type.FormattedBlock.BlockTypeConstraint;
 import com.effacy.jui.text.type.FormattedLine;
 import com.effacy.jui.text.type.FormattedLine.FormatType;
 import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.BlockChanges;
 import com.effacy.jui.text.type.edit.Commands;
 import com.effacy.jui.text.type.edit.EditorState;
 import com.effacy.jui.text.type.edit.History;
@@ -23,6 +25,7 @@ import com.effacy.jui.text.type.edit.Positions;
 import com.effacy.jui.text.type.edit.Selection;
 import com.effacy.jui.text.type.edit.Transaction;
 import com.effacy.jui.text.type.edit.step.SetBlockTypeStep;
+import com.effacy.jui.text.ui.type.BlockHeights;
 import com.google.gwt.core.client.GWT;
 
 import elemental2.dom.DomGlobal;
@@ -34,8 +37,20 @@ import elemental2.dom.KeyboardEvent;
  * <p>
  * Renders a {@link FormattedText} document as editable content and dispatches
  * all mutations through the transaction system ({@link Commands},
- * {@link EditorState}, {@link History}). The DOM is fully re-rendered after
- * each transaction, ensuring the view always matches the model.
+ * {@link EditorState}, {@link History}). After each transaction the DOM is
+ * updated from the {@link BlockChanges} reported by the transaction: only
+ * those blocks that were inserted or changed are rendered, the elements of the
+ * remaining blocks being retained (and moved as needed) where their handler
+ * permits it (see {@link IBlockHandler#retain}). A full re-render occurs on
+ * load and where the changes cannot be described, ensuring the view always
+ * matches the model.
+ * <p>
+ * Large documents may be virtualised (see {@link Config#virtualize(int)}) in
+ * which case only the blocks near the viewport (and the selection) are
+ * rendered, the remainder being represented by spacers sized from the
+ * measured (or estimated) heights of the blocks. Use
+ * {@link #scrollToBlock(String)} and {@link #find(String)} to reach content
+ * that is not rendered.
  * <p>
  * Block-type-specific behaviour (rendering, event routing, format handling) is
  * encapsulated in {@link IBlockHandler} implementations registered in the
@@ -82,6 +97,36 @@ public class Editor extends Component<Editor.Config> {
      */
     private boolean rendering;
 
+    /**
+     * Changes applied to the document that have not yet been rendered (from
+     * transactions applied silently, whose changes the handler has reflected
+     * in the DOM directly).
+     */
+    private BlockChanges unrendered;
+
+    /**
+     * Heights of the blocks when rendering is virtualised ({@code null}
+     * otherwise).
+     */
+    private BlockHeights heights;
+
+    /**
+     * The range of blocks rendered (from inclusive, to exclusive). When
+     * virtualised the blocks outside of this range are represented by
+     * {@link #spacerBefore} and {@link #spacerAfter}.
+     */
+    private int windowFrom, windowTo;
+
+    /**
+     * Spacers standing in for the blocks not rendered (when virtualised).
+     */
+    private Element spacerBefore, spacerAfter;
+
+    /**
+     * If an update of the rendered range (following a scroll) is pending.
+     */
+    private boolean scrollPending;
+
     /**
      * Listener for editor state changes (selection, block type, formats).
      * The containing control uses this to update toolbars, manage floating
@@ -171,6 +216,8 @@ public class Editor extends Component<Editor.Config> {
         boolean paragraphAfterHeading = true;
         IListIndexFormatter listIndexFormatter = Editor::defaultListIndex;
         boolean debugLog;
+        int virtualize;
+        int overscan = 1000;
 
         /**
          * Configures whether pressing Enter at the end of a heading (H1–H3)
@@ -198,6 +245,28 @@ public class Editor extends Component<Editor.Config> {
             this.debugLog = enable;
             return this;
         }
+
+        /**
+         * Enables virtualised rendering of documents having at least the given
+         * number of blocks. Only those blocks near the viewport (see
+         * {@link #overscan(int)}) and the selection are rendered.
+         *
+         * @param threshold
+         *                  the minimum number of blocks (0 to disable).
+         */
+        public Config virtualize(int threshold) {
+            this.virtualize = Math.max(0, threshold);
+            return this;
+        }
+
+        /**
+         * The distance (in pixels) beyond the viewport to render blocks when
+         * virtualised (default 1000).
+         */
+        public Config overscan(int overscan) {
+            this.overscan = Math.max(0, overscan);
+            return this;
+        }
     }
 
     /************************************************************************
@@ -228,9 +297,18 @@ public class Editor extends Component<Editor.Config> {
             editorEl = el;
             render();
             attachEventListeners();
+            if (config().virtualize > 0) {
+                editorEl.addEventListener("scroll", evt -> scheduleScroll());
+                setMonitorWindowScroll(true);
+            }
         });
     }
 
+    @Override
+    protected void onWindowScroll(int width, int height, int scrollLeft, int scrollTop) {
+        scheduleScroll();
+    }
+
     /************************************************************************
      * Public API.
      ************************************************************************/
@@ -257,6 +335,93 @@ public class Editor extends Component<Editor.Config> {
         return state.doc();
     }
 
+    /**
+     * Scrolls to the block with the given ID (see
+     * {@link FormattedText#blockIndexById(String)}), rendering it first if
+     * rendering is virtualised.
+     *
+     * @param id
+     *           the block ID.
+     * @return {@code true} if the block was found.
+     */
+    public boolean scrollToBlock(String id) {
+        int blockIndex = state.doc().blockIndexById(id);
+        if (blockIndex < 0)
+            return false;
+        scrollToBlock(blockIndex);
+        return true;
+    }
+
+    /**
+     * Scrolls to the block at the given index, rendering it first if
+     * rendering is virtualised.
+     *
+     * @param blockIndex
+     *                   the index of the block.
+     */
+    public void scrollToBlock(int blockIndex) {
+        if ((editorEl == null) || (blockIndex < 0) || (blockIndex >= state.doc().getBlocks().size()))
+            return;
+        if ((heights != null) && ((blockIndex < windowFrom) || (blockIndex >= windowTo)))
+            patch(pending(), blockIndex);
+        Element el = blockElement(blockIndex);
+        if (el != null)
+            el.scrollIntoView();
+    }
+
+    /**
+     * Finds the next occurrence of the given text (ignoring case) following
+     * the selection, wrapping around at the end of the document. The match is
+     * selected and scrolled to. This operates on the document (rather than the
+     * DOM) so finds text in blocks that have not been rendered.
+     *
+     * @param text
+     *             the text to find.
+     * @return {@code true} if the text was found.
+     */
+    public boolean find(String text) {
+        if ((editorEl == null) || (text == null) || text.isEmpty())
+            return false;
+        String match = text.toLowerCase();
+        List<FormattedBlock> blocks = state.doc().getBlocks();
+        Selection sel = state.selection();
+        int count = blocks.size();
+        for (int n = 0; n <= count; n++) {
+            int i = (sel.toBlock() + n) % count;
+            FormattedBlock block = blocks.get(i);
+            if (block.getType().constraint() == BlockTypeConstraint.BLOCKS)
+                continue;
+            StringBuilder sb = new StringBuilder();
+            for (FormattedLine line : block.getLines()) {
+                if (sb.length() > 0)
+                    sb.append('\n');
+                sb.append(line.getText());
+            }
+            String content = sb.toString().toLowerCase();
+            int idx;
+            if (n == 0) {
+                idx = content.indexOf(match, sel.toOffset());
+            } else {
+                idx = content.indexOf(match);
+                // Having wrapped around only matches before the selection.
+                if ((n == count) && (idx >= sel.toOffset()))
+                    idx = -1;
+            }
+            if (idx >= 0) {
+                state.setSelection(Selection.range(i, idx, i, idx + match.length()));
+                if ((heights != null) && ((i < windowFrom) || (i >= windowTo)))
+                    patch(pending(), i);
+                restoreSelection();
+                Element el = blockElement(i);
+                if (el != null)
+                    el.scrollIntoView();
+                updateToolbarState();
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Listener for editor state changes. The containing control implements
      * this to receive state updates and forward them to toolbars, manage
@@ -421,26 +586,291 @@ public class Editor extends Component<Editor.Config> {
     /**
      * Full re-render of the document into the editor element. Each block is
      * delegated to the appropriate {@link IBlockHandler}.
+     * <p>
+     * When virtualised only those blocks near the viewport (and the selection)
+     * are rendered, the handlers being informed of the remainder by
+     * {@link IBlockHandler#skip}.
      */
     private void render() {
+        double start = config().debugLog ? DomGlobal.performance.now() : 0;
         rendering = true;
+        unrendered = null;
         try {
             editorEl.innerHTML = "";
             List<FormattedBlock> blocks = state.doc().getBlocks();
+            spacerBefore = spacerAfter = null;
+            heights = null;
+            if ((config().virtualize > 0) && (blocks.size() >= config().virtualize)) {
+                heights = new BlockHeights(blocks.size(), ESTIMATED_BLOCK_HEIGHT);
+                spacerBefore = spacer();
+                spacerAfter = spacer();
+                editorEl.appendChild(spacerBefore);
+                editorEl.appendChild(spacerAfter);
+            }
+            int[] window = window(state.selection().headBlock());
             handlers.forEach(h -> h.beginRender(ctx));
             for (int i = 0; i < blocks.size(); i++) {
-                Element el = handlerFor(blocks.get(i).getType()).render(blocks.get(i), i, ctx);
-                editorEl.appendChild(el);
+                FormattedBlock block = blocks.get(i);
+                IBlockHandler handler = handlerFor(block.getType());
+                if ((i < window[0]) || (i >= window[1]))
+                    handler.skip(block, i, ctx);
+                else
+                    editorEl.insertBefore(handler.render(block, i, ctx), spacerAfter);
             }
+            windowFrom = window[0];
+            windowTo = window[1];
         } finally {
             rendering = false;
         }
+        layout();
+        if (config().debugLog)
+            DomGlobal.console.log("[Editor:render] full " + (windowTo - windowFrom) + " of " + state.doc().getBlocks().size() + " blocks in " + (DomGlobal.performance.now() - start) + "ms");
+        restoreSelection();
+        ensureCursorVisible();
+        updateToolbarState();
+        handlers.forEach(h -> h.afterRender(ctx));
+        if (heights != null)
+            scheduleScroll();
+    }
+
+    /**
+     * Incremental re-render of the document following the given changes (see
+     * {@link EditorState#changes()}) after which the selection is restored and
+     * brought into view.
+     */
+    private void render(BlockChanges changes) {
+        if ((unrendered != null) && (changes != null))
+            changes = unrendered.then(changes);
+        unrendered = null;
+        if (!patch(changes, state.selection().headBlock()))
+            return;
         restoreSelection();
         ensureCursorVisible();
         updateToolbarState();
         handlers.forEach(h -> h.afterRender(ctx));
     }
 
+    /**
+     * Updates the rendered blocks following the given changes and (when
+     * virtualised) the viewport. The elements of blocks that have not changed
+     * are retained (subject to {@link IBlockHandler#retain}) and those of
+     * changed blocks may be patched (see {@link IBlockHandler#update}),
+     * otherwise blocks are rendered anew. The resulting elements are then
+     * placed in order, moving only those that are out of place.
+     * <p>
+     * Falls back to {@link #render()} where the changes do not describe the
+     * current DOM.
+     *
+     * @param changes
+     *                the changes since the last render.
+     * @param focus
+     *                the index of a block to bring into the rendered range
+     *                (when virtualised), or {@code -1}.
+     * @return {@code true} if patched, {@code false} if a full render was
+     *         performed instead.
+     */
+    private boolean patch(BlockChanges changes, int focus) {
+        double start = config().debugLog ? DomGlobal.performance.now() : 0;
+        List<FormattedBlock> blocks = state.doc().getBlocks();
+        boolean virtual = (config().virtualize > 0) && (blocks.size() >= config().virtualize);
+        if ((changes == null) || changes.isAll() || (changes.size() != blocks.size()) || (virtual != (heights != null))) {
+            render();
+            return false;
+        }
+
+        // Existing elements of the rendered blocks (by their index prior to
+        // the changes).
+        Element[] previous = new Element[windowTo - windowFrom];
+        Element child = (spacerBefore != null) ? spacerBefore.nextElementSibling : editorEl.firstElementChild;
+        for (int i = 0; (i < previous.length) && (child != null); i++, child = child.nextElementSibling)
+            previous[i] = child;
+        int count = (heights != null) ? heights.count() : previous.length;
+        if ((child != spacerAfter) || (changes.previous() != count) || ((previous.length > 0) && (previous[previous.length - 1] == null))) {
+            render();
+            return false;
+        }
+        if (heights != null)
+            heights.apply(changes);
+
+        int[] window = window(focus);
+        rendering = true;
+        try {
+            handlers.forEach(h -> h.beginRender(ctx));
+            Element[] current = new Element[window[1] - window[0]];
+            for (int i = 0; i < blocks.size(); i++) {
+                FormattedBlock block = blocks.get(i);
+                IBlockHandler handler = handlerFor(block.getType());
+                if ((i < window[0]) || (i >= window[1])) {
+                    handler.skip(block, i, ctx);
+                    continue;
+                }
+                int origin = changes.origin(i);
+                int k = origin - windowFrom;
+                if ((origin >= 0) && (k >= 0) && (k < previous.length) && (previous[k] != null)) {
+                    boolean retained = changes.isChanged(i)
+                        ? handler.update(previous[k], block, i, origin, ctx)
+                        : handler.retain(previous[k], block, i, origin, ctx);
+                    if (retained) {
+                        current[i - window[0]] = previous[k];
+                        previous[k] = null;
+                        continue;
+                    }
+                }
+                current[i - window[0]] = handler.render(block, i, ctx);
+            }
+
+            // Remove the elements not retained then place those that are (in
+            // order) inserting the newly rendered ones.
+            for (Element el : previous) {
+                if (el != null)
+                    editorEl.removeChild(el);
+            }
+            Element ref = (spacerBefore != null) ? spacerBefore.nextElementSibling : editorEl.firstElementChild;
+            for (Element el : current) {
+                if (el == ref)
+                    ref = ref.nextElementSibling;
+                else
+                    editorEl.insertBefore(el, ref);
+            }
+            windowFrom = window[0];
+            windowTo = window[1];
+        } finally {
+            rendering = false;
+        }
+        layout();
+        if (config().debugLog)
+            DomGlobal.console.log("[Editor:render] patched " + (windowTo - windowFrom) + " of " + blocks.size() + " blocks in " + (DomGlobal.performance.now() - start) + "ms");
+        return true;
+    }
+
+    /**
+     * The changes not yet rendered (those from silent transactions), if any,
+     * otherwise no changes. Used to re-render the range of blocks rather than
+     * in response to a transaction.
+     */
+    private BlockChanges pending() {
+        BlockChanges changes = (unrendered != null) ? unrendered : new BlockChanges(state.doc().getBlocks().size());
+        unrendered = null;
+        return changes;
+    }
+
+    /**
+     * Estimated height (in pixels) of a block prior to any being measured.
+     */
+    private static final double ESTIMATED_BLOCK_HEIGHT = 24;
+
+    /**
+     * Determines the range of blocks to render. This is all blocks unless
+     * virtualised, in which case it is those blocks within the viewport
+     * (extended by the overscan) and the selection (where near).
+     *
+     * @param focus
+     *              a block to include in the range (centering the range on it
+     *              where it lies outside of the viewport), or {@code -1}.
+     * @return the range (from inclusive, to exclusive).
+     */
+    private int[] window(int focus) {
+        int count = state.doc().getBlocks().size();
+        if (heights == null)
+            return new int[] { 0, count };
+        double[] view = viewport();
+        double extent = Math.max(view[1] - view[0], DomGlobal.window.innerHeight);
+        if ((focus >= 0) && (focus < count)) {
+            double top = heights.offset(focus);
+            if ((top + heights.height(focus) < view[0]) || (top > view[1]))
+                view = new double[] { top, top + extent };
+        }
+        int[] window = heights.window(view[0] - config().overscan, view[1] + config().overscan);
+
+        // Include the selection where it is near so that it can be restored
+        // (a distant selection is restored when it is next brought into view).
+        Selection sel = state.selection();
+        int near = 2 * (window[1] - window[0]);
+        int lo = Math.max(0, Math.min(sel.fromBlock(), count - 1));
+        int hi = Math.max(0, Math.min(sel.toBlock(), count - 1));
+        if ((lo >= window[0] - near) && (hi < window[1] + near)) {
+            window[0] = Math.min(window[0], lo);
+            window[1] = Math.max(window[1], hi + 1);
+        }
+        return window;
+    }
+
+    /**
+     * The visible range of the editor (the intersection of the editor and the
+     * browser window) in offsets from the top of the first block.
+     */
+    private double[] viewport() {
+        elemental2.dom.DOMRect rect = editorEl.getBoundingClientRect();
+        double origin = spacerBefore.getBoundingClientRect().top;
+        double top = Math.max(rect.top, 0);
+        double bottom = Math.max(top, Math.min(rect.bottom, DomGlobal.window.innerHeight));
+        return new double[] { top - origin, bottom - origin };
+    }
+
+    /**
+     * Measures the rendered blocks and sizes the spacers (when virtualised).
+     * The height of a block is taken as the distance between the top of its
+     * element and the top of the next (so accounts for margins).
+     */
+    private void layout() {
+        if (heights == null)
+            return;
+        Element el = spacerBefore.nextElementSibling;
+        double top = el.getBoundingClientRect().top;
+        for (int i = windowFrom; (i < windowTo) && (el != spacerAfter); i++) {
+            Element next = el.nextElementSibling;
+            double nextTop = next.getBoundingClientRect().top;
+            heights.measure(i, nextTop - top);
+            top = nextTop;
+            el = next;
+        }
+        ((elemental2.dom.HTMLElement) spacerBefore).style.setProperty("height", heights.offset(windowFrom) + "px");
+        ((elemental2.dom.HTMLElement) spacerAfter).style.setProperty("height", (heights.total() - heights.offset(windowTo)) + "px");
+    }
+
+    /**
+     * Creates a spacer to stand in for blocks that are not rendered.
+     */
+    private Element spacer() {
+        Element spacer = DomGlobal.document.createElement("div");
+        spacer.setAttribute("contenteditable", "false");
+        spacer.setAttribute("aria-hidden", "true");
+        return spacer;
+    }
+
+    /**
+     * The element for the block at the given index (or {@code null} if not
+     * rendered).
+     */
+    private Element blockElement(int blockIndex) {
+        if ((blockIndex < windowFrom) || (blockIndex >= windowTo))
+            return null;
+        Element el = (spacerBefore != null) ? spacerBefore.nextElementSibling : editorEl.firstElementChild;
+        for (int i = windowFrom; (i < blockIndex) && (el != null); i++)
+            el = el.nextElementSibling;
+        return el;
+    }
+
+    /**
+     * Schedules an update of the rendered range following a scroll (when
+     * virtualised), coalescing scroll events to one update per frame.
+     */
+    private void scheduleScroll() {
+        if ((heights == null) || scrollPending)
+            return;
+        scrollPending = true;
+        DomGlobal.requestAnimationFrame(time -> {
+            scrollPending = false;
+            if ((heights == null) || !DomGlobal.document.body.contains(editorEl))
+                return;
+            int[] window = window(-1);
+            if ((window[0] == windowFrom) && (window[1] == windowTo))
+                return;
+            if (patch(pending(), -1) && editorEl.contains(DomGlobal.document.activeElement))
+                restoreSelection();
+        });
+    }
+
     /**
      * Renders a single line's formatted content into a parent element.
      */
@@ -514,10 +944,10 @@ public class Editor extends Component<Editor.Config> {
      */
     private void ensureCursorVisible() {
         Selection sel = state.selection();
-        int blockIdx = sel.anchorBlock();
-        if ((blockIdx < 0) || (blockIdx >= editorEl.childElementCount))
+        Element el = blockElement(sel.anchorBlock());
+        if (el == null)
             return;
-        elemental2.dom.HTMLElement blockEl = (elemental2.dom.HTMLElement) editorEl.childNodes.item(blockIdx);
+        elemental2.dom.HTMLElement blockEl = (elemental2.dom.HTMLElement) el;
         int blockBottom = blockEl.offsetTop + blockEl.offsetHeight;
         double viewBottom = editorEl.scrollTop + editorEl.clientHeight;
         if (blockBottom > viewBottom)
@@ -548,7 +978,12 @@ public class Editor extends Component<Editor.Config> {
         int numBlocks = state.doc().getBlocks().size();
         if ((sel[0] < 0) || (sel[0] >= numBlocks) || (sel[2] < 0) || (sel[2] >= numBlocks))
             return;
-        state.setSelection(new Selection(sel[0], sel[1], sel[2], sel[3]));
+        Selection selection = new Selection(sel[0], sel[1], sel[2], sel[3]);
+        // Moving the cursor ends any run of typing being coalesced in the
+        // history.
+        if (!selection.equals(state.selection()))
+            history.seal();
+        state.setSelection(selection);
         updateToolbarState();
     }
 
@@ -687,10 +1122,10 @@ public class Editor extends Component<Editor.Config> {
             return;
         handlers.forEach(h -> h.beforeApplyTransaction(ctx));
         Transaction inverse = state.apply(tr);
-        history.push(inverse);
+        history.push(tr, inverse);
         if (config().debugLog)
             debugLogState("applyTransaction");
-        render();
+        render(state.changes());
         if (stateListener != null)
             stateListener.onContentChanged();
     }
@@ -704,7 +1139,8 @@ public class Editor extends Component<Editor.Config> {
         if (tr == null)
             return;
         Transaction inverse = state.apply(tr);
-        history.push(inverse);
+        history.push(tr, inverse);
+        unrendered = (unrendered == null) ? state.changes() : unrendered.then(state.changes());
         if (stateListener != null)
             stateListener.onContentChanged();
     }
@@ -739,7 +1175,7 @@ public class Editor extends Component<Editor.Config> {
         if (ctrl && "z".equals(ke.key) && !shift) {
             ke.preventDefault();
             if (history.undo(state)) {
-                render();
+                render(state.changes());
                 if (stateListener != null)
                     stateListener.onContentChanged();
             }
@@ -749,7 +1185,7 @@ public class Editor extends Component<Editor.Config> {
                 || (ctrl && "y".equals(ke.key))) {
             ke.preventDefault();
             if (history.redo(state)) {
-                render();
+                render(state.changes());
                 if (stateListener != null)
                     stateListener.onContentChanged();
             }
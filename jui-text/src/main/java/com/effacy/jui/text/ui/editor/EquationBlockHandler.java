@@ -94,16 +94,24 @@ public class EquationBlockHandler implements IBlockHandler {
             renderLatex(wrapper, renderEl, source);
         }
 
-        // Click to edit.
+        // Click to edit (the index is read from the element as it is updated
+        // when the element is retained across renders).
         wrapper.addEventListener("click", evt -> {
             evt.preventDefault();
             evt.stopPropagation();
-            openEditor(wrapper, blockIndex, ctx);
+            openEditor(wrapper, Integer.parseInt(wrapper.getAttribute("data-block-index")), ctx);
         });
 
         return wrapper;
     }
 
+    @Override
+    public boolean retain(Element el, FormattedBlock block, int blockIndex, int previousIndex, IEditorContext ctx) {
+        if (blockIndex != previousIndex)
+            el.setAttribute("data-block-index", String.valueOf(blockIndex));
+        return true;
+    }
+
     @Override
     public void focusBlock(int blockIndex, IEditorContext ctx) {
         // Auto-open the editor when a new equation block is inserted.
@@ -397,7 +397,7 @@ public class FormattedTextEditor extends Control<FormattedText, FormattedTextEdi
             return true;
         if ((v1 == null) || (v2 == null))
             return false;
-        return v1.computeHash() == v2.computeHash();
+        return v1.trackedHash() == v2.trackedHash();
     }
 
     @Override
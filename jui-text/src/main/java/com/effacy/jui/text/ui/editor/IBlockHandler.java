@@ -38,9 +38,9 @@ public interface IBlockHandler {
     boolean accepts(BlockType type);
 
     /**
-     * Called once at the start of each {@link Editor#render()} pass before any
-     * block is rendered. Use this to reset per-render state (e.g. list
-     * counters).
+     * Called once at the start of each render pass (full or incremental)
+     * before any block is rendered (or retained). Use this to reset per-render
+     * state (e.g. list counters).
      *
      * @param ctx
      *            the editor context.
@@ -62,6 +62,58 @@ public interface IBlockHandler {
      */
     elemental2.dom.Element render(FormattedBlock block, int blockIndex, IEditorContext ctx);
 
+    /**
+     * Called (in place of {@link #render}) during an incremental render for a
+     * block that has not changed since its element was rendered, though its
+     * index may have (from blocks being inserted, removed or moved before it).
+     * Return {@code true} to retain the element (updating anything that
+     * depends on the index), otherwise the block is rendered anew.
+     * <p>
+     * The default does not retain the element.
+     *
+     * @param el
+     *                      the element previously rendered for the block.
+     * @param block
+     *                      the model block.
+     * @param blockIndex
+     *                      the (current) index of the block in the document.
+     * @param previousIndex
+     *                      the index of the block when the element was
+     *                      rendered.
+     * @param ctx
+     *                      the editor context.
+     * @return {@code true} if the element was retained.
+     */
+    default boolean retain(elemental2.dom.Element el, FormattedBlock block, int blockIndex, int previousIndex, IEditorContext ctx) { return false; }
+
+    /**
+     * As with {@link #retain} but for a block whose content has changed. This
+     * allows a handler to patch the existing element in place (for example,
+     * to update only the cells of a table that differ). Note that the element
+     * may have been rendered by another handler (where the block type has
+     * changed).
+     * <p>
+     * The default does not update the element (so the block is rendered anew).
+     *
+     * @return {@code true} if the element was updated and should be retained.
+     */
+    default boolean update(elemental2.dom.Element el, FormattedBlock block, int blockIndex, int previousIndex, IEditorContext ctx) { return false; }
+
+    /**
+     * Called (in place of {@link #render}) for a block that is not rendered
+     * as it lies outside of the viewport (where rendering is virtualised, see
+     * {@link Editor.Config#virtualize(int)}). Use this to maintain any state
+     * that spans blocks (e.g. list counters).
+     *
+     * @param block
+     *                   the model block.
+     * @param blockIndex
+     *                   the index of the block in the document.
+     * @param ctx
+     *                   the editor context.
+     */
+    default void skip(FormattedBlock block, int blockIndex, IEditorContext ctx) {}
+
     /**
      * Called once after all blocks have been rendered and the selection has
      * been restored. Use this for post-render side-effects such as re-focusing
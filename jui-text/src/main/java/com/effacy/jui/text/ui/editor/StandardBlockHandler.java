@@ -55,21 +55,7 @@ public class StandardBlockHandler implements IBlockHandler {
     @Override
     public Element render(FormattedBlock block, int blockIndex, IEditorContext ctx) {
         // Update ordered-list counters before creating the element.
-        if (block.getType() == BlockType.OLIST) {
-            int ind = block.getIndent();
-            if (!prevWasOlist) {
-                for (int j = 0; j < listCounters.length; j++)
-                    listCounters[j] = 0;
-            } else if (ind > prevOlistIndent) {
-                for (int j = prevOlistIndent + 1; j < listCounters.length; j++)
-                    listCounters[j] = 0;
-            }
-            listCounters[ind]++;
-            prevOlistIndent = ind;
-            prevWasOlist = true;
-        } else {
-            prevWasOlist = false;
-        }
+        count(block);
 
         Element el = createBlockElement(block.getType(), ctx);
         el.setAttribute("data-block-index", String.valueOf(blockIndex));
@@ -107,6 +93,50 @@ public class StandardBlockHandler implements IBlockHandler {
         return el;
     }
 
+    @Override
+    public boolean retain(Element el, FormattedBlock block, int blockIndex, int previousIndex, IEditorContext ctx) {
+        // The list counters must advance even though the block is not
+        // rendered, and the marker may differ if preceding items changed.
+        count(block);
+        if (blockIndex != previousIndex)
+            el.setAttribute("data-block-index", String.valueOf(blockIndex));
+        if (block.getType() == BlockType.OLIST) {
+            String marker = ctx.listIndexFormatter().format(block.getIndent(), listCounters[block.getIndent()]);
+            if (!marker.equals(el.getAttribute("data-list-index")))
+                el.setAttribute("data-list-index", marker);
+        }
+        return true;
+    }
+
+    @Override
+    public void skip(FormattedBlock block, int blockIndex, IEditorContext ctx) {
+        // Blocks outside of the rendered range still count towards the list
+        // numbering of those that follow.
+        count(block);
+    }
+
+    /**
+     * Updates the ordered-list counters for the given block (which must be
+     * called for each block in document order).
+     */
+    private void count(FormattedBlock block) {
+        if (block.getType() == BlockType.OLIST) {
+            int ind = block.getIndent();
+            if (!prevWasOlist) {
+                for (int j = 0; j < listCounters.length; j++)
+                    listCounters[j] = 0;
+            } else if (ind > prevOlistIndent) {
+                for (int j = prevOlistIndent + 1; j < listCounters.length; j++)
+                    listCounters[j] = 0;
+            }
+            listCounters[ind]++;
+            prevOlistIndent = ind;
+            prevWasOlist = true;
+        } else {
+            prevWasOlist = false;
+        }
+    }
+
     /**
      * Maps a block type to its HTML element tag name, applying list-style CSS
      * classes where required.
@@ -100,6 +100,23 @@ public class TableBlockHandler implements IBlockHandler {
         return renderTable(block, blockIndex, ctx);
     }
 
+    @Override
+    public boolean retain(Element el, FormattedBlock block, int blockIndex, int previousIndex, IEditorContext ctx) {
+        // Listeners capture the block index so the element can only be
+        // retained in place.
+        return (blockIndex == previousIndex);
+    }
+
+    @Override
+    public boolean update(Element el, FormattedBlock block, int blockIndex, int previousIndex, IEditorContext ctx) {
+        if (blockIndex != previousIndex)
+            return false;
+        if (!shape(block).equals(el.getAttribute("data-table-shape")))
+            return false;
+        updateTable(el, block, ctx);
+        return true;
+    }
+
     @Override
     public void afterRender(IEditorContext ctx) {
         // Re-focus the cell that was active before the re-render.
@@ -169,6 +186,7 @@ public class TableBlockHandler implements IBlockHandler {
         wrapper.classList.add(styles().tableWrapper());
         wrapper.setAttribute("contenteditable", "false");
         wrapper.setAttribute("data-block-index", String.valueOf(index));
+        wrapper.setAttribute("data-table-shape", shape(table));
 
         // Read metadata.
         int headers = 0;
@@ -345,6 +363,72 @@ public class TableBlockHandler implements IBlockHandler {
         return wrapper;
     }
 
+    /**
+     * Updates a table rendered by {@link #renderTable} (and of the same shape,
+     * see {@link #shape(FormattedBlock)}) to reflect the given table. Only the
+     * content of those cells that differ is replaced, along with the column
+     * widths.
+     */
+    private void updateTable(Element wrapper, FormattedBlock table, IEditorContext ctx) {
+        int numCols = 0;
+        int rowIndex = 0;
+        for (FormattedBlock row : table.getBlocks()) {
+            if (row.getType() != BlockType.TROW)
+                continue;
+            int cellIndex = 0;
+            for (FormattedBlock cell : row.getBlocks()) {
+                if (cell.getType() != BlockType.TCELL)
+                    continue;
+                Element contentDiv = wrapper.querySelector("[data-row='" + rowIndex + "'][data-col='" + cellIndex + "']");
+                if (contentDiv != null) {
+                    Element rendered = DomGlobal.document.createElement("div");
+                    List<FormattedLine> lines = cell.getLines();
+                    if (((lines != null) && !lines.isEmpty()) && (lines.get(0).length() > 0))
+                        ctx.renderLine(rendered, lines.get(0));
+                    if (!rendered.innerHTML.equals(contentDiv.innerHTML)) {
+                        contentDiv.innerHTML = "";
+                        while (rendered.firstChild != null)
+                            contentDiv.appendChild(rendered.firstChild);
+                    }
+                }
+                cellIndex++;
+            }
+            numCols = Math.max(numCols, cellIndex);
+            rowIndex++;
+        }
+
+        // Column widths (which may have been changed by a resize).
+        int[] colWidths = parseColWidths(table.meta("colwidths"), numCols);
+        for (int i = 0; i < numCols; i++) {
+            Element col = wrapper.querySelector("col[data-col-index='" + i + "']");
+            if (col != null)
+                ((elemental2.dom.HTMLElement) col).style.setProperty("width", colWidths[i] + "%");
+        }
+    }
+
+    /**
+     * Describes the structure of a table that is fixed in the rendered DOM
+     * (the number of rows and columns, the header rows and the alignment).
+     * Tables of the same shape can be updated in place.
+     */
+    private static String shape(FormattedBlock table) {
+        int numRows = 0;
+        int numCols = 0;
+        for (FormattedBlock row : table.getBlocks()) {
+            if (row.getType() != BlockType.TROW)
+                continue;
+            numRows++;
+            int c = 0;
+            for (FormattedBlock cell : row.getBlocks()) {
+                if (cell.getType() == BlockType.TCELL)
+                    c++;
+            }
+            if (c > numCols)
+                numCols = c;
+        }
+        return numRows + "x" + numCols + ":" + table.meta("headers") + ":" + table.meta("align");
+    }
+
     /************************************************************************
      * Column width helpers.
      ************************************************************************/
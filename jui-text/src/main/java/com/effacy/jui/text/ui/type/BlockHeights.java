@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright 2026 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.ui.type;
+
+import com.effacy.jui.text.type.edit.BlockChanges;
+
+/**
+ * Heights of a sequence of blocks (or groups of blocks) laid out vertically,
+ * used to render only those blocks near the viewport (with the remainder
+ * represented by spacers).
+ * <p>
+ * Heights are measured once a block has been rendered and estimated (from the
+ * average of those measured) otherwise. Offsets are maintained by a pair of
+ * Fenwick trees (one over the measured heights and one counting the
+ * unmeasured blocks) so that both the offset of a block and the block at an
+ * offset are found in logarithmic time.
+ */
+public class BlockHeights {
+
+    /**
+     * The estimate to use when no block has been measured.
+     */
+    private double estimate;
+
+    /**
+     * Number of blocks.
+     */
+    private int count;
+
+    /**
+     * Measured height of each block ({@code -1} if not measured).
+     */
+    private double[] heights;
+
+    /**
+     * Fenwick tree over the measured heights (1-based).
+     */
+    private double[] tree;
+
+    /**
+     * Fenwick tree counting the unmeasured blocks (1-based).
+     */
+    private int[] unmeasured;
+
+    /**
+     * Total and count of the measured heights.
+     */
+    private double measuredTotal;
+    private int measuredCount;
+
+    /**
+     * Construct over the given number of (unmeasured) blocks.
+     *
+     * @param count
+     *                 the number of blocks.
+     * @param estimate
+     *                 the height to assume for unmeasured blocks when none have
+     *                 been measured.
+     */
+    public BlockHeights(int count, double estimate) {
+        this.estimate = estimate;
+        reset(count);
+    }
+
+    /**
+     * Resets to the given number of (unmeasured) blocks.
+     */
+    public void reset(int count) {
+        double[] heights = new double[Math.max(0, count)];
+        for (int i = 0; i < heights.length; i++)
+            heights[i] = -1;
+        build(heights);
+    }
+
+    /**
+     * The number of blocks.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * The height assumed for an unmeasured block (the average of those
+     * measured).
+     */
+    public double estimate() {
+        return (measuredCount == 0) ? estimate : (measuredTotal / measuredCount);
+    }
+
+    /**
+     * Records the measured height of a block.
+     */
+    public void measure(int index, double height) {
+        if ((index < 0) || (index >= count) || (height < 0))
+            return;
+        double prior = heights[index];
+        if (prior == height)
+            return;
+        heights[index] = height;
+        double delta = height - Math.max(0, prior);
+        measuredTotal += delta;
+        for (int i = index + 1; i <= count; i += (i & -i))
+            tree[i] += delta;
+        if (prior < 0) {
+            measuredCount++;
+            for (int i = index + 1; i <= count; i += (i & -i))
+                unmeasured[i]--;
+        }
+    }
+
+    /**
+     * Determines if the block has been measured.
+     */
+    public boolean measured(int index) {
+        return (index >= 0) && (index < count) && (heights[index] >= 0);
+    }
+
+    /**
+     * The (measured or estimated) height of the block.
+     */
+    public double height(int index) {
+        if ((index < 0) || (index >= count))
+            return 0;
+        return (heights[index] >= 0) ? heights[index] : estimate();
+    }
+
+    /**
+     * The offset of the top of the given block (the total height of the
+     * blocks before it).
+     */
+    public double offset(int index) {
+        index = Math.max(0, Math.min(index, count));
+        double sum = 0;
+        int missing = 0;
+        for (int i = index; i > 0; i -= (i & -i)) {
+            sum += tree[i];
+            missing += unmeasured[i];
+        }
+        return sum + missing * estimate();
+    }
+
+    /**
+     * The total height of all the blocks.
+     */
+    public double total() {
+        return offset(count);
+    }
+
+    /**
+     * Finds the block at the given offset.
+     *
+     * @return the index of the block (the number of blocks if the offset is at
+     *         or beyond the end).
+     */
+    public int indexAt(double offset) {
+        if (offset < 0)
+            return 0;
+        double est = estimate();
+        int idx = 0;
+        double remaining = offset;
+        for (int step = Integer.highestOneBit(Math.max(1, count)); step > 0; step >>= 1) {
+            int next = idx + step;
+            if (next <= count) {
+                double size = tree[next] + unmeasured[next] * est;
+                if (size <= remaining) {
+                    idx = next;
+                    remaining -= size;
+                }
+            }
+        }
+        return idx;
+    }
+
+    /**
+     * The range of blocks that intersect the given range of offsets.
+     *
+     * @return the first block and one beyond the last (as a pair).
+     */
+    public int[] window(double top, double bottom) {
+        if (count == 0)
+            return new int[] { 0, 0 };
+        int from = Math.min(indexAt(top), count - 1);
+        int to = Math.max(from + 1, Math.min(count, indexAt(bottom) + 1));
+        return new int[] { from, to };
+    }
+
+    /**
+     * Updates the heights following changes to the blocks. Blocks that remain
+     * retain their heights (changed blocks are expected to be re-measured)
+     * while inserted blocks are unmeasured.
+     */
+    public void apply(BlockChanges changes) {
+        if (changes == null)
+            return;
+        if (changes.isAll() || (changes.previous() != count)) {
+            reset(changes.size());
+            return;
+        }
+        double[] updated = new double[changes.size()];
+        for (int i = 0; i < updated.length; i++) {
+            int origin = changes.origin(i);
+            updated[i] = (origin >= 0) ? heights[origin] : -1;
+        }
+        build(updated);
+    }
+
+    /**
+     * Builds the trees (in linear time) over the given heights.
+     */
+    private void build(double[] heights) {
+        this.heights = heights;
+        count = heights.length;
+        tree = new double[count + 1];
+        unmeasured = new int[count + 1];
+        measuredTotal = 0;
+        measuredCount = 0;
+        for (int i = 1; i <= count; i++) {
+            double h = heights[i - 1];
+            if (h >= 0) {
+                tree[i] += h;
+                measuredTotal += h;
+                measuredCount++;
+            } else {
+                unmeasured[i]++;
+            }
+            int parent = i + (i & -i);
+            if (parent <= count) {
+                tree[parent] += tree[i];
+                unmeasured[parent] += unmeasured[i];
+            }
+        }
+    }
+}
@@ -20,9 +20,12 @@ import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
 
+import com.effacy.jui.core.client.dom.EventLifecycle;
+import com.effacy.jui.core.client.dom.EventLifecycle.IEventRegistration;
 import com.effacy.jui.core.client.dom.builder.A;
 import com.effacy.jui.core.client.dom.builder.Br;
 import com.effacy.jui.core.client.dom.builder.Custom;
+import com.effacy.jui.core.client.dom.builder.Div;
 import com.effacy.jui.core.client.dom.builder.ElementBuilder;
 import com.effacy.jui.core.client.dom.builder.H1;
 import com.effacy.jui.core.client.dom.builder.H2;
@@ -38,6 +41,7 @@ import com.effacy.jui.core.client.dom.builder.Td;
 import com.effacy.jui.core.client.dom.builder.Text;
 import com.effacy.jui.core.client.dom.builder.Th;
 import com.effacy.jui.core.client.dom.builder.Tr;
+import com.effacy.jui.core.client.dom.builder.Wrap;
 import com.effacy.jui.text.type.FormattedBlock;
 import com.effacy.jui.text.type.FormattedLine;
 import com.effacy.jui.text.type.FormattedText;
@@ -45,6 +49,10 @@ import com.effacy.jui.text.type.FormattedBlock.BlockType;
 import com.effacy.jui.text.type.FormattedLine.FormatType;
 import com.effacy.jui.text.type.FormattedLine.TextSegment;
 
+import elemental2.dom.DomGlobal;
+import elemental2.dom.Element;
+import elemental2.dom.HTMLElement;
+
 /**
  * Renders a {@link FormattedText} model into a JUI
  * {@link IDomInsertableContainer} using the builder-pattern DOM API. This is
@@ -63,6 +71,16 @@ import com.effacy.jui.text.type.FormattedLine.TextSegment;
  * <p>
  * The caller should apply the CSS class {@code juiFragFText} to the parent
  * element for block-level spacing and indent styles.
+ * <p>
+ * Very large documents may be virtualised (see {@link #virtualize(int)}) in
+ * which case only those blocks near the viewport are rendered, with the
+ * remainder represented by a pair of spacers that are sized from the measured
+ * (or estimated) heights of the blocks. Blocks are rendered in groups (so that
+ * scrolling does not continually render and discard individual blocks) and,
+ * with semantic lists, a list is never split across groups. Note that only
+ * scrolling of the document is tracked (not of an intervening scrollable
+ * element) and that the browser's find will only see the rendered blocks (use
+ * {@link #reveal(int)} to bring a block into view).
  *
  * @see FormattedText
  * @see FormattedTextStyles
@@ -118,6 +136,21 @@ public class DomBuilderFormattedTextRenderer {
      */
     private ElementBuilder lastLi;
 
+    /**
+     * See {@link #virtualize(int)}.
+     */
+    private int virtualize;
+
+    /**
+     * See {@link #overscan(int)}.
+     */
+    private int overscan = 1000;
+
+    /**
+     * The viewport when rendering has been virtualised.
+     */
+    private Viewport viewport;
+
     /**
      * Construct with the root container to build into.
      *
@@ -171,6 +204,33 @@ public class DomBuilderFormattedTextRenderer {
         return this;
     }
 
+    /**
+     * Virtualises rendering of documents having at least the given number of
+     * blocks, so that only those blocks near the viewport are rendered.
+     *
+     * @param threshold
+     *                  the number of blocks ({@code 0}, the default, to not
+     *                  virtualise).
+     * @return this renderer for chaining.
+     */
+    public DomBuilderFormattedTextRenderer virtualize(int threshold) {
+        this.virtualize = Math.max(0, threshold);
+        return this;
+    }
+
+    /**
+     * The distance (in pixels) beyond each edge of the viewport over which
+     * blocks are rendered when virtualised (default 1000).
+     *
+     * @param overscan
+     *                 the distance.
+     * @return this renderer for chaining.
+     */
+    public DomBuilderFormattedTextRenderer overscan(int overscan) {
+        this.overscan = Math.max(0, overscan);
+        return this;
+    }
+
     /**
      * Renders the given {@link FormattedText} into the root container.
      *
@@ -180,8 +240,53 @@ public class DomBuilderFormattedTextRenderer {
     public void render(FormattedText text) {
         if ((text == null) || text.empty())
             return;
-        for (FormattedBlock block : text.getBlocks())
-            renderBlock(block);
+        List<FormattedBlock> blocks = text.getBlocks();
+        if ((virtualize > 0) && (blocks.size() >= virtualize)) {
+            viewport = new Viewport(text);
+            viewport.build();
+            return;
+        }
+        render(blocks, 0, blocks.size());
+    }
+
+    /**
+     * Scrolls the block with the given ID into view (see
+     * {@link #reveal(int)}).
+     *
+     * @param id
+     *           the block ID.
+     * @return {@code true} if the block was found.
+     */
+    public boolean reveal(String id) {
+        if (viewport == null)
+            return false;
+        int blockIndex = viewport.text.blockIndexById(id);
+        if (blockIndex < 0)
+            return false;
+        return reveal(blockIndex);
+    }
+
+    /**
+     * Scrolls the (top-level) block at the given index into view, rendering it
+     * first if needed. Only applies when virtualised (otherwise all blocks are
+     * rendered and may be scrolled to directly).
+     *
+     * @param blockIndex
+     *                   the index of the block.
+     * @return {@code true} if the block was scrolled to.
+     */
+    public boolean reveal(int blockIndex) {
+        if (viewport == null)
+            return false;
+        return viewport.reveal(blockIndex);
+    }
+
+    /**
+     * Renders the given range of blocks (closing any list context at the end).
+     */
+    private void render(List<FormattedBlock> blocks, int from, int to) {
+        for (int i = from; i < to; i++)
+            renderBlock(blocks.get(i));
         closeListContext();
     }
 
@@ -476,6 +581,264 @@ public class DomBuilderFormattedTextRenderer {
         }
     }
 
+    /************************************************************************
+     * Virtualised rendering
+     ************************************************************************/
+
+    /**
+     * Target number of blocks in each group.
+     */
+    private static final int SEGMENT = 32;
+
+    /**
+     * Estimated height (in pixels) of a block prior to any being measured.
+     */
+    private static final double ESTIMATED_BLOCK_HEIGHT = 24;
+
+    /**
+     * Renders groups of blocks (segments) between a pair of spacers as the
+     * document is scrolled.
+     */
+    private class Viewport {
+
+        /**
+         * The document being rendered.
+         */
+        private FormattedText text;
+
+        /**
+         * Index of the first block of each segment (and one beyond the last).
+         */
+        private int[] segments;
+
+        /**
+         * Heights of the segments.
+         */
+        private BlockHeights heights;
+
+        /**
+         * The top-level elements rendered for each segment ({@code null} if not
+         * rendered).
+         */
+        private Element[][] elements;
+
+        /**
+         * The range of segments that are rendered.
+         */
+        private int from, to;
+
+        /**
+         * The spacers standing in for the segments not rendered.
+         */
+        private Element spacerBefore, spacerAfter;
+
+        /**
+         * Registration of the scroll listener.
+         */
+        private IEventRegistration scrolling;
+
+        /**
+         * If an update has been scheduled.
+         */
+        private boolean pending;
+
+        /**
+         * If the spacers have been seen to be attached to the document.
+         */
+        private boolean attached;
+
+        Viewport(FormattedText text) {
+            this.text = text;
+            List<FormattedBlock> blocks = text.getBlocks();
+            int[] starts = new int[blocks.size() + 1];
+            int count = 0;
+            for (int i = 0; i < blocks.size(); i++) {
+                if ((i == 0) || (i - starts[count - 1] >= SEGMENT) && !(semanticLists && isList(blocks.get(i)) && isList(blocks.get(i - 1))))
+                    starts[count++] = i;
+            }
+            starts[count] = blocks.size();
+            segments = new int[count + 1];
+            System.arraycopy(starts, 0, segments, 0, count + 1);
+            elements = new Element[count][];
+            heights = new BlockHeights(count, SEGMENT * ESTIMATED_BLOCK_HEIGHT);
+        }
+
+        /**
+         * Builds the spacers into the root (the segments are rendered once the
+         * spacers have been attached).
+         */
+        void build() {
+            Div.$(root).attr("aria-hidden", "true").use(n -> spacerBefore = (Element) n);
+            Div.$(root).attr("aria-hidden", "true").use(n -> {
+                spacerAfter = (Element) n;
+                scrolling = EventLifecycle.registerDocumentScrollEvent(e -> schedule());
+                schedule();
+            });
+        }
+
+        /**
+         * Scrolls to the given block (see
+         * {@link DomBuilderFormattedTextRenderer#reveal(int)}).
+         */
+        boolean reveal(int blockIndex) {
+            if ((spacerAfter == null) || (blockIndex < 0) || (blockIndex >= text.getBlocks().size()))
+                return false;
+            int segment = segmentOf(blockIndex);
+            if ((segment < from) || (segment >= to))
+                update(segment);
+
+            // Locate the element for the block (where lists are semantic a
+            // list is rendered as a single element).
+            List<FormattedBlock> blocks = text.getBlocks();
+            int k = 0;
+            for (int i = segments[segment] + 1; i <= blockIndex; i++) {
+                if (!semanticLists || !isList(blocks.get(i)) || !isList(blocks.get(i - 1)) || (blocks.get(i).getType() != blocks.get(i - 1).getType()))
+                    k++;
+            }
+            Element[] rendered = elements[segment];
+            if ((rendered == null) || (rendered.length == 0))
+                return false;
+            rendered[Math.min(k, rendered.length - 1)].scrollIntoView();
+            return true;
+        }
+
+        /**
+         * Schedules an update (coalescing scroll events to one update per
+         * frame).
+         */
+        private void schedule() {
+            if (pending)
+                return;
+            pending = true;
+            DomGlobal.requestAnimationFrame(t -> {
+                pending = false;
+                update(-1);
+            });
+        }
+
+        /**
+         * Renders the segments near the viewport (and the given segment),
+         * discarding those that are no longer near, then measures those
+         * rendered and sizes the spacers.
+         *
+         * @param focus
+         *              the segment to render (centering the rendered range on
+         *              it where it lies outside of the viewport), or {@code -1}.
+         */
+        private void update(int focus) {
+            boolean connected = DomGlobal.document.body.contains(spacerBefore);
+            if (attached && !connected) {
+                // The content has been removed from the document.
+                scrolling.remove();
+                return;
+            }
+            attached = connected;
+
+            // Determine the range to render.
+            double top = 0;
+            double bottom = DomGlobal.window.innerHeight;
+            if (connected) {
+                double origin = spacerBefore.getBoundingClientRect().top;
+                top = -origin;
+                bottom = DomGlobal.window.innerHeight - origin;
+            }
+            if ((focus >= 0) && ((heights.offset(focus + 1) < top) || (heights.offset(focus) > bottom))) {
+                double extent = bottom - top;
+                top = heights.offset(focus);
+                bottom = top + extent;
+            }
+            int[] window = heights.window(top - overscan, bottom + overscan);
+            if (focus >= 0) {
+                window[0] = Math.min(window[0], focus);
+                window[1] = Math.max(window[1], focus + 1);
+            }
+
+            // Discard those no longer in range then render those newly in range
+            // (working backwards so each is inserted before the next).
+            for (int s = from; s < to; s++) {
+                if ((s < window[0]) || (s >= window[1])) {
+                    for (Element el : elements[s])
+                        el.remove();
+                    elements[s] = null;
+                }
+            }
+            Element ref = spacerAfter;
+            for (int s = window[1] - 1; s >= window[0]; s--) {
+                if (elements[s] == null)
+                    elements[s] = render(s, ref);
+                if (elements[s].length > 0)
+                    ref = elements[s][0];
+            }
+            from = window[0];
+            to = window[1];
+
+            // Measure (the top of each segment to the top of the next).
+            if (connected) {
+                for (int s = from; s < to; s++) {
+                    if (elements[s].length == 0)
+                        continue;
+                    Element next = spacerAfter;
+                    for (int t = s + 1; t < to; t++) {
+                        if (elements[t].length > 0) {
+                            next = elements[t][0];
+                            break;
+                        }
+                    }
+                    heights.measure(s, next.getBoundingClientRect().top - elements[s][0].getBoundingClientRect().top);
+                }
+            }
+            ((HTMLElement) spacerBefore).style.setProperty("height", heights.offset(from) + "px");
+            ((HTMLElement) spacerAfter).style.setProperty("height", (heights.total() - heights.offset(to)) + "px");
+        }
+
+        /**
+         * Renders the blocks of the given segment inserting them before the
+         * given element.
+         *
+         * @return the top-level elements rendered.
+         */
+        private Element[] render(int segment, Element before) {
+            Element tmp = DomGlobal.document.createElement("div");
+            Wrap.buildInto(tmp, r -> {
+                DomBuilderFormattedTextRenderer renderer = new DomBuilderFormattedTextRenderer(r);
+                renderer.topHeadingLevel = topHeadingLevel;
+                renderer.semanticTags = semanticTags;
+                renderer.semanticLists = semanticLists;
+                renderer.render(text.getBlocks(), segments[segment], segments[segment + 1]);
+            });
+            List<Element> rendered = new ArrayList<>();
+            while (tmp.firstElementChild != null) {
+                Element el = tmp.firstElementChild;
+                rendered.add(el);
+                before.parentNode.insertBefore(el, before);
+            }
+            return rendered.toArray(new Element[rendered.size()]);
+        }
+
+        /**
+         * The segment containing the given block.
+         */
+        private int segmentOf(int blockIndex) {
+            int lo = 0;
+            int hi = segments.length - 2;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (segments[mid] <= blockIndex)
+                    lo = mid;
+                else
+                    hi = mid - 1;
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * Determines if the block is a list item.
+     */
+    private static boolean isList(FormattedBlock block) {
+        return (block.getType() == BlockType.NLIST) || (block.getType() == BlockType.OLIST);
+    }
+
     /************************************************************************
      * Internal helpers
      ************************************************************************/
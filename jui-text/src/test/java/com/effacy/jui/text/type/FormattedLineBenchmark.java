@@ -0,0 +1,101 @@
+package com.effacy.jui.text.type;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.effacy.jui.text.type.FormattedLine.FormatType;
+
+/**
+ * Measures the cost of editing a long line (100KB with thousands of formats)
+ * directly against editing through a {@link LineStore}. Each benchmark applies
+ * a burst of edits (as from typing, deleting or formatting) then reads the
+ * resulting text (as a render would). The reading benchmark also reads the
+ * formatting between each edit (as the editor does at the caret).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormattedLineBenchmark {
+
+    @Param({ "102400" })
+    public int size;
+
+    @Param({ "5000" })
+    public int formats;
+
+    @Param({ "200" })
+    public int burst;
+
+    @Param({ "false", "true" })
+    public boolean store;
+
+    private FormattedLine line;
+
+    private int[] positions;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        FormattedLine.storeThreshold = store ? FormattedLine.STORE_THRESHOLD : Integer.MAX_VALUE;
+        Random rand = new Random (42);
+        line = LineStoreTest.line (rand, size, formats);
+        positions = new int[burst];
+        for (int i = 0; i < burst; i++)
+            positions[i] = rand.nextInt (size - 1000);
+    }
+
+    @Benchmark
+    public String typing() {
+        int pos = positions[0];
+        for (int i = 0; i < burst; i++)
+            line.insert (pos++, "x");
+        return line.getText ();
+    }
+
+    @Benchmark
+    public String editing() {
+        for (int i = 0; i < burst; i++) {
+            line.insert (positions[i], "word ");
+            line.remove (positions[burst - i - 1], 3);
+        }
+        return line.getText ();
+    }
+
+    @Benchmark
+    public String reading() {
+        int pos = positions[0];
+        for (int i = 0; i < burst; i++) {
+            line.insert (pos++, "x");
+            if (line.hasFormat (pos - 1, 1, FormatType.BLD))
+                line.getFormatting ().get (i % line.getFormatting ().size ()).getIndex ();
+        }
+        return line.getText ();
+    }
+
+    @Benchmark
+    public int formatting() {
+        int covered = 0;
+        for (int i = 0; i < burst; i++) {
+            line.addFormat (positions[i], 40, FormatType.ITL);
+            if (line.hasFormat (positions[i], 20, FormatType.ITL))
+                covered++;
+            line.removeFormat (positions[burst - i - 1], 10, FormatType.BLD);
+        }
+        return covered + line.getFormatting ().size ();
+    }
+}
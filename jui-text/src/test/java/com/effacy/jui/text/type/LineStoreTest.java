@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright 2025 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.text.type;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.text.type.FormattedLine.Format;
+import com.effacy.jui.text.type.FormattedLine.FormatType;
+import com.effacy.jui.text.type.FormattedLine.TextSegment;
+
+/**
+ * Tests {@link LineStore} by applying the same (random) operations to a line
+ * edited through the store and one edited directly, comparing the two after
+ * each.
+ */
+public class LineStoreTest {
+
+    private static final FormatType[] TYPES = { FormatType.BLD, FormatType.ITL, FormatType.UL, FormatType.CODE };
+
+    @AfterEach
+    public void reset() {
+        FormattedLine.storeThreshold = FormattedLine.STORE_THRESHOLD;
+    }
+
+    @Test
+    public void testInsertAndRemove() {
+        FormattedLine line = line (new Random (1), 2000, 100);
+        FormattedLine expected = line.clone ();
+
+        apply (line, expected, l -> l.insert (10, "abc"));
+        apply (line, expected, l -> l.insert (0, "xyz"));
+        apply (line, expected, l -> l.insert (l.length (), "end"));
+        apply (line, expected, l -> l.remove (5, 700));
+        apply (line, expected, l -> l.remove (-3, 10));
+        apply (line, expected, l -> l.remove (l.length () - 5, 20));
+        assertSame (expected, line);
+    }
+
+    @Test
+    public void testFormatting() {
+        FormattedLine line = line (new Random (2), 3000, 200);
+        FormattedLine expected = line.clone ();
+
+        apply (line, expected, l -> l.addFormat (100, 900, FormatType.ITL));
+        apply (line, expected, l -> l.removeFormat (50, 400, FormatType.BLD));
+        apply (line, expected, l -> l.addFormat (2990, 50, FormatType.CODE));
+        assertSame (expected, line);
+        for (int i = 0; i < 3000; i += 97) {
+            int start = i;
+            FormattedLine.storeThreshold = 0;
+            boolean actual = line.hasFormat (start, 20, FormatType.ITL);
+            FormattedLine.storeThreshold = Integer.MAX_VALUE;
+            Assertions.assertEquals (expected.hasFormat (start, 20, FormatType.ITL), actual);
+        }
+    }
+
+    /**
+     * Reads between edits are served by the store (and agree with the line
+     * edited directly).
+     */
+    @Test
+    public void testReadsBetweenEdits() {
+        FormattedLine line = line (new Random (3), 5000, 300);
+        FormattedLine expected = line.clone ();
+        for (int i = 0; i < 50; i++) {
+            int pos = 100 + i * 90;
+            apply (line, expected, l -> l.insert (pos, "x"));
+            Assertions.assertEquals (expected.getText (), line.getText ());
+            Assertions.assertEquals (expected.getFormatting ().size (), line.getFormatting ().size ());
+            int idx = (i * 7) % expected.getFormatting ().size ();
+            Assertions.assertEquals (expected.getFormatting ().get (idx).getIndex (), line.getFormatting ().get (idx).getIndex ());
+            Assertions.assertEquals (expected.getFormatting ().get (idx).getLength (), line.getFormatting ().get (idx).getLength ());
+            Assertions.assertEquals (segments (expected), segments (line));
+            Assertions.assertEquals (expected.toString (), line.toString ());
+        }
+        assertSame (expected, line);
+    }
+
+    /**
+     * Changing a format held by the store (other than through the line) is
+     * respected by subsequent edits.
+     */
+    @Test
+    public void testFormatChanged() {
+        FormattedLine line = line (new Random (4), 5000, 300);
+        FormattedLine expected = line.clone ();
+        apply (line, expected, l -> l.insert (200, "abc"));
+        apply (line, expected, l -> l.getFormatting ().get (10).setLength (1));
+        apply (line, expected, l -> l.insert (l.getFormatting ().get (10).getIndex () + 1, "def"));
+        assertSame (expected, line);
+        apply (line, expected, l -> l.getFormatting ().get (20).setFormats (List.of (FormatType.IMG)));
+        apply (line, expected, l -> l.getFormatting ().get (20).setLength (0));
+        apply (line, expected, l -> l.remove (l.getFormatting ().get (20).getIndex () - 2, 4));
+        assertSame (expected, line);
+    }
+
+    /**
+     * Random operations (including reads and direct changes to the formatting
+     * between them).
+     */
+    @Test
+    public void testRandom() {
+        for (int seed = 0; seed < 40; seed++) {
+            Random rand = new Random (seed);
+            FormattedLine line = line (rand, 500 + rand.nextInt (3000), rand.nextInt (300));
+            FormattedLine expected = line.clone ();
+            for (int i = 0; i < 400; i++) {
+                int length = expected.length ();
+                int start = rand.nextInt (length + 4) - 2;
+                int len = rand.nextInt (40) - 2;
+                FormatType type = TYPES[rand.nextInt (TYPES.length)];
+                switch (rand.nextInt (9)) {
+                    case 0:
+                    case 1:
+                        String str = "abcdefghijk".substring (0, 1 + rand.nextInt (10));
+                        apply (line, expected, l -> l.insert (start, str));
+                        break;
+                    case 2:
+                    case 3:
+                        apply (line, expected, l -> l.remove (start, len));
+                        break;
+                    case 4:
+                        apply (line, expected, l -> l.addFormat (start, len, type));
+                        break;
+                    case 5:
+                        apply (line, expected, l -> l.removeFormat (start, len, type));
+                        break;
+                    case 6:
+                        FormattedLine.storeThreshold = 0;
+                        boolean actual = line.hasFormat (start, len, type);
+                        FormattedLine.storeThreshold = Integer.MAX_VALUE;
+                        Assertions.assertEquals (expected.hasFormat (start, len, type), actual);
+                        break;
+                    case 7:
+                        if (rand.nextInt (4) == 0)
+                            apply (line, expected, l -> l.getFormatting ().add (new Format (l.length (), 0, FormatType.IMG)));
+                        else
+                            apply (line, expected, l -> l.variable ("var"));
+                        break;
+                    default:
+                        assertSame (expected, line);
+                        break;
+                }
+                Assertions.assertEquals (expected.length (), line.length ());
+            }
+            assertSame (expected, line);
+        }
+    }
+
+    /************************************************************************
+     * Helpers.
+     ************************************************************************/
+
+    /**
+     * Generates a line of the given length with the given number of
+     * (non-overlapping) formats.
+     */
+    static FormattedLine line(Random rand, int length, int formats) {
+        FormattedLine line = new FormattedLine ();
+        StringBuilder sb = new StringBuilder ();
+        while (sb.length () < length)
+            sb.append ((char) ('a' + rand.nextInt (26)));
+        line.setText (sb.toString ());
+        int gap = Math.max (1, length / Math.max (1, formats));
+        for (int idx = rand.nextInt (gap); (idx < length) && (line.getFormatting ().size () < formats); idx += 1 + rand.nextInt (gap)) {
+            int len = Math.min (length - idx, 1 + rand.nextInt (gap));
+            Format format = new Format (idx, len, TYPES[rand.nextInt (TYPES.length)]);
+            if (rand.nextInt (10) == 0)
+                format.getMeta ().put (FormattedLine.META_VARIABLE, "v");
+            line.getFormatting ().add (format);
+            idx += len;
+        }
+        return line;
+    }
+
+    /**
+     * Applies the operation to the first line through the store and to the
+     * second directly.
+     */
+    private void apply(FormattedLine line, FormattedLine expected, Consumer<FormattedLine> op) {
+        FormattedLine.storeThreshold = 0;
+        op.accept (line);
+        FormattedLine.storeThreshold = Integer.MAX_VALUE;
+        op.accept (expected);
+    }
+
+    private String segments(FormattedLine line) {
+        StringBuilder sb = new StringBuilder ();
+        for (TextSegment segment : line.sequence ())
+            sb.append ('[').append (segment.text ()).append (' ').append (Arrays.toString (segment.formatting ())).append (']');
+        return sb.toString ();
+    }
+
+    private void assertSame(FormattedLine expected, FormattedLine actual) {
+        Assertions.assertEquals (describe (expected), describe (actual));
+    }
+
+    private String describe(FormattedLine line) {
+        StringBuilder sb = new StringBuilder (line.getText ());
+        for (Format format : line.getFormatting ())
+            sb.append ("\n").append (format.getIndex ()).append (',').append (format.getLength ()).append (' ').append (format.getFormats ()).append (format.hasMeta (FormattedLine.META_VARIABLE) ? " var" : "");
+        return sb.toString ();
+    }
+}
@@ -0,0 +1,66 @@
+package com.effacy.jui.text.type.builder.markdown;
+
+import java.util.List;
+
+/**
+ * A corpus of markdown documents covering the syntax supported by
+ * {@link MarkdownParser} (blocks, nested lists, tables, code, inline
+ * formatting, links and variables). Used as input by benchmarks and by tests
+ * that need representative content (rather than a specific case).
+ */
+public final class MarkdownCorpus {
+
+    /**
+     * The documents in the corpus.
+     */
+    public static final List<String> DOCUMENTS = List.of(
+        // Headings and paragraphs.
+        "# Heading 1\n## Heading 2\n### Heading 3\n\nA paragraph following the headings.",
+        "First paragraph with **bold** and *italic* text.\n\nSecond paragraph\nwith a line break.\n\nThird.",
+        "Text before a heading\n# Heading\nText after a heading",
+        "  Leading whitespace is trimmed  \n\n\n\nMultiple blank lines collapse.",
+
+        // Inline formatting.
+        "**bold** __bold__ *italic* _italic_ ***bold italic*** ~~strike~~ `code`",
+        "Nested **bold with *italic* inside** and `code with **stars**`.",
+        "some_variable_name and snake_case_identifiers stay plain but _this_ is italic.",
+        "Unclosed **bold and *italic markers remain literal.",
+        "Escaped \\*stars\\* and \\_underscores\\_ and a trailing backslash \\",
+        "Mixed ~~struck **bold**~~ and `inline` then [a link](https://example.com/path?q=1).",
+
+        // Links and variables.
+        "See [the docs](https://example.com/docs) or [**bold label**](http://x.com) for more.",
+        "[Relative](/relative/path) and [anchor](#section) and [empty]() links.",
+        "Hello {{name}}, your order {{order;format=short}} ships {{date;format=long;tz=UTC}}.",
+        "Invalid {{ spaced }} and {{}} and {{bad;}} variables are literal; [{{label}}](http://v.com) too.",
+
+        // Lists.
+        "- one\n- two\n- three",
+        "* star\n+ plus\n- dash",
+        "1. First\n2. Second\n3. Third\n\n4. Fourth after a blank line",
+        "1.  **First item:**\n    *   Sub-item A\n    *   Sub-item B\n\n1.  **Second item:**\n    *   Sub-item C",
+        "- level 0\n    - level 1\n        - level 2\n\t\t\t- level 3\n- back to 0",
+        "Intro text:\n- item one\n- item two\nand continuation\n\n- next\n\nDone.",
+        "1. Item with `code` and [link](http://x.com)\n2. Item with **bold** and *italic*\n    1. Nested ordered\n    2. Another",
+
+        // Tables.
+        "| Name | Age |\n|------|-----|\n| Alice | 30 |\n| Bob | 25 |",
+        "| Left | Center | Right |\n|:-----|:------:|------:|\n| a | b | c |\n| **bold** | `code` | [link](http://x.com) |",
+        "Text before\n\n| A | B |\n|---|---|\n| 1 | 2 |\n\nText after.",
+        "| Only header |\n|---|",
+
+        // Code.
+        "Before\n```java\nint a = 1;\n\nint b = 2;\n```\nAfter",
+        "```yaml\nkey: value\nlist:\n  - a\n  - b\n```",
+        "```\nplain **not bold** code\n```\n\n```\n\n```",
+
+        // Transitions and mixed content.
+        "# Release notes\n\nThis release includes:\n\n- **Performance** improvements to parsing\n- Fixes for *nested* lists\n    - including `tabs`\n\n| Area | Change |\n|------|--------|\n| Parser | Faster |\n\n```sh\nmvn test\n```\n\nSee [changelog](https://example.com/changes).",
+        "## Summary\nThe quick brown fox jumps over the lazy dog. The quick brown fox jumps over the lazy dog. The quick brown fox jumps over the lazy dog.\n\n### Details\n1. Step one\n2. Step two\n\nDone, {{user}}.",
+        "Line one\nLine two\nLine three\n\n- list after lines\n\nParagraph with café naïve über 中文 and emoji 😀."
+    );
+
+    private MarkdownCorpus() {
+        // Nothing.
+    }
+}
@@ -0,0 +1,214 @@
+package com.effacy.jui.text.type.builder.markdown;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.text.type.FormattedBlock.BlockType;
+import com.effacy.jui.text.type.FormattedLine.FormatType;
+import com.effacy.jui.text.type.builder.IEventBuilder;
+
+/**
+ * Tests for {@link MarkdownParser.Incremental}. Content is fed in small chunks
+ * and, after each, the events emitted for closed blocks followed by those for
+ * the open block are compared against a (partial) parse of everything fed so
+ * far.
+ */
+public class MarkdownIncrementalParserTest {
+
+    @Test
+    public void testParagraphs() {
+        assertIncremental("First paragraph with **bold**.\n\nSecond *italic* paragraph\nover two lines.\n\nThird.", 5);
+    }
+
+    @Test
+    public void testHeadings() {
+        assertIncremental("# Title\n## Subtitle\n\nSome text.\n### Another\n\nMore.", 3);
+    }
+
+    @Test
+    public void testListsMergeAcrossBlankLines() {
+        assertIncremental("1. One\n2. Two\n\n3. Three\n\n- A\n- B\n\nAfter the list.\n\n- C", 5);
+    }
+
+    @Test
+    public void testListTransition() {
+        assertIncremental("Intro text:\n- item one\n- item two\nand continuation\n\n- next\n\nDone.", 4);
+    }
+
+    @Test
+    public void testCodeBlocks() {
+        assertIncremental("Before\n```java\nint a = 1;\n\nint b = 2;\n```\nAfter\n\n```\n\n```\n```yaml\nx: 1\n", 5);
+    }
+
+    @Test
+    public void testTables() {
+        assertIncremental("| A | B |\n|---|---|\n| 1 | 2 |\n| 3 | 4 |\n\nText after.", 5);
+    }
+
+    @Test
+    public void testPartialFormatting() {
+        assertIncremental("Hello **bold and `code` and [link](http://x.com) {{var}}\n\nNext", 1);
+    }
+
+    @Test
+    public void testCarriageReturns() {
+        assertIncremental("Line one\r\n\r\n- a\r\n- b\r\n\r\nEnd\r\n", 2);
+    }
+
+    @Test
+    public void testLineProcessor() {
+        String markdown = "  keep  \n\nDROP\n\n- a\n\nDROP\n- b";
+        MarkdownParser parser = new MarkdownParser().lineProcessor(l -> l.contains("DROP") ? null : l.trim());
+        assertIncremental(parser, markdown, 3);
+    }
+
+    /**
+     * A 50KB document fed in 5-byte chunks. Only the closed blocks are
+     * re-parsed once so the held content remains small.
+     */
+    @Test
+    public void testLargeDocument() {
+        String markdown = MarkdownStreamBenchmark.document(50 * 1024, 7);
+        assertTrue(markdown.length() >= 50 * 1024);
+
+        Recorder committed = new Recorder();
+        Recorder[] open = new Recorder[1];
+        MarkdownParser.Incremental<List<String>> incremental = new MarkdownParser().incremental(committed, () -> open[0] = new Recorder(), () -> open[0] = null);
+        int maxPending = 0;
+        for (int i = 0, n = 0; i < markdown.length(); i += 5, n++) {
+            String prefix = markdown.substring(0, Math.min(markdown.length(), i + 5));
+            incremental.feed(prefix.substring(i));
+            maxPending = Math.max(maxPending, incremental.pending());
+            if ((n % 211) == 0)
+                assertStep(new MarkdownParser(), prefix, committed, open[0]);
+        }
+        assertTrue(maxPending < 2048, "pending " + maxPending);
+        assertEquals(full(new MarkdownParser(), markdown, false), incremental.finish());
+    }
+
+    @Test
+    public void testRandomDocuments() {
+        String[] lines = { "", "", "text **bold", "more* text", "- item", "1. item", "# head", "```", "```js", "| a | b |", "|---|---|", "  ", "*", "-", "* x" };
+        Random rand = new Random(3);
+        for (int d = 0; d < 200; d++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0, n = rand.nextInt(20); i < n; i++)
+                sb.append(lines[rand.nextInt(lines.length)]).append('\n');
+            if (rand.nextBoolean())
+                sb.append(lines[rand.nextInt(lines.length)]);
+            assertIncremental(sb.toString(), 1 + rand.nextInt(6));
+        }
+    }
+
+    @Test
+    public void testFinish() {
+        Recorder committed = new Recorder();
+        MarkdownParser.Incremental<List<String>> incremental = new MarkdownParser().incremental(committed, null, null);
+        incremental.feed("Hello **wor");
+        assertEquals(List.of(), committed.events);
+        assertEquals(full(new MarkdownParser(), "Hello **wor", false), incremental.finish());
+        assertThrows(IllegalStateException.class, () -> incremental.feed("ld"));
+    }
+
+    /************************************************************************
+     * Helpers.
+     ************************************************************************/
+
+    private void assertIncremental(String markdown, int chunk) {
+        assertIncremental(new MarkdownParser(), markdown, chunk);
+    }
+
+    private void assertIncremental(MarkdownParser parser, String markdown, int chunk) {
+        Recorder committed = new Recorder();
+        Recorder[] open = new Recorder[1];
+        MarkdownParser.Incremental<List<String>> incremental = parser.incremental(committed, () -> open[0] = new Recorder(), () -> open[0] = null);
+        for (int i = 0; i < markdown.length(); i += chunk) {
+            String prefix = markdown.substring(0, Math.min(markdown.length(), i + chunk));
+            incremental.feed(prefix.substring(i));
+            assertStep(parser, prefix, committed, open[0]);
+        }
+        assertEquals(full(parser, markdown, false), incremental.finish(), "Final mismatch for:\n" + markdown);
+    }
+
+    private void assertStep(MarkdownParser parser, String prefix, Recorder committed, Recorder open) {
+        List<String> actual = new ArrayList<>(committed.events);
+        if (open != null)
+            actual.addAll(open.events);
+        assertEquals(full(parser, prefix, true), actual, "Mismatch for prefix:\n" + prefix);
+    }
+
+    private List<String> full(MarkdownParser parser, String markdown, boolean partial) {
+        return parser.partial(partial).parse(new Recorder(), markdown);
+    }
+
+    /**
+     * Handler that records all events as strings.
+     */
+    static class Recorder implements IEventBuilder<List<String>> {
+
+        List<String> events = new ArrayList<>();
+
+        @Override
+        public void startBlock(BlockType type) {
+            events.add("startBlock(" + type + ")");
+        }
+
+        @Override
+        public void endBlock(BlockType type) {
+            events.add("endBlock(" + type + ")");
+        }
+
+        @Override
+        public void meta(String name, String value) {
+            events.add("meta(" + name + ", " + value + ")");
+        }
+
+        @Override
+        public void startLine() {
+            events.add("startLine()");
+        }
+
+        @Override
+        public void endLine() {
+            events.add("endLine()");
+        }
+
+        @Override
+        public void text(String text) {
+            events.add("text(" + text + ")");
+        }
+
+        @Override
+        public void formatted(String text, FormatType... formats) {
+            events.add("formatted(" + text + ", " + java.util.Arrays.toString(formats) + ")");
+        }
+
+        @Override
+        public void link(String label, String url) {
+            events.add("link(" + label + ", " + url + ")");
+        }
+
+        @Override
+        public void image(String alt, String src, int width, int height) {
+            events.add("image(" + alt + ", " + src + ", " + width + ", " + height + ")");
+        }
+
+        @Override
+        public void variable(String name, Map<String, String> meta) {
+            events.add("variable(" + name + ", " + meta + ")");
+        }
+
+        @Override
+        public List<String> result() {
+            return events;
+        }
+    }
+}
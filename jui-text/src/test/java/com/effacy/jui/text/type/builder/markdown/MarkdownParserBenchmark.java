@@ -0,0 +1,60 @@
+package com.effacy.jui.text.type.builder.markdown;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.builder.FormattedTextBuilder;
+
+/**
+ * Measures the cost of parsing a large markdown document built from
+ * {@link MarkdownCorpus}.
+ * <p>
+ * The corpus is joined (with blank lines) and repeated to the given size.
+ * Parsing is measured both to a handler that only counts events (i.e. the
+ * cost of the parser itself) and to a {@link FormattedTextBuilder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownParserBenchmark {
+
+    @Param({ "1048576" })
+    public int size;
+
+    private String markdown;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < size) {
+            for (String content : MarkdownCorpus.DOCUMENTS)
+                sb.append(content).append("\n\n");
+        }
+        markdown = sb.toString();
+    }
+
+    @Benchmark
+    public long events() {
+        return new MarkdownParser().parse(new MarkdownStreamBenchmark.Counter(), markdown);
+    }
+
+    @Benchmark
+    public FormattedText formattedText() {
+        return new MarkdownParser().parse(new FormattedTextBuilder(), markdown);
+    }
+}
@@ -0,0 +1,176 @@
+package com.effacy.jui.text.type.builder.markdown;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.effacy.jui.text.type.FormattedBlock.BlockType;
+import com.effacy.jui.text.type.FormattedLine.FormatType;
+import com.effacy.jui.text.type.builder.IEventBuilder;
+
+/**
+ * Measures the cost of rendering a markdown document as it streams in (in
+ * 5-byte chunks, as from a token stream) by re-parsing the accumulated content
+ * on each chunk (as {@code ChatPanel} did) against feeding an
+ * {@link MarkdownParser.Incremental}. Events are counted by a handler that
+ * does no other work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownStreamBenchmark {
+
+    @Param({ "51200" })
+    public int size;
+
+    @Param({ "5" })
+    public int chunk;
+
+    private String[] chunks;
+
+    @Setup
+    public void setup() {
+        String markdown = document(size, 42);
+        chunks = new String[(markdown.length() + chunk - 1) / chunk];
+        for (int i = 0; i < chunks.length; i++)
+            chunks[i] = markdown.substring(i * chunk, Math.min(markdown.length(), (i + 1) * chunk));
+    }
+
+    @Benchmark
+    public long reparse() {
+        Counter counter = new Counter();
+        StringBuilder buffer = new StringBuilder();
+        MarkdownParser parser = new MarkdownParser().partial(true);
+        for (String c : chunks) {
+            buffer.append(c);
+            parser.parse(counter, buffer.toString());
+        }
+        return new MarkdownParser().parse(counter, buffer.toString());
+    }
+
+    @Benchmark
+    public long incremental() {
+        Counter counter = new Counter();
+        MarkdownParser.Incremental<Long> incremental = new MarkdownParser().incremental(counter, () -> counter, null);
+        for (String c : chunks)
+            incremental.feed(c);
+        return incremental.finish();
+    }
+
+    /**
+     * Generates a document of (at least) the given size comprising a mix of
+     * headings, paragraphs (with inline formatting), lists, tables and code
+     * blocks.
+     */
+    static String document(int size, long seed) {
+        Random rand = new Random(seed);
+        String[] words = { "stream", "token", "**bold**", "*italic*", "`code`", "[link](http://x.com)", "markdown", "the", "parser", "block", "{{name}}", "chunk" };
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < size) {
+            switch (rand.nextInt(6)) {
+                case 0:
+                    sb.append("## Section ").append(sb.length()).append("\n\n");
+                    break;
+                case 1:
+                    for (int i = 0, n = 1 + rand.nextInt(3); i < n; i++)
+                        sb.append((rand.nextBoolean() ? "- " : (i + 1) + ". ")).append(words[rand.nextInt(words.length)]).append(' ').append(words[rand.nextInt(words.length)]).append('\n');
+                    sb.append('\n');
+                    break;
+                case 2:
+                    sb.append("| A | B |\n|---|---|\n");
+                    for (int i = 0, n = 1 + rand.nextInt(4); i < n; i++)
+                        sb.append("| ").append(words[rand.nextInt(words.length)]).append(" | ").append(i).append(" |\n");
+                    sb.append('\n');
+                    break;
+                case 3:
+                    sb.append("```java\n");
+                    for (int i = 0, n = 1 + rand.nextInt(6); i < n; i++)
+                        sb.append("int v").append(i).append(" = ").append(rand.nextInt(100)).append(";\n");
+                    sb.append("```\n\n");
+                    break;
+                default:
+                    for (int l = 0, lines = 1 + rand.nextInt(3); l < lines; l++) {
+                        for (int i = 0, n = 8 + rand.nextInt(16); i < n; i++)
+                            sb.append(words[rand.nextInt(words.length)]).append(' ');
+                        sb.append('\n');
+                    }
+                    sb.append('\n');
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Counts events.
+     */
+    static class Counter implements IEventBuilder<Long> {
+
+        long count;
+
+        @Override
+        public void startBlock(BlockType type) {
+            count++;
+        }
+
+        @Override
+        public void endBlock(BlockType type) {
+            count++;
+        }
+
+        @Override
+        public void meta(String name, String value) {
+            count++;
+        }
+
+        @Override
+        public void startLine() {
+            count++;
+        }
+
+        @Override
+        public void endLine() {
+            count++;
+        }
+
+        @Override
+        public void text(String text) {
+            count++;
+        }
+
+        @Override
+        public void formatted(String text, FormatType... formats) {
+            count++;
+        }
+
+        @Override
+        public void link(String label, String url) {
+            count++;
+        }
+
+        @Override
+        public void variable(String name, Map<String, String> meta) {
+            count++;
+        }
+
+        @Override
+        public Long result() {
+            return count;
+        }
+    }
+}
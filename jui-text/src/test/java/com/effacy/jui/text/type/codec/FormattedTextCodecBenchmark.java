@@ -0,0 +1,85 @@
+package com.effacy.jui.text.type.codec;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.effacy.jui.text.type.FormattedBlock;
+import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.builder.markdown.MarkdownCorpus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares encoding and decoding a document with {@link FormattedTextCodec}
+ * against JSON (as serialised by Jackson). The document is built from
+ * {@link MarkdownCorpus} repeated to the given size; the encoded sizes are
+ * reported on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormattedTextCodecBenchmark {
+
+    @Param({ "1048576" })
+    public int size;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    private FormattedText doc;
+
+    private byte[] json;
+
+    private byte[] binary;
+
+    @Setup
+    public void setup() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < size) {
+            for (String content : MarkdownCorpus.DOCUMENTS)
+                sb.append(content).append("\n\n");
+        }
+        doc = FormattedText.markdown(sb.toString());
+        json = mapper.writeValueAsBytes(doc);
+        binary = FormattedTextCodec.DEFAULT.encode(doc);
+        System.out.println("Blocks: " + doc.getBlocks().size() + ", JSON: " + json.length + " bytes, binary: " + binary.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws Exception {
+        return mapper.writeValueAsBytes(doc);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return FormattedTextCodec.DEFAULT.encode(doc);
+    }
+
+    @Benchmark
+    public FormattedText decodeJson() throws Exception {
+        return mapper.readValue(json, FormattedText.class);
+    }
+
+    @Benchmark
+    public FormattedText decodeBinary() {
+        return FormattedTextCodec.DEFAULT.decode(binary);
+    }
+
+    @Benchmark
+    public FormattedBlock decodeBinaryBlock() {
+        EncodedText encoded = FormattedTextCodec.DEFAULT.open(binary);
+        return encoded.block(encoded.size() / 2);
+    }
+}
@@ -0,0 +1,171 @@
+package com.effacy.jui.text.type.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.text.type.FormattedBlock;
+import com.effacy.jui.text.type.FormattedBlock.BlockType;
+import com.effacy.jui.text.type.FormattedLine;
+import com.effacy.jui.text.type.FormattedLine.FormatType;
+import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.builder.markdown.MarkdownCorpus;
+
+public class FormattedTextCodecTest {
+
+    @Test
+    public void testRoundTrip_corpus() {
+        for (String markdown : MarkdownCorpus.DOCUMENTS) {
+            FormattedText doc = FormattedText.markdown(markdown);
+            byte[] data = FormattedTextCodec.DEFAULT.encode(doc);
+            Assertions.assertEquals(describe(doc), describe(FormattedTextCodec.DEFAULT.decode(data)), markdown);
+
+            // Block by block.
+            EncodedText encoded = FormattedTextCodec.DEFAULT.open(data);
+            Assertions.assertEquals(doc.getBlocks().size(), encoded.size());
+            for (int i = 0; i < encoded.size(); i++)
+                Assertions.assertEquals(describe(doc.getBlocks().get(i)), describe(encoded.block(i)), markdown);
+        }
+    }
+
+    @Test
+    public void testRoundTrip_structure() {
+        FormattedText doc = new FormattedText();
+        doc.block(BlockType.H1, b -> b.line(l -> l.append("Title ").append("bold", FormatType.BLD, FormatType.ITL)));
+        doc.block(BlockType.PARA, b -> {
+            b.setIndent(2);
+            b.getMeta().put("align", "center");
+            b.line(l -> l.append("Café ").append("naïve 😀", FormatType.CODE));
+            b.line("Second line");
+        });
+        FormattedBlock table = new FormattedBlock(BlockType.TABLE);
+        FormattedBlock row = new FormattedBlock(BlockType.TROW);
+        row.getBlocks().add(new FormattedBlock(BlockType.TCELL).line("A"));
+        row.getBlocks().add(new FormattedBlock(BlockType.TCELL).line("B"));
+        table.getBlocks().add(row);
+        doc.getBlocks().add(table);
+        FormattedBlock eqn = new FormattedBlock(BlockType.EQN);
+        eqn.setContent("x^2 + y^2");
+        doc.getBlocks().add(eqn);
+        FormattedLine link = new FormattedLine().append("link", FormatType.A);
+        link.getFormatting().get(0).getMeta().put(FormattedLine.META_LINK, "https://example.com");
+        doc.block(BlockType.PARA, b -> b.getLines().add(link));
+        doc.ensureBlockIds();
+
+        byte[] data = FormattedTextCodec.DEFAULT.encode(doc);
+        FormattedText decoded = FormattedTextCodec.DEFAULT.decode(data);
+        Assertions.assertEquals(describe(doc), describe(decoded));
+        Assertions.assertEquals(doc.computeHash(), decoded.computeHash());
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        FormattedText doc = FormattedText.markdown("# Title", "Some **bold** text", "- One\n- Two");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FormattedTextCodec.DEFAULT.encode(doc, out);
+        Assertions.assertArrayEquals(FormattedTextCodec.DEFAULT.encode(doc), out.toByteArray());
+
+        List<FormattedBlock> blocks = new ArrayList<>();
+        int count = FormattedTextCodec.DEFAULT.decode(new ByteArrayInputStream(out.toByteArray()), blocks::add);
+        Assertions.assertEquals(doc.getBlocks().size(), count);
+        FormattedText decoded = new FormattedText();
+        decoded.getBlocks().addAll(blocks);
+        Assertions.assertEquals(describe(doc), describe(decoded));
+    }
+
+    @Test
+    public void testLazy() {
+        FormattedText doc = FormattedText.markdown("First", "Second", "Third");
+        byte[] data = FormattedTextCodec.DEFAULT.encode(doc);
+        EncodedText encoded = FormattedTextCodec.DEFAULT.open(data);
+        Assertions.assertEquals(3, encoded.size());
+        String id = doc.getBlocks().get(2).getId();
+        Assertions.assertEquals(id, encoded.blockId(2));
+        Assertions.assertEquals(2, encoded.indexOf(id));
+        Assertions.assertEquals(-1, encoded.indexOf("missing"));
+        Assertions.assertEquals("Third", encoded.block(2).getLines().get(0).getText());
+    }
+
+    @Test
+    public void testDictionary() {
+        FormattedText doc = new FormattedText();
+        for (int i = 0; i < 10; i++) {
+            doc.block(BlockType.PARA, b -> {
+                FormattedLine line = new FormattedLine().append("go", FormatType.A);
+                line.getFormatting().get(0).getMeta().put(FormattedLine.META_LINK, "https://example.com/a/long/link");
+                b.getLines().add(line);
+            });
+        }
+        Dictionary dictionary = new Dictionary(FormattedLine.META_LINK, "https://example.com/a/long/link", "PARA", "BLD", "ITL");
+        FormattedTextCodec codec = new FormattedTextCodec(dictionary);
+        byte[] plain = FormattedTextCodec.DEFAULT.encode(doc);
+        byte[] compact = codec.encode(doc);
+        Assertions.assertTrue(compact.length < plain.length - 30, compact.length + " vs " + plain.length);
+        Assertions.assertEquals(describe(doc), describe(codec.decode(compact)));
+
+        // Must be decoded with the same dictionary.
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FormattedTextCodec.DEFAULT.decode(compact));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FormattedTextCodec(new Dictionary("other")).decode(compact));
+
+        // Though the dictionary is not needed where not used to encode.
+        Assertions.assertEquals(describe(doc), describe(codec.decode(plain)));
+    }
+
+    @Test
+    public void testMalformed() {
+        byte[] data = FormattedTextCodec.DEFAULT.encode(FormattedText.markdown("Some **bold** text"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FormattedTextCodec.DEFAULT.decode(new byte[] { 1, 2, 3 }));
+        for (int n = 0; n < data.length; n++) {
+            byte[] truncated = new byte[n];
+            System.arraycopy(data, 0, truncated, 0, n);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> FormattedTextCodec.DEFAULT.decode(truncated), "length " + n);
+        }
+        byte[] future = data.clone();
+        future[2] = (byte) (FormattedTextCodec.VERSION + 1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FormattedTextCodec.DEFAULT.decode(future));
+    }
+
+    /************************************************************************
+     * Support.
+     ************************************************************************/
+
+    /**
+     * Describes a document (with metadata ordered so that descriptions may be
+     * compared).
+     */
+    static String describe(FormattedText doc) {
+        StringBuilder sb = new StringBuilder();
+        for (FormattedBlock block : doc.getBlocks())
+            sb.append(describe(block)).append('\n');
+        return sb.toString();
+    }
+
+    static String describe(FormattedBlock block) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(block.getType()).append('#').append(block.getId()).append('>').append(block.getIndent());
+        sb.append(meta(block.hasMeta() ? block.getMeta() : null));
+        if (block.getContent() != null)
+            sb.append("{").append(block.getContent()).append("}");
+        for (FormattedLine line : block.getLines()) {
+            sb.append(" [").append(line.getText());
+            for (FormattedLine.Format fmt : line.getFormatting()) {
+                sb.append(' ').append(fmt.getFormats()).append('@').append(fmt.getIndex()).append('+').append(fmt.getLength());
+                sb.append(meta(fmt.hasMeta() ? fmt.getMeta() : null));
+            }
+            sb.append(']');
+        }
+        for (FormattedBlock child : block.getBlocks())
+            sb.append(" (").append(describe(child)).append(')');
+        return sb.toString();
+    }
+
+    private static String meta(Map<String, String> meta) {
+        return (meta == null) ? "" : new TreeMap<>(meta).toString();
+    }
+}
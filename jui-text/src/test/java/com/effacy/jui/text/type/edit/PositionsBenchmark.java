@@ -0,0 +1,78 @@
+package com.effacy.jui.text.type.edit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.effacy.jui.text.type.FormattedBlock.BlockType;
+import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.step.InsertTextStep;
+import com.effacy.jui.text.type.edit.step.SplitBlockStep;
+
+/**
+ * Measures the cost of editing near the end of a large document (typing
+ * followed by a split, as from pressing enter) through {@link EditorState}
+ * (which maps the selection through {@link Positions} on each transaction).
+ * <p>
+ * With {@code indexed} false the position index is invalidated prior to each
+ * transaction, which approximates the cost of summing block sizes on each
+ * query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionsBenchmark {
+
+    @Param({ "5000" })
+    public int blocks;
+
+    @Param({ "200" })
+    public int edits;
+
+    @Param({ "false", "true" })
+    public boolean indexed;
+
+    private EditorState state;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        FormattedText doc = new FormattedText();
+        for (int i = 0; i < blocks; i++) {
+            int n = i;
+            doc.block(BlockType.PARA, b -> {
+                b.line("Paragraph " + n + " with some content to give it a typical length.");
+                if ((n % 3) == 0)
+                    b.line("And a second line.");
+            });
+        }
+        state = EditorState.create(doc, Selection.cursor(blocks - 10, 0));
+    }
+
+    @Benchmark
+    public int typing() {
+        for (int i = 0; i < edits; i++) {
+            if (!indexed)
+                Positions.invalidate(state.doc());
+            Selection sel = state.selection();
+            Transaction tr = Transaction.create().step(new InsertTextStep(sel.headBlock(), sel.headOffset(), "x"));
+            if ((i % 20) == 19)
+                tr.step(new SplitBlockStep(sel.headBlock(), sel.headOffset() + 1));
+            state.apply(tr);
+        }
+        return Positions.length(state.doc());
+    }
+}
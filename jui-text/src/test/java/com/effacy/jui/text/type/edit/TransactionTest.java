@@ -414,6 +414,248 @@ public class TransactionTest {
         Assertions.assertFalse(history.canRedo());
     }
 
+    @Test
+    public void testHistory_compactTextInverse() {
+        EditorState state = EditorState.create(doc("Hello"));
+
+        // Plain insertion inverts to a deletion.
+        Transaction inverse = state.apply(Transaction.create().step(new InsertTextStep(0, 5, " World")));
+        Assertions.assertTrue(inverse.steps().get(0) instanceof DeleteTextStep);
+        Assertions.assertEquals("Hello World", textAt(state.doc(), 0));
+
+        // Deletion inverts to an insertion.
+        Transaction redo = state.apply(inverse);
+        Assertions.assertEquals("Hello", textAt(state.doc(), 0));
+        Assertions.assertTrue(redo.steps().get(0) instanceof InsertTextStep);
+
+        // Insertion adjoining formatting captures the block.
+        state.doc().getBlocks().get(0).addFormat(0, 5, FormatType.BLD);
+        inverse = state.apply(Transaction.create().step(new InsertTextStep(0, 5, "!")));
+        Assertions.assertTrue(inverse.steps().get(0) instanceof ReplaceBlockStep);
+        state.apply(inverse);
+        Assertions.assertEquals("Hello", textAt(state.doc(), 0));
+        Assertions.assertEquals(5, state.doc().getBlocks().get(0).getLines().get(0).getFormatting().get(0).getLength());
+    }
+
+    @Test
+    public void testHistory_compactTextInverse_random() {
+        java.util.Random rand = new java.util.Random(11);
+        FormatType[] types = { FormatType.BLD, FormatType.ITL, FormatType.UL };
+        for (int t = 0; t < 2000; t++) {
+            // A block with some formatting (occasionally long and over several
+            // lines).
+            int length = ((t % 50) == 0) ? 5000 : (1 + rand.nextInt(30));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < length; i++)
+                sb.append((char) ('a' + rand.nextInt(26)));
+            FormattedBlock block = para(sb.toString());
+            if ((t % 7) == 0)
+                block.line("second");
+            for (int f = rand.nextInt(3); f > 0; f--) {
+                int start = rand.nextInt(length);
+                block.addFormat(start, 1 + rand.nextInt(length - start), types[rand.nextInt(types.length)]);
+            }
+            block.ensureId();
+            FormattedText doc = new FormattedText();
+            doc.getBlocks().add(block);
+            String before = describe(doc.getBlocks().get(0));
+
+            int offset = rand.nextInt(length + 1);
+            Step step = rand.nextBoolean()
+                ? new InsertTextStep(0, offset, "xyz".substring(rand.nextInt(3)))
+                : new DeleteTextStep(0, Math.min(offset, length - 1), 1 + rand.nextInt(Math.max(1, Math.min(4, length - offset))));
+            Transaction inverse = Transaction.create().step(step).apply(doc).inverse();
+            String after = describe(doc.getBlocks().get(0));
+            Transaction redo = inverse.apply(doc).inverse();
+            Assertions.assertEquals(before, describe(doc.getBlocks().get(0)), "undo " + t);
+            redo.apply(doc);
+            Assertions.assertEquals(after, describe(doc.getBlocks().get(0)), "redo " + t);
+        }
+    }
+
+    @Test
+    public void testHistory_nestedReplaceInverse() {
+        FormattedBlock table = new FormattedBlock(BlockType.TABLE);
+        for (int r = 0; r < 20; r++) {
+            FormattedBlock row = new FormattedBlock(BlockType.TROW);
+            for (int c = 0; c < 5; c++)
+                row.getBlocks().add(new FormattedBlock(BlockType.TCELL).line("Cell " + r + "," + c));
+            table.getBlocks().add(row);
+        }
+        table.ensureId();
+        FormattedText doc = doc("Before");
+        doc.getBlocks().add(table);
+        EditorState state = EditorState.create(doc);
+        String original = describe(state.doc().getBlocks().get(1));
+
+        // Edit a single cell (as the table handler does, on a clone).
+        FormattedBlock clone = state.doc().getBlocks().get(1).clone();
+        clone.getBlocks().get(7).getBlocks().get(3).getLines().get(0).setText("Changed");
+        Transaction inverse = state.apply(Transaction.create().step(new ReplaceBlockStep(1, clone)));
+        Assertions.assertTrue(inverse.steps().get(0).weight() < 200, "weight " + inverse.steps().get(0).weight());
+        Assertions.assertEquals("Changed", state.doc().getBlocks().get(1).getBlocks().get(7).getBlocks().get(3).getLines().get(0).getText());
+
+        // Undo restores the cell (only) and redo the change.
+        String changed = describe(state.doc().getBlocks().get(1));
+        Transaction redo = state.apply(inverse);
+        Assertions.assertEquals(original, describe(state.doc().getBlocks().get(1)));
+        Assertions.assertTrue(redo.steps().get(0).weight() < 200);
+        state.apply(redo);
+        Assertions.assertEquals(changed, describe(state.doc().getBlocks().get(1)));
+
+        // A structural change captures the table.
+        clone = state.doc().getBlocks().get(1).clone();
+        clone.getBlocks().remove(0);
+        inverse = state.apply(Transaction.create().step(new ReplaceBlockStep(1, clone)));
+        Assertions.assertTrue(inverse.steps().get(0).weight() > 2000);
+        state.apply(inverse);
+        Assertions.assertEquals(changed, describe(state.doc().getBlocks().get(1)));
+    }
+
+    @Test
+    public void testHistory_coalesceTyping() {
+        EditorState state = EditorState.create(doc("Hello"), Selection.cursor(0, 5));
+        History history = new History(100, History.DEFAULT_BUDGET, 1000);
+
+        // Type " World" one character at a time.
+        long time = 10000;
+        for (char ch : " World".toCharArray()) {
+            Transaction tr = Commands.insertText(state, String.valueOf(ch));
+            history.push(tr, state.apply(tr), time += 100);
+        }
+        Assertions.assertEquals("Hello World", textAt(state.doc(), 0));
+        Assertions.assertEquals(1, history.depth());
+
+        // Pausing starts a new entry.
+        Transaction tr = Commands.insertText(state, "!");
+        history.push(tr, state.apply(tr), time += 5000);
+        Assertions.assertEquals(2, history.depth());
+
+        // Backspacing is coalesced separately.
+        for (int i = 0; i < 3; i++) {
+            tr = Commands.deleteCharBefore(state);
+            history.push(tr, state.apply(tr), time += 100);
+        }
+        Assertions.assertEquals("Hello Wor", textAt(state.doc(), 0));
+        Assertions.assertEquals(3, history.depth());
+
+        history.undo(state);
+        Assertions.assertEquals("Hello World!", textAt(state.doc(), 0));
+        Assertions.assertEquals(Selection.cursor(0, 12), state.selection());
+        history.undo(state);
+        Assertions.assertEquals("Hello World", textAt(state.doc(), 0));
+        history.undo(state);
+        Assertions.assertEquals("Hello", textAt(state.doc(), 0));
+        Assertions.assertEquals(Selection.cursor(0, 5), state.selection());
+        Assertions.assertFalse(history.canUndo());
+
+        history.redo(state);
+        Assertions.assertEquals("Hello World", textAt(state.doc(), 0));
+        history.redo(state);
+        history.redo(state);
+        Assertions.assertEquals("Hello Wor", textAt(state.doc(), 0));
+    }
+
+    @Test
+    public void testHistory_coalesceBreaks() {
+        EditorState state = EditorState.create(doc("Hello"), Selection.cursor(0, 5));
+        History history = new History(100, History.DEFAULT_BUDGET, 1000);
+
+        Transaction tr = Commands.insertText(state, "a");
+        history.push(tr, state.apply(tr), 100);
+
+        // Not contiguous.
+        state.setSelection(Selection.cursor(0, 0));
+        tr = Commands.insertText(state, "b");
+        history.push(tr, state.apply(tr), 200);
+        Assertions.assertEquals(2, history.depth());
+
+        // Sealed.
+        history.seal();
+        tr = Commands.insertText(state, "c");
+        history.push(tr, state.apply(tr), 300);
+        Assertions.assertEquals(3, history.depth());
+
+        // Not coalesced with a structural change.
+        tr = Commands.splitBlock(state);
+        history.push(tr, state.apply(tr), 400);
+        tr = Commands.insertText(state, "d");
+        history.push(tr, state.apply(tr), 500);
+        Assertions.assertEquals(5, history.depth());
+
+        // Without the forward transaction nothing is coalesced.
+        history.push(state.apply(Commands.insertText(state, "e")));
+        history.push(state.apply(Commands.insertText(state, "f")));
+        Assertions.assertEquals(7, history.depth());
+
+        while (history.undo(state));
+        Assertions.assertEquals(1, state.doc().getBlocks().size());
+        Assertions.assertEquals("Hello", textAt(state.doc(), 0));
+    }
+
+    @Test
+    public void testHistory_coalesceFormatted() {
+        // Typing into formatted text captures the block on the first
+        // keystroke with subsequent keystrokes being redundant.
+        FormattedText doc = doc("Hello");
+        doc.getBlocks().get(0).addFormat(0, 5, FormatType.BLD);
+        EditorState state = EditorState.create(doc, Selection.cursor(0, 5));
+        History history = new History(100, History.DEFAULT_BUDGET, 1000);
+        for (int i = 0; i < 20; i++) {
+            Transaction tr = Commands.insertText(state, "x");
+            history.push(tr, state.apply(tr), 100 + i);
+        }
+        Assertions.assertEquals(1, history.depth());
+        history.undo(state);
+        Assertions.assertEquals("Hello", textAt(state.doc(), 0));
+        Assertions.assertEquals(5, state.doc().getBlocks().get(0).getLines().get(0).getFormatting().get(0).getLength());
+    }
+
+    @Test
+    public void testHistory_budget() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            sb.append("text ");
+        EditorState state = EditorState.create(doc("A"));
+        History history = new History(100, 50000, 0);
+
+        // Each change holds a ~10KB block so only a handful fit the budget.
+        for (int i = 0; i < 50; i++)
+            history.push(state.apply(Transaction.create().step(new InsertBlockStep(1, para(sb.toString())))));
+        for (int i = 0; i < 50; i++)
+            history.push(state.apply(Transaction.create().step(new DeleteBlockStep(1))));
+        Assertions.assertTrue(history.weight() <= 50000, "weight " + history.weight());
+        Assertions.assertTrue(history.depth() < 10, "depth " + history.depth());
+        Assertions.assertTrue(history.depth() > 0);
+
+        // Those retained undo correctly.
+        int depth = history.depth();
+        while (history.undo(state));
+        Assertions.assertEquals(1 + depth, state.doc().getBlocks().size());
+
+        // The most recent change is always retained.
+        history = new History(100, 10, 0);
+        history.push(state.apply(Transaction.create().step(new DeleteBlockStep(1))));
+        Assertions.assertEquals(1, history.depth());
+    }
+
+    /**
+     * Describes the content of a block (and its children) for comparison.
+     */
+    private static String describe(FormattedBlock block) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(block.getType()).append('/').append(block.getIndent()).append('/').append(block.getId()).append('{');
+        for (FormattedLine line : block.getLines()) {
+            sb.append('"').append(line.getText()).append('"');
+            for (FormattedLine.Format format : line.getFormatting())
+                sb.append('[').append(format.getIndex()).append(',').append(format.getLength()).append(',').append(format.getFormats()).append(']');
+            sb.append(';');
+        }
+        for (FormattedBlock child : block.getBlocks())
+            sb.append(describe(child));
+        return sb.append('}').toString();
+    }
+
     /************************************************************************
      * Selection (block-relative)
      ************************************************************************/
@@ -572,6 +814,223 @@ public class TransactionTest {
         Assertions.assertEquals(3, r.charInLine());
     }
 
+    @Test
+    public void testPositions_indexMaintainedBySteps() {
+        java.util.Random rand = new java.util.Random(5);
+        FormattedText doc = new FormattedText();
+        for (int i = 0; i < 200; i++)
+            doc.block(BlockType.PARA, b -> b.line("Block " + rand.nextInt(1000)));
+        assertIndex(doc);
+        for (int i = 0; i < 500; i++) {
+            int n = doc.getBlocks().size();
+            int bi = rand.nextInt(n);
+            int size = Positions.contentSize(doc.getBlocks().get(bi));
+            Step step;
+            switch (rand.nextInt(9)) {
+                case 0: step = new InsertTextStep(bi, rand.nextInt(size + 1), "text"); break;
+                case 1: step = new DeleteTextStep(bi, rand.nextInt(size + 1), rand.nextInt(3)); break;
+                case 2: step = new InsertBlockStep(rand.nextInt(n + 1), para("New " + i)); break;
+                case 3: step = (n > 1) ? new DeleteBlockStep(bi) : new InsertBlockStep(0, para("X")); break;
+                case 4: step = new SplitBlockStep(bi, rand.nextInt(size + 1)); break;
+                case 5: step = (bi < n - 1) ? new JoinBlocksStep(bi) : new SplitBlockStep(bi, 0); break;
+                case 6: step = new ReplaceBlockStep(bi, para("Replaced " + i)); break;
+                case 7: step = new MoveBlockStep(bi, rand.nextInt(n), 1); break;
+                default: step = new SetBlockTypeStep(bi, rand.nextBoolean() ? BlockType.EQN : BlockType.PARA); break;
+            }
+            step.apply(doc);
+            assertIndex(doc);
+        }
+    }
+
+    @Test
+    public void testPositions_indexInvalidated() {
+        FormattedText doc = doc("AB", "CD", "E");
+        Assertions.assertEquals(8, Positions.blockStart(doc, 2));
+
+        // Change to the content of a block not made by a step.
+        doc.getBlocks().get(0).getLines().get(0).insert(0, "XYZ");
+        Positions.invalidate(doc);
+        Assertions.assertEquals(11, Positions.blockStart(doc, 2));
+
+        // Changes to the block list are detected.
+        doc.getBlocks().add(0, para("Q"));
+        Assertions.assertEquals(14, Positions.blockStart(doc, 3));
+        doc.setBlocks(new java.util.ArrayList<>(List.of(para("A"))));
+        Assertions.assertEquals(3, Positions.length(doc));
+
+        // Resolving into a block that has changed (but was not reported).
+        doc.getBlocks().get(0).getLines().get(0).insert(1, "BC");
+        ResolvedPosition r = Positions.resolve(doc, 3);
+        Assertions.assertEquals(0, r.blockIndex());
+        Assertions.assertEquals(2, r.blockOffset());
+    }
+
+    @Test
+    public void testPositions_indexGuardedAgainstUnreportedChanges() {
+        FormattedText doc = doc("AB", "CD", "E");
+        Assertions.assertEquals(11, Positions.length(doc));
+
+        // The block before a block start.
+        doc.getBlocks().get(1).getLines().get(0).insert(0, "XY");
+        Assertions.assertEquals(10, Positions.blockStart(doc, 2));
+        Assertions.assertEquals(12, Positions.toFlat(doc, 2, 1));
+
+        // The block at a block start.
+        doc.getBlocks().get(1).getLines().get(0).insert(0, "Z");
+        Assertions.assertEquals(4, Positions.blockStart(doc, 1));
+        Assertions.assertEquals(11, Positions.blockStart(doc, 2));
+
+        // The last block (for the length).
+        doc.getBlocks().get(2).getLines().get(0).insert(0, "W");
+        Assertions.assertEquals(15, Positions.length(doc));
+        Assertions.assertEquals(15, Positions.blockStart(doc, 3));
+    }
+
+    @Test
+    public void testChanges_reportedBySteps() {
+        FormattedText doc = doc("A", "B", "C", "D", "E");
+        BlockChanges changes = Transaction.create()
+            .step(new InsertTextStep(1, 1, "x"))
+            .step(new SplitBlockStep(3, 1))
+            .step(new DeleteBlockStep(0))
+            .apply(doc).changes();
+        Assertions.assertFalse(changes.isAll());
+        Assertions.assertEquals(5, changes.previous());
+        Assertions.assertEquals(5, changes.size());
+        // B (changed), C, D (changed), new, E
+        Assertions.assertEquals(1, changes.origin(0));
+        Assertions.assertTrue(changes.isChanged(0));
+        Assertions.assertEquals(2, changes.origin(1));
+        Assertions.assertFalse(changes.isChanged(1));
+        Assertions.assertEquals(3, changes.origin(2));
+        Assertions.assertTrue(changes.isChanged(2));
+        Assertions.assertEquals(-1, changes.origin(3));
+        Assertions.assertTrue(changes.isChanged(3));
+        Assertions.assertEquals(4, changes.origin(4));
+        Assertions.assertFalse(changes.isChanged(4));
+
+        // Moves retain the origin of the moved blocks.
+        changes = Transaction.create().step(new MoveBlockStep(0, 3, 2)).apply(doc).changes();
+        Assertions.assertEquals(2, changes.origin(0));
+        Assertions.assertEquals(3, changes.origin(1));
+        Assertions.assertEquals(4, changes.origin(2));
+        Assertions.assertEquals(0, changes.origin(3));
+        Assertions.assertEquals(1, changes.origin(4));
+        for (int i = 0; i < 5; i++)
+            Assertions.assertFalse(changes.isChanged(i));
+
+        // Empty transaction.
+        Assertions.assertTrue(Transaction.create().apply(doc).changes().isEmpty());
+    }
+
+    @Test
+    public void testChanges_unknownStep() {
+        FormattedText doc = doc("A", "B");
+        BlockChanges changes = Transaction.create()
+            .step(new InsertTextStep(0, 0, "x"))
+            .step(d -> new StepResult(null, StepMap.EMPTY))
+            .apply(doc).changes();
+        Assertions.assertTrue(changes.isAll());
+        Assertions.assertTrue(changes.isChanged(1));
+        Assertions.assertEquals(-1, changes.origin(1));
+    }
+
+    @Test
+    public void testChanges_undoAndCombined() {
+        FormattedText doc = doc("A", "B", "C");
+        EditorState state = EditorState.create(doc, Selection.cursor(0, 0));
+        History history = new History();
+        history.push(state.apply(Transaction.create().step(new InsertBlockStep(1, para("X")))));
+        BlockChanges first = state.changes();
+        Assertions.assertEquals(4, first.size());
+
+        // Undo removes the inserted block.
+        history.push(state.apply(Transaction.create().step(new InsertTextStep(3, 0, "y"))));
+        BlockChanges second = state.changes();
+        Assertions.assertTrue(history.undo(state));
+        BlockChanges undo = state.changes();
+        Assertions.assertEquals(4, undo.size());
+        Assertions.assertTrue(undo.isChanged(3));
+        Assertions.assertFalse(undo.isChanged(1));
+
+        // Combined changes are relative to the original blocks.
+        BlockChanges combined = first.then(second);
+        Assertions.assertEquals(3, combined.previous());
+        Assertions.assertEquals(4, combined.size());
+        Assertions.assertEquals(0, combined.origin(0));
+        Assertions.assertEquals(-1, combined.origin(1));
+        Assertions.assertEquals(1, combined.origin(2));
+        Assertions.assertEquals(2, combined.origin(3));
+        Assertions.assertFalse(combined.isChanged(2));
+        Assertions.assertTrue(combined.isChanged(3));
+
+        // Mismatched changes cannot be combined.
+        Assertions.assertTrue(first.then(new BlockChanges(2)).isAll());
+    }
+
+    @Test
+    public void testChanges_random() {
+        java.util.Random rand = new java.util.Random(7);
+        FormattedText doc = new FormattedText();
+        for (int i = 0; i < 50; i++)
+            doc.block(BlockType.PARA, b -> b.line("Block " + rand.nextInt(1000)));
+        for (int t = 0; t < 300; t++) {
+            List<FormattedBlock> before = new java.util.ArrayList<>(doc.getBlocks());
+            List<String> content = new java.util.ArrayList<>();
+            for (FormattedBlock b : before)
+                content.add(b.getType() + ":" + b.getIndent() + ":" + b);
+
+            // Build a transaction of several steps (tracking the block count).
+            Transaction tr = Transaction.create();
+            int n = before.size();
+            for (int k = rand.nextInt(4); k >= 0; k--) {
+                int bi = rand.nextInt(n);
+                switch (rand.nextInt(10)) {
+                    case 0: tr.step(new InsertTextStep(bi, 0, "text")); break;
+                    case 1: tr.step(new DeleteTextStep(bi, 0, 1)); break;
+                    case 2: tr.step(new InsertBlockStep(rand.nextInt(n + 1), para("New " + t))); n++; break;
+                    case 3: if (n > 1) { tr.step(new DeleteBlockStep(bi)); n--; } break;
+                    case 4: tr.step(new SplitBlockStep(bi, 0)); n++; break;
+                    case 5: if (bi < n - 1) { tr.step(new JoinBlocksStep(bi)); n--; } break;
+                    case 6: tr.step(new ReplaceBlockStep(bi, para("Replaced " + t))); break;
+                    case 7: { int c = 1 + rand.nextInt(Math.min(3, n - bi)); tr.step(new MoveBlockStep(bi, rand.nextInt(n - c + 1), c)); break; }
+                    case 8: tr.step(new SetBlockIndentStep(bi, rand.nextInt(3))); break;
+                    default: tr.step(new SetBlockMetaStep(bi, "k", "v" + t)); break;
+                }
+            }
+            BlockChanges changes = tr.apply(doc).changes();
+            Assertions.assertFalse(changes.isAll());
+            Assertions.assertEquals(before.size(), changes.previous());
+            Assertions.assertEquals(doc.getBlocks().size(), changes.size());
+
+            // Unchanged blocks are the same (unmodified) blocks as before.
+            for (int i = 0; i < changes.size(); i++) {
+                if (changes.isChanged(i))
+                    continue;
+                int origin = changes.origin(i);
+                FormattedBlock b = doc.getBlocks().get(i);
+                Assertions.assertSame(before.get(origin), b);
+                Assertions.assertEquals(content.get(origin), b.getType() + ":" + b.getIndent() + ":" + b);
+            }
+        }
+    }
+
+    /**
+     * Asserts the positions from the index agree with those computed directly.
+     */
+    private static void assertIndex(FormattedText doc) {
+        int pos = 0;
+        List<FormattedBlock> blocks = doc.getBlocks();
+        for (int i = 0; i < blocks.size(); i++) {
+            Assertions.assertEquals(pos, Positions.blockStart(doc, i));
+            int ns = Positions.nodeSize(blocks.get(i));
+            Assertions.assertEquals(i, Positions.resolve(doc, pos).blockIndex());
+            Assertions.assertEquals(i, Positions.resolve(doc, pos + ns - 1).blockIndex());
+            pos += ns;
+        }
+        Assertions.assertEquals(pos, Positions.length(doc));
+    }
+
     /************************************************************************
      * StepMap
      ************************************************************************/
@@ -4025,4 +4484,203 @@ public class TransactionTest {
         Assertions.assertEquals(1, doc2.getBlocks().size());
         Assertions.assertEquals("Target", textAt(doc2, 0));
     }
+
+    /************************************************************************
+     * ContentIndex
+     ************************************************************************/
+
+    @Test
+    public void testContentIndex_hashTracksSteps() {
+        FormattedText doc = doc("Hello", "World", "Again");
+        int original = doc.trackedHash();
+        Assertions.assertEquals(original, doc.clone().computeHash());
+
+        Transaction.create().step(new InsertTextStep(1, 5, "!")).apply(doc);
+        Assertions.assertNotEquals(original, doc.trackedHash());
+        Assertions.assertEquals(doc.clone().computeHash(), doc.trackedHash());
+
+        // Steps that don't change the size of a block are also tracked.
+        int before = doc.trackedHash();
+        Transaction.create().step(new SetBlockIndentStep(0, 1)).apply(doc);
+        Assertions.assertNotEquals(before, doc.trackedHash());
+        before = doc.trackedHash();
+        Transaction.create().step(new SetBlockMetaStep(2, "k", "v")).apply(doc);
+        Assertions.assertNotEquals(before, doc.trackedHash());
+        Assertions.assertEquals(doc.clone().computeHash(), doc.trackedHash());
+
+        // A move changes the order (and so the hash).
+        before = doc.trackedHash();
+        Transaction.create().step(new MoveBlockStep(0, 2, 1)).apply(doc);
+        Assertions.assertNotEquals(before, doc.trackedHash());
+        Assertions.assertEquals(doc.clone().computeHash(), doc.trackedHash());
+
+        // Changes to the content of a block made directly must be reported.
+        doc.getBlocks().get(0).getLines().get(0).setText("Changed");
+        Positions.invalidate(doc);
+        Assertions.assertEquals(doc.clone().computeHash(), doc.trackedHash());
+    }
+
+    @Test
+    public void testContentIndex_computeHashExact() {
+        FormattedText doc = doc("Hello", "World");
+        int tracked = doc.trackedHash();
+        Assertions.assertEquals(doc.computeHash(), tracked);
+
+        // Direct changes (unreported) are reflected in the computed hash but not
+        // the tracked one.
+        doc.getBlocks().get(0).setIndent(3);
+        doc.getBlocks().get(1).setType(BlockType.H1);
+        Assertions.assertNotEquals(tracked, doc.computeHash());
+        Assertions.assertEquals(doc.clone().computeHash(), doc.computeHash());
+        Assertions.assertEquals(tracked, doc.trackedHash());
+
+        Positions.invalidate(doc);
+        Assertions.assertEquals(doc.computeHash(), doc.trackedHash());
+    }
+
+    @Test
+    public void testContentIndex_unchangedNotRehashed() {
+        FormattedText doc = doc("Hello", "World", "Again");
+        FormattedText expected = doc.clone();
+        doc.trackedHash();
+
+        // Unreported changes to the first and last blocks serve to detect a
+        // rehash of them: only the block changed by the step is hashed again so
+        // the tracked hash is that of the document without those changes.
+        doc.getBlocks().get(0).getLines().get(0).setText("Sentinel");
+        doc.getBlocks().get(2).getLines().get(0).setText("Sentinel");
+        Transaction.create().step(new InsertTextStep(1, 5, "!")).apply(doc);
+        Transaction.create().step(new InsertTextStep(1, 5, "!")).apply(expected);
+        Assertions.assertEquals(expected.computeHash(), doc.trackedHash());
+        Assertions.assertNotEquals(doc.computeHash(), doc.trackedHash());
+    }
+
+    @Test
+    public void testContentIndex_hashIncludesChildren() {
+        FormattedBlock table = new FormattedBlock(BlockType.TABLE);
+        FormattedBlock row = new FormattedBlock(BlockType.TROW);
+        row.getBlocks().add(new FormattedBlock(BlockType.TCELL).line("A"));
+        table.getBlocks().add(row);
+        FormattedText doc = new FormattedText();
+        doc.getBlocks().add(table);
+        int before = doc.trackedHash();
+
+        table = doc.getBlocks().get(0).clone();
+        table.getBlocks().get(0).getBlocks().get(0).getLines().get(0).setText("B");
+        Transaction.create().step(new ReplaceBlockStep(0, table)).apply(doc);
+        Assertions.assertNotEquals(before, doc.trackedHash());
+        Assertions.assertEquals(doc.computeHash(), doc.trackedHash());
+    }
+
+    @Test
+    public void testContentIndex_hashRandom() {
+        java.util.Random rand = new java.util.Random(7);
+        FormattedText doc = doc("Alpha", "Beta", "Gamma", "Delta");
+        for (int i = 0; i < 500; i++) {
+            int n = doc.getBlocks().size();
+            int bi = rand.nextInt(n);
+            int len = Positions.contentSize(doc.getBlocks().get(bi));
+            Step step;
+            switch (rand.nextInt(6)) {
+                case 0:
+                    step = new InsertTextStep(bi, rand.nextInt(len + 1), "x");
+                    break;
+                case 1:
+                    step = (len == 0) ? new InsertTextStep(bi, 0, "y") : new DeleteTextStep(bi, 0, 1);
+                    break;
+                case 2:
+                    step = new SplitBlockStep(bi, rand.nextInt(len + 1));
+                    break;
+                case 3:
+                    step = (n < 3) ? new InsertBlockStep(bi, para("New")) : new DeleteBlockStep(bi);
+                    break;
+                case 4:
+                    step = new MoveBlockStep(bi, rand.nextInt(n), 1);
+                    break;
+                default:
+                    step = new SetBlockIndentStep(bi, rand.nextInt(3));
+            }
+            Transaction.create().step(step).apply(doc);
+            Assertions.assertEquals(doc.computeHash(), doc.trackedHash(), "step " + i);
+        }
+    }
+
+    @Test
+    public void testContentIndex_changedBlockIds() {
+        FormattedText doc = doc("Hello", "World", "Again");
+        doc.ensureBlockIds();
+        String id0 = blockIdAt(doc, 0);
+        String id1 = blockIdAt(doc, 1);
+        String id2 = blockIdAt(doc, 2);
+
+        int rev = doc.revision();
+        Assertions.assertEquals(List.of(), doc.changedBlockIds(rev));
+
+        Transaction.create().step(new InsertTextStep(1, 5, "!")).apply(doc);
+        Assertions.assertEquals(List.of(id1), doc.changedBlockIds(rev));
+
+        // Splitting changes the block and inserts another (that is assigned an
+        // ID).
+        int rev2 = doc.revision();
+        Transaction.create().step(new SplitBlockStep(2, 2)).apply(doc);
+        List<String> changed = doc.changedBlockIds(rev2);
+        Assertions.assertEquals(2, changed.size());
+        Assertions.assertEquals(id2, changed.get(0));
+        Assertions.assertEquals(blockIdAt(doc, 3), changed.get(1));
+        Assertions.assertEquals(List.of(id1, id2, blockIdAt(doc, 3)), doc.changedBlockIds(rev));
+
+        // Removals.
+        int rev3 = doc.revision();
+        Transaction.create().step(new DeleteBlockStep(0)).apply(doc);
+        Assertions.assertEquals(List.of(), doc.changedBlockIds(rev3));
+        Assertions.assertEquals(List.of(id0), doc.removedBlockIds(rev3));
+        Assertions.assertEquals(List.of(), doc.removedBlockIds(doc.revision()));
+
+        // Blocks added directly are detected (though every block is then
+        // treated as changed).
+        int rev4 = doc.revision();
+        doc.block(BlockType.PARA, b -> b.line("Direct"));
+        Assertions.assertEquals(4, doc.changedBlockIds(rev4).size());
+    }
+
+    @Test
+    public void testContentIndex_blockIndexById() {
+        FormattedText doc = doc("A", "B", "C", "D");
+        doc.ensureBlockIds();
+        String idA = blockIdAt(doc, 0);
+        String idD = blockIdAt(doc, 3);
+        Assertions.assertEquals(3, doc.blockIndexById(idD));
+
+        Transaction.create().step(new MoveBlockStep(3, 0, 1)).apply(doc);
+        Assertions.assertEquals(0, doc.blockIndexById(idD));
+        Assertions.assertEquals(1, doc.blockIndexById(idA));
+
+        Transaction.create().step(new DeleteBlockStep(1)).apply(doc);
+        Assertions.assertEquals(-1, doc.blockIndexById(idA));
+        Assertions.assertNull(doc.blockById(idA));
+
+        FormattedBlock inserted = para("E");
+        inserted.setId("custom");
+        Transaction.create().step(new InsertBlockStep(1, inserted)).apply(doc);
+        Assertions.assertEquals(1, doc.blockIndexById("custom"));
+        Assertions.assertSame(inserted, doc.blockById("custom"));
+
+        // Identifiers assigned directly are found.
+        doc.getBlocks().get(2).setId("direct");
+        Assertions.assertEquals(2, doc.blockIndexById("direct"));
+
+        // Misses are remembered until the next change (so must be reported
+        // when assigned directly thereafter).
+        Assertions.assertEquals(-1, doc.blockIndexById("later"));
+        doc.getBlocks().get(0).setId("later");
+        Assertions.assertEquals(-1, doc.blockIndexById("later"));
+        Positions.invalidate(doc);
+        Assertions.assertEquals(0, doc.blockIndexById("later"));
+        Transaction.create().step(new MoveBlockStep(0, 2, 1)).apply(doc);
+        Assertions.assertEquals(-1, doc.blockIndexById("other"));
+        doc.getBlocks().get(0).setId("other");
+        Transaction.create().step(new InsertTextStep(1, 0, "x")).apply(doc);
+        Assertions.assertEquals(0, doc.blockIndexById("other"));
+        Assertions.assertEquals(2, doc.blockIndexById("later"));
+    }
 }
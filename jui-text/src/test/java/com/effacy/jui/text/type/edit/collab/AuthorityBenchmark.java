@@ -0,0 +1,40 @@
+package com.effacy.jui.text.type.edit.collab;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of an {@link Authority} with many editors making
+ * random changes to one document (see {@link AuthorityTest}, which checks that
+ * the editors converge). Each invocation runs a full simulation (including
+ * settling) and returns the number of steps committed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class AuthorityBenchmark {
+
+    @Param({ "50" })
+    public int editors;
+
+    @Param({ "8000" })
+    public int rounds;
+
+    @Benchmark
+    public int simulate() {
+        return AuthorityTest.simulate(99, editors, rounds, 500).version();
+    }
+}
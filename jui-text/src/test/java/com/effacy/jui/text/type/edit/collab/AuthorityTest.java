@@ -0,0 +1,464 @@
+package com.effacy.jui.text.type.edit.collab;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.text.type.FormattedBlock;
+import com.effacy.jui.text.type.FormattedBlock.BlockType;
+import com.effacy.jui.text.type.FormattedLine;
+import com.effacy.jui.text.type.FormattedLine.FormatType;
+import com.effacy.jui.text.type.FormattedText;
+import com.effacy.jui.text.type.edit.Positions;
+import com.effacy.jui.text.type.edit.Transaction;
+import com.effacy.jui.text.type.edit.step.ChangeFormatStep;
+import com.effacy.jui.text.type.edit.step.DeleteBlockStep;
+import com.effacy.jui.text.type.edit.step.DeleteTextStep;
+import com.effacy.jui.text.type.edit.step.InsertBlockStep;
+import com.effacy.jui.text.type.edit.step.InsertTextStep;
+import com.effacy.jui.text.type.edit.step.JoinBlocksStep;
+import com.effacy.jui.text.type.edit.step.MoveBlockStep;
+import com.effacy.jui.text.type.edit.step.ReplaceBlockStep;
+import com.effacy.jui.text.type.edit.step.SetBlockIndentStep;
+import com.effacy.jui.text.type.edit.step.SetBlockTypeStep;
+import com.effacy.jui.text.type.edit.step.SplitBlockStep;
+
+public class AuthorityTest {
+
+    /************************************************************************
+     * Helpers.
+     ************************************************************************/
+
+    private static FormattedText doc(String... texts) {
+        FormattedText doc = new FormattedText();
+        for (String text : texts)
+            doc.block(BlockType.PARA, b -> b.line(text));
+        doc.getBlocks().forEach(b -> b.ensureId());
+        return doc;
+    }
+
+    private static FormattedBlock para(String text) {
+        FormattedBlock b = new FormattedBlock(BlockType.PARA);
+        b.line(text);
+        return b;
+    }
+
+    private static String textAt(FormattedText doc, int blockIndex) {
+        return doc.getBlocks().get(blockIndex).getLines().get(0).getText();
+    }
+
+    private static Transaction tr(com.effacy.jui.text.type.edit.Step step) {
+        return Transaction.create().step(step);
+    }
+
+    /**
+     * Describes a document (including IDs and formatting) for comparison.
+     */
+    private static String describe(FormattedText doc) {
+        StringBuilder sb = new StringBuilder();
+        for (FormattedBlock block : doc.getBlocks())
+            describe(sb, block);
+        return sb.toString();
+    }
+
+    private static void describe(StringBuilder sb, FormattedBlock block) {
+        sb.append(block.getType()).append('/').append(block.getIndent()).append('/').append(block.getId()).append('{');
+        for (FormattedLine line : block.getLines()) {
+            sb.append('"').append(line.getText()).append('"');
+            for (FormattedLine.Format format : line.getFormatting())
+                sb.append('[').append(format.getIndex()).append(',').append(format.getLength()).append(',').append(format.getFormats()).append(']');
+            sb.append(';');
+        }
+        for (FormattedBlock child : block.getBlocks())
+            describe(sb, child);
+        sb.append("}\n");
+    }
+
+    /**
+     * An authority with two editors joined (with deltas delivered
+     * immediately).
+     */
+    private static CollabClient[] editors(Authority authority, LocalTransport transport, int count) {
+        CollabClient[] editors = new CollabClient[count];
+        for (int i = 0; i < count; i++) {
+            CollabClient editor = new CollabClient("c" + i, authority.join());
+            transport.add(editor::receive);
+            editors[i] = editor;
+        }
+        return editors;
+    }
+
+    /************************************************************************
+     * Rebasing.
+     ************************************************************************/
+
+    @Test
+    public void testConcurrentInsert() {
+        LocalTransport transport = new LocalTransport();
+        Authority authority = new Authority(doc("Hello World"), 0, transport, 100);
+        CollabClient[] c = editors(authority, transport, 2);
+
+        c[0].apply(tr(new InsertTextStep(0, 0, "X")));
+        c[1].apply(tr(new InsertTextStep(0, 5, "Y")));
+        Delta a = c[0].submit();
+        Delta b = c[1].submit();
+        authority.receive(a);
+        Delta accepted = authority.receive(b);
+
+        // The second is rebased over the first.
+        Assertions.assertEquals(1, accepted.version());
+        Assertions.assertEquals(1, accepted.steps().size());
+        InsertTextStep rebased = (InsertTextStep) accepted.steps().get(0);
+        Assertions.assertEquals(6, rebased.offset());
+        Assertions.assertEquals(2, authority.version());
+        Assertions.assertEquals("XHelloY World", textAt(authority.join().doc(), 0));
+        for (CollabClient editor : c) {
+            Assertions.assertEquals("XHelloY World", textAt(editor.doc(), 0));
+            Assertions.assertEquals(2, editor.version());
+            Assertions.assertEquals(0, editor.unconfirmed());
+        }
+    }
+
+    @Test
+    public void testConcurrentDeleteBlock() {
+        LocalTransport transport = new LocalTransport();
+        Authority authority = new Authority(doc("A", "B", "C"), 0, transport, 100);
+        CollabClient[] c = editors(authority, transport, 2);
+
+        c[0].apply(tr(new DeleteBlockStep(1)));
+        c[1].apply(tr(new InsertTextStep(1, 1, "b")));
+        c[1].apply(tr(new InsertTextStep(2, 1, "c")));
+        Delta a = c[0].submit();
+        Delta b = c[1].submit();
+        authority.receive(a);
+        Delta accepted = authority.receive(b);
+
+        // The edit to the deleted block is dropped.
+        Assertions.assertEquals(2, accepted.submitted());
+        Assertions.assertEquals(1, accepted.steps().size());
+        String expected = describe(authority.join().doc());
+        Assertions.assertEquals("A", textAt(authority.join().doc(), 0));
+        Assertions.assertEquals("Cc", textAt(authority.join().doc(), 1));
+        for (CollabClient editor : c)
+            Assertions.assertEquals(expected, describe(editor.doc()));
+    }
+
+    @Test
+    public void testConcurrentSplit() {
+        LocalTransport transport = new LocalTransport();
+        Authority authority = new Authority(doc("Hello World"), 0, transport, 100);
+        CollabClient[] c = editors(authority, transport, 2);
+
+        c[0].apply(tr(new SplitBlockStep(0, 5)));
+        c[1].apply(tr(new InsertTextStep(0, 11, "!")));
+        c[1].apply(tr(new InsertTextStep(0, 0, ">")));
+        Delta a = c[0].submit();
+        Delta b = c[1].submit();
+        authority.receive(a);
+        authority.receive(b);
+
+        FormattedText doc = authority.join().doc();
+        Assertions.assertEquals(">Hello", textAt(doc, 0));
+        Assertions.assertEquals(" World!", textAt(doc, 1));
+        for (CollabClient editor : c)
+            Assertions.assertEquals(describe(doc), describe(editor.doc()));
+    }
+
+    @Test
+    public void testRebaseTyping() {
+        LocalTransport transport = new LocalTransport();
+        Authority authority = new Authority(doc("Hello World"), 0, transport, 100);
+        CollabClient[] c = editors(authority, transport, 2);
+
+        // Typing forwards and typing before what was typed (i.e. where the
+        // position falls within text previously inserted).
+        c[0].apply(tr(new InsertTextStep(0, 0, "__")));
+        c[1].apply(tr(new InsertTextStep(0, 6, "a")));
+        c[1].apply(tr(new InsertTextStep(0, 7, "b")));
+        c[1].apply(tr(new InsertTextStep(0, 6, "c")));
+        c[1].apply(tr(new DeleteTextStep(0, 8, 1)));
+        Assertions.assertEquals("Hello caWorld", textAt(c[1].doc(), 0));
+        Delta a = c[0].submit();
+        Delta b = c[1].submit();
+        authority.receive(a);
+        authority.receive(b);
+
+        Assertions.assertEquals("__Hello caWorld", textAt(authority.join().doc(), 0));
+        for (CollabClient editor : c)
+            Assertions.assertEquals("__Hello caWorld", textAt(editor.doc(), 0));
+    }
+
+    @Test
+    public void testRebaseMoveAndFormat() {
+        LocalTransport transport = new LocalTransport();
+        Authority authority = new Authority(doc("A", "B", "C", "Hello"), 0, transport, 100);
+        CollabClient[] c = editors(authority, transport, 2);
+
+        c[0].apply(tr(new InsertBlockStep(0, para("X"))));
+        c[0].apply(tr(new InsertTextStep(4, 0, ">>")));
+        c[1].apply(tr(new MoveBlockStep(0, 2, 1)));
+        c[1].apply(tr(new ChangeFormatStep(3, 1, 3, FormatType.BLD, true)));
+        Delta a = c[0].submit();
+        Delta b = c[1].submit();
+        authority.receive(a);
+        authority.receive(b);
+
+        FormattedText doc = authority.join().doc();
+        Assertions.assertEquals("X", textAt(doc, 0));
+        Assertions.assertEquals("B", textAt(doc, 1));
+        Assertions.assertEquals("C", textAt(doc, 2));
+        Assertions.assertEquals("A", textAt(doc, 3));
+        Assertions.assertEquals(">>Hello", textAt(doc, 4));
+        Assertions.assertTrue(doc.getBlocks().get(4).getLines().get(0).hasFormat(3, 3, FormatType.BLD));
+        Assertions.assertFalse(doc.getBlocks().get(4).getLines().get(0).hasFormat(0, 3, FormatType.BLD));
+        for (CollabClient editor : c)
+            Assertions.assertEquals(describe(doc), describe(editor.doc()));
+    }
+
+    @Test
+    public void testReceiveWhileSubmitted() {
+        // Deltas are queued so that each editor receives the other's steps
+        // while its own are awaiting confirmation.
+        List<Delta> queue = new ArrayList<>();
+        LocalTransport transport = new LocalTransport();
+        transport.add(queue::add);
+        Authority authority = new Authority(doc("Hello World"), 0, transport, 100);
+        CollabClient a = new CollabClient("a", authority.join());
+        CollabClient b = new CollabClient("b", authority.join());
+
+        a.apply(tr(new InsertTextStep(0, 5, ",")));
+        b.apply(tr(new InsertTextStep(0, 11, "!")));
+        Delta sa = a.submit();
+        Delta sb = b.submit();
+        Assertions.assertNull(a.submit());
+        authority.receive(sa);
+        authority.receive(sb);
+        a.apply(tr(new InsertTextStep(0, 0, "[")));
+        b.apply(tr(new InsertTextStep(0, 0, "]")));
+        for (Delta delta : queue) {
+            a.receive(delta);
+            b.receive(delta);
+        }
+        Assertions.assertEquals(1, a.unconfirmed());
+        Assertions.assertEquals(1, b.unconfirmed());
+        queue.clear();
+        authority.receive(a.submit());
+        authority.receive(b.submit());
+        for (Delta delta : queue) {
+            a.receive(delta);
+            b.receive(delta);
+        }
+        FormattedText doc = authority.join().doc();
+        Assertions.assertEquals("[]Hello, World!", textAt(doc, 0));
+        Assertions.assertEquals(describe(doc), describe(a.doc()));
+        Assertions.assertEquals(describe(doc), describe(b.doc()));
+    }
+
+    /************************************************************************
+     * Compaction.
+     ************************************************************************/
+
+    @Test
+    public void testCompaction() {
+        Authority authority = new Authority(doc("Hello"), 0, null, 8);
+        CollabClient editor = new CollabClient("a", authority.join());
+        CollabClient stale = new CollabClient("b", authority.join());
+        for (int i = 0; i < 10; i++) {
+            editor.apply(tr(new InsertTextStep(0, 0, "" + i)));
+            editor.receive(authority.receive(editor.submit()));
+        }
+        Assertions.assertEquals(10, authority.version());
+
+        // Compacted at 9 steps, retaining 4.
+        Assertions.assertEquals(9, authority.snapshot().version());
+        Assertions.assertEquals("876543210Hello", textAt(authority.snapshot().doc(), 0));
+        Assertions.assertEquals(5, authority.floor());
+        Assertions.assertNull(authority.since(4));
+        Assertions.assertEquals(5, authority.since(5).size());
+        Assertions.assertEquals(0, authority.since(10).size());
+
+        // The stale editor must re-join.
+        stale.apply(tr(new InsertTextStep(0, 0, "x")));
+        Assertions.assertNull(authority.receive(stale.submit()));
+        stale.reset(authority.join());
+        Assertions.assertEquals("9876543210Hello", textAt(stale.doc(), 0));
+
+        // Catching up from the log.
+        CollabClient behind = new CollabClient("c", new FormattedText(), 0);
+        Snapshot snapshot = authority.snapshot();
+        behind.reset(new Snapshot(snapshot.version(), snapshot.doc().clone()));
+        for (Delta delta : authority.since(behind.version()))
+            behind.receive(delta);
+        Assertions.assertEquals(describe(authority.join().doc()), describe(behind.doc()));
+    }
+
+    @Test
+    public void testMissedDelta() {
+        Authority authority = new Authority(doc("Hello"));
+        CollabClient a = new CollabClient("a", authority.join());
+        CollabClient b = new CollabClient("b", authority.join());
+        a.apply(tr(new InsertTextStep(0, 0, "1")));
+        a.receive(authority.receive(a.submit()));
+        a.apply(tr(new InsertTextStep(0, 0, "2")));
+        Delta second = authority.receive(a.submit());
+        Assertions.assertThrows(IllegalStateException.class, () -> b.receive(second));
+    }
+
+    /************************************************************************
+     * Simulation.
+     ************************************************************************/
+
+    /**
+     * Generates a random (valid) edit against the given document.
+     */
+    private static Transaction edit(Random rand, FormattedText doc) {
+        List<FormattedBlock> blocks = doc.getBlocks();
+        int b = rand.nextInt(blocks.size());
+        FormattedBlock block = blocks.get(b);
+        int size = Positions.contentSize(block);
+        switch (rand.nextInt(12)) {
+            case 0:
+                return tr(new SplitBlockStep(b, rand.nextInt(size + 1)));
+            case 1:
+                if ((b + 1 < blocks.size()) && (blocks.get(b + 1).getType() == block.getType()))
+                    return tr(new JoinBlocksStep(b));
+                break;
+            case 2:
+                return tr(new InsertBlockStep(rand.nextInt(blocks.size() + 1), para("new" + rand.nextInt(100))));
+            case 3:
+            case 11:
+                if (blocks.size() > 2)
+                    return tr(new DeleteBlockStep(b));
+                break;
+            case 4:
+                if (size > 1) {
+                    int offset = rand.nextInt(size - 1);
+                    return tr(new ChangeFormatStep(b, offset, 1 + rand.nextInt(size - offset - 1), FormatType.BLD, rand.nextBoolean()));
+                }
+                break;
+            case 5:
+                return tr(new SetBlockTypeStep(b, rand.nextBoolean() ? BlockType.PARA : BlockType.H2));
+            case 6: {
+                int count = 1 + rand.nextInt(Math.min(2, blocks.size()));
+                int from = rand.nextInt(blocks.size() - count + 1);
+                return tr(new MoveBlockStep(from, rand.nextInt(blocks.size() - count + 1), count));
+            }
+            case 7:
+                return tr(new SetBlockIndentStep(b, rand.nextInt(3)));
+            case 8: {
+                FormattedBlock replacement = block.clone();
+                replacement.setIndent(rand.nextInt(3));
+                return tr(new ReplaceBlockStep(b, replacement));
+            }
+            case 9:
+            case 10:
+                if (size > 2) {
+                    int offset = rand.nextInt(size - 1);
+                    return tr(new DeleteTextStep(b, offset, 1 + rand.nextInt(Math.min(3, size - offset - 1))));
+                }
+                break;
+        }
+        return tr(new InsertTextStep(b, rand.nextInt(size + 1), "" + (char) ('a' + rand.nextInt(26))));
+    }
+
+    /**
+     * Simulates a number of editors making random changes to a document, with
+     * the delivery of deltas and submission of changes being interleaved at
+     * random. All editors must converge on the document held by the
+     * authority.
+     *
+     * @return the authority (once all editors have settled).
+     */
+    static Authority simulate(long seed, int editors, int rounds, int maxLog) {
+        Random rand = new Random(seed);
+        List<Deque<Delta>> inboxes = new ArrayList<>();
+        LocalTransport transport = new LocalTransport();
+        transport.add(delta -> inboxes.forEach(inbox -> inbox.add(delta)));
+        FormattedText initial = new FormattedText();
+        for (int i = 0; i < 20; i++)
+            initial.getBlocks().add(para("Paragraph number " + i));
+        initial.getBlocks().forEach(b -> b.ensureId());
+        Authority authority = new Authority(initial, 0, transport, maxLog);
+        List<CollabClient> clients = new ArrayList<>();
+        for (int i = 0; i < editors; i++) {
+            clients.add(new CollabClient("c" + i, authority.join()));
+            inboxes.add(new ArrayDeque<>());
+        }
+
+        for (int r = 0; r < rounds; r++) {
+            int i = rand.nextInt(editors);
+            CollabClient client = clients.get(i);
+            int action = rand.nextInt(4);
+            if (action < 2) {
+                client.apply(edit(rand, client.doc()));
+            } else if (action == 2) {
+                // Where the editor has fallen too far behind it re-joins.
+                Delta submission = client.submit();
+                if ((submission != null) && (authority.receive(submission) == null))
+                    client.reset(authority.join());
+            } else {
+                // Receives some (or all) of the deltas delivered so far.
+                int count = rand.nextBoolean() ? 1 : inboxes.get(i).size();
+                for (int j = 0; (j < count) && !inboxes.get(i).isEmpty(); j++)
+                    client.receive(inboxes.get(i).poll());
+            }
+        }
+
+        // Settle.
+        boolean pending = true;
+        while (pending) {
+            pending = false;
+            for (int i = 0; i < editors; i++) {
+                CollabClient client = clients.get(i);
+                while (!inboxes.get(i).isEmpty())
+                    client.receive(inboxes.get(i).poll());
+                Delta submission = client.submit();
+                if (submission != null) {
+                    authority.receive(submission);
+                    pending = true;
+                }
+            }
+        }
+        String expected = describe(authority.join().doc());
+        for (CollabClient client : clients) {
+            Assertions.assertEquals(0, client.unconfirmed(), client.clientId());
+            Assertions.assertEquals(authority.version(), client.version(), client.clientId());
+            Assertions.assertEquals(expected, describe(client.doc()), "seed " + seed + " " + client.clientId());
+        }
+        return authority;
+    }
+
+    @Test
+    public void testSimulation() {
+        for (long seed = 0; seed < 40; seed++)
+            simulate(seed, 4, 400, 100);
+    }
+
+    /**
+     * Many editors on one document converge on the document held by the
+     * authority, as checked by the simulation (see {@link AuthorityBenchmark}
+     * for the throughput of the authority).
+     */
+    @Test
+    public void testManyEditors() {
+        Authority authority = simulate(99, 50, 2000, 500);
+        Assertions.assertTrue(authority.version() > 250, "version " + authority.version());
+
+        // The document is not emptied and every block retains a distinct
+        // identifier.
+        FormattedText doc = authority.join().doc();
+        Set<String> ids = new HashSet<>();
+        for (FormattedBlock block : doc.getBlocks()) {
+            Assertions.assertTrue(block.hasId());
+            Assertions.assertTrue(ids.add(block.getId()), block.getId());
+        }
+        Assertions.assertFalse(doc.getBlocks().isEmpty());
+    }
+}
@@ -0,0 +1,133 @@
+package com.effacy.jui.text.ui.type;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.effacy.jui.text.type.edit.BlockChanges;
+
+public class BlockHeightsTest {
+
+    @Test
+    public void testEstimated() {
+        BlockHeights heights = new BlockHeights(100, 20);
+        Assertions.assertEquals(2000, heights.total(), 0.001);
+        Assertions.assertEquals(200, heights.offset(10), 0.001);
+        Assertions.assertEquals(10, heights.indexAt(200));
+        Assertions.assertEquals(10, heights.indexAt(219));
+        Assertions.assertEquals(100, heights.indexAt(5000));
+        Assertions.assertArrayEquals(new int[] { 5, 16 }, heights.window(100, 300));
+    }
+
+    @Test
+    public void testMeasured() {
+        BlockHeights heights = new BlockHeights(10, 20);
+        heights.measure(0, 50);
+        heights.measure(1, 30);
+
+        // Unmeasured blocks take the average of those measured.
+        Assertions.assertEquals(40, heights.estimate(), 0.001);
+        Assertions.assertEquals(80, heights.offset(2), 0.001);
+        Assertions.assertEquals(400, heights.total(), 0.001);
+        Assertions.assertEquals(0, heights.indexAt(49));
+        Assertions.assertEquals(1, heights.indexAt(50));
+        Assertions.assertEquals(2, heights.indexAt(80));
+
+        // Re-measuring.
+        heights.measure(0, 10);
+        Assertions.assertEquals(20, heights.estimate(), 0.001);
+        Assertions.assertEquals(40, heights.offset(2), 0.001);
+        Assertions.assertTrue(heights.measured(1));
+        Assertions.assertFalse(heights.measured(2));
+    }
+
+    @Test
+    public void testChanges() {
+        BlockHeights heights = new BlockHeights(5, 20);
+        for (int i = 0; i < 5; i++)
+            heights.measure(i, 10 * (i + 1));
+
+        // Remove block 1, insert at 3 and move the first to the end.
+        BlockChanges changes = new BlockChanges(5);
+        changes.removed(1);
+        changes.inserted(3);
+        changes.moved(0, 4, 1);
+        heights.apply(changes);
+
+        Assertions.assertEquals(5, heights.count());
+        Assertions.assertEquals(30, heights.height(0), 0.001);
+        Assertions.assertEquals(40, heights.height(1), 0.001);
+        Assertions.assertFalse(heights.measured(2));
+        Assertions.assertEquals(50, heights.height(3), 0.001);
+        Assertions.assertEquals(10, heights.height(4), 0.001);
+
+        // Undescribed changes reset.
+        changes = new BlockChanges(5);
+        changes.all();
+        heights.apply(changes);
+        Assertions.assertFalse(heights.measured(0));
+    }
+
+    /**
+     * The number of blocks rendered (as a proxy for the size of the DOM) when
+     * scrolling through a large document a viewport at a time, rendering
+     * those blocks in the window (as the editor does with its default
+     * overscan) and measuring them.
+     */
+    @Test
+    public void testRenderedBlocks() {
+        Random rand = new Random(5);
+        int n = 20000;
+        double viewport = 900;
+        double overscan = 1000;
+        double[] actual = new double[n];
+        for (int i = 0; i < n; i++)
+            actual[i] = 18 + rand.nextInt(100);
+        BlockHeights heights = new BlockHeights(n, 24);
+
+        // First paint (from the estimate alone).
+        int[] window = heights.window(-overscan, viewport + overscan);
+        int first = window[1] - window[0];
+
+        int max = 0;
+        for (double top = 0; top < heights.total(); top += viewport) {
+            window = heights.window(top - overscan, top + viewport + overscan);
+            for (int i = window[0]; i < window[1]; i++)
+                heights.measure(i, actual[i]);
+            max = Math.max(max, window[1] - window[0]);
+        }
+
+        // Bounded by the extent over the smallest height (rather than the size
+        // of the document): 80 of the 20000 blocks at first paint and no more
+        // thereafter.
+        Assertions.assertEquals(80, first);
+        Assertions.assertEquals(80, max);
+        Assertions.assertTrue(max <= (viewport + 2 * overscan) / 18 + 2, "max " + max);
+        Assertions.assertTrue(max * 100 < n, "max " + max);
+    }
+
+    @Test
+    public void testRandom() {
+        Random rand = new Random(3);
+        int n = 1000;
+        BlockHeights heights = new BlockHeights(n, 24);
+        double[] actual = new double[n];
+        for (int t = 0; t < 2000; t++) {
+            int i = rand.nextInt(n);
+            actual[i] = 10 + rand.nextInt(200);
+            heights.measure(i, actual[i]);
+            if ((t % 100) == 99) {
+                double est = heights.estimate();
+                double pos = 0;
+                for (int j = 0; j < n; j++) {
+                    Assertions.assertEquals(pos, heights.offset(j), 0.01);
+                    double h = heights.measured(j) ? actual[j] : est;
+                    Assertions.assertEquals(j, heights.indexAt(pos + h / 2));
+                    pos += h;
+                }
+                Assertions.assertEquals(pos, heights.total(), 0.01);
+            }
+        }
+    }
+}
@@ -33,6 +33,8 @@ import com.effacy.jui.core.client.dom.UIEventType;
 import com.effacy.jui.core.client.dom.builder.Div;
 import com.effacy.jui.core.client.dom.builder.ElementBuilder;
 import com.effacy.jui.core.client.dom.builder.Wrap;
+import com.effacy.jui.core.client.dom.css.CSS;
+import com.effacy.jui.core.client.dom.css.Length;
 import com.effacy.jui.core.client.dom.jquery.JQuery;
 import com.effacy.jui.core.client.dom.jquery.JQueryElement;
 import com.effacy.jui.core.client.store.IOffsetStore;
@@ -51,6 +53,7 @@ import com.effacy.jui.ui.client.Theme;
 import com.google.gwt.core.client.GWT;
 
 import elemental2.dom.Element;
+import elemental2.dom.Node;
 import jsinterop.base.Js;
 
 /**
@@ -134,6 +137,21 @@ public class Gallery<R> extends Component<Gallery.Config> implements IGallery<R>
          */
         private boolean renderOnRefresh = false;
 
+        /**
+         * See {@link #virtualize(int, boolean)}.
+         */
+        private int virtualize;
+
+        /**
+         * See {@link #virtualize(int, boolean)}.
+         */
+        private boolean virtualizeMeasure;
+
+        /**
+         * See {@link #overscan(int)}.
+         */
+        private int overscan = 5;
+
         /**
          * See {@link #emptyUnfiltered(Consumer)}.
          */
@@ -231,6 +249,52 @@ public class Gallery<R> extends Component<Gallery.Config> implements IGallery<R>
             return this;
         }
 
+        /**
+         * See {@link #virtualize(int, boolean)} with fixed row heights.
+         */
+        public Config virtualize(int rowHeight) {
+            return virtualize (rowHeight, false);
+        }
+
+        /**
+         * Virtualises the rendering of items. Only those rows of items that
+         * intersect the scroll viewport (plus an overscan, see
+         * {@link #overscan(int)}) are rendered with the remaining rows being
+         * represented by spacers (the records remain in the store). Item elements
+         * are recycled as items scroll into and out of view (items that scroll out
+         * of view are disposed of).
+         * <p>
+         * The number of items per row is determined from the layout of the rendered
+         * items. This is only effective when the gallery is scrollable (see
+         * {@link #scrollable(boolean)}) and the rows are of (near) uniform height.
+         * 
+         * @param rowHeight
+         *                  the height of a row in pixels (or the initial estimate
+         *                  when measuring; {@code 0} to disable virtualisation).
+         * @param measure
+         *                  {@code true} to use the average measured height of the
+         *                  rendered rows in place of the given height.
+         * @return this configuration instance.
+         */
+        public Config virtualize(int rowHeight, boolean measure) {
+            this.virtualize = Math.max (0, rowHeight);
+            this.virtualizeMeasure = measure;
+            return this;
+        }
+
+        /**
+         * The number of rows to render either side of the viewport when
+         * virtualised (see {@link #virtualize(int, boolean)}). The default is 5.
+         * 
+         * @param overscan
+         *                 the number of rows.
+         * @return this configuration instance.
+         */
+        public Config overscan(int overscan) {
+            this.overscan = Math.max (0, overscan);
+            return this;
+        }
+
         /**
          * Assign a rendering for the case where there are no results at all
          * (unfiltered).
@@ -436,6 +500,9 @@ public class Gallery<R> extends Component<Gallery.Config> implements IGallery<R>
 
         // This is used to check if the page needs further loading.
         setMonitorWindowResize (true);
+
+        if (config.virtualize > 0)
+            window = new VirtualWindow (config.virtualize, config.virtualizeMeasure, config.overscan);
     }
 
     /**
@@ -481,6 +548,8 @@ public class Gallery<R> extends Component<Gallery.Config> implements IGallery<R>
      */
     @Override
     protected void onWindowResize(int width, int height) {
+        if (isRendered () && (window != null))
+            _renderWindow (store.asList (), false);
         if (isRendered () && _endOfPage ().isTrue ())
             onScrolledToBottomOfPage ();
     }
@@ -805,6 +874,8 @@ public class Gallery<R> extends Component<Gallery.Config> implements IGallery<R>
     protected void onGalleryScroll(UIEvent e) {
         if (DebugMode.SCROLL.set())
             Logger.trace ("gallery", "{gallery-scroll}}");
+        if (window != null)
+            _renderWindow (store.asList (), false);
         _endOfPage ()
             .isTrue (() -> onScrolledToBottomOfPage ())
             .isUndetermined (() -> {
@@ -819,6 +890,28 @@ public class Gallery<R> extends Component<Gallery.Config> implements IGallery<R>
 
     private List<GalleryItemWrapper> currentRecords = new ArrayList<> ();
 
+    /**
+     * When virtualised (see {@link Config#virtualize(int, boolean)}) this
+     * determines which records to render.
+     */
+    private VirtualWindow window;
+
+    /**
+     * When virtualised, item elements released by items that have scrolled out
+     * of view (available for re-use).
+     */
+    private List<Element> pool = new ArrayList<> ();
+
+    /**
+     * When virtualised, the spacers before and after the rendered items.
+     */
+    private Element topSpacerEl, bottomSpacerEl;
+
+    /**
+     * When virtualised, the range of records currently rendered.
+     */
+    private int windowFrom = -1, windowTo = -1;
+
     /**
      * Obtains the index of the specified record in the gallery (as displayed). If
      * the record implements {@link IRecord} then equality check is based on the ID.
@@ -883,10 +976,18 @@ public class Gallery<R> extends Component<Gallery.Config> implements IGallery<R>
                 item.dispose ();
             }
             currentRecords.clear ();
+            if (window != null) {
+                pool.clear ();
+                windowFrom = windowTo = -1;
+            }
             DomSupport.removeAllChildren (targetEl);
             return Tribool.FALSE;
         }
 
+        // Virtualised rendering only renders those records in view.
+        if (window != null)
+            return _renderWindow (records, true);
+
         if ((lastEl != null) && (lastEl.parentElement != null))
             lastEl.parentElement.removeChild(lastEl);
 
@@ -1029,7 +1130,7 @@ public class Gallery<R> extends Component<Gallery.Config> implements IGallery<R>
         }
 
         // Apply grouping via the configured extractor/renderer.
-        _applyGrouping (revisedRecords);
+        _applyGrouping (revisedRecords, null);
 
         if (lastEl != null)
             targetEl.append(lastEl);
@@ -1037,9 +1138,151 @@ public class Gallery<R> extends Component<Gallery.Config> implements IGallery<R>
         return _endOfPage ();
     }
 
+    /**
+     * Renders (when virtualised) only those records that intersect the scroll
+     * viewport. Items for records that remain in view are retained while those
+     * that have scrolled out of view are disposed of (with their elements being
+     * re-used).
+     * 
+     * @param records
+     *                the records (all of them).
+     * @param refresh
+     *                {@code true} if the records have changed (otherwise only a
+     *                change in the window results in rendering).
+     * @return {@code true} if displaying the end of the gallery region.
+     */
+    @SuppressWarnings("unchecked")
+    protected Tribool _renderWindow(List<R> records, boolean refresh) {
+        if ((window == null) || (galleryEl == null) || (targetEl == null) || records.isEmpty ())
+            return _endOfPage ();
+        double viewTop = galleryEl.getBoundingClientRect ().top - targetEl.getBoundingClientRect ().top;
+        int[] range = window.window (records.size (), viewTop, galleryEl.clientHeight);
+        if (!refresh && (range[0] == windowFrom) && (range[1] == windowTo))
+            return _endOfPage ();
+
+        _stripGroupHeaders ();
+        if ((lastEl != null) && (lastEl.parentElement != null))
+            lastEl.parentElement.removeChild (lastEl);
+
+        // Match the records in the window against those currently rendered.
+        List<GalleryItemWrapper> revisedRecords = new ArrayList<> ();
+        List<GalleryItemWrapper> released = new ArrayList<> (currentRecords);
+        for (int i = range[0]; i < range[1]; i++) {
+            R record = records.get (i);
+            GalleryItemWrapper item = null;
+            for (int j = 0, len = released.size (); j < len; j++) {
+                if (released.get (j).getRecord ().equals (record)) {
+                    item = released.remove (j);
+                    break;
+                }
+            }
+            if (item == null) {
+                item = new GalleryItemWrapper ();
+                if (!pool.isEmpty ())
+                    item.reuse (pool.remove (pool.size () - 1));
+            }
+            boolean newRecord = item.setRecord (record);
+            if (newRecord || (refresh && config ().renderOnRefresh))
+                item.render ();
+            boolean selected = false;
+            if (store instanceof IStoreSelection)
+                selected = ((IStoreSelection<Object>) store).isSelected (record);
+            item.updateSelection (selected);
+            revisedRecords.add (item);
+        }
+        for (GalleryItemWrapper item : released) {
+            item.dispose ();
+            Element itemEl = item.getElement ();
+            if (itemEl.parentNode != null)
+                itemEl.parentNode.removeChild (itemEl);
+            DomSupport.removeAllChildren (itemEl);
+            pool.add (itemEl);
+        }
+
+        // Position the items between the spacers (moving only those out of place).
+        // The spacers are only present when they take up space.
+        if (topSpacerEl == null) {
+            topSpacerEl = DomSupport.createDiv ();
+            CSS.WIDTH.apply (topSpacerEl, Length.pct (100));
+            bottomSpacerEl = DomSupport.createDiv ();
+            CSS.WIDTH.apply (bottomSpacerEl, Length.pct (100));
+        }
+        if (range[0] > 0) {
+            if (targetEl.firstChild != topSpacerEl)
+                targetEl.insertBefore (topSpacerEl, targetEl.firstChild);
+        } else if (topSpacerEl.parentNode != null) {
+            topSpacerEl.parentNode.removeChild (topSpacerEl);
+        }
+        Node ref = (range[0] > 0) ? topSpacerEl.nextSibling : targetEl.firstChild;
+        for (int j = 0, len = revisedRecords.size (); j < len; j++) {
+            GalleryItemWrapper item = revisedRecords.get (j);
+            Element itemEl = item.getElement ();
+            itemEl.id = "sl-gallery-item-" + (range[0] + j);
+            item.updatePosition (_getRowPosition (range[0] + j, records.size ()), _getColPosition (range[0] + j, 1));
+            if (itemEl == ref)
+                ref = ref.nextSibling;
+            else
+                targetEl.insertBefore (itemEl, ref);
+        }
+        if (range[1] < records.size ()) {
+            if (targetEl.lastChild != bottomSpacerEl)
+                targetEl.appendChild (bottomSpacerEl);
+        } else if (bottomSpacerEl.parentNode != null) {
+            bottomSpacerEl.parentNode.removeChild (bottomSpacerEl);
+        }
+        currentRecords.clear ();
+        currentRecords.addAll (revisedRecords);
+        windowFrom = range[0];
+        windowTo = range[1];
+
+        // Group headings (within the window) and the last item.
+        _applyGrouping (revisedRecords, _groupBefore (records, range[0]));
+        if (lastEl != null)
+            targetEl.append (lastEl);
+
+        // Determine the items per row (those sharing the top of the first) and
+        // measure the rows.
+        if (!revisedRecords.isEmpty ()) {
+            double top = revisedRecords.get (0).getElement ().getBoundingClientRect ().top;
+            int perRow = 0;
+            while ((perRow < revisedRecords.size ()) && (revisedRecords.get (perRow).getElement ().getBoundingClientRect ().top == top))
+                perRow++;
+            window.perRow (perRow);
+            if (window.measuring ()) {
+                double bottom = revisedRecords.get (revisedRecords.size () - 1).getElement ().getBoundingClientRect ().bottom;
+                window.measure ((bottom - top) / ((revisedRecords.size () + window.perRow () - 1) / window.perRow ()));
+            }
+        }
+        CSS.HEIGHT.apply (topSpacerEl, Length.px (window.before (range[0])));
+        CSS.HEIGHT.apply (bottomSpacerEl, Length.px (window.after (records.size (), range[1])));
+
+        return _endOfPage ();
+    }
+
+    /**
+     * Determines the group reference in effect prior to the given record (used
+     * when only some of the records are rendered).
+     * 
+     * @param records
+     *                the records.
+     * @param idx
+     *                the index of the record.
+     * @return the reference ({@code null} if there is none).
+     */
+    private String _groupBefore(List<R> records, int idx) {
+        if (groupExtractor == null)
+            return null;
+        for (int i = idx - 1; i >= 0; i--) {
+            GroupDescriptor descriptor = groupExtractor.apply (records.get (i));
+            if (descriptor != null)
+                return descriptor.reference ();
+        }
+        return null;
+    }
+
     /**
      * Attribute flag used to identify a group-heading element that was inserted
-     * into the target by {@link #_applyGrouping(List)}.
+     * into the target by {@link #_applyGrouping(List, String)}.
      */
     private static final String GROUP_HEADER_ATTR = "data-gallery-group";
 
@@ -1071,12 +1314,14 @@ public class Gallery<R> extends Component<Gallery.Config> implements IGallery<R>
      * @param revisedRecords
      *                       the ordered list of record wrappers currently in
      *                       the target.
+     * @param currentRef
+     *                       the reference of the group in effect prior to the
+     *                       first record ({@code null} if none).
      */
     @SuppressWarnings("unchecked")
-    private void _applyGrouping(List<GalleryItemWrapper> revisedRecords) {
+    private void _applyGrouping(List<GalleryItemWrapper> revisedRecords, String currentRef) {
         if ((groupExtractor == null) || (groupRenderer == null))
             return;
-        String currentRef = null;
         for (GalleryItemWrapper item : revisedRecords) {
             R record = (R) item.getRecord ();
             GroupDescriptor descriptor = groupExtractor.apply (record);
@@ -1287,6 +1532,18 @@ public class Gallery<R> extends Component<Gallery.Config> implements IGallery<R>
             rendered = true;
         }
 
+        /**
+         * Assigns an element (released by another item) for the item to render
+         * into.
+         * 
+         * @param el
+         *           the element.
+         */
+        void reuse(Element el) {
+            if (this.el == null)
+                rootEl = this.el = el;
+        }
+
         /**
          * Builds the root element.
          */
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.ui.client.gallery;
+
+/**
+ * Determines which items of a (vertically laid out) list intersect a scroll
+ * viewport so that only those items (plus some overscan) need to be rendered,
+ * with the remainder represented by spacers above and below.
+ * <p>
+ * Items are laid out in rows of {@link #perRow()} items each of the same
+ * height. The height is either fixed or, when measuring, the average of the
+ * rows that have been measured (with the fixed height as an initial estimate).
+ * <p>
+ * This performs no DOM manipulation; it is used by {@link Gallery} and
+ * {@link com.effacy.jui.ui.client.table.Table} when virtualised.
+ */
+public class VirtualWindow {
+
+    /**
+     * The estimated (or fixed) row height.
+     */
+    private double height;
+
+    /**
+     * See {@link #measuring()}.
+     */
+    private boolean measuring;
+
+    /**
+     * Number of rows to render either side of the viewport.
+     */
+    private int overscan;
+
+    /**
+     * See {@link #perRow()}.
+     */
+    private int perRow = 1;
+
+    /**
+     * Total and count of the measured row heights.
+     */
+    private double measuredTotal;
+    private int measuredCount;
+
+    /**
+     * Construct with a row height.
+     *
+     * @param height
+     *                  the row height (the initial estimate when measuring).
+     * @param measuring
+     *                  {@code true} to use measured row heights.
+     * @param overscan
+     *                  the number of rows to render either side of the
+     *                  viewport.
+     */
+    public VirtualWindow(double height, boolean measuring, int overscan) {
+        this.height = Math.max (1, height);
+        this.measuring = measuring;
+        this.overscan = Math.max (0, overscan);
+    }
+
+    /**
+     * Determines if row heights are measured.
+     */
+    public boolean measuring() {
+        return measuring;
+    }
+
+    /**
+     * The number of items per row.
+     */
+    public int perRow() {
+        return perRow;
+    }
+
+    /**
+     * Assigns the number of items per row.
+     */
+    public void perRow(int perRow) {
+        this.perRow = Math.max (1, perRow);
+    }
+
+    /**
+     * The (fixed, estimated or average measured) height of a row.
+     */
+    public double height() {
+        if (measuredCount == 0)
+            return height;
+        return measuredTotal / measuredCount;
+    }
+
+    /**
+     * Records a measured row height (ignored if not measuring).
+     *
+     * @param rowHeight
+     *                  the height of a rendered row.
+     */
+    public void measure(double rowHeight) {
+        if (!measuring || (rowHeight <= 0))
+            return;
+        measuredTotal += rowHeight;
+        measuredCount++;
+    }
+
+    /**
+     * Determines the items to render.
+     *
+     * @param count
+     *                 the total number of items.
+     * @param top
+     *                 the offset (from the top of the list) of the top of the
+     *                 viewport.
+     * @param viewport
+     *                 the height of the viewport (if zero, as is the case when
+     *                 not yet laid out, a default number of rows is used).
+     * @return the index of the first item and one beyond the last (as a pair).
+     */
+    public int[] window(int count, double top, double viewport) {
+        if (count <= 0)
+            return new int[] { 0, 0 };
+        int rows = (count + perRow - 1) / perRow;
+        double h = height ();
+        int visible = (viewport <= 0) ? (overscan + 1) : (int) Math.ceil (viewport / h);
+        int first = Math.max (0, Math.min ((int) Math.floor (Math.max (0, top) / h), rows - visible));
+        int last = first + visible;
+        first = Math.max (0, Math.min (first - overscan, rows - 1));
+        last = Math.max (first + 1, Math.min (rows, last + overscan));
+        return new int[] { first * perRow, Math.min (count, last * perRow) };
+    }
+
+    /**
+     * The height of the spacer before the window.
+     *
+     * @param from
+     *             the first item in the window.
+     * @return the height.
+     */
+    public double before(int from) {
+        return (from / perRow) * height ();
+    }
+
+    /**
+     * The height of the spacer after the window.
+     *
+     * @param count
+     *              the total number of items.
+     * @param to
+     *              one beyond the last item in the window.
+     * @return the height.
+     */
+    public double after(int count, int to) {
+        int rows = (count + perRow - 1) / perRow;
+        int rendered = (to + perRow - 1) / perRow;
+        return Math.max (0, rows - rendered) * height ();
+    }
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright 2024 Jeremy Buckley
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * <a href= "http://www.apache.org/licenses/LICENSE-2.0">Apache License v2</a>
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.effacy.jui.ui.client.store;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import com.effacy.jui.core.client.store.AutoRefresher;
+import com.effacy.jui.core.client.store.IStoreReplacable;
+import com.effacy.jui.platform.util.client.Logger;
+import com.effacy.jui.rpc.handler.client.query.IRecord;
+import com.effacy.jui.rpc.handler.client.query.RecordDelta;
+import com.effacy.jui.rpc.handler.client.query.RecordDeltaQuery;
+
+/**
+ * An {@link AutoRefresher} for large stores (where most items are unchanged on
+ * any given poll). Rather than returning the items in full the delta processor
+ * (see {@link #delta(IDeltaProcessor)}) returns only those that have changed,
+ * been added or been removed (as a {@link RecordDelta}) and these are applied
+ * to the store by key (see
+ * {@link IStoreReplacable#apply(List, java.util.Collection, Function)}).
+ * <p>
+ * All the items in the store are held (unless a test is assigned by
+ * {@link #test(Predicate)}) and refreshing continues (while active) even when
+ * the store is empty (so that additions are detected). Any processor assigned
+ * by {@link #processor(AutoRefresher.IRefreshProcessor)} is ignored.
+ */
+public class DeltaAutoRefresher<T> extends AutoRefresher<T> {
+
+    /**
+     * Delta processor for obtaining the changes to items.
+     */
+    @FunctionalInterface
+    public interface IDeltaProcessor<T> {
+
+        /**
+         * Given the items held (generally to be conveyed as the IDs and versions of
+         * a {@link RecordDeltaQuery}) and the token from the last delta, obtain the
+         * changes to those items.
+         * <p>
+         * Note that if an error occurs while refreshing then simply return a
+         * {@code null}. The refresh process will continue.
+         *
+         * @param items
+         *                 the items held.
+         * @param since
+         *                 the token from the last delta (may be {@code null}).
+         * @param callback
+         *                 invoked when the delta has been obtained.
+         */
+        public void refresh(List<T> items, String since, Consumer<RecordDelta<?,T>> callback);
+    }
+
+    /**
+     * To retrieve changes to records.
+     */
+    private IDeltaProcessor<T> delta;
+
+    /**
+     * To obtain the key of a record.
+     */
+    private Function<T,Object> key = IRecord::key;
+
+    /**
+     * The token from the last delta.
+     */
+    private String since;
+
+    /**
+     * Construct a refresher.
+     *
+     * @param store
+     *                 the backing store.
+     * @param schedule
+     *                 the ms between initaiting a refresh and when one occurs.
+     */
+    public DeltaAutoRefresher(IStoreReplacable<T> store, int schedule) {
+        super (store, schedule);
+    }
+
+    /**
+     * Assigns a processor used to retrieve the changes to items.
+     *
+     * @param delta
+     *              the processor.
+     * @return this refresher instance.
+     */
+    public DeltaAutoRefresher<T> delta(IDeltaProcessor<T> delta) {
+        this.delta = delta;
+        this.since = null;
+        return this;
+    }
+
+    /**
+     * Assigns the means of obtaining the key of an item, by which the changes
+     * obtained from the delta processor (see {@link #delta(IDeltaProcessor)})
+     * are matched against the items in the store.
+     *
+     * @param key
+     *            the key (if {@code null} then the ID of an {@link IRecord} is
+     *            used, see {@link IRecord#key(Object)}).
+     * @return this refresher instance.
+     */
+    public DeltaAutoRefresher<T> key(Function<T,Object> key) {
+        this.key = (key == null) ? IRecord::key : key;
+        return this;
+    }
+
+    @Override
+    protected boolean refreshable(T item) {
+        return (test == null) || test.test (item);
+    }
+
+    @Override
+    protected boolean continuous() {
+        return (delta != null);
+    }
+
+    @Override
+    protected void _refresh(List<T> items) {
+        if (delta == null)
+            return;
+        if (DEBUG)
+            Logger.trace ("autorefresh", "Invoking delta query");
+        delta.refresh (items, since, changes -> {
+            if (DEBUG) {
+                if ((changes == null) || changes.isEmpty())
+                    Logger.trace ("autorefresh", "Query returned no changes");
+                else
+                    Logger.trace ("autorefresh", "Query returned " + changes.getChanged ().size() + " change(s) and " + changes.getRemoved ().size () + " removal(s)");
+            }
+            if (changes != null) {
+                since = changes.getToken ();
+                if (!changes.isEmpty ())
+                    store.apply (changes.getChanged (), changes.getRemoved (), key);
+            }
+            _refreshed ();
+        });
+    }
+}
@@ -16,7 +16,9 @@
 package com.effacy.jui.ui.client.table;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -53,11 +55,13 @@ import com.effacy.jui.core.client.store.IStoreSelection;
 import com.effacy.jui.core.client.util.Tribool;
 import com.effacy.jui.platform.css.client.CssResource;
 import com.effacy.jui.platform.util.client.Itr;
+import com.effacy.jui.platform.util.client.ListSupport;
 import com.effacy.jui.platform.util.client.StringSupport;
 import com.effacy.jui.platform.util.client.TimerSupport;
 import com.effacy.jui.rpc.handler.client.query.IRecord;
 import com.effacy.jui.ui.client.Theme;
 import com.effacy.jui.ui.client.gallery.EmptyNotification;
+import com.effacy.jui.ui.client.gallery.VirtualWindow;
 import com.effacy.jui.ui.client.icon.FontAwesome;
 import com.effacy.jui.ui.client.table.ITableCellRenderer.ITableCellHandler;
 import com.effacy.jui.ui.client.table.Table.Config.SortDirection;
@@ -167,6 +171,21 @@ public class Table<R> extends Component<Table.Config<R>> implements ITable<R> {
          */
         private boolean renderOnRefresh = false;
 
+        /**
+         * See {@link #virtualize(int, boolean)}.
+         */
+        private int virtualize;
+
+        /**
+         * See {@link #virtualize(int, boolean)}.
+         */
+        private boolean virtualizeMeasure;
+
+        /**
+         * See {@link #overscan(int)}.
+         */
+        private int overscan = 10;
+
         /**
          * See {@link #cellPadding(Insets)}.
          */
@@ -490,6 +509,50 @@ public class Table<R> extends Component<Table.Config<R>> implements ITable<R> {
             this.renderOnRefresh = renderOnRefresh;
             return this;
         }
+
+        /**
+         * See {@link #virtualize(int, boolean)} with fixed row heights.
+         */
+        public Config<R> virtualize(int rowHeight) {
+            return virtualize (rowHeight, false);
+        }
+
+        /**
+         * Virtualises the rendering of rows. Only those rows that intersect the
+         * scroll viewport (plus an overscan, see {@link #overscan(int)}) are
+         * rendered with the remaining rows being represented by spacers (the
+         * records remain in the store). Row elements are recycled as rows scroll
+         * into and out of view.
+         * <p>
+         * This is only effective when the table is scrollable (see
+         * {@link #scrollable(boolean)}) and the rows are of (near) uniform height.
+         * 
+         * @param rowHeight
+         *                  the height of a row in pixels (or the initial estimate
+         *                  when measuring; {@code 0} to disable virtualisation).
+         * @param measure
+         *                  {@code true} to use the average measured height of the
+         *                  rendered rows in place of the given height.
+         * @return this configuration instance.
+         */
+        public Config<R> virtualize(int rowHeight, boolean measure) {
+            this.virtualize = Math.max (0, rowHeight);
+            this.virtualizeMeasure = measure;
+            return this;
+        }
+
+        /**
+         * The number of rows to render either side of the viewport when
+         * virtualised (see {@link #virtualize(int, boolean)}). The default is 10.
+         * 
+         * @param overscan
+         *                 the number of rows.
+         * @return this configuration instance.
+         */
+        public Config<R> overscan(int overscan) {
+            this.overscan = Math.max (0, overscan);
+            return this;
+        }
         
         /**
          * See {@link #selectable(boolean)}. Convenience to pass through {@code true}.
@@ -678,6 +741,9 @@ public class Table<R> extends Component<Table.Config<R>> implements ITable<R> {
         // This is used to check if the page needs further loading.
         setMonitorWindowResize (true);
 
+        if (config.virtualize > 0)
+            window = new VirtualWindow (config.virtualize, config.virtualizeMeasure, config.overscan);
+
         // Event handler for processing actions within a record. This delegates to the
         // record wrapper.
         registerEventHandler (new IUIEventHandler () {
@@ -1148,6 +1214,8 @@ public class Table<R> extends Component<Table.Config<R>> implements ITable<R> {
      * {@link #onScrolledToBottomOfPage()}).
      */
     protected void onGalleryScroll(UIEvent e) {
+        if (window != null)
+            renderWindow (store.asList (), false);
         endOfPage ()
             .isTrue (() -> onScrolledToBottomOfPage ())
             .isUndetermined (() -> {
@@ -1193,6 +1261,8 @@ public class Table<R> extends Component<Table.Config<R>> implements ITable<R> {
      */
     @Override
     protected void onWindowResize(int width, int height) {
+        if (isRendered () && (window != null))
+            renderWindow (store.asList (), false);
         if (isRendered () && endOfPage ().isTrue ())
             onScrolledToBottomOfPage ();
     }
@@ -1224,6 +1294,54 @@ public class Table<R> extends Component<Table.Config<R>> implements ITable<R> {
 
     private List<RecordWrapper> currentRecords = new ArrayList<> ();
 
+    /**
+     * When virtualised (see {@link Config#virtualize(int, boolean)}) this
+     * determines which records to render.
+     */
+    private VirtualWindow window;
+
+    /**
+     * When virtualised, wrappers that have scrolled out of view (available for
+     * re-use).
+     */
+    private List<RecordWrapper> pool = new ArrayList<> ();
+
+    /**
+     * When virtualised, the spacer rows before and after the rendered rows.
+     */
+    private Element topSpacerEl, bottomSpacerEl;
+
+    /**
+     * When virtualised, the range of records currently rendered.
+     */
+    private int windowFrom = -1, windowTo = -1;
+
+    /**
+     * Maps the key (see {@link #key(Object)}) of each of the current records to
+     * its position in {@link #currentRecords}.
+     */
+    private Map<Object,Integer> currentIndex = new HashMap<> ();
+
+    /**
+     * Obtains the key used to identify a record between renders. If the record
+     * implements {@link IRecord} (and has an ID) then this is the ID, otherwise it
+     * is the record itself (so relies on {@link Object#equals(Object)} and
+     * {@link Object#hashCode()}). Note that sameness is not used as a comparison
+     * as that is used only to determine if the record should be re-rendered.
+     * 
+     * @param record
+     *               the record.
+     * @return the key.
+     */
+    protected Object key(Object record) {
+        if (record instanceof IRecord) {
+            Object id = ((IRecord<?>) record).getId ();
+            if (id != null)
+                return id;
+        }
+        return record;
+    }
+
     /**
      * Obtains the index of the specified record in the gallery (as displayed). If
      * the record implements {@link IRecord} then equality check is based on the ID.
@@ -1235,12 +1353,19 @@ public class Table<R> extends Component<Table.Config<R>> implements ITable<R> {
      * @return The index of the record (or {@code -1} if it is not present).
      */
     protected int indexOf(Object record) {
-        for (int i = 0, len = currentRecords.size (); i < len; i++) {
-            Object compare = currentRecords.get (i).getRecord ();
-            if (compare.equals (record))
-                return i;
-        }
-        return -1;
+        Integer idx = currentIndex.get (key (record));
+        return (idx == null) ? -1 : idx;
+    }
+
+    /**
+     * Assigns the current records and indexes them by key.
+     */
+    private void assignCurrentRecords(List<RecordWrapper> revisedRecords) {
+        currentRecords.clear ();
+        currentRecords.addAll (revisedRecords);
+        currentIndex.clear ();
+        for (int i = 0, len = currentRecords.size (); i < len; i++)
+            currentIndex.putIfAbsent (key (currentRecords.get (i).getRecord ()), i);
     }
 
     /**
@@ -1274,15 +1399,18 @@ public class Table<R> extends Component<Table.Config<R>> implements ITable<R> {
                 item.discard ();
             }
             currentRecords.clear ();
+            currentIndex.clear ();
+            if (window != null) {
+                pool.clear ();
+                windowFrom = windowTo = -1;
+            }
             DomSupport.removeAllChildren (contentEl);
             return Tribool.FALSE;
         }
 
-        // Go through all the elements and strip groups.
-        // if ((itemsPerRow == 1) && (groupHandler != null)) {
-        // GQuery items = GQuery.$ (targetEl).find ("." + styles ().wrapGroup ());
-        // items.remove ();
-        // }
+        // Virtualised rendering only renders those records in view.
+        if (window != null)
+            return renderWindow (records, true);
 
         // Walk through the new list and identify the position already held
         // in the current list. The idea being that we retain the wrapper
@@ -1292,61 +1420,41 @@ public class Table<R> extends Component<Table.Config<R>> implements ITable<R> {
         // helps prevent page jumping (for example, if adding records to the
         // end of the gallery and the page is scrolled to the bottom of the
         // gallery then re-writing all of the elements would result in the
-        // page jumping to the top of the gallery each refresh). The model
-        // below works well for insertions and removals but we simplify
-        // things for re-ordering (where the jumping issue is generally a
-        // non-issue). In this case we impose the condition that current
-        // positions must be increasing in order and anything out of this
-        // order is simply re-inserted. This could be "cleaned" by a
-        // reorder of DOM elements post determination of current position
-        // but this has been deferred to a later date.
+        // page jumping to the top of the gallery each refresh). Records are
+        // matched by key (see key(Object)) so this is linear in the number
+        // of records. Where a key appears more than once only the first is
+        // matched (the remainder being treated as new).
         int[] currentPositions = new int[records.size ()];
+        boolean[] retained = new boolean[currentRecords.size ()];
         int i = 0;
-        int idxMax = -1;
         for (R record : records) {
-            currentPositions[i] = indexOf (record);
-            if (currentPositions[i] >= 0) {
-                if (idxMax < currentPositions[i])
-                    idxMax = currentPositions[i];
-                else
-                    currentPositions[i] = -1;
-            }
-            i++;
+            int pos = indexOf (record);
+            if ((pos >= 0) && retained[pos])
+                pos = -1;
+            if (pos >= 0)
+                retained[pos] = true;
+            currentPositions[i++] = pos;
         }
 
-        // Create a list of items that will be added.
-        List<Element> addList = new ArrayList<Element> ();
+        // Remove (and discard) those records no longer present.
+        for (int j = 0, len = currentRecords.size (); j < len; j++) {
+            if (retained[j])
+                continue;
+            RecordWrapper item = currentRecords.get (j);
+            Element itemEl = item.getElement ();
+            if (itemEl.parentNode == contentEl)
+                contentEl.removeChild (itemEl);
+            item.discard ();
+        }
 
-        // Render the records in one pass. Do this by
-        // removing those records that are no longer to be displayed or
-        // being re-rendered and inserting re-rendered or new records.
+        // Build out the revised records, rendering those that are new (or all
+        // of them when re-rendering on refresh).
         int idx = 0;
-        int adjustment = 0;
-        List<RecordWrapper> revisedRecords = new ArrayList<> ();
-
+        List<RecordWrapper> revisedRecords = new ArrayList<> (records.size ());
         for (R record : records) {
-            // Get the current position of the record we are inserting.
-            int currentPosition = currentPositions[idx];
-
-            RecordWrapper item;
-            boolean newRecord = false;
-            if (currentPosition == -1) {
-                // New element we are inserting.
-                item = new RecordWrapper ();
-                addList.add (item.getElement ());
-                DomSupport.insertChild (contentEl, item.getElement (), idx);
-                adjustment--;
-            } else {
-                // Remove everything up to the element.
-                int distaceAway = currentPosition - adjustment - idx;
-                while (distaceAway > 0) {
-                    contentEl.removeChild (contentEl.childNodes.getAt (idx));
-                    distaceAway--;
-                    adjustment++;
-                }
-                item = currentRecords.get (currentPosition);
-            }
-            newRecord = item.setRecord (record);
+            int currentPosition = currentPositions[idx++];
+            RecordWrapper item = (currentPosition < 0) ? new RecordWrapper () : currentRecords.get (currentPosition);
+            boolean newRecord = item.setRecord (record);
             revisedRecords.add (item);
 
             // Render the record (only if we are refreshing old records or
@@ -1360,31 +1468,130 @@ public class Table<R> extends Component<Table.Config<R>> implements ITable<R> {
                 selected = ((IStoreSelection<Object>) store).isSelected (record);
 
             item.updateSelection (selected);
-            idx++;
+        }
+
+        // Position the rows. The retained rows that form a longest increasing
+        // subsequence (of their prior positions) remain where they are and
+        // everything else is moved into place (or inserted if new). Working
+        // backwards means the row after is always in its final position.
+        boolean[] stable = ListSupport.stable (currentPositions);
+        Node next = null;
+        for (int j = revisedRecords.size () - 1; j >= 0; j--) {
+            Element itemEl = revisedRecords.get (j).getElement ();
+            itemEl.id = "sl-gallery-item-" + j;
+            if (!stable[j])
+                contentEl.insertBefore (itemEl, next);
+            next = itemEl;
         }
 
         // Clean up any extra elements.
-        int size = contentEl.childElementCount;
-        while (idx++ < size)
+        Element lastEl = revisedRecords.get (revisedRecords.size () - 1).getElement ();
+        while ((contentEl.lastChild != null) && (contentEl.lastChild != lastEl))
             contentEl.removeChild (contentEl.lastChild);
 
-        // Assign positional classes to elements (accounting for additions
-        // and removals).
-        for (int j = 0, len = revisedRecords.size (); j < len; j++) {
-            RecordWrapper item = revisedRecords.get (j);
-            Element itemEl = item.getElement ();
-            itemEl.id = "sl-gallery-item-" + j;
-            // item.updatePosition (rowPos, colPos);
-        }
+        assignCurrentRecords (revisedRecords);
 
-        // Set the current records (discarding old ones).
-        for (RecordWrapper item : currentRecords) {
-            if (!revisedRecords.contains (item)) {
-                item.discard ();
+        return endOfPage ();
+    }
+
+    /**
+     * Renders (when virtualised) only those records that intersect the scroll
+     * viewport. Wrappers for records that remain in view are retained, those for
+     * records that have scrolled out of view are recycled for those that have
+     * scrolled into view.
+     * 
+     * @param records
+     *                the records (all of them).
+     * @param refresh
+     *                {@code true} if the records have changed (otherwise only a
+     *                change in the window results in rendering).
+     * @return {@code true} if displaying the end of the table region.
+     */
+    @SuppressWarnings("unchecked")
+    protected Tribool renderWindow(List<R> records, boolean refresh) {
+        if ((window == null) || (contentEl == null) || (scrollerEl == null) || records.isEmpty ())
+            return endOfPage ();
+        double viewTop = scrollerEl.getBoundingClientRect ().top - contentEl.getBoundingClientRect ().top;
+        int[] range = window.window (records.size (), viewTop, scrollerEl.clientHeight);
+        if (!refresh && (range[0] == windowFrom) && (range[1] == windowTo))
+            return endOfPage ();
+
+        // Match the records in the window against those currently rendered, drawing
+        // from the pool of released wrappers for those that are not.
+        List<RecordWrapper> revisedRecords = new ArrayList<> ();
+        boolean[] retained = new boolean[currentRecords.size ()];
+        for (int i = range[0]; i < range[1]; i++) {
+            R record = records.get (i);
+            RecordWrapper item = null;
+            int pos = indexOf (record);
+            if ((pos >= 0) && !retained[pos]) {
+                retained[pos] = true;
+                item = currentRecords.get (pos);
             }
+            boolean newRecord = false;
+            if (item == null) {
+                item = pool.isEmpty () ? new RecordWrapper () : pool.remove (pool.size () - 1);
+                newRecord = true;
+            }
+            newRecord |= item.setRecord (record);
+            if (newRecord || (refresh && config ().renderOnRefresh))
+                item.render ();
+            boolean selected = false;
+            if (store instanceof IStoreSelection)
+                selected = ((IStoreSelection<Object>) store).isSelected (record);
+            item.updateSelection (selected);
+            revisedRecords.add (item);
         }
-        currentRecords.clear ();
-        currentRecords.addAll (revisedRecords);
+        for (int j = 0, len = currentRecords.size (); j < len; j++) {
+            if (retained[j])
+                continue;
+            RecordWrapper item = currentRecords.get (j);
+            item.recycle ();
+            pool.add (item);
+        }
+
+        // Position the rows between the spacers (moving only those out of place).
+        // The spacers are only present when they take up space.
+        if (topSpacerEl == null) {
+            int span = config ().headers.size () + (config ().selectable ? 1 : 0);
+            topSpacerEl = DomSupport.createTR ();
+            DomSupport.createTD (topSpacerEl).setAttribute ("colspan", "" + span);
+            bottomSpacerEl = DomSupport.createTR ();
+            DomSupport.createTD (bottomSpacerEl).setAttribute ("colspan", "" + span);
+        }
+        if (range[0] > 0) {
+            if (contentEl.firstChild != topSpacerEl)
+                contentEl.insertBefore (topSpacerEl, contentEl.firstChild);
+        } else if (topSpacerEl.parentNode != null) {
+            topSpacerEl.parentNode.removeChild (topSpacerEl);
+        }
+        Node ref = (range[0] > 0) ? topSpacerEl.nextSibling : contentEl.firstChild;
+        for (int j = 0, len = revisedRecords.size (); j < len; j++) {
+            Element itemEl = revisedRecords.get (j).getElement ();
+            itemEl.id = "sl-gallery-item-" + (range[0] + j);
+            if (itemEl == ref)
+                ref = ref.nextSibling;
+            else
+                contentEl.insertBefore (itemEl, ref);
+        }
+        if (range[1] < records.size ()) {
+            if (contentEl.lastChild != bottomSpacerEl)
+                contentEl.appendChild (bottomSpacerEl);
+        } else if (bottomSpacerEl.parentNode != null) {
+            bottomSpacerEl.parentNode.removeChild (bottomSpacerEl);
+        }
+        assignCurrentRecords (revisedRecords);
+        windowFrom = range[0];
+        windowTo = range[1];
+
+        // Measure (the average height of the rendered rows) then size the spacers.
+        if (window.measuring () && !revisedRecords.isEmpty ()) {
+            double top = revisedRecords.get (0).getElement ().getBoundingClientRect ().top;
+            double bottom = revisedRecords.get (revisedRecords.size () - 1).getElement ().getBoundingClientRect ().bottom;
+            window.measure ((bottom - top) / revisedRecords.size ());
+        }
+        CSS.HEIGHT.apply ((Element) topSpacerEl.firstChild, Length.px (window.before (range[0])));
+        CSS.HEIGHT.apply ((Element) bottomSpacerEl.firstChild, Length.px (window.after (records.size (), range[1])));
 
         return endOfPage ();
     }
@@ -1471,6 +1678,24 @@ public class Table<R> extends Component<Table.Config<R>> implements ITable<R> {
         public void discard() {
         }
 
+        /**
+         * Releases the wrapper (when virtualised) for re-use by another record.
+         * This removes the row from the table and clears the cells.
+         */
+        void recycle() {
+            if (el == null)
+                return;
+            if (el.parentNode != null)
+                el.parentNode.removeChild (el);
+            for (Element cellEl : headerEl)
+                DomSupport.removeAllChildren (cellEl);
+            if (selectorEl != null)
+                selectorEl.checked = false;
+            handlers = null;
+            record = null;
+            rendered = false;
+        }
+
         public Element getElement() {
             build ();
             return el;
@@ -0,0 +1,64 @@
+package com.effacy.jui.ui.client.gallery;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class VirtualWindowTest {
+
+    @Test
+    public void fixed() {
+        VirtualWindow window = new VirtualWindow (20, false, 2);
+
+        // At the top (rows 0-4 visible plus 2 overscan below).
+        Assertions.assertArrayEquals (new int[] { 0, 7 }, window.window (1000, 0, 100));
+        Assertions.assertEquals (0, window.before (0), 0.001);
+        Assertions.assertEquals (993 * 20, window.after (1000, 7), 0.001);
+
+        // Scrolled into the middle (rows 50-55 visible).
+        Assertions.assertArrayEquals (new int[] { 48, 57 }, window.window (1000, 1000, 100));
+        Assertions.assertEquals (48 * 20, window.before (48), 0.001);
+
+        // At the end.
+        Assertions.assertArrayEquals (new int[] { 993, 1000 }, window.window (1000, 19900, 100));
+        Assertions.assertEquals (0, window.after (1000, 1000), 0.001);
+
+        // Beyond the end (the last rows are presented).
+        Assertions.assertArrayEquals (new int[] { 993, 1000 }, window.window (1000, 50000, 100));
+
+        // Not laid out.
+        Assertions.assertArrayEquals (new int[] { 0, 5 }, window.window (1000, 0, 0));
+        Assertions.assertArrayEquals (new int[] { 0, 10 }, window.window (10, 0, 1000));
+        Assertions.assertArrayEquals (new int[] { 0, 0 }, window.window (0, 0, 100));
+
+        // Measuring not enabled.
+        window.measure (40);
+        Assertions.assertEquals (20, window.height (), 0.001);
+    }
+
+    @Test
+    public void measured() {
+        VirtualWindow window = new VirtualWindow (20, true, 0);
+        Assertions.assertEquals (20, window.height (), 0.001);
+        window.measure (30);
+        window.measure (50);
+        Assertions.assertEquals (40, window.height (), 0.001);
+        Assertions.assertArrayEquals (new int[] { 10, 13 }, window.window (100, 400, 100));
+        Assertions.assertEquals (400, window.before (10), 0.001);
+        Assertions.assertEquals (87 * 40, window.after (100, 13), 0.001);
+    }
+
+    @Test
+    public void perRow() {
+        VirtualWindow window = new VirtualWindow (100, false, 1);
+        window.perRow (4);
+
+        // 25 rows of 4 (the last with 2), rows 3-4 visible.
+        Assertions.assertArrayEquals (new int[] { 8, 24 }, window.window (98, 300, 150));
+        Assertions.assertEquals (200, window.before (8), 0.001);
+        Assertions.assertEquals (19 * 100, window.after (98, 24), 0.001);
+
+        // The last (partial) row.
+        Assertions.assertArrayEquals (new int[] { 92, 98 }, window.window (98, 2400, 100));
+        Assertions.assertEquals (0, window.after (98, 98), 0.001);
+    }
+}